@@ -0,0 +1,144 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.benchmark;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.operator.LookupSourceSupplier;
+import com.facebook.presto.operator.PagesIndex;
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.HASH_BUILD_PARALLELISM;
+import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.openjdk.jmh.annotations.Mode.AverageTime;
+import static org.openjdk.jmh.annotations.Scope.Thread;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Measures the time to build the hash table of a single join partition, such as the
+ * build side of a broadcast join, with the sequential and the radix partitioned parallel build.
+ */
+@SuppressWarnings("MethodMayBeStatic")
+@State(Thread)
+@OutputTimeUnit(MILLISECONDS)
+@BenchmarkMode(AverageTime)
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class BenchmarkParallelHashBuild
+{
+    private static final int ROWS_PER_PAGE = 10_000;
+
+    @State(Thread)
+    public static class Context
+    {
+        @Param({"1", "2", "4", "8"})
+        private int hashBuildParallelism = 4;
+
+        @Param({"100000", "1000000", "10000000"})
+        private int positionCount = 1_000_000;
+
+        private ExecutorService executor;
+        private Session session;
+        private PagesIndex pagesIndex;
+
+        @Setup
+        public void setUp()
+        {
+            executor = newFixedThreadPool(hashBuildParallelism, daemonThreadsNamed("hash-build-%s"));
+            session = testSessionBuilder()
+                    .setSystemProperty(HASH_BUILD_PARALLELISM, String.valueOf(hashBuildParallelism))
+                    .build();
+            pagesIndex = new PagesIndex.TestingFactory(false, executor).newPagesIndex(ImmutableList.of(BIGINT, BIGINT), positionCount);
+            for (int start = 0; start < positionCount; start += ROWS_PER_PAGE) {
+                int end = Math.min(positionCount, start + ROWS_PER_PAGE);
+                BlockBuilder keys = BIGINT.createBlockBuilder(null, end - start);
+                BlockBuilder values = BIGINT.createBlockBuilder(null, end - start);
+                for (int position = start; position < end; position++) {
+                    BIGINT.writeLong(keys, ThreadLocalRandom.current().nextLong());
+                    BIGINT.writeLong(values, position);
+                }
+                pagesIndex.addPage(new Page(keys.build(), values.build()));
+            }
+        }
+
+        @TearDown
+        public void tearDown()
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public LookupSourceSupplier benchmarkBuild(Context context)
+    {
+        return context.pagesIndex.createLookupSourceSupplier(
+                context.session,
+                ImmutableList.of(0),
+                OptionalInt.empty(),
+                Optional.empty(),
+                Optional.empty(),
+                ImmutableList.of());
+    }
+
+    @Test
+    public void verifyBuild()
+    {
+        Context context = new Context();
+        try {
+            context.setUp();
+            assertEquals(benchmarkBuild(context).getPositionCount(), context.positionCount);
+        }
+        finally {
+            context.tearDown();
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkParallelHashBuild.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.bytecode;
+
+import java.util.Optional;
+
+/**
+ * Stores the bytecode written by {@link ClassGenerator}, so that classes generated again
+ * with the same definition skip writing the bytecode and computing the stack map frames.
+ * Keys identify the bytecode of a class definition independently of the class name.
+ */
+public interface BytecodeCache
+{
+    Optional<byte[]> get(String key);
+
+    void put(String key, byte[] bytecode);
+}
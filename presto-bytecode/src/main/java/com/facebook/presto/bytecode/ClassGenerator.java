@@ -40,18 +40,22 @@ import java.util.Optional;
 import static com.facebook.presto.bytecode.ClassInfoLoader.createClassInfoLoader;
 import static com.facebook.presto.bytecode.ParameterizedType.typeFromJavaClassName;
 import static com.google.common.collect.MoreCollectors.onlyElement;
+import static com.google.common.hash.Hashing.sha256;
 import static com.google.common.io.CharStreams.nullWriter;
 import static java.nio.file.Files.createDirectories;
 import static java.util.Objects.requireNonNull;
 
 public class ClassGenerator
 {
+    private static final String CACHED_CLASS_NAME = "com/facebook/presto/$gen/CachedClass";
+
     private final DynamicClassLoader classLoader;
     private final boolean fakeLineNumbers;
     private final boolean runAsmVerifier;
     private final boolean dumpRawBytecode;
     private final Writer output;
     private final Optional<Path> dumpClassPath;
+    private final Optional<BytecodeCache> bytecodeCache;
 
     public static ClassGenerator classGenerator(ClassLoader parentClassLoader)
     {
@@ -65,7 +69,7 @@ public class ClassGenerator
 
     public static ClassGenerator classGenerator(DynamicClassLoader classLoader)
     {
-        return new ClassGenerator(classLoader, false, false, false, nullWriter(), Optional.empty());
+        return new ClassGenerator(classLoader, false, false, false, nullWriter(), Optional.empty(), Optional.empty());
     }
 
     private ClassGenerator(
@@ -74,7 +78,8 @@ public class ClassGenerator
             boolean runAsmVerifier,
             boolean dumpRawBytecode,
             Writer output,
-            Optional<Path> dumpClassPath)
+            Optional<Path> dumpClassPath,
+            Optional<BytecodeCache> bytecodeCache)
     {
         this.classLoader = requireNonNull(classLoader, "classLoader is null");
         this.fakeLineNumbers = fakeLineNumbers;
@@ -82,26 +87,27 @@ public class ClassGenerator
         this.dumpRawBytecode = dumpRawBytecode;
         this.output = requireNonNull(output, "output is null");
         this.dumpClassPath = requireNonNull(dumpClassPath, "dumpClassPath is null");
+        this.bytecodeCache = requireNonNull(bytecodeCache, "bytecodeCache is null");
     }
 
     public ClassGenerator fakeLineNumbers(boolean fakeLineNumbers)
     {
-        return new ClassGenerator(classLoader, fakeLineNumbers, runAsmVerifier, dumpRawBytecode, output, dumpClassPath);
+        return new ClassGenerator(classLoader, fakeLineNumbers, runAsmVerifier, dumpRawBytecode, output, dumpClassPath, bytecodeCache);
     }
 
     public ClassGenerator runAsmVerifier(boolean runAsmVerifier)
     {
-        return new ClassGenerator(classLoader, fakeLineNumbers, runAsmVerifier, dumpRawBytecode, output, dumpClassPath);
+        return new ClassGenerator(classLoader, fakeLineNumbers, runAsmVerifier, dumpRawBytecode, output, dumpClassPath, bytecodeCache);
     }
 
     public ClassGenerator dumpRawBytecode(boolean dumpRawBytecode)
     {
-        return new ClassGenerator(classLoader, fakeLineNumbers, runAsmVerifier, dumpRawBytecode, output, dumpClassPath);
+        return new ClassGenerator(classLoader, fakeLineNumbers, runAsmVerifier, dumpRawBytecode, output, dumpClassPath, bytecodeCache);
     }
 
     public ClassGenerator outputTo(Writer output)
     {
-        return new ClassGenerator(classLoader, fakeLineNumbers, runAsmVerifier, dumpRawBytecode, output, dumpClassPath);
+        return new ClassGenerator(classLoader, fakeLineNumbers, runAsmVerifier, dumpRawBytecode, output, dumpClassPath, bytecodeCache);
     }
 
     public ClassGenerator dumpClassFilesTo(Path dumpClassPath)
@@ -111,7 +117,17 @@ public class ClassGenerator
 
     public ClassGenerator dumpClassFilesTo(Optional<Path> dumpClassPath)
     {
-        return new ClassGenerator(classLoader, fakeLineNumbers, runAsmVerifier, dumpRawBytecode, output, dumpClassPath);
+        return new ClassGenerator(classLoader, fakeLineNumbers, runAsmVerifier, dumpRawBytecode, output, dumpClassPath, bytecodeCache);
+    }
+
+    /**
+     * Looks up the bytecode of single class definitions in the cache before writing it. A class
+     * loaded from the cache keeps the name it was generated with, and the call site bindings of
+     * the class loader must be the ones the class definition was built with.
+     */
+    public ClassGenerator bytecodeCache(Optional<BytecodeCache> bytecodeCache)
+    {
+        return new ClassGenerator(classLoader, fakeLineNumbers, runAsmVerifier, dumpRawBytecode, output, dumpClassPath, bytecodeCache);
     }
 
     public <T> Class<? extends T> defineClass(ClassDefinition classDefinition, Class<T> superType)
@@ -125,14 +141,23 @@ public class ClassGenerator
         ClassInfoLoader classInfoLoader = createClassInfoLoader(classDefinitions, classLoader);
         Map<String, byte[]> bytecodes = new LinkedHashMap<>();
 
+        // classes defined together may refer to each other by name, so only single classes can be loaded from the cache,
+        // and fake line numbers are added after the cache key is computed
+        boolean useBytecodeCache = bytecodeCache.isPresent() && classDefinitions.size() == 1 && !fakeLineNumbers;
+
         for (ClassDefinition classDefinition : classDefinitions) {
             // We call the simpler class writer first to get any errors out using simpler setting.
             // This helps when we have large queries that can potentially cause COMPUTE_FRAMES
             // (used by SmartClassWriter for doing more thorough analysis)
             ClassWriter simpleClassWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-            classDefinition.visit(simpleClassWriter);
+            // the cache key is the bytecode with a fixed class name, since generated class names are unique
+            classDefinition.visit(useBytecodeCache ? new ClassNameReplacingVisitor(simpleClassWriter, classDefinition.getType().getClassName(), CACHED_CLASS_NAME) : simpleClassWriter);
+            Optional<String> cacheKey = Optional.empty();
             try {
-                simpleClassWriter.toByteArray();
+                byte[] simpleBytecode = simpleClassWriter.toByteArray();
+                if (useBytecodeCache) {
+                    cacheKey = Optional.of(sha256().hashBytes(simpleBytecode).toString());
+                }
             }
             catch (ClassTooLargeException | MethodTooLargeException largeCodeException) {
                 throw new ByteCodeTooLargeException(largeCodeException);
@@ -141,6 +166,14 @@ public class ClassGenerator
                 throw new CompilationException("Error compiling class: " + classDefinition.getName(), e);
             }
 
+            if (cacheKey.isPresent()) {
+                Optional<byte[]> cachedBytecode = bytecodeCache.get().get(cacheKey.get());
+                if (cachedBytecode.isPresent()) {
+                    bytecodes.put(new ClassReader(cachedBytecode.get()).getClassName().replace('/', '.'), cachedBytecode.get());
+                    continue;
+                }
+            }
+
             ClassWriter writer = new SmartClassWriter(classInfoLoader);
 
             try {
@@ -164,6 +197,7 @@ public class ClassGenerator
             }
 
             bytecodes.put(classDefinition.getType().getJavaClassName(), bytecode);
+            cacheKey.ifPresent(key -> bytecodeCache.get().put(key, bytecode));
 
             if (runAsmVerifier) {
                 ClassReader reader = new ClassReader(bytecode);
@@ -0,0 +1,151 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.bytecode;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import static java.util.Objects.requireNonNull;
+import static org.objectweb.asm.Opcodes.ASM5;
+
+/**
+ * Replaces the name of the visited class with another name, in the class itself and
+ * wherever the class refers to itself, such as in field accesses and descriptors.
+ */
+class ClassNameReplacingVisitor
+        extends ClassVisitor
+{
+    private final String internalName;
+    private final String replacementInternalName;
+    private final String descriptor;
+    private final String replacementDescriptor;
+
+    public ClassNameReplacingVisitor(ClassVisitor cv, String internalName, String replacementInternalName)
+    {
+        super(ASM5, cv);
+        this.internalName = requireNonNull(internalName, "internalName is null");
+        this.replacementInternalName = requireNonNull(replacementInternalName, "replacementInternalName is null");
+        this.descriptor = "L" + internalName + ";";
+        this.replacementDescriptor = "L" + replacementInternalName + ";";
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces)
+    {
+        super.visit(version, access, replaceName(name), replaceDescriptor(signature), replaceName(superName), interfaces);
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String desc, String signature, Object value)
+    {
+        return super.visitField(access, name, replaceDescriptor(desc), replaceDescriptor(signature), value);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions)
+    {
+        return new NameReplacingMethodVisitor(super.visitMethod(access, name, replaceDescriptor(desc), replaceDescriptor(signature), exceptions));
+    }
+
+    private String replaceName(String name)
+    {
+        return internalName.equals(name) ? replacementInternalName : name;
+    }
+
+    private String replaceDescriptor(String descriptor)
+    {
+        return descriptor == null ? null : descriptor.replace(this.descriptor, replacementDescriptor);
+    }
+
+    private Object replaceConstant(Object constant)
+    {
+        if (constant instanceof Type) {
+            Type type = (Type) constant;
+            if (type.getSort() == Type.OBJECT) {
+                return Type.getObjectType(replaceName(type.getInternalName()));
+            }
+            return Type.getType(replaceDescriptor(type.getDescriptor()));
+        }
+        if (constant instanceof Handle) {
+            Handle handle = (Handle) constant;
+            return new Handle(handle.getTag(), replaceName(handle.getOwner()), handle.getName(), replaceDescriptor(handle.getDesc()), handle.isInterface());
+        }
+        return constant;
+    }
+
+    private class NameReplacingMethodVisitor
+            extends MethodVisitor
+    {
+        public NameReplacingMethodVisitor(MethodVisitor mv)
+        {
+            super(ASM5, mv);
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type)
+        {
+            super.visitTypeInsn(opcode, replaceName(type));
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String desc)
+        {
+            super.visitFieldInsn(opcode, replaceName(owner), name, replaceDescriptor(desc));
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf)
+        {
+            super.visitMethodInsn(opcode, replaceName(owner), name, replaceDescriptor(desc), itf);
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs)
+        {
+            Object[] replacedArgs = new Object[bsmArgs.length];
+            for (int i = 0; i < bsmArgs.length; i++) {
+                replacedArgs[i] = replaceConstant(bsmArgs[i]);
+            }
+            super.visitInvokeDynamicInsn(name, replaceDescriptor(desc), (Handle) replaceConstant(bsm), replacedArgs);
+        }
+
+        @Override
+        public void visitLdcInsn(Object constant)
+        {
+            super.visitLdcInsn(replaceConstant(constant));
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String desc, int dims)
+        {
+            super.visitMultiANewArrayInsn(replaceDescriptor(desc), dims);
+        }
+
+        @Override
+        public void visitTryCatchBlock(Label start, Label end, Label handler, String type)
+        {
+            super.visitTryCatchBlock(start, end, handler, replaceName(type));
+        }
+
+        @Override
+        public void visitLocalVariable(String name, String desc, String signature, Label start, Label end, int index)
+        {
+            super.visitLocalVariable(name, replaceDescriptor(desc), replaceDescriptor(signature), start, end, index);
+        }
+    }
+}
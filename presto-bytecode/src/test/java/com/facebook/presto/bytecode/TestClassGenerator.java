@@ -19,6 +19,9 @@ import org.testng.annotations.Test;
 import java.io.StringWriter;
 import java.lang.reflect.Method;
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
 
 import static com.facebook.presto.bytecode.Access.FINAL;
 import static com.facebook.presto.bytecode.Access.PUBLIC;
@@ -28,6 +31,8 @@ import static com.facebook.presto.bytecode.ClassGenerator.classGenerator;
 import static com.facebook.presto.bytecode.Parameter.arg;
 import static com.facebook.presto.bytecode.ParameterizedType.type;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.add;
+import static com.facebook.presto.bytecode.expression.BytecodeExpressions.constantInt;
+import static com.facebook.presto.bytecode.expression.BytecodeExpressions.invokeStatic;
 import static com.google.common.io.MoreFiles.deleteRecursively;
 import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
 import static java.nio.file.Files.createTempDirectory;
@@ -86,4 +91,65 @@ public class TestClassGenerator
             deleteRecursively(tempDir, ALLOW_INSECURE);
         }
     }
+
+    @Test
+    public void testBytecodeCache()
+            throws Exception
+    {
+        Map<String, byte[]> entries = new HashMap<>();
+        BytecodeCache bytecodeCache = new BytecodeCache()
+        {
+            @Override
+            public Optional<byte[]> get(String key)
+            {
+                return Optional.ofNullable(entries.get(key));
+            }
+
+            @Override
+            public void put(String key, byte[] bytecode)
+            {
+                entries.put(key, bytecode);
+            }
+        };
+        ClassGenerator generator = classGenerator(getClass().getClassLoader()).bytecodeCache(Optional.of(bytecodeCache));
+
+        Class<?> clazz = generator.defineClass(createAddConstantClass("test/AddConstant_1", 13), Object.class);
+        assertEquals(clazz.getName(), "test.AddConstant_1");
+        assertEquals(clazz.getMethod("addTwice", int.class).invoke(null, 1), 27);
+        assertEquals(entries.size(), 1);
+
+        // the same definition under another name is loaded from the cache, with the name it was generated with
+        clazz = generator.defineClass(createAddConstantClass("test/AddConstant_2", 13), Object.class);
+        assertEquals(clazz.getName(), "test.AddConstant_1");
+        assertEquals(clazz.getMethod("addTwice", int.class).invoke(null, 1), 27);
+        assertEquals(entries.size(), 1);
+
+        clazz = generator.defineClass(createAddConstantClass("test/AddConstant_3", 42), Object.class);
+        assertEquals(clazz.getName(), "test.AddConstant_3");
+        assertEquals(clazz.getMethod("addTwice", int.class).invoke(null, 1), 85);
+        assertEquals(entries.size(), 2);
+    }
+
+    // the class calls itself, so that its name appears in its bytecode
+    private static ClassDefinition createAddConstantClass(String name, int constant)
+    {
+        ClassDefinition classDefinition = new ClassDefinition(
+                a(PUBLIC, FINAL),
+                name,
+                type(Object.class));
+
+        Parameter value = arg("value", int.class);
+        MethodDefinition addConstant = classDefinition.declareMethod(a(PUBLIC, STATIC), "addConstant", type(int.class), ImmutableList.of(value));
+        addConstant.getBody()
+                .append(add(value, constantInt(constant)))
+                .retInt();
+
+        Parameter addTwiceValue = arg("value", int.class);
+        MethodDefinition addTwice = classDefinition.declareMethod(a(PUBLIC, STATIC), "addTwice", type(int.class), ImmutableList.of(addTwiceValue));
+        addTwice.getBody()
+                .append(invokeStatic(addConstant, invokeStatic(addConstant, addTwiceValue)))
+                .retInt();
+
+        return classDefinition;
+    }
 }
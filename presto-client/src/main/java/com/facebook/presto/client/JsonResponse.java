@@ -136,18 +136,24 @@ public final class JsonResponse<T>
                 }
             }
 
-            ResponseBody responseBody = requireNonNull(response.body());
-            String body = responseBody.string();
-            if (isJson(responseBody.contentType())) {
-                return new JsonResponse<>(response.code(), response.message(), response.headers(), body, codec);
-            }
-            return new JsonResponse<>(response.code(), response.message(), response.headers(), body);
+            return fromResponse(codec, response);
         }
         catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    static <T> JsonResponse<T> fromResponse(JsonCodec<T> codec, Response response)
+            throws IOException
+    {
+        ResponseBody responseBody = requireNonNull(response.body());
+        String body = responseBody.string();
+        if (isJson(responseBody.contentType())) {
+            return new JsonResponse<>(response.code(), response.message(), response.headers(), body, codec);
+        }
+        return new JsonResponse<>(response.code(), response.message(), response.headers(), body);
+    }
+
     private static boolean isJson(MediaType type)
     {
         return (type != null) && "application".equals(type.type()) && "json".equals(type.subtype());
@@ -46,6 +46,24 @@ public class QueryResults
     private final List<PrestoWarning> warnings;
     private final String updateType;
     private final Long updateCount;
+    private final List<ResultSegment> segments;
+
+    public QueryResults(
+            String id,
+            URI infoUri,
+            URI partialCancelUri,
+            URI nextUri,
+            List<Column> columns,
+            List<List<Object>> data,
+            List<String> binaryData,
+            StatementStats stats,
+            QueryError error,
+            List<PrestoWarning> warnings,
+            String updateType,
+            Long updateCount)
+    {
+        this(id, infoUri, partialCancelUri, nextUri, columns, data, binaryData, stats, error, warnings, updateType, updateCount, null);
+    }
 
     @JsonCreator
     public QueryResults(
@@ -60,7 +78,8 @@ public class QueryResults
             @JsonProperty("error") QueryError error,
             @JsonProperty("warnings") List<PrestoWarning> warnings,
             @JsonProperty("updateType") String updateType,
-            @JsonProperty("updateCount") Long updateCount)
+            @JsonProperty("updateCount") Long updateCount,
+            @JsonProperty("segments") List<ResultSegment> segments)
     {
         this(
                 id,
@@ -74,7 +93,8 @@ public class QueryResults
                 error,
                 firstNonNull(warnings, ImmutableList.of()),
                 updateType,
-                updateCount);
+                updateCount,
+                segments);
     }
 
     public QueryResults(
@@ -90,6 +110,24 @@ public class QueryResults
             List<PrestoWarning> warnings,
             String updateType,
             Long updateCount)
+    {
+        this(id, infoUri, partialCancelUri, nextUri, columns, data, binaryData, stats, error, warnings, updateType, updateCount, null);
+    }
+
+    public QueryResults(
+            String id,
+            URI infoUri,
+            URI partialCancelUri,
+            URI nextUri,
+            List<Column> columns,
+            Iterable<List<Object>> data,
+            Iterable<String> binaryData,
+            StatementStats stats,
+            QueryError error,
+            List<PrestoWarning> warnings,
+            String updateType,
+            Long updateCount,
+            List<ResultSegment> segments)
     {
         this.id = requireNonNull(id, "id is null");
         this.infoUri = requireNonNull(infoUri, "infoUri is null");
@@ -98,7 +136,8 @@ public class QueryResults
         this.columns = (columns != null) ? ImmutableList.copyOf(columns) : null;
         this.data = (data != null) ? unmodifiableIterable(data) : null;
         this.binaryData = (binaryData != null) ? unmodifiableIterable(binaryData) : null;
-        checkArgument((data == null && binaryData == null) || columns != null, "data present without columns");
+        this.segments = (segments != null) ? ImmutableList.copyOf(segments) : null;
+        checkArgument((data == null && binaryData == null && segments == null) || columns != null, "data present without columns");
         this.stats = requireNonNull(stats, "stats is null");
         this.error = error;
         this.warnings = ImmutableList.copyOf(requireNonNull(warnings, "warnings is null"));
@@ -241,6 +280,18 @@ public class QueryResults
         return updateCount;
     }
 
+    /**
+     * Returns the segments with the payload (results) spooled by the workers, which the client fetches
+     * from the URI of each segment and acknowledges with a DELETE request to the same URI
+     * @return {@link com.facebook.presto.client.ResultSegment}
+     */
+    @Nullable
+    @JsonProperty
+    public List<ResultSegment> getSegments()
+    {
+        return segments;
+    }
+
     @Override
     public String toString()
     {
@@ -256,6 +307,7 @@ public class QueryResults
                 .add("error", error)
                 .add("updateType", updateType)
                 .add("updateCount", updateCount)
+                .add("segments", segments)
                 .toString();
     }
 }
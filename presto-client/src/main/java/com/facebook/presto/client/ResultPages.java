@@ -0,0 +1,195 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.client;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.type.Decimals;
+import com.facebook.presto.common.type.NamedTypeSignature;
+import com.facebook.presto.common.type.TypeSignature;
+import com.facebook.presto.common.type.TypeSignatureParameter;
+import com.google.common.collect.ImmutableList;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.facebook.presto.common.type.Decimals.MAX_SHORT_PRECISION;
+import static com.facebook.presto.common.type.StandardTypes.ARRAY;
+import static com.facebook.presto.common.type.StandardTypes.BIGINT;
+import static com.facebook.presto.common.type.StandardTypes.BOOLEAN;
+import static com.facebook.presto.common.type.StandardTypes.CHAR;
+import static com.facebook.presto.common.type.StandardTypes.DATE;
+import static com.facebook.presto.common.type.StandardTypes.DECIMAL;
+import static com.facebook.presto.common.type.StandardTypes.DOUBLE;
+import static com.facebook.presto.common.type.StandardTypes.INTEGER;
+import static com.facebook.presto.common.type.StandardTypes.JSON;
+import static com.facebook.presto.common.type.StandardTypes.MAP;
+import static com.facebook.presto.common.type.StandardTypes.REAL;
+import static com.facebook.presto.common.type.StandardTypes.ROW;
+import static com.facebook.presto.common.type.StandardTypes.SMALLINT;
+import static com.facebook.presto.common.type.StandardTypes.TINYINT;
+import static com.facebook.presto.common.type.StandardTypes.VARBINARY;
+import static com.facebook.presto.common.type.StandardTypes.VARCHAR;
+import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
+import static io.airlift.slice.Slices.wrappedLongArray;
+import static java.lang.Double.longBitsToDouble;
+import static java.lang.Float.intBitsToFloat;
+
+/**
+ * Binary representation of query results, returned by the coordinator to clients that accept
+ * {@link #RESULT_PAGES_MEDIA_TYPE} when fetching the next results.
+ * <p>
+ * The response body is a sequence of frames. A results frame holds the JSON of the {@link QueryResults}
+ * of a request for the next results, it is followed by the page frames with the data of these results.
+ * A page frame holds a serialized page, without compression. A response streams the results of as many
+ * requests as the query produces data for, the client continues with the next URI of the last results.
+ * <p>
+ * Pages are only sent when all the output types are supported by {@link #isSupportedType}, the results
+ * of other queries carry their data as JSON.
+ */
+public final class ResultPages
+{
+    public static final String RESULT_PAGES_MEDIA_TYPE = "application/x-presto-result-pages";
+
+    public static final byte RESULTS_FRAME = 1;
+    public static final byte PAGE_FRAME = 2;
+
+    private ResultPages() {}
+
+    public static boolean isSupportedType(TypeSignature signature)
+    {
+        if (signature.isDistinctType() || signature.isEnum() || signature.getTypeSignatureBase().hasTypeName()) {
+            return false;
+        }
+        switch (signature.getBase()) {
+            case BOOLEAN:
+            case TINYINT:
+            case SMALLINT:
+            case INTEGER:
+            case BIGINT:
+            case REAL:
+            case DOUBLE:
+            case DECIMAL:
+            case VARCHAR:
+            case CHAR:
+            case JSON:
+            case VARBINARY:
+            case DATE:
+                return true;
+            case ARRAY:
+            case ROW:
+                return signature.getTypeOrNamedTypeParametersAsTypeSignatures().stream().allMatch(ResultPages::isSupportedType);
+            case MAP:
+                // varbinary keys are rendered differently by JSON
+                List<TypeSignature> parameters = signature.getTypeOrNamedTypeParametersAsTypeSignatures();
+                return !parameters.get(0).getBase().equals(VARBINARY) && isSupportedType(parameters.get(0)) && isSupportedType(parameters.get(1));
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Converts the rows of the page to the values a client gets for JSON data.
+     */
+    static List<List<Object>> toRows(List<TypeSignature> types, Page page)
+    {
+        ImmutableList.Builder<List<Object>> rows = ImmutableList.builderWithExpectedSize(page.getPositionCount());
+        for (int position = 0; position < page.getPositionCount(); position++) {
+            List<Object> row = new ArrayList<>(types.size());
+            for (int channel = 0; channel < types.size(); channel++) {
+                row.add(toValue(types.get(channel), page.getBlock(channel), position));
+            }
+            rows.add(Collections.unmodifiableList(row)); // allow nulls in list
+        }
+        return rows.build();
+    }
+
+    private static Object toValue(TypeSignature type, Block block, int position)
+    {
+        if (block.isNull(position)) {
+            return null;
+        }
+        switch (type.getBase()) {
+            case BOOLEAN:
+                return block.getByte(position) != 0;
+            case TINYINT:
+                return block.getByte(position);
+            case SMALLINT:
+                return block.getShort(position);
+            case INTEGER:
+                return block.getInt(position);
+            case BIGINT:
+                return block.getLong(position);
+            case REAL:
+                return intBitsToFloat(block.getInt(position));
+            case DOUBLE:
+                return longBitsToDouble(block.getLong(position));
+            case DECIMAL:
+                int precision = type.getParameters().get(0).getLongLiteral().intValue();
+                int scale = type.getParameters().get(1).getLongLiteral().intValue();
+                if (precision <= MAX_SHORT_PRECISION) {
+                    return Decimals.toString(block.getLong(position), scale);
+                }
+                return Decimals.toString(wrappedLongArray(block.getLong(position, 0), block.getLong(position, SIZE_OF_LONG)), scale);
+            case VARCHAR:
+            case JSON:
+                return block.getSlice(position, 0, block.getSliceLength(position)).toStringUtf8();
+            case CHAR:
+                int length = type.getParameters().get(0).getLongLiteral().intValue();
+                StringBuilder value = new StringBuilder(length).append(block.getSlice(position, 0, block.getSliceLength(position)).toStringUtf8());
+                while (value.length() < length) {
+                    value.append(' ');
+                }
+                return value.toString();
+            case VARBINARY:
+                return block.getSlice(position, 0, block.getSliceLength(position)).getBytes();
+            case DATE:
+                return LocalDate.ofEpochDay(block.getInt(position)).toString();
+            case ARRAY:
+                TypeSignature elementType = type.getTypeOrNamedTypeParametersAsTypeSignatures().get(0);
+                Block array = block.getBlock(position);
+                List<Object> elements = new ArrayList<>(array.getPositionCount());
+                for (int i = 0; i < array.getPositionCount(); i++) {
+                    elements.add(toValue(elementType, array, i));
+                }
+                return elements;
+            case MAP:
+                TypeSignature keyType = type.getTypeOrNamedTypeParametersAsTypeSignatures().get(0);
+                TypeSignature valueType = type.getTypeOrNamedTypeParametersAsTypeSignatures().get(1);
+                // keys and values are interleaved
+                Block map = block.getBlock(position);
+                Map<Object, Object> entries = new HashMap<>();
+                for (int i = 0; i < map.getPositionCount(); i += 2) {
+                    entries.put(toValue(keyType, map, i), toValue(valueType, map, i + 1));
+                }
+                return entries;
+            case ROW:
+                Block row = block.getBlock(position);
+                Map<String, Object> fields = new LinkedHashMap<>();
+                for (int i = 0; i < row.getPositionCount(); i++) {
+                    TypeSignatureParameter parameter = type.getParameters().get(i);
+                    NamedTypeSignature field = parameter.getNamedTypeSignature();
+                    fields.put(field.getName().orElse("field" + i), toValue(field.getTypeSignature(), row, i));
+                }
+                return fields;
+            default:
+                throw new IllegalArgumentException("Unsupported type: " + type);
+        }
+    }
+}
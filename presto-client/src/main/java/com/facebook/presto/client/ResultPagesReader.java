@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.client;
+
+import com.facebook.airlift.json.JsonCodec;
+import com.facebook.presto.common.block.BlockEncodingManager;
+import com.facebook.presto.common.type.TypeSignature;
+import com.facebook.presto.spi.page.PagesSerde;
+import io.airlift.slice.InputStreamSliceInput;
+import io.airlift.slice.SliceInput;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.client.ResultPages.PAGE_FRAME;
+import static com.facebook.presto.client.ResultPages.RESULTS_FRAME;
+import static com.facebook.presto.client.ResultPages.RESULT_PAGES_MEDIA_TYPE;
+import static com.facebook.presto.client.ResultPages.toRows;
+import static com.facebook.presto.common.type.TypeSignature.parseTypeSignature;
+import static com.facebook.presto.spi.page.PagesSerdeUtil.readSerializedPage;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Reads the frames of a response in the {@link ResultPages} format.
+ */
+class ResultPagesReader
+        implements Closeable
+{
+    static final PagesSerde PAGES_SERDE = new PagesSerde(new BlockEncodingManager(), Optional.empty(), Optional.empty(), Optional.empty());
+
+    private final Response response;
+    private final SliceInput input;
+    private final JsonCodec<QueryResults> codec;
+
+    private QueryResults currentResults;
+    private List<TypeSignature> types;
+
+    ResultPagesReader(Response response, JsonCodec<QueryResults> codec)
+    {
+        this.response = requireNonNull(response, "response is null");
+        this.input = new InputStreamSliceInput(requireNonNull(response.body(), "response body is null").byteStream());
+        this.codec = requireNonNull(codec, "codec is null");
+    }
+
+    public static boolean isResultPages(Response response)
+    {
+        ResponseBody body = response.body();
+        MediaType type = body == null ? null : body.contentType();
+        return type != null && RESULT_PAGES_MEDIA_TYPE.equals(type.type() + "/" + type.subtype());
+    }
+
+    /**
+     * Returns the results of the next frame. The results of a page frame are the results of the
+     * last results frame, with the rows of the page as data. Returns empty at the end of the response.
+     */
+    public Optional<QueryResults> next()
+    {
+        if (!input.isReadable()) {
+            return Optional.empty();
+        }
+
+        byte frame = input.readByte();
+        if (frame == RESULTS_FRAME) {
+            byte[] json = new byte[input.readInt()];
+            input.readBytes(json);
+            currentResults = codec.fromJson(json);
+            if (currentResults.getColumns() != null) {
+                types = currentResults.getColumns().stream()
+                        .map(column -> parseTypeSignature(column.getType()))
+                        .collect(toList());
+            }
+            return Optional.of(currentResults);
+        }
+        if (frame == PAGE_FRAME) {
+            checkState(types != null, "Page received before the columns of the results");
+            return Optional.of(new QueryResults(
+                    currentResults.getId(),
+                    currentResults.getInfoUri(),
+                    currentResults.getPartialCancelUri(),
+                    currentResults.getNextUri(),
+                    currentResults.getColumns(),
+                    toRows(types, PAGES_SERDE.deserialize(readSerializedPage(input))),
+                    null,
+                    currentResults.getStats(),
+                    currentResults.getError(),
+                    currentResults.getWarnings(),
+                    currentResults.getUpdateType(),
+                    currentResults.getUpdateCount()));
+        }
+        throw new IllegalStateException(format("Unknown frame %s in result pages", frame));
+    }
+
+    @Override
+    public void close()
+    {
+        response.close();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.client;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.errorprone.annotations.Immutable;
+
+import java.net.URI;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A segment of query results spooled by a worker. The segment is a sequence of serialized pages,
+ * without compression, in the format of {@link com.facebook.presto.spi.page.PagesSerdeUtil#readSerializedPages}.
+ */
+@Immutable
+public class ResultSegment
+{
+    private final URI uri;
+    private final long rowCount;
+    private final long size;
+
+    @JsonCreator
+    public ResultSegment(
+            @JsonProperty("uri") URI uri,
+            @JsonProperty("rowCount") long rowCount,
+            @JsonProperty("size") long size)
+    {
+        this.uri = requireNonNull(uri, "uri is null");
+        this.rowCount = rowCount;
+        this.size = size;
+    }
+
+    @JsonProperty
+    public URI getUri()
+    {
+        return uri;
+    }
+
+    @JsonProperty
+    public long getRowCount()
+    {
+        return rowCount;
+    }
+
+    @JsonProperty
+    public long getSize()
+    {
+        return size;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("uri", uri)
+                .add("rowCount", rowCount)
+                .add("size", size)
+                .toString();
+    }
+}
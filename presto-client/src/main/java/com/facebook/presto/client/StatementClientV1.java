@@ -17,6 +17,7 @@ import com.facebook.airlift.json.JsonCodec;
 import com.facebook.airlift.units.Duration;
 import com.facebook.presto.client.OkHttpUtil.NullCallback;
 import com.facebook.presto.common.type.TimeZoneKey;
+import com.facebook.presto.common.type.TypeSignature;
 import com.facebook.presto.spi.security.SelectedRole;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
@@ -24,14 +25,20 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.annotations.ThreadSafe;
+import io.airlift.slice.InputStreamSliceInput;
 import jakarta.annotation.Nullable;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.Headers;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URLDecoder;
@@ -41,6 +48,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -72,9 +81,16 @@ import static com.facebook.presto.client.PrestoHeaders.PRESTO_TIME_ZONE;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_TRACE_TOKEN;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_TRANSACTION_ID;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_USER;
+import static com.facebook.presto.client.ResultPages.RESULT_PAGES_MEDIA_TYPE;
+import static com.facebook.presto.client.ResultPages.toRows;
+import static com.facebook.presto.client.ResultPagesReader.PAGES_SERDE;
+import static com.facebook.presto.client.ResultPagesReader.isResultPages;
+import static com.facebook.presto.common.type.TypeSignature.parseTypeSignature;
+import static com.facebook.presto.spi.page.PagesSerdeUtil.readSerializedPages;
 import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Sets.newConcurrentHashSet;
+import static com.google.common.net.HttpHeaders.ACCEPT;
 import static com.google.common.net.HttpHeaders.ACCEPT_ENCODING;
 import static com.google.common.net.HttpHeaders.USER_AGENT;
 import static java.lang.String.format;
@@ -83,6 +99,7 @@ import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
 import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
 
 @ThreadSafe
 class StatementClientV1
@@ -115,6 +132,9 @@ class StatementClientV1
     private final Map<String, String> addedSessionFunctions = new ConcurrentHashMap<>();
     private final Set<String> removedSessionFunctions = newConcurrentHashSet();
     private final boolean validateNextUriSource;
+    private final boolean binaryResults;
+    // response in the result pages format which is read by advance
+    private final AtomicReference<ResultPagesReader> resultPagesReader = new AtomicReference<>();
     private final Map<String, List<String>> responseHeaders;
     private final AtomicReference<State> state = new AtomicReference<>(State.RUNNING);
 
@@ -131,6 +151,7 @@ class StatementClientV1
         this.user = session.getUser();
         this.compressionDisabled = session.isCompressionDisabled();
         this.validateNextUriSource = session.validateNextUriSource();
+        this.binaryResults = session.isBinaryResults();
 
         Request request = buildQueryRequest(session, query);
 
@@ -368,6 +389,10 @@ class StatementClientV1
             return false;
         }
 
+        if (resultPagesReader.get() != null && advanceResultPages()) {
+            return true;
+        }
+
         URI nextUri = currentStatusInfo().getNextUri();
         if (nextUri == null) {
             state.compareAndSet(State.RUNNING, State.FINISHED);
@@ -375,7 +400,11 @@ class StatementClientV1
         }
         validateNextUriSource(nextUri, currentStatusInfo().getInfoUri());
 
-        Request request = prepareRequest(HttpUrl.get(nextUri)).build();
+        Request.Builder requestBuilder = prepareRequest(HttpUrl.get(nextUri));
+        if (binaryResults) {
+            requestBuilder.header(ACCEPT, RESULT_PAGES_MEDIA_TYPE + ", application/json;q=0.9");
+        }
+        Request request = requestBuilder.build();
 
         Exception cause = null;
         long start = System.nanoTime();
@@ -412,9 +441,27 @@ class StatementClientV1
 
             JsonResponse<QueryResults> response;
             try {
-                response = JsonResponse.execute(QUERY_RESULTS_CODEC, httpClient, request);
+                if (!binaryResults) {
+                    response = JsonResponse.execute(QUERY_RESULTS_CODEC, httpClient, request);
+                }
+                else {
+                    Response httpResponse = httpClient.newCall(request).execute();
+                    if (httpResponse.code() == HTTP_OK && isResultPages(httpResponse)) {
+                        processHeaders(httpResponse.headers());
+                        resultPagesReader.set(new ResultPagesReader(httpResponse, QUERY_RESULTS_CODEC));
+                        if (advanceResultPages()) {
+                            return true;
+                        }
+                        // nothing was read from the response, it is safe to fetch the results again
+                        cause = new RuntimeException("Empty result pages response");
+                        continue;
+                    }
+                    try (Response closedResponse = httpResponse) {
+                        response = JsonResponse.fromResponse(QUERY_RESULTS_CODEC, closedResponse);
+                    }
+                }
             }
-            catch (RuntimeException e) {
+            catch (IOException | RuntimeException e) {
                 cause = e;
                 continue;
             }
@@ -431,6 +478,41 @@ class StatementClientV1
         }
     }
 
+    /**
+     * Reads the next results from the open result pages response, and closes the response at its end.
+     */
+    private boolean advanceResultPages()
+    {
+        ResultPagesReader reader = resultPagesReader.get();
+        Optional<QueryResults> results;
+        try {
+            results = reader.next();
+        }
+        catch (RuntimeException e) {
+            closeResultPages();
+            if (isClientAborted()) {
+                return false;
+            }
+            // the results of the response were partially consumed, they cannot be fetched again
+            state.compareAndSet(State.RUNNING, State.CLIENT_ERROR);
+            throw new RuntimeException("Error reading result pages", e);
+        }
+        if (!results.isPresent()) {
+            closeResultPages();
+            return false;
+        }
+        currentResults.set(results.get());
+        return true;
+    }
+
+    private void closeResultPages()
+    {
+        ResultPagesReader reader = resultPagesReader.getAndSet(null);
+        if (reader != null) {
+            reader.close();
+        }
+    }
+
     private void validateNextUriSource(final URI nextUri, final URI infoUri)
     {
         if (!validateNextUriSource) {
@@ -455,6 +537,91 @@ class StatementClientV1
     }
 
     private void processResponse(Headers headers, QueryResults results)
+    {
+        processHeaders(headers);
+        currentResults.set(fetchSegments(results));
+    }
+
+    /**
+     * Fetches the segments of results spooled by the workers in parallel, and returns the results
+     * with the rows of the segments as data. The segments are acknowledged once they are read.
+     */
+    private QueryResults fetchSegments(QueryResults results)
+    {
+        if (results.getSegments() == null || results.getSegments().isEmpty()) {
+            return results;
+        }
+
+        List<TypeSignature> types = results.getColumns().stream()
+                .map(column -> parseTypeSignature(column.getType()))
+                .collect(toList());
+        List<CompletableFuture<List<List<Object>>>> segments = results.getSegments().stream()
+                .map(segment -> fetchSegment(segment.getUri(), types))
+                .collect(toList());
+
+        ImmutableList.Builder<List<Object>> data = ImmutableList.builder();
+        try {
+            for (CompletableFuture<List<List<Object>>> segment : segments) {
+                data.addAll(segment.join());
+            }
+        }
+        catch (CompletionException e) {
+            segments.forEach(segment -> segment.cancel(true));
+            state.compareAndSet(State.RUNNING, State.CLIENT_ERROR);
+            throw new RuntimeException("Error fetching result segment", e.getCause());
+        }
+        for (ResultSegment segment : results.getSegments()) {
+            httpDelete(segment.getUri());
+        }
+
+        return new QueryResults(
+                results.getId(),
+                results.getInfoUri(),
+                results.getPartialCancelUri(),
+                results.getNextUri(),
+                results.getColumns(),
+                data.build(),
+                null,
+                results.getStats(),
+                results.getError(),
+                results.getWarnings(),
+                results.getUpdateType(),
+                results.getUpdateCount());
+    }
+
+    private CompletableFuture<List<List<Object>>> fetchSegment(URI uri, List<TypeSignature> types)
+    {
+        CompletableFuture<List<List<Object>>> future = new CompletableFuture<>();
+        Request request = prepareRequest(HttpUrl.get(uri)).build();
+        httpClient.newCall(request).enqueue(new Callback()
+        {
+            @Override
+            public void onFailure(Call call, IOException e)
+            {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response)
+            {
+                try (ResponseBody body = response.body()) {
+                    if (response.code() != HTTP_OK || body == null) {
+                        throw new IOException(format("Error fetching result segment at %s returned HTTP %s", uri, response.code()));
+                    }
+                    ImmutableList.Builder<List<Object>> rows = ImmutableList.builder();
+                    readSerializedPages(new InputStreamSliceInput(body.byteStream()))
+                            .forEachRemaining(page -> rows.addAll(toRows(types, PAGES_SERDE.deserialize(page))));
+                    future.complete(rows.build());
+                }
+                catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        return future;
+    }
+
+    private void processHeaders(Headers headers)
     {
         setCatalog.set(headers.get(PRESTO_SET_CATALOG));
         setSchema.set(headers.get(PRESTO_SET_SCHEMA));
@@ -505,8 +672,6 @@ class StatementClientV1
         for (String signature : headers.values(PRESTO_REMOVED_SESSION_FUNCTION)) {
             removedSessionFunctions.add(urlDecode(signature));
         }
-
-        currentResults.set(results);
     }
 
     private RuntimeException requestFailedException(String task, Request request, JsonResponse<QueryResults> response)
@@ -552,6 +717,7 @@ class StatementClientV1
                 httpDelete(uri);
             }
         }
+        closeResultPages();
     }
 
     private void httpDelete(URI uri)
@@ -0,0 +1,192 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.client;
+
+import com.facebook.airlift.json.JsonCodec;
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.block.BlockEncodingManager;
+import com.facebook.presto.common.type.ArrayType;
+import com.facebook.presto.common.type.DecimalType;
+import com.facebook.presto.common.type.RowType;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.spi.page.PagesSerde;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slices;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.testng.annotations.Test;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.airlift.json.JsonCodec.jsonCodec;
+import static com.facebook.presto.client.ResultPages.PAGE_FRAME;
+import static com.facebook.presto.client.ResultPages.RESULTS_FRAME;
+import static com.facebook.presto.client.ResultPages.RESULT_PAGES_MEDIA_TYPE;
+import static com.facebook.presto.client.ResultPages.isSupportedType;
+import static com.facebook.presto.client.ResultPages.toRows;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.common.type.CharType.createCharType;
+import static com.facebook.presto.common.type.DateType.DATE;
+import static com.facebook.presto.common.type.DecimalType.createDecimalType;
+import static com.facebook.presto.common.type.Decimals.encodeUnscaledValue;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.common.type.RealType.REAL;
+import static com.facebook.presto.common.type.TypeSignature.parseTypeSignature;
+import static com.facebook.presto.common.type.VarbinaryType.VARBINARY;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.facebook.presto.spi.page.PagesSerdeUtil.writeSerializedPage;
+import static java.lang.Float.floatToRawIntBits;
+import static java.util.stream.Collectors.toList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestResultPages
+{
+    private static final JsonCodec<QueryResults> QUERY_RESULTS_CODEC = jsonCodec(QueryResults.class);
+    private static final PagesSerde PAGES_SERDE = new PagesSerde(new BlockEncodingManager(), Optional.empty(), Optional.empty(), Optional.empty());
+
+    @Test
+    public void testSupportedTypes()
+    {
+        assertTrue(isSupportedType(parseTypeSignature("bigint")));
+        assertTrue(isSupportedType(parseTypeSignature("decimal(38,2)")));
+        assertTrue(isSupportedType(parseTypeSignature("array(row(foo bigint,bar varchar))")));
+        assertTrue(isSupportedType(parseTypeSignature("map(varchar,array(date))")));
+        assertFalse(isSupportedType(parseTypeSignature("map(varbinary,bigint)")));
+        assertFalse(isSupportedType(parseTypeSignature("timestamp")));
+        assertFalse(isSupportedType(parseTypeSignature("array(interval day to second)")));
+        assertFalse(isSupportedType(parseTypeSignature("ipaddress")));
+        assertFalse(isSupportedType(parseTypeSignature("example.test.type_alt:bigint")));
+    }
+
+    @Test
+    public void testToRows()
+    {
+        DecimalType shortDecimal = createDecimalType(10, 2);
+        DecimalType longDecimal = createDecimalType(38, 3);
+        ArrayType arrayType = new ArrayType(BIGINT);
+        RowType rowType = RowType.from(ImmutableList.of(RowType.field("foo", BIGINT), RowType.field("bar", VARCHAR)));
+        List<Type> types = ImmutableList.of(BOOLEAN, INTEGER, BIGINT, REAL, DOUBLE, shortDecimal, longDecimal, VARCHAR, createCharType(5), VARBINARY, DATE, arrayType, rowType);
+
+        BlockBuilder[] blocks = types.stream()
+                .map(type -> type.createBlockBuilder(null, 2))
+                .toArray(BlockBuilder[]::new);
+        BOOLEAN.writeBoolean(blocks[0], true);
+        INTEGER.writeLong(blocks[1], 100);
+        BIGINT.writeLong(blocks[2], 1000);
+        REAL.writeLong(blocks[3], floatToRawIntBits(1.5f));
+        DOUBLE.writeDouble(blocks[4], 2.5);
+        shortDecimal.writeLong(blocks[5], 215);
+        longDecimal.writeSlice(blocks[6], encodeUnscaledValue(new BigInteger("-12345678901234567890123")));
+        VARCHAR.writeSlice(blocks[7], Slices.utf8Slice("test string"));
+        createCharType(5).writeSlice(blocks[8], Slices.utf8Slice("abc"));
+        VARBINARY.writeSlice(blocks[9], Slices.wrappedBuffer(new byte[] {1, 2, 3}));
+        DATE.writeLong(blocks[10], 17348);
+        BlockBuilder array = BIGINT.createBlockBuilder(null, 2);
+        BIGINT.writeLong(array, 1);
+        BIGINT.writeLong(array, 2);
+        arrayType.writeObject(blocks[11], array.build());
+        BlockBuilder row = blocks[12].beginBlockEntry();
+        BIGINT.writeLong(row, 3);
+        VARCHAR.writeSlice(row, Slices.utf8Slice("bar"));
+        blocks[12].closeEntry();
+        for (BlockBuilder block : blocks) {
+            block.appendNull();
+        }
+        Page page = new Page(Arrays.stream(blocks).map(BlockBuilder::build).toArray(com.facebook.presto.common.block.Block[]::new));
+
+        List<List<Object>> rows = toRows(types.stream().map(Type::getTypeSignature).collect(toList()), page);
+        assertEquals(rows.size(), 2);
+        List<Object> values = rows.get(0);
+        assertEquals(values.get(0), true);
+        assertEquals(values.get(1), 100);
+        assertEquals(values.get(2), 1000L);
+        assertEquals(values.get(3), 1.5f);
+        assertEquals(values.get(4), 2.5);
+        assertEquals(values.get(5), "2.15");
+        assertEquals(values.get(6), "-12345678901234567890.123");
+        assertEquals(values.get(7), "test string");
+        assertEquals(values.get(8), "abc  ");
+        assertEquals((byte[]) values.get(9), new byte[] {1, 2, 3});
+        assertEquals(values.get(10), "2017-07-01");
+        assertEquals(values.get(11), ImmutableList.of(1L, 2L));
+        assertEquals(values.get(12), ImmutableMap.of("foo", 3L, "bar", "bar"));
+        assertTrue(rows.get(1).stream().allMatch(value -> value == null));
+    }
+
+    @Test
+    public void testReader()
+    {
+        QueryResults results = new QueryResults(
+                "20160128_214710_00012_rk68b",
+                URI.create("http://localhost:54855/query.html?20160128_214710_00012_rk68b"),
+                null,
+                URI.create("http://localhost:54855/v1/statement/executing/20160128_214710_00012_rk68b/2"),
+                ImmutableList.of(new Column("_col0", BIGINT)),
+                null,
+                null,
+                StatementStats.builder().setState("RUNNING").build(),
+                null,
+                ImmutableList.of(),
+                null,
+                null);
+
+        DynamicSliceOutput output = new DynamicSliceOutput(1024);
+        byte[] json = QUERY_RESULTS_CODEC.toJsonBytes(results);
+        output.writeByte(RESULTS_FRAME);
+        output.writeInt(json.length);
+        output.writeBytes(json);
+        for (long value = 0; value < 2; value++) {
+            BlockBuilder block = BIGINT.createBlockBuilder(null, 1);
+            BIGINT.writeLong(block, value);
+            output.writeByte(PAGE_FRAME);
+            writeSerializedPage(output, PAGES_SERDE.serialize(new Page(block.build())));
+        }
+
+        Response response = new Response.Builder()
+                .request(new Request.Builder().url("http://localhost:54855/v1/statement/executing/20160128_214710_00012_rk68b/1").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(MediaType.get(RESULT_PAGES_MEDIA_TYPE), output.slice().getBytes()))
+                .build();
+        assertTrue(ResultPagesReader.isResultPages(response));
+
+        try (ResultPagesReader reader = new ResultPagesReader(response, QUERY_RESULTS_CODEC)) {
+            QueryResults first = reader.next().get();
+            assertEquals(first.getNextUri(), results.getNextUri());
+            assertNull(first.getData());
+            for (long value = 0; value < 2; value++) {
+                QueryResults page = reader.next().get();
+                assertEquals(page.getNextUri(), results.getNextUri());
+                assertEquals(page.getData(), ImmutableList.of(ImmutableList.of(value)));
+            }
+            assertFalse(reader.next().isPresent());
+        }
+    }
+}
@@ -94,4 +94,13 @@ public class RuntimeMetricName
     public static final String METASTORE_UPDATE_PARTITION_STATISTICS_TIME_NANOS = "metastoreUpdatePartitionStatisticsTimeNanos";
     public static final String METASTORE_UPDATE_TABLE_STATISTICS_TIME_NANOS = "metastoreUpdateTableStatisticsTimeNanos";
     public static final String CHECK_ACCESS_PERMISSIONS_TIME_NANOS = "checkAccessPermissionsTimeNanos";
+    public static final String PARQUET_BLOOM_FILTER_SKIPPED_ROW_GROUPS = "parquetBloomFilterSkippedRowGroups";
+    public static final String PARQUET_DYNAMIC_FILTER_FILTERED_ROWS = "parquetDynamicFilterFilteredRows";
+    // Exchange codec metrics, suffixed with the name of the compression codec
+    public static final String EXCHANGE_COMPRESSION_TIME_NANOS = "exchangeCompressionTimeNanos";
+    public static final String EXCHANGE_COMPRESSION_INPUT_BYTES = "exchangeCompressionInputBytes";
+    public static final String EXCHANGE_COMPRESSION_OUTPUT_BYTES = "exchangeCompressionOutputBytes";
+    public static final String EXCHANGE_DECOMPRESSION_TIME_NANOS = "exchangeDecompressionTimeNanos";
+    public static final String EXCHANGE_DECOMPRESSION_INPUT_BYTES = "exchangeDecompressionInputBytes";
+    public static final String EXCHANGE_DECOMPRESSION_OUTPUT_BYTES = "exchangeDecompressionOutputBytes";
 }
@@ -15,6 +15,7 @@ package com.facebook.presto.common.block;
 
 import io.airlift.slice.SliceInput;
 import io.airlift.slice.SliceOutput;
+import io.airlift.slice.Slices;
 
 import java.util.Optional;
 
@@ -97,4 +98,57 @@ final class EncoderUtil
 
         return Optional.of(valueIsNull);
     }
+
+    /**
+     * Read the values written for the non-null positions with a single bulk copy, and spread them to their positions.
+     */
+    public static long[] decodeLongValues(SliceInput sliceInput, int positionCount, boolean[] valueIsNull)
+    {
+        long[] values = new long[positionCount];
+        int nonNullCount = countNonNulls(valueIsNull, positionCount);
+        sliceInput.readBytes(Slices.wrappedLongArray(values, 0, nonNullCount));
+
+        // the values are spread from the end, so that each value is read before its slot is overwritten
+        int valueIndex = nonNullCount - 1;
+        for (int position = positionCount - 1; position > valueIndex; position--) {
+            if (valueIsNull[position]) {
+                values[position] = 0;
+            }
+            else {
+                values[position] = values[valueIndex--];
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Read the values written for the non-null positions with a single bulk copy, and spread them to their positions.
+     */
+    public static int[] decodeIntValues(SliceInput sliceInput, int positionCount, boolean[] valueIsNull)
+    {
+        int[] values = new int[positionCount];
+        int nonNullCount = countNonNulls(valueIsNull, positionCount);
+        sliceInput.readBytes(Slices.wrappedIntArray(values, 0, nonNullCount));
+
+        // the values are spread from the end, so that each value is read before its slot is overwritten
+        int valueIndex = nonNullCount - 1;
+        for (int position = positionCount - 1; position > valueIndex; position--) {
+            if (valueIsNull[position]) {
+                values[position] = 0;
+            }
+            else {
+                values[position] = values[valueIndex--];
+            }
+        }
+        return values;
+    }
+
+    private static int countNonNulls(boolean[] valueIsNull, int positionCount)
+    {
+        int nonNullCount = 0;
+        for (int position = 0; position < positionCount; position++) {
+            nonNullCount += valueIsNull[position] ? 0 : 1;
+        }
+        return nonNullCount;
+    }
 }
@@ -17,6 +17,7 @@ import io.airlift.slice.SliceInput;
 import io.airlift.slice.SliceOutput;
 import io.airlift.slice.Slices;
 
+import static com.facebook.presto.common.block.EncoderUtil.decodeIntValues;
 import static com.facebook.presto.common.block.EncoderUtil.decodeNullBits;
 import static com.facebook.presto.common.block.EncoderUtil.encodeNullsAsBits;
 
@@ -54,17 +55,14 @@ public class IntArrayBlockEncoding
 
         boolean[] valueIsNull = decodeNullBits(sliceInput, positionCount).orElse(null);
 
-        int[] values = new int[positionCount];
+        int[] values;
         if (valueIsNull == null) {
             // No nulls present, read values array directly from input
+            values = new int[positionCount];
             sliceInput.readBytes(Slices.wrappedIntArray(values));
         }
         else {
-            for (int position = 0; position < values.length; position++) {
-                if (!valueIsNull[position]) {
-                    values[position] = sliceInput.readInt();
-                }
-            }
+            values = decodeIntValues(sliceInput, positionCount, valueIsNull);
         }
 
         return new IntArrayBlock(0, positionCount, valueIsNull, values);
@@ -17,6 +17,7 @@ import io.airlift.slice.SliceInput;
 import io.airlift.slice.SliceOutput;
 import io.airlift.slice.Slices;
 
+import static com.facebook.presto.common.block.EncoderUtil.decodeLongValues;
 import static com.facebook.presto.common.block.EncoderUtil.decodeNullBits;
 import static com.facebook.presto.common.block.EncoderUtil.encodeNullsAsBits;
 
@@ -54,17 +55,14 @@ public class LongArrayBlockEncoding
 
         boolean[] valueIsNull = decodeNullBits(sliceInput, positionCount).orElse(null);
 
-        long[] values = new long[positionCount];
+        long[] values;
         if (valueIsNull == null) {
             // No nulls present, read values array directly from input
+            values = new long[positionCount];
             sliceInput.readBytes(Slices.wrappedLongArray(values));
         }
         else {
-            for (int position = 0; position < values.length; position++) {
-                if (!valueIsNull[position]) {
-                    values[position] = sliceInput.readLong();
-                }
-            }
+            values = decodeLongValues(sliceInput, positionCount, valueIsNull);
         }
 
         return new LongArrayBlock(0, positionCount, valueIsNull, values);
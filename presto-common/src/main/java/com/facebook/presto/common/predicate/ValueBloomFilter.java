@@ -0,0 +1,229 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.common.predicate;
+
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.type.Type;
+import io.airlift.slice.Slice;
+import io.airlift.slice.XxHash64;
+import org.openjdk.jol.info.ClassLayout;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.DateType.DATE;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.common.type.RealType.REAL;
+import static com.facebook.presto.common.type.SmallintType.SMALLINT;
+import static com.facebook.presto.common.type.TinyintType.TINYINT;
+import static com.facebook.presto.common.type.Varchars.isVarcharType;
+import static io.airlift.slice.SizeOf.sizeOfLongArray;
+import static java.lang.Double.doubleToLongBits;
+import static java.lang.Float.floatToIntBits;
+import static java.lang.Float.intBitsToFloat;
+import static java.lang.Long.bitCount;
+import static java.lang.Math.toIntExact;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bloom filter over the non-null native values of a single column, used to summarize
+ * a set of values that is too large to be represented as a {@link Domain}.
+ * <p>
+ * Values are hashed by their native (stack) representation, so the producer and the
+ * consumer of the filter only need to agree on the {@link Type}. Two filters can be
+ * merged if they were created with the same type and size.
+ */
+public final class ValueBloomFilter
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(ValueBloomFilter.class).instanceSize();
+    private static final int HASH_FUNCTION_COUNT = 3;
+    private static final long MIN_SIZE_IN_BYTES = Long.BYTES;
+    private static final long MAX_SIZE_IN_BYTES = 256L * 1024 * 1024;
+
+    private final Type type;
+    private final long[] bits;
+    private final int bitMask;
+
+    /**
+     * @param sizeInBytes upper bound of the filter size; it is rounded down to a power of two
+     */
+    public ValueBloomFilter(Type type, long sizeInBytes)
+    {
+        this.type = requireNonNull(type, "type is null");
+        if (!isSupported(type)) {
+            throw new IllegalArgumentException(format("Type %s is not supported", type));
+        }
+        if (sizeInBytes < MIN_SIZE_IN_BYTES) {
+            throw new IllegalArgumentException(format("sizeInBytes must be at least %s", MIN_SIZE_IN_BYTES));
+        }
+        int longCount = toIntExact(Long.highestOneBit(Math.min(sizeInBytes, MAX_SIZE_IN_BYTES)) / Long.BYTES);
+        this.bits = new long[longCount];
+        this.bitMask = longCount * Long.SIZE - 1;
+    }
+
+    public static boolean isSupported(Type type)
+    {
+        return type.equals(BIGINT) ||
+                type.equals(INTEGER) ||
+                type.equals(SMALLINT) ||
+                type.equals(TINYINT) ||
+                type.equals(DATE) ||
+                type.equals(REAL) ||
+                type.equals(DOUBLE) ||
+                isVarcharType(type);
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    public void add(Block block, int position)
+    {
+        if (block.isNull(position)) {
+            return;
+        }
+        addHash(hash(block, position));
+    }
+
+    /**
+     * @param value native value of the filter type, null values are ignored
+     */
+    public void addValue(Object value)
+    {
+        if (value == null) {
+            return;
+        }
+        addHash(hash(value));
+    }
+
+    /**
+     * @param value native value of the filter type
+     * @return false if the value is definitely not in the filter
+     */
+    public boolean mightContain(Object value)
+    {
+        if (value == null) {
+            return false;
+        }
+        return mightContainHash(hash(value));
+    }
+
+    /**
+     * @return false if the value at the position is null or definitely not in the filter
+     */
+    public boolean mightContain(Block block, int position)
+    {
+        if (block.isNull(position)) {
+            return false;
+        }
+        return mightContainHash(hash(block, position));
+    }
+
+    private boolean mightContainHash(long hash)
+    {
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= HASH_FUNCTION_COUNT; i++) {
+            int bit = (hash1 + i * hash2) & bitMask;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void merge(ValueBloomFilter other)
+    {
+        requireNonNull(other, "other is null");
+        if (!type.equals(other.type) || bits.length != other.bits.length) {
+            throw new IllegalArgumentException(format("Cannot merge filter of %s with %s bits into filter of %s with %s bits", other.type, other.bits.length * Long.SIZE, type, bits.length * Long.SIZE));
+        }
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] |= other.bits[i];
+        }
+    }
+
+    /**
+     * Estimated probability that {@link #mightContain} returns true for a value which was not added.
+     */
+    public double getFalsePositiveProbability()
+    {
+        long setBits = 0;
+        for (long word : bits) {
+            setBits += bitCount(word);
+        }
+        return Math.pow((double) setBits / (bits.length * Long.SIZE), HASH_FUNCTION_COUNT);
+    }
+
+    public long getRetainedSizeInBytes()
+    {
+        return INSTANCE_SIZE + sizeOfLongArray(bits.length);
+    }
+
+    private void addHash(long hash)
+    {
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= HASH_FUNCTION_COUNT; i++) {
+            int bit = (hash1 + i * hash2) & bitMask;
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private long hash(Block block, int position)
+    {
+        if (type.getJavaType() == long.class) {
+            return hash(type.getLong(block, position));
+        }
+        if (type.getJavaType() == double.class) {
+            return hash(type.getDouble(block, position));
+        }
+        return hash(type.getSlice(block, position));
+    }
+
+    private long hash(Object value)
+    {
+        if (value instanceof Long) {
+            return hash((long) value);
+        }
+        if (value instanceof Double) {
+            return hash((double) value);
+        }
+        if (value instanceof Slice) {
+            return hash((Slice) value);
+        }
+        throw new IllegalArgumentException(format("Value %s does not match type %s", value, type));
+    }
+
+    private long hash(long value)
+    {
+        if (type.equals(REAL)) {
+            // -0.0 and 0.0 are equal, NaN has several representations
+            value = floatToIntBits(intBitsToFloat((int) value) + 0.0f);
+        }
+        return XxHash64.hash(value);
+    }
+
+    private static long hash(double value)
+    {
+        // -0.0 and 0.0 are equal, NaN has several representations
+        return XxHash64.hash(doubleToLongBits(value + 0.0));
+    }
+
+    private static long hash(Slice value)
+    {
+        return XxHash64.hash(value);
+    }
+}
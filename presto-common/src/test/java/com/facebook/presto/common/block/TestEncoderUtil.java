@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.common.block;
+
+import io.airlift.slice.DynamicSliceOutput;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestEncoderUtil
+{
+    private final BlockEncodingSerde blockEncodingSerde = new TestingBlockEncodingSerde();
+
+    @Test
+    public void testLongArrayRoundTripWithNulls()
+    {
+        assertLongArrayRoundTrip(new boolean[] {false, true, false, false, true, true, false, false, false, true});
+        assertLongArrayRoundTrip(new boolean[] {true, true, true});
+        assertLongArrayRoundTrip(new boolean[] {true, false, false});
+        assertLongArrayRoundTrip(new boolean[] {false, false, true});
+    }
+
+    @Test
+    public void testIntArrayRoundTripWithNulls()
+    {
+        assertIntArrayRoundTrip(new boolean[] {false, true, false, false, true, true, false, false, false, true});
+        assertIntArrayRoundTrip(new boolean[] {true, true, true});
+        assertIntArrayRoundTrip(new boolean[] {true, false, false});
+        assertIntArrayRoundTrip(new boolean[] {false, false, true});
+    }
+
+    private void assertLongArrayRoundTrip(boolean[] valueIsNull)
+    {
+        long[] values = new long[valueIsNull.length];
+        for (int position = 0; position < values.length; position++) {
+            values[position] = valueIsNull[position] ? 0 : position * 1_000_000_007L + 1;
+        }
+        Block actual = roundTrip(new LongArrayBlock(values.length, Optional.of(valueIsNull), values));
+        assertEquals(actual.getPositionCount(), values.length);
+        for (int position = 0; position < values.length; position++) {
+            assertEquals(actual.isNull(position), valueIsNull[position]);
+            assertEquals(actual.getLong(position), values[position]);
+        }
+    }
+
+    private void assertIntArrayRoundTrip(boolean[] valueIsNull)
+    {
+        int[] values = new int[valueIsNull.length];
+        for (int position = 0; position < values.length; position++) {
+            values[position] = valueIsNull[position] ? 0 : position * 31 + 1;
+        }
+        Block actual = roundTrip(new IntArrayBlock(values.length, Optional.of(valueIsNull), values));
+        assertEquals(actual.getPositionCount(), values.length);
+        for (int position = 0; position < values.length; position++) {
+            assertEquals(actual.isNull(position), valueIsNull[position]);
+            assertEquals(actual.getInt(position), values[position]);
+        }
+    }
+
+    private Block roundTrip(Block block)
+    {
+        DynamicSliceOutput sliceOutput = new DynamicSliceOutput(1024);
+        blockEncodingSerde.writeBlock(sliceOutput, block);
+        return blockEncodingSerde.readBlock(sliceOutput.slice().getInput());
+    }
+}
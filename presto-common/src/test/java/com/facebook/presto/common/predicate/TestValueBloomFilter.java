@@ -0,0 +1,121 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.common.predicate;
+
+import com.facebook.presto.common.block.BlockBuilder;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.RealType.REAL;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static io.airlift.slice.Slices.utf8Slice;
+import static java.lang.Float.floatToRawIntBits;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+public class TestValueBloomFilter
+{
+    @Test
+    public void testBigint()
+    {
+        ValueBloomFilter filter = new ValueBloomFilter(BIGINT, 1024);
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, 100);
+        for (long value = 0; value < 100; value++) {
+            BIGINT.writeLong(blockBuilder, value * 7);
+        }
+        blockBuilder.appendNull();
+        for (int position = 0; position < blockBuilder.getPositionCount(); position++) {
+            filter.add(blockBuilder, position);
+        }
+
+        for (long value = 0; value < 100; value++) {
+            assertTrue(filter.mightContain(value * 7));
+            assertTrue(filter.mightContain(blockBuilder, (int) value));
+        }
+        assertFalse(filter.mightContain(null));
+        assertFalse(filter.mightContain(blockBuilder, 100));
+
+        int falsePositives = 0;
+        for (long value = 1_000_000; value < 1_010_000; value++) {
+            if (filter.mightContain(value)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 100, "too many false positives: " + falsePositives);
+        assertTrue(filter.getFalsePositiveProbability() < 0.01);
+    }
+
+    @Test
+    public void testVarchar()
+    {
+        ValueBloomFilter filter = new ValueBloomFilter(VARCHAR, 1024);
+        BlockBuilder blockBuilder = VARCHAR.createBlockBuilder(null, 2);
+        VARCHAR.writeSlice(blockBuilder, utf8Slice("apple"));
+        VARCHAR.writeSlice(blockBuilder, utf8Slice("banana"));
+        filter.add(blockBuilder, 0);
+        filter.add(blockBuilder, 1);
+
+        assertTrue(filter.mightContain(utf8Slice("apple")));
+        assertTrue(filter.mightContain(utf8Slice("banana")));
+        assertFalse(filter.mightContain(utf8Slice("cherry")));
+    }
+
+    @Test
+    public void testFloatingPointZero()
+    {
+        ValueBloomFilter doubleFilter = new ValueBloomFilter(DOUBLE, 64);
+        BlockBuilder doubles = DOUBLE.createBlockBuilder(null, 1);
+        DOUBLE.writeDouble(doubles, -0.0);
+        doubleFilter.add(doubles, 0);
+        assertTrue(doubleFilter.mightContain(0.0));
+
+        ValueBloomFilter realFilter = new ValueBloomFilter(REAL, 64);
+        BlockBuilder reals = REAL.createBlockBuilder(null, 1);
+        REAL.writeLong(reals, floatToRawIntBits(-0.0f));
+        realFilter.add(reals, 0);
+        assertTrue(realFilter.mightContain((long) floatToRawIntBits(0.0f)));
+    }
+
+    @Test
+    public void testMerge()
+    {
+        ValueBloomFilter left = new ValueBloomFilter(BIGINT, 1024);
+        ValueBloomFilter right = new ValueBloomFilter(BIGINT, 1024);
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, 2);
+        BIGINT.writeLong(blockBuilder, 1);
+        BIGINT.writeLong(blockBuilder, 2);
+        left.add(blockBuilder, 0);
+        right.add(blockBuilder, 1);
+
+        left.merge(right);
+        assertTrue(left.mightContain(1L));
+        assertTrue(left.mightContain(2L));
+
+        assertThrows(IllegalArgumentException.class, () -> left.merge(new ValueBloomFilter(BIGINT, 2048)));
+        assertThrows(IllegalArgumentException.class, () -> left.merge(new ValueBloomFilter(VARCHAR, 1024)));
+    }
+
+    @Test
+    public void testSize()
+    {
+        // rounded down to a power of two
+        assertEquals(new ValueBloomFilter(BIGINT, 1000).getRetainedSizeInBytes(), new ValueBloomFilter(BIGINT, 512).getRetainedSizeInBytes());
+        assertThrows(IllegalArgumentException.class, () -> new ValueBloomFilter(BIGINT, 4));
+        assertThrows(IllegalArgumentException.class, () -> new ValueBloomFilter(BOOLEAN, 1024));
+    }
+}
@@ -14,6 +14,7 @@
 package com.facebook.presto.hive;
 
 import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.predicate.ValueBloomFilter;
 import com.facebook.presto.hive.metastore.Storage;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.ConnectorSession;
@@ -40,4 +41,37 @@ public interface HiveBatchPageSourceFactory
             HiveFileContext hiveFileContext,
             Optional<EncryptionInformation> encryptionInformation,
             Optional<byte[]> rowIdPartitionComponent);
+
+    /**
+     * @param dynamicFilterBloomFilters filters collected from the build side of joins, which the factory may use to skip data
+     */
+    default Optional<? extends ConnectorPageSource> createPageSource(
+            Configuration configuration,
+            ConnectorSession session,
+            HiveFileSplit fileSplit,
+            Storage storage,
+            SchemaTableName tableName,
+            Map<String, String> tableParameters,
+            List<HiveColumnHandle> columns,
+            TupleDomain<HiveColumnHandle> effectivePredicate,
+            DateTimeZone hiveStorageTimeZone,
+            HiveFileContext hiveFileContext,
+            Optional<EncryptionInformation> encryptionInformation,
+            Optional<byte[]> rowIdPartitionComponent,
+            Map<HiveColumnHandle, ValueBloomFilter> dynamicFilterBloomFilters)
+    {
+        return createPageSource(
+                configuration,
+                session,
+                fileSplit,
+                storage,
+                tableName,
+                tableParameters,
+                columns,
+                effectivePredicate,
+                hiveStorageTimeZone,
+                hiveFileContext,
+                encryptionInformation,
+                rowIdPartitionComponent);
+    }
 }
@@ -65,10 +65,12 @@ import com.facebook.presto.orc.metadata.OrcFileTail;
 import com.facebook.presto.orc.metadata.RowGroupIndex;
 import com.facebook.presto.parquet.ParquetDataSourceId;
 import com.facebook.presto.parquet.cache.CachingParquetMetadataSource;
+import com.facebook.presto.parquet.cache.CachingParquetMetadataSource.BloomFilterCacheKey;
 import com.facebook.presto.parquet.cache.MetadataReader;
 import com.facebook.presto.parquet.cache.ParquetCacheConfig;
 import com.facebook.presto.parquet.cache.ParquetFileMetadata;
 import com.facebook.presto.parquet.cache.ParquetMetadataSource;
+import com.facebook.presto.parquet.predicate.SplitBlockBloomFilter;
 import com.facebook.presto.spi.connector.ConnectorNodePartitioningProvider;
 import com.facebook.presto.spi.connector.ConnectorPageSinkProvider;
 import com.facebook.presto.spi.connector.ConnectorPageSourceProvider;
@@ -352,7 +354,17 @@ public class HiveClientModule
                     .recordStats()
                     .build();
             CacheStatsMBean cacheStatsMBean = new CacheStatsMBean(cache);
-            parquetMetadataSource = new CachingParquetMetadataSource(cache, parquetMetadataSource);
+            Optional<Cache<BloomFilterCacheKey, Optional<SplitBlockBloomFilter>>> bloomFilterCache = Optional.empty();
+            if (parquetCacheConfig.getBloomFilterCacheSize().toBytes() > 0) {
+                bloomFilterCache = Optional.of(CacheBuilder.newBuilder()
+                        .maximumWeight(parquetCacheConfig.getBloomFilterCacheSize().toBytes())
+                        .<BloomFilterCacheKey, Optional<SplitBlockBloomFilter>>weigher((key, bloomFilter) -> toIntExact(bloomFilter.map(SplitBlockBloomFilter::getRetainedSizeInBytes).orElse(0L)))
+                        .expireAfterAccess(parquetCacheConfig.getMetadataCacheTtlSinceLastAccess().toMillis(), MILLISECONDS)
+                        .recordStats()
+                        .build());
+                exporter.export(generatedNameOf(CacheStatsMBean.class, connectorId + "_ParquetBloomFilter"), new CacheStatsMBean(bloomFilterCache.get()));
+            }
+            parquetMetadataSource = new CachingParquetMetadataSource(cache, bloomFilterCache, parquetMetadataSource);
             exporter.export(generatedNameOf(CacheStatsMBean.class, connectorId + "_ParquetMetadata"), cacheStatsMBean);
         }
         return parquetMetadataSource;
@@ -21,6 +21,7 @@ import com.facebook.presto.common.Subfield.PathElement;
 import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.common.predicate.NullableValue;
 import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.predicate.ValueBloomFilter;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.common.type.TypeManager;
 import com.facebook.presto.hive.HiveSplit.BucketConversion;
@@ -45,6 +46,7 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import jakarta.inject.Inject;
 import org.apache.hadoop.conf.Configuration;
@@ -243,7 +245,9 @@ public class HivePageSourceProvider
                 hiveLayout.isPushdownFilterEnabled(),
                 rowExpressionService,
                 encryptionInformation,
-                hiveSplit.getRowIdPartitionComponent());
+                hiveSplit.getRowIdPartitionComponent(),
+                splitContext.getDynamicFilterBloomFilters().entrySet().stream()
+                        .collect(toImmutableMap(entry -> (HiveColumnHandle) entry.getKey(), Map.Entry::getValue)));
         if (pageSource.isPresent()) {
             return pageSource.get();
         }
@@ -382,6 +386,7 @@ public class HivePageSourceProvider
                     session,
                     split.getFileSplit(),
                     split.getStorage(),
+                    layout.getSchemaTableName(),
                     columnHandles,
                     prefilledValues,
                     coercers,
@@ -430,6 +435,67 @@ public class HivePageSourceProvider
             RowExpressionService rowExpressionService,
             Optional<EncryptionInformation> encryptionInformation,
             Optional<byte[]> rowIdPartitionComponent)
+    {
+        return createHivePageSource(
+                cursorProviders,
+                pageSourceFactories,
+                configuration,
+                session,
+                fileSplit,
+                tableBucketNumber,
+                storage,
+                effectivePredicate,
+                hiveColumns,
+                predicateColumns,
+                partitionKeys,
+                hiveStorageTimeZone,
+                typeManager,
+                tableName,
+                partitionKeyColumnHandles,
+                tableDataColumns,
+                tableParameters,
+                partitionDataColumnCount,
+                tableToPartitionMapping,
+                bucketConversion,
+                s3SelectPushdownEnabled,
+                hiveFileContext,
+                remainingPredicate,
+                isPushdownFilterEnabled,
+                rowExpressionService,
+                encryptionInformation,
+                rowIdPartitionComponent,
+                ImmutableMap.of());
+    }
+
+    public static Optional<ConnectorPageSource> createHivePageSource(
+            Set<HiveRecordCursorProvider> cursorProviders,
+            Set<HiveBatchPageSourceFactory> pageSourceFactories,
+            Configuration configuration,
+            ConnectorSession session,
+            HiveFileSplit fileSplit,
+            OptionalInt tableBucketNumber,
+            Storage storage,
+            TupleDomain<HiveColumnHandle> effectivePredicate,
+            List<HiveColumnHandle> hiveColumns,
+            Map<String, HiveColumnHandle> predicateColumns,
+            List<HivePartitionKey> partitionKeys,
+            DateTimeZone hiveStorageTimeZone,
+            TypeManager typeManager,
+            SchemaTableName tableName,
+            List<HiveColumnHandle> partitionKeyColumnHandles,
+            List<Column> tableDataColumns,
+            Map<String, String> tableParameters,
+            int partitionDataColumnCount,
+            TableToPartitionMapping tableToPartitionMapping,
+            Optional<BucketConversion> bucketConversion,
+            boolean s3SelectPushdownEnabled,
+            HiveFileContext hiveFileContext,
+            RowExpression remainingPredicate,
+            boolean isPushdownFilterEnabled,
+            RowExpressionService rowExpressionService,
+            Optional<EncryptionInformation> encryptionInformation,
+            Optional<byte[]> rowIdPartitionComponent,
+            Map<HiveColumnHandle, ValueBloomFilter> dynamicFilterBloomFilters)
     {
         List<HiveColumnHandle> allColumns;
 
@@ -509,7 +575,8 @@ public class HivePageSourceProvider
                     hiveStorageTimeZone,
                     hiveFileContext,
                     encryptionInformation,
-                    rowIdPartitionComponent);
+                    rowIdPartitionComponent,
+                    dynamicFilterBloomFilters);
             if (pageSource.isPresent()) {
                 HivePageSource hivePageSource = new HivePageSource(
                         columnMappings,
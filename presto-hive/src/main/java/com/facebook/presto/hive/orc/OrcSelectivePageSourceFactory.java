@@ -54,6 +54,7 @@ import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.FixedPageSource;
 import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.function.StandardFunctionResolution;
 import com.facebook.presto.spi.relation.CallExpression;
 import com.facebook.presto.spi.relation.DeterminismEvaluator;
@@ -192,6 +193,7 @@ public class OrcSelectivePageSourceFactory
             ConnectorSession session,
             HiveFileSplit fileSplit,
             Storage storage,
+            SchemaTableName tableName,
             List<HiveColumnHandle> selectedColumns,
             Map<Integer, String> prefilledValues,
             Map<Integer, HiveCoercer> coercers,
@@ -588,6 +590,18 @@ public class OrcSelectivePageSourceFactory
         bucketAdapter.map(predicate -> new FilterFunction(session.getSqlFunctionProperties(), true, predicate))
                 .ifPresent(filterFunctions::add);
 
+        filterFunctions.addAll(toFilterFunctions(filter, session, determinismEvaluator, predicateCompiler));
+        return filterFunctions.build();
+    }
+
+    /**
+     * Compiles the filter expression the same way, without bucket adaptation. Shared with the
+     * selective readers of other file formats.
+     */
+    public static List<FilterFunction> toFilterFunctions(RowExpression filter, ConnectorSession session, DeterminismEvaluator determinismEvaluator, PredicateCompiler predicateCompiler)
+    {
+        ImmutableList.Builder<FilterFunction> filterFunctions = ImmutableList.builder();
+
         if (TRUE_CONSTANT.equals(filter)) {
             return filterFunctions.build();
         }
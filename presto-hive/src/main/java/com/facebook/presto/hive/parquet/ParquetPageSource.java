@@ -20,6 +20,7 @@ import com.facebook.presto.common.block.LazyBlock;
 import com.facebook.presto.common.block.LazyBlockLoader;
 import com.facebook.presto.common.block.LongArrayBlock;
 import com.facebook.presto.common.block.RunLengthEncodedBlock;
+import com.facebook.presto.common.predicate.ValueBloomFilter;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.parquet.Field;
 import com.facebook.presto.parquet.ParquetCorruptionException;
@@ -33,9 +34,13 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
+import static com.facebook.presto.common.RuntimeMetricName.PARQUET_DYNAMIC_FILTER_FILTERED_ROWS;
+import static com.facebook.presto.common.RuntimeUnit.NONE;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_BAD_DATA;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_CURSOR_ERROR;
+import static com.facebook.presto.parquet.predicate.PredicateUtils.filterPositions;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Collections.nCopies;
@@ -56,7 +61,14 @@ public class ParquetPageSource
      */
     private final List<Boolean> rowIndexLocations;
 
+    /**
+     * Dynamic filters of the columns, the rows whose value is not in them are dropped
+     */
+    private final List<Optional<ValueBloomFilter>> bloomFilters;
+    private final int[] bloomFilterChannels;
+
     private int batchId;
+    private ParquetBlockLoader[] blockLoaders = new ParquetBlockLoader[0];
     private long completedPositions;
     private boolean closed;
 
@@ -79,17 +91,40 @@ public class ParquetPageSource
             List<Boolean> rowIndexLocations,
             List<String> columnNames,
             RuntimeStats runtimeStats)
+    {
+        this(parquetReader, types, fields, rowIndexLocations, nCopies(types.size(), Optional.empty()), columnNames, runtimeStats);
+    }
+
+    public ParquetPageSource(
+            ParquetReader parquetReader,
+            List<Type> types,
+            List<Optional<Field>> fields,
+            List<Boolean> rowIndexLocations,
+            List<Optional<ValueBloomFilter>> bloomFilters,
+            List<String> columnNames,
+            RuntimeStats runtimeStats)
     {
         this.parquetReader = requireNonNull(parquetReader, "parquetReader is null");
         this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
         this.fields = ImmutableList.copyOf(requireNonNull(fields, "fields is null"));
         this.rowIndexLocations = requireNonNull(rowIndexLocations, "rowIndexLocations is null");
+        this.bloomFilters = ImmutableList.copyOf(requireNonNull(bloomFilters, "bloomFilters is null"));
         this.columnNames = ImmutableList.copyOf(requireNonNull(columnNames, "columnNames is null"));
         this.runtimeStats = requireNonNull(runtimeStats, "runtimeStats is null");
 
         checkArgument(
                 types.size() == rowIndexLocations.size() && types.size() == fields.size(),
                 "types, rowIndexLocations, and fields must correspond one-to-one-to-one");
+        checkArgument(types.size() == bloomFilters.size(), "types and bloomFilters must correspond one-to-one");
+        Streams.forEachPair(
+                bloomFilters.stream(),
+                fields.stream(),
+                (bloomFilter, field) -> checkArgument(
+                        !bloomFilter.isPresent() || field.isPresent(),
+                        "Bloom filter of a column that is not read from the file"));
+        this.bloomFilterChannels = IntStream.range(0, bloomFilters.size())
+                .filter(channel -> bloomFilters.get(channel).isPresent())
+                .toArray();
         Streams.forEachPair(
                 rowIndexLocations.stream(),
                 fields.stream(),
@@ -138,32 +173,51 @@ public class ParquetPageSource
     public Page getNextPage()
     {
         try {
-            batchId++;
-            int batchSize = parquetReader.nextBatch();
+            while (true) {
+                batchId++;
+                int batchSize = parquetReader.nextBatch();
 
-            if (closed || batchSize <= 0) {
-                close();
-                return null;
-            }
+                if (closed || batchSize <= 0) {
+                    close();
+                    return null;
+                }
 
-            completedPositions += batchSize;
+                completedPositions += batchSize;
 
-            Block[] blocks = new Block[fields.size()];
-            for (int fieldId = 0; fieldId < blocks.length; fieldId++) {
-                if (isIndexColumn(fieldId)) {
-                    blocks[fieldId] = getRowIndexColumn(parquetReader.lastBatchStartRow(), batchSize);
-                }
-                else {
+                blockLoaders = new ParquetBlockLoader[fields.size()];
+                for (int fieldId = 0; fieldId < blockLoaders.length; fieldId++) {
                     Optional<Field> field = fields.get(fieldId);
-                    if (field.isPresent()) {
-                        blocks[fieldId] = new LazyBlock(batchSize, new ParquetBlockLoader(field.get()));
+                    if (!isIndexColumn(fieldId) && field.isPresent()) {
+                        blockLoaders[fieldId] = new ParquetBlockLoader(field.get());
                     }
-                    else {
-                        blocks[fieldId] = RunLengthEncodedBlock.create(types.get(fieldId), null, batchSize);
+                }
+
+                if (bloomFilterChannels.length == 0) {
+                    return createPage(batchSize);
+                }
+
+                // the filtered columns are read for the whole batch, the other columns only for the rows that are left
+                int[] positions = new int[batchSize];
+                for (int position = 0; position < batchSize; position++) {
+                    positions[position] = position;
+                }
+                int positionCount = batchSize;
+                for (int channel : bloomFilterChannels) {
+                    positionCount = filterPositions(bloomFilters.get(channel).get(), blockLoaders[channel].loadBlock(), positions, positionCount);
+                    if (positionCount == 0) {
+                        break;
                     }
                 }
+                runtimeStats.addMetricValue(PARQUET_DYNAMIC_FILTER_FILTERED_ROWS, NONE, batchSize - positionCount);
+
+                if (positionCount == batchSize) {
+                    return createPage(batchSize);
+                }
+                if (positionCount > 0) {
+                    return createPage(positions, positionCount);
+                }
+                // none of the rows can match, the other columns of the batch are skipped
             }
-            return new Page(batchSize, blocks);
         }
         catch (PrestoException e) {
             closeWithSuppression(e);
@@ -175,6 +229,59 @@ public class ParquetPageSource
         }
     }
 
+    private Page createPage(int batchSize)
+    {
+        Block[] blocks = new Block[fields.size()];
+        for (int fieldId = 0; fieldId < blocks.length; fieldId++) {
+            if (isIndexColumn(fieldId)) {
+                blocks[fieldId] = getRowIndexColumn(parquetReader.lastBatchStartRow(), batchSize);
+            }
+            else if (blockLoaders[fieldId] != null) {
+                blocks[fieldId] = new LazyBlock(batchSize, blockLoaders[fieldId]);
+            }
+            else {
+                blocks[fieldId] = RunLengthEncodedBlock.create(types.get(fieldId), null, batchSize);
+            }
+        }
+        return new Page(batchSize, blocks);
+    }
+
+    private Page createPage(int[] positions, int positionCount)
+    {
+        Block[] blocks = new Block[fields.size()];
+        for (int fieldId = 0; fieldId < blocks.length; fieldId++) {
+            if (isIndexColumn(fieldId)) {
+                blocks[fieldId] = getRowIndexColumn(parquetReader.lastBatchStartRow(), positions, positionCount);
+            }
+            else if (blockLoaders[fieldId] != null) {
+                blocks[fieldId] = getLazyPositions(fieldId, positions, positionCount);
+            }
+            else {
+                blocks[fieldId] = RunLengthEncodedBlock.create(types.get(fieldId), null, positionCount);
+            }
+        }
+        return new Page(positionCount, blocks);
+    }
+
+    /**
+     * Returns the given positions of a column of the last page. If the column of the page has not
+     * been loaded, only these positions are decoded by the column reader and the column of the page
+     * can not be loaded anymore.
+     */
+    public Block getPositions(int channel, int[] positions, int positionCount)
+    {
+        // the positions of a filtered page are not the positions of the batch
+        checkState(bloomFilterChannels.length == 0, "Rows of the pages are filtered");
+        checkArgument(blockLoaders[channel] != null, "Column %s is not read from the file", channel);
+        return getLazyPositions(channel, positions, positionCount);
+    }
+
+    private Block getLazyPositions(int channel, int[] positions, int positionCount)
+    {
+        ParquetBlockLoader blockLoader = blockLoaders[channel];
+        return new LazyBlock(positionCount, lazyBlock -> lazyBlock.setBlock(blockLoader.loadPositions(positions, positionCount)));
+    }
+
     private void closeWithSuppression(Throwable throwable)
     {
         requireNonNull(throwable, "throwable is null");
@@ -210,7 +317,9 @@ public class ParquetPageSource
     {
         private final int expectedBatchId = batchId;
         private final Field field;
-        private boolean loaded;
+        private Block block;
+        private int[] selectedPositions;
+        private Block selectedBlock;
 
         public ParquetBlockLoader(Field field)
         {
@@ -220,23 +329,50 @@ public class ParquetPageSource
         @Override
         public final void load(LazyBlock lazyBlock)
         {
-            if (loaded) {
-                return;
-            }
+            lazyBlock.setBlock(loadBlock());
+        }
 
-            checkState(batchId == expectedBatchId);
+        public Block loadBlock()
+        {
+            if (block == null) {
+                checkState(batchId == expectedBatchId);
+                checkState(selectedBlock == null, "Only selected positions of the column have been read");
 
-            try {
-                Block block = parquetReader.readBlock(field);
-                lazyBlock.setBlock(block);
+                try {
+                    block = parquetReader.readBlock(field);
+                }
+                catch (ParquetCorruptionException e) {
+                    throw new PrestoException(HIVE_BAD_DATA, e);
+                }
+                catch (IOException e) {
+                    throw new PrestoException(HIVE_CURSOR_ERROR, e);
+                }
             }
-            catch (ParquetCorruptionException e) {
-                throw new PrestoException(HIVE_BAD_DATA, e);
+            return block;
+        }
+
+        public Block loadPositions(int[] positions, int positionCount)
+        {
+            if (block != null) {
+                return block.getPositions(positions, 0, positionCount);
             }
-            catch (IOException e) {
-                throw new PrestoException(HIVE_CURSOR_ERROR, e);
+
+            if (selectedBlock == null) {
+                checkState(batchId == expectedBatchId);
+
+                try {
+                    selectedBlock = parquetReader.readBlock(field, positions, positionCount);
+                }
+                catch (ParquetCorruptionException e) {
+                    throw new PrestoException(HIVE_BAD_DATA, e);
+                }
+                catch (IOException e) {
+                    throw new PrestoException(HIVE_CURSOR_ERROR, e);
+                }
+                selectedPositions = positions;
             }
-            loaded = true;
+            checkState(selectedPositions == positions && selectedBlock.getPositionCount() == positionCount, "Other positions of the column have been read");
+            return selectedBlock;
         }
     }
 
@@ -253,4 +389,13 @@ public class ParquetPageSource
         }
         return new LongArrayBlock(size, Optional.empty(), rowIndices);
     }
+
+    private static Block getRowIndexColumn(long baseIndex, int[] positions, int positionCount)
+    {
+        long[] rowIndices = new long[positionCount];
+        for (int i = 0; i < positionCount; i++) {
+            rowIndices[i] = baseIndex + positions[i];
+        }
+        return new LongArrayBlock(positionCount, Optional.empty(), rowIndices);
+    }
 }
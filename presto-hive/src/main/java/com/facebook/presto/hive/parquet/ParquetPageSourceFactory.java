@@ -16,6 +16,7 @@ package com.facebook.presto.hive.parquet;
 import com.facebook.presto.common.Subfield;
 import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.predicate.ValueBloomFilter;
 import com.facebook.presto.common.type.RowType;
 import com.facebook.presto.common.type.StandardTypes;
 import com.facebook.presto.common.type.Type;
@@ -34,8 +35,10 @@ import com.facebook.presto.parquet.Field;
 import com.facebook.presto.parquet.ParquetDataSource;
 import com.facebook.presto.parquet.RichColumnDescriptor;
 import com.facebook.presto.parquet.cache.ParquetMetadataSource;
+import com.facebook.presto.parquet.predicate.BloomFilterStore;
 import com.facebook.presto.parquet.predicate.Predicate;
 import com.facebook.presto.parquet.reader.ColumnIndexFilterUtils;
+import com.facebook.presto.parquet.reader.ParquetBloomFilterStore;
 import com.facebook.presto.parquet.reader.ParquetReader;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.ConnectorSession;
@@ -103,6 +106,7 @@ import static com.facebook.presto.hive.HiveCommonSessionProperties.isParquetBatc
 import static com.facebook.presto.hive.HiveCommonSessionProperties.isUseParquetColumnNames;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_PARTITION_SCHEMA_MISMATCH;
 import static com.facebook.presto.hive.HiveSessionProperties.columnIndexFilterEnabled;
+import static com.facebook.presto.hive.HiveSessionProperties.isParquetBloomFilterEnabled;
 import static com.facebook.presto.hive.parquet.HdfsParquetDataSource.buildHdfsParquetDataSource;
 import static com.facebook.presto.hive.parquet.ParquetPageSourceFactoryUtils.mapToPrestoException;
 import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
@@ -176,6 +180,7 @@ public class ParquetPageSourceFactory
             TypeManager typeManager,
             StandardFunctionResolution functionResolution,
             TupleDomain<HiveColumnHandle> effectivePredicate,
+            Map<HiveColumnHandle, ValueBloomFilter> dynamicFilterBloomFilters,
             FileFormatDataSourceStats stats,
             HiveFileContext hiveFileContext,
             ParquetMetadataSource parquetMetadataSource)
@@ -185,6 +190,7 @@ public class ParquetPageSourceFactory
         String user = session.getUser();
         boolean useParquetColumnNames = isUseParquetColumnNames(session);
         boolean columnIndexFilterEnabled = columnIndexFilterEnabled(session);
+        boolean bloomFilterEnabled = isParquetBloomFilterEnabled(session);
         boolean readMaskedValue = getReadNullMaskedParquetEncryptedValue(session);
 
         ParquetDataSource dataSource = null;
@@ -229,7 +235,8 @@ public class ParquetPageSourceFactory
             }
             Map<List<String>, RichColumnDescriptor> descriptorsByPath = getDescriptors(fileSchema, requestedSchema);
             TupleDomain<ColumnDescriptor> parquetTupleDomain = getParquetTupleDomain(descriptorsByPath, effectivePredicate);
-            Predicate parquetPredicate = buildPredicate(requestedSchema, parquetTupleDomain, descriptorsByPath);
+            Map<ColumnDescriptor, ValueBloomFilter> parquetBloomFilters = getParquetBloomFilters(descriptorsByPath, dynamicFilterBloomFilters);
+            Predicate parquetPredicate = buildPredicate(requestedSchema, parquetTupleDomain, parquetBloomFilters, descriptorsByPath);
             final ParquetDataSource finalDataSource = dataSource;
             ImmutableList.Builder<BlockMetaData> blocks = ImmutableList.builder();
             List<ColumnIndexStore> blockIndexStores = new ArrayList<>();
@@ -238,7 +245,22 @@ public class ParquetPageSourceFactory
             ImmutableList.Builder<Long> blockStarts = ImmutableList.builder();
             for (BlockMetaData block : footerBlocks.build()) {
                 Optional<ColumnIndexStore> columnIndexStore = ColumnIndexFilterUtils.getColumnIndexStore(parquetPredicate, finalDataSource, block, descriptorsByPath, columnIndexFilterEnabled);
-                if (predicateMatches(parquetPredicate, block, finalDataSource, descriptorsByPath, parquetTupleDomain, columnIndexStore, columnIndexFilterEnabled, Optional.of(session.getWarningCollector()))) {
+                // Bloom filters of encrypted columns are encrypted as well, they are not supported
+                Optional<BloomFilterStore> bloomFilterStore = Optional.empty();
+                if (bloomFilterEnabled && !fileDecryptor.isPresent()) {
+                    bloomFilterStore = Optional.of(new ParquetBloomFilterStore(finalDataSource, block, descriptorsByPath, parquetMetadataSource, hiveFileContext.isCacheable(), hiveFileContext.getModificationTime()));
+                }
+                if (predicateMatches(
+                        parquetPredicate,
+                        block,
+                        finalDataSource,
+                        descriptorsByPath,
+                        parquetTupleDomain,
+                        columnIndexStore,
+                        columnIndexFilterEnabled,
+                        bloomFilterStore,
+                        Optional.of(session.getWarningCollector()),
+                        hiveFileContext.getStats())) {
                     blocks.add(block);
                     blockStarts.add(nextStart);
                     blockIndexStores.add(columnIndexStore.orElse(null));
@@ -307,7 +329,21 @@ public class ParquetPageSourceFactory
                     fieldsBuilder.add(Optional.empty());
                 }
             }
-            return new ParquetPageSource(parquetReader, typesBuilder.build(), fieldsBuilder.build(), rowIndexColumns.build(), namesBuilder.build(), hiveFileContext.getStats());
+            List<Type> types = typesBuilder.build();
+            List<Optional<Field>> fields = fieldsBuilder.build();
+
+            // the rows whose value is not in the Bloom filter of a dynamic filter are dropped by the page source
+            ImmutableList.Builder<Optional<ValueBloomFilter>> bloomFilters = ImmutableList.builder();
+            for (int channel = 0; channel < columns.size(); channel++) {
+                Type type = types.get(channel);
+                if (fields.get(channel).isPresent()) {
+                    bloomFilters.add(Optional.ofNullable(dynamicFilterBloomFilters.get(columns.get(channel))).filter(bloomFilter -> bloomFilter.getType().equals(type)));
+                }
+                else {
+                    bloomFilters.add(Optional.empty());
+                }
+            }
+            return new ParquetPageSource(parquetReader, types, fields, rowIndexColumns.build(), bloomFilters.build(), namesBuilder.build(), hiveFileContext.getStats());
         }
         catch (Exception e) {
             try {
@@ -335,15 +371,7 @@ public class ParquetPageSourceFactory
                 continue;
             }
 
-            RichColumnDescriptor descriptor;
-            if (isPushedDownSubfield(columnHandle)) {
-                Subfield pushedDownSubfield = getPushedDownSubfield(columnHandle);
-                List<String> subfieldPath = columnPathFromSubfield(pushedDownSubfield);
-                descriptor = descriptorsByPath.get(subfieldPath);
-            }
-            else {
-                descriptor = descriptorsByPath.get(ImmutableList.of(columnHandle.getName()));
-            }
+            RichColumnDescriptor descriptor = getDescriptor(descriptorsByPath, columnHandle);
             if (descriptor != null) {
                 predicate.put(descriptor, entry.getValue());
             }
@@ -351,6 +379,33 @@ public class ParquetPageSourceFactory
         return TupleDomain.withColumnDomains(predicate.build());
     }
 
+    public static Map<ColumnDescriptor, ValueBloomFilter> getParquetBloomFilters(Map<List<String>, RichColumnDescriptor> descriptorsByPath, Map<HiveColumnHandle, ValueBloomFilter> bloomFilters)
+    {
+        ImmutableMap.Builder<ColumnDescriptor, ValueBloomFilter> parquetBloomFilters = ImmutableMap.builder();
+        for (Entry<HiveColumnHandle, ValueBloomFilter> entry : bloomFilters.entrySet()) {
+            HiveColumnHandle columnHandle = entry.getKey();
+            if (!columnHandle.getHiveType().getCategory().equals(PRIMITIVE)) {
+                continue;
+            }
+
+            RichColumnDescriptor descriptor = getDescriptor(descriptorsByPath, columnHandle);
+            if (descriptor != null) {
+                parquetBloomFilters.put(descriptor, entry.getValue());
+            }
+        }
+        return parquetBloomFilters.build();
+    }
+
+    private static RichColumnDescriptor getDescriptor(Map<List<String>, RichColumnDescriptor> descriptorsByPath, HiveColumnHandle columnHandle)
+    {
+        if (isPushedDownSubfield(columnHandle)) {
+            Subfield pushedDownSubfield = getPushedDownSubfield(columnHandle);
+            List<String> subfieldPath = columnPathFromSubfield(pushedDownSubfield);
+            return descriptorsByPath.get(subfieldPath);
+        }
+        return descriptorsByPath.get(ImmutableList.of(columnHandle.getName()));
+    }
+
     public static Optional<org.apache.parquet.schema.Type> getParquetType(Type prestoType, MessageType messageType, boolean useParquetColumnNames, HiveColumnHandle column, SchemaTableName tableName, Path path)
     {
         org.apache.parquet.schema.Type type = null;
@@ -515,6 +570,38 @@ public class ParquetPageSourceFactory
             HiveFileContext hiveFileContext,
             Optional<EncryptionInformation> encryptionInformation,
             Optional<byte[]> rowIdPartitionComponent)
+    {
+        return createPageSource(
+                configuration,
+                session,
+                fileSplit,
+                storage,
+                tableName,
+                tableParameters,
+                columns,
+                effectivePredicate,
+                hiveStorageTimeZone,
+                hiveFileContext,
+                encryptionInformation,
+                rowIdPartitionComponent,
+                ImmutableMap.of());
+    }
+
+    @Override
+    public Optional<? extends ConnectorPageSource> createPageSource(
+            Configuration configuration,
+            ConnectorSession session,
+            HiveFileSplit fileSplit,
+            Storage storage,
+            SchemaTableName tableName,
+            Map<String, String> tableParameters,
+            List<HiveColumnHandle> columns,
+            TupleDomain<HiveColumnHandle> effectivePredicate,
+            DateTimeZone hiveStorageTimeZone,
+            HiveFileContext hiveFileContext,
+            Optional<EncryptionInformation> encryptionInformation,
+            Optional<byte[]> rowIdPartitionComponent,
+            Map<HiveColumnHandle, ValueBloomFilter> dynamicFilterBloomFilters)
     {
         if (!PARQUET_SERDE_CLASS_NAMES.contains(storage.getStorageFormat().getSerDe())) {
             return Optional.empty();
@@ -530,6 +617,7 @@ public class ParquetPageSourceFactory
                 typeManager,
                 functionResolution,
                 effectivePredicate,
+                dynamicFilterBloomFilters,
                 stats,
                 hiveFileContext,
                 parquetMetadataSource));
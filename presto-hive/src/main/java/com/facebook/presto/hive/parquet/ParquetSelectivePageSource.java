@@ -0,0 +1,355 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive.parquet;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.LazyBlock;
+import com.facebook.presto.common.block.RunLengthEncodedBlock;
+import com.facebook.presto.common.predicate.FilterFunction;
+import com.facebook.presto.common.predicate.TupleDomainFilter;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.hive.HiveCoercer;
+import com.facebook.presto.spi.ConnectorPageSource;
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.facebook.presto.common.RuntimeUnit.NONE;
+import static com.facebook.presto.hive.FilteringPageSource.filterBlock;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Applies the pushed down filters to the pages of a {@link ParquetPageSource} column by column.
+ * <p>
+ * The blocks coming from the Parquet reader are lazy, so only the columns the filters need are
+ * decoded until the filters run out of positions. The remaining columns stay lazy and, when
+ * accessed, the surviving positions are pushed down to the column readers like
+ * {@code OrcSelectiveRecordReader} does: the flat int32 and int64 column readers decode these
+ * positions only and skip the other values, the other column readers still decode the whole batch
+ * and the surviving positions are copied out of it. When the whole batch has been filtered out the
+ * remaining columns are skipped by the column readers. The filters are reordered by the observed
+ * time spent per dropped position, the same way {@code OrcSelectiveRecordReader} orders its filter
+ * functions.
+ */
+public class ParquetSelectivePageSource
+        implements ConnectorPageSource
+{
+    private static final String FILTERED_OUT_BATCHES = "parquetSelectiveFilteredOutBatches";
+
+    private final ConnectorPageSource delegate;
+    private final Optional<ParquetPageSource> parquetDelegate;
+    private final Type[] types;
+    // channel of the column in the pages of the delegate, -1 for prefilled columns
+    private final int[] delegateChannels;
+    private final Object[] prefilledValues;
+    private final HiveCoercer[] coercers;
+    private final int[] outputChannels;
+    private final boolean reorderFilters;
+    private final List<FilterWithStats> filters;
+
+    /**
+     * @param types table types of all the columns, including the ones used by the filters only
+     * @param filterFunctions refer to the columns by their index in {@code types}
+     * @param outputChannels indices of the columns to return
+     */
+    public ParquetSelectivePageSource(
+            ConnectorPageSource delegate,
+            List<Type> types,
+            int[] delegateChannels,
+            Map<Integer, Object> prefilledValues,
+            Map<Integer, HiveCoercer> coercers,
+            Map<Integer, TupleDomainFilter> domainFilters,
+            List<FilterFunction> filterFunctions,
+            int[] outputChannels,
+            boolean reorderFilters)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.parquetDelegate = delegate instanceof ParquetPageSource ? Optional.of((ParquetPageSource) delegate) : Optional.empty();
+        this.types = requireNonNull(types, "types is null").toArray(new Type[0]);
+        this.delegateChannels = requireNonNull(delegateChannels, "delegateChannels is null").clone();
+        checkArgument(delegateChannels.length == this.types.length, "delegateChannels and types must have the same size");
+        this.prefilledValues = new Object[this.types.length];
+        requireNonNull(prefilledValues, "prefilledValues is null").forEach((channel, value) -> this.prefilledValues[channel] = value);
+        this.coercers = new HiveCoercer[this.types.length];
+        requireNonNull(coercers, "coercers is null").forEach((channel, coercer) -> this.coercers[channel] = coercer);
+        this.outputChannels = requireNonNull(outputChannels, "outputChannels is null").clone();
+        this.reorderFilters = reorderFilters;
+
+        ImmutableList.Builder<FilterWithStats> filters = ImmutableList.builder();
+        // range filters are cheap and come first, in column order
+        requireNonNull(domainFilters, "domainFilters is null").entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> new DomainFilterWithStats(entry.getKey(), entry.getValue()))
+                .forEach(filters::add);
+        requireNonNull(filterFunctions, "filterFunctions is null").stream()
+                .map(FilterFunctionWithStats::new)
+                .forEach(filters::add);
+        this.filters = new ArrayList<>(filters.build());
+    }
+
+    @Override
+    public Page getNextPage()
+    {
+        while (true) {
+            Page page = delegate.getNextPage();
+            if (page == null) {
+                return null;
+            }
+
+            int positionCount = page.getPositionCount();
+            Block[] blocks = new Block[types.length];
+            for (int channel = 0; channel < types.length; channel++) {
+                blocks[channel] = getBlock(page, channel);
+            }
+            if (filters.isEmpty() || positionCount == 0) {
+                return getOutputPage(blocks, positionCount);
+            }
+
+            int[] positions = new int[positionCount];
+            for (int i = 0; i < positionCount; i++) {
+                positions[i] = i;
+            }
+            RuntimeException[] errors = new RuntimeException[positionCount];
+
+            int selectedCount = positionCount;
+            for (FilterWithStats filter : filters) {
+                long start = System.nanoTime();
+                int inputCount = selectedCount;
+                selectedCount = filter.filter(blocks, positionCount, positions, selectedCount, errors);
+                filter.update(inputCount, selectedCount, System.nanoTime() - start);
+                if (selectedCount == 0) {
+                    break;
+                }
+            }
+
+            for (int i = 0; i < selectedCount; i++) {
+                if (errors[i] != null) {
+                    throw errors[i];
+                }
+            }
+
+            if (reorderFilters && filters.size() > 1) {
+                filters.sort(Comparator.comparingDouble(FilterWithStats::getElapsedNanosPerDroppedPosition));
+            }
+
+            if (selectedCount == 0) {
+                // the columns that have not been loaded are skipped by the Parquet column readers
+                getRuntimeStats().addMetricValue(FILTERED_OUT_BATCHES, NONE, 1);
+                continue;
+            }
+            if (selectedCount == positionCount) {
+                return getOutputPage(blocks, positionCount);
+            }
+            return getOutputPage(page, blocks, positions, selectedCount);
+        }
+    }
+
+    private Block getBlock(Page page, int channel)
+    {
+        int positionCount = page.getPositionCount();
+        if (delegateChannels[channel] < 0) {
+            return RunLengthEncodedBlock.create(types[channel], prefilledValues[channel], positionCount);
+        }
+
+        Block block = page.getBlock(delegateChannels[channel]);
+        HiveCoercer coercer = coercers[channel];
+        if (coercer == null) {
+            return block;
+        }
+        return new LazyBlock(positionCount, lazyBlock -> lazyBlock.setBlock(coercer.apply(block.getLoadedBlock())));
+    }
+
+    private Page getOutputPage(Block[] blocks, int positionCount)
+    {
+        Block[] outputBlocks = new Block[outputChannels.length];
+        for (int i = 0; i < outputChannels.length; i++) {
+            outputBlocks[i] = blocks[outputChannels[i]];
+        }
+        return new Page(positionCount, outputBlocks);
+    }
+
+    private Page getOutputPage(Page page, Block[] blocks, int[] positions, int positionCount)
+    {
+        Block[] outputBlocks = new Block[outputChannels.length];
+        for (int i = 0; i < outputChannels.length; i++) {
+            int channel = outputChannels[i];
+            Block block = blocks[channel];
+            if (block instanceof LazyBlock && !((LazyBlock) block).isLoaded()) {
+                // decode the column only if it is accessed
+                outputBlocks[i] = getLazyPositions(page, channel, block, positions, positionCount);
+            }
+            else {
+                outputBlocks[i] = block.getPositions(positions, 0, positionCount);
+            }
+        }
+        return new Page(positionCount, outputBlocks);
+    }
+
+    private Block getLazyPositions(Page page, int channel, Block block, int[] positions, int positionCount)
+    {
+        Block delegateBlock = page.getBlock(delegateChannels[channel]);
+        if (!parquetDelegate.isPresent() || !(delegateBlock instanceof LazyBlock) || ((LazyBlock) delegateBlock).isLoaded()) {
+            return new LazyBlock(positionCount, lazyBlock -> lazyBlock.setBlock(block.getLoadedBlock().getPositions(positions, 0, positionCount)));
+        }
+
+        Block selectedBlock = parquetDelegate.get().getPositions(delegateChannels[channel], positions, positionCount);
+        HiveCoercer coercer = coercers[channel];
+        if (coercer == null) {
+            return selectedBlock;
+        }
+        return new LazyBlock(positionCount, lazyBlock -> lazyBlock.setBlock(coercer.apply(selectedBlock.getLoadedBlock())));
+    }
+
+    @Override
+    public long getCompletedBytes()
+    {
+        return delegate.getCompletedBytes();
+    }
+
+    @Override
+    public long getCompletedPositions()
+    {
+        return delegate.getCompletedPositions();
+    }
+
+    @Override
+    public long getReadTimeNanos()
+    {
+        return delegate.getReadTimeNanos();
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return delegate.isFinished();
+    }
+
+    @Override
+    public long getSystemMemoryUsage()
+    {
+        return delegate.getSystemMemoryUsage();
+    }
+
+    @Override
+    public RuntimeStats getRuntimeStats()
+    {
+        return delegate.getRuntimeStats();
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        delegate.close();
+    }
+
+    private abstract static class FilterWithStats
+    {
+        private long inputPositions;
+        private long outputPositions;
+        private long elapsedNanos;
+
+        /**
+         * Filters the selected positions in place and returns the number of positions left.
+         */
+        abstract int filter(Block[] blocks, int positionCount, int[] positions, int selectedCount, RuntimeException[] errors);
+
+        void update(int inputPositions, int outputPositions, long elapsedNanos)
+        {
+            this.inputPositions += inputPositions;
+            this.outputPositions += outputPositions;
+            this.elapsedNanos += elapsedNanos;
+        }
+
+        double getElapsedNanosPerDroppedPosition()
+        {
+            return (double) elapsedNanos / (1 + inputPositions - outputPositions);
+        }
+    }
+
+    private final class DomainFilterWithStats
+            extends FilterWithStats
+    {
+        private final int channel;
+        private final TupleDomainFilter filter;
+
+        private DomainFilterWithStats(int channel, TupleDomainFilter filter)
+        {
+            this.channel = channel;
+            this.filter = requireNonNull(filter, "filter is null");
+        }
+
+        @Override
+        int filter(Block[] blocks, int positionCount, int[] positions, int selectedCount, RuntimeException[] errors)
+        {
+            Block block = blocks[channel].getLoadedBlock();
+            if (!hasErrors(errors, selectedCount)) {
+                return filterBlock(block, types[channel], filter, positions, selectedCount);
+            }
+
+            // filterBlock does not track errors of the filter functions applied before, keep them aligned with the positions
+            int[] inputPositions = positions.clone();
+            int outputCount = filterBlock(block, types[channel], filter, positions, selectedCount);
+            int input = 0;
+            for (int i = 0; i < outputCount; i++) {
+                while (inputPositions[input] != positions[i]) {
+                    input++;
+                }
+                errors[i] = errors[input];
+                input++;
+            }
+            return outputCount;
+        }
+
+        private boolean hasErrors(RuntimeException[] errors, int selectedCount)
+        {
+            for (int i = 0; i < selectedCount; i++) {
+                if (errors[i] != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class FilterFunctionWithStats
+            extends FilterWithStats
+    {
+        private final FilterFunction function;
+
+        private FilterFunctionWithStats(FilterFunction function)
+        {
+            this.function = requireNonNull(function, "function is null");
+        }
+
+        @Override
+        int filter(Block[] blocks, int positionCount, int[] positions, int selectedCount, RuntimeException[] errors)
+        {
+            int[] inputChannels = function.getInputChannels();
+            Block[] inputBlocks = new Block[inputChannels.length];
+            for (int i = 0; i < inputChannels.length; i++) {
+                inputBlocks[i] = blocks[inputChannels[i]];
+            }
+            return function.filter(new Page(positionCount, inputBlocks), positions, selectedCount, errors);
+        }
+    }
+}
@@ -14,31 +14,59 @@
 package com.facebook.presto.hive.parquet;
 
 import com.facebook.presto.common.Subfield;
+import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.common.predicate.FilterFunction;
 import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.predicate.TupleDomainFilter;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.common.type.TypeManager;
 import com.facebook.presto.hive.BucketAdaptation;
 import com.facebook.presto.hive.EncryptionInformation;
+import com.facebook.presto.hive.FileFormatDataSourceStats;
+import com.facebook.presto.hive.HdfsEnvironment;
 import com.facebook.presto.hive.HiveCoercer;
 import com.facebook.presto.hive.HiveColumnHandle;
 import com.facebook.presto.hive.HiveFileContext;
 import com.facebook.presto.hive.HiveFileSplit;
 import com.facebook.presto.hive.HiveSelectivePageSourceFactory;
+import com.facebook.presto.hive.MetadataUtils;
 import com.facebook.presto.hive.metastore.Storage;
+import com.facebook.presto.hive.orc.TupleDomainFilterCache;
+import com.facebook.presto.parquet.cache.ParquetMetadataSource;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.SchemaTableName;
+import com.facebook.presto.spi.function.StandardFunctionResolution;
+import com.facebook.presto.spi.relation.InputReferenceExpression;
 import com.facebook.presto.spi.relation.RowExpression;
+import com.facebook.presto.spi.relation.RowExpressionService;
+import com.facebook.presto.spi.relation.VariableReferenceExpression;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import jakarta.inject.Inject;
 import org.apache.hadoop.conf.Configuration;
 import org.joda.time.DateTimeZone;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.IntStream;
 
+import static com.facebook.presto.expressions.RowExpressionNodeInliner.replaceExpression;
+import static com.facebook.presto.hive.HiveSessionProperties.isAdaptiveFilterReorderingEnabled;
+import static com.facebook.presto.hive.HiveUtil.typedPartitionKey;
+import static com.facebook.presto.hive.orc.OrcSelectivePageSourceFactory.toFilterFunctions;
+import static com.facebook.presto.hive.parquet.ParquetPageSourceFactory.createParquetPageSource;
 import static com.facebook.presto.spi.StandardErrorCode.NOT_SUPPORTED;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.collect.Maps.uniqueIndex;
+import static java.util.Objects.requireNonNull;
 
 public class ParquetSelectivePageSourceFactory
         implements HiveSelectivePageSourceFactory
@@ -48,9 +76,31 @@ public class ParquetSelectivePageSourceFactory
             .add("parquet.hive.serde.ParquetHiveSerDe")
             .build();
 
+    private final TypeManager typeManager;
+    private final StandardFunctionResolution functionResolution;
+    private final RowExpressionService rowExpressionService;
+    private final HdfsEnvironment hdfsEnvironment;
+    private final FileFormatDataSourceStats stats;
+    private final ParquetMetadataSource parquetMetadataSource;
+    private final TupleDomainFilterCache tupleDomainFilterCache;
+
     @Inject
-    public ParquetSelectivePageSourceFactory()
+    public ParquetSelectivePageSourceFactory(
+            TypeManager typeManager,
+            StandardFunctionResolution functionResolution,
+            RowExpressionService rowExpressionService,
+            HdfsEnvironment hdfsEnvironment,
+            FileFormatDataSourceStats stats,
+            ParquetMetadataSource parquetMetadataSource,
+            TupleDomainFilterCache tupleDomainFilterCache)
     {
+        this.typeManager = requireNonNull(typeManager, "typeManager is null");
+        this.functionResolution = requireNonNull(functionResolution, "functionResolution is null");
+        this.rowExpressionService = requireNonNull(rowExpressionService, "rowExpressionService is null");
+        this.hdfsEnvironment = requireNonNull(hdfsEnvironment, "hdfsEnvironment is null");
+        this.stats = requireNonNull(stats, "stats is null");
+        this.parquetMetadataSource = requireNonNull(parquetMetadataSource, "parquetMetadataSource is null");
+        this.tupleDomainFilterCache = requireNonNull(tupleDomainFilterCache, "tupleDomainFilterCache is null");
     }
 
     @Override
@@ -59,6 +109,7 @@ public class ParquetSelectivePageSourceFactory
             ConnectorSession session,
             HiveFileSplit fileSplit,
             Storage storage,
+            SchemaTableName tableName,
             List<HiveColumnHandle> columns,
             Map<Integer, String> prefilledValues,
             Map<Integer, HiveCoercer> coercers,
@@ -76,6 +127,91 @@ public class ParquetSelectivePageSourceFactory
             return Optional.empty();
         }
         checkState(!appendRowNumberEnabled, "append row number is not supported for Parquet Reader");
-        throw new PrestoException(NOT_SUPPORTED, "Parquet reader doesn't support filter pushdown yet");
+        checkArgument(!domainPredicate.isNone(), "Unexpected NONE domain");
+        if (bucketAdaptation.isPresent()) {
+            throw new PrestoException(NOT_SUPPORTED, "Parquet reader doesn't support filter pushdown with bucket adaptation yet");
+        }
+        if (columns.stream().anyMatch(HiveColumnHandle::isRowIdColumnHandle)) {
+            throw new PrestoException(NOT_SUPPORTED, "Parquet reader doesn't support filter pushdown with row IDs yet");
+        }
+        Map<Subfield, Domain> domains = domainPredicate.getDomains().get();
+        if (!domains.keySet().stream().allMatch(MetadataUtils::isEntireColumn)) {
+            throw new PrestoException(NOT_SUPPORTED, "Parquet reader doesn't support filter pushdown on subfields yet");
+        }
+
+        Map<Integer, Integer> channels = IntStream.range(0, columns.size())
+                .boxed()
+                .collect(toImmutableMap(channel -> columns.get(channel).getHiveColumnIndex(), channel -> channel));
+
+        // use column types from the current table schema; these types might be different from this partition's schema
+        List<Type> types = columns.stream()
+                .map(column -> coercers.containsKey(column.getHiveColumnIndex()) ? coercers.get(column.getHiveColumnIndex()).getToType() : typeManager.getType(column.getTypeSignature()))
+                .collect(toImmutableList());
+
+        List<HiveColumnHandle> physicalColumns = columns.stream()
+                .filter(column -> !prefilledValues.containsKey(column.getHiveColumnIndex()))
+                .collect(toImmutableList());
+        int[] delegateChannels = new int[columns.size()];
+        for (int channel = 0; channel < columns.size(); channel++) {
+            delegateChannels[channel] = physicalColumns.indexOf(columns.get(channel));
+        }
+
+        Map<Integer, Object> typedPrefilledValues = new HashMap<>();
+        prefilledValues.forEach((hiveColumnIndex, value) -> {
+            int channel = channels.get(hiveColumnIndex);
+            typedPrefilledValues.put(channel, typedPartitionKey(value, types.get(channel), columns.get(channel).getName(), hiveStorageTimeZone));
+        });
+
+        Map<Integer, HiveCoercer> channelCoercers = coercers.entrySet().stream()
+                .collect(toImmutableMap(entry -> channels.get(entry.getKey()), Map.Entry::getValue));
+
+        Map<String, Integer> channelsByName = IntStream.range(0, columns.size())
+                .boxed()
+                .collect(toImmutableMap(channel -> columns.get(channel).getName(), channel -> channel));
+        Map<Integer, TupleDomainFilter> domainFilters = domains.entrySet().stream()
+                .collect(toImmutableMap(entry -> channelsByName.get(entry.getKey().getRootName()), entry -> tupleDomainFilterCache.getFilter(entry.getValue())));
+
+        Map<VariableReferenceExpression, InputReferenceExpression> variableToInput = IntStream.range(0, columns.size())
+                .boxed()
+                .collect(toImmutableMap(
+                        channel -> new VariableReferenceExpression(Optional.empty(), columns.get(channel).getName(), types.get(channel)),
+                        channel -> new InputReferenceExpression(Optional.empty(), channel, types.get(channel))));
+        List<FilterFunction> filterFunctions = toFilterFunctions(replaceExpression(remainingPredicate, variableToInput), session, rowExpressionService.getDeterminismEvaluator(), rowExpressionService.getPredicateCompiler());
+
+        int[] outputChannels = outputColumns.stream()
+                .mapToInt(channels::get)
+                .toArray();
+
+        // prune row groups with the filters on the columns that are read as is
+        Map<String, HiveColumnHandle> physicalColumnsByName = uniqueIndex(physicalColumns, HiveColumnHandle::getName);
+        TupleDomain<HiveColumnHandle> effectivePredicate = domainPredicate
+                .transform(subfield -> physicalColumnsByName.get(subfield.getRootName()))
+                .transform(column -> coercers.containsKey(column.getHiveColumnIndex()) ? null : column);
+
+        ConnectorPageSource parquetPageSource = createParquetPageSource(
+                hdfsEnvironment,
+                session,
+                configuration,
+                fileSplit,
+                physicalColumns,
+                tableName,
+                typeManager,
+                functionResolution,
+                effectivePredicate,
+                ImmutableMap.of(),
+                stats,
+                hiveFileContext,
+                parquetMetadataSource);
+
+        return Optional.of(new ParquetSelectivePageSource(
+                parquetPageSource,
+                types,
+                delegateChannels,
+                typedPrefilledValues,
+                channelCoercers,
+                domainFilters,
+                filterFunctions,
+                outputChannels,
+                isAdaptiveFilterReorderingEnabled(session)));
     }
 }
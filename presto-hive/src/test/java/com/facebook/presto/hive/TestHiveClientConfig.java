@@ -140,6 +140,7 @@ public class TestHiveClientConfig
                 .setMaterializedViewMissingPartitionsThreshold(100)
                 .setLooseMemoryAccountingEnabled(false)
                 .setReadColumnIndexFilter(false)
+                .setParquetBloomFilterEnabled(false)
                 .setSizeBasedSplitWeightsEnabled(true)
                 .setDynamicSplitSizesEnabled(false)
                 .setMinimumAssignedSplitWeight(0.05)
@@ -267,6 +268,7 @@ public class TestHiveClientConfig
                 .put("hive.verbose-runtime-stats-enabled", "true")
                 .put("hive.materialized-view-missing-partitions-threshold", "50")
                 .put("hive.parquet-column-index-filter-enabled", "true")
+                .put("hive.parquet-bloom-filter-enabled", "true")
                 .put("hive.size-based-split-weights-enabled", "false")
                 .put("hive.dynamic-split-sizes-enabled", "true")
                 .put("hive.user-defined-type-encoding-enabled", "true")
@@ -390,6 +392,7 @@ public class TestHiveClientConfig
                 .setMaterializedViewMissingPartitionsThreshold(50)
                 .setLooseMemoryAccountingEnabled(true)
                 .setReadColumnIndexFilter(true)
+                .setParquetBloomFilterEnabled(true)
                 .setSizeBasedSplitWeightsEnabled(false)
                 .setDynamicSplitSizesEnabled(true)
                 .setMinimumAssignedSplitWeight(1.0)
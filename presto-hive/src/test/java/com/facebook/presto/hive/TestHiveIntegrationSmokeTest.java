@@ -5722,7 +5722,7 @@ public class TestHiveIntegrationSmokeTest
     }
 
     @Test
-    public void testParquetSelectivePageSourceFails()
+    public void testParquetSelectivePageSource()
     {
         assertUpdate("CREATE TABLE test_parquet_filter_pushdoown (a BIGINT, b BOOLEAN) WITH (format = 'parquet')");
         assertUpdate(getSession(), "INSERT INTO test_parquet_filter_pushdoown VALUES (1, true)", 1);
@@ -5747,9 +5747,20 @@ public class TestHiveIntegrationSmokeTest
                 .setCatalogSessionProperty("hive", "pushdown_filter_enabled", "true")
                 .setCatalogSessionProperty("hive", "parquet_pushdown_filter_enabled", "true")
                 .build();
-        assertQueryFails(parquetFilterPushdownSession, "SELECT a FROM test_parquet_filter_pushdoown", "Parquet reader doesn't support filter pushdown yet");
-        assertQueryFails(parquetFilterPushdownSession, "SELECT a FROM test_parquet_filter_pushdoown WHERE b = true", "Parquet reader doesn't support filter pushdown yet");
-        assertQueryFails(parquetFilterPushdownSession, "SELECT a FROM test_parquet_filter_pushdoown WHERE b = false", "Parquet reader doesn't support filter pushdown yet");
+        assertQuery(parquetFilterPushdownSession, "SELECT a FROM test_parquet_filter_pushdoown", "select 1");
+        assertQuery(parquetFilterPushdownSession, "SELECT a FROM test_parquet_filter_pushdoown WHERE b = true", "select 1");
+        assertQueryReturnsEmptyResult(parquetFilterPushdownSession, "SELECT a FROM test_parquet_filter_pushdoown WHERE b = false");
+
+        assertUpdate("CREATE TABLE test_parquet_selective_reader (a BIGINT, b VARCHAR, c DOUBLE, ds VARCHAR) WITH (format = 'parquet', partitioned_by = ARRAY['ds'])");
+        assertUpdate("INSERT INTO test_parquet_selective_reader SELECT orderkey, orderstatus, totalprice, '2020-01-01' FROM orders", "SELECT count(*) FROM orders");
+        assertQuery(parquetFilterPushdownSession, "SELECT a, c FROM test_parquet_selective_reader WHERE b = 'F'", "SELECT orderkey, totalprice FROM orders WHERE orderstatus = 'F'");
+        assertQuery(parquetFilterPushdownSession, "SELECT b FROM test_parquet_selective_reader WHERE a BETWEEN 100 AND 200 AND c > 100000", "SELECT orderstatus FROM orders WHERE orderkey BETWEEN 100 AND 200 AND totalprice > 100000");
+        assertQuery(parquetFilterPushdownSession, "SELECT a, ds FROM test_parquet_selective_reader WHERE a % 7 = 0 AND b <> 'O'", "SELECT orderkey, '2020-01-01' FROM orders WHERE orderkey % 7 = 0 AND orderstatus <> 'O'");
+        assertQuery(parquetFilterPushdownSession, "SELECT count(*) FROM test_parquet_selective_reader WHERE ds = '2020-01-01' AND c IS NOT NULL", "SELECT count(*) FROM orders");
+        assertQueryReturnsEmptyResult(parquetFilterPushdownSession, "SELECT a FROM test_parquet_selective_reader WHERE a < 0");
+
+        assertUpdate("DROP TABLE test_parquet_selective_reader");
+        assertUpdate("DROP TABLE test_parquet_filter_pushdoown");
     }
 
     @DataProvider(name = "testFormatAndCompressionCodecs")
@@ -0,0 +1,317 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive.parquet;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.RuntimeMetric;
+import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.block.LazyBlock;
+import com.facebook.presto.common.function.SqlFunctionProperties;
+import com.facebook.presto.common.predicate.FilterFunction;
+import com.facebook.presto.common.predicate.TupleDomainFilter;
+import com.facebook.presto.common.predicate.TupleDomainFilter.BigintRange;
+import com.facebook.presto.common.relation.Predicate;
+import com.facebook.presto.spi.ConnectorPageSource;
+import com.facebook.presto.testing.TestingConnectorSession;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongPredicate;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.expectThrows;
+
+public class TestParquetSelectivePageSource
+{
+    private static final SqlFunctionProperties PROPERTIES = new TestingConnectorSession(ImmutableList.of()).getSqlFunctionProperties();
+    private static final long UNLUCKY = -13;
+
+    @Test
+    public void testRangeFiltersRunFirst()
+    {
+        CountingPredicate keepAll = new CountingPredicate(value -> true);
+        ConnectorPageSource pageSource = createPageSource(
+                ImmutableList.of(new Page(sequence(0, 1000), sequence(0, 1000))),
+                ImmutableMap.of(1, BigintRange.of(0, 9, false)),
+                ImmutableList.of(keepAll),
+                false);
+
+        Page page = pageSource.getNextPage();
+        assertEquals(page.getPositionCount(), 10);
+        // the filter function only sees the positions left by the range filter
+        assertEquals(keepAll.getEvaluations(), 10);
+    }
+
+    @Test
+    public void testFilterReordering()
+    {
+        assertFilterReordering(true, 10);
+        assertFilterReordering(false, 1000);
+    }
+
+    private static void assertFilterReordering(boolean reorderFilters, int expectedSecondPageEvaluations)
+    {
+        CountingPredicate keepAll = new CountingPredicate(value -> true);
+        CountingPredicate keepFew = new CountingPredicate(value -> value < 10);
+        ConnectorPageSource pageSource = createPageSource(
+                ImmutableList.of(
+                        new Page(sequence(0, 1000), sequence(0, 1000)),
+                        new Page(sequence(0, 1000), sequence(0, 1000))),
+                ImmutableMap.of(),
+                ImmutableList.of(keepAll, keepFew),
+                reorderFilters);
+
+        assertEquals(pageSource.getNextPage().getPositionCount(), 10);
+        assertEquals(keepAll.getEvaluations(), 1000);
+        assertEquals(keepFew.getEvaluations(), 1000);
+
+        // the selective filter drops more positions per nanosecond, so it moves first when reordering is enabled
+        assertEquals(pageSource.getNextPage().getPositionCount(), 10);
+        assertEquals(keepFew.getEvaluations(), 2000);
+        assertEquals(keepAll.getEvaluations(), 1000 + expectedSecondPageEvaluations);
+    }
+
+    @Test
+    public void testAllRowsFilteredOut()
+    {
+        AtomicBoolean projectedColumnLoaded = new AtomicBoolean();
+        Block projectedColumn = new LazyBlock(1000, lazyBlock -> {
+            projectedColumnLoaded.set(true);
+            lazyBlock.setBlock(sequence(0, 1000));
+        });
+        TestingPageSource delegate = new TestingPageSource(ImmutableList.of(new Page(projectedColumn, sequence(0, 1000))));
+        ConnectorPageSource pageSource = new ParquetSelectivePageSource(
+                delegate,
+                ImmutableList.of(BIGINT, BIGINT),
+                new int[] {0, 1},
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                ImmutableMap.of(1, BigintRange.of(5000, 6000, false)),
+                ImmutableList.of(),
+                new int[] {0, 1},
+                false);
+
+        assertNull(pageSource.getNextPage());
+        assertFalse(projectedColumnLoaded.get(), "projected column of a filtered out batch should not be loaded");
+
+        RuntimeMetric filteredOutBatches = delegate.getRuntimeStats().getMetric("parquetSelectiveFilteredOutBatches");
+        assertNotNull(filteredOutBatches);
+        assertEquals(filteredOutBatches.getCount(), 1);
+    }
+
+    @Test
+    public void testErrorsAndNullsAlignedWithPositions()
+    {
+        // the filter function drops most rows of the first page and moves before the range filter, which drops none
+        Page reorderingPage = new Page(evenNumbers(5_000), constant(0, 5_000));
+        Page page = new Page(
+                longs(1L, UNLUCKY, 2L, 3L, 5L, 7L),
+                longs(null, 200L, 5L, null, 500L, 7L));
+        Page failingPage = new Page(longs(UNLUCKY), longs(1L));
+
+        ConnectorPageSource pageSource = createPageSource(
+                ImmutableList.of(reorderingPage, page, failingPage),
+                ImmutableMap.of(1, BigintRange.of(0, 100, true)),
+                ImmutableList.of(new CountingPredicate(value -> value % 2 != 0)),
+                true);
+
+        // the error of the unlucky row is dropped along with the row, the nulls stay with their rows
+        Page output = pageSource.getNextPage();
+        assertEquals(getValues(output.getBlock(0)), Arrays.asList(1L, 3L, 7L));
+        assertEquals(getValues(output.getBlock(1)), Arrays.asList(null, null, 7L));
+
+        // the error of a selected row is raised
+        expectThrows(UnluckyException.class, pageSource::getNextPage);
+    }
+
+    private static ConnectorPageSource createPageSource(List<Page> pages, Map<Integer, TupleDomainFilter> domainFilters, List<Predicate> predicates, boolean reorderFilters)
+    {
+        ImmutableList.Builder<FilterFunction> filterFunctions = ImmutableList.builder();
+        for (Predicate predicate : predicates) {
+            filterFunctions.add(new FilterFunction(PROPERTIES, true, predicate));
+        }
+        return new ParquetSelectivePageSource(
+                new TestingPageSource(pages),
+                ImmutableList.of(BIGINT, BIGINT),
+                new int[] {0, 1},
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                domainFilters,
+                filterFunctions.build(),
+                new int[] {0, 1},
+                reorderFilters);
+    }
+
+    private static Block sequence(int start, int end)
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, end - start);
+        for (int value = start; value < end; value++) {
+            BIGINT.writeLong(blockBuilder, value);
+        }
+        return blockBuilder.build();
+    }
+
+    private static Block constant(long value, int positionCount)
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, positionCount);
+        for (int i = 0; i < positionCount; i++) {
+            BIGINT.writeLong(blockBuilder, value);
+        }
+        return blockBuilder.build();
+    }
+
+    private static Block evenNumbers(int positionCount)
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, positionCount);
+        for (int i = 0; i < positionCount; i++) {
+            BIGINT.writeLong(blockBuilder, i * 2L);
+        }
+        return blockBuilder.build();
+    }
+
+    private static Block longs(Long... values)
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, values.length);
+        for (Long value : values) {
+            if (value == null) {
+                blockBuilder.appendNull();
+            }
+            else {
+                BIGINT.writeLong(blockBuilder, value);
+            }
+        }
+        return blockBuilder.build();
+    }
+
+    private static List<Long> getValues(Block block)
+    {
+        List<Long> values = new ArrayList<>();
+        for (int position = 0; position < block.getPositionCount(); position++) {
+            values.add(block.isNull(position) ? null : BIGINT.getLong(block, position));
+        }
+        return values;
+    }
+
+    private static class UnluckyException
+            extends RuntimeException
+    {
+    }
+
+    // evaluates a predicate on the first column, failing on the unlucky value
+    private static class CountingPredicate
+            implements Predicate
+    {
+        private final LongPredicate predicate;
+        private int evaluations;
+
+        private CountingPredicate(LongPredicate predicate)
+        {
+            this.predicate = predicate;
+        }
+
+        public int getEvaluations()
+        {
+            return evaluations;
+        }
+
+        @Override
+        public int[] getInputChannels()
+        {
+            return new int[] {0};
+        }
+
+        @Override
+        public boolean evaluate(SqlFunctionProperties properties, Page page, int position)
+        {
+            evaluations++;
+            long value = BIGINT.getLong(page.getBlock(0), position);
+            if (value == UNLUCKY) {
+                throw new UnluckyException();
+            }
+            return predicate.test(value);
+        }
+    }
+
+    private static class TestingPageSource
+            implements ConnectorPageSource
+    {
+        private final Iterator<Page> pages;
+        private final RuntimeStats runtimeStats = new RuntimeStats();
+
+        private TestingPageSource(List<Page> pages)
+        {
+            this.pages = pages.iterator();
+        }
+
+        @Override
+        public long getCompletedBytes()
+        {
+            return 0;
+        }
+
+        @Override
+        public long getCompletedPositions()
+        {
+            return 0;
+        }
+
+        @Override
+        public long getReadTimeNanos()
+        {
+            return 0;
+        }
+
+        @Override
+        public boolean isFinished()
+        {
+            return !pages.hasNext();
+        }
+
+        @Override
+        public Page getNextPage()
+        {
+            return pages.hasNext() ? pages.next() : null;
+        }
+
+        @Override
+        public long getSystemMemoryUsage()
+        {
+            return 0;
+        }
+
+        @Override
+        public RuntimeStats getRuntimeStats()
+        {
+            return runtimeStats;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
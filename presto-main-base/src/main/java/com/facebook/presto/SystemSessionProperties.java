@@ -140,6 +140,8 @@ public final class SystemSessionProperties
     public static final String PUSH_TABLE_WRITE_THROUGH_UNION = "push_table_write_through_union";
     public static final String EXECUTION_POLICY = "execution_policy";
     public static final String DICTIONARY_AGGREGATION = "dictionary_aggregation";
+    public static final String FLAT_GROUP_BY_HASH_ENABLED = "flat_group_by_hash_enabled";
+    public static final String BATCHED_JOIN_PROBE_ENABLED = "batched_join_probe_enabled";
     public static final String PLAN_WITH_TABLE_NODE_PARTITIONING = "plan_with_table_node_partitioning";
     public static final String SPATIAL_JOIN = "spatial_join";
     public static final String SPATIAL_PARTITIONING_TABLE_NAME = "spatial_partitioning_table_name";
@@ -168,10 +170,14 @@ public final class SystemSessionProperties
     public static final String ITERATIVE_OPTIMIZER_TIMEOUT = "iterative_optimizer_timeout";
     public static final String QUERY_ANALYZER_TIMEOUT = "query_analyzer_timeout";
     public static final String RUNTIME_OPTIMIZER_ENABLED = "runtime_optimizer_enabled";
+    public static final String RUNTIME_OPTIMIZER_TARGET_TASK_INPUT_SIZE = "runtime_optimizer_target_task_input_size";
     public static final String EXCHANGE_COMPRESSION_CODEC = "exchange_compression_codec";
     public static final String EXCHANGE_CHECKSUM = "exchange_checksum";
+    public static final String EXCHANGE_ADAPTIVE_COMPRESSION_ENABLED = "exchange_adaptive_compression_enabled";
     public static final String LEGACY_TIMESTAMP = "legacy_timestamp";
     public static final String ENABLE_INTERMEDIATE_AGGREGATIONS = "enable_intermediate_aggregations";
+    public static final String ENABLE_LOCAL_INTERMEDIATE_AGGREGATIONS = "enable_local_intermediate_aggregations";
+    public static final String LOCAL_INTERMEDIATE_AGGREGATIONS_MAX_GROUPS = "local_intermediate_aggregations_max_groups";
     public static final String PUSH_AGGREGATION_THROUGH_JOIN = "push_aggregation_through_join";
     public static final String PUSH_SEMI_JOIN_THROUGH_UNION = "push_semi_join_through_union";
     public static final String SIMPLIFY_COALESCE_OVER_JOIN_KEYS = "simplify_coalesce_over_join_keys";
@@ -233,6 +239,7 @@ public final class SystemSessionProperties
     public static final String DYNAMIC_FILTERING_MAX_PER_DRIVER_ROW_COUNT = "dynamic_filtering_max_per_driver_row_count";
     public static final String DYNAMIC_FILTERING_MAX_PER_DRIVER_SIZE = "dynamic_filtering_max_per_driver_size";
     public static final String DYNAMIC_FILTERING_RANGE_ROW_LIMIT_PER_DRIVER = "dynamic_filtering_range_row_limit_per_driver";
+    public static final String DYNAMIC_FILTERING_BLOOM_FILTER_SIZE = "dynamic_filtering_bloom_filter_size";
     public static final String FRAGMENT_RESULT_CACHING_ENABLED = "fragment_result_caching_enabled";
     public static final String INLINE_SQL_FUNCTIONS = "inline_sql_functions";
     public static final String REMOTE_FUNCTIONS_ENABLED = "remote_functions_enabled";
@@ -245,6 +252,7 @@ public final class SystemSessionProperties
     public static final String MAX_UNACKNOWLEDGED_SPLITS_PER_TASK = "max_unacknowledged_splits_per_task";
     public static final String OPTIMIZE_JOINS_WITH_EMPTY_SOURCES = "optimize_joins_with_empty_sources";
     public static final String SPOOLING_OUTPUT_BUFFER_ENABLED = "spooling_output_buffer_enabled";
+    public static final String SPOOLED_RESULTS_ENABLED = "spooled_results_enabled";
     public static final String SPARK_ASSIGN_BUCKET_TO_PARTITION_FOR_PARTITIONED_TABLE_WRITE_ENABLED = "spark_assign_bucket_to_partition_for_partitioned_table_write_enabled";
     public static final String LOG_FORMATTED_QUERY_ENABLED = "log_formatted_query_enabled";
     public static final String LOG_INVOKED_FUNCTION_NAMES_ENABLED = "log_invoked_function_names_enabled";
@@ -394,6 +402,7 @@ public final class SystemSessionProperties
     public static final String NATIVE_ENFORCE_JOIN_BUILD_INPUT_PARTITION = "native_enforce_join_build_input_partition";
     public static final String NATIVE_EXECUTION_SCALE_WRITER_THREADS_ENABLED = "native_execution_scale_writer_threads_enabled";
     public static final String TRY_FUNCTION_CATCHABLE_ERRORS = "try_function_catchable_errors";
+    public static final String ASYNC_RECORD_CURSOR_READS_ENABLED = "async_record_cursor_reads_enabled";
     public static final String REWRITE_ROW_CONSTRUCTOR_IN_TO_DISJUNCTION = "rewrite_row_constructor_in_to_disjunction";
     public static final String ALWAYS_ANALYZE_CREATE_TABLE_QUERY_ENABLED = "always_analyze_create_table_query_enabled";
 
@@ -726,6 +735,16 @@ public final class SystemSessionProperties
                         "Enable optimization for aggregations on dictionaries",
                         featuresConfig.isDictionaryAggregation(),
                         false),
+                booleanProperty(
+                        FLAT_GROUP_BY_HASH_ENABLED,
+                        "Use a row-major group by hash for fixed-width and varchar grouping keys",
+                        featuresConfig.isFlatGroupByHashEnabled(),
+                        false),
+                booleanProperty(
+                        BATCHED_JOIN_PROBE_ENABLED,
+                        "Look up the join positions of a whole probe page at once instead of row by row",
+                        featuresConfig.isBatchedJoinProbeEnabled(),
+                        false),
                 integerProperty(
                         INITIAL_SPLITS_PER_NODE,
                         "The number of splits each node will run per task, initially",
@@ -910,6 +929,11 @@ public final class SystemSessionProperties
                         "Experimental: enable runtime optimizer",
                         featuresConfig.isRuntimeOptimizerEnabled(),
                         false),
+                dataSizeProperty(
+                        RUNTIME_OPTIMIZER_TARGET_TASK_INPUT_SIZE,
+                        "Experimental: materialized input size per task used by the runtime optimizer to reduce the number of tasks of stages reading materialized exchanges, 0 disables it",
+                        featuresConfig.getRuntimeOptimizerTargetTaskInputSize(),
+                        false),
                 new PropertyMetadata<>(
                         EXCHANGE_COMPRESSION_CODEC,
                         "Exchange compression codec",
@@ -924,6 +948,11 @@ public final class SystemSessionProperties
                         "Enable checksum in exchanges",
                         featuresConfig.isExchangeChecksumEnabled(),
                         false),
+                booleanProperty(
+                        EXCHANGE_ADAPTIVE_COMPRESSION_ENABLED,
+                        "Send exchange pages without compression for a while after pages which do not compress well",
+                        featuresConfig.isExchangeAdaptiveCompressionEnabled(),
+                        false),
                 booleanProperty(
                         LEGACY_TIMESTAMP,
                         "Use legacy TIME & TIMESTAMP semantics (warning: this will be removed)",
@@ -934,6 +963,16 @@ public final class SystemSessionProperties
                         "Enable the use of intermediate aggregations",
                         featuresConfig.isEnableIntermediateAggregations(),
                         false),
+                booleanProperty(
+                        ENABLE_LOCAL_INTERMEDIATE_AGGREGATIONS,
+                        "Pre-aggregate the input of grouped final aggregations in every driver when few groups are expected",
+                        featuresConfig.isEnableLocalIntermediateAggregations(),
+                        false),
+                longProperty(
+                        LOCAL_INTERMEDIATE_AGGREGATIONS_MAX_GROUPS,
+                        "Maximum estimated number of groups for which grouped final aggregations are pre-aggregated in every driver",
+                        featuresConfig.getLocalIntermediateAggregationsMaxGroups(),
+                        false),
                 booleanProperty(
                         PUSH_AGGREGATION_THROUGH_JOIN,
                         "Allow pushing aggregations below joins",
@@ -1310,6 +1349,15 @@ public final class SystemSessionProperties
                         "Maximum number of build-side rows per driver up to which min and max values will be collected for dynamic filtering",
                         featuresConfig.getDynamicFilteringRangeRowLimitPerDriver(),
                         false),
+                new PropertyMetadata<>(
+                        DYNAMIC_FILTERING_BLOOM_FILTER_SIZE,
+                        "Size of the per-driver Bloom filter collected for dynamic filtering once the build side exceeds the exact limits, 0 disables it",
+                        VARCHAR,
+                        DataSize.class,
+                        featuresConfig.getDynamicFilteringBloomFilterSize(),
+                        false,
+                        value -> DataSize.valueOf((String) value),
+                        DataSize::toString),
                 booleanProperty(
                         FRAGMENT_RESULT_CACHING_ENABLED,
                         "Enable fragment result caching and read/write leaf fragment result pages from/to cache when applicable",
@@ -1373,6 +1421,11 @@ public final class SystemSessionProperties
                         "Enable spooling output buffer for terminal task",
                         featuresConfig.isSpoolingOutputBufferEnabled(),
                         false),
+                booleanProperty(
+                        SPOOLED_RESULTS_ENABLED,
+                        "Write the results of the query to temporary storage on the workers, from which the client fetches them in segments",
+                        featuresConfig.isSpooledResultsEnabled(),
+                        false),
                 booleanProperty(
                         SPARK_ASSIGN_BUCKET_TO_PARTITION_FOR_PARTITIONED_TABLE_WRITE_ENABLED,
                         "Assign bucket to partition map for partitioned table write when adding an exchange",
@@ -2221,6 +2274,11 @@ public final class SystemSessionProperties
                         "Comma-separated list of error code names that TRY function should catch (such as 'GENERIC_INTERNAL_ERROR,INVALID_ARGUMENTS')",
                         featuresConfig.getTryFunctionCatchableErrors(),
                         false),
+                booleanProperty(
+                        ASYNC_RECORD_CURSOR_READS_ENABLED,
+                        "Read pages of record cursor based connectors on a separate thread pool, so blocked reads do not occupy split runner threads",
+                        featuresConfig.isAsyncRecordCursorReadsEnabled(),
+                        false),
                 booleanProperty(REWRITE_ROW_CONSTRUCTOR_IN_TO_DISJUNCTION,
                         "Rewrite ROW(...) IN (ROW(...), ...) into OR of ANDs for partition pruning",
                         featuresConfig.isRewriteRowConstructorInToDisjunction(),
@@ -2242,6 +2300,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(SPOOLING_OUTPUT_BUFFER_ENABLED, Boolean.class);
     }
 
+    public static boolean isSpooledResultsEnabled(Session session)
+    {
+        return session.getSystemProperty(SPOOLED_RESULTS_ENABLED, Boolean.class);
+    }
+
     public static boolean isSkipRedundantSort(Session session)
     {
         return session.getSystemProperty(SKIP_REDUNDANT_SORT, Boolean.class);
@@ -2439,6 +2502,16 @@ public final class SystemSessionProperties
         return session.getSystemProperty(DICTIONARY_AGGREGATION, Boolean.class);
     }
 
+    public static boolean isFlatGroupByHashEnabled(Session session)
+    {
+        return session.getSystemProperty(FLAT_GROUP_BY_HASH_ENABLED, Boolean.class);
+    }
+
+    public static boolean isBatchedJoinProbeEnabled(Session session)
+    {
+        return session.getSystemProperty(BATCHED_JOIN_PROBE_ENABLED, Boolean.class);
+    }
+
     public static boolean isOptimizeMetadataQueries(Session session)
     {
         return session.getSystemProperty(OPTIMIZE_METADATA_QUERIES, Boolean.class);
@@ -2653,6 +2726,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(RUNTIME_OPTIMIZER_ENABLED, Boolean.class);
     }
 
+    public static DataSize getRuntimeOptimizerTargetTaskInputSize(Session session)
+    {
+        return session.getSystemProperty(RUNTIME_OPTIMIZER_TARGET_TASK_INPUT_SIZE, DataSize.class);
+    }
+
     @Deprecated
     public static boolean isLegacyTimestamp(Session session)
     {
@@ -2679,11 +2757,26 @@ public final class SystemSessionProperties
         return session.getSystemProperty(EXCHANGE_CHECKSUM, Boolean.class);
     }
 
+    public static boolean isExchangeAdaptiveCompressionEnabled(Session session)
+    {
+        return session.getSystemProperty(EXCHANGE_ADAPTIVE_COMPRESSION_ENABLED, Boolean.class);
+    }
+
     public static boolean isEnableIntermediateAggregations(Session session)
     {
         return session.getSystemProperty(ENABLE_INTERMEDIATE_AGGREGATIONS, Boolean.class);
     }
 
+    public static boolean isEnableLocalIntermediateAggregations(Session session)
+    {
+        return session.getSystemProperty(ENABLE_LOCAL_INTERMEDIATE_AGGREGATIONS, Boolean.class);
+    }
+
+    public static long getLocalIntermediateAggregationsMaxGroups(Session session)
+    {
+        return session.getSystemProperty(LOCAL_INTERMEDIATE_AGGREGATIONS_MAX_GROUPS, Long.class);
+    }
+
     public static boolean shouldPushAggregationThroughJoin(Session session)
     {
         return session.getSystemProperty(PUSH_AGGREGATION_THROUGH_JOIN, Boolean.class);
@@ -3071,6 +3164,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(DYNAMIC_FILTERING_RANGE_ROW_LIMIT_PER_DRIVER, Integer.class);
     }
 
+    public static DataSize getDynamicFilteringBloomFilterSize(Session session)
+    {
+        return session.getSystemProperty(DYNAMIC_FILTERING_BLOOM_FILTER_SIZE, DataSize.class);
+    }
+
     public static boolean isFragmentResultCachingEnabled(Session session)
     {
         return session.getSystemProperty(FRAGMENT_RESULT_CACHING_ENABLED, Boolean.class);
@@ -3794,6 +3892,11 @@ public final class SystemSessionProperties
         return session.getSystemProperty(TRY_FUNCTION_CATCHABLE_ERRORS, String.class);
     }
 
+    public static boolean isAsyncRecordCursorReadsEnabled(Session session)
+    {
+        return session.getSystemProperty(ASYNC_RECORD_CURSOR_READS_ENABLED, Boolean.class);
+    }
+
     public static boolean isRewriteRowConstructorInToDisjunction(Session session)
     {
         return session.getSystemProperty(REWRITE_ROW_CONSTRUCTOR_IN_TO_DISJUNCTION, Boolean.class);
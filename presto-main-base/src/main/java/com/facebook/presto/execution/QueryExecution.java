@@ -130,13 +130,20 @@ public interface QueryExecution
         private final List<Type> columnTypes;
         private final Map<URI, TaskId> bufferLocations;
         private final boolean noMoreBufferLocations;
+        private final boolean spooledResults;
 
         public QueryOutputInfo(List<String> columnNames, List<Type> columnTypes, Map<URI, TaskId> bufferLocations, boolean noMoreBufferLocations)
+        {
+            this(columnNames, columnTypes, bufferLocations, noMoreBufferLocations, false);
+        }
+
+        public QueryOutputInfo(List<String> columnNames, List<Type> columnTypes, Map<URI, TaskId> bufferLocations, boolean noMoreBufferLocations, boolean spooledResults)
         {
             this.columnNames = ImmutableList.copyOf(requireNonNull(columnNames, "columnNames is null"));
             this.columnTypes = ImmutableList.copyOf(requireNonNull(columnTypes, "columnTypes is null"));
             this.bufferLocations = ImmutableMap.copyOf(requireNonNull(bufferLocations, "bufferLocations is null"));
             this.noMoreBufferLocations = noMoreBufferLocations;
+            this.spooledResults = spooledResults;
         }
 
         public List<String> getColumnNames()
@@ -158,5 +165,14 @@ public interface QueryExecution
         {
             return noMoreBufferLocations;
         }
+
+        /**
+         * Returns true if the buffers hold descriptors of the segments of results spooled by the workers,
+         * see {@link com.facebook.presto.execution.buffer.SpooledResultsOutputBuffer}, instead of the results.
+         */
+        public boolean isSpooledResults()
+        {
+            return spooledResults;
+        }
     }
 }
@@ -554,7 +554,12 @@ public class QueryStateMachine
 
     public void setColumns(List<String> columnNames, List<Type> columnTypes)
     {
-        outputManager.setColumns(columnNames, columnTypes);
+        setColumns(columnNames, columnTypes, false);
+    }
+
+    public void setColumns(List<String> columnNames, List<Type> columnTypes, boolean spooledResults)
+    {
+        outputManager.setColumns(columnNames, columnTypes, spooledResults);
     }
 
     public void updateOutputLocations(Map<URI, TaskId> newExchangeLocations, boolean noMoreExchangeLocations)
@@ -1417,6 +1422,8 @@ public class QueryStateMachine
         private final Map<URI, TaskId> exchangeLocations = new LinkedHashMap<>();
         @GuardedBy("this")
         private boolean noMoreExchangeLocations;
+        @GuardedBy("this")
+        private boolean spooledResults;
 
         public QueryOutputManager(Executor executor)
         {
@@ -1435,7 +1442,7 @@ public class QueryStateMachine
             queryOutputInfo.ifPresent(info -> executor.execute(() -> listener.accept(info)));
         }
 
-        public void setColumns(List<String> columnNames, List<Type> columnTypes)
+        public void setColumns(List<String> columnNames, List<Type> columnTypes, boolean spooledResults)
         {
             requireNonNull(columnNames, "columnNames is null");
             requireNonNull(columnTypes, "columnTypes is null");
@@ -1447,6 +1454,7 @@ public class QueryStateMachine
                 checkState(this.columnNames == null && this.columnTypes == null, "output fields already set");
                 this.columnNames = ImmutableList.copyOf(columnNames);
                 this.columnTypes = ImmutableList.copyOf(columnTypes);
+                this.spooledResults = spooledResults;
 
                 queryOutputInfo = getQueryOutputInfo();
                 outputInfoListeners = ImmutableList.copyOf(this.outputInfoListeners);
@@ -1479,7 +1487,7 @@ public class QueryStateMachine
             if (columnNames == null || columnTypes == null) {
                 return Optional.empty();
             }
-            return Optional.of(new QueryOutputInfo(columnNames, columnTypes, exchangeLocations, noMoreExchangeLocations));
+            return Optional.of(new QueryOutputInfo(columnNames, columnTypes, exchangeLocations, noMoreExchangeLocations, spooledResults));
         }
 
         private void fireStateChanged(QueryOutputInfo queryOutputInfo, List<Consumer<QueryOutputInfo>> outputInfoListeners)
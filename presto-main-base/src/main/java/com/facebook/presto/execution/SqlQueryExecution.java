@@ -15,10 +15,13 @@ package com.facebook.presto.execution;
 
 import com.facebook.airlift.concurrent.SetThreadName;
 import com.facebook.airlift.units.Duration;
+import com.facebook.presto.CompressionCodec;
 import com.facebook.presto.Session;
+import com.facebook.presto.client.ResultPages;
 import com.facebook.presto.common.InvalidFunctionArgumentException;
 import com.facebook.presto.common.analyzer.PreparedQuery;
 import com.facebook.presto.common.resourceGroups.QueryType;
+import com.facebook.presto.common.type.Type;
 import com.facebook.presto.cost.CostCalculator;
 import com.facebook.presto.cost.HistoryBasedPlanStatisticsManager;
 import com.facebook.presto.cost.StatsCalculator;
@@ -81,10 +84,13 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
+import static com.facebook.presto.SystemSessionProperties.getExchangeCompressionCodec;
 import static com.facebook.presto.SystemSessionProperties.getExecutionPolicy;
 import static com.facebook.presto.SystemSessionProperties.getQueryAnalyzerTimeout;
 import static com.facebook.presto.SystemSessionProperties.isEagerPlanValidationEnabled;
 import static com.facebook.presto.SystemSessionProperties.isLogInvokedFunctionNamesEnabled;
+import static com.facebook.presto.SystemSessionProperties.isNativeExecutionEnabled;
+import static com.facebook.presto.SystemSessionProperties.isSpooledResultsEnabled;
 import static com.facebook.presto.SystemSessionProperties.isSpoolingOutputBufferEnabled;
 import static com.facebook.presto.common.RuntimeMetricName.ANALYZE_TIME_NANOS;
 import static com.facebook.presto.common.RuntimeMetricName.CHECK_ACCESS_PERMISSIONS_TIME_NANOS;
@@ -97,6 +103,7 @@ import static com.facebook.presto.common.RuntimeMetricName.PLAN_AND_OPTIMIZE_TIM
 import static com.facebook.presto.execution.QueryStateMachine.pruneHistogramsFromStatsAndCosts;
 import static com.facebook.presto.execution.buffer.OutputBuffers.BROADCAST_PARTITION_ID;
 import static com.facebook.presto.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
+import static com.facebook.presto.execution.buffer.OutputBuffers.createSpooledResultsOutputBuffers;
 import static com.facebook.presto.execution.buffer.OutputBuffers.createSpoolingOutputBuffers;
 import static com.facebook.presto.spi.StandardErrorCode.INVALID_FUNCTION_ARGUMENT;
 import static com.facebook.presto.spi.StandardErrorCode.NOT_SUPPORTED;
@@ -653,6 +660,20 @@ public class SqlQueryExecution
         }
     }
 
+    /**
+     * Results are spooled by the workers for queries which return rows in types the client decodes from
+     * pages, see {@link ResultPages#isSupportedType}. The client reads the pages written by the workers
+     * as they are, so the pages of the exchange must not be compressed.
+     */
+    private boolean isSpooledResults(List<Type> outputTypes)
+    {
+        return isSpooledResultsEnabled(getSession())
+                && !isNativeExecutionEnabled(getSession())
+                && getExchangeCompressionCodec(getSession()) == CompressionCodec.NONE
+                && queryAnalysis.getUpdateInfo() == null
+                && outputTypes.stream().allMatch(type -> ResultPages.isSupportedType(type.getTypeSignature()));
+    }
+
     private void createQueryScheduler(PlanRoot plan)
     {
         CloseableSplitSourceProvider splitSourceProvider = new CloseableSplitSourceProvider(splitManager);
@@ -672,11 +693,15 @@ public class SqlQueryExecution
         SubPlan outputStagePlan = plan.getRoot();
 
         // record output field
-        stateMachine.setColumns(((OutputNode) outputStagePlan.getFragment().getRoot()).getColumnNames(), outputStagePlan.getFragment().getTypes());
+        boolean spooledResults = isSpooledResults(outputStagePlan.getFragment().getTypes());
+        stateMachine.setColumns(((OutputNode) outputStagePlan.getFragment().getRoot()).getColumnNames(), outputStagePlan.getFragment().getTypes(), spooledResults);
 
         PartitioningHandle partitioningHandle = outputStagePlan.getFragment().getPartitioningScheme().getPartitioning().getHandle();
         OutputBuffers rootOutputBuffers;
-        if (isSpoolingOutputBufferEnabled(getSession())) {
+        if (spooledResults) {
+            rootOutputBuffers = createSpooledResultsOutputBuffers();
+        }
+        else if (isSpoolingOutputBufferEnabled(getSession())) {
             rootOutputBuffers = createSpoolingOutputBuffers();
         }
         else {
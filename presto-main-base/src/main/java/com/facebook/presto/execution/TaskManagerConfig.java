@@ -85,6 +85,8 @@ public class TaskManagerConfig
     private int taskYieldThreads = 3;
 
     private BigDecimal levelTimeMultiplier = new BigDecimal(2.0);
+    private int splitQueueShards = 1;
+    private boolean splitQueueTaskAffinityEnabled;
 
     private boolean legacyLifespanCompletionCondition;
     private TaskPriorityTracking taskPriorityTracking = TaskPriorityTracking.TASK_FAIR;
@@ -286,6 +288,33 @@ public class TaskManagerConfig
         return this;
     }
 
+    @Min(1)
+    public int getSplitQueueShards()
+    {
+        return splitQueueShards;
+    }
+
+    @Config("task.split-queue-shards")
+    @ConfigDescription("Number of independently locked shards of the split queue. Runner threads poll their own shard and steal from others when it is empty")
+    public TaskManagerConfig setSplitQueueShards(int splitQueueShards)
+    {
+        this.splitQueueShards = splitQueueShards;
+        return this;
+    }
+
+    public boolean isSplitQueueTaskAffinityEnabled()
+    {
+        return splitQueueTaskAffinityEnabled;
+    }
+
+    @Config("task.split-queue-task-affinity-enabled")
+    @ConfigDescription("Queue all splits of a task on the same split queue shard instead of the shard of the runner thread that last ran them")
+    public TaskManagerConfig setSplitQueueTaskAffinityEnabled(boolean splitQueueTaskAffinityEnabled)
+    {
+        this.splitQueueTaskAffinityEnabled = splitQueueTaskAffinityEnabled;
+        return this;
+    }
+
     @Min(1)
     public int getMaxWorkerThreads()
     {
@@ -173,6 +173,9 @@ public class LazyOutputBuffer
                         case SPOOLING:
                             outputBuffer = spoolingOutputBufferFactory.createSpoolingOutputBuffer(taskId, taskInstanceId, newOutputBuffers, state);
                             break;
+                        case SPOOLED_RESULTS:
+                            outputBuffer = spoolingOutputBufferFactory.createSpooledResultsOutputBuffer(taskId, taskInstanceId, state, maxBufferSizeInBytes, systemMemoryContextSupplier, executor);
+                            break;
                     }
 
                     // process pending aborts and reads outside of synchronized lock
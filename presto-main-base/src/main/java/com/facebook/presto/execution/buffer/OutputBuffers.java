@@ -33,6 +33,7 @@ import static com.facebook.presto.execution.buffer.OutputBuffers.BufferType.ARBI
 import static com.facebook.presto.execution.buffer.OutputBuffers.BufferType.BROADCAST;
 import static com.facebook.presto.execution.buffer.OutputBuffers.BufferType.DISCARDING;
 import static com.facebook.presto.execution.buffer.OutputBuffers.BufferType.PARTITIONED;
+import static com.facebook.presto.execution.buffer.OutputBuffers.BufferType.SPOOLED_RESULTS;
 import static com.facebook.presto.execution.buffer.OutputBuffers.BufferType.SPOOLING;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_ARBITRARY_DISTRIBUTION;
 import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_BROADCAST_DISTRIBUTION;
@@ -48,6 +49,7 @@ public final class OutputBuffers
     public static final int BROADCAST_PARTITION_ID = 0;
     private static final OutputBuffers DISCARDING_OUTPUT_BUFFERS = createInitialEmptyOutputBuffers(DISCARDING).withNoMoreBufferIds();
     private static final OutputBuffers SPOOLING_OUTPUT_BUFFERS = createInitialEmptyOutputBuffers(SPOOLING).withBuffer(new OutputBufferId(0), 0).withNoMoreBufferIds();
+    private static final OutputBuffers SPOOLED_RESULTS_OUTPUT_BUFFERS = createInitialEmptyOutputBuffers(SPOOLED_RESULTS).withBuffer(new OutputBufferId(0), 0).withNoMoreBufferIds();
 
     public static OutputBuffers createInitialEmptyOutputBuffers(BufferType type)
     {
@@ -79,6 +81,11 @@ public final class OutputBuffers
         return SPOOLING_OUTPUT_BUFFERS;
     }
 
+    public static OutputBuffers createSpooledResultsOutputBuffers()
+    {
+        return SPOOLED_RESULTS_OUTPUT_BUFFERS;
+    }
+
     @ThriftEnum
     public enum BufferType
     {
@@ -86,7 +93,8 @@ public final class OutputBuffers
         BROADCAST(1),
         ARBITRARY(2),
         DISCARDING(3),
-        SPOOLING(4);
+        SPOOLING(4),
+        SPOOLED_RESULTS(5);
 
         private final int value;
 
@@ -14,6 +14,7 @@
 package com.facebook.presto.execution.buffer;
 
 import com.facebook.presto.CompressionCodec;
+import com.facebook.presto.common.RuntimeStats;
 import com.facebook.presto.common.block.BlockEncodingSerde;
 import com.facebook.presto.spi.page.PageCompressor;
 import com.facebook.presto.spi.page.PageDecompressor;
@@ -31,6 +32,15 @@ import io.airlift.compress.zstd.ZstdDecompressor;
 import java.util.Optional;
 import java.util.OptionalInt;
 
+import static com.facebook.presto.CompressionCodec.NONE;
+import static com.facebook.presto.common.RuntimeMetricName.EXCHANGE_COMPRESSION_INPUT_BYTES;
+import static com.facebook.presto.common.RuntimeMetricName.EXCHANGE_COMPRESSION_OUTPUT_BYTES;
+import static com.facebook.presto.common.RuntimeMetricName.EXCHANGE_COMPRESSION_TIME_NANOS;
+import static com.facebook.presto.common.RuntimeMetricName.EXCHANGE_DECOMPRESSION_INPUT_BYTES;
+import static com.facebook.presto.common.RuntimeMetricName.EXCHANGE_DECOMPRESSION_OUTPUT_BYTES;
+import static com.facebook.presto.common.RuntimeMetricName.EXCHANGE_DECOMPRESSION_TIME_NANOS;
+import static com.facebook.presto.common.RuntimeUnit.BYTE;
+import static com.facebook.presto.common.RuntimeUnit.NANO;
 import static java.util.Objects.requireNonNull;
 
 public class PagesSerdeFactory
@@ -38,6 +48,7 @@ public class PagesSerdeFactory
     private final BlockEncodingSerde blockEncodingSerde;
     private final CompressionCodec compressionCodec;
     private final boolean checksumEnabled;
+    private final boolean adaptiveCompression;
 
     public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, CompressionCodec compressionCodec)
     {
@@ -45,10 +56,16 @@ public class PagesSerdeFactory
     }
 
     public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, CompressionCodec compressionCodec, boolean checksumEnabled)
+    {
+        this(blockEncodingSerde, compressionCodec, checksumEnabled, false);
+    }
+
+    public PagesSerdeFactory(BlockEncodingSerde blockEncodingSerde, CompressionCodec compressionCodec, boolean checksumEnabled, boolean adaptiveCompression)
     {
         this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
         this.compressionCodec = requireNonNull(compressionCodec, "compressionCodec is null");
         this.checksumEnabled = checksumEnabled;
+        this.adaptiveCompression = adaptiveCompression;
     }
 
     public PagesSerde createPagesSerde()
@@ -63,7 +80,31 @@ public class PagesSerdeFactory
 
     private PagesSerde createPagesSerdeInternal(Optional<SpillCipher> spillCipher)
     {
-        return new PagesSerde(blockEncodingSerde, getPageCompressor(), getPageDecompressor(), spillCipher, checksumEnabled);
+        return new PagesSerde(blockEncodingSerde, getPageCompressor(), getPageDecompressor(), spillCipher, checksumEnabled, adaptiveCompression);
+    }
+
+    /**
+     * Adds the work done by the codec of the serde since the last call to the runtime stats, under metric names
+     * suffixed with the codec so that the cost of the codecs can be compared.
+     */
+    public void recordCompressionStats(PagesSerde serde, RuntimeStats runtimeStats)
+    {
+        if (compressionCodec == NONE) {
+            return;
+        }
+
+        String suffix = "-" + compressionCodec;
+        if (serde.getCompressionInputBytes() > 0) {
+            runtimeStats.addMetricValue(EXCHANGE_COMPRESSION_TIME_NANOS + suffix, NANO, serde.getCompressionTimeNanos());
+            runtimeStats.addMetricValue(EXCHANGE_COMPRESSION_INPUT_BYTES + suffix, BYTE, serde.getCompressionInputBytes());
+            runtimeStats.addMetricValue(EXCHANGE_COMPRESSION_OUTPUT_BYTES + suffix, BYTE, serde.getCompressionOutputBytes());
+        }
+        if (serde.getDecompressionInputBytes() > 0) {
+            runtimeStats.addMetricValue(EXCHANGE_DECOMPRESSION_TIME_NANOS + suffix, NANO, serde.getDecompressionTimeNanos());
+            runtimeStats.addMetricValue(EXCHANGE_DECOMPRESSION_INPUT_BYTES + suffix, BYTE, serde.getDecompressionInputBytes());
+            runtimeStats.addMetricValue(EXCHANGE_DECOMPRESSION_OUTPUT_BYTES + suffix, BYTE, serde.getDecompressionOutputBytes());
+        }
+        serde.resetCompressionStats();
     }
 
     private Optional<PageCompressor> getPageCompressor()
@@ -0,0 +1,249 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.airlift.log.Logger;
+import com.facebook.airlift.node.NodeInfo;
+import com.facebook.presto.common.io.DataOutput;
+import com.facebook.presto.metadata.InternalNodeManager;
+import com.facebook.presto.spi.QueryId;
+import com.facebook.presto.spi.page.PageDataOutput;
+import com.facebook.presto.spi.page.SerializedPage;
+import com.facebook.presto.spi.security.Identity;
+import com.facebook.presto.spi.storage.TempDataOperationContext;
+import com.facebook.presto.spi.storage.TempDataSink;
+import com.facebook.presto.spi.storage.TempStorage;
+import com.facebook.presto.spi.storage.TempStorageHandle;
+import com.facebook.presto.spiller.LocalTempStorage;
+import com.facebook.presto.sql.analyzer.FeaturesConfig;
+import com.facebook.presto.storage.TempStorageManager;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.inject.Inject;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.google.common.base.Suppliers.memoize;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * Keeps the segments of query results spooled by the output buffers of the root stage on this
+ * node. A segment is written to {@link TempStorage} and kept until the client acknowledges it or
+ * it is older than {@link FeaturesConfig#getSpooledResultsMaxAge()}. Clients fetch the segments
+ * from the external URI of this node, see {@code SpooledResultsResource}.
+ */
+public class SpooledResultsManager
+{
+    private static final Logger log = Logger.get(SpooledResultsManager.class);
+
+    private final Supplier<TempStorage> tempStorage;
+    private final Supplier<String> nodeId;
+    private final Supplier<URI> nodeUri;
+    private final long maxAgeInMillis;
+    private final Map<String, Segment> segments = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService expirationExecutor = newSingleThreadScheduledExecutor(daemonThreadsNamed("spooled-results-expiration"));
+
+    @Inject
+    public SpooledResultsManager(FeaturesConfig featuresConfig, TempStorageManager tempStorageManager, InternalNodeManager nodeManager, NodeInfo nodeInfo)
+    {
+        // the temp storages are loaded after the server is created
+        this(
+                featuresConfig,
+                () -> requireNonNull(tempStorageManager, "tempStorageManager is null").getTempStorage(LocalTempStorage.NAME),
+                () -> requireNonNull(nodeManager, "nodeManager is null").getCurrentNode().getNodeIdentifier(),
+                memoize(() -> getExternalUri(nodeManager.getCurrentNode().getInternalUri(), requireNonNull(nodeInfo, "nodeInfo is null").getExternalAddress())));
+    }
+
+    @VisibleForTesting
+    public SpooledResultsManager(FeaturesConfig featuresConfig, Supplier<TempStorage> tempStorage, Supplier<String> nodeId, Supplier<URI> nodeUri)
+    {
+        this.tempStorage = requireNonNull(tempStorage, "tempStorage is null");
+        this.nodeId = requireNonNull(nodeId, "nodeId is null");
+        this.nodeUri = requireNonNull(nodeUri, "nodeUri is null");
+        this.maxAgeInMillis = requireNonNull(featuresConfig, "featuresConfig is null").getSpooledResultsMaxAge().toMillis();
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        expirationExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                removeExpiredSegments();
+            }
+            catch (Throwable e) {
+                log.error(e, "Error removing expired spooled results");
+            }
+        }, 1, 1, MINUTES);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        expirationExecutor.shutdownNow();
+    }
+
+    /**
+     * Writes the pages to a new segment of the results of the query.
+     */
+    public SpooledSegment write(QueryId queryId, List<SerializedPage> pages)
+            throws IOException
+    {
+        TempDataOperationContext context = createContext(queryId);
+        List<DataOutput> dataOutputs = pages.stream()
+                .map(PageDataOutput::new)
+                .collect(toImmutableList());
+        TempDataSink dataSink = tempStorage.get().create(context);
+        TempStorageHandle handle;
+        try {
+            dataSink.write(dataOutputs);
+            handle = dataSink.commit();
+        }
+        catch (IOException | RuntimeException e) {
+            try {
+                dataSink.rollback();
+            }
+            catch (IOException rollbackException) {
+                e.addSuppressed(rollbackException);
+            }
+            throw e;
+        }
+
+        String segmentId = UUID.randomUUID().toString();
+        segments.put(segmentId, new Segment(queryId, handle, System.currentTimeMillis()));
+
+        long rowCount = pages.stream().mapToLong(SerializedPage::getPositionCount).sum();
+        long size = dataOutputs.stream().mapToLong(DataOutput::size).sum();
+        return new SpooledSegment(nodeId.get(), nodeUri.get(), segmentId, rowCount, size);
+    }
+
+    /**
+     * Opens the segment of the results of the query, or returns empty if the segment is unknown.
+     */
+    public Optional<InputStream> open(QueryId queryId, String segmentId)
+            throws IOException
+    {
+        Segment segment = segments.get(segmentId);
+        if (segment == null || !segment.getQueryId().equals(queryId)) {
+            return Optional.empty();
+        }
+        return Optional.of(tempStorage.get().open(createContext(queryId), segment.getHandle()));
+    }
+
+    /**
+     * Removes the segment of the results of the query, once the client acknowledged it or the
+     * query failed. Returns false if the segment is unknown.
+     */
+    public boolean remove(QueryId queryId, String segmentId)
+    {
+        Segment segment = segments.get(segmentId);
+        if (segment == null || !segment.getQueryId().equals(queryId) || !segments.remove(segmentId, segment)) {
+            return false;
+        }
+        removeFile(segment);
+        return true;
+    }
+
+    @VisibleForTesting
+    void removeExpiredSegments()
+    {
+        long expirationTime = System.currentTimeMillis() - maxAgeInMillis;
+        segments.entrySet().removeIf(entry -> {
+            if (entry.getValue().getCreateTime() > expirationTime) {
+                return false;
+            }
+            removeFile(entry.getValue());
+            return true;
+        });
+    }
+
+    @VisibleForTesting
+    int getSegmentCount()
+    {
+        return segments.size();
+    }
+
+    private void removeFile(Segment segment)
+    {
+        try {
+            tempStorage.get().remove(createContext(segment.getQueryId()), segment.getHandle());
+        }
+        catch (IOException e) {
+            log.warn(e, "Failed to remove spooled results of query %s from TempStorage", segment.getQueryId());
+        }
+    }
+
+    /**
+     * Returns the URI of this node on its external address, clients reach the HTTP server of the node
+     * on the same port as the other nodes of the cluster.
+     */
+    @VisibleForTesting
+    static URI getExternalUri(URI internalUri, String externalAddress)
+    {
+        try {
+            return new URI(internalUri.getScheme(), null, externalAddress, internalUri.getPort(), null, null, null);
+        }
+        catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid external address: " + externalAddress, e);
+        }
+    }
+
+    private static TempDataOperationContext createContext(QueryId queryId)
+    {
+        return new TempDataOperationContext(Optional.empty(), queryId.toString(), Optional.empty(), Optional.empty(), new Identity("spooled-results", Optional.empty()));
+    }
+
+    private static class Segment
+    {
+        private final QueryId queryId;
+        private final TempStorageHandle handle;
+        private final long createTime;
+
+        public Segment(QueryId queryId, TempStorageHandle handle, long createTime)
+        {
+            this.queryId = requireNonNull(queryId, "queryId is null");
+            this.handle = requireNonNull(handle, "handle is null");
+            this.createTime = createTime;
+        }
+
+        public QueryId getQueryId()
+        {
+            return queryId;
+        }
+
+        public TempStorageHandle getHandle()
+        {
+            return handle;
+        }
+
+        public long getCreateTime()
+        {
+            return createTime;
+        }
+    }
+}
@@ -0,0 +1,421 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.execution.Lifespan;
+import com.facebook.presto.execution.StateMachine;
+import com.facebook.presto.execution.StateMachine.StateChangeListener;
+import com.facebook.presto.execution.buffer.OutputBuffers.OutputBufferId;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.QueryId;
+import com.facebook.presto.spi.page.PagesSerde;
+import com.facebook.presto.spi.page.SerializedPage;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.facebook.presto.execution.buffer.OutputBuffers.BufferType.PARTITIONED;
+import static com.facebook.presto.execution.buffer.OutputBuffers.BufferType.SPOOLED_RESULTS;
+import static com.facebook.presto.execution.buffer.OutputBuffers.createInitialEmptyOutputBuffers;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static com.facebook.presto.spi.StandardErrorCode.SPOOLING_STORAGE_ERROR;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.Futures.getDone;
+import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static com.google.common.util.concurrent.Futures.whenAllComplete;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.slice.Slices.utf8Slice;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Output buffer of the root stage when the results of the query are spooled. The pages of the results
+ * are written in segments to temporary storage by the {@link SpooledResultsManager} of this node, and
+ * the buffer holds a descriptor page for each segment instead, with the {@link #SEGMENT_TYPES} columns.
+ * The coordinator passes the segments to the client, which fetches them from this node.
+ * <p>
+ * Segments are written in parallel, their descriptors are added to the buffer in the order of the pages.
+ * The pages of the segments which are not written yet are accounted in the memory context of the buffer.
+ */
+public class SpooledResultsOutputBuffer
+        implements OutputBuffer
+{
+    public static final List<Type> SEGMENT_TYPES = ImmutableList.of(VARCHAR, VARCHAR, VARCHAR, BIGINT, BIGINT);
+
+    private static final OutputBuffers DESCRIPTOR_OUTPUT_BUFFERS = createInitialEmptyOutputBuffers(PARTITIONED)
+            .withBuffer(new OutputBufferId(0), 0)
+            .withNoMoreBufferIds();
+    // number of segments which are written at the same time before producers are blocked
+    private static final int MAX_PENDING_WRITES = 4;
+
+    private final QueryId queryId;
+    private final PartitionedOutputBuffer delegate;
+    private final OutputBufferMemoryManager memoryManager;
+    private final SpooledResultsManager spooledResultsManager;
+    private final PagesSerde descriptorSerde;
+    private final long segmentSizeInBytes;
+    private final ListeningExecutorService executor;
+
+    @GuardedBy("this")
+    private final Map<Lifespan, PendingSegment> pendingSegments = new HashMap<>();
+    @GuardedBy("this")
+    private ListenableFuture<?> lastWrite = immediateFuture(null);
+    @GuardedBy("this")
+    private boolean noMorePages;
+
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final ConcurrentLinkedQueue<SpooledSegment> writtenSegments = new ConcurrentLinkedQueue<>();
+
+    public SpooledResultsOutputBuffer(
+            QueryId queryId,
+            String taskInstanceId,
+            StateMachine<BufferState> state,
+            long maxBufferSizeInBytes,
+            Supplier<LocalMemoryContext> systemMemoryContextSupplier,
+            Executor notificationExecutor,
+            SpooledResultsManager spooledResultsManager,
+            PagesSerde descriptorSerde,
+            long segmentSizeInBytes,
+            ListeningExecutorService executor)
+    {
+        this.queryId = requireNonNull(queryId, "queryId is null");
+        // the descriptor pages are tiny, so the memory context of the buffer only tracks the pages of the segments
+        this.delegate = new PartitionedOutputBuffer(
+                taskInstanceId,
+                state,
+                DESCRIPTOR_OUTPUT_BUFFERS,
+                maxBufferSizeInBytes,
+                () -> newSimpleAggregatedMemoryContext().newLocalMemoryContext(SpooledResultsOutputBuffer.class.getSimpleName()),
+                notificationExecutor);
+        this.memoryManager = new OutputBufferMemoryManager(maxBufferSizeInBytes, systemMemoryContextSupplier, notificationExecutor);
+        // producers are held back by the number of pending writes instead, as the pages are only released by writing them
+        memoryManager.setNoBlockOnFull();
+        this.spooledResultsManager = requireNonNull(spooledResultsManager, "spooledResultsManager is null");
+        this.descriptorSerde = requireNonNull(descriptorSerde, "descriptorSerde is null");
+        checkArgument(segmentSizeInBytes > 0, "segmentSizeInBytes must be positive");
+        this.segmentSizeInBytes = segmentSizeInBytes;
+        this.executor = requireNonNull(executor, "executor is null");
+    }
+
+    /**
+     * Reads the segments of a descriptor page of the buffer.
+     */
+    public static List<SpooledSegment> toSpooledSegments(Page page)
+    {
+        Block nodeIds = page.getBlock(0);
+        Block nodeUris = page.getBlock(1);
+        Block segmentIds = page.getBlock(2);
+        Block rowCounts = page.getBlock(3);
+        Block sizes = page.getBlock(4);
+        ImmutableList.Builder<SpooledSegment> segments = ImmutableList.builderWithExpectedSize(page.getPositionCount());
+        for (int position = 0; position < page.getPositionCount(); position++) {
+            segments.add(new SpooledSegment(
+                    VARCHAR.getSlice(nodeIds, position).toStringUtf8(),
+                    URI.create(VARCHAR.getSlice(nodeUris, position).toStringUtf8()),
+                    VARCHAR.getSlice(segmentIds, position).toStringUtf8(),
+                    BIGINT.getLong(rowCounts, position),
+                    BIGINT.getLong(sizes, position)));
+        }
+        return segments.build();
+    }
+
+    @Override
+    public OutputBufferInfo getInfo()
+    {
+        return delegate.getInfo();
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return delegate.isFinished();
+    }
+
+    @Override
+    public double getUtilization()
+    {
+        return delegate.getUtilization();
+    }
+
+    @Override
+    public boolean isOverutilized()
+    {
+        return delegate.isOverutilized();
+    }
+
+    @Override
+    public void addStateChangeListener(StateChangeListener<BufferState> stateChangeListener)
+    {
+        delegate.addStateChangeListener(stateChangeListener);
+    }
+
+    @Override
+    public void setOutputBuffers(OutputBuffers newOutputBuffers)
+    {
+        requireNonNull(newOutputBuffers, "newOutputBuffers is null");
+        checkArgument(newOutputBuffers.getType() == SPOOLED_RESULTS, "Invalid output buffers type");
+    }
+
+    @Override
+    public ListenableFuture<BufferResult> get(OutputBufferId bufferId, long token, long maxSizeInBytes)
+    {
+        Throwable throwable = failure.get();
+        if (throwable != null) {
+            return immediateFailedFuture(new PrestoException(SPOOLING_STORAGE_ERROR, "Failed to write spooled results to TempStorage", throwable));
+        }
+        return delegate.get(bufferId, token, maxSizeInBytes);
+    }
+
+    @Override
+    public void acknowledge(OutputBufferId bufferId, long token)
+    {
+        delegate.acknowledge(bufferId, token);
+    }
+
+    @Override
+    public void abort(OutputBufferId bufferId)
+    {
+        delegate.abort(bufferId);
+    }
+
+    @Override
+    public synchronized ListenableFuture<?> isFull()
+    {
+        if (pendingWrites.get() >= MAX_PENDING_WRITES) {
+            return lastWrite;
+        }
+        return delegate.isFull();
+    }
+
+    @Override
+    public void enqueue(Lifespan lifespan, List<SerializedPage> pages)
+    {
+        requireNonNull(lifespan, "lifespan is null");
+        requireNonNull(pages, "pages is null");
+        checkNotFailed();
+
+        synchronized (this) {
+            if (noMorePages) {
+                return;
+            }
+            PendingSegment segment = pendingSegments.computeIfAbsent(lifespan, ignored -> new PendingSegment());
+            memoryManager.updateMemoryUsage(segment.add(pages));
+            if (segment.getSizeInBytes() >= segmentSizeInBytes) {
+                pendingSegments.remove(lifespan);
+                writeSegment(lifespan, segment);
+            }
+        }
+    }
+
+    @Override
+    public void enqueue(Lifespan lifespan, int partition, List<SerializedPage> pages)
+    {
+        checkArgument(partition == 0, "Expected partition number to be zero");
+        enqueue(lifespan, pages);
+    }
+
+    @Override
+    public synchronized void setNoMorePages()
+    {
+        if (noMorePages) {
+            return;
+        }
+        noMorePages = true;
+        pendingSegments.forEach(this::writeSegment);
+        pendingSegments.clear();
+        afterWrites(delegate::setNoMorePages);
+    }
+
+    @Override
+    public synchronized void setNoMorePagesForLifespan(Lifespan lifespan)
+    {
+        PendingSegment segment = pendingSegments.remove(lifespan);
+        if (segment != null) {
+            writeSegment(lifespan, segment);
+        }
+        afterWrites(() -> delegate.setNoMorePagesForLifespan(lifespan));
+    }
+
+    @Override
+    public void registerLifespanCompletionCallback(Consumer<Lifespan> callback)
+    {
+        delegate.registerLifespanCompletionCallback(callback);
+    }
+
+    @Override
+    public boolean isFinishedForLifespan(Lifespan lifespan)
+    {
+        return delegate.isFinishedForLifespan(lifespan);
+    }
+
+    @Override
+    public void destroy()
+    {
+        // the segments stay until the client acknowledges them or they expire
+        synchronized (this) {
+            noMorePages = true;
+            pendingSegments.clear();
+        }
+        memoryManager.close();
+        delegate.destroy();
+    }
+
+    @Override
+    public void fail()
+    {
+        synchronized (this) {
+            noMorePages = true;
+            pendingSegments.clear();
+            // the client does not fetch the results of a failed query
+            lastWrite.addListener(this::removeSegments, directExecutor());
+        }
+        memoryManager.close();
+        delegate.fail();
+    }
+
+    @Override
+    public long getPeakMemoryUsage()
+    {
+        return memoryManager.getPeakMemoryUsage();
+    }
+
+    @GuardedBy("this")
+    private void writeSegment(Lifespan lifespan, PendingSegment pendingSegment)
+    {
+        pendingWrites.incrementAndGet();
+        List<SerializedPage> pages = pendingSegment.getPages();
+        ListenableFuture<SpooledSegment> write = executor.submit(() -> spooledResultsManager.write(queryId, pages));
+        // the pages are released once they are written
+        write.addListener(() -> memoryManager.updateMemoryUsage(-pendingSegment.getRetainedSizeInBytes()), directExecutor());
+        ListenableFuture<?> previous = lastWrite;
+        ListenableFuture<?> current = whenAllComplete(previous, write).call(() -> {
+            pendingWrites.decrementAndGet();
+            SpooledSegment segment = getDone(write);
+            // tracked before the previous writes are checked, so that the segment is removed if the buffer fails
+            writtenSegments.add(segment);
+            getDone(previous);
+            delegate.enqueue(lifespan, ImmutableList.of(toDescriptorPage(segment)));
+            return null;
+        }, directExecutor());
+        current.addListener(() -> {
+            try {
+                getDone(current);
+            }
+            catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            }
+        }, directExecutor());
+        lastWrite = current;
+    }
+
+    @GuardedBy("this")
+    private void afterWrites(Runnable action)
+    {
+        ListenableFuture<?> previous = lastWrite;
+        lastWrite = whenAllComplete(previous).call(() -> {
+            getDone(previous);
+            action.run();
+            return null;
+        }, directExecutor());
+    }
+
+    private void checkNotFailed()
+    {
+        Throwable throwable = failure.get();
+        if (throwable != null) {
+            throw new PrestoException(SPOOLING_STORAGE_ERROR, "Failed to write spooled results to TempStorage", throwable);
+        }
+    }
+
+    private void removeSegments()
+    {
+        SpooledSegment segment;
+        while ((segment = writtenSegments.poll()) != null) {
+            spooledResultsManager.remove(queryId, segment.getSegmentId());
+        }
+    }
+
+    private SerializedPage toDescriptorPage(SpooledSegment segment)
+    {
+        BlockBuilder nodeIds = VARCHAR.createBlockBuilder(null, 1);
+        BlockBuilder nodeUris = VARCHAR.createBlockBuilder(null, 1);
+        BlockBuilder segmentIds = VARCHAR.createBlockBuilder(null, 1);
+        BlockBuilder rowCounts = BIGINT.createBlockBuilder(null, 1);
+        BlockBuilder sizes = BIGINT.createBlockBuilder(null, 1);
+        VARCHAR.writeSlice(nodeIds, utf8Slice(segment.getNodeId()));
+        VARCHAR.writeSlice(nodeUris, utf8Slice(segment.getNodeUri().toString()));
+        VARCHAR.writeSlice(segmentIds, utf8Slice(segment.getSegmentId()));
+        BIGINT.writeLong(rowCounts, segment.getRowCount());
+        BIGINT.writeLong(sizes, segment.getSize());
+        return descriptorSerde.serialize(new Page(nodeIds.build(), nodeUris.build(), segmentIds.build(), rowCounts.build(), sizes.build()));
+    }
+
+    private static class PendingSegment
+    {
+        private final List<SerializedPage> pages = new ArrayList<>();
+        private long sizeInBytes;
+        private long retainedSizeInBytes;
+
+        /**
+         * Adds the pages to the segment and returns the memory they retain.
+         */
+        public long add(List<SerializedPage> pages)
+        {
+            this.pages.addAll(pages);
+            long retainedBytesAdded = 0;
+            for (SerializedPage page : pages) {
+                sizeInBytes += page.getSizeInBytes();
+                retainedBytesAdded += page.getRetainedSizeInBytes();
+            }
+            retainedSizeInBytes += retainedBytesAdded;
+            return retainedBytesAdded;
+        }
+
+        public List<SerializedPage> getPages()
+        {
+            return ImmutableList.copyOf(pages);
+        }
+
+        public long getSizeInBytes()
+        {
+            return sizeInBytes;
+        }
+
+        public long getRetainedSizeInBytes()
+        {
+            return retainedSizeInBytes;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import java.net.URI;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A segment of query results spooled by the {@link SpooledResultsManager} of a node. The coordinator
+ * turns it into a {@link com.facebook.presto.client.ResultSegment} with a URI the client can reach,
+ * on the external URI of the node unless the coordinator proxies the segments.
+ */
+public class SpooledSegment
+{
+    private final String nodeId;
+    private final URI nodeUri;
+    private final String segmentId;
+    private final long rowCount;
+    private final long size;
+
+    public SpooledSegment(String nodeId, URI nodeUri, String segmentId, long rowCount, long size)
+    {
+        this.nodeId = requireNonNull(nodeId, "nodeId is null");
+        this.nodeUri = requireNonNull(nodeUri, "nodeUri is null");
+        this.segmentId = requireNonNull(segmentId, "segmentId is null");
+        this.rowCount = rowCount;
+        this.size = size;
+    }
+
+    public String getNodeId()
+    {
+        return nodeId;
+    }
+
+    /**
+     * The URI of the node on its external address.
+     */
+    public URI getNodeUri()
+    {
+        return nodeUri;
+    }
+
+    public String getSegmentId()
+    {
+        return segmentId;
+    }
+
+    public long getRowCount()
+    {
+        return rowCount;
+    }
+
+    public long getSize()
+    {
+        return size;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("nodeId", nodeId)
+                .add("nodeUri", nodeUri)
+                .add("segmentId", segmentId)
+                .add("rowCount", rowCount)
+                .add("size", size)
+                .toString();
+    }
+}
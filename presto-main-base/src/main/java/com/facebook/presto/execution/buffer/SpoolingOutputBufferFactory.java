@@ -13,8 +13,12 @@
  */
 package com.facebook.presto.execution.buffer;
 
+import com.facebook.presto.common.block.BlockEncodingManager;
+import com.facebook.presto.common.block.BlockEncodingSerde;
 import com.facebook.presto.execution.StateMachine;
 import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.spi.page.PagesSerde;
 import com.facebook.presto.spiller.LocalTempStorage;
 import com.facebook.presto.sql.analyzer.FeaturesConfig;
 import com.facebook.presto.storage.TempStorageManager;
@@ -28,9 +32,13 @@ import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 
 import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.CompressionCodec.NONE;
 import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newCachedThreadPool;
@@ -42,17 +50,26 @@ public class SpoolingOutputBufferFactory
     private final FeaturesConfig featuresConfig;
     private final TempStorageManager tempStorageManager;
     private final FinalizerService finalizerService;
+    private final SpooledResultsManager spooledResultsManager;
+    private final PagesSerde descriptorSerde;
 
     private final Closer closer = Closer.create();
 
     private final ExecutorService coreExecutor = newCachedThreadPool(daemonThreadsNamed("spooling-outputbuffer-%s"));
 
     @Inject
-    public SpoolingOutputBufferFactory(FeaturesConfig featuresConfig, TempStorageManager tempStorageManager, FinalizerService finalizerService)
+    public SpoolingOutputBufferFactory(
+            FeaturesConfig featuresConfig,
+            TempStorageManager tempStorageManager,
+            FinalizerService finalizerService,
+            SpooledResultsManager spooledResultsManager,
+            BlockEncodingSerde blockEncodingSerde)
     {
         this.featuresConfig = requireNonNull(featuresConfig, "featuresConfig is null");
         this.tempStorageManager = requireNonNull(tempStorageManager, "tempStorageManger is null");
         this.finalizerService = requireNonNull(finalizerService, "finalizerService is null");
+        this.spooledResultsManager = requireNonNull(spooledResultsManager, "spooledResultsManager is null");
+        this.descriptorSerde = new PagesSerdeFactory(requireNonNull(blockEncodingSerde, "blockEncodingSerde is null"), NONE).createPagesSerde();
     }
 
     @VisibleForTesting
@@ -61,6 +78,8 @@ public class SpoolingOutputBufferFactory
         this.featuresConfig = requireNonNull(featuresConfig);
         tempStorageManager = new TestingTempStorageManager();
         finalizerService = new FinalizerService();
+        spooledResultsManager = new SpooledResultsManager(featuresConfig, () -> tempStorageManager.getTempStorage(LocalTempStorage.NAME), () -> "test-node", () -> URI.create("http://127.0.0.1:8080"));
+        descriptorSerde = new PagesSerdeFactory(new BlockEncodingManager(), NONE).createPagesSerde();
 
         initialize();
     }
@@ -95,4 +114,25 @@ public class SpoolingOutputBufferFactory
                 executor,
                 finalizerService);
     }
+
+    public SpooledResultsOutputBuffer createSpooledResultsOutputBuffer(
+            TaskId taskId,
+            String taskInstanceId,
+            StateMachine<BufferState> state,
+            long maxBufferSizeInBytes,
+            Supplier<LocalMemoryContext> systemMemoryContextSupplier,
+            Executor notificationExecutor)
+    {
+        return new SpooledResultsOutputBuffer(
+                taskId.getQueryId(),
+                taskInstanceId,
+                state,
+                maxBufferSizeInBytes,
+                systemMemoryContextSupplier,
+                notificationExecutor,
+                spooledResultsManager,
+                descriptorSerde,
+                featuresConfig.getSpooledResultsSegmentSize().toBytes(),
+                executor);
+    }
 }
@@ -18,7 +18,6 @@ import com.facebook.presto.execution.TaskManagerConfig;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.errorprone.annotations.ThreadSafe;
-import com.google.errorprone.annotations.concurrent.GuardedBy;
 import jakarta.inject.Inject;
 import org.weakref.jmx.Managed;
 import org.weakref.jmx.Nested;
@@ -27,12 +26,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static java.lang.Math.floorMod;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
@@ -42,40 +44,64 @@ public class MultilevelSplitQueue
     static final int[] LEVEL_THRESHOLD_SECONDS = {0, 1, 10, 60, 300};
     static final long LEVEL_CONTRIBUTION_CAP = SECONDS.toNanos(30);
 
-    @GuardedBy("lock")
-    private final List<PriorityQueue<PrioritizedSplitRunner>> levelWaitingSplits;
+    private final List<SplitQueueShard> shards;
+    private final boolean taskAffinityEnabled;
+    private final ThreadLocal<SplitQueueShard> homeShard = new ThreadLocal<>();
+    private final AtomicInteger nextHomeShard = new AtomicInteger();
 
     private final AtomicLong[] levelScheduledTime = new AtomicLong[LEVEL_THRESHOLD_SECONDS.length];
+    private final AtomicInteger[] levelWaitingSplitCount = new AtomicInteger[LEVEL_THRESHOLD_SECONDS.length];
+    private final AtomicInteger waitingSplitCount = new AtomicInteger();
 
     private final AtomicLong[] levelMinPriority;
     private final List<CounterStat> selectedLevelCounters;
 
-    private final ReentrantLock lock = new ReentrantLock();
-    private final Condition notEmpty = lock.newCondition();
+    // runner threads that found every shard empty park here until the next offer
+    private final ReentrantLock idleLock = new ReentrantLock();
+    private final Condition notEmpty = idleLock.newCondition();
+    private final AtomicInteger idleRunners = new AtomicInteger();
+
+    private final CounterStat stolenSplits = new CounterStat();
+    private final LongAdder shardLockAcquisitions = new LongAdder();
+    private final LongAdder contendedShardLockAcquisitions = new LongAdder();
+    private final LongAdder shardLockWaitNanos = new LongAdder();
+    private final LongAdder shardLockHoldNanos = new LongAdder();
 
     private final double levelTimeMultiplier;
 
     @Inject
     public MultilevelSplitQueue(TaskManagerConfig taskManagerConfig)
     {
-        this(taskManagerConfig.getLevelTimeMultiplier().doubleValue());
+        this(taskManagerConfig.getLevelTimeMultiplier().doubleValue(), taskManagerConfig.getSplitQueueShards(), taskManagerConfig.isSplitQueueTaskAffinityEnabled());
     }
 
     public MultilevelSplitQueue(double levelTimeMultiplier)
     {
+        this(levelTimeMultiplier, 1, false);
+    }
+
+    public MultilevelSplitQueue(double levelTimeMultiplier, int shardCount, boolean taskAffinityEnabled)
+    {
+        checkArgument(shardCount > 0, "shardCount must be positive");
         this.levelMinPriority = new AtomicLong[LEVEL_THRESHOLD_SECONDS.length];
-        this.levelWaitingSplits = new ArrayList<>(LEVEL_THRESHOLD_SECONDS.length);
         ImmutableList.Builder<CounterStat> counters = ImmutableList.builder();
 
         for (int i = 0; i < LEVEL_THRESHOLD_SECONDS.length; i++) {
             levelScheduledTime[i] = new AtomicLong();
+            levelWaitingSplitCount[i] = new AtomicInteger();
             levelMinPriority[i] = new AtomicLong(-1);
-            levelWaitingSplits.add(new PriorityQueue<>());
             counters.add(new CounterStat());
         }
 
         this.selectedLevelCounters = counters.build();
 
+        ImmutableList.Builder<SplitQueueShard> shards = ImmutableList.builder();
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new SplitQueueShard(i));
+        }
+        this.shards = shards.build();
+        this.taskAffinityEnabled = taskAffinityEnabled;
+
         this.levelTimeMultiplier = levelTimeMultiplier;
     }
 
@@ -100,9 +126,10 @@ public class MultilevelSplitQueue
 
         split.setReady();
         int level = split.getPriority().getLevel();
-        lock.lock();
+        SplitQueueShard shard = selectShard(split);
+        long lockedNanos = shard.lock();
         try {
-            if (levelWaitingSplits.get(level).isEmpty()) {
+            if (levelWaitingSplitCount[level].getAndIncrement() == 0) {
                 // Accesses to levelScheduledTime are not synchronized, so we have a data race
                 // here - our level time math will be off. However, the staleness is bounded by
                 // the fact that only running splits that complete during this computation
@@ -113,80 +140,125 @@ public class MultilevelSplitQueue
                 levelScheduledTime[level].addAndGet(delta);
             }
 
-            levelWaitingSplits.get(level).offer(split);
-            notEmpty.signal();
+            shard.add(split);
+            waitingSplitCount.incrementAndGet();
         }
         finally {
-            lock.unlock();
+            shard.unlock(lockedNanos);
+        }
+
+        if (idleRunners.get() > 0) {
+            idleLock.lock();
+            try {
+                notEmpty.signal();
+            }
+            finally {
+                idleLock.unlock();
+            }
         }
     }
 
+    /**
+     * Runner threads take splits from their own shard first and steal from the other
+     * shards when it is empty. Every shard selects its level against the level scheduled
+     * times shared by all shards, so all shards steer towards the same level targets.
+     */
     public PrioritizedSplitRunner take()
             throws InterruptedException
     {
+        SplitQueueShard home = getHomeShard();
         while (true) {
-            lock.lockInterruptibly();
-            try {
-                PrioritizedSplitRunner result;
-                while ((result = pollSplit()) == null) {
-                    notEmpty.await();
-                }
-
-                if (result.updateLevelPriority()) {
-                    offer(result);
-                    continue;
-                }
-
-                int selectedLevel = result.getPriority().getLevel();
-                levelMinPriority[selectedLevel].set(result.getPriority().getLevelPriority());
-                selectedLevelCounters.get(selectedLevel).update(1);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
 
-                return result;
+            PrioritizedSplitRunner result = home.poll();
+            if (result == null) {
+                result = steal(home);
             }
-            finally {
-                lock.unlock();
+            if (result == null) {
+                awaitSplits();
+                continue;
             }
+
+            if (result.updateLevelPriority()) {
+                offer(result);
+                continue;
+            }
+
+            int selectedLevel = result.getPriority().getLevel();
+            levelMinPriority[selectedLevel].set(result.getPriority().getLevelPriority());
+            selectedLevelCounters.get(selectedLevel).update(1);
+
+            return result;
+        }
+    }
+
+    private SplitQueueShard getHomeShard()
+    {
+        SplitQueueShard shard = homeShard.get();
+        if (shard == null) {
+            shard = shards.get(floorMod(nextHomeShard.getAndIncrement(), shards.size()));
+            homeShard.set(shard);
         }
+        return shard;
     }
 
     /**
-     * Presto attempts to give each level a target amount of scheduled time, which is configurable
-     * using levelTimeMultiplier.
-     * <p>
-     * This function selects the level that has the lowest ratio of actual to the target time
-     * with the objective of minimizing deviation from the target scheduled time. From this level,
-     * we pick the split with the lowest priority.
+     * Splits re-queued by a runner thread stay on that runner's shard, so they are likely to
+     * run on the same thread again. Splits queued from other threads, and all splits when task
+     * affinity is enabled, go to the shard owned by their task.
      */
-    @GuardedBy("lock")
-    private PrioritizedSplitRunner pollSplit()
+    private SplitQueueShard selectShard(PrioritizedSplitRunner split)
     {
-        long targetScheduledTime = getLevel0TargetTime();
-        double worstRatio = 1;
-        int selectedLevel = -1;
-        for (int level = 0; level < LEVEL_THRESHOLD_SECONDS.length; level++) {
-            if (!levelWaitingSplits.get(level).isEmpty()) {
-                long levelTime = levelScheduledTime[level].get();
-                double ratio = levelTime == 0 ? 0 : targetScheduledTime / (1.0 * levelTime);
-                if (selectedLevel == -1 || ratio > worstRatio) {
-                    worstRatio = ratio;
-                    selectedLevel = level;
-                }
+        if (shards.size() == 1) {
+            return shards.get(0);
+        }
+        if (!taskAffinityEnabled) {
+            SplitQueueShard shard = homeShard.get();
+            if (shard != null) {
+                return shard;
             }
-
-            targetScheduledTime /= levelTimeMultiplier;
         }
+        return shards.get(floorMod(split.getTaskHandle().getTaskId().hashCode(), shards.size()));
+    }
 
-        if (selectedLevel == -1) {
-            return null;
+    private PrioritizedSplitRunner steal(SplitQueueShard home)
+    {
+        for (int i = 1; i < shards.size(); i++) {
+            SplitQueueShard victim = shards.get((home.getIndex() + i) % shards.size());
+            if (victim.isEmpty()) {
+                continue;
+            }
+            PrioritizedSplitRunner split = victim.poll();
+            if (split != null) {
+                stolenSplits.update(1);
+                return split;
+            }
         }
+        return null;
+    }
 
-        PrioritizedSplitRunner result = levelWaitingSplits.get(selectedLevel).poll();
-        checkState(result != null, "pollSplit cannot return null");
-
-        return result;
+    private void awaitSplits()
+            throws InterruptedException
+    {
+        idleLock.lockInterruptibly();
+        try {
+            idleRunners.incrementAndGet();
+            try {
+                while (waitingSplitCount.get() == 0) {
+                    notEmpty.await();
+                }
+            }
+            finally {
+                idleRunners.decrementAndGet();
+            }
+        }
+        finally {
+            idleLock.unlock();
+        }
     }
 
-    @GuardedBy("lock")
     private long getLevel0TargetTime()
     {
         long level0TargetTime = levelScheduledTime[0].get();
@@ -246,27 +318,17 @@ public class MultilevelSplitQueue
     public void remove(PrioritizedSplitRunner split)
     {
         checkArgument(split != null, "split is null");
-        lock.lock();
-        try {
-            for (PriorityQueue<PrioritizedSplitRunner> level : levelWaitingSplits) {
-                level.remove(split);
+        for (SplitQueueShard shard : shards) {
+            if (shard.remove(split)) {
+                return;
             }
         }
-        finally {
-            lock.unlock();
-        }
     }
 
     public void removeAll(Collection<PrioritizedSplitRunner> splits)
     {
-        lock.lock();
-        try {
-            for (PriorityQueue<PrioritizedSplitRunner> level : levelWaitingSplits) {
-                level.removeAll(splits);
-            }
-        }
-        finally {
-            lock.unlock();
+        for (SplitQueueShard shard : shards) {
+            shard.removeAll(splits);
         }
     }
 
@@ -278,17 +340,7 @@ public class MultilevelSplitQueue
 
     public int size()
     {
-        lock.lock();
-        try {
-            int total = 0;
-            for (PriorityQueue<PrioritizedSplitRunner> level : levelWaitingSplits) {
-                total += level.size();
-            }
-            return total;
-        }
-        finally {
-            lock.unlock();
-        }
+        return waitingSplitCount.get();
     }
 
     public static int computeLevel(long threadUsageNanos)
@@ -373,4 +425,190 @@ public class MultilevelSplitQueue
     {
         return selectedLevelCounters.get(4);
     }
+
+    @Managed
+    public int getShards()
+    {
+        return shards.size();
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getStolenSplits()
+    {
+        return stolenSplits;
+    }
+
+    @Managed
+    public long getShardLockAcquisitions()
+    {
+        return shardLockAcquisitions.sum();
+    }
+
+    @Managed
+    public long getContendedShardLockAcquisitions()
+    {
+        return contendedShardLockAcquisitions.sum();
+    }
+
+    @Managed
+    public long getShardLockWaitNanos()
+    {
+        return shardLockWaitNanos.sum();
+    }
+
+    @Managed
+    public long getShardLockHoldNanos()
+    {
+        return shardLockHoldNanos.sum();
+    }
+
+    private class SplitQueueShard
+    {
+        private final int index;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // only accessed between lock() and unlock(long)
+        private final List<PriorityQueue<PrioritizedSplitRunner>> levelWaitingSplits;
+
+        // updated under the lock, read without it to skip empty shards when stealing
+        private final AtomicInteger size = new AtomicInteger();
+
+        private SplitQueueShard(int index)
+        {
+            this.index = index;
+            this.levelWaitingSplits = new ArrayList<>(LEVEL_THRESHOLD_SECONDS.length);
+            for (int i = 0; i < LEVEL_THRESHOLD_SECONDS.length; i++) {
+                levelWaitingSplits.add(new PriorityQueue<>());
+            }
+        }
+
+        public int getIndex()
+        {
+            return index;
+        }
+
+        public boolean isEmpty()
+        {
+            return size.get() == 0;
+        }
+
+        /**
+         * @return the time the lock was acquired, to be passed to {@link #unlock(long)}
+         */
+        public long lock()
+        {
+            if (!lock.tryLock()) {
+                long start = System.nanoTime();
+                lock.lock();
+                contendedShardLockAcquisitions.increment();
+                shardLockWaitNanos.add(System.nanoTime() - start);
+            }
+            shardLockAcquisitions.increment();
+            return System.nanoTime();
+        }
+
+        public void unlock(long lockedNanos)
+        {
+            shardLockHoldNanos.add(System.nanoTime() - lockedNanos);
+            lock.unlock();
+        }
+
+        public void add(PrioritizedSplitRunner split)
+        {
+            levelWaitingSplits.get(split.getPriority().getLevel()).offer(split);
+            size.incrementAndGet();
+        }
+
+        public PrioritizedSplitRunner poll()
+        {
+            long lockedNanos = lock();
+            try {
+                return pollSplit();
+            }
+            finally {
+                unlock(lockedNanos);
+            }
+        }
+
+        /**
+         * Presto attempts to give each level a target amount of scheduled time, which is configurable
+         * using levelTimeMultiplier.
+         * <p>
+         * This function selects the level that has the lowest ratio of actual to the target time
+         * with the objective of minimizing deviation from the target scheduled time. From this level,
+         * we pick the split with the lowest priority.
+         */
+        private PrioritizedSplitRunner pollSplit()
+        {
+            long targetScheduledTime = getLevel0TargetTime();
+            double worstRatio = 1;
+            int selectedLevel = -1;
+            for (int level = 0; level < LEVEL_THRESHOLD_SECONDS.length; level++) {
+                if (!levelWaitingSplits.get(level).isEmpty()) {
+                    long levelTime = levelScheduledTime[level].get();
+                    double ratio = levelTime == 0 ? 0 : targetScheduledTime / (1.0 * levelTime);
+                    if (selectedLevel == -1 || ratio > worstRatio) {
+                        worstRatio = ratio;
+                        selectedLevel = level;
+                    }
+                }
+
+                targetScheduledTime /= levelTimeMultiplier;
+            }
+
+            if (selectedLevel == -1) {
+                return null;
+            }
+
+            PrioritizedSplitRunner result = levelWaitingSplits.get(selectedLevel).poll();
+            checkState(result != null, "pollSplit cannot return null");
+            splitsRemoved(selectedLevel, 1);
+
+            return result;
+        }
+
+        public boolean remove(PrioritizedSplitRunner split)
+        {
+            long lockedNanos = lock();
+            try {
+                for (int level = 0; level < LEVEL_THRESHOLD_SECONDS.length; level++) {
+                    if (levelWaitingSplits.get(level).remove(split)) {
+                        splitsRemoved(level, 1);
+                        return true;
+                    }
+                }
+                return false;
+            }
+            finally {
+                unlock(lockedNanos);
+            }
+        }
+
+        public void removeAll(Collection<PrioritizedSplitRunner> splits)
+        {
+            long lockedNanos = lock();
+            try {
+                for (int level = 0; level < LEVEL_THRESHOLD_SECONDS.length; level++) {
+                    PriorityQueue<PrioritizedSplitRunner> queue = levelWaitingSplits.get(level);
+                    int before = queue.size();
+                    queue.removeAll(splits);
+                    splitsRemoved(level, before - queue.size());
+                }
+            }
+            finally {
+                unlock(lockedNanos);
+            }
+        }
+
+        private void splitsRemoved(int level, int count)
+        {
+            if (count == 0) {
+                return;
+            }
+            size.addAndGet(-count);
+            levelWaitingSplitCount[level].addAndGet(-count);
+            waitingSplitCount.addAndGet(-count);
+        }
+    }
 }
@@ -62,6 +62,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.DoubleSupplier;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -177,6 +178,11 @@ public class TaskExecutor
     private final TimeStat blockedQuantaWallTime = new TimeStat(MICROSECONDS);
     private final TimeStat unblockedQuantaWallTime = new TimeStat(MICROSECONDS);
 
+    // acquisitions, wait and hold time of the executor lock on the split scheduling paths
+    private final LongAdder executorLockAcquisitions = new LongAdder();
+    private final LongAdder executorLockWaitNanos = new LongAdder();
+    private final LongAdder executorLockHoldNanos = new LongAdder();
+
     private volatile boolean closed;
 
     private volatile boolean lowMemory;
@@ -373,21 +379,39 @@ public class TaskExecutor
         }
 
         // replace blocked splits that were terminated
-        addNewEntrants();
+        List<PrioritizedSplitRunner> startedSplits = new ArrayList<>();
+        long lockRequestedNanos = System.nanoTime();
+        synchronized (this) {
+            long lockedNanos = executorLockAcquired(lockRequestedNanos);
+            try {
+                addNewEntrants(startedSplits);
+            }
+            finally {
+                executorLockReleased(lockedNanos);
+            }
+        }
+        queueStartedSplits(startedSplits);
     }
 
     private void doRemoveTask(TaskHandle taskHandle)
     {
         List<PrioritizedSplitRunner> splits;
+        long lockRequestedNanos = System.nanoTime();
         synchronized (this) {
-            tasks.remove(taskHandle);
-            splits = taskHandle.destroy();
-
-            // stop tracking splits (especially blocked splits which may never unblock)
-            allSplits.removeAll(splits);
-            intermediateSplits.removeAll(splits);
-            blockedSplits.keySet().removeAll(splits);
-            waitingSplits.removeAll(splits);
+            long lockedNanos = executorLockAcquired(lockRequestedNanos);
+            try {
+                tasks.remove(taskHandle);
+                splits = taskHandle.destroy();
+
+                // stop tracking splits (especially blocked splits which may never unblock)
+                allSplits.removeAll(splits);
+                intermediateSplits.removeAll(splits);
+                blockedSplits.keySet().removeAll(splits);
+                waitingSplits.removeAll(splits);
+            }
+            finally {
+                executorLockReleased(lockedNanos);
+            }
         }
 
         // call destroy outside of synchronized block as it is expensive and doesn't need a lock on the task executor
@@ -405,44 +429,53 @@ public class TaskExecutor
     public List<ListenableFuture<?>> enqueueSplits(TaskHandle taskHandle, boolean intermediate, List<? extends SplitRunner> taskSplits)
     {
         List<PrioritizedSplitRunner> splitsToDestroy = new ArrayList<>();
+        List<PrioritizedSplitRunner> startedSplits = new ArrayList<>();
         List<ListenableFuture<?>> finishedFutures = new ArrayList<>(taskSplits.size());
+        long lockRequestedNanos = System.nanoTime();
         synchronized (this) {
-            for (SplitRunner taskSplit : taskSplits) {
-                PrioritizedSplitRunner prioritizedSplitRunner = new PrioritizedSplitRunner(
-                        taskHandle,
-                        taskSplit,
-                        ticker,
-                        globalCpuTimeMicros,
-                        globalScheduledTimeMicros,
-                        blockedQuantaWallTime,
-                        unblockedQuantaWallTime);
-
-                if (intermediate) {
-                    // add the runner to the handle so it can be destroyed if the task is canceled
-                    if (taskHandle.recordIntermediateSplit(prioritizedSplitRunner)) {
-                        // Note: we do not record queued time for intermediate splits
-                        startIntermediateSplit(prioritizedSplitRunner);
-                    }
-                    else {
-                        splitsToDestroy.add(prioritizedSplitRunner);
-                    }
-                }
-                else {
-                    // add this to the work queue for the task
-                    if (taskHandle.enqueueSplit(prioritizedSplitRunner)) {
-                        // if task is under the limit for guaranteed splits, start one
-                        scheduleTaskIfNecessary(taskHandle);
-                        // if globally we have more resources, start more
-                        addNewEntrants();
+            long lockedNanos = executorLockAcquired(lockRequestedNanos);
+            try {
+                for (SplitRunner taskSplit : taskSplits) {
+                    PrioritizedSplitRunner prioritizedSplitRunner = new PrioritizedSplitRunner(
+                            taskHandle,
+                            taskSplit,
+                            ticker,
+                            globalCpuTimeMicros,
+                            globalScheduledTimeMicros,
+                            blockedQuantaWallTime,
+                            unblockedQuantaWallTime);
+
+                    if (intermediate) {
+                        // add the runner to the handle so it can be destroyed if the task is canceled
+                        if (taskHandle.recordIntermediateSplit(prioritizedSplitRunner)) {
+                            // Note: we do not record queued time for intermediate splits
+                            startIntermediateSplit(prioritizedSplitRunner, startedSplits);
+                        }
+                        else {
+                            splitsToDestroy.add(prioritizedSplitRunner);
+                        }
                     }
                     else {
-                        splitsToDestroy.add(prioritizedSplitRunner);
+                        // add this to the work queue for the task
+                        if (taskHandle.enqueueSplit(prioritizedSplitRunner)) {
+                            // if task is under the limit for guaranteed splits, start one
+                            scheduleTaskIfNecessary(taskHandle, startedSplits);
+                            // if globally we have more resources, start more
+                            addNewEntrants(startedSplits);
+                        }
+                        else {
+                            splitsToDestroy.add(prioritizedSplitRunner);
+                        }
                     }
-                }
 
-                finishedFutures.add(prioritizedSplitRunner.getFinishedFuture());
+                    finishedFutures.add(prioritizedSplitRunner.getFinishedFuture());
+                }
+            }
+            finally {
+                executorLockReleased(lockedNanos);
             }
         }
+        queueStartedSplits(startedSplits);
         for (PrioritizedSplitRunner split : splitsToDestroy) {
             split.destroy();
         }
@@ -452,37 +485,48 @@ public class TaskExecutor
     private void splitFinished(PrioritizedSplitRunner split)
     {
         completedSplitsPerLevel.incrementAndGet(split.getPriority().getLevel());
-        synchronized (this) {
-            allSplits.remove(split);
 
-            long wallNanos = System.nanoTime() - split.getCreatedNanos();
-            splitWallTime.add(Duration.succinctNanos(wallNanos));
+        long wallNanos = System.nanoTime() - split.getCreatedNanos();
+        splitWallTime.add(Duration.succinctNanos(wallNanos));
 
-            if (intermediateSplits.remove(split)) {
-                intermediateSplitWallTime.add(wallNanos);
-                intermediateSplitScheduledTime.add(split.getScheduledNanos());
-                intermediateSplitWaitTime.add(split.getWaitNanos());
-                intermediateSplitCpuTime.add(split.getCpuTimeNanos());
-            }
-            else {
-                leafSplitWallTime.add(wallNanos);
-                leafSplitScheduledTime.add(split.getScheduledNanos());
-                leafSplitWaitTime.add(split.getWaitNanos());
-                leafSplitCpuTime.add(split.getCpuTimeNanos());
-            }
+        List<PrioritizedSplitRunner> startedSplits = new ArrayList<>();
+        long lockRequestedNanos = System.nanoTime();
+        synchronized (this) {
+            long lockedNanos = executorLockAcquired(lockRequestedNanos);
+            try {
+                allSplits.remove(split);
+
+                if (intermediateSplits.remove(split)) {
+                    intermediateSplitWallTime.add(wallNanos);
+                    intermediateSplitScheduledTime.add(split.getScheduledNanos());
+                    intermediateSplitWaitTime.add(split.getWaitNanos());
+                    intermediateSplitCpuTime.add(split.getCpuTimeNanos());
+                }
+                else {
+                    leafSplitWallTime.add(wallNanos);
+                    leafSplitScheduledTime.add(split.getScheduledNanos());
+                    leafSplitWaitTime.add(split.getWaitNanos());
+                    leafSplitCpuTime.add(split.getCpuTimeNanos());
+                }
 
-            TaskHandle taskHandle = split.getTaskHandle();
-            taskHandle.splitComplete(split);
+                TaskHandle taskHandle = split.getTaskHandle();
+                taskHandle.splitComplete(split);
 
-            scheduleTaskIfNecessary(taskHandle);
+                scheduleTaskIfNecessary(taskHandle, startedSplits);
 
-            addNewEntrants();
+                addNewEntrants(startedSplits);
+            }
+            finally {
+                executorLockReleased(lockedNanos);
+            }
         }
+        queueStartedSplits(startedSplits);
         // call destroy outside of synchronized block as it is expensive and doesn't need a lock on the task executor
         split.destroy();
     }
 
-    private synchronized void scheduleTaskIfNecessary(TaskHandle taskHandle)
+    @GuardedBy("this")
+    private void scheduleTaskIfNecessary(TaskHandle taskHandle, List<PrioritizedSplitRunner> startedSplits)
     {
         // Worker skip processing split if jvm heap usage crosses configured threshold
         // Helps reduce memory pressure on the worker and avoid OOMs
@@ -498,13 +542,14 @@ public class TaskExecutor
         if (taskHandle.getRunningLeafSplits() < min(guaranteedNumberOfDriversPerTask, taskHandle.getMaxDriversPerTask().orElse(Integer.MAX_VALUE))) {
             PrioritizedSplitRunner split = taskHandle.pollNextSplit();
             if (split != null) {
-                startSplit(split);
+                startSplit(split, startedSplits);
                 splitQueuedTime.add(Duration.nanosSince(split.getCreatedNanos()));
             }
         }
     }
 
-    private synchronized void addNewEntrants()
+    @GuardedBy("this")
+    private void addNewEntrants(List<PrioritizedSplitRunner> startedSplits)
     {
         // Worker skip processing split if jvm heap usage crosses configured threshold
         // Helps reduce memory pressure on the worker and avoid OOMs
@@ -528,23 +573,58 @@ public class TaskExecutor
             }
 
             splitQueuedTime.add(Duration.nanosSince(split.getCreatedNanos()));
-            startSplit(split);
+            startSplit(split, startedSplits);
         }
     }
 
-    private synchronized void startIntermediateSplit(PrioritizedSplitRunner split)
+    @GuardedBy("this")
+    private void startIntermediateSplit(PrioritizedSplitRunner split, List<PrioritizedSplitRunner> startedSplits)
     {
-        startSplit(split);
+        startSplit(split, startedSplits);
         intermediateSplits.add(split);
     }
 
-    private synchronized void startSplit(PrioritizedSplitRunner split)
+    /**
+     * Registers the split as started. The caller queues the started splits with
+     * {@link #queueStartedSplits} once it has released the executor lock.
+     */
+    @GuardedBy("this")
+    private void startSplit(PrioritizedSplitRunner split, List<PrioritizedSplitRunner> startedSplits)
     {
         allSplits.add(split);
-        waitingSplits.offer(split);
+        startedSplits.add(split);
+    }
+
+    private void queueStartedSplits(List<PrioritizedSplitRunner> startedSplits)
+    {
+        for (PrioritizedSplitRunner split : startedSplits) {
+            // removeTask has already destroyed the splits of a task removed since they were started.
+            // If the task is removed after this check, the runner finishes the split when it takes it,
+            // as it does for blocked splits queued again by their listener.
+            if (!split.getTaskHandle().isDestroyed()) {
+                waitingSplits.offer(split);
+            }
+        }
     }
 
-    private synchronized PrioritizedSplitRunner pollNextSplitWorker()
+    /**
+     * @return the time the executor lock was acquired, to be passed to {@link #executorLockReleased(long)}
+     */
+    private long executorLockAcquired(long lockRequestedNanos)
+    {
+        long lockedNanos = System.nanoTime();
+        executorLockAcquisitions.increment();
+        executorLockWaitNanos.add(lockedNanos - lockRequestedNanos);
+        return lockedNanos;
+    }
+
+    private void executorLockReleased(long lockedNanos)
+    {
+        executorLockHoldNanos.add(System.nanoTime() - lockedNanos);
+    }
+
+    @GuardedBy("this")
+    private PrioritizedSplitRunner pollNextSplitWorker()
     {
         // todo find a better algorithm for this
         // find the first task that produces a split, then move that task to the
@@ -720,6 +800,54 @@ public class TaskExecutor
         return waitingSplits.size();
     }
 
+    @Managed
+    public int getWaitingSplitQueueShards()
+    {
+        return waitingSplits.getShards();
+    }
+
+    @Managed
+    public long getWaitingSplitsStolen()
+    {
+        return waitingSplits.getStolenSplits().getTotalCount();
+    }
+
+    @Managed
+    public long getWaitingSplitQueueLockHoldNanos()
+    {
+        return waitingSplits.getShardLockHoldNanos();
+    }
+
+    @Managed
+    public long getWaitingSplitQueueLockWaitNanos()
+    {
+        return waitingSplits.getShardLockWaitNanos();
+    }
+
+    @Managed
+    public long getWaitingSplitQueueContendedLockAcquisitions()
+    {
+        return waitingSplits.getContendedShardLockAcquisitions();
+    }
+
+    @Managed
+    public long getExecutorLockAcquisitions()
+    {
+        return executorLockAcquisitions.sum();
+    }
+
+    @Managed
+    public long getExecutorLockWaitNanos()
+    {
+        return executorLockWaitNanos.sum();
+    }
+
+    @Managed
+    public long getExecutorLockHoldNanos()
+    {
+        return executorLockHoldNanos.sum();
+    }
+
     @Managed
     public int getRunningSplits()
     {
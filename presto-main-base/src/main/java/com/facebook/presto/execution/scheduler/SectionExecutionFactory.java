@@ -171,6 +171,37 @@ public class SectionExecutionFactory
             SplitSourceFactory splitSourceFactory,
             int attemptId,
             CTEMaterializationTracker cteMaterializationTracker)
+    {
+        return createSectionExecutions(
+                session,
+                section,
+                locationsConsumer,
+                bucketToPartition,
+                outputBuffers,
+                summarizeTaskInfo,
+                remoteTaskFactory,
+                splitSourceFactory,
+                attemptId,
+                cteMaterializationTracker,
+                getMaxTasksPerStage(session));
+    }
+
+    /**
+     * returns a List of SectionExecutions in a postorder representation of the tree, where stages whose nodes are not
+     * fixed by the connector run at most {@code maxTasksPerStage} tasks
+     */
+    public SectionExecution createSectionExecutions(
+            Session session,
+            StreamingPlanSection section,
+            ExchangeLocationsConsumer locationsConsumer,
+            Optional<int[]> bucketToPartition,
+            OutputBuffers outputBuffers,
+            boolean summarizeTaskInfo,
+            RemoteTaskFactory remoteTaskFactory,
+            SplitSourceFactory splitSourceFactory,
+            int attemptId,
+            CTEMaterializationTracker cteMaterializationTracker,
+            int maxTasksPerStage)
     {
         // Only fetch a distribution once per section to ensure all stages see the same machine assignments
         Map<PartitioningHandle, NodePartitionMap> partitioningCache = new HashMap<>();
@@ -180,14 +211,15 @@ public class SectionExecutionFactory
                 session,
                 locationsConsumer,
                 section.getPlan().withBucketToPartition(bucketToPartition),
-                partitioningHandle -> partitioningCache.computeIfAbsent(partitioningHandle, handle -> nodePartitioningManager.getNodePartitioningMap(session, handle, nodePredicate)),
+                partitioningHandle -> partitioningCache.computeIfAbsent(partitioningHandle, handle -> nodePartitioningManager.getNodePartitioningMap(session, handle, nodePredicate, maxTasksPerStage)),
                 tableWriteInfo,
                 Optional.empty(),
                 summarizeTaskInfo,
                 remoteTaskFactory,
                 splitSourceFactory,
                 attemptId,
-                cteMaterializationTracker);
+                cteMaterializationTracker,
+                maxTasksPerStage);
         StageExecutionAndScheduler rootStage = getLast(sectionStages);
         rootStage.getStageExecution().setOutputBuffers(outputBuffers);
         return new SectionExecution(rootStage, sectionStages);
@@ -207,7 +239,8 @@ public class SectionExecutionFactory
             RemoteTaskFactory remoteTaskFactory,
             SplitSourceFactory splitSourceFactory,
             int attemptId,
-            CTEMaterializationTracker cteMaterializationTracker)
+            CTEMaterializationTracker cteMaterializationTracker,
+            int maxTasksPerStage)
     {
         ImmutableList.Builder<StageExecutionAndScheduler> stageExecutionAndSchedulers = ImmutableList.builder();
 
@@ -243,7 +276,8 @@ public class SectionExecutionFactory
                     remoteTaskFactory,
                     splitSourceFactory,
                     attemptId,
-                    cteMaterializationTracker);
+                    cteMaterializationTracker,
+                    maxTasksPerStage);
             stageExecutionAndSchedulers.addAll(subTree);
             childStagesBuilder.add(getLast(subTree).getStageExecution());
         }
@@ -266,7 +300,8 @@ public class SectionExecutionFactory
                 partitioningHandle,
                 tableWriteInfo,
                 childStageExecutions,
-                cteMaterializationTracker);
+                cteMaterializationTracker,
+                maxTasksPerStage);
         stageExecutionAndSchedulers.add(new StageExecutionAndScheduler(
                 stageExecution,
                 stageLinkage,
@@ -286,10 +321,10 @@ public class SectionExecutionFactory
             PartitioningHandle partitioningHandle,
             TableWriteInfo tableWriteInfo,
             Set<SqlStageExecution> childStageExecutions,
-            CTEMaterializationTracker cteMaterializationTracker)
+            CTEMaterializationTracker cteMaterializationTracker,
+            int maxTasksPerStage)
     {
         Map<PlanNodeId, SplitSource> splitSources = splitSourceFactory.createSplitSources(plan.getFragment(), session, tableWriteInfo);
-        int maxTasksPerStage = getMaxTasksPerStage(session);
         Optional<Predicate<Node>> nodePredicate = getNodePoolSelectionPredicate(plan);
         if (partitioningHandle.equals(SOURCE_DISTRIBUTION)) {
             // nodes are selected dynamically based on the constraints of the splits and the system load
@@ -368,7 +403,7 @@ public class SectionExecutionFactory
                 if (plan.getFragment().getRemoteSourceNodes().stream().allMatch(node -> node.getExchangeType() == REPLICATE)) {
                     // no non-replicated remote source
                     boolean dynamicLifespanSchedule = plan.getFragment().getStageExecutionDescriptor().isDynamicLifespanSchedule();
-                    bucketNodeMap = nodePartitioningManager.getBucketNodeMap(session, partitioningHandle, dynamicLifespanSchedule);
+                    bucketNodeMap = nodePartitioningManager.getBucketNodeMap(session, partitioningHandle, dynamicLifespanSchedule, maxTasksPerStage);
 
                     // verify execution is consistent with planner's decision on dynamic lifespan schedule
                     verify(bucketNodeMap.isDynamic() == dynamicLifespanSchedule);
@@ -37,11 +37,15 @@ import com.facebook.presto.execution.buffer.OutputBuffers.OutputBufferId;
 import com.facebook.presto.metadata.FunctionAndTypeManager;
 import com.facebook.presto.metadata.Metadata;
 import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.TableHandle;
 import com.facebook.presto.spi.VariableAllocator;
 import com.facebook.presto.spi.WarningCollector;
 import com.facebook.presto.spi.plan.PlanFragmentId;
 import com.facebook.presto.spi.plan.PlanNode;
 import com.facebook.presto.spi.plan.PlanNodeIdAllocator;
+import com.facebook.presto.spi.plan.TableFinishNode;
+import com.facebook.presto.spi.plan.TableScanNode;
+import com.facebook.presto.spi.plan.TableWriterNode.InsertReference;
 import com.facebook.presto.sql.parser.SqlParser;
 import com.facebook.presto.sql.planner.PlanFragment;
 import com.facebook.presto.sql.planner.SplitSourceFactory;
@@ -49,6 +53,7 @@ import com.facebook.presto.sql.planner.SubPlan;
 import com.facebook.presto.sql.planner.TypeProvider;
 import com.facebook.presto.sql.planner.optimizations.PlanOptimizer;
 import com.facebook.presto.sql.planner.sanity.PlanChecker;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -67,18 +72,23 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 import static com.facebook.airlift.concurrent.MoreFutures.tryGetFutureValue;
 import static com.facebook.airlift.concurrent.MoreFutures.whenAnyComplete;
 import static com.facebook.presto.SystemSessionProperties.getMaxConcurrentMaterializations;
+import static com.facebook.presto.SystemSessionProperties.getMaxTasksPerStage;
 import static com.facebook.presto.SystemSessionProperties.getPartialResultsCompletionRatioThreshold;
 import static com.facebook.presto.SystemSessionProperties.getPartialResultsMaxExecutionTimeMultiplier;
+import static com.facebook.presto.SystemSessionProperties.getRuntimeOptimizerTargetTaskInputSize;
 import static com.facebook.presto.SystemSessionProperties.isEnhancedCTESchedulingEnabled;
 import static com.facebook.presto.SystemSessionProperties.isPartialResultsEnabled;
 import static com.facebook.presto.SystemSessionProperties.isRuntimeOptimizerEnabled;
@@ -97,6 +107,7 @@ import static com.facebook.presto.execution.scheduler.StreamingPlanSection.extra
 import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
 import static com.facebook.presto.sql.planner.PlanFragmenterUtils.ROOT_FRAGMENT_ID;
 import static com.facebook.presto.sql.planner.SchedulingOrderVisitor.scheduleOrder;
+import static com.facebook.presto.sql.planner.optimizations.PlanNodeSearcher.searchFrom;
 import static com.facebook.presto.sql.planner.planPrinter.PlanPrinter.jsonFragmentPlan;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.ImmutableList.toImmutableList;
@@ -105,6 +116,8 @@ import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.collect.Streams.stream;
 import static com.google.common.graph.Traverser.forTree;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.lang.Math.max;
+import static java.lang.Math.toIntExact;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -612,9 +625,13 @@ public class SqlQueryScheduler
      * A general purpose utility function to invoke runtime cost-based optimizer.
      * (right now there is only one plan optimizer which determines if the probe and build side of a JoinNode should be swapped
      * based on the statistics of the temporary table holding materialized exchange outputs from finished children sections)
+     * It also reduces the number of tasks of the section when its materialized input is small, see {@link #getCoalescedTaskCount}.
      */
     private StreamingPlanSection tryCostBasedOptimize(StreamingPlanSection section)
     {
+        // TODO: re-select the join distribution of sections that have not started from the materialized statistics,
+        // switching between partitioned and broadcast joins needs the section to be fragmented again
+
         // no need to do runtime optimization if no materialized exchange data is utilized by the section.
         if (!isRuntimeOptimizerEnabled(session) || section.getChildren().isEmpty()) {
             return section;
@@ -631,25 +648,116 @@ public class SqlQueryScheduler
                     }
                 });
 
-        // Early exit when no stage's fragment is changed
-        if (oldToNewFragment.isEmpty()) {
+        OptionalInt coalescedTaskCount = getCoalescedTaskCount(section);
+
+        // Early exit when no stage's fragment or task count is changed
+        if (oldToNewFragment.isEmpty() && !coalescedTaskCount.isPresent()) {
             return section;
         }
 
-        oldToNewFragment.forEach((oldFragment, newFragment) -> runtimeOptimizedStages.add(getStageId(oldFragment.getId())));
+        if (!oldToNewFragment.isEmpty()) {
+            oldToNewFragment.forEach((oldFragment, newFragment) -> runtimeOptimizedStages.add(getStageId(oldFragment.getId())));
 
-        // Update SubPlan so that getStageInfo will reflect the latest optimized plan when query is finished.
-        updatePlan(oldToNewFragment);
+            // Update SubPlan so that getStageInfo will reflect the latest optimized plan when query is finished.
+            updatePlan(oldToNewFragment);
+            log.debug("Invoked CBO during runtime, optimized stage IDs: " + oldToNewFragment.keySet().stream()
+                    .map(PlanFragment::getId)
+                    .map(PlanFragmentId::toString)
+                    .collect(Collectors.joining(", ")));
+        }
+        if (coalescedTaskCount.isPresent()) {
+            stream(forTree(StreamingSubPlan::getChildren).depthFirstPreOrder(section.getPlan()))
+                    .forEach(subPlan -> runtimeOptimizedStages.add(getStageId(subPlan.getFragment().getId())));
+            log.debug("Coalesced section with root stage %s to %s tasks", getStageId(section.getPlan().getFragment().getId()), coalescedTaskCount.getAsInt());
+        }
 
         // Rebuild and update entries of the stageExecutions map.
-        updateStageExecutions(section, oldToNewFragment);
-        log.debug("Invoked CBO during runtime, optimized stage IDs: " + oldToNewFragment.keySet().stream()
-                .map(PlanFragment::getId)
-                .map(PlanFragmentId::toString)
-                .collect(Collectors.joining(", ")));
+        updateStageExecutions(section, oldToNewFragment, coalescedTaskCount.orElse(getMaxTasksPerStage(session)));
         return section;
     }
 
+    /**
+     * When every stage of the section reads only from materialized exchanges and streaming exchanges within the section,
+     * the section processes the data written by its children sections. If that data is smaller than the target task input
+     * size times the number of tasks the planner would use, the hash partitions of the materialized exchanges are
+     * coalesced onto fewer tasks. Stages whose nodes are fixed by the connector keep their node assignment.
+     */
+    private OptionalInt getCoalescedTaskCount(StreamingPlanSection section)
+    {
+        return getCoalescedTaskCount(
+                session,
+                section,
+                fragmentId -> getStageExecution(fragmentId).getState(),
+                fragmentId -> getStageExecution(fragmentId).getStageExecutionInfo().getStats().getPhysicalWrittenDataSizeInBytes());
+    }
+
+    @VisibleForTesting
+    static OptionalInt getCoalescedTaskCount(
+            Session session,
+            StreamingPlanSection section,
+            Function<PlanFragmentId, StageExecutionState> stageState,
+            ToLongFunction<PlanFragmentId> physicalWrittenDataSize)
+    {
+        long targetTaskInputSize = getRuntimeOptimizerTargetTaskInputSize(session).toBytes();
+        if (targetTaskInputSize == 0) {
+            return OptionalInt.empty();
+        }
+        if (!readsOnlyMaterializedExchanges(section)) {
+            // the other tables the section scans are not accounted for by the materialized input
+            return OptionalInt.empty();
+        }
+
+        long materializedInputSize = 0;
+        for (StreamingPlanSection child : section.getChildren()) {
+            if (stageState.apply(child.getPlan().getFragment().getId()) != FINISHED) {
+                // with enhanced CTE scheduling the section can start before all its inputs are written
+                return OptionalInt.empty();
+            }
+            materializedInputSize += stream(forTree(StreamingSubPlan::getChildren).depthFirstPreOrder(child.getPlan()))
+                    .mapToLong(subPlan -> physicalWrittenDataSize.applyAsLong(subPlan.getFragment().getId()))
+                    .sum();
+        }
+
+        long taskCount = max(1, (materializedInputSize + targetTaskInputSize - 1) / targetTaskInputSize);
+        if (taskCount >= getMaxTasksPerStage(session)) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of(toIntExact(taskCount));
+    }
+
+    /**
+     * A materialized exchange is planned as a temporary table that a child section writes and
+     * the section scans. Scans of any other table, including bucketed tables read by fragments with
+     * the connector partitioning as the temporary tables are, read data that is not materialized input.
+     */
+    private static boolean readsOnlyMaterializedExchanges(StreamingPlanSection section)
+    {
+        List<TableHandle> exchangeTables = section.getChildren().stream()
+                .flatMap(child -> stream(forTree(StreamingSubPlan::getChildren).depthFirstPreOrder(child.getPlan())))
+                .flatMap(subPlan -> searchFrom(subPlan.getFragment().getRoot())
+                        .where(TableFinishNode.class::isInstance)
+                        .<TableFinishNode>findAll()
+                        .stream())
+                .map(TableFinishNode::getTarget)
+                .filter(target -> target.isPresent() && target.get() instanceof InsertReference)
+                .map(target -> ((InsertReference) target.get()).getHandle())
+                .collect(toImmutableList());
+
+        return stream(forTree(StreamingSubPlan::getChildren).depthFirstPreOrder(section.getPlan()))
+                .flatMap(subPlan -> searchFrom(subPlan.getFragment().getRoot())
+                        .where(TableScanNode.class::isInstance)
+                        .<TableScanNode>findAll()
+                        .stream())
+                .allMatch(scan -> exchangeTables.stream().anyMatch(table -> isSameTable(scan.getTable(), table)));
+    }
+
+    // the scan reads the temporary table through the layout selected for it, which the written handle does not have
+    private static boolean isSameTable(TableHandle scanned, TableHandle written)
+    {
+        return scanned.getConnectorId().equals(written.getConnectorId()) &&
+                scanned.getConnectorHandle().equals(written.getConnectorHandle());
+    }
+
     private Optional<PlanFragment> performRuntimeOptimizations(StreamingSubPlan subPlan)
     {
         PlanFragment fragment = subPlan.getFragment();
@@ -682,7 +790,7 @@ public class SqlQueryScheduler
     /**
      * Utility function that rebuild a StreamingPlanSection, re-create stageExecutionAndScheduler for each of its stage, and finally update the stageExecutions map.
      */
-    private void updateStageExecutions(StreamingPlanSection section, Map<PlanFragment, PlanFragment> oldToNewFragment)
+    private void updateStageExecutions(StreamingPlanSection section, Map<PlanFragment, PlanFragment> oldToNewFragment, int maxTasksPerStage)
     {
         StreamingPlanSection newSection = new StreamingPlanSection(rewriteStreamingSubPlan(section.getPlan(), oldToNewFragment), section.getChildren());
         PlanFragment sectionRootFragment = newSection.getPlan().getFragment();
@@ -713,7 +821,8 @@ public class SqlQueryScheduler
                 remoteTaskFactory,
                 splitSourceFactory,
                 0,
-                cteMaterializationTracker);
+                cteMaterializationTracker,
+                maxTasksPerStage);
         addStateChangeListeners(sectionExecution);
         Map<StageId, StageExecutionAndScheduler> updatedStageExecutions = sectionExecution.getSectionStages().stream()
                 .collect(toImmutableMap(execution -> execution.getStageExecution().getStageExecutionId().getStageId(), identity()));
@@ -33,7 +33,8 @@ public final class ArrayPositionLinks
             implements PositionLinks.FactoryBuilder
     {
         private final int[] positionLinks;
-        private int size;
+        // only ever set to false, so concurrent links do not race
+        private boolean empty = true;
 
         private FactoryBuilder(int size)
         {
@@ -44,11 +45,18 @@ public final class ArrayPositionLinks
         @Override
         public int link(int left, int right)
         {
-            size++;
+            empty = false;
             positionLinks[left] = right;
             return left;
         }
 
+        @Override
+        public boolean supportsConcurrentLinks()
+        {
+            // every position is linked once, to the previous position of its key
+            return true;
+        }
+
         @Override
         public PositionLinks.Factory build()
         {
@@ -71,7 +79,7 @@ public final class ArrayPositionLinks
         @Override
         public boolean isEmpty()
         {
-            return size == 0;
+            return empty;
         }
     }
 
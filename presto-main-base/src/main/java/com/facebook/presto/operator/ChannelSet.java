@@ -20,10 +20,12 @@ import com.facebook.presto.sql.gen.JoinCompiler;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
 import static com.facebook.presto.SystemSessionProperties.isDictionaryAggregationEnabled;
+import static com.facebook.presto.SystemSessionProperties.isFlatGroupByHashEnabled;
 import static com.facebook.presto.common.type.UnknownType.UNKNOWN;
 import static com.facebook.presto.operator.GroupByHash.createGroupByHash;
 import static java.util.Objects.requireNonNull;
@@ -86,6 +88,11 @@ public class ChannelSet
         private final LocalMemoryContext localMemoryContext;
 
         public ChannelSetBuilder(Type type, Optional<Integer> hashChannel, int expectedPositions, OperatorContext operatorContext, JoinCompiler joinCompiler)
+        {
+            this(type, hashChannel, expectedPositions, operatorContext, operatorContext.localUserMemoryContext(), joinCompiler);
+        }
+
+        public ChannelSetBuilder(Type type, Optional<Integer> hashChannel, int expectedPositions, OperatorContext operatorContext, LocalMemoryContext localMemoryContext, JoinCompiler joinCompiler)
         {
             List<Type> types = ImmutableList.of(type);
             this.hash = createGroupByHash(
@@ -94,11 +101,12 @@ public class ChannelSet
                     hashChannel,
                     expectedPositions,
                     isDictionaryAggregationEnabled(operatorContext.getSession()),
+                    isFlatGroupByHashEnabled(operatorContext.getSession()),
                     joinCompiler,
                     this::updateMemoryReservation);
             this.nullBlockPage = new Page(type.createBlockBuilder(null, 1, UNKNOWN.getFixedSize()).appendNull().build());
             this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
-            this.localMemoryContext = operatorContext.localUserMemoryContext();
+            this.localMemoryContext = requireNonNull(localMemoryContext, "localMemoryContext is null");
         }
 
         public ChannelSet build()
@@ -116,6 +124,14 @@ public class ChannelSet
             return hash.getGroupCount();
         }
 
+        /**
+         * Returns the distinct values added so far, laid out like the input pages.
+         */
+        public Iterator<Page> getPages()
+        {
+            return hash.getGroupValues(hash.getGroupCount());
+        }
+
         public Work<?> addPage(Page page)
         {
             // Just add the page to the pending work, which will be processed later.
@@ -19,8 +19,10 @@ import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockBuilder;
 import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.predicate.ValueBloomFilter;
 import com.facebook.presto.common.predicate.ValueSet;
 import com.facebook.presto.common.type.Type;
+import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.aggregation.TypedSet;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.google.common.collect.ImmutableList;
@@ -28,9 +30,11 @@ import com.google.common.collect.ImmutableMap;
 import jakarta.annotation.Nullable;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import static com.facebook.airlift.units.DataSize.Unit.BYTE;
 import static com.facebook.presto.common.predicate.Range.range;
 import static com.facebook.presto.common.type.DoubleType.DOUBLE;
 import static com.facebook.presto.common.type.RealType.REAL;
@@ -45,12 +49,15 @@ import static java.util.stream.Collectors.toSet;
  * This operator acts as a simple "pass-through" pipe, while saving its input pages.
  * The collected pages' value are used for creating a run-time filtering constraint (for probe-side table scan in an inner join).
  * We record all values for the run-time filter only for small build-side pages (which should be the case when using "broadcast" join).
- * For large inputs on build side, we can optionally record the min and max values per channel for orderable types (except Double and Real).
+ * For large inputs on build side, we can optionally record the min and max values per channel for orderable types (except Double and Real),
+ * and a Bloom filter of the values per channel for the types supported by {@link ValueBloomFilter}.
  */
 public class DynamicFilterSourceOperator
         implements Operator
 {
     private static final int EXPECTED_BLOCK_BUILDER_SIZE = 8;
+    // Bloom filters which would let through too many values are not worth shipping to the probe side
+    private static final double MAX_BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY = 0.25;
 
     public static class Channel
     {
@@ -92,6 +99,8 @@ public class DynamicFilterSourceOperator
         private final DataSize maxFilterSize;
         private final int minMaxCollectionLimit;
         private final boolean useNewNanDefinition;
+        private final Consumer<Map<String, ValueBloomFilter>> bloomFilterConsumer;
+        private final DataSize bloomFilterSize;
 
         private boolean closed;
 
@@ -104,6 +113,25 @@ public class DynamicFilterSourceOperator
                 DataSize maxFilterSize,
                 int minMaxCollectionLimit,
                 boolean useNewNanDefinition)
+        {
+            this(operatorId, planNodeId, dynamicPredicateConsumer, channels, maxFilterPositionsCount, maxFilterSize, minMaxCollectionLimit, useNewNanDefinition, bloomFilters -> {}, new DataSize(0, BYTE));
+        }
+
+        /**
+         * @param bloomFilterConsumer called once per operator when it finishes, if {@code bloomFilterSize} is not zero
+         * @param bloomFilterSize size of the per channel Bloom filters collected once the exact predicate becomes too large, zero disables them
+         */
+        public DynamicFilterSourceOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                Consumer<TupleDomain<String>> dynamicPredicateConsumer,
+                List<Channel> channels,
+                int maxFilterPositionsCount,
+                DataSize maxFilterSize,
+                int minMaxCollectionLimit,
+                boolean useNewNanDefinition,
+                Consumer<Map<String, ValueBloomFilter>> bloomFilterConsumer,
+                DataSize bloomFilterSize)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -119,6 +147,8 @@ public class DynamicFilterSourceOperator
             this.maxFilterSize = maxFilterSize;
             this.minMaxCollectionLimit = minMaxCollectionLimit;
             this.useNewNanDefinition = useNewNanDefinition;
+            this.bloomFilterConsumer = requireNonNull(bloomFilterConsumer, "bloomFilterConsumer is null");
+            this.bloomFilterSize = requireNonNull(bloomFilterSize, "bloomFilterSize is null");
         }
 
         @Override
@@ -133,7 +163,9 @@ public class DynamicFilterSourceOperator
                     maxFilterPositionsCount,
                     maxFilterSize,
                     minMaxCollectionLimit,
-                    useNewNanDefinition);
+                    useNewNanDefinition,
+                    bloomFilterConsumer,
+                    bloomFilterSize);
         }
 
         @Override
@@ -157,6 +189,9 @@ public class DynamicFilterSourceOperator
     private final List<Channel> channels;
     private final List<Integer> minMaxChannels;
     private final boolean useNewNanDefinition;
+    private final Consumer<Map<String, ValueBloomFilter>> bloomFilterConsumer;
+    private final long bloomFilterSizeInBytes;
+    private final LocalMemoryContext bloomFilterMemoryContext;
 
     private boolean finished;
     private Page current;
@@ -173,6 +208,10 @@ public class DynamicFilterSourceOperator
     @Nullable
     private Block[] maxValues;
 
+    // Created when the exact predicate becomes too large, null for channels of unsupported types.
+    @Nullable
+    private ValueBloomFilter[] bloomFilters;
+
     private DynamicFilterSourceOperator(
             OperatorContext context,
             Consumer<TupleDomain<String>> dynamicPredicateConsumer,
@@ -181,7 +220,9 @@ public class DynamicFilterSourceOperator
             int maxFilterPositionsCount,
             DataSize maxFilterSize,
             int minMaxCollectionLimit,
-            boolean useNewNanDefinition)
+            boolean useNewNanDefinition,
+            Consumer<Map<String, ValueBloomFilter>> bloomFilterConsumer,
+            DataSize bloomFilterSize)
     {
         this.context = requireNonNull(context, "context is null");
         this.maxFilterPositionsCount = maxFilterPositionsCount;
@@ -215,6 +256,9 @@ public class DynamicFilterSourceOperator
             maxValues = new Block[channels.size()];
         }
         this.useNewNanDefinition = useNewNanDefinition;
+        this.bloomFilterConsumer = requireNonNull(bloomFilterConsumer, "bloomFilterConsumer is null");
+        this.bloomFilterSizeInBytes = bloomFilterSize.toBytes();
+        this.bloomFilterMemoryContext = context.localUserMemoryContext();
     }
 
     @Override
@@ -236,6 +280,9 @@ public class DynamicFilterSourceOperator
         current = page;
         if (valueSets == null) {
             // the exact predicate became too large.
+            if (bloomFilters != null) {
+                updateBloomFilters(page);
+            }
             if (minValues == null) {
                 // there are too many rows to collect min/max range
                 return;
@@ -292,11 +339,68 @@ public class DynamicFilterSourceOperator
             }
         }
 
+        if (bloomFilterSizeInBytes > 0) {
+            createBloomFilters();
+        }
+
         // Drop references to collected values.
         valueSets = null;
         blockBuilders = null;
     }
 
+    private void createBloomFilters()
+    {
+        verify(blockBuilders != null, "blockBuilders is null");
+        bloomFilters = new ValueBloomFilter[channels.size()];
+        long retainedSizeInBytes = 0;
+        for (int channelIndex = 0; channelIndex < channels.size(); ++channelIndex) {
+            Type type = channels.get(channelIndex).getType();
+            if (!ValueBloomFilter.isSupported(type)) {
+                continue;
+            }
+            ValueBloomFilter bloomFilter = new ValueBloomFilter(type, bloomFilterSizeInBytes);
+            // seed the filter with the distinct values collected so far
+            Block block = blockBuilders[channelIndex].build();
+            for (int position = 0; position < block.getPositionCount(); ++position) {
+                bloomFilter.add(block, position);
+            }
+            bloomFilters[channelIndex] = bloomFilter;
+            retainedSizeInBytes += bloomFilter.getRetainedSizeInBytes();
+        }
+        bloomFilterMemoryContext.setBytes(retainedSizeInBytes);
+    }
+
+    private void updateBloomFilters(Page page)
+    {
+        verify(bloomFilters != null, "bloomFilters is null");
+        for (int channelIndex = 0; channelIndex < channels.size(); ++channelIndex) {
+            ValueBloomFilter bloomFilter = bloomFilters[channelIndex];
+            if (bloomFilter == null) {
+                continue;
+            }
+            Block block = page.getBlock(channels.get(channelIndex).getIndex());
+            for (int position = 0; position < block.getPositionCount(); ++position) {
+                bloomFilter.add(block, position);
+            }
+        }
+    }
+
+    private void publishBloomFilters()
+    {
+        ImmutableMap.Builder<String, ValueBloomFilter> bloomFiltersBuilder = ImmutableMap.builder();
+        if (bloomFilters != null) {
+            for (int channelIndex = 0; channelIndex < channels.size(); ++channelIndex) {
+                ValueBloomFilter bloomFilter = bloomFilters[channelIndex];
+                if (bloomFilter != null && bloomFilter.getFalsePositiveProbability() <= MAX_BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY) {
+                    bloomFiltersBuilder.put(channels.get(channelIndex).getFilterId(), bloomFilter);
+                }
+            }
+        }
+        bloomFilters = null;
+        bloomFilterMemoryContext.setBytes(0);
+        bloomFilterConsumer.accept(bloomFiltersBuilder.build());
+    }
+
     private void handleMinMaxCollectionLimitExceeded()
     {
         // allow all probe-side values to be read.
@@ -366,6 +470,9 @@ public class DynamicFilterSourceOperator
             return;
         }
         finished = true;
+        if (bloomFilterSizeInBytes > 0) {
+            publishBloomFilters();
+        }
         ImmutableMap.Builder<String, Domain> domainsBuilder = ImmutableMap.builder();
         if (valueSets == null) {
             if (minValues == null) {
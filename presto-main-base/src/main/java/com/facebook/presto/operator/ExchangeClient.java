@@ -45,6 +45,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import static com.facebook.airlift.units.DataSize.Unit.BYTE;
 import static com.facebook.presto.common.block.PageBuilderStatus.DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
+import static com.facebook.presto.spi.page.PageCodecMarker.COMPRESSED;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Throwables.throwIfUnchecked;
@@ -106,6 +107,14 @@ public class ExchangeClient
     @GuardedBy("this")
     private long successfulRequests;
     @GuardedBy("this")
+    private long receivedPages;
+    @GuardedBy("this")
+    private long compressedPages;
+    @GuardedBy("this")
+    private long receivedBytes;
+    @GuardedBy("this")
+    private long uncompressedBytes;
+    @GuardedBy("this")
     private final ExponentialMovingAverage responseSizeExponentialMovingAverage;
 
     private final AtomicBoolean closed = new AtomicBoolean();
@@ -157,7 +166,18 @@ public class ExchangeClient
             if (bufferedPages > 0 && pageBuffer.peekLast() == NO_MORE_PAGES) {
                 bufferedPages--;
             }
-            return new ExchangeClientStatus(bufferRetainedSizeInBytes, maxBufferRetainedSizeInBytes, responseSizeExponentialMovingAverage.get(), successfulRequests, bufferedPages, noMoreLocations, pageBufferClientStatus);
+            return new ExchangeClientStatus(
+                    bufferRetainedSizeInBytes,
+                    maxBufferRetainedSizeInBytes,
+                    responseSizeExponentialMovingAverage.get(),
+                    successfulRequests,
+                    bufferedPages,
+                    noMoreLocations,
+                    pageBufferClientStatus,
+                    receivedPages,
+                    compressedPages,
+                    receivedBytes,
+                    uncompressedBytes);
         }
     }
 
@@ -387,9 +407,15 @@ public class ExchangeClient
         // Compute stats before acquiring the lock
         long pagesRetainedSizeInBytes = 0;
         long responseSize = 0;
+        long responseUncompressedSize = 0;
+        int responseCompressedPages = 0;
         for (SerializedPage page : pages) {
             pagesRetainedSizeInBytes += page.getRetainedSizeInBytes();
             responseSize += page.getSizeInBytes();
+            responseUncompressedSize += page.getUncompressedSizeInBytes();
+            if (COMPRESSED.isSet(page.getPageCodecMarkers())) {
+                responseCompressedPages++;
+            }
         }
 
         List<SettableFuture<?>> notify = ImmutableList.of();
@@ -412,6 +438,10 @@ public class ExchangeClient
 
             successfulRequests++;
             responseSizeExponentialMovingAverage.update(responseSize);
+            receivedPages += pages.size();
+            compressedPages += responseCompressedPages;
+            receivedBytes += responseSize;
+            uncompressedBytes += responseUncompressedSize;
         }
         // Trigger notifications after releasing the lock
         notifyListeners(notify);
@@ -37,6 +37,22 @@ public class ExchangeClientStatus
     private final int bufferedPages;
     private final boolean noMoreLocations;
     private final List<PageBufferClientStatus> pageBufferClientStatuses;
+    private final long receivedPages;
+    private final long compressedPages;
+    private final long receivedBytes;
+    private final long uncompressedBytes;
+
+    public ExchangeClientStatus(
+            long bufferedBytes,
+            long maxBufferedBytes,
+            long averageBytesPerRequest,
+            long successfulRequestsCount,
+            int bufferedPages,
+            boolean noMoreLocations,
+            List<PageBufferClientStatus> pageBufferClientStatuses)
+    {
+        this(bufferedBytes, maxBufferedBytes, averageBytesPerRequest, successfulRequestsCount, bufferedPages, noMoreLocations, pageBufferClientStatuses, 0, 0, 0, 0);
+    }
 
     @JsonCreator
     @ThriftConstructor
@@ -47,7 +63,11 @@ public class ExchangeClientStatus
             @JsonProperty("successfulRequestsCount") long successfulRequestsCount,
             @JsonProperty("bufferedPages") int bufferedPages,
             @JsonProperty("noMoreLocations") boolean noMoreLocations,
-            @JsonProperty("pageBufferClientStatuses") List<PageBufferClientStatus> pageBufferClientStatuses)
+            @JsonProperty("pageBufferClientStatuses") List<PageBufferClientStatus> pageBufferClientStatuses,
+            @JsonProperty("receivedPages") long receivedPages,
+            @JsonProperty("compressedPages") long compressedPages,
+            @JsonProperty("receivedBytes") long receivedBytes,
+            @JsonProperty("uncompressedBytes") long uncompressedBytes)
     {
         this.bufferedBytes = bufferedBytes;
         this.maxBufferedBytes = maxBufferedBytes;
@@ -56,6 +76,10 @@ public class ExchangeClientStatus
         this.bufferedPages = bufferedPages;
         this.noMoreLocations = noMoreLocations;
         this.pageBufferClientStatuses = ImmutableList.copyOf(requireNonNull(pageBufferClientStatuses, "pageBufferClientStatuses is null"));
+        this.receivedPages = receivedPages;
+        this.compressedPages = compressedPages;
+        this.receivedBytes = receivedBytes;
+        this.uncompressedBytes = uncompressedBytes;
     }
 
     @JsonProperty
@@ -107,6 +131,43 @@ public class ExchangeClientStatus
         return pageBufferClientStatuses;
     }
 
+    @JsonProperty
+    @ThriftField(8)
+    public long getReceivedPages()
+    {
+        return receivedPages;
+    }
+
+    /**
+     * Number of received pages which were compressed by the sender.
+     */
+    @JsonProperty
+    @ThriftField(9)
+    public long getCompressedPages()
+    {
+        return compressedPages;
+    }
+
+    /**
+     * Size of the received pages, as sent over the network.
+     */
+    @JsonProperty
+    @ThriftField(10)
+    public long getReceivedBytes()
+    {
+        return receivedBytes;
+    }
+
+    /**
+     * Size of the received pages once decompressed. The ratio of the received bytes to this size is the achieved compression ratio.
+     */
+    @JsonProperty
+    @ThriftField(11)
+    public long getUncompressedBytes()
+    {
+        return uncompressedBytes;
+    }
+
     @Override
     public boolean isFinal()
     {
@@ -124,6 +185,10 @@ public class ExchangeClientStatus
                 .add("bufferedPages", bufferedPages)
                 .add("noMoreLocations", noMoreLocations)
                 .add("pageBufferClientStatuses", pageBufferClientStatuses)
+                .add("receivedPages", receivedPages)
+                .add("compressedPages", compressedPages)
+                .add("receivedBytes", receivedBytes)
+                .add("uncompressedBytes", uncompressedBytes)
                 .toString();
     }
 
@@ -137,7 +202,11 @@ public class ExchangeClientStatus
                 successfulRequestsCount + other.successfulRequestsCount,
                 bufferedPages + other.bufferedPages,
                 noMoreLocations && other.noMoreLocations, // if at least one has some locations, merge has some too
-                ImmutableList.of()); // pageBufferClientStatuses may be long, so we don't want to combine the lists
+                ImmutableList.of(), // pageBufferClientStatuses may be long, so we don't want to combine the lists
+                receivedPages + other.receivedPages,
+                compressedPages + other.compressedPages,
+                receivedBytes + other.receivedBytes,
+                uncompressedBytes + other.uncompressedBytes);
     }
 
     private static long mergeAvgs(long value1, long count1, long value2, long count2)
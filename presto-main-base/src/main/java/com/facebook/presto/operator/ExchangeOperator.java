@@ -78,7 +78,7 @@ public class ExchangeOperator
             return new ExchangeOperator(
                     operatorContext,
                     sourceId,
-                    serdeFactory.createPagesSerde(),
+                    serdeFactory,
                     exchangeClient);
         }
 
@@ -92,19 +92,21 @@ public class ExchangeOperator
     private final OperatorContext operatorContext;
     private final PlanNodeId sourceId;
     private final ExchangeClient exchangeClient;
+    private final PagesSerdeFactory serdeFactory;
     private final PagesSerde serde;
     private ListenableFuture<?> isBlocked = NOT_BLOCKED;
 
     public ExchangeOperator(
             OperatorContext operatorContext,
             PlanNodeId sourceId,
-            PagesSerde serde,
+            PagesSerdeFactory serdeFactory,
             ExchangeClient exchangeClient)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.sourceId = requireNonNull(sourceId, "sourceId is null");
         this.exchangeClient = requireNonNull(exchangeClient, "exchangeClient is null");
-        this.serde = requireNonNull(serde, "serde is null");
+        this.serdeFactory = requireNonNull(serdeFactory, "serdeFactory is null");
+        this.serde = serdeFactory.createPagesSerde();
 
         operatorContext.setInfoSupplier(exchangeClient::getStatus);
     }
@@ -196,6 +198,7 @@ public class ExchangeOperator
     @Override
     public void close()
     {
+        serdeFactory.recordCompressionStats(serde, operatorContext.getRuntimeStats());
         exchangeClient.close();
     }
 }
@@ -0,0 +1,811 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.block.LongArrayBlock;
+import com.facebook.presto.common.block.RunLengthEncodedBlock;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.common.type.VarcharType;
+import com.facebook.presto.operator.scalar.CombineHashFunction;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.function.aggregation.GroupByIdBlock;
+import com.facebook.presto.type.TypeUtils;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import org.openjdk.jol.info.ClassLayout;
+
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.common.type.DateType.DATE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.common.type.SmallintType.SMALLINT;
+import static com.facebook.presto.common.type.TinyintType.TINYINT;
+import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INSUFFICIENT_RESOURCES;
+import static com.facebook.presto.sql.planner.PlannerUtils.INITIAL_HASH_VALUE;
+import static com.facebook.presto.util.HashCollisionsEstimator.estimateNumberOfHashCollisions;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static it.unimi.dsi.fastutil.HashCommon.arraySize;
+import static it.unimi.dsi.fastutil.HashCommon.murmurHash3;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * GroupByHash that stores the keys of each group in a single row-major {@code long[]}
+ * instead of per-channel block builders. Every row holds the raw hash, a null mask and
+ * one slot per fixed-width key. Varchar keys take three slots: the length followed by
+ * up to 16 inline bytes, or by an 8 byte prefix and an offset into a shared byte heap
+ * for longer values.
+ * <p>
+ * The hash table itself is a control byte (7 bits of the raw hash, with the high bit
+ * marking a used slot) and a group id per slot, so the probe loop rejects most
+ * mismatches without touching the row storage.
+ * <p>
+ * This implementation assumes arrays used in the hash are always a power of 2.
+ */
+public class FlatGroupByHash
+        implements GroupByHash
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(FlatGroupByHash.class).instanceSize();
+    private static final float FILL_RATIO = 0.75f;
+
+    private static final int RAW_HASH_OFFSET = 0;
+    private static final int NULL_MASK_OFFSET = 1;
+    private static final int ROW_HEADER_SIZE = 2;
+
+    private static final int FIXED_WIDTH_KEY_SIZE = 1;
+    private static final int VARCHAR_KEY_SIZE = 3;
+    private static final int VARCHAR_INLINE_BYTES = 2 * Long.BYTES;
+
+    private static final byte EMPTY_SLOT = 0;
+    private static final int MAX_KEY_CHANNELS = Long.SIZE;
+    private static final int INITIAL_VARIABLE_WIDTH_CAPACITY = 1024;
+
+    private final List<Type> hashTypes;
+    private final List<Type> types;
+    private final int[] channels;
+    private final boolean[] varcharKeys;
+    private final int[] keyOffsets;
+    private final int rowSize;
+    private final boolean outputRawHash;
+    private final HashGenerator hashGenerator;
+
+    private int hashCapacity;
+    private int maxFill;
+    private int mask;
+    private byte[] controlByHash;
+    private int[] groupIdsByHash;
+
+    // row-major storage of the group keys, rowSize longs per group
+    private long[] rows;
+
+    // storage for varchar keys that do not fit inline
+    private byte[] variableWidthData;
+    private Slice variableWidthSlice;
+    private int variableWidthSize;
+
+    private int nextGroupId;
+    private long hashCollisions;
+    private double expectedHashCollisions;
+
+    // reserve enough memory before rehash
+    private final UpdateMemory updateMemory;
+    private long preallocatedMemoryInBytes;
+    private long currentPageSizeInBytes;
+
+    public FlatGroupByHash(
+            List<? extends Type> hashTypes,
+            int[] hashChannels,
+            Optional<Integer> inputHashChannel,
+            int expectedSize,
+            UpdateMemory updateMemory)
+    {
+        this.hashTypes = ImmutableList.copyOf(requireNonNull(hashTypes, "hashTypes is null"));
+        requireNonNull(hashChannels, "hashChannels is null");
+        requireNonNull(inputHashChannel, "inputHashChannel is null");
+        checkArgument(hashTypes.size() == hashChannels.length, "hashTypes and hashChannels have different sizes");
+        checkArgument(isSupported(hashTypes), "hashTypes are not supported by FlatGroupByHash: %s", hashTypes);
+        checkArgument(expectedSize > 0, "expectedSize must be greater than zero");
+
+        this.channels = hashChannels.clone();
+        this.outputRawHash = inputHashChannel.isPresent();
+        this.types = outputRawHash ? ImmutableList.copyOf(Iterables.concat(hashTypes, ImmutableList.of(BIGINT))) : this.hashTypes;
+        this.hashGenerator = inputHashChannel.isPresent() ? new PrecomputedHashGenerator(inputHashChannel.get()) : new InterpretedHashGenerator(this.hashTypes, hashChannels);
+
+        this.varcharKeys = new boolean[hashChannels.length];
+        this.keyOffsets = new int[hashChannels.length];
+        int offset = ROW_HEADER_SIZE;
+        for (int i = 0; i < hashChannels.length; i++) {
+            varcharKeys[i] = hashTypes.get(i) instanceof VarcharType;
+            keyOffsets[i] = offset;
+            offset += varcharKeys[i] ? VARCHAR_KEY_SIZE : FIXED_WIDTH_KEY_SIZE;
+        }
+        this.rowSize = offset;
+
+        hashCapacity = arraySize(expectedSize, FILL_RATIO);
+        maxFill = calculateMaxFill(hashCapacity);
+        mask = hashCapacity - 1;
+        controlByHash = new byte[hashCapacity];
+        groupIdsByHash = new int[hashCapacity];
+        rows = new long[toIntExact((long) maxFill * rowSize)];
+
+        variableWidthData = new byte[0];
+        variableWidthSlice = Slices.wrappedBuffer(variableWidthData);
+
+        // This interface is used for actively reserving memory (push model) for rehash.
+        // The caller can also query memory usage on this object (pull model)
+        this.updateMemory = requireNonNull(updateMemory, "updateMemory is null");
+    }
+
+    public static boolean isSupported(List<? extends Type> hashTypes)
+    {
+        if (hashTypes.isEmpty() || hashTypes.size() > MAX_KEY_CHANNELS) {
+            return false;
+        }
+        for (Type type : hashTypes) {
+            if (!isSupportedType(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSupportedType(Type type)
+    {
+        // only types whose "not distinct from" semantics match equality of the stored representation
+        return type.equals(BIGINT) ||
+                type.equals(INTEGER) ||
+                type.equals(SMALLINT) ||
+                type.equals(TINYINT) ||
+                type.equals(DATE) ||
+                type.equals(BOOLEAN) ||
+                type instanceof VarcharType;
+    }
+
+    @Override
+    public long getEstimatedSize()
+    {
+        return INSTANCE_SIZE +
+                sizeOf(controlByHash) +
+                sizeOf(groupIdsByHash) +
+                sizeOf(rows) +
+                sizeOf(variableWidthData) +
+                preallocatedMemoryInBytes;
+    }
+
+    @Override
+    public long getHashCollisions()
+    {
+        return hashCollisions;
+    }
+
+    @Override
+    public double getExpectedHashCollisions()
+    {
+        return expectedHashCollisions + estimateNumberOfHashCollisions(getGroupCount(), hashCapacity);
+    }
+
+    @Override
+    public List<Type> getTypes()
+    {
+        return types;
+    }
+
+    @Override
+    public int getGroupCount()
+    {
+        return nextGroupId;
+    }
+
+    @Override
+    public void appendValuesTo(int groupId, PageBuilder pageBuilder, int outputChannelOffset)
+    {
+        checkArgument(groupId >= 0 && groupId < nextGroupId, "invalid groupId: %s", groupId);
+        int rowOffset = groupId * rowSize;
+        long nullMask = rows[rowOffset + NULL_MASK_OFFSET];
+        for (int i = 0; i < channels.length; i++) {
+            BlockBuilder blockBuilder = pageBuilder.getBlockBuilder(outputChannelOffset + i);
+            if ((nullMask & (1L << i)) != 0) {
+                blockBuilder.appendNull();
+            }
+            else if (varcharKeys[i]) {
+                hashTypes.get(i).writeSlice(blockBuilder, getVarcharKey(rowOffset + keyOffsets[i]));
+            }
+            else {
+                writeFixedWidthKey(hashTypes.get(i), blockBuilder, rows[rowOffset + keyOffsets[i]]);
+            }
+        }
+        if (outputRawHash) {
+            BIGINT.writeLong(pageBuilder.getBlockBuilder(outputChannelOffset + channels.length), rows[rowOffset + RAW_HASH_OFFSET]);
+        }
+    }
+
+    @Override
+    public Work<?> addPage(Page page)
+    {
+        currentPageSizeInBytes = page.getRetainedSizeInBytes();
+        if (isRunLengthEncoded(page)) {
+            return new AddRunLengthEncodedPageWork(page);
+        }
+        return new AddPageWork(page);
+    }
+
+    @Override
+    public List<Page> getBufferedPages()
+    {
+        ImmutableList.Builder<Page> inputPages = ImmutableList.builder();
+        PageBuilder pageBuilder = new PageBuilder(hashTypes);
+        for (int groupId = 0; groupId < nextGroupId; groupId++) {
+            pageBuilder.declarePosition();
+            appendKeysTo(groupId, pageBuilder);
+            if (pageBuilder.isFull()) {
+                inputPages.add(pageBuilder.build());
+                pageBuilder.reset();
+            }
+        }
+        if (!pageBuilder.isEmpty()) {
+            inputPages.add(pageBuilder.build());
+        }
+        return inputPages.build();
+    }
+
+    @Override
+    public Work<GroupByIdBlock> getGroupIds(Page page)
+    {
+        currentPageSizeInBytes = page.getRetainedSizeInBytes();
+        if (isRunLengthEncoded(page)) {
+            return new GetRunLengthEncodedGroupIdsWork(page);
+        }
+        return new GetGroupIdsWork(page);
+    }
+
+    @Override
+    public boolean contains(int position, Page page, int[] hashChannels)
+    {
+        long rawHash = INITIAL_HASH_VALUE;
+        for (int i = 0; i < hashChannels.length; i++) {
+            rawHash = CombineHashFunction.getHash(rawHash, TypeUtils.hashPosition(hashTypes.get(i), page.getBlock(hashChannels[i]), position));
+        }
+        return contains(position, page, hashChannels, rawHash);
+    }
+
+    @Override
+    public boolean contains(int position, Page page, int[] hashChannels, long rawHash)
+    {
+        return findGroupId(position, page, hashChannels, rawHash) >= 0;
+    }
+
+    @Override
+    public long getRawHash(int groupId)
+    {
+        return rows[groupId * rowSize + RAW_HASH_OFFSET];
+    }
+
+    @VisibleForTesting
+    @Override
+    public int getCapacity()
+    {
+        return hashCapacity;
+    }
+
+    private int findGroupId(int position, Page page, int[] hashChannels, long rawHash)
+    {
+        int hashPosition = getHashPosition(rawHash, mask);
+        byte control = control(rawHash);
+
+        // look for a slot containing this key
+        while (controlByHash[hashPosition] != EMPTY_SLOT) {
+            if (controlByHash[hashPosition] == control) {
+                int groupId = groupIdsByHash[hashPosition];
+                if (rowNotDistinctFromPosition(groupId, rawHash, position, page, hashChannels)) {
+                    return groupId;
+                }
+            }
+            // increment position and mask to handle wrap around
+            hashPosition = (hashPosition + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int putIfAbsent(int position, Page page)
+    {
+        long rawHash = hashGenerator.hashPosition(position, page);
+        int hashPosition = getHashPosition(rawHash, mask);
+        byte control = control(rawHash);
+
+        // look for an empty slot or a slot containing this key
+        while (controlByHash[hashPosition] != EMPTY_SLOT) {
+            if (controlByHash[hashPosition] == control) {
+                int groupId = groupIdsByHash[hashPosition];
+                if (rowNotDistinctFromPosition(groupId, rawHash, position, page, channels)) {
+                    return groupId;
+                }
+            }
+            // increment position and mask to handle wrap around
+            hashPosition = (hashPosition + 1) & mask;
+            hashCollisions++;
+        }
+
+        return addNewGroup(hashPosition, position, page, rawHash);
+    }
+
+    private int addNewGroup(int hashPosition, int position, Page page, long rawHash)
+    {
+        int groupId = nextGroupId++;
+        int rowOffset = groupId * rowSize;
+
+        long nullMask = 0;
+        for (int i = 0; i < channels.length; i++) {
+            Block block = page.getBlock(channels[i]);
+            int keyOffset = rowOffset + keyOffsets[i];
+            if (block.isNull(position)) {
+                nullMask |= 1L << i;
+            }
+            else if (varcharKeys[i]) {
+                storeVarcharKey(keyOffset, block, position);
+            }
+            else {
+                rows[keyOffset] = readFixedWidthKey(hashTypes.get(i), block, position);
+            }
+        }
+        rows[rowOffset + RAW_HASH_OFFSET] = rawHash;
+        rows[rowOffset + NULL_MASK_OFFSET] = nullMask;
+
+        // record group id in hash
+        controlByHash[hashPosition] = control(rawHash);
+        groupIdsByHash[hashPosition] = groupId;
+
+        // increase capacity, if necessary
+        if (needRehash()) {
+            tryRehash();
+        }
+        return groupId;
+    }
+
+    private boolean rowNotDistinctFromPosition(int groupId, long rawHash, int position, Page page, int[] hashChannels)
+    {
+        int rowOffset = groupId * rowSize;
+        if (rows[rowOffset + RAW_HASH_OFFSET] != rawHash) {
+            return false;
+        }
+
+        long nullMask = rows[rowOffset + NULL_MASK_OFFSET];
+        for (int i = 0; i < hashChannels.length; i++) {
+            Block block = page.getBlock(hashChannels[i]);
+            boolean rowNull = (nullMask & (1L << i)) != 0;
+            if (block.isNull(position)) {
+                if (!rowNull) {
+                    return false;
+                }
+                continue;
+            }
+            if (rowNull) {
+                return false;
+            }
+
+            int keyOffset = rowOffset + keyOffsets[i];
+            if (varcharKeys[i]) {
+                if (!varcharKeyEquals(keyOffset, block, position)) {
+                    return false;
+                }
+            }
+            else if (rows[keyOffset] != readFixedWidthKey(hashTypes.get(i), block, position)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void storeVarcharKey(int keyOffset, Block block, int position)
+    {
+        int length = block.getSliceLength(position);
+        Slice value = block.getSlice(position, 0, length);
+        rows[keyOffset] = length;
+        rows[keyOffset + 1] = packBytes(value, 0, length);
+        if (length <= VARCHAR_INLINE_BYTES) {
+            rows[keyOffset + 2] = packBytes(value, Long.BYTES, length);
+            return;
+        }
+
+        ensureVariableWidthCapacity(length);
+        value.getBytes(0, variableWidthData, variableWidthSize, length);
+        rows[keyOffset + 2] = variableWidthSize;
+        variableWidthSize += length;
+    }
+
+    private boolean varcharKeyEquals(int keyOffset, Block block, int position)
+    {
+        int length = block.getSliceLength(position);
+        if (rows[keyOffset] != length) {
+            return false;
+        }
+        Slice value = block.getSlice(position, 0, length);
+        if (rows[keyOffset + 1] != packBytes(value, 0, length)) {
+            return false;
+        }
+        if (length <= VARCHAR_INLINE_BYTES) {
+            return rows[keyOffset + 2] == packBytes(value, Long.BYTES, length);
+        }
+        return variableWidthSlice.equals(toIntExact(rows[keyOffset + 2]), length, value, 0, length);
+    }
+
+    private Slice getVarcharKey(int keyOffset)
+    {
+        int length = toIntExact(rows[keyOffset]);
+        if (length > VARCHAR_INLINE_BYTES) {
+            return Slices.copyOf(variableWidthSlice, toIntExact(rows[keyOffset + 2]), length);
+        }
+        Slice value = Slices.allocate(length);
+        for (int i = 0; i < length; i++) {
+            long packed = rows[keyOffset + 1 + i / Long.BYTES];
+            value.setByte(i, (int) (packed >>> ((i % Long.BYTES) * Byte.SIZE)));
+        }
+        return value;
+    }
+
+    private void ensureVariableWidthCapacity(int length)
+    {
+        long requiredSize = (long) variableWidthSize + length;
+        if (requiredSize <= variableWidthData.length) {
+            return;
+        }
+        long newSize = max(requiredSize, max(INITIAL_VARIABLE_WIDTH_CAPACITY, variableWidthData.length * 2L));
+        if (newSize > Integer.MAX_VALUE - 8) {
+            if (requiredSize > Integer.MAX_VALUE - 8) {
+                throw new PrestoException(GENERIC_INSUFFICIENT_RESOURCES, "Size of group by keys cannot exceed 2GB");
+            }
+            newSize = Integer.MAX_VALUE - 8;
+        }
+        byte[] newData = new byte[toIntExact(newSize)];
+        System.arraycopy(variableWidthData, 0, newData, 0, variableWidthSize);
+        variableWidthData = newData;
+        variableWidthSlice = Slices.wrappedBuffer(variableWidthData);
+    }
+
+    private void appendKeysTo(int groupId, PageBuilder pageBuilder)
+    {
+        int rowOffset = groupId * rowSize;
+        long nullMask = rows[rowOffset + NULL_MASK_OFFSET];
+        for (int i = 0; i < channels.length; i++) {
+            BlockBuilder blockBuilder = pageBuilder.getBlockBuilder(i);
+            if ((nullMask & (1L << i)) != 0) {
+                blockBuilder.appendNull();
+            }
+            else if (varcharKeys[i]) {
+                hashTypes.get(i).writeSlice(blockBuilder, getVarcharKey(rowOffset + keyOffsets[i]));
+            }
+            else {
+                writeFixedWidthKey(hashTypes.get(i), blockBuilder, rows[rowOffset + keyOffsets[i]]);
+            }
+        }
+    }
+
+    private boolean needRehash()
+    {
+        return nextGroupId >= maxFill;
+    }
+
+    private boolean tryRehash()
+    {
+        long newCapacityLong = hashCapacity * 2L;
+        if (newCapacityLong > Integer.MAX_VALUE) {
+            throw new PrestoException(GENERIC_INSUFFICIENT_RESOURCES, "Size of hash table cannot exceed 1 billion entries");
+        }
+        int newCapacity = toIntExact(newCapacityLong);
+        int newMaxFill = calculateMaxFill(newCapacity);
+        long newRowsSize = (long) newMaxFill * rowSize;
+        if (newRowsSize > Integer.MAX_VALUE - 8) {
+            throw new PrestoException(GENERIC_INSUFFICIENT_RESOURCES, "Size of group by keys cannot exceed 2GB");
+        }
+
+        // An estimate of how much extra memory is needed before we can go ahead and expand the hash table.
+        // This includes the new capacity for controlByHash, groupIdsByHash and rows as well as the size of the current page
+        preallocatedMemoryInBytes = newCapacity * (long) (Byte.BYTES + Integer.BYTES) +
+                newRowsSize * Long.BYTES +
+                currentPageSizeInBytes;
+        if (!updateMemory.update()) {
+            // reserved memory but has exceeded the limit
+            return false;
+        }
+
+        expectedHashCollisions += estimateNumberOfHashCollisions(getGroupCount(), hashCapacity);
+
+        int newMask = newCapacity - 1;
+        byte[] newControlByHash = new byte[newCapacity];
+        int[] newGroupIdsByHash = new int[newCapacity];
+
+        // the raw hash is stored inline, so the keys never have to be re-hashed
+        for (int groupId = 0; groupId < nextGroupId; groupId++) {
+            long rawHash = rows[groupId * rowSize + RAW_HASH_OFFSET];
+            int hashPosition = getHashPosition(rawHash, newMask);
+            while (newControlByHash[hashPosition] != EMPTY_SLOT) {
+                hashPosition = (hashPosition + 1) & newMask;
+                hashCollisions++;
+            }
+            newControlByHash[hashPosition] = control(rawHash);
+            newGroupIdsByHash[hashPosition] = groupId;
+        }
+
+        long[] newRows = new long[toIntExact(newRowsSize)];
+        System.arraycopy(rows, 0, newRows, 0, nextGroupId * rowSize);
+
+        this.mask = newMask;
+        this.hashCapacity = newCapacity;
+        this.maxFill = newMaxFill;
+        this.controlByHash = newControlByHash;
+        this.groupIdsByHash = newGroupIdsByHash;
+        this.rows = newRows;
+
+        preallocatedMemoryInBytes = 0;
+        // release temporary memory reservation
+        updateMemory.update();
+        return true;
+    }
+
+    private boolean isRunLengthEncoded(Page page)
+    {
+        for (int i = 0; i < channels.length; i++) {
+            if (!(page.getBlock(channels[i]) instanceof RunLengthEncodedBlock)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long readFixedWidthKey(Type type, Block block, int position)
+    {
+        if (type.equals(BOOLEAN)) {
+            return BOOLEAN.getBoolean(block, position) ? 1 : 0;
+        }
+        return type.getLong(block, position);
+    }
+
+    private static void writeFixedWidthKey(Type type, BlockBuilder blockBuilder, long value)
+    {
+        if (type.equals(BOOLEAN)) {
+            BOOLEAN.writeBoolean(blockBuilder, value != 0);
+            return;
+        }
+        type.writeLong(blockBuilder, value);
+    }
+
+    // packs up to 8 bytes of the value starting at offset into a long, little endian, zero padded
+    private static long packBytes(Slice value, int offset, int length)
+    {
+        int count = min(Long.BYTES, length - offset);
+        if (count <= 0) {
+            return 0;
+        }
+        if (count == Long.BYTES) {
+            return value.getLong(offset);
+        }
+        long packed = 0;
+        for (int i = 0; i < count; i++) {
+            packed |= (value.getByte(offset + i) & 0xFFL) << (i * Byte.SIZE);
+        }
+        return packed;
+    }
+
+    private static byte control(long rawHash)
+    {
+        return (byte) (rawHash | 0x80);
+    }
+
+    private static int getHashPosition(long rawHash, int mask)
+    {
+        return (int) (murmurHash3(rawHash) & mask);
+    }
+
+    private static int calculateMaxFill(int hashSize)
+    {
+        checkArgument(hashSize > 0, "hashSize must be greater than 0");
+        int maxFill = (int) Math.ceil(hashSize * FILL_RATIO);
+        if (maxFill == hashSize) {
+            maxFill--;
+        }
+        checkArgument(hashSize > maxFill, "hashSize must be larger than maxFill");
+        return maxFill;
+    }
+
+    private class AddPageWork
+            implements Work<Void>
+    {
+        private final Page page;
+
+        private int lastPosition;
+
+        public AddPageWork(Page page)
+        {
+            this.page = requireNonNull(page, "page is null");
+        }
+
+        @Override
+        public boolean process()
+        {
+            int positionCount = page.getPositionCount();
+            checkState(lastPosition <= positionCount, "position count out of bound");
+
+            // needRehash() == true indicates we have reached capacity boundary and a rehash is needed.
+            // We can only proceed if tryRehash() successfully did a rehash.
+            if (needRehash() && !tryRehash()) {
+                return false;
+            }
+
+            // putIfAbsent will rehash automatically if rehash is needed, unless there isn't enough memory to do so.
+            // Therefore needRehash will not generally return true even if we have just crossed the capacity boundary.
+            while (lastPosition < positionCount && !needRehash()) {
+                putIfAbsent(lastPosition, page);
+                lastPosition++;
+            }
+            return lastPosition == positionCount;
+        }
+
+        @Override
+        public Void getResult()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class AddRunLengthEncodedPageWork
+            implements Work<Void>
+    {
+        private final Page page;
+
+        private boolean finished;
+
+        public AddRunLengthEncodedPageWork(Page page)
+        {
+            this.page = requireNonNull(page, "page is null");
+        }
+
+        @Override
+        public boolean process()
+        {
+            checkState(!finished);
+            if (page.getPositionCount() == 0) {
+                finished = true;
+                return true;
+            }
+
+            // needRehash() == true indicates we have reached capacity boundary and a rehash is needed.
+            // We can only proceed if tryRehash() successfully did a rehash.
+            if (needRehash() && !tryRehash()) {
+                return false;
+            }
+
+            // Only needs to process the first row since it is Run Length Encoded
+            putIfAbsent(0, page);
+            finished = true;
+            return true;
+        }
+
+        @Override
+        public Void getResult()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class GetGroupIdsWork
+            implements Work<GroupByIdBlock>
+    {
+        private final long[] groupIds;
+        private final Page page;
+
+        private boolean finished;
+        private int lastPosition;
+
+        public GetGroupIdsWork(Page page)
+        {
+            this.page = requireNonNull(page, "page is null");
+            // we know the exact size required for the block
+            this.groupIds = new long[page.getPositionCount()];
+        }
+
+        @Override
+        public boolean process()
+        {
+            int positionCount = page.getPositionCount();
+            checkState(lastPosition <= positionCount, "position count out of bound");
+            checkState(!finished);
+
+            // needRehash() == true indicates we have reached capacity boundary and a rehash is needed.
+            // We can only proceed if tryRehash() successfully did a rehash.
+            if (needRehash() && !tryRehash()) {
+                return false;
+            }
+
+            // putIfAbsent will rehash automatically if rehash is needed, unless there isn't enough memory to do so.
+            // Therefore needRehash will not generally return true even if we have just crossed the capacity boundary.
+            while (lastPosition < positionCount && !needRehash()) {
+                groupIds[lastPosition] = putIfAbsent(lastPosition, page);
+                lastPosition++;
+            }
+            return lastPosition == positionCount;
+        }
+
+        @Override
+        public GroupByIdBlock getResult()
+        {
+            checkState(lastPosition == page.getPositionCount(), "process has not yet finished");
+            checkState(!finished, "result has produced");
+            finished = true;
+            return new GroupByIdBlock(nextGroupId, new LongArrayBlock(groupIds.length, Optional.empty(), groupIds));
+        }
+    }
+
+    private class GetRunLengthEncodedGroupIdsWork
+            implements Work<GroupByIdBlock>
+    {
+        private final Page page;
+
+        int groupId = -1;
+        private boolean processFinished;
+        private boolean resultProduced;
+
+        public GetRunLengthEncodedGroupIdsWork(Page page)
+        {
+            this.page = requireNonNull(page, "page is null");
+        }
+
+        @Override
+        public boolean process()
+        {
+            checkState(!processFinished);
+            if (page.getPositionCount() == 0) {
+                processFinished = true;
+                return true;
+            }
+
+            // needRehash() == true indicates we have reached capacity boundary and a rehash is needed.
+            // We can only proceed if tryRehash() successfully did a rehash.
+            if (needRehash() && !tryRehash()) {
+                return false;
+            }
+
+            // Only needs to process the first row since it is Run Length Encoded
+            groupId = putIfAbsent(0, page);
+            processFinished = true;
+            return true;
+        }
+
+        @Override
+        public GroupByIdBlock getResult()
+        {
+            checkState(processFinished);
+            checkState(!resultProduced);
+            resultProduced = true;
+
+            return new GroupByIdBlock(
+                    nextGroupId,
+                    new RunLengthEncodedBlock(
+                            BIGINT.createFixedSizeBlockBuilder(1).writeLong(groupId).build(),
+                            page.getPositionCount()));
+        }
+    }
+}
@@ -17,19 +17,32 @@ import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockBuilder;
 import com.facebook.presto.common.type.Type;
+import com.facebook.presto.operator.PartitionedConsumption.Partition;
 import com.facebook.presto.operator.SetBuilderOperator.SetSupplier;
+import com.facebook.presto.operator.exchange.LocalPartitionGenerator;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spiller.PartitioningSpiller;
+import com.facebook.presto.spiller.PartitioningSpillerFactory;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closer;
 import com.google.common.util.concurrent.ListenableFuture;
+import jakarta.annotation.Nullable;
 
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
+import static com.facebook.airlift.concurrent.MoreFutures.addSuccessCallback;
+import static com.facebook.airlift.concurrent.MoreFutures.getDone;
 import static com.facebook.airlift.concurrent.MoreFutures.tryGetFutureValue;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.operator.SpillingUtils.checkSpillSucceeded;
+import static com.facebook.presto.spiller.PartitioningSpillerFactory.unsupportedPartitioningSpillerFactory;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static java.util.Collections.emptyIterator;
 import static java.util.Objects.requireNonNull;
 
 public class HashSemiJoinOperator
@@ -46,9 +59,22 @@ public class HashSemiJoinOperator
         private final List<Type> probeTypes;
         private final int probeJoinChannel;
         private final Optional<Integer> probeJoinHashChannel;
+        private final PartitioningSpillerFactory partitioningSpillerFactory;
         private boolean closed;
 
         public HashSemiJoinOperatorFactory(int operatorId, PlanNodeId planNodeId, SetSupplier setSupplier, List<? extends Type> probeTypes, int probeJoinChannel, Optional<Integer> probeJoinHashChannel)
+        {
+            this(operatorId, planNodeId, setSupplier, probeTypes, probeJoinChannel, probeJoinHashChannel, unsupportedPartitioningSpillerFactory());
+        }
+
+        public HashSemiJoinOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                SetSupplier setSupplier,
+                List<? extends Type> probeTypes,
+                int probeJoinChannel,
+                Optional<Integer> probeJoinHashChannel,
+                PartitioningSpillerFactory partitioningSpillerFactory)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -57,6 +83,7 @@ public class HashSemiJoinOperator
             checkArgument(probeJoinChannel >= 0, "probeJoinChannel is negative");
             this.probeJoinChannel = probeJoinChannel;
             this.probeJoinHashChannel = probeJoinHashChannel;
+            this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
         }
 
         @Override
@@ -64,7 +91,7 @@ public class HashSemiJoinOperator
         {
             checkState(!closed, "Factory is already closed");
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, HashSemiJoinOperator.class.getSimpleName());
-            return new HashSemiJoinOperator(operatorContext, setSupplier, probeJoinChannel, probeJoinHashChannel);
+            return new HashSemiJoinOperator(operatorContext, setSupplier, probeTypes, probeJoinChannel, probeJoinHashChannel, partitioningSpillerFactory);
         }
 
         @Override
@@ -76,19 +103,49 @@ public class HashSemiJoinOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new HashSemiJoinOperatorFactory(operatorId, planNodeId, setSupplier, probeTypes, probeJoinChannel, probeJoinHashChannel);
+            return new HashSemiJoinOperatorFactory(operatorId, planNodeId, setSupplier, probeTypes, probeJoinChannel, probeJoinHashChannel, partitioningSpillerFactory);
         }
     }
 
+    private final List<Type> probeTypes;
     private final int probeJoinChannel;
+    private final Type setType;
+    private final ListenableFuture<?> setBuilt;
     private final ListenableFuture<ChannelSet> channelSetFuture;
+    private final ListenableFuture<SpilledChannelSet> spilledChannelSetFuture;
     private final Optional<Integer> probeHashChannel;
+    private final PartitioningSpillerFactory partitioningSpillerFactory;
 
     private ChannelSet channelSet;
     private Page outputPage;
     private boolean finishing;
 
+    // state of the spilled set, probe input is spilled with the partitioning of the set and joined partition by partition
+    @Nullable
+    private SpilledChannelSet spilledChannelSet;
+    private Optional<PartitioningSpiller> spiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = NOT_BLOCKED;
+    @Nullable
+    private Iterator<Partition<ChannelSet>> setPartitions;
+    private Optional<Partition<ChannelSet>> currentPartition = Optional.empty();
+    @Nullable
+    private ListenableFuture<ChannelSet> unspilledChannelSet;
+    private Iterator<Page> unspilledInputPages = emptyIterator();
+    private boolean unspillingFinished;
+    private boolean closed;
+
     public HashSemiJoinOperator(OperatorContext operatorContext, SetSupplier channelSetFuture, int probeJoinChannel, Optional<Integer> probeHashChannel)
+    {
+        this(operatorContext, channelSetFuture, ImmutableList.of(), probeJoinChannel, probeHashChannel, unsupportedPartitioningSpillerFactory());
+    }
+
+    public HashSemiJoinOperator(
+            OperatorContext operatorContext,
+            SetSupplier channelSetFuture,
+            List<Type> probeTypes,
+            int probeJoinChannel,
+            Optional<Integer> probeHashChannel,
+            PartitioningSpillerFactory partitioningSpillerFactory)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
 
@@ -96,9 +153,14 @@ public class HashSemiJoinOperator
         requireNonNull(channelSetFuture, "hashProvider is null");
         checkArgument(probeJoinChannel >= 0, "probeJoinChannel is negative");
 
+        this.probeTypes = ImmutableList.copyOf(requireNonNull(probeTypes, "probeTypes is null"));
+        this.setType = channelSetFuture.getType();
+        this.setBuilt = channelSetFuture.getSetBuilt();
         this.channelSetFuture = channelSetFuture.getChannelSet();
+        this.spilledChannelSetFuture = channelSetFuture.getSpilledChannelSet();
         this.probeJoinChannel = probeJoinChannel;
         this.probeHashChannel = probeHashChannel;
+        this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
     }
 
     @Override
@@ -116,13 +178,25 @@ public class HashSemiJoinOperator
     @Override
     public boolean isFinished()
     {
+        if (spilledChannelSet != null && spiller.isPresent()) {
+            return unspillingFinished && outputPage == null;
+        }
         return finishing && outputPage == null;
     }
 
     @Override
     public ListenableFuture<?> isBlocked()
     {
-        return channelSetFuture;
+        if (!setBuilt.isDone()) {
+            return setBuilt;
+        }
+        if (!spillInProgress.isDone()) {
+            return spillInProgress;
+        }
+        if (unspilledChannelSet != null) {
+            return unspilledChannelSet;
+        }
+        return NOT_BLOCKED;
     }
 
     @Override
@@ -132,8 +206,12 @@ public class HashSemiJoinOperator
             return false;
         }
 
-        if (channelSet == null) {
+        if (channelSet == null && spilledChannelSet == null) {
             channelSet = tryGetFutureValue(channelSetFuture).orElse(null);
+            spilledChannelSet = tryGetFutureValue(spilledChannelSetFuture).orElse(null);
+        }
+        if (spilledChannelSet != null) {
+            return spillInProgress.isDone();
         }
         return channelSet != null;
     }
@@ -143,11 +221,19 @@ public class HashSemiJoinOperator
     {
         requireNonNull(page, "page is null");
         checkState(!finishing, "Operator is finishing");
-        // use an effectively-final local variable instead of the non-final instance field inside of the loop
-        ChannelSet channelSet = this.channelSet;
-        checkState(channelSet != null, "Set has not been built yet");
         checkState(outputPage == null, "Operator still has pending output");
 
+        if (spilledChannelSet != null) {
+            spillInput(page);
+            return;
+        }
+
+        checkState(channelSet != null, "Set has not been built yet");
+        outputPage = semiJoin(page, channelSet, channelSet.containsNull(), channelSet.isEmpty());
+    }
+
+    private Page semiJoin(Page page, ChannelSet channelSet, boolean setContainsNull, boolean setEmpty)
+    {
         // create the block builder for the new boolean column
         // we know the exact size required for the block
         BlockBuilder blockBuilder = BOOLEAN.createFixedSizeBlockBuilder(page.getPositionCount());
@@ -159,7 +245,7 @@ public class HashSemiJoinOperator
         // update hashing strategy to use probe cursor
         for (int position = 0; position < page.getPositionCount(); position++) {
             if (probeJoinNulls != null && probeJoinNulls.isNull(position)) {
-                if (channelSet.isEmpty()) {
+                if (setEmpty) {
                     BOOLEAN.writeBoolean(blockBuilder, false);
                 }
                 else {
@@ -175,7 +261,7 @@ public class HashSemiJoinOperator
                 else {
                     contains = channelSet.contains(position, probeJoinPage);
                 }
-                if (!contains && channelSet.containsNull()) {
+                if (!contains && setContainsNull) {
                     blockBuilder.appendNull();
                 }
                 else {
@@ -185,14 +271,108 @@ public class HashSemiJoinOperator
         }
 
         // add the new boolean column to the page
-        outputPage = page.appendColumn(blockBuilder.build());
+        return page.appendColumn(blockBuilder.build());
+    }
+
+    private void spillInput(Page page)
+    {
+        checkState(spillInProgress.isDone(), "Previous spill still in progress");
+        checkSpillSucceeded(spillInProgress);
+
+        if (!spiller.isPresent()) {
+            HashGenerator hashGenerator = probeHashChannel.isPresent() ? new PrecomputedHashGenerator(probeHashChannel.get()) : new InterpretedHashGenerator(ImmutableList.of(setType), new int[] {probeJoinChannel});
+            spiller = Optional.of(partitioningSpillerFactory.create(
+                    probeTypes,
+                    new LocalPartitionGenerator(hashGenerator, spilledChannelSet.getPartitionCount()),
+                    operatorContext.getSpillContext().newLocalSpillContext(),
+                    operatorContext.aggregateSystemMemoryContext()));
+        }
+        // rows with null join keys are spilled too, their result only depends on the whole set
+        spillInProgress = spiller.get().partitionAndSpill(page, partition -> true).getSpillingFuture();
     }
 
     @Override
     public Page getOutput()
     {
+        if (outputPage == null && finishing && spilledChannelSet != null && spiller.isPresent() && !unspillingFinished) {
+            outputPage = unspillNext();
+        }
         Page result = outputPage;
         outputPage = null;
         return result;
     }
+
+    @Nullable
+    private Page unspillNext()
+    {
+        if (!spillInProgress.isDone()) {
+            return null;
+        }
+        checkSpillSucceeded(spillInProgress);
+
+        if (setPartitions == null) {
+            setPartitions = spilledChannelSet.getPartitionedConsumption().beginConsumption();
+        }
+
+        while (true) {
+            if (currentPartition.isPresent()) {
+                if (!unspilledChannelSet.isDone()) {
+                    // Not unspilled yet
+                    return null;
+                }
+                if (unspilledInputPages.hasNext()) {
+                    return semiJoin(unspilledInputPages.next(), getDone(unspilledChannelSet), spilledChannelSet.containsNull(), spilledChannelSet.isEmpty());
+                }
+                currentPartition.get().release();
+                currentPartition = Optional.empty();
+                unspilledChannelSet = null;
+            }
+
+            if (!setPartitions.hasNext()) {
+                spiller.get().verifyAllPartitionsRead();
+                unspillingFinished = true;
+                return null;
+            }
+
+            Partition<ChannelSet> partition = setPartitions.next();
+            unspilledInputPages = spiller.get().getSpilledPages(partition.number());
+            if (!unspilledInputPages.hasNext()) {
+                // Nothing to probe, the set partition does not need to be loaded
+                partition.release();
+                continue;
+            }
+            currentPartition = Optional.of(partition);
+            unspilledChannelSet = partition.load();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        // In case of early termination (or when no input has been spilled) release partition consumption to avoid a deadlock
+        if (setPartitions == null) {
+            addSuccessCallback(spilledChannelSetFuture, spilledSet -> spilledSet.getPartitionedConsumption().beginConsumption().forEachRemaining(Partition::release));
+        }
+        currentPartition.ifPresent(Partition::release);
+        currentPartition = Optional.empty();
+        if (setPartitions != null) {
+            while (setPartitions.hasNext()) {
+                setPartitions.next().release();
+            }
+        }
+        unspilledChannelSet = null;
+        unspilledInputPages = emptyIterator();
+
+        try (Closer closer = Closer.create()) {
+            spiller.ifPresent(closer::register);
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -39,9 +39,17 @@ public class JoinProbe
         }
 
         public JoinProbe createJoinProbe(Page page)
+        {
+            return createJoinProbe(page, false);
+        }
+
+        /**
+         * @param batched whether join positions of the whole page are looked up in a single batch on first access
+         */
+        public JoinProbe createJoinProbe(Page page, boolean batched)
         {
             Page probePage = page.getLoadedPage(probeJoinChannels);
-            return new JoinProbe(probeOutputChannels, page, probePage, probeHashChannel >= 0 ? page.getBlock(probeHashChannel).getLoadedBlock() : null);
+            return new JoinProbe(probeOutputChannels, page, probePage, probeHashChannel >= 0 ? page.getBlock(probeHashChannel).getLoadedBlock() : null, batched);
         }
     }
 
@@ -52,11 +60,15 @@ public class JoinProbe
     @Nullable
     private final Block probeHashBlock;
     private final boolean probeMayHaveNull;
+    private final boolean batched;
 
     private int position = -1;
     private int nullRowCount;
+    // join positions indexed by probe position, only populated in batched mode
+    @Nullable
+    private long[] joinPositions;
 
-    private JoinProbe(int[] probeOutputChannels, Page page, Page probePage, @Nullable Block probeHashBlock)
+    private JoinProbe(int[] probeOutputChannels, Page page, Page probePage, @Nullable Block probeHashBlock, boolean batched)
     {
         this.probeOutputChannels = probeOutputChannels;
         this.positionCount = page.getPositionCount();
@@ -64,6 +76,7 @@ public class JoinProbe
         this.probePage = probePage;
         this.probeHashBlock = probeHashBlock;
         this.probeMayHaveNull = probeMayHaveNull(probePage);
+        this.batched = batched;
     }
 
     public int[] getOutputChannels()
@@ -82,6 +95,12 @@ public class JoinProbe
             ++nullRowCount;
             return -1;
         }
+        if (batched) {
+            if (joinPositions == null) {
+                joinPositions = getJoinPositions(lookupSource);
+            }
+            return joinPositions[position];
+        }
         if (probeHashBlock != null) {
             long rawHash = BIGINT.getLong(probeHashBlock, position);
             return lookupSource.getJoinPosition(position, probePage, page, rawHash);
@@ -99,7 +118,44 @@ public class JoinProbe
         return page;
     }
 
+    /**
+     * Looks up join positions of all remaining positions of the page. Rows containing null are skipped,
+     * they are accounted for in {@link #getCurrentJoinPosition} when reached.
+     */
+    private long[] getJoinPositions(LookupSource lookupSource)
+    {
+        int[] positions = new int[positionCount - position];
+        int batchSize = 0;
+        for (int i = position; i < positionCount; i++) {
+            if (!probeMayHaveNull || !rowContainsNull(i)) {
+                positions[batchSize++] = i;
+            }
+        }
+
+        long[] rawHashes = null;
+        if (probeHashBlock != null) {
+            rawHashes = new long[batchSize];
+            for (int i = 0; i < batchSize; i++) {
+                rawHashes[i] = BIGINT.getLong(probeHashBlock, positions[i]);
+            }
+        }
+
+        long[] batchJoinPositions = new long[batchSize];
+        lookupSource.getJoinPositions(positions, batchSize, probePage, page, rawHashes, batchJoinPositions);
+
+        long[] result = new long[positionCount];
+        for (int i = 0; i < batchSize; i++) {
+            result[positions[i]] = batchJoinPositions[i];
+        }
+        return result;
+    }
+
     private boolean currentRowContainsNull()
+    {
+        return rowContainsNull(position);
+    }
+
+    private boolean rowContainsNull(int position)
     {
         for (int i = 0; i < probePage.getChannelCount(); i++) {
             if (probePage.getBlock(i).isNull(position)) {
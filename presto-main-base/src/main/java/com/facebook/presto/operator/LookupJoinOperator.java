@@ -40,6 +40,7 @@ import java.util.function.Supplier;
 
 import static com.facebook.airlift.concurrent.MoreFutures.addSuccessCallback;
 import static com.facebook.airlift.concurrent.MoreFutures.getDone;
+import static com.facebook.presto.SystemSessionProperties.isBatchedJoinProbeEnabled;
 import static com.facebook.presto.operator.LookupJoinOperators.JoinType.FULL_OUTER;
 import static com.facebook.presto.operator.LookupJoinOperators.JoinType.PROBE_OUTER;
 import static com.facebook.presto.operator.SpillingUtils.checkSpillSucceeded;
@@ -95,6 +96,7 @@ public class LookupJoinOperator
     private Optional<ListenableFuture<Supplier<LookupSource>>> unspilledLookupSource = Optional.empty();
     private Iterator<Page> unspilledInputPages = emptyIterator();
     private final boolean optimizeProbeForEmptyBuild;
+    private final boolean batchedJoinProbe;
     private long nullProbeRowCount;
     private long inputProbeRowCount;
 
@@ -131,6 +133,7 @@ public class LookupJoinOperator
 
         this.pageBuilder = new LookupJoinPageBuilder(buildOutputTypes);
         this.optimizeProbeForEmptyBuild = optimizeProbeForEmptyBuild;
+        this.batchedJoinProbe = isBatchedJoinProbeEnabled(operatorContext.getSession());
     }
 
     @Override
@@ -233,7 +236,7 @@ public class LookupJoinOperator
 
         // create probe
         inputPageSpillEpoch = spillInfoSnapshot.getSpillEpoch();
-        probe = joinProbeFactory.createJoinProbe(page);
+        probe = joinProbeFactory.createJoinProbe(page, batchedJoinProbe);
 
         // initialize to invalid join position to force output code to advance the cursors
         joinPosition = -1;
@@ -23,12 +23,15 @@ import com.facebook.presto.spi.function.aggregation.GroupByIdBlock;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.google.common.annotations.VisibleForTesting;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
 import static com.facebook.presto.SystemSessionProperties.isDictionaryAggregationEnabled;
+import static com.facebook.presto.SystemSessionProperties.isFlatGroupByHashEnabled;
 import static com.facebook.presto.operator.GroupByHash.createGroupByHash;
 import static com.google.common.base.Preconditions.checkState;
+import static java.lang.Math.toIntExact;
 
 public class MarkDistinctHash
 {
@@ -42,7 +45,7 @@ public class MarkDistinctHash
 
     public MarkDistinctHash(Session session, List<Type> types, int[] channels, Optional<Integer> hashChannel, int expectedDistinctValues, JoinCompiler joinCompiler, UpdateMemory updateMemory)
     {
-        this.groupByHash = createGroupByHash(types, channels, hashChannel, expectedDistinctValues, isDictionaryAggregationEnabled(session), joinCompiler, updateMemory);
+        this.groupByHash = createGroupByHash(types, channels, hashChannel, expectedDistinctValues, isDictionaryAggregationEnabled(session), isFlatGroupByHashEnabled(session), joinCompiler, updateMemory);
     }
 
     public long getEstimatedSize()
@@ -61,6 +64,15 @@ public class MarkDistinctHash
         return groupByHash.getCapacity();
     }
 
+    /**
+     * Returns the distinct values marked so far, laid out as the distinct channels followed by the hash channel if present.
+     * Values of a page whose marking has not completed yet are not included.
+     */
+    public Iterator<Page> getDistinctValues()
+    {
+        return groupByHash.getGroupValues(toIntExact(nextDistinctId));
+    }
+
     public List<Page> getDistinctPages()
     {
         return groupByHash.getBufferedPages();
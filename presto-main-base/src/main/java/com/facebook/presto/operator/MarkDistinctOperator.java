@@ -17,24 +17,43 @@ import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.operator.exchange.LocalPartitionGenerator;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spiller.PartitioningSpiller;
+import com.facebook.presto.spiller.PartitioningSpillerFactory;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closer;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
+import jakarta.annotation.Nullable;
 
+import java.io.IOException;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
+import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.operator.SpillingUtils.checkSpillSucceeded;
+import static com.facebook.presto.operator.SpillingUtils.spillPages;
+import static com.facebook.presto.spiller.PartitioningSpillerFactory.unsupportedPartitioningSpillerFactory;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.lang.String.format;
+import static java.util.Collections.emptyIterator;
 import static java.util.Objects.requireNonNull;
 
 public class MarkDistinctOperator
         implements Operator
 {
+    @VisibleForTesting
+    static final int SPILL_PARTITION_COUNT = 16;
+
     public static class MarkDistinctOperatorFactory
             implements OperatorFactory
     {
@@ -44,6 +63,8 @@ public class MarkDistinctOperator
         private final List<Integer> markDistinctChannels;
         private final List<Type> types;
         private final JoinCompiler joinCompiler;
+        private final boolean spillEnabled;
+        private final PartitioningSpillerFactory partitioningSpillerFactory;
         private boolean closed;
 
         public MarkDistinctOperatorFactory(
@@ -53,6 +74,19 @@ public class MarkDistinctOperator
                 Collection<Integer> markDistinctChannels,
                 Optional<Integer> hashChannel,
                 JoinCompiler joinCompiler)
+        {
+            this(operatorId, planNodeId, sourceTypes, markDistinctChannels, hashChannel, joinCompiler, false, unsupportedPartitioningSpillerFactory());
+        }
+
+        public MarkDistinctOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> sourceTypes,
+                Collection<Integer> markDistinctChannels,
+                Optional<Integer> hashChannel,
+                JoinCompiler joinCompiler,
+                boolean spillEnabled,
+                PartitioningSpillerFactory partitioningSpillerFactory)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -64,6 +98,8 @@ public class MarkDistinctOperator
                     .addAll(sourceTypes)
                     .add(BOOLEAN)
                     .build();
+            this.spillEnabled = spillEnabled;
+            this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
         }
 
         @Override
@@ -71,7 +107,7 @@ public class MarkDistinctOperator
         {
             checkState(!closed, "Factory is already closed");
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, MarkDistinctOperator.class.getSimpleName());
-            return new MarkDistinctOperator(operatorContext, types, markDistinctChannels, hashChannel, joinCompiler);
+            return new MarkDistinctOperator(operatorContext, types, markDistinctChannels, hashChannel, joinCompiler, spillEnabled, partitioningSpillerFactory);
         }
 
         @Override
@@ -83,24 +119,84 @@ public class MarkDistinctOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new MarkDistinctOperatorFactory(operatorId, planNodeId, types.subList(0, types.size() - 1), markDistinctChannels, hashChannel, joinCompiler);
+            return new MarkDistinctOperatorFactory(operatorId, planNodeId, types.subList(0, types.size() - 1), markDistinctChannels, hashChannel, joinCompiler, spillEnabled, partitioningSpillerFactory);
         }
     }
 
+    @VisibleForTesting
+    public enum State
+    {
+        /**
+         * Operator marks input using the in memory hash
+         */
+        CONSUMING_INPUT,
+
+        /**
+         * Memory revoking occurred during {@link #CONSUMING_INPUT}. The distinct values seen so far have been spilled,
+         * operator accepts input and spills it
+         */
+        SPILLING_INPUT,
+
+        /**
+         * Input has been finished and spilled, operator marks spilled input partition by partition
+         */
+        UNSPILLING,
+
+        /**
+         * All input has been marked and returned
+         */
+        FINISHED
+    }
+
     private final OperatorContext operatorContext;
-    private final MarkDistinctHash markDistinctHash;
+    private final List<Type> distinctTypes;
+    private final int[] markDistinctChannels;
+    private final Optional<Integer> hashChannel;
+    private final JoinCompiler joinCompiler;
     private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext localRevocableMemoryContext;
+
+    private final List<Type> sourceTypes;
+    private final boolean spillEnabled;
+    private final PartitioningSpillerFactory partitioningSpillerFactory;
 
+    @Nullable
+    private MarkDistinctHash markDistinctHash;
+
+    private State state = State.CONSUMING_INPUT;
     private Page inputPage;
     private boolean finishing;
 
     // for yield when memory is not available
     private Work<Block> unfinishedWork;
 
+    // distinct values are spilled laid out as the distinct channels followed by the hash channel if present
+    private Optional<PartitioningSpiller> distinctValuesSpiller = Optional.empty();
+    private Optional<PartitioningSpiller> inputSpiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = NOT_BLOCKED;
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+
+    private int unspillingPartition;
+    private Iterator<Page> unspilledDistinctValues = emptyIterator();
+    private Iterator<Page> unspilledInput = emptyIterator();
+
     public MarkDistinctOperator(OperatorContext operatorContext, List<Type> types, List<Integer> markDistinctChannels, Optional<Integer> hashChannel, JoinCompiler joinCompiler)
+    {
+        this(operatorContext, types, markDistinctChannels, hashChannel, joinCompiler, false, unsupportedPartitioningSpillerFactory());
+    }
+
+    public MarkDistinctOperator(
+            OperatorContext operatorContext,
+            List<Type> types,
+            List<Integer> markDistinctChannels,
+            Optional<Integer> hashChannel,
+            JoinCompiler joinCompiler,
+            boolean spillEnabled,
+            PartitioningSpillerFactory partitioningSpillerFactory)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
 
+        requireNonNull(types, "types is null");
         requireNonNull(hashChannel, "hashChannel is null");
         requireNonNull(markDistinctChannels, "markDistinctChannels is null");
 
@@ -108,8 +204,19 @@ public class MarkDistinctOperator
         for (int channel : markDistinctChannels) {
             distinctTypes.add(types.get(channel));
         }
-        this.markDistinctHash = new MarkDistinctHash(operatorContext.getSession(), distinctTypes.build(), Ints.toArray(markDistinctChannels), hashChannel, joinCompiler, this::updateMemoryReservation);
+        this.distinctTypes = distinctTypes.build();
+        this.markDistinctChannels = Ints.toArray(markDistinctChannels);
+        this.hashChannel = hashChannel;
+        this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
         this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.localRevocableMemoryContext = operatorContext.localRevocableMemoryContext();
+
+        // the last type is the output marker column
+        this.sourceTypes = ImmutableList.copyOf(types.subList(0, types.size() - 1));
+        this.spillEnabled = spillEnabled;
+        this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
+
+        this.markDistinctHash = new MarkDistinctHash(operatorContext.getSession(), this.distinctTypes, this.markDistinctChannels, hashChannel, joinCompiler, this::updateMemoryReservation);
     }
 
     @Override
@@ -118,6 +225,21 @@ public class MarkDistinctOperator
         return operatorContext;
     }
 
+    @VisibleForTesting
+    public State getState()
+    {
+        return state;
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        if (state == State.SPILLING_INPUT) {
+            return spillInProgress;
+        }
+        return NOT_BLOCKED;
+    }
+
     @Override
     public void finish()
     {
@@ -127,13 +249,22 @@ public class MarkDistinctOperator
     @Override
     public boolean isFinished()
     {
-        return finishing && !hasUnfinishedInput();
+        if (state == State.CONSUMING_INPUT) {
+            return finishing && !hasUnfinishedInput();
+        }
+        return state == State.FINISHED;
     }
 
     @Override
     public boolean needsInput()
     {
-        return !finishing && !hasUnfinishedInput();
+        if (finishing) {
+            return false;
+        }
+        if (state == State.CONSUMING_INPUT) {
+            return !hasUnfinishedInput();
+        }
+        return state == State.SPILLING_INPUT && spillInProgress.isDone();
     }
 
     @Override
@@ -142,6 +273,11 @@ public class MarkDistinctOperator
         requireNonNull(page, "page is null");
         checkState(needsInput());
 
+        if (state == State.SPILLING_INPUT) {
+            spillInput(page);
+            return;
+        }
+
         inputPage = page;
 
         unfinishedWork = markDistinctHash.markDistinctRows(page);
@@ -150,6 +286,68 @@ public class MarkDistinctOperator
 
     @Override
     public Page getOutput()
+    {
+        switch (state) {
+            case CONSUMING_INPUT:
+                return getMarkedInput();
+
+            case SPILLING_INPUT:
+                if (!finishing || !spillInProgress.isDone()) {
+                    return null;
+                }
+                checkSpillSucceeded(spillInProgress);
+                state = State.UNSPILLING;
+                startPartitionUnspilling();
+                return getMarkedSpilledInput();
+
+            case UNSPILLING:
+                return getMarkedSpilledInput();
+
+            case FINISHED:
+                return null;
+        }
+
+        throw new IllegalStateException("Unhandled state: " + state);
+    }
+
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        checkState(spillEnabled, "Spill not enabled, no revokable memory should be reserved");
+
+        if (state == State.CONSUMING_INPUT) {
+            finishMemoryRevoke = Optional.of(() -> {
+                markDistinctHash = null;
+                unfinishedWork = null;
+                inputPage = null;
+                localRevocableMemoryContext.setBytes(0);
+                state = State.SPILLING_INPUT;
+            });
+            if (inputPage != null) {
+                // The page has not been returned yet, it is marked in the second pass instead
+                spillInput(inputPage);
+            }
+            // Only values of fully marked pages are spilled, values of a partially processed page must not be considered seen
+            return spillPages(getDistinctValuesSpiller(), markDistinctHash.getDistinctValues());
+        }
+        else if (operatorContext.getReservedRevocableBytes() == 0) {
+            // Probably stale revoking request
+            finishMemoryRevoke = Optional.of(() -> {});
+            return immediateFuture(null);
+        }
+
+        throw new IllegalStateException(format("State %s can not have revocable memory, but has %s revocable bytes", state, operatorContext.getReservedRevocableBytes()));
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        checkState(finishMemoryRevoke.isPresent(), "Cannot finish unknown revoking");
+        finishMemoryRevoke.get().run();
+        finishMemoryRevoke = Optional.empty();
+    }
+
+    private Page getMarkedInput()
     {
         if (unfinishedWork == null) {
             return null;
@@ -169,6 +367,107 @@ public class MarkDistinctOperator
         return outputPage;
     }
 
+    private void spillInput(Page page)
+    {
+        checkState(spillInProgress.isDone(), "Previous spill still in progress");
+        checkSpillSucceeded(spillInProgress);
+        spillInProgress = getInputSpiller().partitionAndSpill(page, partition -> true).getSpillingFuture();
+    }
+
+    private void startPartitionUnspilling()
+    {
+        // The spilled distinct values have the distinct channels first, followed by the hash channel
+        int[] channels = IntStream.range(0, distinctTypes.size()).toArray();
+        Optional<Integer> spilledHashChannel = hashChannel.isPresent() ? Optional.of(distinctTypes.size()) : Optional.empty();
+        markDistinctHash = new MarkDistinctHash(operatorContext.getSession(), distinctTypes, channels, spilledHashChannel, joinCompiler, this::updateMemoryReservation);
+        unspilledDistinctValues = getDistinctValuesSpiller().getSpilledPages(unspillingPartition);
+        unspilledInput = getInputSpiller().getSpilledPages(unspillingPartition);
+    }
+
+    private Page getMarkedSpilledInput()
+    {
+        checkState(state == State.UNSPILLING);
+        while (true) {
+            if (unfinishedWork != null) {
+                if (!unfinishedWork.process()) {
+                    return null;
+                }
+                Block marks = unfinishedWork.getResult();
+                Page page = inputPage;
+                unfinishedWork = null;
+                inputPage = null;
+                updateMemoryReservation();
+                if (page != null) {
+                    return page.appendColumn(marks);
+                }
+            }
+            else if (unspilledDistinctValues.hasNext()) {
+                // values seen before spilling are marked as already seen, the marks are discarded
+                unfinishedWork = markDistinctHash.markDistinctRows(unspilledDistinctValues.next());
+            }
+            else if (unspilledInput.hasNext()) {
+                inputPage = unspilledInput.next();
+                unfinishedWork = markDistinctHash.markDistinctRows(inputPage.extractChannels(getInputHashChannels()));
+            }
+            else {
+                markDistinctHash = null;
+                updateMemoryReservation();
+                unspillingPartition++;
+                if (unspillingPartition == SPILL_PARTITION_COUNT) {
+                    close();
+                    return null;
+                }
+                startPartitionUnspilling();
+            }
+        }
+    }
+
+    private int[] getInputHashChannels()
+    {
+        if (!hashChannel.isPresent()) {
+            return markDistinctChannels;
+        }
+        int[] channels = new int[markDistinctChannels.length + 1];
+        System.arraycopy(markDistinctChannels, 0, channels, 0, markDistinctChannels.length);
+        channels[markDistinctChannels.length] = hashChannel.get();
+        return channels;
+    }
+
+    private PartitioningSpiller getDistinctValuesSpiller()
+    {
+        if (!distinctValuesSpiller.isPresent()) {
+            ImmutableList.Builder<Type> types = ImmutableList.<Type>builder().addAll(distinctTypes);
+            HashGenerator hashGenerator;
+            if (hashChannel.isPresent()) {
+                types.add(BIGINT);
+                hashGenerator = new PrecomputedHashGenerator(distinctTypes.size());
+            }
+            else {
+                hashGenerator = new InterpretedHashGenerator(distinctTypes, IntStream.range(0, distinctTypes.size()).toArray());
+            }
+            distinctValuesSpiller = Optional.of(createSpiller(types.build(), hashGenerator));
+        }
+        return distinctValuesSpiller.get();
+    }
+
+    private PartitioningSpiller getInputSpiller()
+    {
+        if (!inputSpiller.isPresent()) {
+            HashGenerator hashGenerator = hashChannel.isPresent() ? new PrecomputedHashGenerator(hashChannel.get()) : new InterpretedHashGenerator(distinctTypes, markDistinctChannels);
+            inputSpiller = Optional.of(createSpiller(sourceTypes, hashGenerator));
+        }
+        return inputSpiller.get();
+    }
+
+    private PartitioningSpiller createSpiller(List<Type> types, HashGenerator hashGenerator)
+    {
+        return partitioningSpillerFactory.create(
+                types,
+                new LocalPartitionGenerator(hashGenerator, SPILL_PARTITION_COUNT),
+                operatorContext.getSpillContext().newLocalSpillContext(),
+                operatorContext.aggregateSystemMemoryContext());
+    }
+
     private boolean hasUnfinishedInput()
     {
         return inputPage != null || unfinishedWork != null;
@@ -184,13 +483,45 @@ public class MarkDistinctOperator
     // The following implementation is a hybrid model, where the push model is going to call the pull model causing reentrancy
     private boolean updateMemoryReservation()
     {
+        long estimatedSize = markDistinctHash == null ? 0 : markDistinctHash.getEstimatedSize();
         // Operator/driver will be blocked on memory after we call localUserMemoryContext.setBytes().
         // If memory is not available, once we return, this operator will be blocked until memory is available.
-        localUserMemoryContext.setBytes(markDistinctHash.getEstimatedSize());
+        if (spillEnabled && state == State.CONSUMING_INPUT) {
+            // The hash is revocable until it has been spilled
+            localRevocableMemoryContext.setBytes(estimatedSize);
+        }
+        else {
+            localUserMemoryContext.setBytes(estimatedSize);
+        }
         // If memory is not available, inform the caller that we cannot proceed for allocation.
         return operatorContext.isWaitingForMemory().isDone();
     }
 
+    @Override
+    public void close()
+    {
+        // close() can be called in any state, due for example to query failure, and must clean resource up unconditionally
+        state = State.FINISHED;
+        markDistinctHash = null;
+        unfinishedWork = null;
+        inputPage = null;
+        unspilledDistinctValues = emptyIterator();
+        unspilledInput = emptyIterator();
+        finishMemoryRevoke = finishMemoryRevoke.map(ifPresent -> () -> {});
+
+        try (Closer closer = Closer.create()) {
+            distinctValuesSpiller.ifPresent(closer::register);
+            inputSpiller.ifPresent(closer::register);
+            closer.register(() -> localUserMemoryContext.setBytes(0));
+            closer.register(() -> localRevocableMemoryContext.setBytes(0));
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        distinctValuesSpiller = Optional.empty();
+        inputSpiller = Optional.empty();
+    }
+
     @VisibleForTesting
     public int getCapacity()
     {
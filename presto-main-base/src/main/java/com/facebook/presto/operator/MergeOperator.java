@@ -99,7 +99,7 @@ public class MergeOperator
                     operatorContext,
                     sourceId,
                     taskExchangeClientManager,
-                    serdeFactory.createPagesSerde(),
+                    serdeFactory,
                     orderingCompiler.compilePageWithPositionComparator(types, sortChannels, sortOrder),
                     outputChannels,
                     outputTypes);
@@ -115,6 +115,7 @@ public class MergeOperator
     private final OperatorContext operatorContext;
     private final PlanNodeId sourceId;
     private final TaskExchangeClientManager taskExchangeClientManager;
+    private final PagesSerdeFactory serdeFactory;
     private final PagesSerde pagesSerde;
     private final PageWithPositionComparator comparator;
     private final List<Integer> outputChannels;
@@ -132,7 +133,7 @@ public class MergeOperator
             OperatorContext operatorContext,
             PlanNodeId sourceId,
             TaskExchangeClientManager taskExchangeClientManager,
-            PagesSerde pagesSerde,
+            PagesSerdeFactory serdeFactory,
             PageWithPositionComparator comparator,
             List<Integer> outputChannels,
             List<Type> outputTypes)
@@ -140,7 +141,8 @@ public class MergeOperator
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.sourceId = requireNonNull(sourceId, "sourceId is null");
         this.taskExchangeClientManager = requireNonNull(taskExchangeClientManager, "taskExchangeClientManager is null");
-        this.pagesSerde = requireNonNull(pagesSerde, "pagesSerde is null");
+        this.serdeFactory = requireNonNull(serdeFactory, "serdeFactory is null");
+        this.pagesSerde = serdeFactory.createPagesSerde();
         this.comparator = requireNonNull(comparator, "comparator is null");
         this.outputChannels = requireNonNull(outputChannels, "outputChannels is null");
         this.outputTypes = requireNonNull(outputTypes, "outputTypes is null");
@@ -247,6 +249,7 @@ public class MergeOperator
     @Override
     public void close()
     {
+        serdeFactory.recordCompressionStats(pagesSerde, operatorContext.getRuntimeStats());
         try {
             closer.close();
             closed = true;
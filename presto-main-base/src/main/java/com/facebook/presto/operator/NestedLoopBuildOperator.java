@@ -13,15 +13,24 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spi.storage.SerializedStorageHandle;
+import com.facebook.presto.spiller.StandaloneSpiller;
+import com.facebook.presto.spiller.StandaloneSpillerFactory;
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Future;
 
+import static com.facebook.airlift.units.DataSize.Unit.BYTE;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static java.util.Objects.requireNonNull;
 
 public class NestedLoopBuildOperator
@@ -33,14 +42,29 @@ public class NestedLoopBuildOperator
         private final int operatorId;
         private final PlanNodeId planNodeId;
         private final JoinBridgeManager<NestedLoopJoinBridge> nestedLoopJoinBridgeManager;
+        private final boolean spillEnabled;
+        private final Optional<StandaloneSpillerFactory> standaloneSpillerFactory;
 
         private boolean closed;
 
         public NestedLoopBuildOperatorFactory(int operatorId, PlanNodeId planNodeId, JoinBridgeManager<NestedLoopJoinBridge> nestedLoopJoinBridgeManager)
+        {
+            this(operatorId, planNodeId, nestedLoopJoinBridgeManager, false, Optional.empty());
+        }
+
+        public NestedLoopBuildOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                JoinBridgeManager<NestedLoopJoinBridge> nestedLoopJoinBridgeManager,
+                boolean spillEnabled,
+                Optional<StandaloneSpillerFactory> standaloneSpillerFactory)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
             this.nestedLoopJoinBridgeManager = requireNonNull(nestedLoopJoinBridgeManager, "nestedLoopJoinBridgeManager is null");
+            this.spillEnabled = spillEnabled;
+            this.standaloneSpillerFactory = requireNonNull(standaloneSpillerFactory, "standaloneSpillerFactory is null");
+            checkArgument(!spillEnabled || standaloneSpillerFactory.isPresent(), "standaloneSpillerFactory is required when spill is enabled");
         }
 
         @Override
@@ -48,7 +72,11 @@ public class NestedLoopBuildOperator
         {
             checkState(!closed, "Factory is already closed");
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, NestedLoopBuildOperator.class.getSimpleName());
-            return new NestedLoopBuildOperator(operatorContext, nestedLoopJoinBridgeManager.getJoinBridge(driverContext.getLifespan()));
+            return new NestedLoopBuildOperator(
+                    operatorContext,
+                    nestedLoopJoinBridgeManager.getJoinBridge(driverContext.getLifespan()),
+                    spillEnabled,
+                    standaloneSpillerFactory);
         }
 
         @Override
@@ -63,7 +91,7 @@ public class NestedLoopBuildOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new NestedLoopBuildOperatorFactory(operatorId, planNodeId, nestedLoopJoinBridgeManager);
+            return new NestedLoopBuildOperatorFactory(operatorId, planNodeId, nestedLoopJoinBridgeManager, spillEnabled, standaloneSpillerFactory);
         }
     }
 
@@ -71,6 +99,16 @@ public class NestedLoopBuildOperator
     private final NestedLoopJoinBridge nestedLoopJoinBridge;
     private final NestedLoopJoinPagesBuilder nestedLoopJoinPagesBuilder;
     private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext localRevocableMemoryContext;
+
+    private final boolean spillEnabled;
+    private final Optional<StandaloneSpillerFactory> standaloneSpillerFactory;
+    private Optional<StandaloneSpiller> spiller = Optional.empty();
+    // every revoke spills the pages accumulated so far as one chunk, which bounds the size of a chunk by the revocable memory
+    private final List<SerializedStorageHandle> spilledChunks = new ArrayList<>();
+    private long spilledPagesSize;
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+    private boolean closed;
 
     // Initially, probeDoneWithPages is not present.
     // Once finish is called, probeDoneWithPages will be set to a future that completes when the pages are no longer needed by the probe side.
@@ -78,11 +116,24 @@ public class NestedLoopBuildOperator
     private Optional<ListenableFuture<?>> probeDoneWithPages = Optional.empty();
 
     public NestedLoopBuildOperator(OperatorContext operatorContext, NestedLoopJoinBridge nestedLoopJoinBridge)
+    {
+        this(operatorContext, nestedLoopJoinBridge, false, Optional.empty());
+    }
+
+    public NestedLoopBuildOperator(
+            OperatorContext operatorContext,
+            NestedLoopJoinBridge nestedLoopJoinBridge,
+            boolean spillEnabled,
+            Optional<StandaloneSpillerFactory> standaloneSpillerFactory)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.nestedLoopJoinBridge = requireNonNull(nestedLoopJoinBridge, "nestedLoopJoinBridge is null");
         this.nestedLoopJoinPagesBuilder = new NestedLoopJoinPagesBuilder(operatorContext);
         this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.localRevocableMemoryContext = operatorContext.localRevocableMemoryContext();
+        this.spillEnabled = spillEnabled;
+        this.standaloneSpillerFactory = requireNonNull(standaloneSpillerFactory, "standaloneSpillerFactory is null");
+        checkArgument(!spillEnabled || standaloneSpillerFactory.isPresent(), "standaloneSpillerFactory is required when spill is enabled");
     }
 
     @Override
@@ -100,7 +151,22 @@ public class NestedLoopBuildOperator
 
         // nestedLoopJoinPagesBuilder and the built NestedLoopJoinPages will mostly share the same objects.
         // Extra allocation is minimal during build call. As a result, memory accounting is not updated here.
-        probeDoneWithPages = Optional.of(nestedLoopJoinBridge.setPages(nestedLoopJoinPagesBuilder.build()));
+        NestedLoopJoinPages nestedLoopJoinPages = nestedLoopJoinPagesBuilder.build();
+        if (!spilledChunks.isEmpty()) {
+            // Once part of the build side is on disk, the rest of it is spilled too,
+            // so that the probe side only has to handle a single stream of build pages.
+            if (!nestedLoopJoinPages.getPages().isEmpty()) {
+                spill(nestedLoopJoinPages.getPages(), nestedLoopJoinPages.getEstimatedSize().toBytes());
+            }
+            nestedLoopJoinPages = new NestedLoopJoinPages(spiller.get(), spilledChunks, new DataSize(spilledPagesSize, BYTE));
+            localRevocableMemoryContext.setBytes(0);
+        }
+        else if (spillEnabled) {
+            // the probe side holds on to the pages from now on, so they can no longer be revoked
+            localUserMemoryContext.setBytes(nestedLoopJoinPages.getEstimatedSize().toBytes());
+            localRevocableMemoryContext.setBytes(0);
+        }
+        probeDoneWithPages = Optional.of(nestedLoopJoinBridge.setPages(nestedLoopJoinPages));
     }
 
     @Override
@@ -132,16 +198,70 @@ public class NestedLoopBuildOperator
         }
 
         nestedLoopJoinPagesBuilder.addPage(page);
-        if (!localUserMemoryContext.trySetBytes(nestedLoopJoinPagesBuilder.getEstimatedSize().toBytes())) {
+        if (spillEnabled) {
+            localRevocableMemoryContext.setBytes(nestedLoopJoinPagesBuilder.getEstimatedSize().toBytes());
+        }
+        else if (!localUserMemoryContext.trySetBytes(nestedLoopJoinPagesBuilder.getEstimatedSize().toBytes())) {
             nestedLoopJoinPagesBuilder.compact();
             localUserMemoryContext.setBytes(nestedLoopJoinPagesBuilder.getEstimatedSize().toBytes());
         }
         operatorContext.recordOutput(page.getSizeInBytes(), page.getPositionCount());
     }
 
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        checkState(spillEnabled, "Spill not enabled, no revocable memory should be reserved");
+
+        if (probeDoneWithPages.isPresent() || closed || nestedLoopJoinPagesBuilder.getPages().isEmpty()) {
+            // Probably stale revoking request
+            finishMemoryRevoke = Optional.of(() -> {});
+            return immediateFuture(null);
+        }
+
+        spill(nestedLoopJoinPagesBuilder.getPages(), nestedLoopJoinPagesBuilder.getEstimatedSize().toBytes());
+        finishMemoryRevoke = Optional.of(() -> {
+            nestedLoopJoinPagesBuilder.clear();
+            localRevocableMemoryContext.setBytes(0);
+        });
+        return immediateFuture(null);
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        checkState(finishMemoryRevoke.isPresent(), "Cannot finish unknown revoking");
+        finishMemoryRevoke.get().run();
+        finishMemoryRevoke = Optional.empty();
+    }
+
+    private void spill(List<Page> pages, long pagesSize)
+    {
+        if (!spiller.isPresent()) {
+            spiller = Optional.of(standaloneSpillerFactory.get().create(operatorContext.getSession()));
+        }
+        spilledChunks.add(spiller.get().spill(pages.iterator()));
+        spilledPagesSize += pagesSize;
+    }
+
     @Override
     public Page getOutput()
     {
         return null;
     }
+
+    @Override
+    public void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        finishMemoryRevoke = finishMemoryRevoke.map(ifPresent -> () -> {});
+
+        // the probe side is done with the pages by now, or the query has failed
+        spiller.ifPresent(spiller -> spilledChunks.forEach(spiller::remove));
+        spilledChunks.clear();
+        localRevocableMemoryContext.setBytes(0);
+    }
 }
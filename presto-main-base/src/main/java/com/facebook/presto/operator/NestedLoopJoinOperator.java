@@ -13,22 +13,26 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.RunLengthEncodedBlock;
 import com.facebook.presto.execution.Lifespan;
+import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.project.PageProcessor;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
 import static com.facebook.airlift.concurrent.MoreFutures.tryGetFutureValue;
+import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Math.max;
@@ -107,11 +111,16 @@ public class NestedLoopJoinOperator
         }
     }
 
+    // probe pages buffered per scan of a spilled build side
+    private static final long MAX_PROBE_BLOCK_SIZE_IN_BYTES = new DataSize(16, MEGABYTE).toBytes();
+
     private final ListenableFuture<NestedLoopJoinPages> nestedLoopJoinPagesFuture;
 
     private final OperatorContext operatorContext;
+    private final LocalMemoryContext localUserMemoryContext;
     private final Runnable afterClose;
 
+    private NestedLoopJoinPages nestedLoopJoinPages;
     private List<Page> buildPages;
     private Page probePage;
     private Iterator<Page> buildPageIterator;
@@ -119,9 +128,18 @@ public class NestedLoopJoinOperator
     private boolean finishing;
     private boolean closed;
 
+    // When the build side is spilled, probe pages are joined in blocks, and the spilled
+    // build pages are read back once per block rather than once per probe page.
+    private final List<Page> probeBlock = new ArrayList<>();
+    private long probeBlockSizeInBytes;
+    private Iterator<Page> spilledBuildPageIterator;
+    private Page spilledBuildPage;
+    private int probeBlockPosition;
+
     private NestedLoopJoinOperator(OperatorContext operatorContext, NestedLoopJoinBridge joinBridge, Runnable afterClose)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
+        this.localUserMemoryContext = operatorContext.localUserMemoryContext();
         this.nestedLoopJoinPagesFuture = joinBridge.getPagesFuture();
         this.afterClose = requireNonNull(afterClose, "afterClose is null");
     }
@@ -141,7 +159,7 @@ public class NestedLoopJoinOperator
     @Override
     public boolean isFinished()
     {
-        boolean finished = finishing && probePage == null;
+        boolean finished = finishing && probePage == null && probeBlock.isEmpty();
 
         if (finished) {
             close();
@@ -162,12 +180,21 @@ public class NestedLoopJoinOperator
             return false;
         }
 
-        if (buildPages == null) {
+        if (nestedLoopJoinPages == null && !closed) {
             Optional<NestedLoopJoinPages> nestedLoopJoinPages = tryGetFutureValue(nestedLoopJoinPagesFuture);
             if (nestedLoopJoinPages.isPresent()) {
-                buildPages = nestedLoopJoinPages.get().getPages();
+                this.nestedLoopJoinPages = nestedLoopJoinPages.get();
+                if (!this.nestedLoopJoinPages.isSpilled()) {
+                    buildPages = this.nestedLoopJoinPages.getPages();
+                }
             }
         }
+        if (nestedLoopJoinPages == null) {
+            return false;
+        }
+        if (nestedLoopJoinPages.isSpilled()) {
+            return spilledBuildPageIterator == null && probeBlockSizeInBytes < MAX_PROBE_BLOCK_SIZE_IN_BYTES;
+        }
         return buildPages != null;
     }
 
@@ -176,7 +203,18 @@ public class NestedLoopJoinOperator
     {
         requireNonNull(page, "page is null");
         checkState(!finishing, "Operator is finishing");
-        checkState(buildPages != null, "Page source has not been built yet");
+        checkState(nestedLoopJoinPages != null, "Page source has not been built yet");
+
+        if (nestedLoopJoinPages.isSpilled()) {
+            checkState(spilledBuildPageIterator == null, "Current probe block has not been completely processed yet");
+            if (page.getPositionCount() > 0) {
+                probeBlock.add(page);
+                probeBlockSizeInBytes += page.getRetainedSizeInBytes();
+                localUserMemoryContext.setBytes(probeBlockSizeInBytes);
+            }
+            return;
+        }
+
         checkState(probePage == null, "Current page has not been completely processed yet");
         checkState(buildPageIterator == null || !buildPageIterator.hasNext(), "Current buildPageIterator has not been completely processed yet");
 
@@ -189,6 +227,10 @@ public class NestedLoopJoinOperator
     @Override
     public Page getOutput()
     {
+        if (nestedLoopJoinPages != null && nestedLoopJoinPages.isSpilled()) {
+            return getOutputFromSpilledBuild();
+        }
+
         // Either probe side or build side is not ready
         if (probePage == null || buildPages == null) {
             return null;
@@ -208,13 +250,56 @@ public class NestedLoopJoinOperator
         return null;
     }
 
+    private Page getOutputFromSpilledBuild()
+    {
+        if (spilledBuildPageIterator == null) {
+            if (probeBlock.isEmpty() || (!finishing && probeBlockSizeInBytes < MAX_PROBE_BLOCK_SIZE_IN_BYTES)) {
+                return null;
+            }
+            spilledBuildPageIterator = nestedLoopJoinPages.readSpilledPages();
+        }
+
+        while (true) {
+            if (nestedLoopOutputIterator != null && nestedLoopOutputIterator.hasNext()) {
+                return nestedLoopOutputIterator.next();
+            }
+            if (spilledBuildPage != null && probeBlockPosition < probeBlock.size()) {
+                nestedLoopOutputIterator = createNestedLoopOutputIterator(probeBlock.get(probeBlockPosition), spilledBuildPage);
+                probeBlockPosition++;
+            }
+            else if (spilledBuildPageIterator.hasNext()) {
+                Page page = spilledBuildPageIterator.next();
+                spilledBuildPage = page.getPositionCount() > 0 ? page : null;
+                probeBlockPosition = 0;
+            }
+            else {
+                break;
+            }
+        }
+
+        // the whole build side was joined with the current block
+        spilledBuildPageIterator = null;
+        spilledBuildPage = null;
+        nestedLoopOutputIterator = null;
+        probeBlock.clear();
+        probeBlockSizeInBytes = 0;
+        localUserMemoryContext.setBytes(0);
+        return null;
+    }
+
     @Override
     public void close()
     {
+        nestedLoopJoinPages = null;
         buildPages = null;
         probePage = null;
         nestedLoopOutputIterator = null;
         buildPageIterator = null;
+        probeBlock.clear();
+        probeBlockSizeInBytes = 0;
+        spilledBuildPageIterator = null;
+        spilledBuildPage = null;
+        localUserMemoryContext.setBytes(0);
         // We don't want to release the supplier multiple times, since its reference counted
         if (closed) {
             return;
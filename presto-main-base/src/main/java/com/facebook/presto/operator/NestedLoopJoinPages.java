@@ -15,16 +15,25 @@ package com.facebook.presto.operator;
 
 import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.common.Page;
+import com.facebook.presto.spi.storage.SerializedStorageHandle;
+import com.facebook.presto.spiller.StandaloneSpiller;
 import com.google.common.collect.ImmutableList;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Iterators.concat;
+import static com.google.common.collect.Iterators.transform;
 import static java.util.Objects.requireNonNull;
 
 public final class NestedLoopJoinPages
 {
     private final ImmutableList<Page> pages;
     private final DataSize estimatedSize;
+    private final Optional<StandaloneSpiller> spiller;
+    private final List<SerializedStorageHandle> spilledChunks;
 
     NestedLoopJoinPages(List<Page> pages, DataSize estimatedSize, OperatorContext operatorContext)
     {
@@ -33,13 +42,42 @@ public final class NestedLoopJoinPages
         requireNonNull(estimatedSize, "estimatedSize is null");
         this.pages = ImmutableList.copyOf(pages);
         this.estimatedSize = estimatedSize;
+        this.spiller = Optional.empty();
+        this.spilledChunks = ImmutableList.of();
+    }
+
+    NestedLoopJoinPages(StandaloneSpiller spiller, List<SerializedStorageHandle> spilledChunks, DataSize estimatedSize)
+    {
+        requireNonNull(spiller, "spiller is null");
+        requireNonNull(spilledChunks, "spilledChunks is null");
+        requireNonNull(estimatedSize, "estimatedSize is null");
+        this.pages = ImmutableList.of();
+        this.estimatedSize = estimatedSize;
+        this.spiller = Optional.of(spiller);
+        this.spilledChunks = ImmutableList.copyOf(spilledChunks);
     }
 
     public List<Page> getPages()
     {
+        checkState(!isSpilled(), "Build pages are spilled");
         return pages;
     }
 
+    public boolean isSpilled()
+    {
+        return spiller.isPresent();
+    }
+
+    /**
+     * Reads the spilled build pages back one page at a time. Every call starts a new pass
+     * over the spilled chunks, so the probe side can scan them once per block of probe pages.
+     */
+    public Iterator<Page> readSpilledPages()
+    {
+        StandaloneSpiller spiller = this.spiller.orElseThrow(() -> new IllegalStateException("Build pages are not spilled"));
+        return concat(transform(spilledChunks.iterator(), spiller::getSpilledPages));
+    }
+
     public DataSize getEstimatedSize()
     {
         return estimatedSize;
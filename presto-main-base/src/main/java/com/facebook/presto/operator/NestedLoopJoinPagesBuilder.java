@@ -92,6 +92,26 @@ public class NestedLoopJoinPagesBuilder
         this.estimatedSize = estimatedSize;
     }
 
+    /**
+     * Returns the pages added since the last {@link #clear()}, for spilling.
+     */
+    public List<Page> getPages()
+    {
+        checkNotFinished();
+        return pages;
+    }
+
+    /**
+     * Drops the accumulated pages once they are spilled. Positions of pages without
+     * channels are kept, since they are only materialized by {@link #build()}.
+     */
+    public void clear()
+    {
+        checkNotFinished();
+        pages = new ArrayList<>();
+        estimatedSize = 0;
+    }
+
     public NestedLoopJoinPages build()
     {
         checkNotFinished();
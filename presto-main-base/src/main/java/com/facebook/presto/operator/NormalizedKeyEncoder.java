@@ -0,0 +1,173 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.SortOrder;
+import com.facebook.presto.common.type.BigintType;
+import com.facebook.presto.common.type.BooleanType;
+import com.facebook.presto.common.type.DateType;
+import com.facebook.presto.common.type.DecimalType;
+import com.facebook.presto.common.type.IntegerType;
+import com.facebook.presto.common.type.SmallintType;
+import com.facebook.presto.common.type.TimestampType;
+import com.facebook.presto.common.type.TinyintType;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.common.type.VarbinaryType;
+import com.facebook.presto.common.type.VarcharType;
+import io.airlift.slice.Slice;
+
+import java.util.Optional;
+
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.RealType.REAL;
+import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
+import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
+import static java.lang.Double.doubleToLongBits;
+import static java.lang.Double.longBitsToDouble;
+import static java.lang.Float.floatToIntBits;
+import static java.lang.Float.intBitsToFloat;
+import static java.lang.Math.toIntExact;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Encodes the value of a sort channel into a 64-bit key that orders the same as the
+ * channel when compared as an unsigned long, with the sort order and null ordering
+ * folded in. The key is a prefix of the value: if the keys of two positions differ,
+ * the position with the smaller key sorts first, but equal keys do not imply equal
+ * values, and the positions must then be compared with the full comparator.
+ */
+public final class NormalizedKeyEncoder
+{
+    private enum Encoding
+    {
+        LONG,
+        BOOLEAN,
+        DOUBLE,
+        REAL,
+        SLICE
+    }
+
+    private final Type type;
+    private final Encoding encoding;
+    private final int channel;
+    private final boolean ascending;
+    private final boolean nullsFirst;
+
+    private NormalizedKeyEncoder(Type type, Encoding encoding, int channel, SortOrder sortOrder)
+    {
+        this.type = requireNonNull(type, "type is null");
+        this.encoding = requireNonNull(encoding, "encoding is null");
+        this.channel = channel;
+        this.ascending = sortOrder.isAscending();
+        this.nullsFirst = sortOrder.isNullsFirst();
+    }
+
+    public static Optional<NormalizedKeyEncoder> create(Type type, int channel, SortOrder sortOrder)
+    {
+        return getEncoding(type).map(encoding -> new NormalizedKeyEncoder(type, encoding, channel, sortOrder));
+    }
+
+    private static Optional<Encoding> getEncoding(Type type)
+    {
+        if (type instanceof BigintType || type instanceof IntegerType || type instanceof SmallintType || type instanceof TinyintType ||
+                type instanceof DateType || type instanceof TimestampType || (type instanceof DecimalType && ((DecimalType) type).isShort())) {
+            return Optional.of(Encoding.LONG);
+        }
+        if (type instanceof BooleanType) {
+            return Optional.of(Encoding.BOOLEAN);
+        }
+        // the types with the legacy NaN definition are left to the comparator
+        if (type == DOUBLE) {
+            return Optional.of(Encoding.DOUBLE);
+        }
+        if (type == REAL) {
+            return Optional.of(Encoding.REAL);
+        }
+        if (type instanceof VarcharType || type instanceof VarbinaryType) {
+            return Optional.of(Encoding.SLICE);
+        }
+        return Optional.empty();
+    }
+
+    public long encode(PagesIndex pagesIndex, int position)
+    {
+        long pageAddress = pagesIndex.getValueAddresses().get(position);
+        Block block = pagesIndex.getChannel(channel).get(decodeSliceIndex(pageAddress));
+        int blockPosition = decodePosition(pageAddress);
+
+        if (block.isNull(blockPosition)) {
+            return nullsFirst ? 0 : -1L;
+        }
+
+        long key = encodeValue(block, blockPosition);
+        if (!ascending) {
+            key = ~key;
+        }
+        // the top bit separates nulls from values, so the lowest bit of the value is dropped
+        key >>>= 1;
+        return nullsFirst ? key | Long.MIN_VALUE : key;
+    }
+
+    private long encodeValue(Block block, int position)
+    {
+        switch (encoding) {
+            case LONG:
+                return type.getLong(block, position) ^ Long.MIN_VALUE;
+            case BOOLEAN:
+                return type.getBoolean(block, position) ? -1L : 0;
+            case DOUBLE: {
+                double value = longBitsToDouble(type.getLong(block, position));
+                // -0.0 and 0.0 compare as equal
+                if (value == 0) {
+                    value = 0.0;
+                }
+                // doubleToLongBits collapses all NaNs into the canonical NaN, which sorts above infinity
+                long bits = doubleToLongBits(value);
+                return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+            }
+            case REAL: {
+                float value = intBitsToFloat(toIntExact(type.getLong(block, position)));
+                if (value == 0) {
+                    value = 0.0f;
+                }
+                int bits = floatToIntBits(value);
+                int key = bits < 0 ? ~bits : bits ^ Integer.MIN_VALUE;
+                return (key & 0xFFFF_FFFFL) << Integer.SIZE;
+            }
+            case SLICE:
+                return encodeSlicePrefix(block, position);
+        }
+        throw new IllegalStateException("Unhandled encoding: " + encoding);
+    }
+
+    // the first 8 bytes of the value in big endian order, padded with zeros
+    private static long encodeSlicePrefix(Block block, int position)
+    {
+        int length = block.getSliceLength(position);
+        if (length >= Long.BYTES) {
+            return Long.reverseBytes(block.getLong(position, 0));
+        }
+
+        Slice slice = block.getSlice(position, 0, length);
+        long key = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            key <<= Byte.SIZE;
+            if (i < length) {
+                key |= slice.getByte(i) & 0xFF;
+            }
+        }
+        return key;
+    }
+}
@@ -21,12 +21,24 @@ import it.unimi.dsi.fastutil.HashCommon;
 import org.openjdk.jol.info.ClassLayout;
 
 import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
 
 import static com.facebook.airlift.units.DataSize.Unit.KILOBYTE;
 import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
 import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
 import static com.facebook.presto.util.HashCollisionsEstimator.estimateNumberOfHashCollisions;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static io.airlift.slice.SizeOf.sizeOf;
+import static java.lang.Integer.numberOfTrailingZeros;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
 
@@ -35,12 +47,21 @@ public final class PagesHash
 {
     private static final int INSTANCE_SIZE = ClassLayout.parseClass(PagesHash.class).instanceSize();
     private static final DataSize CACHE_SIZE = new DataSize(128, KILOBYTE);
+    // The parallel build splits the hash table into ranges of this many slots, small enough for the
+    // keys of a range to stay in the CPU cache while its positions are inserted
+    private static final int BUILD_PARTITION_SLOTS = 1 << 15;
+    private static final int MAX_BUILD_PARTITIONS = 1 << 10;
+    // fall back to the sequential build if a range would be filled above this ratio
+    private static final double MAX_BUILD_PARTITION_FILL_RATIO = 0.9;
+    private static final int HASH_POSITIONS_PER_TASK = 1 << 16;
     private final AdaptiveLongBigArray addresses;
     private final int positionCount;
     private final PagesHashStrategy pagesHashStrategy;
 
     private final int channelCount;
     private final int mask;
+    // Probing wraps around within ranges of mask + 1 slots, or of fewer slots if the table was built in parallel
+    private final int partitionMask;
     private final int[] key;
     private final long size;
 
@@ -58,6 +79,24 @@ public final class PagesHash
             PagesHashStrategy pagesHashStrategy,
             PositionLinks.FactoryBuilder positionLinks)
     {
+        this(addresses, positionCount, pagesHashStrategy, positionLinks, directExecutor(), 1);
+    }
+
+    /**
+     * With a {@code buildParallelism} above one, large tables are built by radix partitioning the positions
+     * by the range of slots their hash falls into, and by filling the ranges in parallel on {@code executor}.
+     * The calling thread takes part in the build and completes it even if the executor has no thread available.
+     */
+    public PagesHash(
+            AdaptiveLongBigArray addresses,
+            int positionCount,
+            PagesHashStrategy pagesHashStrategy,
+            PositionLinks.FactoryBuilder positionLinks,
+            Executor executor,
+            int buildParallelism)
+    {
+        requireNonNull(executor, "executor is null");
+        checkArgument(buildParallelism > 0, "buildParallelism must be positive");
         this.addresses = requireNonNull(addresses, "addresses is null");
         this.positionCount = positionCount;
         this.pagesHashStrategy = requireNonNull(pagesHashStrategy, "pagesHashStrategy is null");
@@ -72,55 +111,102 @@ public final class PagesHash
 
         positionToHashes = new byte[positionCount];
 
-        // We will process addresses in batches, to save memory on array of hashes.
-        int positionsInStep = Math.min(positionCount + 1, (int) CACHE_SIZE.toBytes() / Integer.SIZE);
-        long[] positionToFullHashes = new long[positionsInStep];
-        long hashCollisionsLocal = 0;
-        long positionIsNullCountLocal = 0;
+        int partitionCount = 1;
+        if (buildParallelism > 1 && positionLinks.supportsConcurrentLinks()) {
+            partitionCount = min(max(hashSize / BUILD_PARTITION_SLOTS, 1), MAX_BUILD_PARTITIONS);
+        }
+        int[] hashPositions = null;
+        int[] partitionOffsets = null;
+        int[] partitionedPositions = null;
+        if (partitionCount > 1) {
+            hashPositions = new int[positionCount];
+            int[] positionHashPositions = hashPositions;
+            runInParallel(executor, buildParallelism, (positionCount + HASH_POSITIONS_PER_TASK - 1) / HASH_POSITIONS_PER_TASK, task -> {
+                int end = min(positionCount, (task + 1) * HASH_POSITIONS_PER_TASK);
+                for (int position = task * HASH_POSITIONS_PER_TASK; position < end; position++) {
+                    long hash = readHashPosition(position);
+                    positionToHashes[position] = (byte) hash;
+                    positionHashPositions[position] = getHashPosition(hash, mask);
+                }
+            });
 
-        for (int step = 0; step * positionsInStep < positionCount; step++) {
-            int stepBeginPosition = step * positionsInStep;
-            int stepEndPosition = Math.min((step + 1) * positionsInStep, positionCount);
-            int stepSize = stepEndPosition - stepBeginPosition;
-
-            // First extract all hashes from blocks to native array.
-            // Somehow having this as a separate loop is much faster compared
-            // to extracting hashes on the fly in the loop below.
-            for (int position = 0; position < stepSize; position++) {
-                int realPosition = position + stepBeginPosition;
-                long hash = readHashPosition(realPosition);
-                positionToFullHashes[position] = hash;
-                positionToHashes[realPosition] = (byte) hash;
+            // counting sort of the positions by range, the positions of a range stay in order
+            int partitionShift = numberOfTrailingZeros(hashSize / partitionCount);
+            partitionOffsets = new int[partitionCount + 1];
+            for (int position = 0; position < positionCount; position++) {
+                partitionOffsets[(hashPositions[position] >>> partitionShift) + 1]++;
+            }
+            int maxPartitionPositions = 0;
+            for (int partition = 0; partition < partitionCount; partition++) {
+                maxPartitionPositions = max(maxPartitionPositions, partitionOffsets[partition + 1]);
+                partitionOffsets[partition + 1] += partitionOffsets[partition];
             }
 
-            // index pages
-            for (int position = 0; position < stepSize; position++) {
-                int realPosition = position + stepBeginPosition;
-                if (isPositionNull(realPosition)) {
-                    ++positionIsNullCountLocal;
-                    continue;
+            if (maxPartitionPositions > (hashSize / partitionCount) * MAX_BUILD_PARTITION_FILL_RATIO) {
+                // skewed hashes, the positions may not fit in the slots of their range
+                partitionCount = 1;
+            }
+            else {
+                partitionedPositions = new int[positionCount];
+                int[] nextPositions = Arrays.copyOf(partitionOffsets, partitionCount);
+                for (int position = 0; position < positionCount; position++) {
+                    partitionedPositions[nextPositions[hashPositions[position] >>> partitionShift]++] = position;
                 }
+            }
+        }
+        partitionMask = (hashSize / partitionCount) - 1;
 
-                long hash = positionToFullHashes[position];
-                int pos = getHashPosition(hash, mask);
-
-                // look for an empty slot or a slot containing this key
-                while (key[pos] != -1) {
-                    int currentKey = key[pos];
-                    if (((byte) hash) == positionToHashes[currentKey] && positionEqualsPositionIgnoreNulls(currentKey, realPosition)) {
-                        // found a slot for this key
-                        // link the new key position to the current key position
-                        realPosition = positionLinks.link(realPosition, currentKey);
-
-                        // key[pos] updated outside of this loop
-                        break;
+        long hashCollisionsLocal = 0;
+        long positionIsNullCountLocal = 0;
+        if (partitionCount > 1) {
+            long[] partitionHashCollisions = new long[partitionCount];
+            long[] partitionPositionIsNullCounts = new long[partitionCount];
+            int[] positionHashPositions = hashPositions;
+            int[] offsets = partitionOffsets;
+            int[] positions = partitionedPositions;
+            runInParallel(executor, buildParallelism, partitionCount, partition -> {
+                for (int i = offsets[partition]; i < offsets[partition + 1]; i++) {
+                    int position = positions[i];
+                    if (isPositionNull(position)) {
+                        partitionPositionIsNullCounts[partition]++;
+                        continue;
                     }
-                    // increment position and mask to handler wrap around
-                    pos = (pos + 1) & mask;
-                    hashCollisionsLocal++;
+                    partitionHashCollisions[partition] += insert(position, positionHashPositions[position], positionLinks);
+                }
+            });
+            hashCollisionsLocal = Arrays.stream(partitionHashCollisions).sum();
+            positionIsNullCountLocal = Arrays.stream(partitionPositionIsNullCounts).sum();
+        }
+        else {
+            // We will process addresses in batches, to save memory on array of hashes.
+            int positionsInStep = Math.min(positionCount + 1, (int) CACHE_SIZE.toBytes() / Integer.SIZE);
+            long[] positionToFullHashes = new long[positionsInStep];
+
+            for (int step = 0; step * positionsInStep < positionCount; step++) {
+                int stepBeginPosition = step * positionsInStep;
+                int stepEndPosition = Math.min((step + 1) * positionsInStep, positionCount);
+                int stepSize = stepEndPosition - stepBeginPosition;
+
+                // First extract all hashes from blocks to native array.
+                // Somehow having this as a separate loop is much faster compared
+                // to extracting hashes on the fly in the loop below.
+                for (int position = 0; position < stepSize; position++) {
+                    int realPosition = position + stepBeginPosition;
+                    long hash = readHashPosition(realPosition);
+                    positionToFullHashes[position] = hash;
+                    positionToHashes[realPosition] = (byte) hash;
                 }
 
-                key[pos] = realPosition;
+                // index pages
+                for (int position = 0; position < stepSize; position++) {
+                    int realPosition = position + stepBeginPosition;
+                    if (isPositionNull(realPosition)) {
+                        ++positionIsNullCountLocal;
+                        continue;
+                    }
+
+                    hashCollisionsLocal += insert(realPosition, getHashPosition(positionToFullHashes[position], mask), positionLinks);
+                }
             }
         }
 
@@ -174,12 +260,50 @@ public final class PagesHash
             if (positionEqualsCurrentRowIgnoreNulls(key[pos], (byte) rawHash, rightPosition, hashChannelsPage)) {
                 return key[pos];
             }
-            // increment position and mask to handler wrap around
-            pos = (pos + 1) & mask;
+            pos = nextHashPosition(pos);
         }
         return -1;
     }
 
+    /**
+     * Batched variant of {@link #getAddressIndex(int, Page)}, stores the address index of {@code positions[i]} into {@code addressIndexes[i]}.
+     */
+    public void getAddressIndex(int[] positions, int positionCount, Page hashChannelsPage, int[] addressIndexes)
+    {
+        long[] rawHashes = new long[positionCount];
+        for (int i = 0; i < positionCount; i++) {
+            rawHashes[i] = pagesHashStrategy.hashRow(positions[i], hashChannelsPage);
+        }
+        getAddressIndex(positions, positionCount, hashChannelsPage, rawHashes, addressIndexes);
+    }
+
+    /**
+     * Batched variant of {@link #getAddressIndex(int, Page, long)}, stores the address index of {@code positions[i]} into {@code addressIndexes[i]}.
+     */
+    public void getAddressIndex(int[] positions, int positionCount, Page hashChannelsPage, long[] rawHashes, int[] addressIndexes)
+    {
+        // Like the build loop, the lookup is split into separate loops. The bucket loads of the
+        // second loop do not depend on each other, so the cache misses can overlap.
+        int[] hashPositions = new int[positionCount];
+        for (int i = 0; i < positionCount; i++) {
+            hashPositions[i] = getHashPosition(rawHashes[i], mask);
+        }
+
+        for (int i = 0; i < positionCount; i++) {
+            addressIndexes[i] = key[hashPositions[i]];
+        }
+
+        for (int i = 0; i < positionCount; i++) {
+            int pos = hashPositions[i];
+            int candidate = addressIndexes[i];
+            while (candidate != -1 && !positionEqualsCurrentRowIgnoreNulls(candidate, (byte) rawHashes[i], positions[i], hashChannelsPage)) {
+                pos = nextHashPosition(pos);
+                candidate = key[pos];
+            }
+            addressIndexes[i] = candidate;
+        }
+    }
+
     public void appendTo(long position, PageBuilder pageBuilder, int outputChannelOffset)
     {
         long pageAddress = addresses.get(toIntExact(position));
@@ -189,6 +313,90 @@ public final class PagesHash
         pagesHashStrategy.appendTo(blockIndex, blockPosition, pageBuilder, outputChannelOffset);
     }
 
+    /**
+     * Inserts the position into the table, starting at the slot of its hash.
+     *
+     * @return the number of hash collisions
+     */
+    private long insert(int position, int hashPosition, PositionLinks.FactoryBuilder positionLinks)
+    {
+        byte hash = positionToHashes[position];
+        int pos = hashPosition;
+        long hashCollisions = 0;
+
+        // look for an empty slot or a slot containing this key
+        while (key[pos] != -1) {
+            int currentKey = key[pos];
+            if (hash == positionToHashes[currentKey] && positionEqualsPositionIgnoreNulls(currentKey, position)) {
+                // found a slot for this key
+                // link the new key position to the current key position
+                position = positionLinks.link(position, currentKey);
+
+                // key[pos] updated outside of this loop
+                break;
+            }
+            pos = nextHashPosition(pos);
+            hashCollisions++;
+        }
+
+        key[pos] = position;
+        return hashCollisions;
+    }
+
+    private int nextHashPosition(int position)
+    {
+        // increment position and wrap around within the range of the position
+        return (position & ~partitionMask) | ((position + 1) & partitionMask);
+    }
+
+    /**
+     * Runs the tasks on up to {@code parallelism} threads, including the calling thread, and waits for them to complete.
+     */
+    private static void runInParallel(Executor executor, int parallelism, int taskCount, IntConsumer task)
+    {
+        AtomicInteger nextTask = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(taskCount);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Runnable worker = () -> {
+            for (int current = nextTask.getAndIncrement(); current < taskCount; current = nextTask.getAndIncrement()) {
+                try {
+                    if (failure.get() == null) {
+                        task.accept(current);
+                    }
+                }
+                catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+                finally {
+                    finished.countDown();
+                }
+            }
+        };
+
+        try {
+            for (int i = 1; i < min(parallelism, taskCount); i++) {
+                executor.execute(worker);
+            }
+        }
+        catch (RejectedExecutionException ignored) {
+            // the calling thread runs the remaining tasks
+        }
+        worker.run();
+
+        try {
+            // only the tasks started by the other threads may still be running
+            finished.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        if (failure.get() != null) {
+            throwIfUnchecked(failure.get());
+            throw new RuntimeException(failure.get());
+        }
+    }
+
     private boolean isPositionNull(int position)
     {
         long pageAddress = addresses.get(position);
@@ -30,6 +30,7 @@ import com.facebook.presto.metadata.Metadata;
 import com.facebook.presto.metadata.MetadataManager;
 import com.facebook.presto.operator.SpatialIndexBuilderOperator.SpatialPredicate;
 import com.facebook.presto.sql.analyzer.FeaturesConfig;
+import com.facebook.presto.sql.analyzer.JavaFeaturesConfig;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.facebook.presto.sql.gen.JoinCompiler.LookupSourceSupplierFactory;
 import com.facebook.presto.sql.gen.JoinFilterFunctionCompiler.JoinFilterFunctionFactory;
@@ -39,6 +40,7 @@ import com.google.common.collect.ImmutableList;
 import io.airlift.slice.Slice;
 import it.unimi.dsi.fastutil.Swapper;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import jakarta.annotation.PreDestroy;
 import jakarta.inject.Inject;
 import org.openjdk.jol.info.ClassLayout;
 
@@ -48,11 +50,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.function.IntUnaryOperator;
 import java.util.function.Supplier;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.facebook.airlift.units.DataSize.Unit.BYTE;
 import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
 import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
@@ -60,8 +65,10 @@ import static com.facebook.presto.operator.SyntheticAddress.encodeSyntheticAddre
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static io.airlift.slice.SizeOf.sizeOf;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 
 /**
  * PagesIndex a low-level data structure which contains the address of every value position of every channel.
@@ -86,6 +93,8 @@ public class PagesIndex
     private final AdaptiveLongBigArray valueAddresses;
     private final ObjectArrayList<Block>[] channels;
     private final boolean eagerCompact;
+    private final boolean normalizedKeySortEnabled;
+    private final Executor hashBuildExecutor;
 
     private int nextBlockToCompact;
     private int positionCount;
@@ -98,7 +107,9 @@ public class PagesIndex
             FunctionAndTypeManager functionAndTypeManager,
             List<Type> types,
             int expectedPositions,
-            boolean eagerCompact)
+            boolean eagerCompact,
+            boolean normalizedKeySortEnabled,
+            Executor hashBuildExecutor)
     {
         this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
         this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
@@ -107,6 +118,8 @@ public class PagesIndex
         this.valueAddresses = new AdaptiveLongBigArray();
         this.valueAddresses.ensureCapacity(expectedPositions);
         this.eagerCompact = eagerCompact;
+        this.normalizedKeySortEnabled = normalizedKeySortEnabled;
+        this.hashBuildExecutor = requireNonNull(hashBuildExecutor, "hashBuildExecutor is null");
 
         //noinspection rawtypes
         channels = (ObjectArrayList<Block>[]) new ObjectArrayList[types.size()];
@@ -128,16 +141,30 @@ public class PagesIndex
         private static final OrderingCompiler ORDERING_COMPILER = new OrderingCompiler();
         private static final JoinCompiler JOIN_COMPILER = new JoinCompiler(MetadataManager.createTestMetadataManager());
         private final boolean eagerCompact;
+        private final boolean normalizedKeySortEnabled;
+        private final Executor hashBuildExecutor;
 
         public TestingFactory(boolean eagerCompact)
+        {
+            this(eagerCompact, directExecutor());
+        }
+
+        public TestingFactory(boolean eagerCompact, Executor hashBuildExecutor)
+        {
+            this(eagerCompact, false, hashBuildExecutor);
+        }
+
+        public TestingFactory(boolean eagerCompact, boolean normalizedKeySortEnabled, Executor hashBuildExecutor)
         {
             this.eagerCompact = eagerCompact;
+            this.normalizedKeySortEnabled = normalizedKeySortEnabled;
+            this.hashBuildExecutor = requireNonNull(hashBuildExecutor, "hashBuildExecutor is null");
         }
 
         @Override
         public PagesIndex newPagesIndex(List<Type> types, int expectedPositions)
         {
-            return new PagesIndex(ORDERING_COMPILER, JOIN_COMPILER, MetadataManager.createTestMetadataManager().getFunctionAndTypeManager(), types, expectedPositions, eagerCompact);
+            return new PagesIndex(ORDERING_COMPILER, JOIN_COMPILER, MetadataManager.createTestMetadataManager().getFunctionAndTypeManager(), types, expectedPositions, eagerCompact, normalizedKeySortEnabled, hashBuildExecutor);
         }
     }
 
@@ -147,21 +174,33 @@ public class PagesIndex
         private final OrderingCompiler orderingCompiler;
         private final JoinCompiler joinCompiler;
         private final boolean eagerCompact;
+        private final boolean normalizedKeySortEnabled;
         private final FunctionAndTypeManager functionAndTypeManager;
+        private final ExecutorService hashBuildExecutor;
 
         @Inject
-        public DefaultFactory(OrderingCompiler orderingCompiler, JoinCompiler joinCompiler, FeaturesConfig featuresConfig, Metadata metadata)
+        public DefaultFactory(OrderingCompiler orderingCompiler, JoinCompiler joinCompiler, FeaturesConfig featuresConfig, JavaFeaturesConfig javaFeaturesConfig, Metadata metadata)
         {
             this.orderingCompiler = requireNonNull(orderingCompiler, "orderingCompiler is null");
             this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
             this.eagerCompact = requireNonNull(featuresConfig, "featuresConfig is null").isPagesIndexEagerCompactionEnabled();
+            this.normalizedKeySortEnabled = featuresConfig.isPagesIndexNormalizedKeySortEnabled();
             this.functionAndTypeManager = requireNonNull(metadata, "metadata is null").getFunctionAndTypeManager();
+            this.hashBuildExecutor = newFixedThreadPool(
+                    requireNonNull(javaFeaturesConfig, "javaFeaturesConfig is null").getHashBuildThreads(),
+                    daemonThreadsNamed("hash-build-%s"));
+        }
+
+        @PreDestroy
+        public void destroy()
+        {
+            hashBuildExecutor.shutdownNow();
         }
 
         @Override
         public PagesIndex newPagesIndex(List<Type> types, int expectedPositions)
         {
-            return new PagesIndex(orderingCompiler, joinCompiler, functionAndTypeManager, types, expectedPositions, eagerCompact);
+            return new PagesIndex(orderingCompiler, joinCompiler, functionAndTypeManager, types, expectedPositions, eagerCompact, normalizedKeySortEnabled, hashBuildExecutor);
         }
     }
 
@@ -375,7 +414,13 @@ public class PagesIndex
 
     public void sort(List<Integer> sortChannels, List<SortOrder> sortOrders, int startPosition, int endPosition)
     {
-        createPagesIndexComparator(sortChannels, sortOrders).sort(this, startPosition, endPosition);
+        PagesIndexOrdering ordering = createPagesIndexComparator(sortChannels, sortOrders);
+        if (normalizedKeySortEnabled) {
+            ordering.sortByNormalizedKey(this, startPosition, endPosition);
+        }
+        else {
+            ordering.sort(this, startPosition, endPosition);
+        }
     }
 
     public boolean positionEqualsPosition(PagesHashStrategy partitionHashStrategy, int leftPosition, int rightPosition)
@@ -497,7 +542,8 @@ public class PagesIndex
                         hashChannel,
                         filterFunctionFactory,
                         sortChannel,
-                        searchFunctionFactories);
+                        searchFunctionFactories,
+                        hashBuildExecutor);
             }
             catch (Exception e) {
                 log.error(e, "Lookup source compile failed for types=%s error=%s", types, e);
@@ -522,7 +568,8 @@ public class PagesIndex
                 channels,
                 filterFunctionFactory,
                 sortChannel,
-                searchFunctionFactories);
+                searchFunctionFactories,
+                hashBuildExecutor);
     }
 
     private List<Integer> rangeList(int endExclusive)
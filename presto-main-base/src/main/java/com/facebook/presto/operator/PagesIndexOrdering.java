@@ -13,18 +13,34 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.common.array.AdaptiveLongBigArray;
+
+import java.util.Arrays;
+import java.util.Optional;
+
 import static java.util.Objects.requireNonNull;
 
 public class PagesIndexOrdering
 {
     private static final int SMALL = 7;
     private static final int MEDIUM = 40;
+    // below this size the extra key arrays cost more than the comparisons they save
+    private static final int MIN_NORMALIZED_KEY_SORT_POSITIONS = 1024;
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX_BUCKETS = 1 << RADIX_BITS;
 
     private final PagesIndexComparator comparator;
+    private final Optional<NormalizedKeyEncoder> normalizedKeyEncoder;
 
     public PagesIndexOrdering(PagesIndexComparator comparator)
+    {
+        this(comparator, Optional.empty());
+    }
+
+    public PagesIndexOrdering(PagesIndexComparator comparator, Optional<NormalizedKeyEncoder> normalizedKeyEncoder)
     {
         this.comparator = requireNonNull(comparator, "comparator is null");
+        this.normalizedKeyEncoder = requireNonNull(normalizedKeyEncoder, "normalizedKeyEncoder is null");
     }
 
     public PagesIndexComparator getComparator()
@@ -37,6 +53,97 @@ public class PagesIndexOrdering
         quickSort(pagesIndex, startPosition, endPosition);
     }
 
+    /**
+     * Sorts the positions by the normalized key of the first sort channel with a radix sort, and
+     * uses the comparator only to order runs of positions with equal keys. Falls back to
+     * {@link #sort} when the first sort channel has no normalized key, or the range is small.
+     */
+    public void sortByNormalizedKey(PagesIndex pagesIndex, int startPosition, int endPosition)
+    {
+        if (!normalizedKeyEncoder.isPresent() || endPosition - startPosition < MIN_NORMALIZED_KEY_SORT_POSITIONS) {
+            quickSort(pagesIndex, startPosition, endPosition);
+            return;
+        }
+
+        NormalizedKeyEncoder encoder = normalizedKeyEncoder.get();
+        AdaptiveLongBigArray valueAddresses = pagesIndex.getValueAddresses();
+        int length = endPosition - startPosition;
+        long[] keys = new long[length];
+        long[] addresses = new long[length];
+        for (int i = 0; i < length; i++) {
+            keys[i] = encoder.encode(pagesIndex, startPosition + i);
+            addresses[i] = valueAddresses.get(startPosition + i);
+        }
+
+        radixSort(keys, addresses);
+        for (int i = 0; i < length; i++) {
+            valueAddresses.set(startPosition + i, addresses[i]);
+        }
+
+        int runStart = 0;
+        for (int i = 1; i <= length; i++) {
+            if (i == length || keys[i] != keys[runStart]) {
+                if (i - runStart > 1) {
+                    quickSort(pagesIndex, startPosition + runStart, startPosition + i);
+                }
+                runStart = i;
+            }
+        }
+    }
+
+    /**
+     * Sorts the keys as unsigned longs with a least significant digit radix sort, and
+     * moves the values along with them. Digits that are the same for all keys are skipped.
+     */
+    private static void radixSort(long[] keys, long[] values)
+    {
+        int length = keys.length;
+        long[] sourceKeys = keys;
+        long[] sourceValues = values;
+        long[] targetKeys = new long[length];
+        long[] targetValues = new long[length];
+        int[] offsets = new int[RADIX_BUCKETS];
+
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            Arrays.fill(offsets, 0);
+            for (int i = 0; i < length; i++) {
+                offsets[digit(sourceKeys[i], shift)]++;
+            }
+            if (offsets[digit(sourceKeys[0], shift)] == length) {
+                continue;
+            }
+
+            int offset = 0;
+            for (int bucket = 0; bucket < RADIX_BUCKETS; bucket++) {
+                int count = offsets[bucket];
+                offsets[bucket] = offset;
+                offset += count;
+            }
+            for (int i = 0; i < length; i++) {
+                int target = offsets[digit(sourceKeys[i], shift)]++;
+                targetKeys[target] = sourceKeys[i];
+                targetValues[target] = sourceValues[i];
+            }
+
+            long[] swap = sourceKeys;
+            sourceKeys = targetKeys;
+            targetKeys = swap;
+            swap = sourceValues;
+            sourceValues = targetValues;
+            targetValues = swap;
+        }
+
+        if (sourceKeys != keys) {
+            System.arraycopy(sourceKeys, 0, keys, 0, length);
+            System.arraycopy(sourceValues, 0, values, 0, length);
+        }
+    }
+
+    private static int digit(long key, int shift)
+    {
+        return (int) (key >>> shift) & (RADIX_BUCKETS - 1);
+    }
+
     /**
      * Sorts the specified range of elements using the specified swapper and according to the order induced by the specified
      * comparator using quickSort.
@@ -46,6 +46,15 @@ public interface PositionLinks
          */
         int link(int left, int right);
 
+        /**
+         * @return whether positions of different keys may be linked concurrently, as long as the positions
+         * of each key are linked by a single thread
+         */
+        default boolean supportsConcurrentLinks()
+        {
+            return false;
+        }
+
         Factory build();
 
         boolean isEmpty();
@@ -20,27 +20,45 @@ import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockBuilder;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.operator.exchange.LocalPartitionGenerator;
 import com.facebook.presto.spi.function.aggregation.GroupByIdBlock;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spiller.PartitioningSpiller;
+import com.facebook.presto.spiller.PartitioningSpillerFactory;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closer;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 import static com.facebook.presto.SystemSessionProperties.isDictionaryAggregationEnabled;
+import static com.facebook.presto.SystemSessionProperties.isFlatGroupByHashEnabled;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
-import static com.facebook.presto.operator.GroupByHash.createGroupByHash;
+import static com.facebook.presto.operator.SpillingUtils.checkSpillSucceeded;
+import static com.facebook.presto.operator.SpillingUtils.spillPages;
+import static com.facebook.presto.spiller.PartitioningSpillerFactory.unsupportedPartitioningSpillerFactory;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.lang.String.format;
+import static java.util.Collections.emptyIterator;
 import static java.util.Objects.requireNonNull;
 
 public class RowNumberOperator
         implements Operator
 {
+    @VisibleForTesting
+    static final int SPILL_PARTITION_COUNT = 16;
+
     public static class RowNumberOperatorFactory
             implements OperatorFactory
     {
@@ -55,6 +73,8 @@ public class RowNumberOperator
         private final int expectedPositions;
         private boolean closed;
         private final JoinCompiler joinCompiler;
+        private final boolean spillEnabled;
+        private final PartitioningSpillerFactory partitioningSpillerFactory;
 
         public RowNumberOperatorFactory(
                 int operatorId,
@@ -67,6 +87,23 @@ public class RowNumberOperator
                 Optional<Integer> hashChannel,
                 int expectedPositions,
                 JoinCompiler joinCompiler)
+        {
+            this(operatorId, planNodeId, sourceTypes, outputChannels, partitionChannels, partitionTypes, maxRowsPerPartition, hashChannel, expectedPositions, joinCompiler, false, unsupportedPartitioningSpillerFactory());
+        }
+
+        public RowNumberOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                List<? extends Type> sourceTypes,
+                List<Integer> outputChannels,
+                List<Integer> partitionChannels,
+                List<? extends Type> partitionTypes,
+                Optional<Integer> maxRowsPerPartition,
+                Optional<Integer> hashChannel,
+                int expectedPositions,
+                JoinCompiler joinCompiler,
+                boolean spillEnabled,
+                PartitioningSpillerFactory partitioningSpillerFactory)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -80,6 +117,8 @@ public class RowNumberOperator
             checkArgument(expectedPositions > 0, "expectedPositions < 0");
             this.expectedPositions = expectedPositions;
             this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
+            this.spillEnabled = spillEnabled;
+            this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
         }
 
         @Override
@@ -97,7 +136,9 @@ public class RowNumberOperator
                     maxRowsPerPartition,
                     hashChannel,
                     expectedPositions,
-                    joinCompiler);
+                    joinCompiler,
+                    spillEnabled,
+                    partitioningSpillerFactory);
         }
 
         @Override
@@ -109,22 +150,55 @@ public class RowNumberOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new RowNumberOperatorFactory(operatorId, planNodeId, sourceTypes, outputChannels, partitionChannels, partitionTypes, maxRowsPerPartition, hashChannel, expectedPositions, joinCompiler);
+            return new RowNumberOperatorFactory(operatorId, planNodeId, sourceTypes, outputChannels, partitionChannels, partitionTypes, maxRowsPerPartition, hashChannel, expectedPositions, joinCompiler, spillEnabled, partitioningSpillerFactory);
         }
     }
 
+    @VisibleForTesting
+    public enum State
+    {
+        /**
+         * Operator numbers input using the in memory partition hash
+         */
+        CONSUMING_INPUT,
+
+        /**
+         * Memory revoking occurred during {@link #CONSUMING_INPUT}. The partition row counts have been spilled,
+         * operator accepts input and spills it
+         */
+        SPILLING_INPUT,
+
+        /**
+         * Input has been finished and spilled, operator numbers spilled input partition by partition
+         */
+        UNSPILLING,
+
+        /**
+         * All input has been numbered and returned
+         */
+        FINISHED
+    }
+
     private final OperatorContext operatorContext;
     private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext localRevocableMemoryContext;
     private boolean finishing;
 
     private final int[] outputChannels;
     private final List<Type> types;
 
+    private final List<Type> sourceTypes;
+    private final int[] partitionChannels;
+    private final List<Type> partitionTypes;
+    private final Optional<Integer> hashChannel;
+    private final int expectedPositions;
+    private final JoinCompiler joinCompiler;
+
     private GroupByIdBlock partitionIds;
-    private final Optional<GroupByHash> groupByHash;
+    private Optional<GroupByHash> groupByHash;
 
     private Page inputPage;
-    private final LongBigArray partitionRowCount;
+    private LongBigArray partitionRowCount;
 
     private final Optional<Integer> maxRowsPerPartition;
     // Only present if maxRowsPerPartition is present
@@ -133,6 +207,21 @@ public class RowNumberOperator
     // for yield when memory is not available
     private Work<GroupByIdBlock> unfinishedWork;
 
+    private final boolean spillEnabled;
+    private final PartitioningSpillerFactory partitioningSpillerFactory;
+    private State state = State.CONSUMING_INPUT;
+
+    // row counts are spilled laid out as the partition channels, the hash channel if present and the row count
+    private Optional<PartitioningSpiller> rowCountsSpiller = Optional.empty();
+    private Optional<PartitioningSpiller> inputSpiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = NOT_BLOCKED;
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+
+    private int unspillingPartition;
+    private Iterator<Page> unspilledRowCounts = emptyIterator();
+    private Iterator<Page> unspilledInput = emptyIterator();
+    private Page rowCountsPage;
+
     public RowNumberOperator(
             OperatorContext operatorContext,
             List<Type> sourceTypes,
@@ -143,9 +232,26 @@ public class RowNumberOperator
             Optional<Integer> hashChannel,
             int expectedPositions,
             JoinCompiler joinCompiler)
+    {
+        this(operatorContext, sourceTypes, outputChannels, partitionChannels, partitionTypes, maxRowsPerPartition, hashChannel, expectedPositions, joinCompiler, false, unsupportedPartitioningSpillerFactory());
+    }
+
+    public RowNumberOperator(
+            OperatorContext operatorContext,
+            List<Type> sourceTypes,
+            List<Integer> outputChannels,
+            List<Integer> partitionChannels,
+            List<Type> partitionTypes,
+            Optional<Integer> maxRowsPerPartition,
+            Optional<Integer> hashChannel,
+            int expectedPositions,
+            JoinCompiler joinCompiler,
+            boolean spillEnabled,
+            PartitioningSpillerFactory partitioningSpillerFactory)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.localRevocableMemoryContext = operatorContext.localRevocableMemoryContext();
         this.outputChannels = Ints.toArray(outputChannels);
         this.types = toTypes(sourceTypes, outputChannels);
 
@@ -157,13 +263,22 @@ public class RowNumberOperator
             selectedRowPageBuilder = Optional.empty();
         }
 
+        this.sourceTypes = ImmutableList.copyOf(sourceTypes);
+        this.partitionChannels = Ints.toArray(partitionChannels);
+        this.partitionTypes = ImmutableList.copyOf(partitionTypes);
+        this.hashChannel = requireNonNull(hashChannel, "hashChannel is null");
+        this.expectedPositions = expectedPositions;
+        this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
+        // A single partition only keeps a counter, there is nothing worth spilling
+        this.spillEnabled = spillEnabled && !partitionChannels.isEmpty();
+        this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
+
         this.partitionRowCount = new LongBigArray(0);
         if (partitionChannels.isEmpty()) {
             this.groupByHash = Optional.empty();
         }
         else {
-            int[] channels = Ints.toArray(partitionChannels);
-            this.groupByHash = Optional.of(createGroupByHash(partitionTypes, channels, hashChannel, expectedPositions, isDictionaryAggregationEnabled(operatorContext.getSession()), joinCompiler, this::updateMemoryReservation));
+            this.groupByHash = Optional.of(createGroupByHash(this.partitionChannels, hashChannel));
         }
     }
 
@@ -173,6 +288,21 @@ public class RowNumberOperator
         return operatorContext;
     }
 
+    @VisibleForTesting
+    public State getState()
+    {
+        return state;
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        if (state == State.SPILLING_INPUT) {
+            return spillInProgress;
+        }
+        return NOT_BLOCKED;
+    }
+
     @Override
     public void finish()
     {
@@ -182,6 +312,10 @@ public class RowNumberOperator
     @Override
     public boolean isFinished()
     {
+        if (state != State.CONSUMING_INPUT) {
+            return state == State.FINISHED;
+        }
+
         if (isSinglePartition() && maxRowsPerPartition.isPresent()) {
             if (finishing && !hasUnfinishedInput()) {
                 return true;
@@ -195,6 +329,10 @@ public class RowNumberOperator
     @Override
     public boolean needsInput()
     {
+        if (state != State.CONSUMING_INPUT) {
+            return state == State.SPILLING_INPUT && !finishing && spillInProgress.isDone();
+        }
+
         if (isSinglePartition() && maxRowsPerPartition.isPresent()) {
             // Check if single partition is done
             return partitionRowCount.get(0) < maxRowsPerPartition.get() && !finishing && !hasUnfinishedInput();
@@ -208,6 +346,12 @@ public class RowNumberOperator
         checkState(!finishing, "Operator is already finishing");
         requireNonNull(page, "page is null");
         checkState(!hasUnfinishedInput());
+
+        if (state == State.SPILLING_INPUT) {
+            spillInput(page);
+            return;
+        }
+
         inputPage = page;
         if (groupByHash.isPresent()) {
             unfinishedWork = groupByHash.get().getGroupIds(inputPage);
@@ -219,14 +363,76 @@ public class RowNumberOperator
     @Override
     public Page getOutput()
     {
-        if (unfinishedWork != null && !processUnfinishedWork()) {
-            return null;
+        switch (state) {
+            case CONSUMING_INPUT:
+                if (unfinishedWork != null && !processUnfinishedWork()) {
+                    return null;
+                }
+
+                if (inputPage == null) {
+                    return null;
+                }
+                return getNumberedInput();
+
+            case SPILLING_INPUT:
+                if (!finishing || !spillInProgress.isDone()) {
+                    return null;
+                }
+                checkSpillSucceeded(spillInProgress);
+                state = State.UNSPILLING;
+                startPartitionUnspilling();
+                return getNumberedSpilledInput();
+
+            case UNSPILLING:
+                return getNumberedSpilledInput();
+
+            case FINISHED:
+                return null;
         }
 
-        if (inputPage == null) {
-            return null;
+        throw new IllegalStateException("Unhandled state: " + state);
+    }
+
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        checkState(spillEnabled, "Spill not enabled, no revokable memory should be reserved");
+
+        if (state == State.CONSUMING_INPUT) {
+            finishMemoryRevoke = Optional.of(() -> {
+                groupByHash = Optional.empty();
+                partitionRowCount = new LongBigArray(0);
+                partitionIds = null;
+                unfinishedWork = null;
+                inputPage = null;
+                localRevocableMemoryContext.setBytes(0);
+                state = State.SPILLING_INPUT;
+            });
+            if (inputPage != null) {
+                // The page has not been numbered yet, it is numbered in the second pass instead
+                spillInput(inputPage);
+            }
+            return spillPages(getRowCountsSpiller(), getRowCounts());
+        }
+        else if (operatorContext.getReservedRevocableBytes() == 0) {
+            // Probably stale revoking request
+            finishMemoryRevoke = Optional.of(() -> {});
+            return immediateFuture(null);
         }
 
+        throw new IllegalStateException(format("State %s can not have revocable memory, but has %s revocable bytes", state, operatorContext.getReservedRevocableBytes()));
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        checkState(finishMemoryRevoke.isPresent(), "Cannot finish unknown revoking");
+        finishMemoryRevoke.get().run();
+        finishMemoryRevoke = Optional.empty();
+    }
+
+    private Page getNumberedInput()
+    {
         Page outputPage;
         if (maxRowsPerPartition.isPresent()) {
             outputPage = getSelectedRows();
@@ -240,6 +446,160 @@ public class RowNumberOperator
         return outputPage;
     }
 
+    private Iterator<Page> getRowCounts()
+    {
+        // Groups of a partially processed page have no rows numbered yet, a zero count is equivalent to an absent group
+        int groupCount = groupByHash.get().getGroupCount();
+        partitionRowCount.ensureCapacity(groupCount);
+        Iterator<Page> groupValues = groupByHash.get().getGroupValues(groupCount);
+        return new AbstractIterator<Page>()
+        {
+            private int groupId;
+
+            @Override
+            protected Page computeNext()
+            {
+                if (!groupValues.hasNext()) {
+                    return endOfData();
+                }
+                Page page = groupValues.next();
+                BlockBuilder rowCounts = BIGINT.createFixedSizeBlockBuilder(page.getPositionCount());
+                for (int position = 0; position < page.getPositionCount(); position++) {
+                    BIGINT.writeLong(rowCounts, partitionRowCount.get(groupId));
+                    groupId++;
+                }
+                return page.appendColumn(rowCounts.build());
+            }
+        };
+    }
+
+    private void spillInput(Page page)
+    {
+        checkState(spillInProgress.isDone(), "Previous spill still in progress");
+        checkSpillSucceeded(spillInProgress);
+        spillInProgress = getInputSpiller().partitionAndSpill(page, partition -> true).getSpillingFuture();
+    }
+
+    private void startPartitionUnspilling()
+    {
+        // The spilled row counts have the partition channels first, followed by the hash channel
+        int[] channels = IntStream.range(0, partitionTypes.size()).toArray();
+        Optional<Integer> spilledHashChannel = hashChannel.isPresent() ? Optional.of(partitionTypes.size()) : Optional.empty();
+        groupByHash = Optional.of(createGroupByHash(channels, spilledHashChannel));
+        partitionRowCount = new LongBigArray(0);
+        unspilledRowCounts = getRowCountsSpiller().getSpilledPages(unspillingPartition);
+        unspilledInput = getInputSpiller().getSpilledPages(unspillingPartition);
+    }
+
+    private Page getNumberedSpilledInput()
+    {
+        checkState(state == State.UNSPILLING);
+        while (true) {
+            if (unfinishedWork != null) {
+                if (!processUnfinishedWork()) {
+                    return null;
+                }
+                if (rowCountsPage != null) {
+                    loadRowCounts();
+                    continue;
+                }
+                Page outputPage = getNumberedInput();
+                if (outputPage != null) {
+                    return outputPage;
+                }
+            }
+            else if (unspilledRowCounts.hasNext()) {
+                rowCountsPage = unspilledRowCounts.next();
+                unfinishedWork = groupByHash.get().getGroupIds(rowCountsPage);
+            }
+            else if (unspilledInput.hasNext()) {
+                inputPage = unspilledInput.next();
+                unfinishedWork = groupByHash.get().getGroupIds(inputPage.extractChannels(getInputHashChannels()));
+            }
+            else {
+                groupByHash = Optional.empty();
+                partitionRowCount = new LongBigArray(0);
+                updateMemoryReservation();
+                unspillingPartition++;
+                if (unspillingPartition == SPILL_PARTITION_COUNT) {
+                    close();
+                    return null;
+                }
+                startPartitionUnspilling();
+            }
+        }
+    }
+
+    private void loadRowCounts()
+    {
+        Block rowCounts = rowCountsPage.getBlock(rowCountsPage.getChannelCount() - 1);
+        for (int position = 0; position < rowCountsPage.getPositionCount(); position++) {
+            partitionRowCount.set(partitionIds.getGroupId(position), BIGINT.getLong(rowCounts, position));
+        }
+        rowCountsPage = null;
+        updateMemoryReservation();
+    }
+
+    private int[] getInputHashChannels()
+    {
+        if (!hashChannel.isPresent()) {
+            return partitionChannels;
+        }
+        int[] channels = new int[partitionChannels.length + 1];
+        System.arraycopy(partitionChannels, 0, channels, 0, partitionChannels.length);
+        channels[partitionChannels.length] = hashChannel.get();
+        return channels;
+    }
+
+    private GroupByHash createGroupByHash(int[] channels, Optional<Integer> hashChannel)
+    {
+        return GroupByHash.createGroupByHash(
+                partitionTypes,
+                channels,
+                hashChannel,
+                expectedPositions,
+                isDictionaryAggregationEnabled(operatorContext.getSession()),
+                isFlatGroupByHashEnabled(operatorContext.getSession()),
+                joinCompiler,
+                this::updateMemoryReservation);
+    }
+
+    private PartitioningSpiller getRowCountsSpiller()
+    {
+        if (!rowCountsSpiller.isPresent()) {
+            ImmutableList.Builder<Type> types = ImmutableList.<Type>builder().addAll(partitionTypes);
+            HashGenerator hashGenerator;
+            if (hashChannel.isPresent()) {
+                types.add(BIGINT);
+                hashGenerator = new PrecomputedHashGenerator(partitionTypes.size());
+            }
+            else {
+                hashGenerator = new InterpretedHashGenerator(partitionTypes, IntStream.range(0, partitionTypes.size()).toArray());
+            }
+            types.add(BIGINT);
+            rowCountsSpiller = Optional.of(createSpiller(types.build(), hashGenerator));
+        }
+        return rowCountsSpiller.get();
+    }
+
+    private PartitioningSpiller getInputSpiller()
+    {
+        if (!inputSpiller.isPresent()) {
+            HashGenerator hashGenerator = hashChannel.isPresent() ? new PrecomputedHashGenerator(hashChannel.get()) : new InterpretedHashGenerator(partitionTypes, partitionChannels);
+            inputSpiller = Optional.of(createSpiller(sourceTypes, hashGenerator));
+        }
+        return inputSpiller.get();
+    }
+
+    private PartitioningSpiller createSpiller(List<Type> types, HashGenerator hashGenerator)
+    {
+        return partitioningSpillerFactory.create(
+                types,
+                new LocalPartitionGenerator(hashGenerator, SPILL_PARTITION_COUNT),
+                operatorContext.getSpillContext().newLocalSpillContext(),
+                operatorContext.aggregateSystemMemoryContext());
+    }
+
     private boolean hasUnfinishedInput()
     {
         return inputPage != null || unfinishedWork != null;
@@ -258,7 +618,13 @@ public class RowNumberOperator
         // Operator/driver will be blocked on memory after we call localUserMemoryContext.setBytes().
         // If memory is not available, once we return, this operator will be blocked until memory is available.
         long memorySizeInBytes = groupByHash.map(GroupByHash::getEstimatedSize).orElse(0L) + partitionRowCount.sizeOf();
-        localUserMemoryContext.setBytes(memorySizeInBytes);
+        if (spillEnabled && state == State.CONSUMING_INPUT) {
+            // The partition hash is revocable until it has been spilled
+            localRevocableMemoryContext.setBytes(memorySizeInBytes);
+        }
+        else {
+            localUserMemoryContext.setBytes(memorySizeInBytes);
+        }
         // If memory is not available, inform the caller that we cannot proceed for allocation.
         return operatorContext.isWaitingForMemory().isDone();
     }
@@ -350,6 +716,30 @@ public class RowNumberOperator
         return types.build();
     }
 
+    @Override
+    public void close()
+    {
+        // close() can be called in any state, due for example to query failure, and must clean resource up unconditionally
+        state = State.FINISHED;
+        unfinishedWork = null;
+        inputPage = null;
+        rowCountsPage = null;
+        unspilledRowCounts = emptyIterator();
+        unspilledInput = emptyIterator();
+        finishMemoryRevoke = finishMemoryRevoke.map(ifPresent -> () -> {});
+
+        try (Closer closer = Closer.create()) {
+            rowCountsSpiller.ifPresent(closer::register);
+            inputSpiller.ifPresent(closer::register);
+            closer.register(() -> localRevocableMemoryContext.setBytes(0));
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        rowCountsSpiller = Optional.empty();
+        inputSpiller = Optional.empty();
+    }
+
     @VisibleForTesting
     public int getCapacity()
     {
@@ -14,30 +14,56 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.type.Type;
+import com.facebook.presto.memory.context.LocalMemoryContext;
 import com.facebook.presto.operator.ChannelSet.ChannelSetBuilder;
+import com.facebook.presto.operator.exchange.LocalPartitionGenerator;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spiller.PartitioningSpiller;
+import com.facebook.presto.spiller.PartitioningSpillerFactory;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closer;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.errorprone.annotations.ThreadSafe;
 import jakarta.annotation.Nullable;
 
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 
+import static com.facebook.airlift.concurrent.MoreFutures.whenAnyComplete;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.operator.SpillingUtils.checkSpillSucceeded;
+import static com.facebook.presto.operator.SpillingUtils.spillPages;
+import static com.facebook.presto.spiller.PartitioningSpillerFactory.unsupportedPartitioningSpillerFactory;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Iterators.concat;
+import static com.google.common.collect.Iterators.singletonIterator;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.lang.String.format;
+import static java.util.Collections.emptyIterator;
 import static java.util.Objects.requireNonNull;
 
 @ThreadSafe
 public class SetBuilderOperator
         implements Operator
 {
+    @VisibleForTesting
+    static final int SPILL_PARTITION_COUNT = 16;
+
     public static class SetSupplier
     {
         private final Type type;
         private final SettableFuture<ChannelSet> channelSetFuture = SettableFuture.create();
+        private final SettableFuture<SpilledChannelSet> spilledChannelSetFuture = SettableFuture.create();
+        private final ListenableFuture<?> setBuilt = whenAnyComplete(ImmutableList.of(channelSetFuture, spilledChannelSetFuture));
 
         public SetSupplier(Type type)
         {
@@ -54,11 +80,32 @@ public class SetBuilderOperator
             return channelSetFuture;
         }
 
+        /**
+         * Completed instead of {@link #getChannelSet()} when the set has been spilled while being built
+         */
+        public ListenableFuture<SpilledChannelSet> getSpilledChannelSet()
+        {
+            return spilledChannelSetFuture;
+        }
+
+        public ListenableFuture<?> getSetBuilt()
+        {
+            return setBuilt;
+        }
+
         void setChannelSet(ChannelSet channelSet)
         {
+            checkState(!spilledChannelSetFuture.isDone(), "ChannelSet already spilled");
             boolean wasSet = channelSetFuture.set(requireNonNull(channelSet, "channelSet is null"));
             checkState(wasSet, "ChannelSet already set");
         }
+
+        void setSpilledChannelSet(SpilledChannelSet spilledChannelSet)
+        {
+            checkState(!channelSetFuture.isDone(), "ChannelSet already set");
+            boolean wasSet = spilledChannelSetFuture.set(requireNonNull(spilledChannelSet, "spilledChannelSet is null"));
+            checkState(wasSet, "ChannelSet already spilled");
+        }
     }
 
     public static class SetBuilderOperatorFactory
@@ -72,6 +119,9 @@ public class SetBuilderOperator
         private final int expectedPositions;
         private boolean closed;
         private final JoinCompiler joinCompiler;
+        private final boolean spillEnabled;
+        private final int probeOperatorsCount;
+        private final PartitioningSpillerFactory partitioningSpillerFactory;
 
         public SetBuilderOperatorFactory(
                 int operatorId,
@@ -81,6 +131,21 @@ public class SetBuilderOperator
                 Optional<Integer> hashChannel,
                 int expectedPositions,
                 JoinCompiler joinCompiler)
+        {
+            this(operatorId, planNodeId, type, setChannel, hashChannel, expectedPositions, joinCompiler, false, 1, unsupportedPartitioningSpillerFactory());
+        }
+
+        public SetBuilderOperatorFactory(
+                int operatorId,
+                PlanNodeId planNodeId,
+                Type type,
+                int setChannel,
+                Optional<Integer> hashChannel,
+                int expectedPositions,
+                JoinCompiler joinCompiler,
+                boolean spillEnabled,
+                int probeOperatorsCount,
+                PartitioningSpillerFactory partitioningSpillerFactory)
         {
             this.operatorId = operatorId;
             this.planNodeId = requireNonNull(planNodeId, "planNodeId is null");
@@ -90,6 +155,10 @@ public class SetBuilderOperator
             this.hashChannel = requireNonNull(hashChannel, "hashChannel is null");
             this.expectedPositions = expectedPositions;
             this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
+            checkArgument(probeOperatorsCount > 0, "probeOperatorsCount must be positive");
+            this.spillEnabled = spillEnabled;
+            this.probeOperatorsCount = probeOperatorsCount;
+            this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
         }
 
         public SetSupplier getSetProvider()
@@ -102,7 +171,7 @@ public class SetBuilderOperator
         {
             checkState(!closed, "Factory is already closed");
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, planNodeId, SetBuilderOperator.class.getSimpleName());
-            return new SetBuilderOperator(operatorContext, setProvider, setChannel, hashChannel, expectedPositions, joinCompiler);
+            return new SetBuilderOperator(operatorContext, setProvider, setChannel, hashChannel, expectedPositions, joinCompiler, spillEnabled, probeOperatorsCount, partitioningSpillerFactory);
         }
 
         @Override
@@ -114,20 +183,78 @@ public class SetBuilderOperator
         @Override
         public OperatorFactory duplicate()
         {
-            return new SetBuilderOperatorFactory(operatorId, planNodeId, setProvider.getType(), setChannel, hashChannel, expectedPositions, joinCompiler);
+            return new SetBuilderOperatorFactory(operatorId, planNodeId, setProvider.getType(), setChannel, hashChannel, expectedPositions, joinCompiler, spillEnabled, probeOperatorsCount, partitioningSpillerFactory);
         }
     }
 
+    @VisibleForTesting
+    public enum State
+    {
+        /**
+         * Operator accepts input
+         */
+        CONSUMING_INPUT,
+
+        /**
+         * Memory revoking occurred during {@link #CONSUMING_INPUT}. Operator accepts input and spills it
+         */
+        SPILLING_INPUT,
+
+        /**
+         * Input has been finished and spilled, waiting for the next partition to be requested
+         */
+        INPUT_SPILLED,
+
+        /**
+         * Spilled partition is being unspilled
+         */
+        INPUT_UNSPILLING,
+
+        /**
+         * Spilled partition has been unspilled, ChannelSet built from it
+         */
+        INPUT_UNSPILLED_AND_BUILT,
+
+        /**
+         * ChannelSet has been passed on or all spilled partitions have been consumed
+         */
+        FINISHED
+    }
+
     private final OperatorContext operatorContext;
+    private final LocalMemoryContext localUserMemoryContext;
+    private final LocalMemoryContext localRevocableMemoryContext;
     private final SetSupplier setSupplier;
     private final int[] sourceChannels;
+    private final Optional<Integer> channelSetHashChannel;
+    private final int expectedPositions;
+    private final JoinCompiler joinCompiler;
+
+    private final boolean spillEnabled;
+    private final int probeOperatorsCount;
+    private final PartitioningSpillerFactory partitioningSpillerFactory;
 
-    private final ChannelSetBuilder channelSetBuilder;
+    @Nullable
+    private ChannelSetBuilder channelSetBuilder;
 
-    private boolean finished;
+    private State state = State.CONSUMING_INPUT;
 
     @Nullable
     private Work<?> unfinishedWork;  // The pending work for current page.
+    @Nullable
+    private Page unfinishedPage;  // The page of the pending work, only tracked when spill is enabled.
+
+    private boolean inputContainsNull;
+    private boolean inputEmpty = true;
+
+    private Optional<PartitioningSpiller> spiller = Optional.empty();
+    private ListenableFuture<?> spillInProgress = NOT_BLOCKED;
+    private Optional<Runnable> finishMemoryRevoke = Optional.empty();
+
+    @Nullable
+    private SpilledChannelSet spilledChannelSet;
+    private int unspillingPartition;
+    private Iterator<Page> unspilledPages = emptyIterator();
 
     public SetBuilderOperator(
             OperatorContext operatorContext,
@@ -136,8 +263,24 @@ public class SetBuilderOperator
             Optional<Integer> hashChannel,
             int expectedPositions,
             JoinCompiler joinCompiler)
+    {
+        this(operatorContext, setSupplier, setChannel, hashChannel, expectedPositions, joinCompiler, false, 1, unsupportedPartitioningSpillerFactory());
+    }
+
+    public SetBuilderOperator(
+            OperatorContext operatorContext,
+            SetSupplier setSupplier,
+            int setChannel,
+            Optional<Integer> hashChannel,
+            int expectedPositions,
+            JoinCompiler joinCompiler,
+            boolean spillEnabled,
+            int probeOperatorsCount,
+            PartitioningSpillerFactory partitioningSpillerFactory)
     {
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
+        this.localUserMemoryContext = operatorContext.localUserMemoryContext();
+        this.localRevocableMemoryContext = operatorContext.localRevocableMemoryContext();
         this.setSupplier = requireNonNull(setSupplier, "setProvider is null");
 
         if (requireNonNull(hashChannel, "hashChannel is null").isPresent()) {
@@ -148,13 +291,21 @@ public class SetBuilderOperator
         }
 
         // Set builder is has a single channel which goes in channel 0, if hash is present, add a hashBlock to channel 1
-        Optional<Integer> channelSetHashChannel = hashChannel.isPresent() ? Optional.of(1) : Optional.empty();
+        this.channelSetHashChannel = hashChannel.isPresent() ? Optional.of(1) : Optional.empty();
+        this.expectedPositions = expectedPositions;
+        this.joinCompiler = requireNonNull(joinCompiler, "joinCompiler is null");
+        this.spillEnabled = spillEnabled;
+        this.probeOperatorsCount = probeOperatorsCount;
+        this.partitioningSpillerFactory = requireNonNull(partitioningSpillerFactory, "partitioningSpillerFactory is null");
+
+        // While spill is enabled the set is revocable until it has been handed over to the probe side
         this.channelSetBuilder = new ChannelSetBuilder(
                 setSupplier.getType(),
                 channelSetHashChannel,
                 expectedPositions,
-                requireNonNull(operatorContext, "operatorContext is null"),
-                requireNonNull(joinCompiler, "joinCompiler is null"));
+                operatorContext,
+                spillEnabled ? localRevocableMemoryContext : localUserMemoryContext,
+                joinCompiler);
     }
 
     @Override
@@ -163,23 +314,67 @@ public class SetBuilderOperator
         return operatorContext;
     }
 
+    @VisibleForTesting
+    public State getState()
+    {
+        return state;
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        switch (state) {
+            case SPILLING_INPUT:
+                return spillInProgress;
+            case INPUT_SPILLED:
+                return spilledChannelSet.getLoadOrDisposeRequested(unspillingPartition);
+            case INPUT_UNSPILLED_AND_BUILT:
+                return spilledChannelSet.getDisposeRequested(unspillingPartition);
+            default:
+                return NOT_BLOCKED;
+        }
+    }
+
     @Override
     public void finish()
     {
-        if (finished) {
+        if (finishMemoryRevoke.isPresent()) {
             return;
         }
 
-        ChannelSet channelSet = channelSetBuilder.build();
-        setSupplier.setChannelSet(channelSet);
-        operatorContext.recordOutput(channelSet.getEstimatedSizeInBytes(), channelSet.size());
-        finished = true;
+        switch (state) {
+            case CONSUMING_INPUT:
+                finishInput();
+                return;
+
+            case SPILLING_INPUT:
+                finishSpilledInput();
+                return;
+
+            case INPUT_SPILLED:
+                unspillChannelSetIfRequested();
+                return;
+
+            case INPUT_UNSPILLING:
+                finishChannelSetUnspilling();
+                return;
+
+            case INPUT_UNSPILLED_AND_BUILT:
+                disposeUnspilledChannelSetIfRequested();
+                return;
+
+            case FINISHED:
+                // no-op
+                return;
+        }
+
+        throw new IllegalStateException("Unhandled state: " + state);
     }
 
     @Override
     public boolean isFinished()
     {
-        return finished;
+        return state == State.FINISHED;
     }
 
     @Override
@@ -188,16 +383,32 @@ public class SetBuilderOperator
         // Since SetBuilderOperator doesn't produce any output, the getOutput()
         // method may never be called. We need to handle any unfinished work
         // before addInput() can be called again.
-        return !finished && (unfinishedWork == null || processUnfinishedWork());
+        if (state == State.CONSUMING_INPUT) {
+            return unfinishedWork == null || processUnfinishedWork();
+        }
+        return state == State.SPILLING_INPUT && spillInProgress.isDone();
     }
 
     @Override
     public void addInput(Page page)
     {
         requireNonNull(page, "page is null");
-        checkState(!isFinished(), "Operator is already finished");
+        checkState(state == State.CONSUMING_INPUT || state == State.SPILLING_INPUT, "Operator is already finished");
+
+        Page setPage = page.extractChannels(sourceChannels);
+        if (spillEnabled) {
+            recordSpillableInput(setPage);
+        }
 
-        unfinishedWork = channelSetBuilder.addPage(page.extractChannels(sourceChannels));
+        if (state == State.SPILLING_INPUT) {
+            spillInput(setPage);
+            return;
+        }
+
+        if (spillEnabled) {
+            unfinishedPage = setPage;
+        }
+        unfinishedWork = channelSetBuilder.addPage(setPage);
         processUnfinishedWork();
     }
 
@@ -207,6 +418,164 @@ public class SetBuilderOperator
         return null;
     }
 
+    @Override
+    public ListenableFuture<?> startMemoryRevoke()
+    {
+        checkState(spillEnabled, "Spill not enabled, no revokable memory should be reserved");
+
+        if (state == State.CONSUMING_INPUT) {
+            finishMemoryRevoke = Optional.of(() -> {
+                channelSetBuilder = null;
+                unfinishedWork = null;
+                unfinishedPage = null;
+                localRevocableMemoryContext.setBytes(0);
+                state = State.SPILLING_INPUT;
+            });
+            // Values of a partially processed page may already be in the set, spilling them twice is harmless
+            Iterator<Page> pages = channelSetBuilder.getPages();
+            if (unfinishedPage != null) {
+                pages = concat(pages, singletonIterator(unfinishedPage));
+            }
+            return spillPages(getSpiller(), pages);
+        }
+        else if (operatorContext.getReservedRevocableBytes() == 0) {
+            // Probably stale revoking request
+            finishMemoryRevoke = Optional.of(() -> {});
+            return immediateFuture(null);
+        }
+
+        throw new IllegalStateException(format("State %s can not have revocable memory, but has %s revocable bytes", state, operatorContext.getReservedRevocableBytes()));
+    }
+
+    @Override
+    public void finishMemoryRevoke()
+    {
+        checkState(finishMemoryRevoke.isPresent(), "Cannot finish unknown revoking");
+        finishMemoryRevoke.get().run();
+        finishMemoryRevoke = Optional.empty();
+    }
+
+    private void recordSpillableInput(Page page)
+    {
+        // Null handling of the semi join depends on the whole set, not only on the probed partition
+        Block block = page.getBlock(0);
+        if (!inputContainsNull && block.mayHaveNull()) {
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                if (block.isNull(position)) {
+                    inputContainsNull = true;
+                    break;
+                }
+            }
+        }
+        inputEmpty &= page.getPositionCount() == 0;
+    }
+
+    private void spillInput(Page page)
+    {
+        checkState(spillInProgress.isDone(), "Previous spill still in progress");
+        checkSpillSucceeded(spillInProgress);
+        spillInProgress = getSpiller().partitionAndSpill(page, partition -> true).getSpillingFuture();
+    }
+
+    private void finishInput()
+    {
+        checkState(state == State.CONSUMING_INPUT);
+        if (unfinishedWork != null && !processUnfinishedWork()) {
+            return;
+        }
+
+        ChannelSet channelSet = channelSetBuilder.build();
+        if (spillEnabled) {
+            localRevocableMemoryContext.setBytes(0);
+            localUserMemoryContext.setBytes(channelSet.getEstimatedSizeInBytes());
+        }
+        setSupplier.setChannelSet(channelSet);
+        operatorContext.recordOutput(channelSet.getEstimatedSizeInBytes(), channelSet.size());
+        state = State.FINISHED;
+    }
+
+    private void finishSpilledInput()
+    {
+        checkState(state == State.SPILLING_INPUT);
+        if (!spillInProgress.isDone()) {
+            // Not ready to handle finish() yet
+            return;
+        }
+        checkSpillSucceeded(spillInProgress);
+
+        spilledChannelSet = new SpilledChannelSet(SPILL_PARTITION_COUNT, probeOperatorsCount, inputContainsNull, inputEmpty);
+        setSupplier.setSpilledChannelSet(spilledChannelSet);
+        state = State.INPUT_SPILLED;
+    }
+
+    private void unspillChannelSetIfRequested()
+    {
+        checkState(state == State.INPUT_SPILLED);
+        if (spilledChannelSet.isDisposeRequested(unspillingPartition)) {
+            // None of the probe operators had rows in this partition
+            disposePartition();
+            return;
+        }
+        if (!spilledChannelSet.isLoadRequested(unspillingPartition)) {
+            // Nothing to do yet.
+            return;
+        }
+
+        channelSetBuilder = new ChannelSetBuilder(setSupplier.getType(), channelSetHashChannel, expectedPositions, operatorContext, localUserMemoryContext, joinCompiler);
+        unspilledPages = getSpiller().getSpilledPages(unspillingPartition);
+        state = State.INPUT_UNSPILLING;
+        finishChannelSetUnspilling();
+    }
+
+    private void finishChannelSetUnspilling()
+    {
+        checkState(state == State.INPUT_UNSPILLING);
+        if (spilledChannelSet.isDisposeRequested(unspillingPartition)) {
+            // All probe operators were closed before the partition was unspilled
+            disposePartition();
+            return;
+        }
+
+        while (unfinishedWork != null || unspilledPages.hasNext()) {
+            if (unfinishedWork == null) {
+                unfinishedWork = channelSetBuilder.addPage(unspilledPages.next());
+            }
+            if (!processUnfinishedWork()) {
+                return;
+            }
+        }
+
+        ChannelSet channelSet = channelSetBuilder.build();
+        operatorContext.recordOutput(channelSet.getEstimatedSizeInBytes(), channelSet.size());
+        spilledChannelSet.setChannelSet(unspillingPartition, channelSet);
+        state = State.INPUT_UNSPILLED_AND_BUILT;
+    }
+
+    private void disposeUnspilledChannelSetIfRequested()
+    {
+        checkState(state == State.INPUT_UNSPILLED_AND_BUILT);
+        if (!spilledChannelSet.isDisposeRequested(unspillingPartition)) {
+            return;
+        }
+        disposePartition();
+    }
+
+    private void disposePartition()
+    {
+        channelSetBuilder = null;
+        unfinishedWork = null;
+        unspilledPages = emptyIterator();
+        localUserMemoryContext.setBytes(0);
+        spilledChannelSet.setDisposed(unspillingPartition);
+
+        unspillingPartition++;
+        if (unspillingPartition == spilledChannelSet.getPartitionCount()) {
+            close();
+            return;
+        }
+        state = State.INPUT_SPILLED;
+    }
+
     private boolean processUnfinishedWork()
     {
         // Processes the unfinishedWork for this page by adding the data to the hash table. If this page
@@ -215,12 +584,51 @@ public class SetBuilderOperator
         boolean done = unfinishedWork.process();
         if (done) {
             unfinishedWork = null;
+            unfinishedPage = null;
         }
         // We need to update the memory reservation again since the page builder memory may also be increasing.
         channelSetBuilder.updateMemoryReservation();
         return done;
     }
 
+    private PartitioningSpiller getSpiller()
+    {
+        if (!spiller.isPresent()) {
+            List<Type> types = channelSetHashChannel.isPresent() ? ImmutableList.of(setSupplier.getType(), BIGINT) : ImmutableList.of(setSupplier.getType());
+            HashGenerator hashGenerator = channelSetHashChannel.isPresent() ? new PrecomputedHashGenerator(channelSetHashChannel.get()) : new InterpretedHashGenerator(ImmutableList.of(setSupplier.getType()), new int[] {0});
+            spiller = Optional.of(partitioningSpillerFactory.create(
+                    types,
+                    new LocalPartitionGenerator(hashGenerator, SPILL_PARTITION_COUNT),
+                    operatorContext.getSpillContext().newLocalSpillContext(),
+                    operatorContext.aggregateSystemMemoryContext()));
+        }
+        return spiller.get();
+    }
+
+    @Override
+    public void close()
+    {
+        if (state == State.FINISHED && !spiller.isPresent()) {
+            return;
+        }
+        // close() can be called in any state, due for example to query failure, and must clean resource up unconditionally
+        state = State.FINISHED;
+        channelSetBuilder = null;
+        unfinishedWork = null;
+        unfinishedPage = null;
+        unspilledPages = emptyIterator();
+        finishMemoryRevoke = finishMemoryRevoke.map(ifPresent -> () -> {});
+
+        try (Closer closer = Closer.create()) {
+            spiller.ifPresent(closer::register);
+            closer.register(() -> localRevocableMemoryContext.setBytes(0));
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        spiller = Optional.empty();
+    }
+
     @VisibleForTesting
     public int getCapacity()
     {
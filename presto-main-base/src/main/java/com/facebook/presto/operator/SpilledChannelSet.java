@@ -0,0 +1,148 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.errorprone.annotations.ThreadSafe;
+
+import java.util.stream.IntStream;
+
+import static com.facebook.airlift.concurrent.MoreFutures.whenAnyComplete;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Handle to a semi join build side that has been spilled by {@link SetBuilderOperator}.
+ * <p>
+ * The spilled set is split into {@link #getPartitionCount()} hash partitions. Probe operators spill
+ * their input using the same partitioning and then consume the set partition by partition through
+ * {@link #getPartitionedConsumption()}. A partition is unspilled by the {@link SetBuilderOperator}
+ * when first requested and disposed once all probe operators have released it, so at most one
+ * partition is held in memory at a time.
+ */
+@ThreadSafe
+public final class SpilledChannelSet
+{
+    private final int partitionCount;
+    private final boolean containsNull;
+    private final boolean empty;
+
+    private final SettableFuture<?>[] loadRequested;
+    private final SettableFuture<ChannelSet>[] loaded;
+    private final SettableFuture<?>[] disposeRequested;
+    private final SettableFuture<?>[] disposed;
+    private final ListenableFuture<?>[] loadOrDisposeRequested;
+
+    private final PartitionedConsumption<ChannelSet> partitionedConsumption;
+
+    @SuppressWarnings("unchecked")
+    public SpilledChannelSet(int partitionCount, int probeOperatorsCount, boolean containsNull, boolean empty)
+    {
+        checkArgument(partitionCount > 0, "partitionCount must be positive");
+        this.partitionCount = partitionCount;
+        this.containsNull = containsNull;
+        this.empty = empty;
+
+        this.loadRequested = new SettableFuture[partitionCount];
+        this.loaded = new SettableFuture[partitionCount];
+        this.disposeRequested = new SettableFuture[partitionCount];
+        this.disposed = new SettableFuture[partitionCount];
+        this.loadOrDisposeRequested = new ListenableFuture[partitionCount];
+        for (int partition = 0; partition < partitionCount; partition++) {
+            loadRequested[partition] = SettableFuture.create();
+            loaded[partition] = SettableFuture.create();
+            disposeRequested[partition] = SettableFuture.create();
+            disposed[partition] = SettableFuture.create();
+            loadOrDisposeRequested[partition] = whenAnyComplete(ImmutableList.of(loadRequested[partition], disposeRequested[partition]));
+        }
+
+        this.partitionedConsumption = new PartitionedConsumption<>(
+                probeOperatorsCount,
+                IntStream.range(0, partitionCount).boxed().collect(ImmutableList.toImmutableList()),
+                this::load,
+                this::dispose,
+                partition -> disposed[partition]);
+    }
+
+    public int getPartitionCount()
+    {
+        return partitionCount;
+    }
+
+    /**
+     * Whether the whole (not per partition) set contains null
+     */
+    public boolean containsNull()
+    {
+        return containsNull;
+    }
+
+    /**
+     * Whether the whole (not per partition) set is empty
+     */
+    public boolean isEmpty()
+    {
+        return empty;
+    }
+
+    public PartitionedConsumption<ChannelSet> getPartitionedConsumption()
+    {
+        return partitionedConsumption;
+    }
+
+    private ListenableFuture<ChannelSet> load(int partition)
+    {
+        loadRequested[partition].set(null);
+        return loaded[partition];
+    }
+
+    private void dispose(int partition)
+    {
+        disposeRequested[partition].set(null);
+    }
+
+    ListenableFuture<?> getLoadOrDisposeRequested(int partition)
+    {
+        return loadOrDisposeRequested[partition];
+    }
+
+    ListenableFuture<?> getDisposeRequested(int partition)
+    {
+        return disposeRequested[partition];
+    }
+
+    boolean isLoadRequested(int partition)
+    {
+        return loadRequested[partition].isDone();
+    }
+
+    boolean isDisposeRequested(int partition)
+    {
+        return disposeRequested[partition].isDone();
+    }
+
+    void setChannelSet(int partition, ChannelSet channelSet)
+    {
+        requireNonNull(channelSet, "channelSet is null");
+        checkState(loaded[partition].set(channelSet), "ChannelSet for partition %s already set", partition);
+    }
+
+    void setDisposed(int partition)
+    {
+        disposed[partition].set(null);
+    }
+}
@@ -13,12 +13,19 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.common.Page;
 import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spiller.PartitioningSpiller;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import java.util.Iterator;
 import java.util.concurrent.Future;
 
 import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
 import static com.facebook.presto.spi.StandardErrorCode.GENERIC_SPILL_FAILURE;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static com.google.common.util.concurrent.Futures.transformAsync;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static java.lang.String.format;
 
 public class SpillingUtils
@@ -43,4 +50,19 @@ public class SpillingUtils
             throw new PrestoException(GENERIC_SPILL_FAILURE, format("Spilling failed: %s", runtimeException.getMessage()), runtimeException);
         }
     }
+
+    /**
+     * Spills the pages one after another, as the spiller does not allow concurrent spills.
+     */
+    public static ListenableFuture<?> spillPages(PartitioningSpiller spiller, Iterator<Page> pages)
+    {
+        while (pages.hasNext()) {
+            ListenableFuture<?> spilled = spiller.partitionAndSpill(pages.next(), partition -> true).getSpillingFuture();
+            if (!spilled.isDone()) {
+                return transformAsync(spilled, ignored -> spillPages(spiller, pages), directExecutor());
+            }
+            checkSpillSucceeded(spilled);
+        }
+        return immediateFuture(null);
+    }
 }
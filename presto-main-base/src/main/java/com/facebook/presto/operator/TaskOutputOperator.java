@@ -100,6 +100,7 @@ public class TaskOutputOperator
     private final OperatorContext operatorContext;
     private final OutputBuffer outputBuffer;
     private final Function<Page, Page> pagePreprocessor;
+    private final PagesSerdeFactory serdeFactory;
     private final PagesSerde serde;
     private ListenableFuture<?> isBlocked = NOT_BLOCKED;
     private boolean finished;
@@ -109,7 +110,8 @@ public class TaskOutputOperator
         this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
         this.outputBuffer = requireNonNull(outputBuffer, "outputBuffer is null");
         this.pagePreprocessor = requireNonNull(pagePreprocessor, "pagePreprocessor is null");
-        this.serde = requireNonNull(serdeFactory, "serdeFactory is null").createPagesSerde();
+        this.serdeFactory = requireNonNull(serdeFactory, "serdeFactory is null");
+        this.serde = serdeFactory.createPagesSerde();
     }
 
     @Override
@@ -172,4 +174,10 @@ public class TaskOutputOperator
     {
         return null;
     }
+
+    @Override
+    public void close()
+    {
+        serdeFactory.recordCompressionStats(serde, operatorContext.getRuntimeStats());
+    }
 }
@@ -76,6 +76,16 @@ public class WindowFunctionDefinition
         return type;
     }
 
+    public List<Integer> getArgumentChannels()
+    {
+        return argumentChannels;
+    }
+
+    public boolean isIgnoreNulls()
+    {
+        return ignoreNulls;
+    }
+
     public WindowFunction createWindowFunction()
     {
         return functionSupplier.createWindowFunction(argumentChannels, ignoreNulls);
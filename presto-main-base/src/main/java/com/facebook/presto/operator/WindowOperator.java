@@ -23,6 +23,7 @@ import com.facebook.presto.operator.WorkProcessor.Transformation;
 import com.facebook.presto.operator.WorkProcessor.TransformationState;
 import com.facebook.presto.operator.window.FrameInfo;
 import com.facebook.presto.operator.window.FramedWindowFunction;
+import com.facebook.presto.operator.window.StreamingWindowPartition;
 import com.facebook.presto.operator.window.WindowPartition;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.spiller.Spiller;
@@ -45,6 +46,7 @@ import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiPredicate;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import static com.facebook.presto.common.block.SortOrder.ASC_NULLS_LAST;
@@ -85,6 +87,7 @@ public class WindowOperator
         private boolean closed;
         private final PagesIndex.Factory pagesIndexFactory;
         private final boolean spillEnabled;
+        private final boolean spillStreamingEnabled;
         private final SpillerFactory spillerFactory;
         private final OrderingCompiler orderingCompiler;
 
@@ -102,6 +105,7 @@ public class WindowOperator
                 int expectedPositions,
                 PagesIndex.Factory pagesIndexFactory,
                 boolean spillEnabled,
+                boolean spillStreamingEnabled,
                 SpillerFactory spillerFactory,
                 OrderingCompiler orderingCompiler)
         {
@@ -134,6 +138,7 @@ public class WindowOperator
             this.preSortedChannelPrefix = preSortedChannelPrefix;
             this.expectedPositions = expectedPositions;
             this.spillEnabled = spillEnabled;
+            this.spillStreamingEnabled = spillStreamingEnabled;
             this.spillerFactory = spillerFactory;
             this.orderingCompiler = orderingCompiler;
         }
@@ -157,6 +162,7 @@ public class WindowOperator
                     expectedPositions,
                     pagesIndexFactory,
                     spillEnabled,
+                    spillStreamingEnabled,
                     spillerFactory,
                     orderingCompiler);
         }
@@ -184,6 +190,7 @@ public class WindowOperator
                     expectedPositions,
                     pagesIndexFactory,
                     spillEnabled,
+                    spillStreamingEnabled,
                     spillerFactory,
                     orderingCompiler);
         }
@@ -196,7 +203,7 @@ public class WindowOperator
     private final WindowInfo.DriverWindowInfoBuilder windowInfo;
     private final AtomicReference<WindowInfo> driverWindowInfo = new AtomicReference<>(WindowInfo.emptyInfo());
 
-    private final Optional<SpillablePagesToPagesIndexes> spillablePagesToPagesIndexes;
+    private final Optional<SpillablePagesToPagesIndexes<?>> spillablePagesToPagesIndexes;
 
     private final WorkProcessor<Page> outputPages;
     @Nullable
@@ -216,6 +223,7 @@ public class WindowOperator
             int expectedPositions,
             PagesIndex.Factory pagesIndexFactory,
             boolean spillEnabled,
+            boolean spillStreamingEnabled,
             SpillerFactory spillerFactory,
             OrderingCompiler orderingCompiler)
     {
@@ -294,19 +302,42 @@ public class WindowOperator
                     sortOrder,
                     windowFunctionDefinitions);
 
-            this.spillablePagesToPagesIndexes = Optional.of(new SpillablePagesToPagesIndexes(
-                    inMemoryPagesIndexWithHashStrategies,
-                    mergedPagesIndexWithHashStrategies,
-                    sourceTypes,
-                    orderChannels,
-                    ordering,
-                    spillerFactory,
-                    orderingCompiler.compilePageWithPositionComparator(sourceTypes, unGroupedOrderChannels, unGroupedOrdering)));
+            PageWithPositionComparator pageWithPositionComparator = orderingCompiler.compilePageWithPositionComparator(sourceTypes, unGroupedOrderChannels, unGroupedOrdering);
 
-            this.outputPages = WorkProcessor.create(new PagesSource())
-                    .flatTransform(spillablePagesToPagesIndexes.get())
-                    .flatMap(this::pagesIndexToWindowPartitions)
-                    .transform(new WindowPartitionsToOutputPages());
+            if (spillStreamingEnabled && isStreamable(windowFunctions, windowFunctionDefinitions)) {
+                // Sorted groups are streamed into the window functions, so a partition never needs to fit in memory
+                SpillablePagesToPagesIndexes<Page> spillablePagesToSortedPages = new SpillablePagesToPagesIndexes<>(
+                        inMemoryPagesIndexWithHashStrategies,
+                        sourceTypes,
+                        orderChannels,
+                        ordering,
+                        spillerFactory,
+                        pageWithPositionComparator,
+                        inMemoryPagesIndex -> WorkProcessor.fromIterator(inMemoryPagesIndex.pagesIndex.getSortedPages()),
+                        mergedPages -> mergedPages);
+                this.spillablePagesToPagesIndexes = Optional.of(spillablePagesToSortedPages);
+
+                this.outputPages = WorkProcessor.create(new PagesSource())
+                        .flatTransform(spillablePagesToSortedPages)
+                        .transform(new SortedPagesToOutputPages(sourceTypes, partitionChannels, sortChannels, mergedPagesIndexWithHashStrategies));
+            }
+            else {
+                SpillablePagesToPagesIndexes<PagesIndexWithHashStrategies> spillablePagesToPagesIndexes = new SpillablePagesToPagesIndexes<>(
+                        inMemoryPagesIndexWithHashStrategies,
+                        sourceTypes,
+                        orderChannels,
+                        ordering,
+                        spillerFactory,
+                        pageWithPositionComparator,
+                        inMemoryPagesIndex -> WorkProcessor.fromIterable(ImmutableList.of(inMemoryPagesIndex)),
+                        mergedPages -> mergedPages.transform(new PagesToPagesIndexes(mergedPagesIndexWithHashStrategies, ImmutableList.of(), ImmutableList.of())));
+                this.spillablePagesToPagesIndexes = Optional.of(spillablePagesToPagesIndexes);
+
+                this.outputPages = WorkProcessor.create(new PagesSource())
+                        .flatTransform(spillablePagesToPagesIndexes)
+                        .flatMap(this::pagesIndexToWindowPartitions)
+                        .transform(new WindowPartitionsToOutputPages());
+            }
         }
         else {
             this.spillablePagesToPagesIndexes = Optional.empty();
@@ -383,6 +414,18 @@ public class WindowOperator
         spillablePagesToPagesIndexes.get().finishRevokeMemory();
     }
 
+    private static boolean isStreamable(List<FramedWindowFunction> windowFunctions, List<WindowFunctionDefinition> windowFunctionDefinitions)
+    {
+        for (int i = 0; i < windowFunctions.size(); i++) {
+            FramedWindowFunction windowFunction = windowFunctions.get(i);
+            WindowFunctionDefinition definition = windowFunctionDefinitions.get(i);
+            if (!StreamingWindowPartition.isStreamable(windowFunction.getFunction(), windowFunction.getFrame(), definition.getArgumentChannels().size(), definition.isIgnoreNulls())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static class PagesIndexWithHashStrategies
     {
         final PagesIndex pagesIndex;
@@ -641,11 +684,126 @@ public class WindowOperator
         }
     }
 
-    private class SpillablePagesToPagesIndexes
-            implements Transformation<Page, WorkProcessor<PagesIndexWithHashStrategies>>
+    /**
+     * Evaluates the window functions over pages that are grouped on the partition channels and sorted on the sort channels.
+     * Rows are buffered only until the window functions no longer need them, see {@link StreamingWindowPartition}.
+     */
+    private class SortedPagesToOutputPages
+            implements Transformation<Page, Page>
+    {
+        final List<Type> sourceTypes;
+        final int[] partitionChannels;
+        final int[] sortChannels;
+        final PagesHashStrategy partitionHashStrategy;
+        final PagesHashStrategy peerGroupHashStrategy;
+        final PageBuilder pageBuilder;
+        final LocalMemoryContext memoryContext;
+
+        @Nullable
+        StreamingWindowPartition partition;
+        // partition channels of the first row of the current partition
+        Page partitionRowPage;
+        // partition channels of the pending input
+        @Nullable
+        Page pendingInputPartitionPage;
+        int pendingInputPosition;
+
+        SortedPagesToOutputPages(
+                List<Type> sourceTypes,
+                List<Integer> partitionChannels,
+                List<Integer> sortChannels,
+                PagesIndexWithHashStrategies pagesIndexWithHashStrategies)
+        {
+            this.sourceTypes = sourceTypes;
+            this.partitionChannels = Ints.toArray(partitionChannels);
+            this.sortChannels = Ints.toArray(sortChannels);
+            // sorted pages are grouped on all partition channels
+            this.partitionHashStrategy = pagesIndexWithHashStrategies.preGroupedPartitionHashStrategy;
+            this.peerGroupHashStrategy = pagesIndexWithHashStrategies.peerGroupHashStrategy;
+            this.pageBuilder = new PageBuilder(outputTypes);
+            this.memoryContext = operatorContext.aggregateUserMemoryContext().newLocalMemoryContext(SortedPagesToOutputPages.class.getSimpleName());
+        }
+
+        @Override
+        public TransformationState<Page> process(Optional<Page> pendingInputOptional)
+        {
+            boolean finishing = !pendingInputOptional.isPresent();
+            while (true) {
+                if (partition != null) {
+                    while (!pageBuilder.isFull() && partition.hasNext()) {
+                        partition.processNextRow(pageBuilder);
+                    }
+                    updateMemoryUsage();
+                    if (pageBuilder.isFull()) {
+                        return TransformationState.ofResult(buildOutputPage(), false);
+                    }
+                    if (partition.isFinished()) {
+                        partition = null;
+                        updateMemoryUsage();
+                    }
+                }
+
+                if (finishing) {
+                    if (partition != null) {
+                        partition.noMoreRows();
+                        continue;
+                    }
+                    if (pageBuilder.isEmpty()) {
+                        memoryContext.close();
+                        return TransformationState.finished();
+                    }
+                    // Output the remaining page if we have anything buffered
+                    return TransformationState.ofResult(buildOutputPage(), false);
+                }
+
+                Page pendingInput = pendingInputOptional.get();
+                if (pendingInputPosition == pendingInput.getPositionCount()) {
+                    pendingInputPosition = 0;
+                    pendingInputPartitionPage = null;
+                    return needsMoreData();
+                }
+                if (pendingInputPartitionPage == null) {
+                    pendingInputPartitionPage = pendingInput.extractChannels(partitionChannels);
+                }
+
+                if (partition == null) {
+                    partition = new StreamingWindowPartition(sourceTypes, outputChannels, windowFunctions, peerGroupHashStrategy, sortChannels);
+                    partitionRowPage = pendingInputPartitionPage.getSingleValuePage(pendingInputPosition);
+                }
+                else if (!partitionHashStrategy.rowEqualsRow(0, partitionRowPage, pendingInputPosition, pendingInputPartitionPage)) {
+                    // the pending input starts a new partition, the rows of the current one can be finished
+                    partition.noMoreRows();
+                    continue;
+                }
+
+                int partitionEnd = findGroupEnd(pendingInputPartitionPage, partitionHashStrategy, pendingInputPosition);
+                partition.addPage(pendingInput.getRegion(pendingInputPosition, partitionEnd - pendingInputPosition));
+                pendingInputPosition = partitionEnd;
+            }
+        }
+
+        Page buildOutputPage()
+        {
+            Page page = pageBuilder.build();
+            pageBuilder.reset();
+            return page;
+        }
+
+        void updateMemoryUsage()
+        {
+            memoryContext.setBytes(partition == null ? 0 : partition.getRetainedSizeInBytes());
+        }
+    }
+
+    /**
+     * Buffers the groups of input rows in revocable memory and spills them as sorted runs when memory is revoked.
+     * A buffered group is handed over with {@code inMemoryGroup} if nothing has been spilled,
+     * otherwise the merged sorted runs are handed over with {@code mergedGroup}.
+     */
+    private class SpillablePagesToPagesIndexes<T>
+            implements Transformation<Page, WorkProcessor<T>>
     {
         final PagesIndexWithHashStrategies inMemoryPagesIndexWithHashStrategies;
-        final PagesIndexWithHashStrategies mergedPagesIndexWithHashStrategies;
         final List<Type> sourceTypes;
         final List<Integer> orderChannels;
         final List<SortOrder> ordering;
@@ -653,6 +811,8 @@ public class WindowOperator
         final LocalMemoryContext localUserMemoryContext;
         final SpillerFactory spillerFactory;
         final PageWithPositionComparator pageWithPositionComparator;
+        final Function<PagesIndexWithHashStrategies, WorkProcessor<T>> inMemoryGroup;
+        final Function<WorkProcessor<Page>, WorkProcessor<T>> mergedGroup;
 
         boolean spillingWhenConvertingRevocableMemory;
         boolean resetPagesIndex;
@@ -665,15 +825,15 @@ public class WindowOperator
 
         SpillablePagesToPagesIndexes(
                 PagesIndexWithHashStrategies inMemoryPagesIndexWithHashStrategies,
-                PagesIndexWithHashStrategies mergedPagesIndexWithHashStrategies,
                 List<Type> sourceTypes,
                 List<Integer> orderChannels,
                 List<SortOrder> ordering,
                 SpillerFactory spillerFactory,
-                PageWithPositionComparator pageWithPositionComparator)
+                PageWithPositionComparator pageWithPositionComparator,
+                Function<PagesIndexWithHashStrategies, WorkProcessor<T>> inMemoryGroup,
+                Function<WorkProcessor<Page>, WorkProcessor<T>> mergedGroup)
         {
             this.inMemoryPagesIndexWithHashStrategies = inMemoryPagesIndexWithHashStrategies;
-            this.mergedPagesIndexWithHashStrategies = mergedPagesIndexWithHashStrategies;
             this.sourceTypes = sourceTypes;
             this.orderChannels = orderChannels;
             this.ordering = ordering;
@@ -681,13 +841,15 @@ public class WindowOperator
             this.localRevocableMemoryContext = operatorContext.aggregateRevocableMemoryContext().newLocalMemoryContext(SpillablePagesToPagesIndexes.class.getSimpleName());
             this.spillerFactory = spillerFactory;
             this.pageWithPositionComparator = pageWithPositionComparator;
+            this.inMemoryGroup = inMemoryGroup;
+            this.mergedGroup = mergedGroup;
 
             this.currentSpillGroupRowPage = Optional.empty();
             this.spiller = Optional.empty();
         }
 
         @Override
-        public TransformationState<WorkProcessor<PagesIndexWithHashStrategies>> process(Optional<Page> pendingInputOptional)
+        public TransformationState<WorkProcessor<T>> process(Optional<Page> pendingInputOptional)
         {
             if (spillingWhenConvertingRevocableMemory) {
                 // Spill could already be finished by Driver (via WindowOperator#finishMemoryRevoke), but finishRevokeMemory will take care of that
@@ -735,7 +897,7 @@ public class WindowOperator
             spiller = Optional.empty();
         }
 
-        TransformationState<WorkProcessor<PagesIndexWithHashStrategies>> fullGroupBuffered()
+        TransformationState<WorkProcessor<T>> fullGroupBuffered()
         {
             // Convert revocable memory to user memory as inMemoryPagesIndexWithHashStrategies holds on to memory so we no longer can revoke
             if (localRevocableMemoryContext.getBytes() > 0) {
@@ -805,10 +967,10 @@ public class WindowOperator
             updateMemoryUsage(false);
         }
 
-        WorkProcessor<PagesIndexWithHashStrategies> unspill()
+        WorkProcessor<T> unspill()
         {
             if (!spiller.isPresent()) {
-                return WorkProcessor.fromIterable(ImmutableList.of(inMemoryPagesIndexWithHashStrategies));
+                return inMemoryGroup.apply(inMemoryPagesIndexWithHashStrategies);
             }
 
             List<WorkProcessor<Page>> sortedStreams = ImmutableList.<WorkProcessor<Page>>builder()
@@ -825,7 +987,7 @@ public class WindowOperator
                     operatorContext.aggregateUserMemoryContext(),
                     operatorContext.getDriverContext().getYieldSignal());
 
-            return mergedPages.transform(new PagesToPagesIndexes(mergedPagesIndexWithHashStrategies, ImmutableList.of(), ImmutableList.of()));
+            return mergedGroup.apply(mergedPages);
         }
 
         void updateMemoryUsage(boolean revocablePagesIndex)
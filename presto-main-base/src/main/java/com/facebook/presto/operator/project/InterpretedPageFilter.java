@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.project;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.function.SqlFunctionProperties;
+
+import static com.facebook.presto.operator.project.PageFilter.positionsArrayToSelectedPositions;
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.lang.Boolean.TRUE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Filters pages by interpreting the filter, for use while the generated filter is compiled.
+ */
+public class InterpretedPageFilter
+        implements PageFilter
+{
+    private final InterpretedRowExpression filter;
+    private final boolean isDeterministic;
+    private final InputChannels inputChannels;
+
+    private boolean[] selectedPositions = new boolean[0];
+
+    public InterpretedPageFilter(InterpretedRowExpression filter, boolean isDeterministic, InputChannels inputChannels)
+    {
+        this.filter = requireNonNull(filter, "filter is null");
+        this.isDeterministic = isDeterministic;
+        this.inputChannels = requireNonNull(inputChannels, "inputChannels is null");
+    }
+
+    @Override
+    public boolean isDeterministic()
+    {
+        return isDeterministic;
+    }
+
+    @Override
+    public InputChannels getInputChannels()
+    {
+        return inputChannels;
+    }
+
+    @Override
+    public SelectedPositions filter(SqlFunctionProperties properties, Page page)
+    {
+        int positionCount = page.getPositionCount();
+        if (selectedPositions.length < positionCount) {
+            selectedPositions = new boolean[positionCount];
+        }
+        for (int position = 0; position < positionCount; position++) {
+            selectedPositions[position] = TRUE.equals(filter.evaluate(properties, page, position));
+        }
+        return positionsArrayToSelectedPositions(selectedPositions, positionCount);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("filter", filter.getExpression())
+                .toString();
+    }
+}
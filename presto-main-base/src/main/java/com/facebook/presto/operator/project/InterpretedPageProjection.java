@@ -0,0 +1,86 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.project;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.function.SqlFunctionProperties;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.operator.CompletedWork;
+import com.facebook.presto.operator.DriverYieldSignal;
+import com.facebook.presto.operator.Work;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+import static com.facebook.presto.common.type.TypeUtils.writeNativeValue;
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Projects pages by interpreting the projections, for use while the generated projection
+ * is compiled. The whole batch of positions is projected at once, without yielding.
+ */
+public class InterpretedPageProjection
+        implements PageProjection
+{
+    private final List<InterpretedRowExpression> projections;
+    private final boolean isDeterministic;
+    private final InputChannels inputChannels;
+
+    public InterpretedPageProjection(List<InterpretedRowExpression> projections, boolean isDeterministic, InputChannels inputChannels)
+    {
+        this.projections = ImmutableList.copyOf(requireNonNull(projections, "projections is null"));
+        this.isDeterministic = isDeterministic;
+        this.inputChannels = requireNonNull(inputChannels, "inputChannels is null");
+    }
+
+    @Override
+    public boolean isDeterministic()
+    {
+        return isDeterministic;
+    }
+
+    @Override
+    public InputChannels getInputChannels()
+    {
+        return inputChannels;
+    }
+
+    @Override
+    public Work<List<Block>> project(SqlFunctionProperties properties, DriverYieldSignal yieldSignal, Page page, SelectedPositions selectedPositions)
+    {
+        ImmutableList.Builder<Block> blocks = ImmutableList.builderWithExpectedSize(projections.size());
+        for (InterpretedRowExpression projection : projections) {
+            Type type = projection.getExpression().getType();
+            BlockBuilder blockBuilder = type.createBlockBuilder(null, selectedPositions.size());
+            for (int i = 0; i < selectedPositions.size(); i++) {
+                int position = selectedPositions.isList() ? selectedPositions.getPositions()[selectedPositions.getOffset() + i] : selectedPositions.getOffset() + i;
+                writeNativeValue(type, blockBuilder, projection.evaluate(properties, page, position));
+            }
+            blocks.add(blockBuilder.build());
+        }
+        return new CompletedWork<>(blocks.build());
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("projections", projections.stream().map(InterpretedRowExpression::getExpression).collect(toImmutableList()))
+                .toString();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.project;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.function.SqlFunctionProperties;
+import com.facebook.presto.metadata.FunctionAndTypeManager;
+import com.facebook.presto.operator.scalar.ScalarFunctionImplementationChoice;
+import com.facebook.presto.operator.scalar.ScalarFunctionImplementationChoice.ArgumentProperty;
+import com.facebook.presto.spi.function.FunctionHandle;
+import com.facebook.presto.spi.relation.CallExpression;
+import com.facebook.presto.spi.relation.ConstantExpression;
+import com.facebook.presto.spi.relation.InputReferenceExpression;
+import com.facebook.presto.spi.relation.RowExpression;
+import com.facebook.presto.spi.relation.SpecialFormExpression;
+import com.facebook.presto.sql.InterpretedFunctionInvoker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.facebook.presto.common.type.TypeUtils.readNativeValue;
+import static com.facebook.presto.operator.scalar.ScalarFunctionImplementationChoice.ArgumentType.VALUE_TYPE;
+import static com.facebook.presto.operator.scalar.ScalarFunctionImplementationChoice.NullConvention.BLOCK_AND_POSITION;
+import static com.facebook.presto.operator.scalar.ScalarFunctionImplementationChoice.ReturnPlaceConvention.STACK;
+import static com.facebook.presto.spi.function.FunctionImplementationType.JAVA;
+import static com.facebook.presto.sql.gen.BytecodeUtils.getAllScalarFunctionImplementationChoices;
+import static java.lang.Boolean.FALSE;
+import static java.lang.Boolean.TRUE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Evaluates a row expression one position at a time, calling functions through their
+ * method handles. It is much slower than the generated code for the same expression,
+ * but is available without waiting for the expression to be compiled.
+ * <p>
+ * Only expressions over input fields, constants, Java scalar functions and the
+ * {@code AND}, {@code OR}, {@code IF}, {@code IS_NULL} and {@code COALESCE} special
+ * forms are supported, see {@link #isSupported}.
+ */
+public class InterpretedRowExpression
+{
+    private final RowExpression expression;
+    private final InterpretedFunctionInvoker functionInvoker;
+
+    public InterpretedRowExpression(RowExpression expression, FunctionAndTypeManager functionAndTypeManager)
+    {
+        this.expression = requireNonNull(expression, "expression is null");
+        this.functionInvoker = new InterpretedFunctionInvoker(requireNonNull(functionAndTypeManager, "functionAndTypeManager is null"));
+    }
+
+    public RowExpression getExpression()
+    {
+        return expression;
+    }
+
+    public static boolean isSupported(RowExpression expression, FunctionAndTypeManager functionAndTypeManager)
+    {
+        if (expression instanceof InputReferenceExpression || expression instanceof ConstantExpression) {
+            return true;
+        }
+        if (expression instanceof CallExpression) {
+            CallExpression call = (CallExpression) expression;
+            return isSupportedFunction(call.getFunctionHandle(), functionAndTypeManager) &&
+                    call.getArguments().stream().allMatch(argument -> isSupported(argument, functionAndTypeManager));
+        }
+        if (expression instanceof SpecialFormExpression) {
+            SpecialFormExpression specialForm = (SpecialFormExpression) expression;
+            switch (specialForm.getForm()) {
+                case AND:
+                case OR:
+                case IF:
+                case IS_NULL:
+                case COALESCE:
+                    return specialForm.getArguments().stream().allMatch(argument -> isSupported(argument, functionAndTypeManager));
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+
+    // the function invoker only passes single values on the stack, so functions taking lambdas or block positions need generated code
+    private static boolean isSupportedFunction(FunctionHandle functionHandle, FunctionAndTypeManager functionAndTypeManager)
+    {
+        if (!functionAndTypeManager.getFunctionMetadata(functionHandle).getImplementationType().equals(JAVA)) {
+            return false;
+        }
+        ScalarFunctionImplementationChoice choice = getAllScalarFunctionImplementationChoices(functionAndTypeManager.getJavaScalarFunctionImplementation(functionHandle)).get(0);
+        if (choice.getReturnPlaceConvention() != STACK) {
+            return false;
+        }
+        for (ArgumentProperty argumentProperty : choice.getArgumentProperties()) {
+            if (argumentProperty.getArgumentType() != VALUE_TYPE || argumentProperty.getNullConvention() == BLOCK_AND_POSITION) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the value of the expression at the position in the native container type of the expression type, or null
+     */
+    public Object evaluate(SqlFunctionProperties properties, Page page, int position)
+    {
+        return evaluate(expression, properties, page, position);
+    }
+
+    private Object evaluate(RowExpression expression, SqlFunctionProperties properties, Page page, int position)
+    {
+        if (expression instanceof InputReferenceExpression) {
+            InputReferenceExpression input = (InputReferenceExpression) expression;
+            return readNativeValue(input.getType(), page.getBlock(input.getField()), position);
+        }
+        if (expression instanceof ConstantExpression) {
+            return ((ConstantExpression) expression).getValue();
+        }
+        if (expression instanceof CallExpression) {
+            CallExpression call = (CallExpression) expression;
+            List<Object> arguments = new ArrayList<>(call.getArguments().size());
+            for (RowExpression argument : call.getArguments()) {
+                arguments.add(evaluate(argument, properties, page, position));
+            }
+            return functionInvoker.invoke(call.getFunctionHandle(), properties, arguments);
+        }
+        if (expression instanceof SpecialFormExpression) {
+            return evaluateSpecialForm((SpecialFormExpression) expression, properties, page, position);
+        }
+        throw new UnsupportedOperationException("Unsupported expression: " + expression);
+    }
+
+    private Object evaluateSpecialForm(SpecialFormExpression specialForm, SqlFunctionProperties properties, Page page, int position)
+    {
+        List<RowExpression> arguments = specialForm.getArguments();
+        switch (specialForm.getForm()) {
+            case AND: {
+                boolean hasNull = false;
+                for (RowExpression argument : arguments) {
+                    Object value = evaluate(argument, properties, page, position);
+                    if (FALSE.equals(value)) {
+                        return false;
+                    }
+                    hasNull |= value == null;
+                }
+                return hasNull ? null : true;
+            }
+            case OR: {
+                boolean hasNull = false;
+                for (RowExpression argument : arguments) {
+                    Object value = evaluate(argument, properties, page, position);
+                    if (TRUE.equals(value)) {
+                        return true;
+                    }
+                    hasNull |= value == null;
+                }
+                return hasNull ? null : false;
+            }
+            case IF: {
+                if (TRUE.equals(evaluate(arguments.get(0), properties, page, position))) {
+                    return evaluate(arguments.get(1), properties, page, position);
+                }
+                return evaluate(arguments.get(2), properties, page, position);
+            }
+            case IS_NULL:
+                return evaluate(arguments.get(0), properties, page, position) == null;
+            case COALESCE: {
+                for (RowExpression argument : arguments) {
+                    Object value = evaluate(argument, properties, page, position);
+                    if (value != null) {
+                        return value;
+                    }
+                }
+                return null;
+            }
+            default:
+                throw new UnsupportedOperationException("Unsupported special form: " + specialForm.getForm());
+        }
+    }
+}
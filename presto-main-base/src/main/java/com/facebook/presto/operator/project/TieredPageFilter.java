@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.project;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.function.SqlFunctionProperties;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.util.concurrent.Futures.getDone;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Filters pages with the interpreted filter until the generated filter compiled in the
+ * background is ready, and with the generated filter from then on. If the compilation
+ * fails, the interpreted filter keeps being used.
+ */
+public class TieredPageFilter
+        implements PageFilter
+{
+    private final PageFilter interpretedFilter;
+    private final ListenableFuture<Supplier<PageFilter>> compiledFilterFuture;
+    private final Runnable swapListener;
+
+    private PageFilter currentFilter;
+    private boolean swapped;
+
+    public TieredPageFilter(PageFilter interpretedFilter, ListenableFuture<Supplier<PageFilter>> compiledFilterFuture, Runnable swapListener)
+    {
+        this.interpretedFilter = requireNonNull(interpretedFilter, "interpretedFilter is null");
+        this.compiledFilterFuture = requireNonNull(compiledFilterFuture, "compiledFilterFuture is null");
+        this.swapListener = requireNonNull(swapListener, "swapListener is null");
+        this.currentFilter = interpretedFilter;
+    }
+
+    @Override
+    public boolean isDeterministic()
+    {
+        return interpretedFilter.isDeterministic();
+    }
+
+    @Override
+    public InputChannels getInputChannels()
+    {
+        return interpretedFilter.getInputChannels();
+    }
+
+    @Override
+    public SelectedPositions filter(SqlFunctionProperties properties, Page page)
+    {
+        if (!swapped && compiledFilterFuture.isDone()) {
+            swapped = true;
+            try {
+                currentFilter = getDone(compiledFilterFuture).get();
+                swapListener.run();
+            }
+            catch (ExecutionException e) {
+                // the compilation failure is recorded by the compiler
+            }
+        }
+        return currentFilter.filter(properties, page);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("currentFilter", currentFilter)
+                .toString();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.project;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.function.SqlFunctionProperties;
+import com.facebook.presto.operator.DriverYieldSignal;
+import com.facebook.presto.operator.Work;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.util.concurrent.Futures.getDone;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Projects pages with the interpreted projection until the generated projection compiled in
+ * the background is ready, and with the generated projection from then on. If the
+ * compilation fails, the interpreted projection keeps being used.
+ */
+public class TieredPageProjection
+        implements PageProjection
+{
+    private final PageProjection interpretedProjection;
+    private final ListenableFuture<Supplier<PageProjection>> compiledProjectionFuture;
+    private final Runnable swapListener;
+
+    private PageProjection currentProjection;
+    private boolean swapped;
+
+    public TieredPageProjection(PageProjection interpretedProjection, ListenableFuture<Supplier<PageProjection>> compiledProjectionFuture, Runnable swapListener)
+    {
+        this.interpretedProjection = requireNonNull(interpretedProjection, "interpretedProjection is null");
+        this.compiledProjectionFuture = requireNonNull(compiledProjectionFuture, "compiledProjectionFuture is null");
+        this.swapListener = requireNonNull(swapListener, "swapListener is null");
+        this.currentProjection = interpretedProjection;
+    }
+
+    @Override
+    public boolean isDeterministic()
+    {
+        return interpretedProjection.isDeterministic();
+    }
+
+    @Override
+    public InputChannels getInputChannels()
+    {
+        return interpretedProjection.getInputChannels();
+    }
+
+    @Override
+    public Work<List<Block>> project(SqlFunctionProperties properties, DriverYieldSignal yieldSignal, Page page, SelectedPositions selectedPositions)
+    {
+        if (!swapped && compiledProjectionFuture.isDone()) {
+            swapped = true;
+            try {
+                currentProjection = getDone(compiledProjectionFuture).get();
+                swapListener.run();
+            }
+            catch (ExecutionException e) {
+                // the compilation failure is recorded by the compiler
+            }
+        }
+        return currentProjection.project(properties, yieldSignal, page, selectedPositions);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("currentProjection", currentProjection)
+                .toString();
+    }
+}
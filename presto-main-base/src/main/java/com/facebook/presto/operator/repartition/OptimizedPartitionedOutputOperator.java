@@ -15,6 +15,7 @@ package com.facebook.presto.operator.repartition;
 
 import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.RuntimeStats;
 import com.facebook.presto.common.block.ArrayAllocator;
 import com.facebook.presto.common.block.ArrayBlock;
 import com.facebook.presto.common.block.Block;
@@ -187,6 +188,7 @@ public class OptimizedPartitionedOutputOperator
     @Override
     public void close()
     {
+        pagePartitioner.recordCompressionStats(operatorContext.getRuntimeStats());
         systemMemoryContext.close();
     }
 
@@ -388,6 +390,7 @@ public class OptimizedPartitionedOutputOperator
         private final int[] partitionChannels;
         @Nullable
         private final Block[] partitionConstantBlocks; // when null, no constants are present. Only non-null elements are constants
+        private final PagesSerdeFactory serdeFactory;
         private final PagesSerde serde;
         private final boolean replicatesAnyRow;
         private final int nullChannel; // when >= 0, send the position to every partition if this channel is null
@@ -445,7 +448,8 @@ public class OptimizedPartitionedOutputOperator
             this.replicatesAnyRow = replicatesAnyRow;
             this.nullChannel = requireNonNull(nullChannel, "nullChannel is null").orElse(-1);
             this.outputBuffer = requireNonNull(outputBuffer, "outputBuffer is null");
-            this.serde = requireNonNull(serdeFactory, "serdeFactory is null").createPagesSerde();
+            this.serdeFactory = requireNonNull(serdeFactory, "serdeFactory is null");
+            this.serde = serdeFactory.createPagesSerde();
 
             int partitionCount = partitionFunction.getPartitionCount();
 
@@ -556,6 +560,11 @@ public class OptimizedPartitionedOutputOperator
             }
         }
 
+        public void recordCompressionStats(RuntimeStats runtimeStats)
+        {
+            serdeFactory.recordCompressionStats(serde, runtimeStats);
+        }
+
         public void flush()
         {
             for (int i = 0; i < partitionBuffers.length; i++) {
@@ -16,6 +16,7 @@ package com.facebook.presto.operator.repartition;
 import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.RuntimeStats;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.RunLengthEncodedBlock;
 import com.facebook.presto.common.type.Type;
@@ -277,6 +278,7 @@ public class PartitionedOutputOperator
     @Override
     public void close()
     {
+        partitionFunction.recordCompressionStats(operatorContext.getRuntimeStats());
         partitionFunction.zeroMemoryContext();
     }
 
@@ -288,6 +290,7 @@ public class PartitionedOutputOperator
         private final int[] partitionChannels;
         @Nullable
         private final Block[] partitionConstantBlocks; // when null, no constants are present. Only non-null elements are constants
+        private final PagesSerdeFactory serdeFactory;
         private final PagesSerde serde;
         private final PageBuilder[] pageBuilders;
         private final boolean replicatesAnyRow;
@@ -325,7 +328,8 @@ public class PartitionedOutputOperator
             this.nullChannel = requireNonNull(nullChannel, "nullChannel is null").orElse(-1);
             this.outputBuffer = requireNonNull(outputBuffer, "outputBuffer is null");
             this.sourceTypes = requireNonNull(sourceTypes, "sourceTypes is null").toArray(new Type[0]);
-            this.serde = requireNonNull(serdeFactory, "serdeFactory is null").createPagesSerde();
+            this.serdeFactory = requireNonNull(serdeFactory, "serdeFactory is null");
+            this.serde = serdeFactory.createPagesSerde();
             this.operatorContext = requireNonNull(operatorContext, "operatorContext is null");
             this.systemMemoryContext = operatorContext.localSystemMemoryContext();
             this.systemMemoryContext.setBytes(getRetainedSizeInBytes());
@@ -353,6 +357,11 @@ public class PartitionedOutputOperator
             systemMemoryContext.setBytes(0);
         }
 
+        public void recordCompressionStats(RuntimeStats runtimeStats)
+        {
+            serdeFactory.recordCompressionStats(serde, runtimeStats);
+        }
+
         public ListenableFuture<?> isFull()
         {
             return outputBuffer.isFull();
@@ -0,0 +1,206 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.window;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.operator.PagesHashStrategy;
+import com.facebook.presto.spi.function.WindowIndex;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Window index over the rows of a partition that are added incrementally, in sorted order.
+ * <p>
+ * Positions are relative to the start of the partition and {@link #size()} is the number of rows
+ * added so far. Only the pages that contain rows at or after the position passed to
+ * {@link #releaseBefore(int)} are retained, so window functions may only access rows that
+ * have not been released yet.
+ */
+public class StreamingWindowIndex
+        implements WindowIndex
+{
+    private final List<Type> types;
+    private final int[] peerGroupChannels;
+
+    private final List<Page> pages = new ArrayList<>();
+    // pages reduced to the peer group channels, for comparisons with the peer group hash strategy
+    private final List<Page> peerGroupPages = new ArrayList<>();
+    // position of the first row of each retained page
+    private final IntArrayList pageStarts = new IntArrayList();
+
+    private int size;
+    private long retainedSizeInBytes;
+
+    // most recently accessed page, window functions mostly access rows close to each other
+    private int currentPage;
+
+    public StreamingWindowIndex(List<Type> types, int[] peerGroupChannels)
+    {
+        this.types = ImmutableList.copyOf(requireNonNull(types, "types is null"));
+        this.peerGroupChannels = requireNonNull(peerGroupChannels, "peerGroupChannels is null").clone();
+    }
+
+    public void addPage(Page page)
+    {
+        if (page.getPositionCount() == 0) {
+            return;
+        }
+        pages.add(page);
+        peerGroupPages.add(page.extractChannels(peerGroupChannels));
+        pageStarts.add(size);
+        size += page.getPositionCount();
+        retainedSizeInBytes += page.getRetainedSizeInBytes();
+    }
+
+    /**
+     * Releases the pages that contain rows before {@code position} only.
+     */
+    public void releaseBefore(int position)
+    {
+        int releasedPages = 0;
+        while (releasedPages < pages.size() - 1 && pageStarts.getInt(releasedPages + 1) <= position) {
+            retainedSizeInBytes -= pages.get(releasedPages).getRetainedSizeInBytes();
+            releasedPages++;
+        }
+        if (releasedPages == 0) {
+            return;
+        }
+        pages.subList(0, releasedPages).clear();
+        peerGroupPages.subList(0, releasedPages).clear();
+        pageStarts.removeElements(0, releasedPages);
+        currentPage = 0;
+    }
+
+    public long getRetainedSizeInBytes()
+    {
+        return retainedSizeInBytes;
+    }
+
+    public boolean positionEqualsPosition(PagesHashStrategy peerGroupHashStrategy, int leftPosition, int rightPosition)
+    {
+        int leftPage = page(leftPosition);
+        int leftPagePosition = leftPosition - pageStarts.getInt(leftPage);
+        int rightPage = page(rightPosition);
+        int rightPagePosition = rightPosition - pageStarts.getInt(rightPage);
+        return peerGroupHashStrategy.rowEqualsRow(leftPagePosition, peerGroupPages.get(leftPage), rightPagePosition, peerGroupPages.get(rightPage));
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public boolean isNull(int channel, int position)
+    {
+        int page = page(position);
+        return pages.get(page).getBlock(channel).isNull(position - pageStarts.getInt(page));
+    }
+
+    @Override
+    public boolean getBoolean(int channel, int position)
+    {
+        int page = page(position);
+        return types.get(channel).getBoolean(pages.get(page).getBlock(channel), position - pageStarts.getInt(page));
+    }
+
+    @Override
+    public long getLong(int channel, int position)
+    {
+        int page = page(position);
+        return types.get(channel).getLong(pages.get(page).getBlock(channel), position - pageStarts.getInt(page));
+    }
+
+    @Override
+    public double getDouble(int channel, int position)
+    {
+        int page = page(position);
+        return types.get(channel).getDouble(pages.get(page).getBlock(channel), position - pageStarts.getInt(page));
+    }
+
+    @Override
+    public Slice getSlice(int channel, int position)
+    {
+        int page = page(position);
+        return types.get(channel).getSlice(pages.get(page).getBlock(channel), position - pageStarts.getInt(page));
+    }
+
+    @Override
+    public Block getSingleValueBlock(int channel, int position)
+    {
+        int page = page(position);
+        return pages.get(page).getBlock(channel).getSingleValueBlock(position - pageStarts.getInt(page));
+    }
+
+    @Override
+    public Object getObject(int channel, int position)
+    {
+        int page = page(position);
+        return types.get(channel).getObject(pages.get(page).getBlock(channel), position - pageStarts.getInt(page));
+    }
+
+    @Override
+    public void appendTo(int channel, int position, BlockBuilder output)
+    {
+        int page = page(position);
+        types.get(channel).appendTo(pages.get(page).getBlock(channel), position - pageStarts.getInt(page), output);
+    }
+
+    private int page(int position)
+    {
+        checkElementIndex(position, size, "position");
+        checkArgument(position >= pageStarts.getInt(0), "position %s has already been released", position);
+
+        if (position >= pageStarts.getInt(currentPage) && (currentPage == pages.size() - 1 || position < pageStarts.getInt(currentPage + 1))) {
+            return currentPage;
+        }
+
+        // find the last page that starts at or before position
+        int low = 0;
+        int high = pages.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (pageStarts.getInt(middle) <= position) {
+                low = middle;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+        currentPage = low;
+        return low;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("size", size)
+                .add("retainedPages", pages.size())
+                .toString();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.window;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.operator.PagesHashStrategy;
+import com.facebook.presto.spi.function.WindowFunction;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+import static com.facebook.presto.spi.plan.WindowNode.Frame.BoundType.CURRENT_ROW;
+import static com.facebook.presto.spi.plan.WindowNode.Frame.BoundType.UNBOUNDED_PRECEDING;
+import static com.facebook.presto.spi.plan.WindowNode.Frame.WindowType.ROWS;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Evaluates window functions over a partition whose rows arrive in sorted order, without
+ * materializing the whole partition.
+ * <p>
+ * Only the functions accepted by {@link #isStreamable} are supported. They need at most the
+ * previous row, the next row and, for aggregations over RANGE and GROUPS frames, the current
+ * peer group, so a row is processed as soon as these are available and the rows that can no
+ * longer be accessed are released.
+ */
+public final class StreamingWindowPartition
+{
+    private final StreamingWindowIndex windowIndex;
+    private final int[] outputChannels;
+    private final List<FramedWindowFunction> windowFunctions;
+    private final PagesHashStrategy peerGroupHashStrategy;
+
+    // a row is processed only after its whole peer group has been added
+    private final boolean peerGroupRequired;
+    // number of rows after the current row that must be added before the row is processed
+    private final int lookahead;
+
+    private boolean noMoreRows;
+    private int peerGroupStart;
+    // end of the peer group found so far, exclusive
+    private int peerGroupEnd;
+    private int currentPosition;
+
+    public StreamingWindowPartition(
+            List<Type> types,
+            int[] outputChannels,
+            List<FramedWindowFunction> windowFunctions,
+            PagesHashStrategy peerGroupHashStrategy,
+            int[] peerGroupChannels)
+    {
+        this.windowIndex = new StreamingWindowIndex(types, peerGroupChannels);
+        this.outputChannels = requireNonNull(outputChannels, "outputChannels is null");
+        this.windowFunctions = ImmutableList.copyOf(requireNonNull(windowFunctions, "windowFunctions is null"));
+        this.peerGroupHashStrategy = requireNonNull(peerGroupHashStrategy, "peerGroupHashStrategy is null");
+        this.peerGroupRequired = windowFunctions.stream()
+                .anyMatch(function -> function.getFunction() instanceof AggregateWindowFunction && function.getFrame().getType() != ROWS);
+        this.lookahead = windowFunctions.stream()
+                .anyMatch(function -> function.getFunction() instanceof LeadFunction) ? 1 : 0;
+
+        // reset functions for new partition
+        for (FramedWindowFunction framedWindowFunction : windowFunctions) {
+            framedWindowFunction.getFunction().reset(windowIndex);
+        }
+    }
+
+    /**
+     * Checks whether the function can be evaluated by a {@link StreamingWindowPartition}.
+     *
+     * @param argumentCount the number of arguments the function is called with
+     */
+    public static boolean isStreamable(WindowFunction function, FrameInfo frame, int argumentCount, boolean ignoreNulls)
+    {
+        if (function instanceof RowNumberFunction || function instanceof RankFunction || function instanceof DenseRankFunction) {
+            return true;
+        }
+        if (function instanceof LagFunction || function instanceof LeadFunction) {
+            // the offset argument may differ for every row, only the default offset of one row is bounded
+            return argumentCount == 1 && !ignoreNulls;
+        }
+        if (function instanceof AggregateWindowFunction) {
+            // the accumulator only adds the rows entering the frame
+            return frame.getStartType() == UNBOUNDED_PRECEDING && frame.getEndType() == CURRENT_ROW;
+        }
+        return false;
+    }
+
+    public void addPage(Page page)
+    {
+        checkState(!noMoreRows, "No more rows expected");
+        windowIndex.addPage(page);
+    }
+
+    public void noMoreRows()
+    {
+        noMoreRows = true;
+    }
+
+    public boolean isFinished()
+    {
+        return noMoreRows && currentPosition == windowIndex.size();
+    }
+
+    public long getRetainedSizeInBytes()
+    {
+        return windowIndex.getRetainedSizeInBytes();
+    }
+
+    public boolean hasNext()
+    {
+        if (currentPosition == windowIndex.size()) {
+            return false;
+        }
+
+        // check for new peer group
+        if (currentPosition == peerGroupEnd) {
+            peerGroupStart = currentPosition;
+            peerGroupEnd = currentPosition + 1;
+        }
+        // compare with the last row of the peer group, the first one may have been released
+        while (peerGroupEnd < windowIndex.size() && windowIndex.positionEqualsPosition(peerGroupHashStrategy, peerGroupEnd - 1, peerGroupEnd)) {
+            peerGroupEnd++;
+        }
+
+        if (noMoreRows) {
+            return true;
+        }
+        if (currentPosition + lookahead >= windowIndex.size()) {
+            return false;
+        }
+        return !peerGroupRequired || peerGroupEnd < windowIndex.size();
+    }
+
+    public void processNextRow(PageBuilder pageBuilder)
+    {
+        checkState(hasNext(), "No row ready in partition");
+
+        // copy output channels
+        pageBuilder.declarePosition();
+        int channel = 0;
+        while (channel < outputChannels.length) {
+            windowIndex.appendTo(outputChannels[channel], currentPosition, pageBuilder.getBlockBuilder(channel));
+            channel++;
+        }
+
+        // Ranking and value functions ignore the frame. Aggregations have frames starting at the partition start
+        // and ending at the current row. For RANGE and GROUPS frames this is the end of the peer group, which is
+        // complete when peerGroupRequired is set.
+        for (FramedWindowFunction framedFunction : windowFunctions) {
+            int frameEnd = framedFunction.getFrame().getType() == ROWS ? currentPosition : peerGroupEnd - 1;
+            framedFunction.getFunction().processRow(
+                    pageBuilder.getBlockBuilder(channel),
+                    peerGroupStart,
+                    peerGroupEnd - 1,
+                    0,
+                    frameEnd);
+            channel++;
+        }
+
+        currentPosition++;
+
+        // keep the previous row for lag, and the peer group only when the frames of the aggregations end with it
+        windowIndex.releaseBefore(peerGroupRequired ? min(peerGroupStart, currentPosition - 1) : currentPosition - 1);
+    }
+}
@@ -88,6 +88,22 @@ public class QueryBlockingRateLimiter
         return asyncTask;
     }
 
+    /*
+     * Takes a permit only if one is available right away, for callers that can stop instead of waiting
+     */
+    public boolean tryAcquire(QueryId queryId)
+    {
+        requireNonNull(queryId, "queryId is null");
+        if (rateLimiterBucketMaxSize < 0) {
+            return true;
+        }
+        if (rateLimiterCache.getUnchecked(queryId).tryAcquire()) {
+            return true;
+        }
+        rateLimiterTriggeredCounter.update(1);
+        return false;
+    }
+
     @Managed
     @Nested
     public CounterStat getRateLimiterTriggeredCounter()
@@ -28,6 +28,7 @@ import java.util.List;
 import static com.facebook.presto.SystemSessionProperties.isSpillEnabled;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.spi.session.PropertyMetadata.booleanProperty;
+import static com.facebook.presto.spi.session.PropertyMetadata.integerProperty;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
@@ -42,7 +43,11 @@ public class JavaWorkerSessionPropertyProvider
     public static final String DISTINCT_AGGREGATION_LARGE_BLOCK_SIZE_THRESHOLD = "distinct_aggregation_large_block_size_threshold";
     public static final String ORDER_BY_AGGREGATION_SPILL_ENABLED = "order_by_aggregation_spill_enabled";
     public static final String WINDOW_SPILL_ENABLED = "window_spill_enabled";
+    public static final String WINDOW_SPILL_STREAMING_ENABLED = "window_spill_streaming_enabled";
+    public static final String HASH_BUILD_PARALLELISM = "hash_build_parallelism";
     public static final String ORDER_BY_SPILL_ENABLED = "order_by_spill_enabled";
+    public static final String MARK_DISTINCT_SPILL_ENABLED = "mark_distinct_spill_enabled";
+    public static final String ROW_NUMBER_SPILL_ENABLED = "row_number_spill_enabled";
     public static final String AGGREGATION_OPERATOR_UNSPILL_MEMORY_LIMIT = "aggregation_operator_unspill_memory_limit";
     public static final String TOPN_OPERATOR_UNSPILL_MEMORY_LIMIT = "topn_operator_unspill_memory_limit";
     public static final String TEMP_STORAGE_SPILLER_BUFFER_SIZE = "temp_storage_spiller_buffer_size";
@@ -97,11 +102,31 @@ public class JavaWorkerSessionPropertyProvider
                         "Enable window spilling if spill_enabled",
                         javaFeaturesConfig.isWindowSpillEnabled(),
                         nativeExecution),
+                booleanProperty(
+                        WINDOW_SPILL_STREAMING_ENABLED,
+                        "Evaluate supported window functions over the sorted partitions without materializing them if window_spill_enabled",
+                        javaFeaturesConfig.isWindowSpillStreamingEnabled(),
+                        nativeExecution),
+                integerProperty(
+                        HASH_BUILD_PARALLELISM,
+                        "Number of threads building the hash table of a join partition, including the build driver",
+                        javaFeaturesConfig.getHashBuildParallelism(),
+                        nativeExecution),
                 booleanProperty(
                         ORDER_BY_SPILL_ENABLED,
                         "Enable order by spilling if spill_enabled",
                         javaFeaturesConfig.isOrderBySpillEnabled(),
                         nativeExecution),
+                booleanProperty(
+                        MARK_DISTINCT_SPILL_ENABLED,
+                        "Enable mark distinct spilling if spill_enabled",
+                        javaFeaturesConfig.isMarkDistinctSpillEnabled(),
+                        nativeExecution),
+                booleanProperty(
+                        ROW_NUMBER_SPILL_ENABLED,
+                        "Enable row number spilling if spill_enabled",
+                        javaFeaturesConfig.isRowNumberSpillEnabled(),
+                        nativeExecution),
                 new PropertyMetadata<>(
                         AGGREGATION_OPERATOR_UNSPILL_MEMORY_LIMIT,
                         "Experimental: How much memory can should be allocated per aggregation operator in unspilling process",
@@ -177,11 +202,33 @@ public class JavaWorkerSessionPropertyProvider
         return session.getSystemProperty(WINDOW_SPILL_ENABLED, Boolean.class) && isSpillEnabled(session);
     }
 
+    public static boolean isWindowSpillStreamingEnabled(Session session)
+    {
+        return session.getSystemProperty(WINDOW_SPILL_STREAMING_ENABLED, Boolean.class);
+    }
+
+    public static int getHashBuildParallelism(Session session)
+    {
+        int hashBuildParallelism = session.getSystemProperty(HASH_BUILD_PARALLELISM, Integer.class);
+        checkArgument(hashBuildParallelism > 0, "%s must be positive", HASH_BUILD_PARALLELISM);
+        return hashBuildParallelism;
+    }
+
     public static boolean isOrderBySpillEnabled(Session session)
     {
         return session.getSystemProperty(ORDER_BY_SPILL_ENABLED, Boolean.class) && isSpillEnabled(session);
     }
 
+    public static boolean isMarkDistinctSpillEnabled(Session session)
+    {
+        return session.getSystemProperty(MARK_DISTINCT_SPILL_ENABLED, Boolean.class) && isSpillEnabled(session);
+    }
+
+    public static boolean isRowNumberSpillEnabled(Session session)
+    {
+        return session.getSystemProperty(ROW_NUMBER_SPILL_ENABLED, Boolean.class) && isSpillEnabled(session);
+    }
+
     public static DataSize getAggregationOperatorUnspillMemoryLimit(Session session)
     {
         DataSize memoryLimitForMerge = session.getSystemProperty(AGGREGATION_OPERATOR_UNSPILL_MEMORY_LIMIT, DataSize.class);
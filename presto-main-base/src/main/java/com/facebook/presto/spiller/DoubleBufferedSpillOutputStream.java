@@ -0,0 +1,147 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import com.facebook.airlift.concurrent.NotThreadSafe;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.throwIfInstanceOf;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Writes a spill file in chunks of the buffer size. A full buffer is written to the file by the I/O
+ * executor while the other buffer is filled, so the writes of the stripes of a spill file overlap.
+ */
+@NotThreadSafe
+final class DoubleBufferedSpillOutputStream
+        extends OutputStream
+{
+    private final FileChannel channel;
+    private final ListeningExecutorService executor;
+    private final SpillPathStats spillPathStats;
+
+    private ByteBuffer buffer;
+    private ByteBuffer flushBuffer;
+    private ListenableFuture<?> flushInProgress = immediateFuture(null);
+    private boolean closed;
+
+    public DoubleBufferedSpillOutputStream(FileChannel channel, int bufferSize, ListeningExecutorService executor, SpillPathStats spillPathStats)
+    {
+        checkArgument(bufferSize > 0, "bufferSize must be positive");
+        this.channel = requireNonNull(channel, "channel is null");
+        this.executor = requireNonNull(executor, "executor is null");
+        this.spillPathStats = requireNonNull(spillPathStats, "spillPathStats is null");
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.flushBuffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    @Override
+    public void write(int value)
+            throws IOException
+    {
+        if (!buffer.hasRemaining()) {
+            flushBuffer();
+        }
+        buffer.put((byte) value);
+    }
+
+    @Override
+    public void write(byte[] source, int offset, int length)
+            throws IOException
+    {
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                flushBuffer();
+            }
+            int chunkLength = min(length, buffer.remaining());
+            buffer.put(source, offset, chunkLength);
+            offset += chunkLength;
+            length -= chunkLength;
+        }
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try (FileChannel ignored = channel) {
+            waitForFlush();
+            if (buffer.position() > 0) {
+                buffer.flip();
+                writeFully(buffer);
+            }
+        }
+    }
+
+    private void flushBuffer()
+            throws IOException
+    {
+        waitForFlush();
+        ByteBuffer fullBuffer = buffer;
+        buffer = flushBuffer;
+        flushBuffer = fullBuffer;
+
+        fullBuffer.flip();
+        flushInProgress = executor.submit(() -> {
+            writeFully(fullBuffer);
+            return null;
+        });
+    }
+
+    private void writeFully(ByteBuffer data)
+            throws IOException
+    {
+        long start = System.nanoTime();
+        int bytes = data.remaining();
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+        data.clear();
+        spillPathStats.addWrite(bytes, System.nanoTime() - start);
+    }
+
+    private void waitForFlush()
+            throws IOException
+    {
+        try {
+            flushInProgress.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing spill file");
+        }
+        catch (ExecutionException e) {
+            throwIfInstanceOf(e.getCause(), IOException.class);
+            throwIfUnchecked(e.getCause());
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
@@ -42,6 +43,11 @@ final class FileHolder
         this.filePath = requireNonNull(filePath, "filePath is null");
     }
 
+    public Path getFilePath()
+    {
+        return filePath;
+    }
+
     public synchronized OutputStream newOutputStream(OpenOption... options)
             throws IOException
     {
@@ -56,6 +62,13 @@ final class FileHolder
         return Files.newInputStream(filePath, options);
     }
 
+    public synchronized FileChannel newFileChannel(OpenOption... options)
+            throws IOException
+    {
+        checkState(!deleted, "File already deleted");
+        return FileChannel.open(filePath, options);
+    }
+
     @Override
     public synchronized void close()
     {
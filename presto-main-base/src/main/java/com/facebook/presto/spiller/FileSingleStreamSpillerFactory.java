@@ -41,12 +41,14 @@ import java.util.Optional;
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.facebook.presto.spi.StandardErrorCode.OUT_OF_SPILL_SPACE;
 import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static java.lang.Math.toIntExact;
 import static java.lang.String.format;
 import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.delete;
 import static java.nio.file.Files.getFileStore;
 import static java.nio.file.Files.newDirectoryStream;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newFixedThreadPool;
 
 public class FileSingleStreamSpillerFactory
@@ -61,11 +63,14 @@ public class FileSingleStreamSpillerFactory
     private static final String SPILL_FILE_GLOB = "spill*.bin";
 
     private final ListeningExecutorService executor;
+    private final ListeningExecutorService ioExecutor;
     private final PagesSerdeFactory serdeFactory;
     private final List<Path> spillPaths;
     private final SpillerStats spillerStats;
     private final double maxUsedSpaceThreshold;
     private final boolean spillEncryptionEnabled;
+    private final boolean stripingEnabled;
+    private final int stripingBufferSize;
     private int roundRobinIndex;
 
     @Inject
@@ -80,7 +85,11 @@ public class FileSingleStreamSpillerFactory
                 requireNonNull(featuresConfig, "featuresConfig is null").getSpillerSpillPaths(),
                 requireNonNull(featuresConfig, "featuresConfig is null").getSpillMaxUsedSpaceThreshold(),
                 requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").getSpillCompressionCodec(),
-                requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").isSpillEncryptionEnabled());
+                requireNonNull(nodeSpillConfig, "nodeSpillConfig is null").isSpillEncryptionEnabled(),
+                // the writes and reads of striped spills must not wait on the spiller threads
+                listeningDecorator(newCachedThreadPool(daemonThreadsNamed("binary-spiller-io-%s"))),
+                featuresConfig.isSpillerStripingEnabled(),
+                toIntExact(featuresConfig.getSpillerStripingBufferSize().toBytes()));
     }
 
     @VisibleForTesting
@@ -92,6 +101,22 @@ public class FileSingleStreamSpillerFactory
             double maxUsedSpaceThreshold,
             CompressionCodec spillCompressionCodec,
             boolean spillEncryptionEnabled)
+    {
+        this(executor, blockEncodingSerde, spillerStats, spillPaths, maxUsedSpaceThreshold, spillCompressionCodec, spillEncryptionEnabled, executor, false, 0);
+    }
+
+    @VisibleForTesting
+    public FileSingleStreamSpillerFactory(
+            ListeningExecutorService executor,
+            BlockEncodingSerde blockEncodingSerde,
+            SpillerStats spillerStats,
+            List<Path> spillPaths,
+            double maxUsedSpaceThreshold,
+            CompressionCodec spillCompressionCodec,
+            boolean spillEncryptionEnabled,
+            ListeningExecutorService ioExecutor,
+            boolean stripingEnabled,
+            int stripingBufferSize)
     {
         this.serdeFactory = new PagesSerdeFactory(requireNonNull(blockEncodingSerde, "blockEncodingSerde is null"), spillCompressionCodec);
         this.executor = requireNonNull(executor, "executor is null");
@@ -113,6 +138,9 @@ public class FileSingleStreamSpillerFactory
         });
         this.maxUsedSpaceThreshold = maxUsedSpaceThreshold;
         this.spillEncryptionEnabled = spillEncryptionEnabled;
+        this.ioExecutor = requireNonNull(ioExecutor, "ioExecutor is null");
+        this.stripingEnabled = stripingEnabled;
+        this.stripingBufferSize = stripingBufferSize;
         this.roundRobinIndex = 0;
     }
 
@@ -126,6 +154,7 @@ public class FileSingleStreamSpillerFactory
     public void destroy()
     {
         executor.shutdownNow();
+        ioExecutor.shutdownNow();
     }
 
     private static void cleanupOldSpillFiles(Path path)
@@ -154,6 +183,9 @@ public class FileSingleStreamSpillerFactory
             spillCipher = Optional.of(new AesSpillCipher());
         }
         PagesSerde serde = serdeFactory.createPagesSerdeForSpill(spillCipher);
+        if (stripingEnabled) {
+            return new StripedFileSingleStreamSpiller(serde, executor, ioExecutor, getStripeSpillPaths(), stripingBufferSize, spillerStats, spillContext, memoryContext, spillCipher);
+        }
         return new FileSingleStreamSpiller(serde, executor, getNextSpillPath(), spillerStats, spillContext, memoryContext, spillCipher);
     }
 
@@ -174,6 +206,28 @@ public class FileSingleStreamSpillerFactory
         throw new PrestoException(OUT_OF_SPILL_SPACE, "No free space available for spill");
     }
 
+    private synchronized List<Path> getStripeSpillPaths()
+    {
+        // all the spill paths with enough space, starting at the next path so the first stripes are spread as well
+        ImmutableList.Builder<Path> paths = ImmutableList.builder();
+        int spillPathsCount = spillPaths.size();
+        for (int i = 0; i < spillPathsCount; ++i) {
+            Path path = spillPaths.get((roundRobinIndex + i) % spillPathsCount);
+            if (hasEnoughDiskSpace(path)) {
+                paths.add(path);
+            }
+        }
+        List<Path> stripePaths = paths.build();
+        if (spillPaths.isEmpty()) {
+            throw new PrestoException(OUT_OF_SPILL_SPACE, "No spill paths configured");
+        }
+        if (stripePaths.isEmpty()) {
+            throw new PrestoException(OUT_OF_SPILL_SPACE, "No free space available for spill");
+        }
+        roundRobinIndex = (roundRobinIndex + 1) % spillPathsCount;
+        return stripePaths;
+    }
+
     private boolean hasEnoughDiskSpace(Path path)
     {
         try {
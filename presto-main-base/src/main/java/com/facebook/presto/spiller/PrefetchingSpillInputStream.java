@@ -0,0 +1,163 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import com.facebook.airlift.concurrent.NotThreadSafe;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.throwIfInstanceOf;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads a spill file in chunks of the buffer size. The next chunk is read by the I/O executor
+ * while the current chunk is consumed.
+ */
+@NotThreadSafe
+final class PrefetchingSpillInputStream
+        extends InputStream
+{
+    private final FileChannel channel;
+    private final ListeningExecutorService executor;
+    private final SpillPathStats spillPathStats;
+
+    private ByteBuffer buffer;
+    private ByteBuffer prefetchBuffer;
+    private ListenableFuture<Integer> prefetch;
+    // position in the file of the chunk being prefetched
+    private long prefetchPosition;
+
+    public PrefetchingSpillInputStream(FileChannel channel, int bufferSize, ListeningExecutorService executor, SpillPathStats spillPathStats)
+    {
+        checkArgument(bufferSize > 0, "bufferSize must be positive");
+        this.channel = requireNonNull(channel, "channel is null");
+        this.executor = requireNonNull(executor, "executor is null");
+        this.spillPathStats = requireNonNull(spillPathStats, "spillPathStats is null");
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.buffer.limit(0);
+        this.prefetchBuffer = ByteBuffer.allocate(bufferSize);
+        startPrefetch();
+    }
+
+    @Override
+    public int read()
+            throws IOException
+    {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] destination, int offset, int length)
+            throws IOException
+    {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int chunkLength = min(length, buffer.remaining());
+        buffer.get(destination, offset, chunkLength);
+        return chunkLength;
+    }
+
+    @Override
+    public int available()
+    {
+        return buffer.remaining();
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        // a running prefetch fails once the channel is closed
+        channel.close();
+    }
+
+    private boolean ensureAvailable()
+            throws IOException
+    {
+        if (buffer.hasRemaining()) {
+            return true;
+        }
+
+        int bytes = waitForPrefetch();
+        if (bytes == 0) {
+            return false;
+        }
+        ByteBuffer nextBuffer = prefetchBuffer;
+        prefetchBuffer = buffer;
+        buffer = nextBuffer;
+
+        prefetchPosition += bytes;
+        startPrefetch();
+        return true;
+    }
+
+    private void startPrefetch()
+    {
+        ByteBuffer target = prefetchBuffer;
+        long position = prefetchPosition;
+        prefetch = executor.submit(() -> readFully(target, position));
+    }
+
+    private int readFully(ByteBuffer target, long position)
+            throws IOException
+    {
+        long start = System.nanoTime();
+        target.clear();
+        int bytes = 0;
+        while (target.hasRemaining()) {
+            int chunkBytes = channel.read(target, position + bytes);
+            if (chunkBytes < 0) {
+                break;
+            }
+            bytes += chunkBytes;
+        }
+        target.flip();
+        spillPathStats.addRead(bytes, System.nanoTime() - start);
+        return bytes;
+    }
+
+    private int waitForPrefetch()
+            throws IOException
+    {
+        try {
+            return prefetch.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading spill file");
+        }
+        catch (ExecutionException e) {
+            throwIfInstanceOf(e.getCause(), IOException.class);
+            throwIfUnchecked(e.getCause());
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * I/O done by the striped spillers on a single spill path, see {@link StripedFileSingleStreamSpiller}.
+ */
+public class SpillPathStats
+{
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong writeTimeNanos = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong readTimeNanos = new AtomicLong();
+
+    public long getBytesWritten()
+    {
+        return bytesWritten.get();
+    }
+
+    public long getWriteTimeNanos()
+    {
+        return writeTimeNanos.get();
+    }
+
+    public long getBytesRead()
+    {
+        return bytesRead.get();
+    }
+
+    public long getReadTimeNanos()
+    {
+        return readTimeNanos.get();
+    }
+
+    public double getWriteBytesPerSecond()
+    {
+        return toBytesPerSecond(bytesWritten.get(), writeTimeNanos.get());
+    }
+
+    public double getReadBytesPerSecond()
+    {
+        return toBytesPerSecond(bytesRead.get(), readTimeNanos.get());
+    }
+
+    public void addWrite(long bytes, long timeNanos)
+    {
+        bytesWritten.addAndGet(bytes);
+        writeTimeNanos.addAndGet(timeNanos);
+    }
+
+    public void addRead(long bytes, long timeNanos)
+    {
+        bytesRead.addAndGet(bytes);
+        readTimeNanos.addAndGet(timeNanos);
+    }
+
+    private static double toBytesPerSecond(long bytes, long timeNanos)
+    {
+        if (timeNanos == 0) {
+            return 0;
+        }
+        return bytes * (double) SECONDS.toNanos(1) / timeNanos;
+    }
+}
@@ -13,14 +13,20 @@
  */
 package com.facebook.presto.spiller;
 
+import com.google.common.collect.ImmutableMap;
 import org.weakref.jmx.Managed;
 
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class SpillerStats
 {
     protected final AtomicLong totalSpilledBytes = new AtomicLong();
     protected final AtomicLong totalSpilledBytesRead = new AtomicLong();
+    protected final ConcurrentMap<Path, SpillPathStats> spillPathStats = new ConcurrentHashMap<>();
 
     @Managed
     public long getTotalSpilledBytes()
@@ -43,4 +49,17 @@ public class SpillerStats
     {
         totalSpilledBytesRead.addAndGet(delta);
     }
+
+    public SpillPathStats getSpillPathStats(Path spillPath)
+    {
+        return spillPathStats.computeIfAbsent(spillPath, ignored -> new SpillPathStats());
+    }
+
+    /**
+     * Returns the I/O done on each spill path by striped spillers.
+     */
+    public Map<Path, SpillPathStats> getAllSpillPathStats()
+    {
+        return ImmutableMap.copyOf(spillPathStats);
+    }
 }
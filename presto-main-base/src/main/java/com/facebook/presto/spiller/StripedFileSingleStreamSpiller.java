@@ -0,0 +1,306 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import com.facebook.airlift.concurrent.NotThreadSafe;
+import com.facebook.presto.common.Page;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.operator.SpillContext;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.page.PagesSerde;
+import com.facebook.presto.spi.page.SerializedPage;
+import com.facebook.presto.spi.spiller.SpillCipher;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closer;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import io.airlift.slice.InputStreamSliceInput;
+import io.airlift.slice.OutputStreamSliceOutput;
+import io.airlift.slice.SliceInput;
+import io.airlift.slice.SliceOutput;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.common.block.PageBuilderStatus.DEFAULT_MAX_PAGE_SIZE_IN_BYTES;
+import static com.facebook.presto.execution.buffer.PageSplitterUtil.splitPage;
+import static com.facebook.presto.spi.StandardErrorCode.GENERIC_SPILL_FAILURE;
+import static com.facebook.presto.spi.page.PagesSerdeUtil.readSerializedPage;
+import static com.facebook.presto.spi.page.PagesSerdeUtil.writeSerializedPage;
+import static com.facebook.presto.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_PREFIX;
+import static com.facebook.presto.spiller.FileSingleStreamSpillerFactory.SPILL_FILE_SUFFIX;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.lang.String.format;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Spiller which stripes the spilled pages across one file on each of the spill paths, so a large spill
+ * uses the throughput of all the disks. The serialized pages are assigned to the stripes round-robin,
+ * and read back in the same order. Each stripe is written with large double buffered writes and read
+ * with prefetching, on the I/O executor, so the disks work in parallel.
+ */
+@NotThreadSafe
+public class StripedFileSingleStreamSpiller
+        implements SingleStreamSpiller
+{
+    // small buffer for the headers of the serialized pages, the pages are copied directly to the stripe buffers
+    private static final int HEADER_BUFFER_SIZE = 4 * 1024;
+
+    private final List<Stripe> stripes;
+    private final Closer closer = Closer.create();
+    private final PagesSerde serde;
+    private final SpillerStats spillerStats;
+    private final SpillContext localSpillContext;
+    private final LocalMemoryContext memoryContext;
+    private final int bufferSize;
+
+    private final ListeningExecutorService executor;
+    private final ListeningExecutorService ioExecutor;
+
+    private boolean writable = true;
+    private boolean committed;
+    private int nextStripe;
+    private volatile long spilledPagesInMemorySize;
+    private ListenableFuture<?> spillInProgress = Futures.immediateFuture(null);
+
+    public StripedFileSingleStreamSpiller(
+            PagesSerde serde,
+            ListeningExecutorService executor,
+            ListeningExecutorService ioExecutor,
+            List<Path> spillPaths,
+            int bufferSize,
+            SpillerStats spillerStats,
+            SpillContext spillContext,
+            LocalMemoryContext memoryContext,
+            Optional<SpillCipher> spillCipher)
+    {
+        this.serde = requireNonNull(serde, "serde is null");
+        this.executor = requireNonNull(executor, "executor is null");
+        this.ioExecutor = requireNonNull(ioExecutor, "ioExecutor is null");
+        requireNonNull(spillPaths, "spillPaths is null");
+        checkArgument(!spillPaths.isEmpty(), "spillPaths is empty");
+        checkArgument(bufferSize > 0, "bufferSize must be positive");
+        this.bufferSize = bufferSize;
+        this.spillerStats = requireNonNull(spillerStats, "spillerStats is null");
+        this.localSpillContext = spillContext.newLocalSpillContext();
+        this.memoryContext = requireNonNull(memoryContext, "memoryContext is null");
+        requireNonNull(spillCipher, "spillCipher is null");
+        checkState(!spillCipher.isPresent() || !spillCipher.get().isDestroyed(), "spillCipher is already destroyed");
+        spillCipher.ifPresent(cipher -> closer.register(cipher::destroy));
+        // Same as FileSingleStreamSpiller, the memory of the buffers is reserved up front and released
+        // in close(), as the buffers are used on the spiller and I/O threads.
+        this.memoryContext.setBytes(getBufferMemorySize(spillPaths.size(), bufferSize));
+        try {
+            ImmutableList.Builder<Stripe> stripes = ImmutableList.builder();
+            for (Path spillPath : spillPaths) {
+                FileHolder file = closer.register(new FileHolder(Files.createTempFile(spillPath, SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX)));
+                stripes.add(new Stripe(file, spillerStats.getSpillPathStats(spillPath)));
+            }
+            this.stripes = stripes.build();
+        }
+        catch (IOException e) {
+            throw new PrestoException(GENERIC_SPILL_FAILURE, format("Failed to create spill file: %s", e.getMessage()), e);
+        }
+    }
+
+    @VisibleForTesting
+    static long getBufferMemorySize(int stripeCount, int bufferSize)
+    {
+        // each stripe has two buffers, and a header buffer for writes
+        return stripeCount * (2L * bufferSize + HEADER_BUFFER_SIZE);
+    }
+
+    @Override
+    public ListenableFuture<?> spill(Iterator<Page> pageIterator)
+    {
+        requireNonNull(pageIterator, "pageIterator is null");
+        checkNoSpillInProgress();
+        spillInProgress = executor.submit(() -> writePages(pageIterator));
+        return spillInProgress;
+    }
+
+    @Override
+    public long getSpilledPagesInMemorySize()
+    {
+        return spilledPagesInMemorySize;
+    }
+
+    @Override
+    public Iterator<Page> getSpilledPages()
+    {
+        checkNoSpillInProgress();
+        return readPages();
+    }
+
+    @Override
+    public ListenableFuture<List<Page>> getAllSpilledPages()
+    {
+        return executor.submit(() -> ImmutableList.copyOf(getSpilledPages()));
+    }
+
+    @Override
+    public void commit()
+    {
+        committed = true;
+    }
+
+    private void writePages(Iterator<Page> pageIterator)
+    {
+        checkState(writable, "Spilling no longer allowed. The spiller has been made non-writable on first read for subsequent reads to be consistent");
+        checkState(!committed, "Spilling no longer allowed. Spill file is already committed");
+        try (Closer outputCloser = Closer.create()) {
+            ImmutableList.Builder<SliceOutput> outputs = ImmutableList.builder();
+            for (Stripe stripe : stripes) {
+                DoubleBufferedSpillOutputStream stream = new DoubleBufferedSpillOutputStream(stripe.getFile().newFileChannel(APPEND), bufferSize, ioExecutor, stripe.getSpillPathStats());
+                outputs.add(outputCloser.register(new OutputStreamSliceOutput(stream, HEADER_BUFFER_SIZE)));
+            }
+            List<SliceOutput> stripeOutputs = outputs.build();
+
+            while (pageIterator.hasNext()) {
+                Page page = pageIterator.next();
+                spilledPagesInMemorySize += page.getSizeInBytes();
+                // page serialization requires  page.getSizeInBytes() + Integer.BYTES to fit in an integer
+                for (Page splitPage : splitPage(page, DEFAULT_MAX_PAGE_SIZE_IN_BYTES)) {
+                    SerializedPage serializedPage = serde.serialize(splitPage);
+                    long pageSize = serializedPage.getSizeInBytes();
+                    localSpillContext.updateBytes(pageSize);
+                    spillerStats.addToTotalSpilledBytes(pageSize);
+                    writeSerializedPage(stripeOutputs.get(nextStripe), serializedPage);
+                    nextStripe = (nextStripe + 1) % stripes.size();
+                }
+            }
+        }
+        catch (UncheckedIOException | IOException e) {
+            throw new PrestoException(GENERIC_SPILL_FAILURE, format("Failed to spill pages: %s", e.getMessage()), e);
+        }
+    }
+
+    private Iterator<Page> readPages()
+    {
+        checkState(writable, "Repeated reads are disallowed to prevent potential resource leaks");
+        writable = false;
+
+        try {
+            if (!committed) {
+                commit();
+            }
+
+            checkState(committed, "Cannot read pages since spill file is not committed");
+            Closer inputCloser = Closer.create();
+            closer.register(inputCloser);
+            ImmutableList.Builder<SliceInput> inputs = ImmutableList.builder();
+            for (Stripe stripe : stripes) {
+                PrefetchingSpillInputStream stream = inputCloser.register(new PrefetchingSpillInputStream(stripe.getFile().newFileChannel(READ), bufferSize, ioExecutor, stripe.getSpillPathStats()));
+                inputs.add(new InputStreamSliceInput(stream, HEADER_BUFFER_SIZE));
+            }
+            spillerStats.addToTotalSpilledBytesRead(getSpilledPagesInMemorySize());
+            return new StripedPageIterator(inputs.build(), inputCloser);
+        }
+        catch (IOException e) {
+            throw new PrestoException(GENERIC_SPILL_FAILURE, format("Failed to read spilled pages: %s", e.getMessage()), e);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        closer.register(localSpillContext);
+        closer.register(() -> memoryContext.setBytes(0));
+        try {
+            closer.close();
+        }
+        catch (IOException e) {
+            throw new PrestoException(GENERIC_SPILL_FAILURE, format("Failed to close spiller: %s", e.getMessage()), e);
+        }
+    }
+
+    @VisibleForTesting
+    List<Path> getSpillFiles()
+    {
+        return stripes.stream()
+                .map(stripe -> stripe.getFile().getFilePath())
+                .collect(toImmutableList());
+    }
+
+    private void checkNoSpillInProgress()
+    {
+        checkState(spillInProgress.isDone(), "spill in progress");
+    }
+
+    private class StripedPageIterator
+            extends AbstractIterator<Page>
+    {
+        private final List<SliceInput> inputs;
+        private final Closer inputCloser;
+        private int stripe;
+
+        public StripedPageIterator(List<SliceInput> inputs, Closer inputCloser)
+        {
+            this.inputs = requireNonNull(inputs, "inputs is null");
+            this.inputCloser = requireNonNull(inputCloser, "inputCloser is null");
+        }
+
+        @Override
+        protected Page computeNext()
+        {
+            // the pages were written round-robin, so the stripe of the next page is exhausted only after the last page
+            SliceInput input = inputs.get(stripe);
+            if (!input.isReadable()) {
+                try {
+                    inputCloser.close();
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return endOfData();
+            }
+            stripe = (stripe + 1) % inputs.size();
+            return serde.deserialize(readSerializedPage(input)).compact();
+        }
+    }
+
+    private static class Stripe
+    {
+        private final FileHolder file;
+        private final SpillPathStats spillPathStats;
+
+        public Stripe(FileHolder file, SpillPathStats spillPathStats)
+        {
+            this.file = requireNonNull(file, "file is null");
+            this.spillPathStats = requireNonNull(spillPathStats, "spillPathStats is null");
+        }
+
+        public FileHolder getFile()
+        {
+            return file;
+        }
+
+        public SpillPathStats getSpillPathStats()
+        {
+            return spillPathStats;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.split;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.spi.ConnectorPageSource;
+import com.facebook.presto.spi.RecordPageSource;
+import com.google.errorprone.annotations.ThreadSafe;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+
+/**
+ * Reads the pages of a {@link RecordPageSource} on a separate executor, one page ahead of
+ * the operator. Record cursors block the calling thread on remote reads, so the operator
+ * waits on {@link #isBlocked()} instead and the split runner thread is free to run other
+ * splits in the meantime.
+ */
+@ThreadSafe
+public class AsyncRecordPageSource
+        implements ConnectorPageSource
+{
+    private final RecordPageSource delegate;
+    private final Executor executor;
+
+    @GuardedBy("this")
+    private CompletableFuture<Page> pendingPage;
+    @GuardedBy("this")
+    private CompletableFuture<?> pendingPageBlocked;
+    @GuardedBy("this")
+    private boolean finished;
+
+    private volatile boolean closed;
+
+    // the delegate is only accessed by the reader, so its stats are published after every read
+    private volatile long completedBytes;
+    private volatile long completedPositions;
+    private volatile long readTimeNanos;
+    private volatile long systemMemoryUsage;
+
+    public AsyncRecordPageSource(RecordPageSource delegate, Executor executor)
+    {
+        this.delegate = requireNonNull(delegate, "delegate is null");
+        this.executor = requireNonNull(executor, "executor is null");
+    }
+
+    @Override
+    public long getCompletedBytes()
+    {
+        return completedBytes;
+    }
+
+    @Override
+    public long getCompletedPositions()
+    {
+        return completedPositions;
+    }
+
+    @Override
+    public long getReadTimeNanos()
+    {
+        return readTimeNanos;
+    }
+
+    @Override
+    public long getSystemMemoryUsage()
+    {
+        return systemMemoryUsage;
+    }
+
+    @Override
+    public synchronized boolean isFinished()
+    {
+        return finished || closed;
+    }
+
+    @Override
+    public synchronized CompletableFuture<?> isBlocked()
+    {
+        if (finished || closed) {
+            return NOT_BLOCKED;
+        }
+        if (pendingPage == null) {
+            startRead();
+        }
+        return pendingPage.isDone() ? NOT_BLOCKED : pendingPageBlocked;
+    }
+
+    @Override
+    public synchronized Page getNextPage()
+    {
+        if (finished || closed) {
+            return null;
+        }
+        if (pendingPage == null) {
+            startRead();
+        }
+        if (!pendingPage.isDone()) {
+            return null;
+        }
+
+        Page page = getFutureValue(pendingPage);
+        pendingPage = null;
+        pendingPageBlocked = null;
+        if (page == null) {
+            finished = true;
+        }
+        else {
+            // read the next page while the operator processes this one
+            startRead();
+        }
+        return page;
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        // the delegate is not thread safe, so an in-flight read must finish before it is closed
+        if (pendingPage != null && !pendingPage.isDone()) {
+            pendingPage.whenComplete((page, throwable) -> delegate.close());
+        }
+        else {
+            delegate.close();
+        }
+    }
+
+    @GuardedBy("this")
+    private void startRead()
+    {
+        pendingPage = supplyAsync(this::readPage, executor);
+        pendingPageBlocked = pendingPage.handle((page, throwable) -> null);
+    }
+
+    private Page readPage()
+    {
+        Page page = null;
+        while (page == null && !closed && !delegate.isFinished()) {
+            page = delegate.getNextPage();
+        }
+
+        completedBytes = delegate.getCompletedBytes();
+        completedPositions = delegate.getCompletedPositions();
+        readTimeNanos = delegate.getReadTimeNanos();
+        systemMemoryUsage = delegate.getSystemMemoryUsage() + (page == null ? 0 : page.getRetainedSizeInBytes());
+        return page;
+    }
+}
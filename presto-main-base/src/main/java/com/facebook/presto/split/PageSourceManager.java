@@ -22,25 +22,39 @@ import com.facebook.presto.spi.ConnectorId;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.FixedPageSource;
+import com.facebook.presto.spi.RecordPageSource;
 import com.facebook.presto.spi.SplitContext;
 import com.facebook.presto.spi.TableHandle;
 import com.facebook.presto.spi.connector.ConnectorPageSourceProvider;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import jakarta.annotation.PreDestroy;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Supplier;
 
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.SystemSessionProperties.isAsyncRecordCursorReadsEnabled;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newCachedThreadPool;
 
 public class PageSourceManager
         implements PageSourceProvider
 {
     private final ConcurrentMap<ConnectorId, ConnectorPageSourceProvider> pageSourceProviders = new ConcurrentHashMap<>();
+    private final ExecutorService recordCursorReadExecutor = newCachedThreadPool(daemonThreadsNamed("record-cursor-reader-%s"));
+
+    @PreDestroy
+    public void destroy()
+    {
+        recordCursorReadExecutor.shutdownNow();
+    }
 
     public void addConnectorPageSourceProvider(ConnectorId connectorId, ConnectorPageSourceProvider pageSourceProvider)
     {
@@ -73,12 +87,16 @@ public class PageSourceManager
                     split.getTransactionHandle(),
                     split.getConnectorSplit(),
                     split.getLifespan(),
-                    new SplitContext(split.getSplitContext().isCacheable(), dynamicFilter.get().get()));
+                    new SplitContext(
+                            split.getSplitContext().isCacheable(),
+                            dynamicFilter.get().get(),
+                            table.getDynamicFilterBloomFilters().map(Supplier::get).orElse(ImmutableMap.of())));
         }
 
         ConnectorSession connectorSession = session.toConnectorSession(split.getConnectorId());
+        ConnectorPageSource pageSource;
         if (table.getLayout().isPresent()) {
-            return getPageSourceProvider(split).createPageSource(
+            pageSource = getPageSourceProvider(split).createPageSource(
                     split.getTransactionHandle(),
                     connectorSession,
                     split.getConnectorSplit(),
@@ -87,7 +105,15 @@ public class PageSourceManager
                     split.getSplitContext(),
                     runtimeStats);
         }
-        return getPageSourceProvider(split).createPageSource(split.getTransactionHandle(), connectorSession, split.getConnectorSplit(), columns, split.getSplitContext());
+        else {
+            pageSource = getPageSourceProvider(split).createPageSource(split.getTransactionHandle(), connectorSession, split.getConnectorSplit(), columns, split.getSplitContext());
+        }
+
+        // record cursors block on their reads, so move them off the split runner thread
+        if (pageSource instanceof RecordPageSource && isAsyncRecordCursorReadsEnabled(session)) {
+            return new AsyncRecordPageSource((RecordPageSource) pageSource, recordCursorReadExecutor);
+        }
+        return pageSource;
     }
 
     private ConnectorPageSourceProvider getPageSourceProvider(Split split)
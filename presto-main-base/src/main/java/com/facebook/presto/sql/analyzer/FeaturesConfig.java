@@ -20,6 +20,7 @@ import com.facebook.airlift.configuration.LegacyConfig;
 import com.facebook.airlift.units.DataSize;
 import com.facebook.airlift.units.Duration;
 import com.facebook.airlift.units.MaxDataSize;
+import com.facebook.airlift.units.MinDataSize;
 import com.facebook.presto.CompressionCodec;
 import com.facebook.presto.common.function.OperatorType;
 import com.facebook.presto.common.resourceGroups.QueryType;
@@ -41,6 +42,7 @@ import java.nio.file.Paths;
 import java.util.List;
 import java.util.stream.Stream;
 
+import static com.facebook.airlift.units.DataSize.Unit.BYTE;
 import static com.facebook.airlift.units.DataSize.Unit.KILOBYTE;
 import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
 import static com.facebook.presto.spi.StandardErrorCode.INVALID_SESSION_PROPERTY;
@@ -124,26 +126,35 @@ public class FeaturesConfig
     private int optimizeMetadataQueriesCallThreshold = 100;
     private boolean optimizeHashGeneration = true;
     private boolean enableIntermediateAggregations;
+    private boolean enableLocalIntermediateAggregations;
+    private long localIntermediateAggregationsMaxGroups = 10_000;
     private boolean optimizeCaseExpressionPredicate;
     private boolean pushTableWriteThroughUnion = true;
     private CompressionCodec exchangeCompressionCodec = CompressionCodec.NONE;
     private boolean exchangeChecksumEnabled;
+    private boolean exchangeAdaptiveCompressionEnabled;
     private boolean optimizeMixedDistinctAggregations;
     private boolean forceSingleNodeOutput = true;
     private boolean pagesIndexEagerCompactionEnabled;
+    private boolean pagesIndexNormalizedKeySortEnabled;
     private boolean distributedSort = true;
     private boolean optimizeJoinsWithEmptySources;
     private boolean logFormattedQueryEnabled;
     private boolean logInvokedFunctionNamesEnabled;
 
     private boolean dictionaryAggregation;
+    private boolean flatGroupByHashEnabled;
+    private boolean batchedJoinProbeEnabled;
     private boolean spillEnabled;
     private boolean joinSpillingEnabled = true;
     private List<Path> spillerSpillPaths = ImmutableList.of();
     private int spillerThreads = 4;
+    private boolean spillerStripingEnabled;
+    private DataSize spillerStripingBufferSize = new DataSize(1, MEGABYTE);
     private double spillMaxUsedSpaceThreshold = 0.9;
     private boolean iterativeOptimizerEnabled = true;
     private boolean runtimeOptimizerEnabled;
+    private DataSize runtimeOptimizerTargetTaskInputSize = new DataSize(0, BYTE);
     private boolean enableStatsCalculator = true;
     private boolean enableStatsCollectionForTemporaryTable;
     private boolean ignoreStatsCalculatorFailures = true;
@@ -184,6 +195,7 @@ public class FeaturesConfig
     private int dynamicFilteringMaxPerDriverRowCount = 100;
     private DataSize dynamicFilteringMaxPerDriverSize = new DataSize(10, KILOBYTE);
     private int dynamicFilteringRangeRowLimitPerDriver;
+    private DataSize dynamicFilteringBloomFilterSize = new DataSize(0, BYTE);
 
     private boolean fragmentResultCachingEnabled;
 
@@ -223,6 +235,10 @@ public class FeaturesConfig
     private boolean spoolingOutputBufferEnabled;
     private DataSize spoolingOutputBufferThreshold = new DataSize(8, MEGABYTE);
     private String spoolingOutputBufferTempStorage = "local";
+    private boolean spooledResultsEnabled;
+    private DataSize spooledResultsSegmentSize = new DataSize(8, MEGABYTE);
+    private Duration spooledResultsMaxAge = new Duration(60, MINUTES);
+    private boolean spooledResultsProxyEnabled;
 
     private String warnOnNoTableLayoutFilter = "";
 
@@ -351,6 +367,7 @@ public class FeaturesConfig
 
     private boolean builtInSidecarFunctionsEnabled;
     private String tryFunctionCatchableErrors = "";
+    private boolean asyncRecordCursorReadsEnabled;
 
     public enum PartitioningPrecisionStrategy
     {
@@ -1276,6 +1293,32 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isFlatGroupByHashEnabled()
+    {
+        return flatGroupByHashEnabled;
+    }
+
+    @Config("experimental.flat-group-by-hash-enabled")
+    @ConfigDescription("Use a row-major group by hash for fixed-width and varchar grouping keys")
+    public FeaturesConfig setFlatGroupByHashEnabled(boolean flatGroupByHashEnabled)
+    {
+        this.flatGroupByHashEnabled = flatGroupByHashEnabled;
+        return this;
+    }
+
+    public boolean isBatchedJoinProbeEnabled()
+    {
+        return batchedJoinProbeEnabled;
+    }
+
+    @Config("experimental.batched-join-probe-enabled")
+    @ConfigDescription("Look up the join positions of a whole probe page at once instead of row by row")
+    public FeaturesConfig setBatchedJoinProbeEnabled(boolean batchedJoinProbeEnabled)
+    {
+        this.batchedJoinProbeEnabled = batchedJoinProbeEnabled;
+        return this;
+    }
+
     public boolean isConfidenceBasedBroadcastEnabled()
     {
         return confidenceBasedBroadcastEnabled;
@@ -1360,6 +1403,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public DataSize getRuntimeOptimizerTargetTaskInputSize()
+    {
+        return runtimeOptimizerTargetTaskInputSize;
+    }
+
+    @Config("experimental.runtime-optimizer-target-task-input-size")
+    @ConfigDescription("Materialized input size per task used by the runtime optimizer to reduce the number of tasks of stages reading materialized exchanges, 0 disables it")
+    public FeaturesConfig setRuntimeOptimizerTargetTaskInputSize(DataSize runtimeOptimizerTargetTaskInputSize)
+    {
+        this.runtimeOptimizerTargetTaskInputSize = runtimeOptimizerTargetTaskInputSize;
+        return this;
+    }
+
     public Duration getIterativeOptimizerTimeout()
     {
         return iterativeOptimizerTimeout;
@@ -1518,6 +1574,34 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isSpillerStripingEnabled()
+    {
+        return spillerStripingEnabled;
+    }
+
+    @Config("experimental.spiller-striping-enabled")
+    @ConfigDescription("Stripe each spill file across all spill paths, with large double buffered writes and prefetching reads")
+    public FeaturesConfig setSpillerStripingEnabled(boolean spillerStripingEnabled)
+    {
+        this.spillerStripingEnabled = spillerStripingEnabled;
+        return this;
+    }
+
+    @MinDataSize("4kB")
+    @MaxDataSize("64MB")
+    public DataSize getSpillerStripingBufferSize()
+    {
+        return spillerStripingBufferSize;
+    }
+
+    @Config("experimental.spiller-striping-buffer-size")
+    @ConfigDescription("Size of the writes and reads of each stripe of a striped spill file")
+    public FeaturesConfig setSpillerStripingBufferSize(DataSize spillerStripingBufferSize)
+    {
+        this.spillerStripingBufferSize = spillerStripingBufferSize;
+        return this;
+    }
+
     @DecimalMin("0.0")
     @DecimalMax("1.0")
     public double getMemoryRevokingThreshold()
@@ -1614,6 +1698,20 @@ public class FeaturesConfig
         return this;
     }
 
+    @MaxDataSize("256MB")
+    public DataSize getDynamicFilteringBloomFilterSize()
+    {
+        return dynamicFilteringBloomFilterSize;
+    }
+
+    @Config("experimental.dynamic-filtering-bloom-filter-size")
+    @ConfigDescription("Size of the per-driver Bloom filter collected for dynamic filtering once the build side exceeds the exact limits, 0 disables it")
+    public FeaturesConfig setDynamicFilteringBloomFilterSize(DataSize dynamicFilteringBloomFilterSize)
+    {
+        this.dynamicFilteringBloomFilterSize = dynamicFilteringBloomFilterSize;
+        return this;
+    }
+
     public boolean isFragmentResultCachingEnabled()
     {
         return fragmentResultCachingEnabled;
@@ -1664,6 +1762,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isExchangeAdaptiveCompressionEnabled()
+    {
+        return exchangeAdaptiveCompressionEnabled;
+    }
+
+    @Config("exchange.adaptive-compression-enabled")
+    @ConfigDescription("Send exchange pages without compression for a while after pages which do not compress well")
+    public FeaturesConfig setExchangeAdaptiveCompressionEnabled(boolean exchangeAdaptiveCompressionEnabled)
+    {
+        this.exchangeAdaptiveCompressionEnabled = exchangeAdaptiveCompressionEnabled;
+        return this;
+    }
+
     public boolean isEnableIntermediateAggregations()
     {
         return enableIntermediateAggregations;
@@ -1676,6 +1787,33 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isEnableLocalIntermediateAggregations()
+    {
+        return enableLocalIntermediateAggregations;
+    }
+
+    @Config("optimizer.enable-local-intermediate-aggregations")
+    @ConfigDescription("Pre-aggregate the input of grouped final aggregations in every driver when few groups are expected")
+    public FeaturesConfig setEnableLocalIntermediateAggregations(boolean enableLocalIntermediateAggregations)
+    {
+        this.enableLocalIntermediateAggregations = enableLocalIntermediateAggregations;
+        return this;
+    }
+
+    @Min(1)
+    public long getLocalIntermediateAggregationsMaxGroups()
+    {
+        return localIntermediateAggregationsMaxGroups;
+    }
+
+    @Config("optimizer.local-intermediate-aggregations-max-groups")
+    @ConfigDescription("Maximum estimated number of groups for which grouped final aggregations are pre-aggregated in every driver")
+    public FeaturesConfig setLocalIntermediateAggregationsMaxGroups(long localIntermediateAggregationsMaxGroups)
+    {
+        this.localIntermediateAggregationsMaxGroups = localIntermediateAggregationsMaxGroups;
+        return this;
+    }
+
     public boolean isPushAggregationThroughJoin()
     {
         return pushAggregationThroughJoin;
@@ -1799,6 +1937,19 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isPagesIndexNormalizedKeySortEnabled()
+    {
+        return pagesIndexNormalizedKeySortEnabled;
+    }
+
+    @Config("pages-index.normalized-key-sort-enabled")
+    @ConfigDescription("Sort pages indexes by a binary comparable prefix of the first sort key, and compare full rows only on prefix ties")
+    public FeaturesConfig setPagesIndexNormalizedKeySortEnabled(boolean pagesIndexNormalizedKeySortEnabled)
+    {
+        this.pagesIndexNormalizedKeySortEnabled = pagesIndexNormalizedKeySortEnabled;
+        return this;
+    }
+
     @MaxDataSize("1MB")
     public DataSize getFilterAndProjectMinOutputPageSize()
     {
@@ -2246,6 +2397,60 @@ public class FeaturesConfig
         return this;
     }
 
+    public boolean isSpooledResultsEnabled()
+    {
+        return spooledResultsEnabled;
+    }
+
+    @Config("spooled-results-enabled")
+    @ConfigDescription("Write the results of queries to temporary storage on the workers, from which clients fetch them in segments")
+    public FeaturesConfig setSpooledResultsEnabled(boolean spooledResultsEnabled)
+    {
+        this.spooledResultsEnabled = spooledResultsEnabled;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getSpooledResultsSegmentSize()
+    {
+        return spooledResultsSegmentSize;
+    }
+
+    @Config("spooled-results-segment-size")
+    @ConfigDescription("Target size of the segments of spooled query results")
+    public FeaturesConfig setSpooledResultsSegmentSize(DataSize spooledResultsSegmentSize)
+    {
+        this.spooledResultsSegmentSize = spooledResultsSegmentSize;
+        return this;
+    }
+
+    @NotNull
+    public Duration getSpooledResultsMaxAge()
+    {
+        return spooledResultsMaxAge;
+    }
+
+    @Config("spooled-results-max-age")
+    @ConfigDescription("Time after which segments of spooled query results that were not acknowledged by the client are removed")
+    public FeaturesConfig setSpooledResultsMaxAge(Duration spooledResultsMaxAge)
+    {
+        this.spooledResultsMaxAge = spooledResultsMaxAge;
+        return this;
+    }
+
+    public boolean isSpooledResultsProxyEnabled()
+    {
+        return spooledResultsProxyEnabled;
+    }
+
+    @Config("spooled-results-proxy-enabled")
+    @ConfigDescription("Let clients fetch spooled query results through the coordinator, for clusters whose workers clients can not reach")
+    public FeaturesConfig setSpooledResultsProxyEnabled(boolean spooledResultsProxyEnabled)
+    {
+        this.spooledResultsProxyEnabled = spooledResultsProxyEnabled;
+        return this;
+    }
+
     public boolean isPrestoSparkAssignBucketToPartitionForPartitionedTableWriteEnabled()
     {
         return prestoSparkAssignBucketToPartitionForPartitionedTableWriteEnabled;
@@ -3613,4 +3818,17 @@ public class FeaturesConfig
         this.tryFunctionCatchableErrors = tryFunctionCatchableErrors;
         return this;
     }
+
+    public boolean isAsyncRecordCursorReadsEnabled()
+    {
+        return asyncRecordCursorReadsEnabled;
+    }
+
+    @Config("async-record-cursor-reads-enabled")
+    @ConfigDescription("Read pages of record cursor based connectors on a separate thread pool, so blocked reads do not occupy split runner threads")
+    public FeaturesConfig setAsyncRecordCursorReadsEnabled(boolean asyncRecordCursorReadsEnabled)
+    {
+        this.asyncRecordCursorReadsEnabled = asyncRecordCursorReadsEnabled;
+        return this;
+    }
 }
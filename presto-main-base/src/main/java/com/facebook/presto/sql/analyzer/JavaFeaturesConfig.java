@@ -16,6 +16,7 @@ package com.facebook.presto.sql.analyzer;
 import com.facebook.airlift.configuration.Config;
 import com.facebook.airlift.configuration.ConfigDescription;
 import com.facebook.airlift.units.DataSize;
+import jakarta.validation.constraints.Min;
 
 import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
 
@@ -29,9 +30,14 @@ public class JavaFeaturesConfig
     private boolean orderByAggregationSpillEnabled = true;
     private boolean orderBySpillEnabled = true;
     private boolean windowSpillEnabled = true;
+    private boolean windowSpillStreamingEnabled = true;
+    private boolean markDistinctSpillEnabled = true;
+    private boolean rowNumberSpillEnabled = true;
     private DataSize distinctAggregationLargeBlockSizeThreshold = new DataSize(50, MEGABYTE);
     private DataSize topNOperatorUnspillMemoryLimit = new DataSize(4, MEGABYTE);
     private DataSize aggregationOperatorUnspillMemoryLimit = new DataSize(4, MEGABYTE);
+    private int hashBuildParallelism = 1;
+    private int hashBuildThreads = 4;
 
     public boolean isOrderBySpillEnabled()
     {
@@ -59,6 +65,73 @@ public class JavaFeaturesConfig
         return this;
     }
 
+    public boolean isWindowSpillStreamingEnabled()
+    {
+        return windowSpillStreamingEnabled;
+    }
+
+    @Config("experimental.window-spill-streaming-enabled")
+    @ConfigDescription("Evaluate ranking, lag/lead and running aggregate window functions over the sorted partitions without materializing them, when window spill is enabled")
+    public JavaFeaturesConfig setWindowSpillStreamingEnabled(boolean windowSpillStreamingEnabled)
+    {
+        this.windowSpillStreamingEnabled = windowSpillStreamingEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getHashBuildParallelism()
+    {
+        return hashBuildParallelism;
+    }
+
+    @Config("experimental.hash-build-parallelism")
+    @ConfigDescription("Number of threads building the hash table of a join partition, including the build driver")
+    public JavaFeaturesConfig setHashBuildParallelism(int hashBuildParallelism)
+    {
+        this.hashBuildParallelism = hashBuildParallelism;
+        return this;
+    }
+
+    @Min(1)
+    public int getHashBuildThreads()
+    {
+        return hashBuildThreads;
+    }
+
+    @Config("experimental.hash-build-threads")
+    @ConfigDescription("Number of worker threads shared by the parallel hash builds")
+    public JavaFeaturesConfig setHashBuildThreads(int hashBuildThreads)
+    {
+        this.hashBuildThreads = hashBuildThreads;
+        return this;
+    }
+
+    public boolean isMarkDistinctSpillEnabled()
+    {
+        return markDistinctSpillEnabled;
+    }
+
+    @Config("experimental.mark-distinct-spill-enabled")
+    @ConfigDescription("Enable MarkDistinct Operator Spilling if spill is enabled")
+    public JavaFeaturesConfig setMarkDistinctSpillEnabled(boolean markDistinctSpillEnabled)
+    {
+        this.markDistinctSpillEnabled = markDistinctSpillEnabled;
+        return this;
+    }
+
+    public boolean isRowNumberSpillEnabled()
+    {
+        return rowNumberSpillEnabled;
+    }
+
+    @Config("experimental.row-number-spill-enabled")
+    @ConfigDescription("Enable RowNumber Operator Spilling if spill is enabled")
+    public JavaFeaturesConfig setRowNumberSpillEnabled(boolean rowNumberSpillEnabled)
+    {
+        this.rowNumberSpillEnabled = rowNumberSpillEnabled;
+        return this;
+    }
+
     public boolean isOrderByAggregationSpillEnabled()
     {
         return orderByAggregationSpillEnabled;
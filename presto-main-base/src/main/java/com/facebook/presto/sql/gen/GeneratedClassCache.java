@@ -0,0 +1,402 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.airlift.log.Logger;
+import com.facebook.airlift.stats.CounterStat;
+import com.facebook.airlift.units.DataSize;
+import com.facebook.presto.bytecode.BytecodeCache;
+import com.facebook.presto.client.NodeVersion;
+import com.facebook.presto.sql.planner.CompilerConfig;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import jakarta.inject.Inject;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.facebook.airlift.units.DataSize.Unit.BYTE;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.hash.Hashing.sha256;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Persists the bytecode of generated classes in a local directory, so that after a restart
+ * the compilers skip writing the bytecode and computing the stack map frames of classes
+ * they generated before. The classes are still built, since their call site bindings are
+ * objects of the running server, and only the bytecode is cached.
+ * <p>
+ * Entries are kept in a subdirectory per Presto version, and the subdirectories of the other
+ * versions are removed when the cache is created. Each entry starts with the SHA-256 of its
+ * bytecode, and an entry which does not match it is removed and reported as a miss, so that the
+ * class is generated again. The least recently used entries are removed once the entries take
+ * more than the maximum size.
+ */
+public class GeneratedClassCache
+        implements BytecodeCache
+{
+    private static final Logger log = Logger.get(GeneratedClassCache.class);
+
+    private static final String ENTRY_SUFFIX = ".class";
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+    private static final int DIGEST_LENGTH = 32;
+
+    private final Optional<Path> directory;
+    private final long maxSizeInBytes;
+
+    // size of the entries in the directory, in least recently used order
+    @GuardedBy("this")
+    private final LinkedHashMap<String, Long> entrySizes = new LinkedHashMap<>(16, 0.75f, true);
+    @GuardedBy("this")
+    private long sizeInBytes;
+
+    private final CounterStat hits = new CounterStat();
+    private final CounterStat misses = new CounterStat();
+    private final CounterStat failures = new CounterStat();
+    private final CounterStat checksumMismatches = new CounterStat();
+    private final CounterStat evictions = new CounterStat();
+
+    @Inject
+    public GeneratedClassCache(CompilerConfig config, NodeVersion nodeVersion)
+    {
+        this(
+                Optional.ofNullable(requireNonNull(config, "config is null").getGeneratedClassCacheDirectory()).map(File::toPath),
+                requireNonNull(nodeVersion, "nodeVersion is null").getVersion(),
+                config.getGeneratedClassCacheMaxSize());
+    }
+
+    public GeneratedClassCache(Optional<Path> rootDirectory, String version, DataSize maxSize)
+    {
+        requireNonNull(rootDirectory, "rootDirectory is null");
+        requireNonNull(version, "version is null");
+        this.directory = rootDirectory.map(path -> path.resolve(version.replaceAll("[^A-Za-z0-9._-]", "_")));
+        this.maxSizeInBytes = requireNonNull(maxSize, "maxSize is null").toBytes();
+        if (directory.isPresent()) {
+            try {
+                Files.createDirectories(directory.get());
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Failed to create generated class cache directory: " + directory.get(), e);
+            }
+            deleteOtherVersions(rootDirectory.get(), directory.get());
+            loadEntries(directory.get());
+        }
+    }
+
+    public static GeneratedClassCache disabled()
+    {
+        return new GeneratedClassCache(Optional.empty(), "", new DataSize(0, BYTE));
+    }
+
+    public Optional<BytecodeCache> getBytecodeCache()
+    {
+        return directory.isPresent() ? Optional.of(this) : Optional.empty();
+    }
+
+    @Override
+    public Optional<byte[]> get(String key)
+    {
+        if (!directory.isPresent()) {
+            return Optional.empty();
+        }
+
+        Path path = getPath(key);
+        byte[] entry;
+        try {
+            entry = Files.readAllBytes(path);
+        }
+        catch (NoSuchFileException e) {
+            misses.update(1);
+            return Optional.empty();
+        }
+        catch (IOException e) {
+            failures.update(1);
+            log.warn(e, "Failed to read generated class %s", key);
+            return Optional.empty();
+        }
+
+        if (entry.length < DIGEST_LENGTH || !MessageDigest.isEqual(getDigest(entry, DIGEST_LENGTH, entry.length - DIGEST_LENGTH), getStoredDigest(entry))) {
+            // the class is generated again and replaces the entry
+            checksumMismatches.update(1);
+            misses.update(1);
+            log.warn("Removing generated class %s whose checksum does not match its bytecode", key);
+            remove(key);
+            return Optional.empty();
+        }
+
+        synchronized (this) {
+            // mark the entry as recently used
+            entrySizes.get(key);
+        }
+        try {
+            // keeps the order of use across restarts
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+        catch (IOException e) {
+            log.debug(e, "Failed to update the modification time of generated class %s", key);
+        }
+        hits.update(1);
+        byte[] bytecode = new byte[entry.length - DIGEST_LENGTH];
+        System.arraycopy(entry, DIGEST_LENGTH, bytecode, 0, bytecode.length);
+        return Optional.of(bytecode);
+    }
+
+    @Override
+    public void put(String key, byte[] bytecode)
+    {
+        if (!directory.isPresent()) {
+            return;
+        }
+
+        byte[] entry = new byte[DIGEST_LENGTH + bytecode.length];
+        System.arraycopy(getDigest(bytecode, 0, bytecode.length), 0, entry, 0, DIGEST_LENGTH);
+        System.arraycopy(bytecode, 0, entry, DIGEST_LENGTH, bytecode.length);
+
+        // written to a temporary file first, so that readers never see a partial class
+        Path temporaryFile = null;
+        try {
+            temporaryFile = Files.createTempFile(directory.get(), key, TEMPORARY_FILE_SUFFIX);
+            Files.write(temporaryFile, entry);
+            Files.move(temporaryFile, getPath(key), ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            failures.update(1);
+            log.warn(e, "Failed to write generated class %s", key);
+            if (temporaryFile != null) {
+                deleteQuietly(temporaryFile);
+            }
+            return;
+        }
+
+        List<String> evictedKeys;
+        synchronized (this) {
+            addEntry(key, entry.length);
+            evictedKeys = evictEntries();
+        }
+        evictedKeys.forEach(evictedKey -> deleteQuietly(getPath(evictedKey)));
+    }
+
+    private void remove(String key)
+    {
+        synchronized (this) {
+            Long entrySize = entrySizes.remove(key);
+            if (entrySize != null) {
+                sizeInBytes -= entrySize;
+            }
+        }
+        deleteQuietly(getPath(key));
+    }
+
+    @GuardedBy("this")
+    private void addEntry(String key, long entrySize)
+    {
+        Long previousSize = entrySizes.put(key, entrySize);
+        sizeInBytes += entrySize - (previousSize == null ? 0 : previousSize);
+    }
+
+    @GuardedBy("this")
+    private List<String> evictEntries()
+    {
+        List<String> evictedKeys = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> iterator = entrySizes.entrySet().iterator();
+        while (sizeInBytes > maxSizeInBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            sizeInBytes -= entry.getValue();
+            evictedKeys.add(entry.getKey());
+            iterator.remove();
+        }
+        evictions.update(evictedKeys.size());
+        return evictedKeys;
+    }
+
+    private void loadEntries(Path directory)
+    {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.collect(toImmutableList());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to list generated class cache directory: " + directory, e);
+        }
+
+        // the entries modified last are the most recently used ones
+        List<CachedFile> entries = new ArrayList<>();
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            if (fileName.endsWith(TEMPORARY_FILE_SUFFIX)) {
+                // left behind by a write which did not complete
+                deleteQuietly(file);
+            }
+            else if (fileName.endsWith(ENTRY_SUFFIX)) {
+                try {
+                    entries.add(new CachedFile(
+                            fileName.substring(0, fileName.length() - ENTRY_SUFFIX.length()),
+                            Files.size(file),
+                            Files.getLastModifiedTime(file).toMillis()));
+                }
+                catch (IOException e) {
+                    log.warn(e, "Failed to read the attributes of generated class file %s", file);
+                }
+            }
+        }
+        entries.sort(Comparator.comparingLong(CachedFile::getLastModifiedMillis));
+
+        List<String> evictedKeys;
+        synchronized (this) {
+            for (CachedFile entry : entries) {
+                addEntry(entry.getKey(), entry.getSize());
+            }
+            evictedKeys = evictEntries();
+        }
+        evictedKeys.forEach(evictedKey -> deleteQuietly(getPath(evictedKey)));
+    }
+
+    private static void deleteOtherVersions(Path rootDirectory, Path versionDirectory)
+    {
+        try (Stream<Path> stream = Files.list(rootDirectory)) {
+            List<Path> otherVersionDirectories = stream
+                    .filter(Files::isDirectory)
+                    .filter(path -> !path.equals(versionDirectory))
+                    .collect(toImmutableList());
+            for (Path otherVersionDirectory : otherVersionDirectories) {
+                log.info("Removing generated classes of another version in %s", otherVersionDirectory);
+                deleteRecursively(otherVersionDirectory, ALLOW_INSECURE);
+            }
+        }
+        catch (IOException e) {
+            log.warn(e, "Failed to remove generated classes of other versions in %s", rootDirectory);
+        }
+    }
+
+    private static byte[] getDigest(byte[] bytes, int offset, int length)
+    {
+        return sha256().hashBytes(bytes, offset, length).asBytes();
+    }
+
+    private static byte[] getStoredDigest(byte[] entry)
+    {
+        byte[] digest = new byte[DIGEST_LENGTH];
+        System.arraycopy(entry, 0, digest, 0, DIGEST_LENGTH);
+        return digest;
+    }
+
+    private static void deleteQuietly(Path file)
+    {
+        try {
+            Files.deleteIfExists(file);
+        }
+        catch (IOException e) {
+            log.warn(e, "Failed to delete generated class file %s", file);
+        }
+    }
+
+    private Path getPath(String key)
+    {
+        return directory.get().resolve(key + ENTRY_SUFFIX);
+    }
+
+    @Managed
+    public synchronized long getSizeInBytes()
+    {
+        return sizeInBytes;
+    }
+
+    @Managed
+    public synchronized long getEntryCount()
+    {
+        return entrySizes.size();
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getHits()
+    {
+        return hits;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getMisses()
+    {
+        return misses;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getFailures()
+    {
+        return failures;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getChecksumMismatches()
+    {
+        return checksumMismatches;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getEvictions()
+    {
+        return evictions;
+    }
+
+    private static class CachedFile
+    {
+        private final String key;
+        private final long size;
+        private final long lastModifiedMillis;
+
+        public CachedFile(String key, long size, long lastModifiedMillis)
+        {
+            this.key = requireNonNull(key, "key is null");
+            this.size = size;
+            this.lastModifiedMillis = lastModifiedMillis;
+        }
+
+        public String getKey()
+        {
+            return key;
+        }
+
+        public long getSize()
+        {
+            return size;
+        }
+
+        public long getLastModifiedMillis()
+        {
+            return lastModifiedMillis;
+        }
+    }
+}
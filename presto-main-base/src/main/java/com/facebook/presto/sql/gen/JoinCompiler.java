@@ -15,6 +15,7 @@ package com.facebook.presto.sql.gen;
 
 import com.facebook.presto.Session;
 import com.facebook.presto.bytecode.BytecodeBlock;
+import com.facebook.presto.bytecode.BytecodeCache;
 import com.facebook.presto.bytecode.BytecodeNode;
 import com.facebook.presto.bytecode.CallSiteBinder;
 import com.facebook.presto.bytecode.ClassDefinition;
@@ -63,6 +64,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.concurrent.Executor;
 import java.util.stream.IntStream;
 
 import static com.facebook.presto.bytecode.Access.FINAL;
@@ -91,6 +93,7 @@ import static java.util.Objects.requireNonNull;
 public class JoinCompiler
 {
     private final FunctionAndTypeManager functionAndTypeManager;
+    private final Optional<BytecodeCache> bytecodeCache;
 
     private final LoadingCache<CacheKey, LookupSourceSupplierFactory> lookupSourceFactories = CacheBuilder.newBuilder()
             .recordStats()
@@ -109,10 +112,16 @@ public class JoinCompiler
         return compileLookupSourceFactory(types, joinChannels, sortChannel, Optional.empty());
     }
 
-    @Inject
     public JoinCompiler(Metadata metadata)
+    {
+        this(metadata, GeneratedClassCache.disabled());
+    }
+
+    @Inject
+    public JoinCompiler(Metadata metadata, GeneratedClassCache generatedClassCache)
     {
         this.functionAndTypeManager = requireNonNull(metadata, "metadata is null").getFunctionAndTypeManager();
+        this.bytecodeCache = requireNonNull(generatedClassCache, "generatedClassCache is null").getBytecodeCache();
     }
 
     @Managed
@@ -235,7 +244,7 @@ public class JoinCompiler
         generateCompareSortChannelPositionsMethod(classDefinition, callSiteBinder, types, channelFields, sortChannel);
         generateIsSortChannelPositionNull(classDefinition, channelFields, sortChannel);
 
-        return defineClass(classDefinition, PagesHashStrategy.class, callSiteBinder.getBindings(), getClass().getClassLoader());
+        return defineClass(classDefinition, PagesHashStrategy.class, callSiteBinder.getBindings(), getClass().getClassLoader(), bytecodeCache);
     }
 
     private static void generateConstructor(ClassDefinition classDefinition,
@@ -891,7 +900,7 @@ public class JoinCompiler
         {
             this.pagesHashStrategyFactory = pagesHashStrategyFactory;
             try {
-                constructor = joinHashSupplierClass.getConstructor(Session.class, PagesHashStrategy.class, AdaptiveLongBigArray.class, int.class, List.class, Optional.class, Optional.class, List.class);
+                constructor = joinHashSupplierClass.getConstructor(Session.class, PagesHashStrategy.class, AdaptiveLongBigArray.class, int.class, List.class, Optional.class, Optional.class, List.class, Executor.class);
             }
             catch (NoSuchMethodException e) {
                 throw new RuntimeException(e);
@@ -906,11 +915,12 @@ public class JoinCompiler
                 OptionalInt hashChannel,
                 Optional<JoinFilterFunctionFactory> filterFunctionFactory,
                 Optional<Integer> sortChannel,
-                List<JoinFilterFunctionFactory> searchFunctionFactories)
+                List<JoinFilterFunctionFactory> searchFunctionFactories,
+                Executor hashBuildExecutor)
         {
             PagesHashStrategy pagesHashStrategy = pagesHashStrategyFactory.createPagesHashStrategy(channels, hashChannel);
             try {
-                return constructor.newInstance(session, pagesHashStrategy, addresses, positionCount, channels, filterFunctionFactory, sortChannel, searchFunctionFactories);
+                return constructor.newInstance(session, pagesHashStrategy, addresses, positionCount, channels, filterFunctionFactory, sortChannel, searchFunctionFactories, hashBuildExecutor);
             }
             catch (ReflectiveOperationException e) {
                 throw new RuntimeException(e);
@@ -15,6 +15,7 @@ package com.facebook.presto.sql.gen;
 
 import com.facebook.airlift.log.Logger;
 import com.facebook.presto.bytecode.BytecodeBlock;
+import com.facebook.presto.bytecode.BytecodeCache;
 import com.facebook.presto.bytecode.CallSiteBinder;
 import com.facebook.presto.bytecode.ClassDefinition;
 import com.facebook.presto.bytecode.MethodDefinition;
@@ -28,6 +29,7 @@ import com.facebook.presto.common.array.AdaptiveLongBigArray;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.SortOrder;
 import com.facebook.presto.common.type.Type;
+import com.facebook.presto.operator.NormalizedKeyEncoder;
 import com.facebook.presto.operator.PageWithPositionComparator;
 import com.facebook.presto.operator.PagesIndex;
 import com.facebook.presto.operator.PagesIndexComparator;
@@ -41,11 +43,13 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import jakarta.inject.Inject;
 import org.weakref.jmx.Managed;
 import org.weakref.jmx.Nested;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 import static com.facebook.presto.bytecode.Access.FINAL;
 import static com.facebook.presto.bytecode.Access.PUBLIC;
@@ -64,6 +68,8 @@ public class OrderingCompiler
 {
     private static final Logger log = Logger.get(OrderingCompiler.class);
 
+    private final Optional<BytecodeCache> bytecodeCache;
+
     private final LoadingCache<PagesIndexComparatorCacheKey, PagesIndexOrdering> pagesIndexOrderings = CacheBuilder.newBuilder()
             .recordStats()
             .maximumSize(1000)
@@ -74,6 +80,17 @@ public class OrderingCompiler
             .maximumSize(1000)
             .build(CacheLoader.from(key -> internalCompilePageWithPositionComparator(key.getSortTypes(), key.getSortChannels(), key.getSortOrders())));
 
+    public OrderingCompiler()
+    {
+        this(GeneratedClassCache.disabled());
+    }
+
+    @Inject
+    public OrderingCompiler(GeneratedClassCache generatedClassCache)
+    {
+        this.bytecodeCache = requireNonNull(generatedClassCache, "generatedClassCache is null").getBytecodeCache();
+    }
+
     @Managed
     @Nested
     public CacheStatsMBean getPagesIndexOrderingsStats()
@@ -114,7 +131,10 @@ public class OrderingCompiler
         }
 
         // we may want to load a separate PagesIndexOrdering for each comparator
-        return new PagesIndexOrdering(comparator);
+        Optional<NormalizedKeyEncoder> normalizedKeyEncoder = sortChannels.isEmpty()
+                ? Optional.empty()
+                : NormalizedKeyEncoder.create(sortTypes.get(0), sortChannels.get(0), sortOrders.get(0));
+        return new PagesIndexOrdering(comparator, normalizedKeyEncoder);
     }
 
     private Class<? extends PagesIndexComparator> compilePagesIndexComparator(
@@ -133,7 +153,7 @@ public class OrderingCompiler
         classDefinition.declareDefaultConstructor(a(PUBLIC));
         generatePageIndexCompareTo(classDefinition, callSiteBinder, sortTypes, sortChannels, sortOrders);
 
-        return defineClass(classDefinition, PagesIndexComparator.class, callSiteBinder.getBindings(), getClass().getClassLoader());
+        return defineClass(classDefinition, PagesIndexComparator.class, callSiteBinder.getBindings(), getClass().getClassLoader(), bytecodeCache);
     }
 
     private static void generatePageIndexCompareTo(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, List<Type> sortTypes, List<Integer> sortChannels, List<SortOrder> sortOrders)
@@ -269,7 +289,7 @@ public class OrderingCompiler
 
         generateMergeSortCompareTo(classDefinition, callSiteBinder, sortTypes, sortChannels, sortOrders);
 
-        return defineClass(classDefinition, PageWithPositionComparator.class, callSiteBinder.getBindings(), getClass().getClassLoader());
+        return defineClass(classDefinition, PageWithPositionComparator.class, callSiteBinder.getBindings(), getClass().getClassLoader(), bytecodeCache);
     }
 
     private void generateMergeSortCompareTo(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, List<Type> types, List<Integer> sortChannels, List<SortOrder> sortOrders)
@@ -14,7 +14,10 @@
 package com.facebook.presto.sql.gen;
 
 import com.facebook.airlift.log.Logger;
+import com.facebook.airlift.stats.CounterStat;
+import com.facebook.airlift.stats.TimeStat;
 import com.facebook.presto.bytecode.BytecodeBlock;
+import com.facebook.presto.bytecode.BytecodeCache;
 import com.facebook.presto.bytecode.BytecodeNode;
 import com.facebook.presto.bytecode.CallSiteBinder;
 import com.facebook.presto.bytecode.ClassDefinition;
@@ -36,11 +39,16 @@ import com.facebook.presto.operator.project.ConstantPageProjection;
 import com.facebook.presto.operator.project.GeneratedPageProjection;
 import com.facebook.presto.operator.project.InputChannels;
 import com.facebook.presto.operator.project.InputPageProjection;
+import com.facebook.presto.operator.project.InterpretedPageFilter;
+import com.facebook.presto.operator.project.InterpretedPageProjection;
+import com.facebook.presto.operator.project.InterpretedRowExpression;
 import com.facebook.presto.operator.project.PageFieldsToInputParametersRewriter;
 import com.facebook.presto.operator.project.PageFilter;
 import com.facebook.presto.operator.project.PageProjection;
 import com.facebook.presto.operator.project.PageProjectionWithOutputs;
 import com.facebook.presto.operator.project.SelectedPositions;
+import com.facebook.presto.operator.project.TieredPageFilter;
+import com.facebook.presto.operator.project.TieredPageProjection;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.function.SqlFunctionId;
 import com.facebook.presto.spi.function.SqlInvokedFunction;
@@ -64,8 +72,11 @@ import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.primitives.Primitives;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
 import jakarta.inject.Inject;
 import org.weakref.jmx.Managed;
 import org.weakref.jmx.Nested;
@@ -78,10 +89,14 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.facebook.presto.bytecode.Access.FINAL;
 import static com.facebook.presto.bytecode.Access.PRIVATE;
 import static com.facebook.presto.bytecode.Access.PUBLIC;
@@ -98,6 +113,7 @@ import static com.facebook.presto.bytecode.expression.BytecodeExpressions.invoke
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.lessThan;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.newArray;
 import static com.facebook.presto.bytecode.expression.BytecodeExpressions.not;
+import static com.facebook.presto.operator.project.InterpretedRowExpression.isSupported;
 import static com.facebook.presto.operator.project.PageFieldsToInputParametersRewriter.rewritePageFieldsToInputParameters;
 import static com.facebook.presto.spi.StandardErrorCode.COMPILER_ERROR;
 import static com.facebook.presto.sql.gen.BytecodeUtils.boxPrimitiveIfNecessary;
@@ -122,6 +138,7 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static java.util.Collections.emptyMap;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 
 public class PageFunctionCompiler
 {
@@ -140,15 +157,59 @@ public class PageFunctionCompiler
     private final CacheStatsMBean projectionCacheStats;
     private final CacheStatsMBean filterCacheStats;
 
+    private final Optional<BytecodeCache> bytecodeCache;
+
+    // compiles cache misses in the background when tiered compilation is enabled, null otherwise
+    @Nullable
+    private final ExecutorService backgroundCompilationExecutor;
+    private final ConcurrentMap<CacheKey, SettableFuture<Supplier<PageProjection>>> pendingProjectionCompilations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<CacheKey, SettableFuture<Supplier<PageFilter>>> pendingFilterCompilations = new ConcurrentHashMap<>();
+
+    private final TimeStat backgroundCompilationTime = new TimeStat();
+    private final CounterStat backgroundCompilationFailures = new CounterStat();
+    private final CounterStat interpretedToCompiledSwaps = new CounterStat();
+
     @Inject
+    public PageFunctionCompiler(Metadata metadata, CompilerConfig config, GeneratedClassCache generatedClassCache)
+    {
+        this(
+                metadata,
+                requireNonNull(config, "config is null").getExpressionCacheSize(),
+                config.isTieredCompilationEnabled(),
+                config.getBackgroundCompilationThreads(),
+                generatedClassCache);
+    }
+
     public PageFunctionCompiler(Metadata metadata, CompilerConfig config)
     {
-        this(metadata, requireNonNull(config, "config is null").getExpressionCacheSize());
+        this(metadata, config, GeneratedClassCache.disabled());
     }
 
     public PageFunctionCompiler(Metadata metadata, int expressionCacheSize)
+    {
+        this(metadata, expressionCacheSize, false, 1);
+    }
+
+    public PageFunctionCompiler(Metadata metadata, int expressionCacheSize, boolean tieredCompilationEnabled, int backgroundCompilationThreads)
+    {
+        this(metadata, expressionCacheSize, tieredCompilationEnabled, backgroundCompilationThreads, GeneratedClassCache.disabled());
+    }
+
+    /**
+     * With tiered compilation, projections and filters missing from the expression cache are
+     * compiled on a background thread and evaluated by an interpreter until the compiled
+     * version is ready, so that short queries do not wait for bytecode generation.
+     * Tiered compilation requires the expression cache.
+     */
+    public PageFunctionCompiler(
+            Metadata metadata,
+            int expressionCacheSize,
+            boolean tieredCompilationEnabled,
+            int backgroundCompilationThreads,
+            GeneratedClassCache generatedClassCache)
     {
         this.metadata = requireNonNull(metadata, "metadata is null");
+        this.bytecodeCache = requireNonNull(generatedClassCache, "generatedClassCache is null").getBytecodeCache();
         this.determinismEvaluator = new RowExpressionDeterminismEvaluator(metadata.getFunctionAndTypeManager());
 
         if (expressionCacheSize > 0) {
@@ -174,6 +235,22 @@ public class PageFunctionCompiler
             filterCache = null;
             filterCacheStats = null;
         }
+
+        if (tieredCompilationEnabled && expressionCacheSize > 0) {
+            checkArgument(backgroundCompilationThreads > 0, "backgroundCompilationThreads must be positive");
+            backgroundCompilationExecutor = newFixedThreadPool(backgroundCompilationThreads, daemonThreadsNamed("page-function-compiler-%s"));
+        }
+        else {
+            backgroundCompilationExecutor = null;
+        }
+    }
+
+    @PreDestroy
+    public void destroy()
+    {
+        if (backgroundCompilationExecutor != null) {
+            backgroundCompilationExecutor.shutdownNow();
+        }
     }
 
     @Nullable
@@ -192,6 +269,27 @@ public class PageFunctionCompiler
         return filterCacheStats;
     }
 
+    @Managed
+    @Nested
+    public TimeStat getBackgroundCompilationTime()
+    {
+        return backgroundCompilationTime;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getBackgroundCompilationFailures()
+    {
+        return backgroundCompilationFailures;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getInterpretedToCompiledSwaps()
+    {
+        return interpretedToCompiledSwaps;
+    }
+
     public List<Supplier<PageProjectionWithOutputs>> compileProjections(
             SqlFunctionProperties sqlFunctionProperties,
             Map<SqlFunctionId, SqlInvokedFunction> sessionFunctions,
@@ -292,8 +390,12 @@ public class PageFunctionCompiler
         if (projectionCache == null) {
             return compileProjectionInternal(sqlFunctionProperties, sessionFunctions, projections, isOptimizeCommonSubExpression, classNameSuffix);
         }
+        CacheKey cacheKey = new CacheKey(sqlFunctionProperties, sessionFunctions, projections, isOptimizeCommonSubExpression);
+        if (backgroundCompilationExecutor != null && projectionCache.getIfPresent(cacheKey) == null && allSupportedByInterpreter(projections)) {
+            return interpretProjectionWhileCompiling(cacheKey);
+        }
         try {
-            return projectionCache.getUnchecked(new CacheKey(sqlFunctionProperties, sessionFunctions, projections, isOptimizeCommonSubExpression));
+            return projectionCache.getUnchecked(cacheKey);
         }
         catch (UncheckedExecutionException e) {
             throwIfInstanceOf(e.getCause(), PrestoException.class);
@@ -301,6 +403,71 @@ public class PageFunctionCompiler
         }
     }
 
+    private Supplier<PageProjection> interpretProjectionWhileCompiling(CacheKey cacheKey)
+    {
+        ListenableFuture<Supplier<PageProjection>> compiledProjection = compileInBackground(projectionCache, pendingProjectionCompilations, cacheKey);
+
+        PageFieldsToInputParametersRewriter.Result result = rewritePageFieldsToInputParameters(cacheKey.rowExpressions);
+        List<RowExpression> rewrittenExpressions = result.getRewrittenExpressions();
+        List<InterpretedRowExpression> interpretedExpressions = rewrittenExpressions.stream()
+                .map(expression -> new InterpretedRowExpression(expression, metadata.getFunctionAndTypeManager()))
+                .collect(toImmutableList());
+        boolean isDeterministic = rewrittenExpressions.stream().allMatch(determinismEvaluator::isDeterministic);
+
+        return () -> new TieredPageProjection(
+                new InterpretedPageProjection(interpretedExpressions, isDeterministic, result.getInputChannels()),
+                compiledProjection,
+                () -> interpretedToCompiledSwaps.update(1));
+    }
+
+    private Supplier<PageFilter> interpretFilterWhileCompiling(CacheKey cacheKey)
+    {
+        ListenableFuture<Supplier<PageFilter>> compiledFilter = compileInBackground(filterCache, pendingFilterCompilations, cacheKey);
+
+        PageFieldsToInputParametersRewriter.Result result = rewritePageFieldsToInputParameters(cacheKey.rowExpressions.get(0));
+        RowExpression rewrittenExpression = result.getRewrittenExpression();
+        InterpretedRowExpression interpretedExpression = new InterpretedRowExpression(rewrittenExpression, metadata.getFunctionAndTypeManager());
+        boolean isDeterministic = determinismEvaluator.isDeterministic(rewrittenExpression);
+
+        return () -> new TieredPageFilter(
+                new InterpretedPageFilter(interpretedExpression, isDeterministic, result.getInputChannels()),
+                compiledFilter,
+                () -> interpretedToCompiledSwaps.update(1));
+    }
+
+    private boolean allSupportedByInterpreter(List<RowExpression> expressions)
+    {
+        return expressions.stream().allMatch(expression -> isSupported(expression, metadata.getFunctionAndTypeManager()));
+    }
+
+    // the compiled function is put in the cache, so that it is used directly once compiled
+    private <T> ListenableFuture<Supplier<T>> compileInBackground(
+            LoadingCache<CacheKey, Supplier<T>> cache,
+            ConcurrentMap<CacheKey, SettableFuture<Supplier<T>>> pendingCompilations,
+            CacheKey cacheKey)
+    {
+        SettableFuture<Supplier<T>> compiled = SettableFuture.create();
+        SettableFuture<Supplier<T>> pending = pendingCompilations.putIfAbsent(cacheKey, compiled);
+        if (pending != null) {
+            return pending;
+        }
+
+        backgroundCompilationExecutor.execute(() -> {
+            try (TimeStat.BlockTimer ignored = backgroundCompilationTime.time()) {
+                compiled.set(cache.getUnchecked(cacheKey));
+            }
+            catch (RuntimeException e) {
+                backgroundCompilationFailures.update(1);
+                log.warn(e, "Background compilation failed, expressions will remain interpreted: %s", cacheKey.rowExpressions);
+                compiled.setException(e);
+            }
+            finally {
+                pendingCompilations.remove(cacheKey, compiled);
+            }
+        });
+        return compiled;
+    }
+
     private Supplier<PageProjectionWithOutputs> toPageProjectionWithOutputs(Supplier<PageProjection> pageProjection, int[] outputChannels)
     {
         return () -> new PageProjectionWithOutputs(pageProjection.get(), outputChannels);
@@ -332,7 +499,7 @@ public class PageFunctionCompiler
 
         Class<? extends Work> pageProjectionWorkClass;
         try {
-            pageProjectionWorkClass = defineClass(pageProjectionWorkDefinition, Work.class, callSiteBinder.getBindings(), getClass().getClassLoader());
+            pageProjectionWorkClass = defineClass(pageProjectionWorkDefinition, Work.class, callSiteBinder.getBindings(), getClass().getClassLoader(), bytecodeCache);
         }
         catch (PrestoException prestoException) {
             throw prestoException;
@@ -654,8 +821,12 @@ public class PageFunctionCompiler
         if (filterCache == null) {
             return compileFilterInternal(sqlFunctionProperties, sessionFunctions, filter, isOptimizeCommonSubExpression, classNameSuffix);
         }
+        CacheKey cacheKey = new CacheKey(sqlFunctionProperties, sessionFunctions, ImmutableList.of(filter), isOptimizeCommonSubExpression);
+        if (backgroundCompilationExecutor != null && filterCache.getIfPresent(cacheKey) == null && allSupportedByInterpreter(cacheKey.rowExpressions)) {
+            return interpretFilterWhileCompiling(cacheKey);
+        }
         try {
-            return filterCache.getUnchecked(new CacheKey(sqlFunctionProperties, sessionFunctions, ImmutableList.of(filter), isOptimizeCommonSubExpression));
+            return filterCache.getUnchecked(cacheKey);
         }
         catch (UncheckedExecutionException e) {
             throwIfInstanceOf(e.getCause(), PrestoException.class);
@@ -686,7 +857,7 @@ public class PageFunctionCompiler
 
         Class<? extends PageFilter> functionClass;
         try {
-            functionClass = defineClass(classDefinition, PageFilter.class, callSiteBinder.getBindings(), getClass().getClassLoader());
+            functionClass = defineClass(classDefinition, PageFilter.class, callSiteBinder.getBindings(), getClass().getClassLoader(), bytecodeCache);
         }
         catch (PrestoException prestoException) {
             throw prestoException;
@@ -16,8 +16,14 @@ package com.facebook.presto.sql.planner;
 import com.facebook.airlift.configuration.Config;
 import com.facebook.airlift.configuration.ConfigDescription;
 import com.facebook.airlift.configuration.DefunctConfig;
+import com.facebook.airlift.units.DataSize;
 import com.facebook.presto.spi.function.Description;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import java.io.File;
+
+import static com.facebook.airlift.units.DataSize.Unit.GIGABYTE;
 
 @DefunctConfig("compiler.interpreter-enabled")
 public class CompilerConfig
@@ -25,6 +31,10 @@ public class CompilerConfig
     private int expressionCacheSize = 10_000;
     private int leafNodeLimit = 10_000;
     private boolean leafNodeLimitEnabled;
+    private boolean tieredCompilationEnabled;
+    private int backgroundCompilationThreads = 2;
+    private File generatedClassCacheDirectory;
+    private DataSize generatedClassCacheMaxSize = new DataSize(1, GIGABYTE);
 
     @Min(0)
     public int getExpressionCacheSize()
@@ -65,4 +75,58 @@ public class CompilerConfig
         this.leafNodeLimitEnabled = enabled;
         return this;
     }
+
+    public boolean isTieredCompilationEnabled()
+    {
+        return tieredCompilationEnabled;
+    }
+
+    @Config("compiler.tiered-compilation-enabled")
+    @ConfigDescription("Evaluate page projections and filters with an interpreter until their bytecode is compiled in the background")
+    public CompilerConfig setTieredCompilationEnabled(boolean tieredCompilationEnabled)
+    {
+        this.tieredCompilationEnabled = tieredCompilationEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getBackgroundCompilationThreads()
+    {
+        return backgroundCompilationThreads;
+    }
+
+    @Config("compiler.background-compilation-threads")
+    @ConfigDescription("Number of threads compiling page projections and filters in the background when tiered compilation is enabled")
+    public CompilerConfig setBackgroundCompilationThreads(int backgroundCompilationThreads)
+    {
+        this.backgroundCompilationThreads = backgroundCompilationThreads;
+        return this;
+    }
+
+    public File getGeneratedClassCacheDirectory()
+    {
+        return generatedClassCacheDirectory;
+    }
+
+    @Config("compiler.generated-class-cache-dir")
+    @ConfigDescription("Local directory to persist the bytecode of generated classes in across restarts, or unset to disable")
+    public CompilerConfig setGeneratedClassCacheDirectory(File generatedClassCacheDirectory)
+    {
+        this.generatedClassCacheDirectory = generatedClassCacheDirectory;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getGeneratedClassCacheMaxSize()
+    {
+        return generatedClassCacheMaxSize;
+    }
+
+    @Config("compiler.generated-class-cache-max-size")
+    @ConfigDescription("Maximum size of the generated class cache directory, the least recently used classes are removed beyond it")
+    public CompilerConfig setGeneratedClassCacheMaxSize(DataSize generatedClassCacheMaxSize)
+    {
+        this.generatedClassCacheMaxSize = generatedClassCacheMaxSize;
+        return this;
+    }
 }
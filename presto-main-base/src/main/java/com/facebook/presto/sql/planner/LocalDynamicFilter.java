@@ -14,7 +14,9 @@
 package com.facebook.presto.sql.planner;
 
 import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.common.predicate.Range;
 import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.predicate.ValueBloomFilter;
 import com.facebook.presto.expressions.DynamicFilters.DynamicFilterExtractResult;
 import com.facebook.presto.expressions.DynamicFilters.DynamicFilterPlaceholder;
 import com.facebook.presto.spi.plan.AbstractJoinNode;
@@ -35,6 +37,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
 
+import static com.facebook.presto.common.function.OperatorType.EQUAL;
 import static com.facebook.presto.expressions.DynamicFilters.extractDynamicFilters;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Verify.verify;
@@ -57,7 +60,17 @@ public class LocalDynamicFilter
     // The resulting predicates from each build-side partition.
     private final List<TupleDomain<String>> partitions;
 
+    private final boolean bloomFiltersEnabled;
+    private final SettableFuture<Map<VariableReferenceExpression, ValueBloomFilter>> bloomFiltersFuture;
+    // The Bloom filters from each build-side partition, only present for the filters which exceeded the exact predicate limits.
+    private final List<Map<String, ValueBloomFilter>> bloomFilterPartitions;
+
     public LocalDynamicFilter(Multimap<String, DynamicFilterPlaceholder> probeVariables, Map<String, Integer> buildChannels, int partitionCount)
+    {
+        this(probeVariables, buildChannels, partitionCount, false);
+    }
+
+    public LocalDynamicFilter(Multimap<String, DynamicFilterPlaceholder> probeVariables, Map<String, Integer> buildChannels, int partitionCount, boolean bloomFiltersEnabled)
     {
         this.probeVariables = requireNonNull(probeVariables, "probeVariables is null");
         this.buildChannels = requireNonNull(buildChannels, "buildChannels is null");
@@ -67,6 +80,13 @@ public class LocalDynamicFilter
 
         this.partitionCount = partitionCount;
         this.partitions = new ArrayList<>(partitionCount);
+
+        this.bloomFiltersEnabled = bloomFiltersEnabled;
+        this.bloomFiltersFuture = SettableFuture.create();
+        this.bloomFilterPartitions = new ArrayList<>(partitionCount);
+        if (!bloomFiltersEnabled) {
+            bloomFiltersFuture.set(ImmutableMap.of());
+        }
     }
 
     private synchronized void addPartition(TupleDomain<String> tupleDomain)
@@ -80,7 +100,82 @@ public class LocalDynamicFilter
             // No more partitions are left to be processed.
             TupleDomain<VariableReferenceExpression> result = convertTupleDomain(TupleDomain.columnWiseUnion(partitions));
             verify(resultFuture.set(result), "dynamic filter result is provided more than once");
+            setBloomFiltersIfComplete();
+        }
+    }
+
+    private synchronized void addBloomFilterPartition(Map<String, ValueBloomFilter> bloomFilters)
+    {
+        // Called concurrently by each DynamicFilterSourceOperator instance when it finishes.
+        verify(bloomFiltersEnabled, "Bloom filters are not enabled");
+        verify(bloomFilterPartitions.size() < partitionCount);
+        bloomFilterPartitions.add(bloomFilters);
+        setBloomFiltersIfComplete();
+    }
+
+    private void setBloomFiltersIfComplete()
+    {
+        if (!bloomFiltersEnabled || partitions.size() < partitionCount || bloomFilterPartitions.size() < partitionCount) {
+            return;
+        }
+
+        ImmutableMap.Builder<VariableReferenceExpression, ValueBloomFilter> builder = ImmutableMap.builder();
+        for (String filterId : buildChannels.keySet()) {
+            mergeBloomFilters(filterId).ifPresent(bloomFilter -> {
+                // Bloom filters can only be used for equality, other comparisons need a range
+                for (DynamicFilterPlaceholder placeholder : probeVariables.get(filterId)) {
+                    if (placeholder.getOperator() == EQUAL) {
+                        builder.put((VariableReferenceExpression) placeholder.getInput(), bloomFilter);
+                    }
+                }
+            });
+        }
+        verify(bloomFiltersFuture.set(builder.build()), "dynamic filter Bloom filters are provided more than once");
+    }
+
+    /**
+     * Combines the Bloom filters of the partitions which exceeded the exact predicate limits with the exact values of the others.
+     * The Bloom filter is dropped when a partition has neither, e.g. because the type is not supported or the filter was saturated.
+     */
+    private Optional<ValueBloomFilter> mergeBloomFilters(String filterId)
+    {
+        List<ValueBloomFilter> bloomFilters = new ArrayList<>();
+        for (Map<String, ValueBloomFilter> bloomFilterPartition : bloomFilterPartitions) {
+            ValueBloomFilter bloomFilter = bloomFilterPartition.get(filterId);
+            if (bloomFilter != null) {
+                bloomFilters.add(bloomFilter);
+            }
         }
+        if (bloomFilters.isEmpty()) {
+            // either all partitions provided exact values or none of them provided a Bloom filter
+            return Optional.empty();
+        }
+
+        ValueBloomFilter result = bloomFilters.get(0);
+        bloomFilters.stream().skip(1).forEach(result::merge);
+
+        int exactPartitions = 0;
+        for (TupleDomain<String> partition : partitions) {
+            if (partition.isNone()) {
+                exactPartitions++;
+                continue;
+            }
+            Domain domain = partition.getDomains().get().get(filterId);
+            if (domain == null) {
+                continue;
+            }
+            // Bloom filters are only created for orderable types
+            List<Range> ranges = domain.getValues().getRanges().getOrderedRanges();
+            if (!ranges.stream().allMatch(Range::isSingleValue)) {
+                continue;
+            }
+            ranges.forEach(range -> result.addValue(range.getSingleValue()));
+            exactPartitions++;
+        }
+        if (exactPartitions + bloomFilters.size() != partitionCount) {
+            return Optional.empty();
+        }
+        return Optional.of(result);
     }
 
     private TupleDomain<VariableReferenceExpression> convertTupleDomain(TupleDomain<String> result)
@@ -103,6 +198,11 @@ public class LocalDynamicFilter
     }
 
     public static Optional<LocalDynamicFilter> create(AbstractJoinNode planNode, int partitionCount)
+    {
+        return create(planNode, partitionCount, false);
+    }
+
+    public static Optional<LocalDynamicFilter> create(AbstractJoinNode planNode, int partitionCount, boolean bloomFiltersEnabled)
     {
         Set<String> joinDynamicFilters = planNode.getDynamicFilters().keySet();
         List<FilterNode> filterNodes = PlanNodeSearcher
@@ -143,7 +243,7 @@ public class LocalDynamicFilter
         if (buildChannels.isEmpty()) {
             return Optional.empty();
         }
-        return Optional.of(new LocalDynamicFilter(probeVariables, buildChannels, partitionCount));
+        return Optional.of(new LocalDynamicFilter(probeVariables, buildChannels, partitionCount, bloomFiltersEnabled));
     }
 
     public Map<String, Integer> getBuildChannels()
@@ -161,6 +261,25 @@ public class LocalDynamicFilter
         return this::addPartition;
     }
 
+    public boolean isBloomFiltersEnabled()
+    {
+        return bloomFiltersEnabled;
+    }
+
+    /**
+     * Bloom filters for the probe variables whose build-side values were too many to be collected exactly.
+     * Completes with an empty map if Bloom filters are not enabled.
+     */
+    public ListenableFuture<Map<VariableReferenceExpression, ValueBloomFilter>> getBloomFiltersFuture()
+    {
+        return bloomFiltersFuture;
+    }
+
+    public Consumer<Map<String, ValueBloomFilter>> getBloomFilterConsumer()
+    {
+        return this::addBloomFilterPartition;
+    }
+
     @Override
     public String toString()
     {
@@ -121,12 +121,20 @@ public class NodePartitioningManager
     }
 
     public NodePartitionMap getNodePartitioningMap(Session session, PartitioningHandle partitioningHandle, Optional<Predicate<Node>> nodePredicate)
+    {
+        return getNodePartitioningMap(session, partitioningHandle, nodePredicate, getMaxTasksPerStage(session));
+    }
+
+    /**
+     * @param maxTasksPerStage the maximum number of nodes for partitionings without node affinity
+     */
+    public NodePartitionMap getNodePartitioningMap(Session session, PartitioningHandle partitioningHandle, Optional<Predicate<Node>> nodePredicate, int maxTasksPerStage)
     {
         requireNonNull(session, "session is null");
         requireNonNull(partitioningHandle, "partitioningHandle is null");
 
         if (partitioningHandle.getConnectorHandle() instanceof SystemPartitioningHandle) {
-            return ((SystemPartitioningHandle) partitioningHandle.getConnectorHandle()).getNodePartitionMap(session, nodeScheduler, nodePredicate);
+            return ((SystemPartitioningHandle) partitioningHandle.getConnectorHandle()).getNodePartitionMap(session, nodeScheduler, nodePredicate, maxTasksPerStage);
         }
 
         ConnectorId connectorId = partitioningHandle.getConnectorId()
@@ -149,7 +157,7 @@ public class NodePartitioningManager
                 break;
             case NO_PREFERENCE:
                 bucketToNode = createArbitraryBucketToNode(
-                        nodeScheduler.createNodeSelector(session, connectorId).selectRandomNodes(getMaxTasksPerStage(session)),
+                        nodeScheduler.createNodeSelector(session, connectorId).selectRandomNodes(maxTasksPerStage),
                         connectorBucketNodeMap.getBucketCount());
                 cacheable = false;
                 break;
@@ -178,6 +186,11 @@ public class NodePartitioningManager
     }
 
     public BucketNodeMap getBucketNodeMap(Session session, PartitioningHandle partitioningHandle, boolean preferDynamic)
+    {
+        return getBucketNodeMap(session, partitioningHandle, preferDynamic, getMaxTasksPerStage(session));
+    }
+
+    public BucketNodeMap getBucketNodeMap(Session session, PartitioningHandle partitioningHandle, boolean preferDynamic, int maxTasksPerStage)
     {
         ConnectorBucketNodeMap connectorBucketNodeMap = getConnectorBucketNodeMap(session, partitioningHandle, Optional.empty());
 
@@ -197,7 +210,7 @@ public class NodePartitioningManager
                 return new FixedBucketNodeMap(
                         getSplitToBucket(session, partitioningHandle),
                         createArbitraryBucketToNode(
-                                nodeScheduler.createNodeSelector(session, partitioningHandle.getConnectorId().get()).selectRandomNodes(getMaxTasksPerStage(session)),
+                                nodeScheduler.createNodeSelector(session, partitioningHandle.getConnectorId().get()).selectRandomNodes(maxTasksPerStage),
                                 connectorBucketNodeMap.getBucketCount()),
                         false);
             default:
@@ -32,6 +32,7 @@ import com.facebook.presto.sql.planner.iterative.properties.LogicalPropertiesPro
 import com.facebook.presto.sql.planner.iterative.rule.AddDistinctForSemiJoinBuild;
 import com.facebook.presto.sql.planner.iterative.rule.AddExchangesBelowPartialAggregationOverGroupIdRuleSet;
 import com.facebook.presto.sql.planner.iterative.rule.AddIntermediateAggregations;
+import com.facebook.presto.sql.planner.iterative.rule.AddLocalIntermediateAggregations;
 import com.facebook.presto.sql.planner.iterative.rule.AddNotNullFiltersToJoinNode;
 import com.facebook.presto.sql.planner.iterative.rule.CombineApproxDistinctFunctions;
 import com.facebook.presto.sql.planner.iterative.rule.CombineApproxPercentileFunctions;
@@ -1135,6 +1136,7 @@ public class PlanOptimizers
                 costCalculator,
                 ImmutableSet.of(
                         new AddIntermediateAggregations(),
+                        new AddLocalIntermediateAggregations(),
                         new RemoveRedundantIdentityProjections())));
 
         builder.add(
@@ -174,6 +174,11 @@ public final class SystemPartitioningHandle
     }
 
     public NodePartitionMap getNodePartitionMap(Session session, NodeScheduler nodeScheduler, Optional<Predicate<Node>> nodePredicate)
+    {
+        return getNodePartitionMap(session, nodeScheduler, nodePredicate, getMaxTasksPerStage(session));
+    }
+
+    public NodePartitionMap getNodePartitionMap(Session session, NodeScheduler nodeScheduler, Optional<Predicate<Node>> nodePredicate, int maxTasksPerStage)
     {
         NodeSelector nodeSelector = nodeScheduler.createNodeSelector(session, null, nodePredicate);
         List<InternalNode> nodes;
@@ -185,10 +190,10 @@ public final class SystemPartitioningHandle
         }
         else if (partitioning == SystemPartitioning.FIXED) {
             if (!partitionCount.isPresent()) {
-                nodes = nodeSelector.selectRandomNodes(min(getHashPartitionCount(session), getMaxTasksPerStage(session)));
+                nodes = nodeSelector.selectRandomNodes(min(getHashPartitionCount(session), maxTasksPerStage));
             }
             else {
-                nodes = nodeSelector.selectRandomNodes(min(partitionCount.get(), min(getHashPartitionCount(session), getMaxTasksPerStage(session))));
+                nodes = nodeSelector.selectRandomNodes(min(partitionCount.get(), min(getHashPartitionCount(session), maxTasksPerStage)));
             }
         }
         else {
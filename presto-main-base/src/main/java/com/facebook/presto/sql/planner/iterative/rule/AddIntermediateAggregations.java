@@ -206,7 +206,7 @@ public class AddIntermediateAggregations
      * Example:
      * 'a' := sum('b') => 'b' := sum('b')
      */
-    private static Map<VariableReferenceExpression, Aggregation> inputsAsOutputs(Map<VariableReferenceExpression, Aggregation> assignments, TypeProvider types)
+    static Map<VariableReferenceExpression, Aggregation> inputsAsOutputs(Map<VariableReferenceExpression, Aggregation> assignments, TypeProvider types)
     {
         ImmutableMap.Builder<VariableReferenceExpression, Aggregation> builder = ImmutableMap.builder();
         for (Map.Entry<VariableReferenceExpression, Aggregation> entry : assignments.entrySet()) {
@@ -0,0 +1,166 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner.iterative.rule;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.matching.Captures;
+import com.facebook.presto.matching.Pattern;
+import com.facebook.presto.spi.plan.AggregationNode;
+import com.facebook.presto.spi.plan.AggregationNode.Aggregation;
+import com.facebook.presto.spi.plan.PartitioningScheme;
+import com.facebook.presto.spi.plan.PlanNode;
+import com.facebook.presto.spi.relation.VariableReferenceExpression;
+import com.facebook.presto.sql.planner.TypeProvider;
+import com.facebook.presto.sql.planner.iterative.Rule;
+import com.facebook.presto.sql.planner.plan.ExchangeNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Map;
+import java.util.Set;
+
+import static com.facebook.presto.SystemSessionProperties.getLocalIntermediateAggregationsMaxGroups;
+import static com.facebook.presto.SystemSessionProperties.getTaskConcurrency;
+import static com.facebook.presto.SystemSessionProperties.isEnableLocalIntermediateAggregations;
+import static com.facebook.presto.spi.plan.AggregationNode.Step.FINAL;
+import static com.facebook.presto.spi.plan.AggregationNode.Step.INTERMEDIATE;
+import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_HASH_DISTRIBUTION;
+import static com.facebook.presto.sql.planner.iterative.rule.AddIntermediateAggregations.inputsAsOutputs;
+import static com.facebook.presto.sql.planner.plan.ExchangeNode.Scope.LOCAL;
+import static com.facebook.presto.sql.planner.plan.ExchangeNode.Type.REPARTITION;
+import static com.facebook.presto.sql.planner.plan.ExchangeNode.partitionedExchange;
+import static com.facebook.presto.sql.planner.plan.ExchangeNode.roundRobinExchange;
+import static com.facebook.presto.sql.planner.plan.Patterns.Aggregation.step;
+import static com.facebook.presto.sql.planner.plan.Patterns.aggregation;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static java.lang.Double.isNaN;
+
+/**
+ * Adds a local INTERMEDIATE aggregation below the local exchange that partitions the input
+ * of a grouped FINAL aggregation, when the number of groups is estimated to be low.
+ * <p>
+ * From:
+ * <pre>
+ * - Aggregation (FINAL)
+ *   - LocalExchange (HASH)
+ *     - source
+ * </pre>
+ * To:
+ * <pre>
+ * - Aggregation (FINAL)
+ *   - LocalExchange (HASH)
+ *     - Aggregation (INTERMEDIATE)
+ *       - LocalExchange (ARBITRARY)
+ *         - source
+ * </pre>
+ * <p>
+ * Every driver merges the rows it receives into its own hash table and only the reduced
+ * tables are partitioned to the FINAL drivers, which merge them by partition. With few groups
+ * this avoids pinning the drivers that own the hot keys, and the rows no longer pay for the
+ * repartitioning copy.
+ */
+public class AddLocalIntermediateAggregations
+        implements Rule<AggregationNode>
+{
+    private static final Pattern<AggregationNode> PATTERN = aggregation()
+            .with(step().equalTo(FINAL))
+            .matching(node -> !node.getGroupingKeys().isEmpty()
+                    && node.getGroupingSetCount() == 1
+                    && node.getPreGroupedVariables().isEmpty()
+                    && !node.hasOrderings());
+
+    @Override
+    public Pattern<AggregationNode> getPattern()
+    {
+        return PATTERN;
+    }
+
+    @Override
+    public boolean isEnabled(Session session)
+    {
+        return isEnableLocalIntermediateAggregations(session) && getTaskConcurrency(session) > 1;
+    }
+
+    @Override
+    public Result apply(AggregationNode aggregation, Captures captures, Context context)
+    {
+        PlanNode source = context.getLookup().resolve(aggregation.getSource());
+        if (!isLocalHashExchange(source, aggregation)) {
+            return Result.empty();
+        }
+        ExchangeNode exchange = (ExchangeNode) source;
+        PlanNode exchangeSource = context.getLookup().resolve(getOnlyElement(exchange.getSources()));
+        if (exchangeSource instanceof AggregationNode && ((AggregationNode) exchangeSource).getStep() == INTERMEDIATE) {
+            return Result.empty();
+        }
+
+        // the per driver hash tables hold every group, only worth it when they stay small
+        double groups = context.getStatsProvider().getStats(aggregation).getOutputRowCount();
+        if (isNaN(groups) || groups > getLocalIntermediateAggregationsMaxGroups(context.getSession())) {
+            return Result.empty();
+        }
+
+        TypeProvider types = TypeProvider.viewOf(context.getVariableAllocator().getVariables());
+        Map<VariableReferenceExpression, Aggregation> variableToAggregations = inputsAsOutputs(aggregation.getAggregations(), types);
+        if (variableToAggregations.isEmpty()) {
+            return Result.empty();
+        }
+
+        PlanNode intermediate = new AggregationNode(
+                aggregation.getSourceLocation(),
+                context.getIdAllocator().getNextId(),
+                roundRobinExchange(context.getIdAllocator().getNextId(), LOCAL, exchangeSource),
+                variableToAggregations,
+                aggregation.getGroupingSets(),
+                aggregation.getPreGroupedVariables(),
+                INTERMEDIATE,
+                aggregation.getHashVariable(),
+                aggregation.getGroupIdVariable(),
+                aggregation.getAggregationId());
+        PartitioningScheme partitioningScheme = exchange.getPartitioningScheme();
+        PlanNode partitioned = partitionedExchange(
+                context.getIdAllocator().getNextId(),
+                LOCAL,
+                intermediate,
+                partitioningScheme.getPartitioning(),
+                partitioningScheme.getHashColumn());
+
+        return Result.ofPlanNode(aggregation.replaceChildren(ImmutableList.of(partitioned)));
+    }
+
+    private static boolean isLocalHashExchange(PlanNode node, AggregationNode aggregation)
+    {
+        if (!(node instanceof ExchangeNode)) {
+            return false;
+        }
+        ExchangeNode exchange = (ExchangeNode) node;
+        if (exchange.getScope() != LOCAL
+                || exchange.getType() != REPARTITION
+                || exchange.getSources().size() != 1
+                || exchange.getOrderingScheme().isPresent()
+                || exchange.getPartitioningScheme().isReplicateNullsAndAny()
+                || !exchange.getPartitioningScheme().getPartitioning().getHandle().equals(FIXED_HASH_DISTRIBUTION)
+                || !exchange.getInputs().get(0).equals(exchange.getOutputVariables())) {
+            return false;
+        }
+
+        // the INTERMEDIATE aggregation only produces the grouping keys and the hash variable
+        Set<VariableReferenceExpression> groupingVariables = ImmutableSet.<VariableReferenceExpression>builder()
+                .addAll(aggregation.getGroupingKeys())
+                .addAll(aggregation.getHashVariable().map(ImmutableSet::of).orElse(ImmutableSet.of()))
+                .build();
+        return groupingVariables.containsAll(exchange.getPartitioningScheme().getPartitioning().getVariableReferences())
+                && exchange.getPartitioningScheme().getHashColumn().map(groupingVariables::contains).orElse(true);
+    }
+}
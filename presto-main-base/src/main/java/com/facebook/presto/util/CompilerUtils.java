@@ -15,6 +15,7 @@ package com.facebook.presto.util;
 
 import com.facebook.airlift.log.Logger;
 import com.facebook.presto.bytecode.ByteCodeTooLargeException;
+import com.facebook.presto.bytecode.BytecodeCache;
 import com.facebook.presto.bytecode.ClassDefinition;
 import com.facebook.presto.bytecode.DynamicClassLoader;
 import com.facebook.presto.bytecode.ParameterizedType;
@@ -62,11 +63,26 @@ public final class CompilerUtils
         return defineClass(classDefinition, superType, new DynamicClassLoader(parentClassLoader, callSiteBindings));
     }
 
+    public static <T> Class<? extends T> defineClass(
+            ClassDefinition classDefinition,
+            Class<T> superType,
+            Map<Long, MethodHandle> callSiteBindings,
+            ClassLoader parentClassLoader,
+            Optional<BytecodeCache> bytecodeCache)
+    {
+        return defineClass(classDefinition, superType, new DynamicClassLoader(parentClassLoader, callSiteBindings), bytecodeCache);
+    }
+
     public static <T> Class<? extends T> defineClass(ClassDefinition classDefinition, Class<T> superType, DynamicClassLoader classLoader)
+    {
+        return defineClass(classDefinition, superType, classLoader, Optional.empty());
+    }
+
+    private static <T> Class<? extends T> defineClass(ClassDefinition classDefinition, Class<T> superType, DynamicClassLoader classLoader, Optional<BytecodeCache> bytecodeCache)
     {
         log.debug("Defining class: %s", classDefinition.getName());
         try {
-            return classGenerator(classLoader).defineClass(classDefinition, superType);
+            return classGenerator(classLoader).bytecodeCache(bytecodeCache).defineClass(classDefinition, superType);
         }
         catch (ByteCodeTooLargeException byteCodeTooLargeException) {
             throw new PrestoException(GENERATED_BYTECODE_TOO_LARGE, ERROR_LARGE_BYTECODE);
@@ -15,10 +15,13 @@ package com.facebook.presto.execution.buffer;
 
 import com.facebook.presto.CompressionCodec;
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.RuntimeStats;
 import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.block.BlockEncodingManager;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.spi.page.PagesSerde;
+import com.facebook.presto.spi.page.SerializedPage;
 import com.google.common.collect.ImmutableList;
 import io.airlift.slice.DynamicSliceOutput;
 import io.airlift.slice.Slice;
@@ -27,12 +30,14 @@ import org.testng.annotations.Test;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.UUID;
 import java.util.stream.LongStream;
 
 import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
+import static com.facebook.presto.spi.page.PageCodecMarker.COMPRESSED;
 import static com.facebook.presto.spi.page.PagesSerdeUtil.readPages;
 import static com.facebook.presto.spi.page.PagesSerdeUtil.writePages;
 import static org.testng.Assert.assertEquals;
@@ -154,6 +159,79 @@ public class TestPagesSerde
         assertTrue(actualSize < expectedMaxSize, "Expected round trip size difference less than 20% of original page");
     }
 
+    @Test
+    public void testAdaptiveCompression()
+    {
+        PagesSerde serde = new PagesSerdeFactory(new BlockEncodingManager(), CompressionCodec.LZ4, false, true).createPagesSerde();
+        Random random = new Random(42);
+        BlockBuilder randomBlockBuilder = BIGINT.createBlockBuilder(null, 1000);
+        BlockBuilder constantBlockBuilder = BIGINT.createBlockBuilder(null, 1000);
+        for (int i = 0; i < 1000; i++) {
+            BIGINT.writeLong(randomBlockBuilder, random.nextLong());
+            BIGINT.writeLong(constantBlockBuilder, 7);
+        }
+        Page randomPage = new Page(randomBlockBuilder.build());
+        Page constantPage = new Page(constantBlockBuilder.build());
+
+        // the page which does not compress well makes the next page be sent without compression
+        assertFalse(isCompressed(serde.serialize(randomPage)));
+        assertFalse(isCompressed(serde.serialize(constantPage)));
+        assertTrue(isCompressed(serde.serialize(constantPage)));
+
+        // the number of skipped pages doubles while the sampled pages do not compress well
+        assertFalse(isCompressed(serde.serialize(randomPage)));
+        assertFalse(isCompressed(serde.serialize(constantPage)));
+        assertFalse(isCompressed(serde.serialize(randomPage)));
+        assertFalse(isCompressed(serde.serialize(randomPage)));
+        assertFalse(isCompressed(serde.serialize(constantPage)));
+        SerializedPage serializedPage = serde.serialize(constantPage);
+        assertTrue(isCompressed(serializedPage));
+        assertPageEquals(ImmutableList.of(BIGINT), serde.deserialize(serializedPage), constantPage);
+    }
+
+    @Test
+    public void testRecordCompressionStats()
+    {
+        PagesSerdeFactory serdeFactory = new TestingPagesSerdeFactory(CompressionCodec.LZ4);
+        PagesSerde serde = serdeFactory.createPagesSerde();
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, 1000);
+        for (int i = 0; i < 1000; i++) {
+            BIGINT.writeLong(blockBuilder, 7);
+        }
+        Page page = new Page(blockBuilder.build());
+
+        SerializedPage serializedPage = serde.serialize(page);
+        assertTrue(isCompressed(serializedPage));
+        assertPageEquals(ImmutableList.of(BIGINT), serde.deserialize(serializedPage), page);
+
+        RuntimeStats runtimeStats = new RuntimeStats();
+        serdeFactory.recordCompressionStats(serde, runtimeStats);
+        assertEquals(runtimeStats.getMetric("exchangeCompressionInputBytes-LZ4").getSum(), serializedPage.getUncompressedSizeInBytes());
+        assertEquals(runtimeStats.getMetric("exchangeCompressionOutputBytes-LZ4").getSum(), serializedPage.getSizeInBytes());
+        assertEquals(runtimeStats.getMetric("exchangeDecompressionInputBytes-LZ4").getSum(), serializedPage.getSizeInBytes());
+        assertEquals(runtimeStats.getMetric("exchangeDecompressionOutputBytes-LZ4").getSum(), serializedPage.getUncompressedSizeInBytes());
+        assertEquals(runtimeStats.getMetric("exchangeCompressionTimeNanos-LZ4").getCount(), 1);
+        assertEquals(runtimeStats.getMetric("exchangeDecompressionTimeNanos-LZ4").getCount(), 1);
+
+        // the work of the codec is recorded once
+        serdeFactory.recordCompressionStats(serde, runtimeStats);
+        assertEquals(runtimeStats.getMetric("exchangeCompressionInputBytes-LZ4").getCount(), 1);
+        assertEquals(runtimeStats.getMetric("exchangeDecompressionInputBytes-LZ4").getCount(), 1);
+
+        // nothing is recorded without a codec
+        PagesSerdeFactory uncompressedSerdeFactory = new TestingPagesSerdeFactory(CompressionCodec.NONE);
+        PagesSerde uncompressedSerde = uncompressedSerdeFactory.createPagesSerde();
+        uncompressedSerde.deserialize(uncompressedSerde.serialize(page));
+        RuntimeStats uncompressedRuntimeStats = new RuntimeStats();
+        uncompressedSerdeFactory.recordCompressionStats(uncompressedSerde, uncompressedRuntimeStats);
+        assertTrue(uncompressedRuntimeStats.getMetrics().isEmpty());
+    }
+
+    private static boolean isCompressed(SerializedPage page)
+    {
+        return COMPRESSED.isSet(page.getPageCodecMarkers());
+    }
+
     private static int serializedSize(List<? extends Type> types, Page expectedPage, CompressionCodec codec)
     {
         PagesSerde serde = new TestingPagesSerdeFactory(codec).createPagesSerde();
@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.buffer;
+
+import com.facebook.presto.execution.QueryIdGenerator;
+import com.facebook.presto.execution.StateMachine;
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.execution.buffer.OutputBuffers.OutputBufferId;
+import com.facebook.presto.memory.context.LocalMemoryContext;
+import com.facebook.presto.memory.context.SimpleLocalMemoryContext;
+import com.facebook.presto.sql.analyzer.FeaturesConfig;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.execution.buffer.BufferState.OPEN;
+import static com.facebook.presto.execution.buffer.BufferState.TERMINAL_BUFFER_STATES;
+import static com.facebook.presto.execution.buffer.BufferTestUtils.MAX_WAIT;
+import static com.facebook.presto.execution.buffer.BufferTestUtils.NO_WAIT;
+import static com.facebook.presto.execution.buffer.BufferTestUtils.PAGES_SERDE;
+import static com.facebook.presto.execution.buffer.BufferTestUtils.addPage;
+import static com.facebook.presto.execution.buffer.BufferTestUtils.createPage;
+import static com.facebook.presto.execution.buffer.BufferTestUtils.getBufferResult;
+import static com.facebook.presto.execution.buffer.BufferTestUtils.sizeOfPages;
+import static com.facebook.presto.execution.buffer.SpooledResultsOutputBuffer.toSpooledSegments;
+import static com.facebook.presto.memory.context.AggregatedMemoryContext.newSimpleAggregatedMemoryContext;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestSpooledResultsOutputBuffer
+{
+    private static final String TASK_INSTANCE_ID = "task-instance-id";
+    private static final OutputBufferId BUFFER_ID = new OutputBufferId(0);
+
+    private static final QueryIdGenerator queryIdGenerator = new QueryIdGenerator();
+
+    private ScheduledExecutorService stateNotificationExecutor;
+    private SpoolingOutputBufferFactory spoolingOutputBufferFactory;
+
+    @BeforeClass
+    public void setUp()
+    {
+        stateNotificationExecutor = newScheduledThreadPool(5, daemonThreadsNamed("test-%s"));
+
+        FeaturesConfig featuresConfig = new FeaturesConfig();
+        featuresConfig.setSpooledResultsSegmentSize(sizeOfPages(100));
+        spoolingOutputBufferFactory = new SpoolingOutputBufferFactory(featuresConfig);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        if (stateNotificationExecutor != null) {
+            stateNotificationExecutor.shutdownNow();
+            stateNotificationExecutor = null;
+        }
+        spoolingOutputBufferFactory.shutdown();
+    }
+
+    @Test
+    public void testPendingSegmentMemory()
+    {
+        LocalMemoryContext memoryContext = new SimpleLocalMemoryContext(newSimpleAggregatedMemoryContext(), "test");
+        SpooledResultsOutputBuffer buffer = createSpooledResultsOutputBuffer(memoryContext);
+
+        addPage(buffer, createPage(0));
+        addPage(buffer, createPage(1));
+
+        // the pages are held until the segment is written
+        assertEquals(memoryContext.getBytes(), sizeOfPages(2).toBytes());
+        assertTrue(getBufferResult(buffer, BUFFER_ID, 0, sizeOfPages(10), NO_WAIT).isEmpty());
+
+        buffer.setNoMorePages();
+        BufferResult result = getBufferResult(buffer, BUFFER_ID, 0, sizeOfPages(10), MAX_WAIT);
+        SpooledSegment segment = getOnlyElement(toSpooledSegments(PAGES_SERDE.deserialize(getOnlyElement(result.getSerializedPages()))));
+        assertEquals(segment.getNodeId(), "test-node");
+        assertEquals(segment.getNodeUri(), URI.create("http://127.0.0.1:8080"));
+        assertEquals(segment.getRowCount(), 2);
+
+        // the pages are released once the segment is written
+        assertEquals(memoryContext.getBytes(), 0);
+        assertEquals(buffer.getPeakMemoryUsage(), sizeOfPages(2).toBytes());
+    }
+
+    @Test
+    public void testPendingSegmentMemoryReleasedOnFailure()
+    {
+        LocalMemoryContext memoryContext = new SimpleLocalMemoryContext(newSimpleAggregatedMemoryContext(), "test");
+        SpooledResultsOutputBuffer buffer = createSpooledResultsOutputBuffer(memoryContext);
+
+        addPage(buffer, createPage(0));
+        assertEquals(memoryContext.getBytes(), sizeOfPages(1).toBytes());
+
+        buffer.fail();
+        assertEquals(memoryContext.getBytes(), 0);
+    }
+
+    private SpooledResultsOutputBuffer createSpooledResultsOutputBuffer(LocalMemoryContext memoryContext)
+    {
+        TaskId taskId = new TaskId(queryIdGenerator.createNextQueryId().toString(), 0, 0, 0, 0);
+        SpooledResultsOutputBuffer buffer = spoolingOutputBufferFactory.createSpooledResultsOutputBuffer(
+                taskId,
+                TASK_INSTANCE_ID,
+                new StateMachine<>("bufferState", stateNotificationExecutor, OPEN, TERMINAL_BUFFER_STATES),
+                sizeOfPages(10).toBytes(),
+                () -> memoryContext,
+                stateNotificationExecutor);
+        buffer.registerLifespanCompletionCallback(ignore -> {});
+        return buffer;
+    }
+}
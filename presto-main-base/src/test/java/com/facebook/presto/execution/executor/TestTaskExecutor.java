@@ -377,6 +377,49 @@ public class TestTaskExecutor
         }
     }
 
+    @Test(timeOut = 30_000)
+    public void testShardedSplitQueueWorkStealing()
+            throws Exception
+    {
+        // with task affinity all splits of the task are queued on a single shard,
+        // so runner threads homed on the other shards can only get them by stealing
+        MultilevelSplitQueue splitQueue = new MultilevelSplitQueue(2, 4, true);
+        TestingTicker ticker = new TestingTicker();
+        TaskExecutor taskExecutor = new TaskExecutor(4, 8, 3, 4, TASK_FAIR, splitQueue, ticker);
+        taskExecutor.start();
+        try {
+            TaskHandle taskHandle = taskExecutor.addTask(new TaskId("test", 0, 0, 0, 0), () -> 0, 10, new Duration(1, MILLISECONDS), OptionalInt.empty());
+
+            Phaser beginPhase = new Phaser();
+            beginPhase.register();
+            Phaser verificationComplete = new Phaser();
+            verificationComplete.register();
+
+            ImmutableList.Builder<TestingJob> drivers = ImmutableList.builder();
+            for (int i = 0; i < 4; i++) {
+                drivers.add(new TestingJob(ticker, new Phaser(1), beginPhase, verificationComplete, 1, 0));
+            }
+            List<ListenableFuture<?>> futures = taskExecutor.enqueueSplits(taskHandle, true, drivers.build());
+
+            // all four splits can only run concurrently if three of them were stolen
+            beginPhase.arriveAndAwaitAdvance();
+            verificationComplete.arriveAndAwaitAdvance();
+            for (ListenableFuture<?> future : futures) {
+                future.get(10, SECONDS);
+            }
+
+            assertEquals(splitQueue.getShards(), 4);
+            assertTrue(taskExecutor.getWaitingSplitsStolen() >= 3);
+            assertEquals(splitQueue.size(), 0);
+            // enqueueing the splits and finishing each of them took the executor lock
+            assertTrue(taskExecutor.getExecutorLockAcquisitions() >= 5);
+            assertTrue(taskExecutor.getExecutorLockHoldNanos() > 0);
+        }
+        finally {
+            taskExecutor.stop();
+        }
+    }
+
     @Test(timeOut = 30_000)
     public void testMinMaxDriversPerTask()
     {
@@ -0,0 +1,353 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution.scheduler;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.cost.StatsAndCosts;
+import com.facebook.presto.execution.StageExecutionState;
+import com.facebook.presto.spi.ConnectorId;
+import com.facebook.presto.spi.SchemaTableName;
+import com.facebook.presto.spi.TableHandle;
+import com.facebook.presto.spi.connector.ConnectorPartitioningHandle;
+import com.facebook.presto.spi.plan.Partitioning;
+import com.facebook.presto.spi.plan.PartitioningHandle;
+import com.facebook.presto.spi.plan.PartitioningScheme;
+import com.facebook.presto.spi.plan.PlanFragmentId;
+import com.facebook.presto.spi.plan.PlanNode;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spi.plan.StageExecutionDescriptor;
+import com.facebook.presto.spi.plan.TableFinishNode;
+import com.facebook.presto.spi.plan.TableScanNode;
+import com.facebook.presto.spi.plan.TableWriterNode.InsertReference;
+import com.facebook.presto.spi.relation.VariableReferenceExpression;
+import com.facebook.presto.sql.planner.PlanFragment;
+import com.facebook.presto.sql.planner.plan.RemoteSourceNode;
+import com.facebook.presto.testing.TestingHandle;
+import com.facebook.presto.testing.TestingMetadata.TestingColumnHandle;
+import com.facebook.presto.testing.TestingMetadata.TestingTableHandle;
+import com.facebook.presto.testing.TestingTransactionHandle;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static com.facebook.presto.SystemSessionProperties.MAX_TASKS_PER_STAGE;
+import static com.facebook.presto.SystemSessionProperties.RUNTIME_OPTIMIZER_TARGET_TASK_INPUT_SIZE;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.execution.StageExecutionState.FINISHED;
+import static com.facebook.presto.execution.StageExecutionState.PLANNED;
+import static com.facebook.presto.execution.StageExecutionState.RUNNING;
+import static com.facebook.presto.spi.plan.ExchangeEncoding.COLUMNAR;
+import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_HASH_DISTRIBUTION;
+import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SINGLE_DISTRIBUTION;
+import static com.facebook.presto.sql.planner.SystemPartitioningHandle.SOURCE_DISTRIBUTION;
+import static com.facebook.presto.sql.planner.plan.ExchangeNode.Type.REPARTITION;
+import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static org.testng.Assert.assertEquals;
+
+public class TestSqlQueryScheduler
+{
+    private static final long MEGABYTE = 1024 * 1024;
+    private static final ConnectorId CONNECTOR_ID = new ConnectorId("test");
+    private static final PartitioningHandle TEMPORARY_TABLE_PARTITIONING = new PartitioningHandle(
+            Optional.of(CONNECTOR_ID),
+            Optional.of(TestingTransactionHandle.create()),
+            new ConnectorPartitioningHandle() {
+            });
+
+    private final AtomicInteger nextPlanFragmentId = new AtomicInteger();
+
+    @Test
+    public void testCoalescedTaskCount()
+    {
+        Session session = createSession("1MB", 10);
+
+        // the data written by all the stages of the children sections is summed up
+        StreamingPlanSection buildSection = createChildSection("build");
+        StreamingPlanSection probeSection = createChildSection("probe");
+        StreamingPlanSection section = createSection(buildSection, probeSection);
+
+        TestingStages stages = new TestingStages()
+                .finished(buildSection, MEGABYTE)
+                .finished(probeSection, MEGABYTE)
+                .written(getWriterFragment(probeSection), MEGABYTE / 2);
+        assertEquals(stages.getCoalescedTaskCount(session, section), OptionalInt.of(3));
+
+        // a section always keeps at least one task
+        stages = new TestingStages()
+                .finished(buildSection, 0)
+                .finished(probeSection, 0);
+        assertEquals(stages.getCoalescedTaskCount(session, section), OptionalInt.of(1));
+
+        stages = new TestingStages()
+                .finished(buildSection, 8 * MEGABYTE)
+                .finished(probeSection, MEGABYTE / 2);
+        assertEquals(stages.getCoalescedTaskCount(session, section), OptionalInt.of(9));
+    }
+
+    @Test
+    public void testNoCoalescingAtMaxTasksPerStage()
+    {
+        Session session = createSession("1MB", 10);
+        StreamingPlanSection childSection = createChildSection("child");
+        StreamingPlanSection section = createSection(childSection);
+
+        TestingStages stages = new TestingStages().finished(childSection, 10 * MEGABYTE);
+        assertEquals(stages.getCoalescedTaskCount(session, section), OptionalInt.empty());
+
+        stages = new TestingStages().finished(childSection, 10 * MEGABYTE - 1);
+        assertEquals(stages.getCoalescedTaskCount(session, section), OptionalInt.empty());
+
+        stages = new TestingStages().finished(childSection, 9 * MEGABYTE);
+        assertEquals(stages.getCoalescedTaskCount(session, section), OptionalInt.of(9));
+    }
+
+    @Test
+    public void testDisabledBySessionProperty()
+    {
+        StreamingPlanSection childSection = createChildSection("child");
+        StreamingPlanSection section = createSection(childSection);
+        TestingStages stages = new TestingStages().finished(childSection, 0);
+
+        // the target task input size is 0 by default
+        assertEquals(stages.getCoalescedTaskCount(testSessionBuilder().build(), section), OptionalInt.empty());
+        assertEquals(stages.getCoalescedTaskCount(createSession("0B", 10), section), OptionalInt.empty());
+        assertEquals(stages.getCoalescedTaskCount(createSession("1MB", 10), section), OptionalInt.of(1));
+    }
+
+    @Test
+    public void testChildSectionsNotFinished()
+    {
+        Session session = createSession("1MB", 10);
+        StreamingPlanSection finishedSection = createChildSection("finished");
+        StreamingPlanSection runningSection = createChildSection("running");
+        StreamingPlanSection section = createSection(finishedSection, runningSection);
+
+        // the data written so far by a running child section is not its final size
+        TestingStages stages = new TestingStages()
+                .finished(finishedSection, 0)
+                .stage(runningSection.getPlan().getFragment(), RUNNING);
+        assertEquals(stages.getCoalescedTaskCount(session, section), OptionalInt.empty());
+
+        stages.stage(runningSection.getPlan().getFragment(), FINISHED);
+        assertEquals(stages.getCoalescedTaskCount(session, section), OptionalInt.of(1));
+    }
+
+    @Test
+    public void testSectionWithTableScan()
+    {
+        Session session = createSession("1MB", 10);
+        StreamingPlanSection childSection = createChildSection("child");
+        TestingStages stages = new TestingStages().finished(childSection, 0);
+
+        // the size of a bucketed table read with the partitioning of the temporary tables is not known from the materialized input
+        PlanFragment bucketedScan = createTableScanPlanFragment(createTableHandle("bucketed"), TEMPORARY_TABLE_PARTITIONING);
+        assertEquals(stages.getCoalescedTaskCount(session, createSection(ImmutableList.of(bucketedScan), childSection)), OptionalInt.empty());
+
+        PlanFragment scan = createTableScanPlanFragment(createTableHandle("scan"), SOURCE_DISTRIBUTION);
+        assertEquals(stages.getCoalescedTaskCount(session, createSection(ImmutableList.of(scan), childSection)), OptionalInt.empty());
+
+        // a temporary table that is not written by the children sections
+        PlanFragment otherTemporaryTableScan = createTableScanPlanFragment(createTemporaryTableHandle("other"), TEMPORARY_TABLE_PARTITIONING);
+        assertEquals(stages.getCoalescedTaskCount(session, createSection(ImmutableList.of(otherTemporaryTableScan), childSection)), OptionalInt.empty());
+    }
+
+    private static Session createSession(String targetTaskInputSize, int maxTasksPerStage)
+    {
+        return testSessionBuilder()
+                .setSystemProperty(RUNTIME_OPTIMIZER_TARGET_TASK_INPUT_SIZE, targetTaskInputSize)
+                .setSystemProperty(MAX_TASKS_PER_STAGE, String.valueOf(maxTasksPerStage))
+                .build();
+    }
+
+    private StreamingPlanSection createSection(StreamingPlanSection... children)
+    {
+        return createSection(ImmutableList.of(), children);
+    }
+
+    /**
+     * The section scans the temporary table written by each child section in a fragment with the partitioning of the
+     * temporary tables, next to the given additional fragments.
+     */
+    private StreamingPlanSection createSection(List<PlanFragment> additionalFragments, StreamingPlanSection... children)
+    {
+        List<PlanFragment> fragments = ImmutableList.<PlanFragment>builder()
+                .addAll(Stream.of(children)
+                        .map(child -> createTableScanPlanFragment(getTemporaryTable(child), TEMPORARY_TABLE_PARTITIONING))
+                        .iterator())
+                .addAll(additionalFragments)
+                .build();
+        PlanFragment root = createExchangePlanFragment("root", FIXED_HASH_DISTRIBUTION, fragments);
+        return new StreamingPlanSection(
+                new StreamingSubPlan(
+                        root,
+                        fragments.stream()
+                                .map(fragment -> new StreamingSubPlan(fragment, ImmutableList.of()))
+                                .collect(toImmutableList())),
+                ImmutableList.copyOf(children));
+    }
+
+    /**
+     * The child section materializes an exchange the way the fragmenter plans it, a table writer stage streaming
+     * into the table finish stage of a temporary table.
+     */
+    private StreamingPlanSection createChildSection(String name)
+    {
+        PlanFragment writer = createTableScanPlanFragment(createTableHandle(name + "_source"), SOURCE_DISTRIBUTION);
+        TableHandle temporaryTable = createTemporaryTableHandle(name);
+        PlanNode tableFinish = new TableFinishNode(
+                Optional.empty(),
+                new PlanNodeId(name + "_finish"),
+                createRemoteSource(name + "_writer", ImmutableList.of(writer)),
+                Optional.of(new InsertReference(temporaryTable, getTemporaryTableName(temporaryTable), Optional.empty())),
+                new VariableReferenceExpression(Optional.empty(), "rows", BIGINT),
+                Optional.empty(),
+                Optional.empty(),
+                Optional.empty());
+        return new StreamingPlanSection(
+                new StreamingSubPlan(createFragment(tableFinish, SINGLE_DISTRIBUTION), ImmutableList.of(new StreamingSubPlan(writer, ImmutableList.of()))),
+                ImmutableList.of());
+    }
+
+    private static PlanFragment getWriterFragment(StreamingPlanSection childSection)
+    {
+        return getOnlyElement(childSection.getPlan().getChildren()).getFragment();
+    }
+
+    private static TableHandle getTemporaryTable(StreamingPlanSection childSection)
+    {
+        TableFinishNode tableFinish = (TableFinishNode) childSection.getPlan().getFragment().getRoot();
+        TableHandle temporaryTable = ((InsertReference) tableFinish.getTarget().get()).getHandle();
+        // the scan reads the temporary table through the layout the metadata selects for it
+        return new TableHandle(
+                temporaryTable.getConnectorId(),
+                temporaryTable.getConnectorHandle(),
+                temporaryTable.getTransaction(),
+                Optional.of(TestingHandle.INSTANCE));
+    }
+
+    private static SchemaTableName getTemporaryTableName(TableHandle temporaryTable)
+    {
+        return ((TestingTableHandle) temporaryTable.getConnectorHandle()).getTableName();
+    }
+
+    private static TableHandle createTemporaryTableHandle(String name)
+    {
+        return createTableHandle("__presto_temporary_table_" + name);
+    }
+
+    private static TableHandle createTableHandle(String tableName)
+    {
+        return new TableHandle(
+                CONNECTOR_ID,
+                new TestingTableHandle(new SchemaTableName("default", tableName)),
+                TestingTransactionHandle.create(),
+                Optional.empty());
+    }
+
+    private PlanFragment createExchangePlanFragment(String name, PartitioningHandle partitioning, List<PlanFragment> fragments)
+    {
+        return createFragment(createRemoteSource(name, fragments), partitioning);
+    }
+
+    private static RemoteSourceNode createRemoteSource(String name, List<PlanFragment> fragments)
+    {
+        return new RemoteSourceNode(
+                Optional.empty(),
+                new PlanNodeId(name + "_id"),
+                fragments.stream()
+                        .map(PlanFragment::getId)
+                        .collect(toImmutableList()),
+                fragments.get(0).getPartitioningScheme().getOutputLayout(),
+                false,
+                Optional.empty(),
+                REPARTITION,
+                COLUMNAR);
+    }
+
+    private PlanFragment createTableScanPlanFragment(TableHandle table, PartitioningHandle partitioning)
+    {
+        VariableReferenceExpression variable = new VariableReferenceExpression(Optional.empty(), "column", BIGINT);
+        PlanNode planNode = new TableScanNode(
+                Optional.empty(),
+                new PlanNodeId(((TestingTableHandle) table.getConnectorHandle()).getTableName().getTableName() + "_scan"),
+                table,
+                ImmutableList.of(variable),
+                ImmutableMap.of(variable, new TestingColumnHandle("column")),
+                TupleDomain.all(),
+                TupleDomain.all(),
+                Optional.empty());
+        return createFragment(planNode, partitioning);
+    }
+
+    private PlanFragment createFragment(PlanNode planNode, PartitioningHandle partitioning)
+    {
+        return new PlanFragment(
+                new PlanFragmentId(nextPlanFragmentId.incrementAndGet()),
+                planNode,
+                ImmutableSet.copyOf(planNode.getOutputVariables()),
+                partitioning,
+                planNode instanceof TableScanNode ? ImmutableList.of(planNode.getId()) : ImmutableList.of(),
+                new PartitioningScheme(Partitioning.create(SINGLE_DISTRIBUTION, ImmutableList.of()), planNode.getOutputVariables()),
+                Optional.empty(),
+                StageExecutionDescriptor.ungroupedExecution(),
+                false,
+                Optional.of(StatsAndCosts.empty()),
+                Optional.empty());
+    }
+
+    private static class TestingStages
+    {
+        private final Map<PlanFragmentId, StageExecutionState> states = new HashMap<>();
+        private final Map<PlanFragmentId, Long> writtenDataSizes = new HashMap<>();
+
+        public TestingStages finished(StreamingPlanSection section, long writtenDataSize)
+        {
+            return stage(section.getPlan().getFragment(), FINISHED)
+                    .written(section.getPlan().getFragment(), writtenDataSize);
+        }
+
+        public TestingStages stage(PlanFragment fragment, StageExecutionState state)
+        {
+            states.put(fragment.getId(), state);
+            return this;
+        }
+
+        public TestingStages written(PlanFragment fragment, long writtenDataSize)
+        {
+            writtenDataSizes.put(fragment.getId(), writtenDataSize);
+            return this;
+        }
+
+        public OptionalInt getCoalescedTaskCount(Session session, StreamingPlanSection section)
+        {
+            return SqlQueryScheduler.getCoalescedTaskCount(
+                    session,
+                    section,
+                    fragmentId -> states.getOrDefault(fragmentId, PLANNED),
+                    fragmentId -> writtenDataSizes.getOrDefault(fragmentId, 0L));
+        }
+    }
+}
@@ -19,12 +19,14 @@ import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockBuilder;
 import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.predicate.ValueBloomFilter;
 import com.facebook.presto.common.predicate.ValueSet;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.spi.plan.PlanNodeId;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -32,6 +34,7 @@ import org.testng.annotations.Test;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.stream.IntStream;
@@ -71,6 +74,8 @@ import static io.airlift.slice.Slices.utf8Slice;
 import static java.lang.Float.floatToRawIntBits;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestDynamicFilterSourceOperator
@@ -425,6 +430,67 @@ public class TestDynamicFilterSourceOperator
         assertEquals(partitions.build(), ImmutableList.of(TupleDomain.none()));
     }
 
+    @Test
+    public void testCollectBloomFilterWhenTooManyPositions()
+    {
+        ImmutableList.Builder<Map<String, ValueBloomFilter>> bloomFilters = ImmutableList.builder();
+        OperatorFactory operatorFactory = new DynamicFilterSourceOperator.DynamicFilterSourceOperatorFactory(
+                0,
+                new PlanNodeId("PLAN_NODE_ID"),
+                this::consumePredicate,
+                ImmutableList.of(channel(0, BIGINT), channel(1, BOOLEAN)),
+                100,
+                new DataSize(10, KILOBYTE),
+                1_000_000,
+                true,
+                bloomFilters::add,
+                new DataSize(4, KILOBYTE));
+        verifyPassthrough(createOperator(operatorFactory), ImmutableList.of(BIGINT, BOOLEAN),
+                new Page(createLongSequenceBlock(0, 50), createBooleansBlock(true, 50)),
+                new Page(createLongSequenceBlock(50, 101), createBooleansBlock(false, 51)),
+                new Page(createLongsBlock(500L), createBooleansBlock(true)));
+        operatorFactory.noMoreOperators();
+
+        assertEquals(partitions.build(), ImmutableList.of(TupleDomain.withColumnDomains(ImmutableMap.of(
+                "0", Domain.create(ValueSet.ofRanges(range(BIGINT, 0L, true, 500L, true)), false),
+                "1", Domain.create(ValueSet.ofRanges(range(BOOLEAN, false, true, true, true)), false)))));
+
+        // BOOLEAN is not supported by Bloom filters
+        List<Map<String, ValueBloomFilter>> actual = bloomFilters.build();
+        assertEquals(actual.size(), 1);
+        assertEquals(actual.get(0).keySet(), ImmutableSet.of("0"));
+        ValueBloomFilter bloomFilter = actual.get(0).get("0");
+        for (long value = 0; value <= 100; value++) {
+            assertTrue(bloomFilter.mightContain(value));
+        }
+        assertTrue(bloomFilter.mightContain(500L));
+        assertFalse(bloomFilter.mightContain(300L));
+    }
+
+    @Test
+    public void testNoBloomFilterWhenWithinLimits()
+    {
+        ImmutableList.Builder<Map<String, ValueBloomFilter>> bloomFilters = ImmutableList.builder();
+        OperatorFactory operatorFactory = new DynamicFilterSourceOperator.DynamicFilterSourceOperatorFactory(
+                0,
+                new PlanNodeId("PLAN_NODE_ID"),
+                this::consumePredicate,
+                ImmutableList.of(channel(0, BIGINT)),
+                100,
+                new DataSize(10, KILOBYTE),
+                1_000_000,
+                true,
+                bloomFilters::add,
+                new DataSize(4, KILOBYTE));
+        verifyPassthrough(createOperator(operatorFactory), ImmutableList.of(BIGINT), new Page(createLongsBlock(1L, 2L)));
+        operatorFactory.noMoreOperators();
+
+        assertEquals(partitions.build(), ImmutableList.of(TupleDomain.withColumnDomains(ImmutableMap.of(
+                "0", Domain.multipleValues(BIGINT, ImmutableList.of(1L, 2L))))));
+        // the exact values are published instead, but the partition still reports that it is done
+        assertEquals(bloomFilters.build(), ImmutableList.of(ImmutableMap.of()));
+    }
+
     @Test
     public void testSingleColumnCollectMinMaxRangeWhenTooManyPositions()
     {
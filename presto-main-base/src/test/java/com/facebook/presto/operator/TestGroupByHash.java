@@ -18,6 +18,7 @@ import com.facebook.presto.block.BlockAssertions;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.PageBuilder;
 import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
 import com.facebook.presto.common.block.DictionaryBlock;
 import com.facebook.presto.common.block.DictionaryId;
 import com.facebook.presto.common.type.Type;
@@ -27,6 +28,7 @@ import com.facebook.presto.sql.gen.JoinCompiler;
 import com.facebook.presto.testing.TestingSession;
 import com.facebook.presto.type.TypeUtils;
 import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slices;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -42,9 +44,12 @@ import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
 import static com.facebook.presto.block.BlockAssertions.createStringSequenceBlock;
 import static com.facebook.presto.common.block.DictionaryId.randomDictionaryId;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.DateType.DATE;
 import static com.facebook.presto.common.type.DoubleType.DOUBLE;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.operator.GroupByHash.createGroupByHash;
+import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
+import static com.facebook.presto.operator.UpdateMemory.NOOP;
 import static com.facebook.presto.type.TypeUtils.getHashBlock;
 import static com.google.common.math.DoubleMath.log2;
 import static org.testng.Assert.assertEquals;
@@ -474,4 +479,70 @@ public class TestGroupByHash
         assertEquals(currentQuota.get(), 10 * 2);
         assertEquals(currentQuota.get() / 3 / 2, yields);
     }
+
+    @Test
+    public void testFlatGroupByHash()
+    {
+        List<Type> types = ImmutableList.of(BIGINT, VARCHAR, DATE);
+        int[] channels = {0, 1, 2};
+        GroupByHash flatGroupByHash = createGroupByHash(types, channels, Optional.of(3), 1, false, true, JOIN_COMPILER, NOOP);
+        GroupByHash multiChannelGroupByHash = createGroupByHash(types, channels, Optional.of(3), 1, false, false, JOIN_COMPILER, NOOP);
+        assertTrue(flatGroupByHash instanceof FlatGroupByHash);
+        assertTrue(multiChannelGroupByHash instanceof MultiChannelGroupByHash);
+
+        // mix nulls, inline strings and strings that overflow into the variable width storage
+        int positionCount = 10_000;
+        PageBuilder pageBuilder = new PageBuilder(types);
+        for (int position = 0; position < positionCount; position++) {
+            pageBuilder.declarePosition();
+            int key = position % 1_000;
+            if (key % 17 == 0) {
+                pageBuilder.getBlockBuilder(0).appendNull();
+            }
+            else {
+                BIGINT.writeLong(pageBuilder.getBlockBuilder(0), key % 100);
+            }
+            if (key % 13 == 0) {
+                pageBuilder.getBlockBuilder(1).appendNull();
+            }
+            else {
+                String value = key % 2 == 0 ? String.valueOf(key) : "a string that does not fit inline " + key;
+                VARCHAR.writeSlice(pageBuilder.getBlockBuilder(1), Slices.utf8Slice(value));
+            }
+            DATE.writeLong(pageBuilder.getBlockBuilder(2), key % 7);
+        }
+        Page keys = pageBuilder.build();
+        Page page = new Page(keys.getBlock(0), keys.getBlock(1), keys.getBlock(2), getHashBlock(types, keys.getBlock(0), keys.getBlock(1), keys.getBlock(2)));
+
+        Work<GroupByIdBlock> flatWork = flatGroupByHash.getGroupIds(page);
+        assertTrue(flatWork.process());
+        GroupByIdBlock flatGroupIds = flatWork.getResult();
+        Work<GroupByIdBlock> multiChannelWork = multiChannelGroupByHash.getGroupIds(page);
+        assertTrue(multiChannelWork.process());
+        GroupByIdBlock multiChannelGroupIds = multiChannelWork.getResult();
+
+        assertEquals(flatGroupByHash.getGroupCount(), 1_000);
+        assertEquals(flatGroupByHash.getGroupCount(), multiChannelGroupByHash.getGroupCount());
+        for (int position = 0; position < positionCount; position++) {
+            assertEquals(flatGroupIds.getGroupId(position), multiChannelGroupIds.getGroupId(position));
+            assertTrue(flatGroupByHash.contains(position, page, channels));
+        }
+
+        // the keys and the precomputed hash round trip through the row-major storage
+        PageBuilder flatOutput = new PageBuilder(flatGroupByHash.getTypes());
+        PageBuilder multiChannelOutput = new PageBuilder(multiChannelGroupByHash.getTypes());
+        for (int groupId = 0; groupId < flatGroupByHash.getGroupCount(); groupId++) {
+            flatOutput.declarePosition();
+            flatGroupByHash.appendValuesTo(groupId, flatOutput, 0);
+            multiChannelOutput.declarePosition();
+            multiChannelGroupByHash.appendValuesTo(groupId, multiChannelOutput, 0);
+            assertEquals(flatGroupByHash.getRawHash(groupId), multiChannelGroupByHash.getRawHash(groupId));
+        }
+        assertPageEquals(flatGroupByHash.getTypes(), flatOutput.build(), multiChannelOutput.build());
+
+        BlockBuilder missingDate = DATE.createBlockBuilder(null, 1);
+        DATE.writeLong(missingDate, 2);
+        Page missingPage = new Page(createLongsBlock(2), BlockAssertions.createStringsBlock("a string that does not fit inline 2"), missingDate.build());
+        assertFalse(flatGroupByHash.contains(0, missingPage, channels));
+    }
 }
@@ -21,6 +21,7 @@ import com.facebook.presto.common.type.Type;
 import com.facebook.presto.operator.HashSemiJoinOperator.HashSemiJoinOperatorFactory;
 import com.facebook.presto.operator.SetBuilderOperator.SetBuilderOperatorFactory;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spiller.GenericPartitioningSpillerFactory;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
@@ -34,8 +35,11 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.IntStream;
 
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.airlift.testing.Assertions.assertEqualsIgnoreOrder;
 import static com.facebook.airlift.testing.Assertions.assertGreaterThan;
 import static com.facebook.airlift.testing.Assertions.assertGreaterThanOrEqual;
 import static com.facebook.airlift.units.DataSize.Unit.BYTE;
@@ -47,12 +51,16 @@ import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.metadata.MetadataManager.createTestMetadataManager;
 import static com.facebook.presto.operator.GroupByHashYieldAssertion.createPagesWithDistinctHashKeys;
 import static com.facebook.presto.operator.GroupByHashYieldAssertion.finishOperatorWithYieldingGroupByHash;
+import static com.facebook.presto.operator.OperatorAssertion.toMaterializedResult;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
 import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Iterables.concat;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestHashSemiJoinOperator
@@ -421,6 +429,121 @@ public class TestHashSemiJoinOperator
         OperatorAssertion.assertOperatorEquals(joinOperatorFactory, driverContext, probeInput, expected, hashEnabled, ImmutableList.of(probeTypes.size()));
     }
 
+    @Test(dataProvider = "hashEnabledValues")
+    public void testSemiJoinWithSpill(boolean hashEnabled)
+            throws Exception
+    {
+        DriverContext buildDriverContext = taskContext.addPipelineContext(0, true, true, false).addDriverContext();
+        DriverContext probeDriverContext = taskContext.addPipelineContext(1, true, true, false).addDriverContext();
+
+        // build, memory is revoked after the first page so the rest of the input is spilled directly
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(hashEnabled, Ints.asList(0), BIGINT);
+        List<Page> buildInput = rowPagesBuilder
+                .row(10L)
+                .row(30L)
+                .pageBreak()
+                .row(30L)
+                .row(35L)
+                .row((Long) null)
+                .pageBreak()
+                .row(36L)
+                .row(37L)
+                .row(50L)
+                .build();
+        SetBuilderOperatorFactory setBuilderOperatorFactory = new SetBuilderOperatorFactory(
+                1,
+                new PlanNodeId("test"),
+                rowPagesBuilder.getTypes().get(0),
+                0,
+                rowPagesBuilder.getHashChannel(),
+                10,
+                new JoinCompiler(createTestMetadataManager()),
+                true,
+                1,
+                new GenericPartitioningSpillerFactory(new DummySingleStreamSpillerFactory()));
+        SetBuilderOperator setBuilderOperator = (SetBuilderOperator) setBuilderOperatorFactory.createOperator(buildDriverContext);
+
+        setBuilderOperator.addInput(buildInput.get(0));
+        getFutureValue(setBuilderOperator.startMemoryRevoke());
+        setBuilderOperator.finishMemoryRevoke();
+        assertEquals(setBuilderOperator.getState(), SetBuilderOperator.State.SPILLING_INPUT);
+        for (Page page : buildInput.subList(1, buildInput.size())) {
+            assertTrue(setBuilderOperator.needsInput());
+            setBuilderOperator.addInput(page);
+        }
+        setBuilderOperator.finish();
+        assertEquals(setBuilderOperator.getState(), SetBuilderOperator.State.INPUT_SPILLED);
+        assertTrue(setBuilderOperatorFactory.getSetProvider().getSpilledChannelSet().isDone());
+
+        // probe
+        List<Type> probeTypes = ImmutableList.of(BIGINT, BIGINT);
+        RowPagesBuilder rowPagesBuilderProbe = rowPagesBuilder(hashEnabled, Ints.asList(0), BIGINT, BIGINT);
+        List<Page> probeInput = rowPagesBuilderProbe
+                .addSequencePage(10, 30, 0)
+                .row(null, 10L)
+                .build();
+        Optional<Integer> probeHashChannel = hashEnabled ? Optional.of(probeTypes.size()) : Optional.empty();
+        HashSemiJoinOperatorFactory joinOperatorFactory = new HashSemiJoinOperatorFactory(
+                2,
+                new PlanNodeId("test"),
+                setBuilderOperatorFactory.getSetProvider(),
+                rowPagesBuilderProbe.getTypes(),
+                0,
+                probeHashChannel,
+                new GenericPartitioningSpillerFactory(new DummySingleStreamSpillerFactory()));
+        Operator joinOperator = joinOperatorFactory.createOperator(probeDriverContext);
+
+        ImmutableList.Builder<Page> output = ImmutableList.builder();
+        for (Page page : probeInput) {
+            assertTrue(joinOperator.needsInput());
+            joinOperator.addInput(page);
+            assertNull(joinOperator.getOutput());
+        }
+        joinOperator.finish();
+        while (!joinOperator.isFinished()) {
+            // set builder unspills the partitions requested by the probe
+            setBuilderOperator.finish();
+            Page page = joinOperator.getOutput();
+            if (page != null) {
+                output.add(page);
+            }
+        }
+        joinOperator.close();
+        setBuilderOperator.finish();
+        assertTrue(setBuilderOperator.isFinished());
+
+        MaterializedResult expected = resultBuilder(probeDriverContext.getSession(), concat(probeTypes, ImmutableList.of(BOOLEAN)))
+                .row(30L, 0L, true)
+                .row(31L, 1L, null)
+                .row(32L, 2L, null)
+                .row(33L, 3L, null)
+                .row(34L, 4L, null)
+                .row(35L, 5L, true)
+                .row(36L, 6L, true)
+                .row(37L, 7L, true)
+                .row(38L, 8L, null)
+                .row(39L, 9L, null)
+                .row(null, 10L, null)
+                .build();
+        List<Type> outputTypes = ImmutableList.<Type>builder().addAll(probeTypes).add(BOOLEAN).build();
+        List<Page> actualPages = output.build().stream()
+                .map(page -> dropChannel(page, hashEnabled ? probeTypes.size() : -1))
+                .collect(toImmutableList());
+        MaterializedResult actual = toMaterializedResult(probeDriverContext.getSession(), outputTypes, actualPages);
+        assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
+    }
+
+    private static Page dropChannel(Page page, int channel)
+    {
+        if (channel < 0) {
+            return page;
+        }
+        int[] channels = IntStream.range(0, page.getChannelCount())
+                .filter(index -> index != channel)
+                .toArray();
+        return page.extractChannels(channels);
+    }
+
     @Test(dataProvider = "hashEnabledValues", expectedExceptions = ExceededMemoryLimitException.class, expectedExceptionsMessageRegExp = "Query exceeded per-node user memory limit of.*")
     public void testMemoryLimit(boolean hashEnabled)
     {
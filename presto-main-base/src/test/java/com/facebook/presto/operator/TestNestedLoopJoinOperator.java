@@ -14,23 +14,32 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.RowPagesBuilder;
+import com.facebook.presto.block.BlockEncodingManager;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.type.Type;
+import com.facebook.presto.execution.Lifespan;
 import com.facebook.presto.operator.NestedLoopBuildOperator.NestedLoopBuildOperatorFactory;
 import com.facebook.presto.operator.NestedLoopJoinOperator.NestedLoopJoinOperatorFactory;
 import com.facebook.presto.operator.NestedLoopJoinOperator.NestedLoopOutputIterator;
 import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spiller.NodeSpillConfig;
+import com.facebook.presto.spiller.SpillerStats;
+import com.facebook.presto.spiller.TempStorageStandaloneSpillerFactory;
+import com.facebook.presto.sql.analyzer.FeaturesConfig;
 import com.facebook.presto.testing.MaterializedResult;
 import com.facebook.presto.testing.TestingTaskContext;
+import com.facebook.presto.testing.TestingTempStorageManager;
 import com.google.common.collect.ImmutableList;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
 import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
@@ -38,6 +47,7 @@ import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.operator.NestedLoopJoinOperator.createNestedLoopOutputIterator;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
+import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEqualsIgnoreOrder;
 import static com.facebook.presto.operator.ValuesOperator.ValuesOperatorFactory;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
 import static com.google.common.collect.Iterables.concat;
@@ -117,6 +127,69 @@ public class TestNestedLoopJoinOperator
         assertOperatorEquals(joinOperatorFactory, taskContext.addPipelineContext(0, true, true, false).addDriverContext(), probeInput, expected);
     }
 
+    @Test
+    public void testNestedLoopJoinWithSpilledBuild()
+    {
+        TaskContext taskContext = createTaskContext();
+        List<Type> types = ImmutableList.of(VARCHAR, BIGINT);
+        List<Page> buildInput = rowPagesBuilder(types)
+                .addSequencePage(2, 20, 30)
+                .addSequencePage(1, 22, 32)
+                .addSequencePage(1, 23, 33)
+                .build();
+
+        JoinBridgeManager<NestedLoopJoinBridge> nestedLoopJoinBridgeManager = new JoinBridgeManager<>(
+                false,
+                PipelineExecutionStrategy.UNGROUPED_EXECUTION,
+                PipelineExecutionStrategy.UNGROUPED_EXECUTION,
+                NestedLoopJoinPagesSupplier::new,
+                types);
+        NestedLoopBuildOperatorFactory nestedLoopBuildOperatorFactory = new NestedLoopBuildOperatorFactory(
+                1,
+                new PlanNodeId("test"),
+                nestedLoopJoinBridgeManager,
+                true,
+                Optional.of(new TempStorageStandaloneSpillerFactory(new TestingTempStorageManager(), new BlockEncodingManager(), new NodeSpillConfig(), new FeaturesConfig(), new SpillerStats())));
+        NestedLoopJoinOperatorFactory joinOperatorFactory = new NestedLoopJoinOperatorFactory(3, new PlanNodeId("test"), nestedLoopJoinBridgeManager);
+
+        DriverContext buildDriverContext = taskContext.addPipelineContext(0, true, true, false).addDriverContext();
+        Operator nestedLoopBuildOperator = nestedLoopBuildOperatorFactory.createOperator(buildDriverContext);
+        nestedLoopBuildOperatorFactory.noMoreOperators();
+
+        // spill the first two pages as separate chunks and keep the last one in memory until finish
+        for (int i = 0; i < buildInput.size(); i++) {
+            nestedLoopBuildOperator.addInput(buildInput.get(i));
+            assertTrue(buildDriverContext.getRevocableMemoryUsage() > 0);
+            if (i < buildInput.size() - 1) {
+                getFutureValue(nestedLoopBuildOperator.startMemoryRevoke());
+                nestedLoopBuildOperator.finishMemoryRevoke();
+                assertEquals(buildDriverContext.getRevocableMemoryUsage(), 0);
+            }
+        }
+        nestedLoopBuildOperator.finish();
+        assertEquals(buildDriverContext.getRevocableMemoryUsage(), 0);
+
+        NestedLoopJoinPages nestedLoopJoinPages = getFutureValue(nestedLoopJoinBridgeManager.getJoinBridge(Lifespan.taskWide()).getPagesFuture());
+        assertTrue(nestedLoopJoinPages.isSpilled());
+
+        RowPagesBuilder probePages = rowPagesBuilder(types);
+        List<Page> probeInput = probePages
+                .addSequencePage(2, 0, 1000)
+                .addSequencePage(1, 2, 1002)
+                .build();
+
+        MaterializedResult.Builder expected = resultBuilder(taskContext.getSession(), concat(types, types));
+        for (int probe = 0; probe < 3; probe++) {
+            for (int build = 0; build < 4; build++) {
+                expected.row(String.valueOf(probe), 1000L + probe, String.valueOf(20 + build), 30L + build);
+            }
+        }
+
+        assertOperatorEqualsIgnoreOrder(joinOperatorFactory, taskContext.addPipelineContext(1, true, true, false).addDriverContext(), probeInput, expected.build());
+
+        nestedLoopBuildOperator.close();
+    }
+
     @Test
     public void testCrossJoinWithNullProbe()
     {
@@ -118,6 +118,10 @@ public class TestOperatorInfoUnionSerde
         assertThat(exchangeClientStatus.getSuccessfulRequestsCount()).isEqualTo(5708);
         assertThat(exchangeClientStatus.getBufferedPages()).isEqualTo(316);
         assertThat(exchangeClientStatus.isNoMoreLocations()).isTrue();
+        assertThat(exchangeClientStatus.getReceivedPages()).isEqualTo(612);
+        assertThat(exchangeClientStatus.getCompressedPages()).isEqualTo(457);
+        assertThat(exchangeClientStatus.getReceivedBytes()).isEqualTo(1831L);
+        assertThat(exchangeClientStatus.getUncompressedBytes()).isEqualTo(5274L);
 
         List<PageBufferClientStatus> pageBufferClientStatuses = exchangeClientStatus.getPageBufferClientStatuses();
         assertNotNull(pageBufferClientStatuses);
@@ -157,6 +161,10 @@ public class TestOperatorInfoUnionSerde
                         2,
                         71,
                         3,
-                        "OK")));
+                        "OK")),
+                612,
+                457,
+                1831L,
+                5274L);
     }
 }
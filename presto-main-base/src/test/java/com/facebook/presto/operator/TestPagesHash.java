@@ -0,0 +1,143 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.common.Page;
+import com.facebook.presto.common.PageBuilder;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.sessionpropertyproviders.JavaWorkerSessionPropertyProvider.HASH_BUILD_PARALLELISM;
+import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestPagesHash
+{
+    private static final int ROWS_PER_PAGE = 10_000;
+    private static final Session PARALLEL_BUILD_SESSION = testSessionBuilder()
+            .setSystemProperty(HASH_BUILD_PARALLELISM, "4")
+            .build();
+
+    private final ExecutorService executor = newFixedThreadPool(3, daemonThreadsNamed("test-hash-build-%s"));
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testParallelBuild()
+    {
+        AtomicInteger scheduledTasks = new AtomicInteger();
+        Executor countingExecutor = command -> {
+            scheduledTasks.incrementAndGet();
+            executor.execute(command);
+        };
+
+        // every key has three rows, and every thousandth row has a null key
+        int keyCount = 150_000;
+        LookupSource lookupSource = buildLookupSource(PARALLEL_BUILD_SESSION, countingExecutor, 450_000, keyCount);
+        assertTrue(scheduledTasks.get() > 0, "Expected the build to be partitioned");
+        assertLookups(lookupSource, 450_000, keyCount);
+        assertEquals(lookupSource.getJoinPositionCount(), 450_000);
+    }
+
+    @Test
+    public void testSkewedParallelBuild()
+    {
+        // the duplicate keys fill the slots of few partitions, the build falls back to a single partition
+        LookupSource lookupSource = buildLookupSource(PARALLEL_BUILD_SESSION, executor, 200_000, 7);
+        assertLookups(lookupSource, 200_000, 7);
+    }
+
+    @Test
+    public void testSequentialBuild()
+    {
+        Executor failingExecutor = command -> {
+            throw new AssertionError("Unexpected task");
+        };
+        LookupSource lookupSource = buildLookupSource(TEST_SESSION, failingExecutor, 450_000, 150_000);
+        assertLookups(lookupSource, 450_000, 150_000);
+    }
+
+    private static LookupSource buildLookupSource(Session session, Executor executor, int rowCount, int keyCount)
+    {
+        PagesIndex pagesIndex = new PagesIndex.TestingFactory(false, executor).newPagesIndex(ImmutableList.of(BIGINT, BIGINT), rowCount);
+        for (int start = 0; start < rowCount; start += ROWS_PER_PAGE) {
+            int end = Math.min(rowCount, start + ROWS_PER_PAGE);
+            BlockBuilder keys = BIGINT.createBlockBuilder(null, end - start);
+            BlockBuilder rows = BIGINT.createBlockBuilder(null, end - start);
+            for (int row = start; row < end; row++) {
+                if (row % 1000 == 999) {
+                    keys.appendNull();
+                }
+                else {
+                    BIGINT.writeLong(keys, row % keyCount);
+                }
+                BIGINT.writeLong(rows, row);
+            }
+            pagesIndex.addPage(new Page(keys.build(), rows.build()));
+        }
+        return pagesIndex.createLookupSourceSupplier(session, ImmutableList.of(0), OptionalInt.empty(), Optional.empty(), Optional.empty(), ImmutableList.of()).get();
+    }
+
+    private static void assertLookups(LookupSource lookupSource, int rowCount, int keyCount)
+    {
+        BlockBuilder probeKeys = BIGINT.createBlockBuilder(null, keyCount + 1);
+        for (int key = 0; key <= keyCount; key++) {
+            BIGINT.writeLong(probeKeys, key);
+        }
+        Page probePage = new Page(probeKeys.build());
+
+        PageBuilder pageBuilder = new PageBuilder(ImmutableList.of(BIGINT, BIGINT));
+        for (int key = 0; key <= keyCount; key++) {
+            long expectedCount = 0;
+            long expectedSum = 0;
+            for (int row = key; row < rowCount && key < keyCount; row += keyCount) {
+                if (row % 1000 != 999) {
+                    expectedCount++;
+                    expectedSum += row;
+                }
+            }
+
+            pageBuilder.reset();
+            for (long joinPosition = lookupSource.getJoinPosition(key, probePage, probePage); joinPosition >= 0; joinPosition = lookupSource.getNextJoinPosition(joinPosition, key, probePage)) {
+                pageBuilder.declarePosition();
+                lookupSource.appendTo(joinPosition, pageBuilder, 0);
+            }
+            Page rows = pageBuilder.build();
+            long sum = 0;
+            for (int position = 0; position < rows.getPositionCount(); position++) {
+                sum += BIGINT.getLong(rows.getBlock(1), position);
+            }
+            assertEquals(rows.getPositionCount(), expectedCount, "rows of key " + key);
+            assertEquals(sum, expectedSum, "rows of key " + key);
+        }
+    }
+}
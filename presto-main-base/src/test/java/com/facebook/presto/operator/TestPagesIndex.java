@@ -14,18 +14,36 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.block.SortOrder;
 import com.facebook.presto.common.type.Type;
 import com.google.common.collect.ImmutableList;
 import org.testng.annotations.Test;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
+import static com.facebook.airlift.testing.Assertions.assertGreaterThan;
 import static com.facebook.presto.SequencePageBuilder.createSequencePage;
+import static com.facebook.presto.common.block.SortOrder.ASC_NULLS_FIRST;
+import static com.facebook.presto.common.block.SortOrder.ASC_NULLS_LAST;
+import static com.facebook.presto.common.block.SortOrder.DESC_NULLS_FIRST;
+import static com.facebook.presto.common.block.SortOrder.DESC_NULLS_LAST;
 import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.DoubleType.OLD_NAN_DOUBLE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.common.type.RealType.OLD_NAN_REAL;
+import static com.facebook.presto.common.type.RealType.REAL;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.slice.Slices.utf8Slice;
+import static java.lang.Float.floatToRawIntBits;
 import static java.lang.String.format;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 public class TestPagesIndex
@@ -82,6 +100,92 @@ public class TestPagesIndex
         assertEquals(lazyCompactPagesIndex.getEstimatedSize(), eagerCompactPagesIndex.getEstimatedSize());
     }
 
+    @Test
+    public void testNormalizedKeySort()
+    {
+        List<SortOrder> sortOrders = ImmutableList.of(ASC_NULLS_FIRST, ASC_NULLS_LAST, DESC_NULLS_FIRST, DESC_NULLS_LAST);
+        for (Type type : ImmutableList.of(BIGINT, INTEGER, BOOLEAN, DOUBLE, REAL, VARCHAR)) {
+            for (SortOrder sortOrder : sortOrders) {
+                assertNormalizedKeySort(type, sortOrder);
+            }
+        }
+    }
+
+    @Test
+    public void testNoNormalizedKeyForLegacyNanTypes()
+    {
+        assertTrue(NormalizedKeyEncoder.create(DOUBLE, 0, ASC_NULLS_FIRST).isPresent());
+        assertTrue(NormalizedKeyEncoder.create(REAL, 0, ASC_NULLS_FIRST).isPresent());
+        assertFalse(NormalizedKeyEncoder.create(OLD_NAN_DOUBLE, 0, ASC_NULLS_FIRST).isPresent());
+        assertFalse(NormalizedKeyEncoder.create(OLD_NAN_REAL, 0, ASC_NULLS_FIRST).isPresent());
+    }
+
+    private static void assertNormalizedKeySort(Type type, SortOrder sortOrder)
+    {
+        List<Type> types = ImmutableList.of(type, BIGINT);
+        PagesIndex expected = new PagesIndex.TestingFactory(false, false, directExecutor()).newPagesIndex(types, 10_000);
+        PagesIndex actual = new PagesIndex.TestingFactory(false, true, directExecutor()).newPagesIndex(types, 10_000);
+
+        Random random = new Random(type.hashCode() + sortOrder.ordinal());
+        for (int i = 0; i < 5; i++) {
+            Page page = randomPage(type, random, 2_000);
+            expected.addPage(page);
+            actual.addPage(page);
+        }
+
+        // the second channel breaks ties in the first one, so both orderings are fully determined
+        List<Integer> sortChannels = ImmutableList.of(0, 1);
+        List<SortOrder> orders = ImmutableList.of(sortOrder, ASC_NULLS_FIRST);
+        expected.sort(sortChannels, orders);
+        actual.sort(sortChannels, orders);
+
+        assertGreaterThan(actual.getPositionCount(), 0);
+        for (int position = 0; position < expected.getPositionCount(); position++) {
+            String message = format("type %s, sort order %s, position %s", type, sortOrder, position);
+            assertEquals(actual.getObject(1, position), expected.getObject(1, position), message);
+            if (expected.isNull(0, position)) {
+                assertTrue(actual.isNull(0, position), message);
+            }
+            else {
+                assertEquals(type.compareTo(actual.getSingleValueBlock(0, position), 0, expected.getSingleValueBlock(0, position), 0), 0, message);
+            }
+        }
+    }
+
+    private static Page randomPage(Type type, Random random, int positionCount)
+    {
+        BlockBuilder valueBlock = type.createBlockBuilder(null, positionCount);
+        BlockBuilder tieBreakerBlock = BIGINT.createBlockBuilder(null, positionCount);
+        for (int i = 0; i < positionCount; i++) {
+            if (random.nextInt(10) == 0) {
+                valueBlock.appendNull();
+            }
+            else if (type.equals(BOOLEAN)) {
+                BOOLEAN.writeBoolean(valueBlock, random.nextBoolean());
+            }
+            else if (type.equals(DOUBLE)) {
+                double[] specialValues = {Double.NaN, -0.0, 0.0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
+                DOUBLE.writeDouble(valueBlock, random.nextInt(5) == 0 ? specialValues[random.nextInt(specialValues.length)] : random.nextGaussian() * 1000);
+            }
+            else if (type.equals(REAL)) {
+                float[] specialValues = {Float.NaN, -0.0f, 0.0f, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY};
+                float value = random.nextInt(5) == 0 ? specialValues[random.nextInt(specialValues.length)] : (float) (random.nextGaussian() * 1000);
+                REAL.writeLong(valueBlock, floatToRawIntBits(value));
+            }
+            else if (type.equals(VARCHAR)) {
+                // shared prefixes longer than the normalized key make sure ties are resolved by the comparator
+                String prefix = random.nextBoolean() ? "prefix_of_length_16_" : "";
+                VARCHAR.writeSlice(valueBlock, utf8Slice(prefix + Integer.toString(random.nextInt(500), 36)));
+            }
+            else {
+                // few distinct values to produce many ties, and values that differ only in the lowest bit
+                type.writeLong(valueBlock, random.nextInt(200) - 100);
+            }
+            BIGINT.writeLong(tieBreakerBlock, random.nextInt(1000));
+        }
+        return new Page(valueBlock.build(), tieBreakerBlock.build());
+    }
+
     private static PagesIndex newPagesIndex(List<Type> types, int expectedPositions, boolean eagerCompact)
     {
         return new PagesIndex.TestingFactory(eagerCompact).newPagesIndex(types, expectedPositions);
@@ -16,16 +16,20 @@ package com.facebook.presto.operator;
 import com.facebook.airlift.units.DataSize;
 import com.facebook.airlift.units.DataSize.Unit;
 import com.facebook.presto.ExceededMemoryLimitException;
+import com.facebook.presto.RowPagesBuilder;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.SortOrder;
 import com.facebook.presto.common.type.Type;
+import com.facebook.presto.metadata.FunctionAndTypeManager;
 import com.facebook.presto.operator.WindowOperator.WindowOperatorFactory;
+import com.facebook.presto.operator.window.DenseRankFunction;
 import com.facebook.presto.operator.window.FirstValueFunction;
 import com.facebook.presto.operator.window.FrameInfo;
 import com.facebook.presto.operator.window.LagFunction;
 import com.facebook.presto.operator.window.LastValueFunction;
 import com.facebook.presto.operator.window.LeadFunction;
 import com.facebook.presto.operator.window.NthValueFunction;
+import com.facebook.presto.operator.window.RankFunction;
 import com.facebook.presto.operator.window.ReflectionWindowFunctionSupplier;
 import com.facebook.presto.operator.window.RowNumberFunction;
 import com.facebook.presto.spi.plan.PlanNodeId;
@@ -54,17 +58,22 @@ import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.common.type.BooleanType.BOOLEAN;
 import static com.facebook.presto.common.type.DoubleType.DOUBLE;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static com.facebook.presto.metadata.MetadataManager.createTestMetadataManager;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEqualsIgnoreOrder;
 import static com.facebook.presto.operator.OperatorAssertion.toMaterializedResult;
 import static com.facebook.presto.operator.OperatorAssertion.toPages;
 import static com.facebook.presto.operator.WindowFunctionDefinition.window;
+import static com.facebook.presto.spi.plan.WindowNode.Frame.BoundType.CURRENT_ROW;
 import static com.facebook.presto.spi.plan.WindowNode.Frame.BoundType.UNBOUNDED_FOLLOWING;
 import static com.facebook.presto.spi.plan.WindowNode.Frame.BoundType.UNBOUNDED_PRECEDING;
 import static com.facebook.presto.spi.plan.WindowNode.Frame.WindowType.RANGE;
+import static com.facebook.presto.spi.plan.WindowNode.Frame.WindowType.ROWS;
+import static com.facebook.presto.sql.analyzer.TypeSignatureProvider.fromTypes;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
 import static com.facebook.presto.testing.TestingTaskContext.createTaskContext;
 import static java.lang.String.format;
+import static java.util.Collections.nCopies;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static org.testng.Assert.assertEquals;
@@ -74,6 +83,10 @@ import static org.testng.Assert.assertTrue;
 public class TestWindowOperator
 {
     private static final FrameInfo UNBOUNDED_FRAME = new FrameInfo(RANGE, UNBOUNDED_PRECEDING, Optional.empty(), Optional.empty(), UNBOUNDED_FOLLOWING, Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty());
+    private static final FrameInfo RANGE_RUNNING_FRAME = new FrameInfo(RANGE, UNBOUNDED_PRECEDING, Optional.empty(), Optional.empty(), CURRENT_ROW, Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty());
+    private static final FrameInfo ROWS_RUNNING_FRAME = new FrameInfo(ROWS, UNBOUNDED_PRECEDING, Optional.empty(), Optional.empty(), CURRENT_ROW, Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty());
+
+    private static final FunctionAndTypeManager FUNCTION_AND_TYPE_MANAGER = createTestMetadataManager().getFunctionAndTypeManager();
 
     public static final List<WindowFunctionDefinition> ROW_NUMBER = ImmutableList.of(
             window(new ReflectionWindowFunctionSupplier<>("row_number", BIGINT, ImmutableList.of(), RowNumberFunction.class), BIGINT, UNBOUNDED_FRAME));
@@ -93,6 +106,22 @@ public class TestWindowOperator
     private static final List<WindowFunctionDefinition> LEAD = ImmutableList.of(
             window(new ReflectionWindowFunctionSupplier<>("lead", VARCHAR, ImmutableList.of(VARCHAR, BIGINT, VARCHAR), LeadFunction.class), VARCHAR, UNBOUNDED_FRAME, 1, 3, 4));
 
+    // functions that do not need the peer group, so a partition without ORDER BY is streamed row by row
+    private static final List<WindowFunctionDefinition> STREAMABLE_ROWS_FUNCTIONS = ImmutableList.of(
+            window(new ReflectionWindowFunctionSupplier<>("row_number", BIGINT, ImmutableList.of(), RowNumberFunction.class), BIGINT, RANGE_RUNNING_FRAME),
+            window(new ReflectionWindowFunctionSupplier<>("lag", BIGINT, ImmutableList.of(BIGINT), LagFunction.class), BIGINT, RANGE_RUNNING_FRAME, 2),
+            window(new ReflectionWindowFunctionSupplier<>("lead", BIGINT, ImmutableList.of(BIGINT), LeadFunction.class), BIGINT, RANGE_RUNNING_FRAME, 2),
+            window(FUNCTION_AND_TYPE_MANAGER.getWindowFunctionImplementation(FUNCTION_AND_TYPE_MANAGER.lookupFunction("sum", fromTypes(BIGINT))), BIGINT, ROWS_RUNNING_FRAME, 2));
+
+    private static final List<WindowFunctionDefinition> STREAMABLE_FUNCTIONS = ImmutableList.of(
+            window(new ReflectionWindowFunctionSupplier<>("row_number", BIGINT, ImmutableList.of(), RowNumberFunction.class), BIGINT, RANGE_RUNNING_FRAME),
+            window(new ReflectionWindowFunctionSupplier<>("rank", BIGINT, ImmutableList.of(), RankFunction.class), BIGINT, RANGE_RUNNING_FRAME),
+            window(new ReflectionWindowFunctionSupplier<>("dense_rank", BIGINT, ImmutableList.of(), DenseRankFunction.class), BIGINT, RANGE_RUNNING_FRAME),
+            window(new ReflectionWindowFunctionSupplier<>("lag", BIGINT, ImmutableList.of(BIGINT), LagFunction.class), BIGINT, RANGE_RUNNING_FRAME, 2),
+            window(new ReflectionWindowFunctionSupplier<>("lead", BIGINT, ImmutableList.of(BIGINT), LeadFunction.class), BIGINT, RANGE_RUNNING_FRAME, 2),
+            window(FUNCTION_AND_TYPE_MANAGER.getWindowFunctionImplementation(FUNCTION_AND_TYPE_MANAGER.lookupFunction("sum", fromTypes(BIGINT))), BIGINT, ROWS_RUNNING_FRAME, 2),
+            window(FUNCTION_AND_TYPE_MANAGER.getWindowFunctionImplementation(FUNCTION_AND_TYPE_MANAGER.lookupFunction("sum", fromTypes(BIGINT))), BIGINT, RANGE_RUNNING_FRAME, 2));
+
     private ExecutorService executor;
     private ScheduledExecutorService scheduledExecutor;
     private DummySpillerFactory spillerFactory;
@@ -700,6 +729,92 @@ public class TestWindowOperator
         assertOperatorEquals(operatorFactory, driverContext, input, expected, revokeMemoryWhenAddingPages);
     }
 
+    @Test(dataProvider = "spillEnabled")
+    public void testStreamableFunctionsPartition(boolean spillEnabled, boolean revokeMemoryWhenAddingPages, long memoryLimit)
+    {
+        List<Page> input = rowPagesBuilder(VARCHAR, BIGINT, BIGINT)
+                .row("b", 2L, 2L)
+                .row("a", 2L, 20L)
+                .row("a", 1L, 10L)
+                .pageBreak()
+                .row("b", 1L, 1L)
+                .row("a", 3L, 30L)
+                .pageBreak()
+                .row("a", 2L, 20L)
+                .row("b", 2L, 2L)
+                .build();
+
+        WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                ImmutableList.of(VARCHAR, BIGINT, BIGINT),
+                Ints.asList(0, 1, 2),
+                STREAMABLE_FUNCTIONS,
+                Ints.asList(0),
+                Ints.asList(1),
+                ImmutableList.copyOf(new SortOrder[] {SortOrder.ASC_NULLS_LAST}),
+                spillEnabled);
+
+        DriverContext driverContext = createDriverContext(memoryLimit);
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, BIGINT, BIGINT, BIGINT, BIGINT, BIGINT, BIGINT, BIGINT, BIGINT, BIGINT)
+                .row("a", 1L, 10L, 1L, 1L, 1L, null, 20L, 10L, 10L)
+                .row("a", 2L, 20L, 2L, 2L, 2L, 10L, 20L, 30L, 50L)
+                .row("a", 2L, 20L, 3L, 2L, 2L, 20L, 30L, 50L, 50L)
+                .row("a", 3L, 30L, 4L, 4L, 3L, 20L, null, 80L, 80L)
+                .row("b", 1L, 1L, 1L, 1L, 1L, null, 2L, 1L, 1L)
+                .row("b", 2L, 2L, 2L, 2L, 2L, 1L, 2L, 3L, 5L)
+                .row("b", 2L, 2L, 3L, 2L, 2L, 2L, null, 5L, 5L)
+                .build();
+
+        assertOperatorEquals(operatorFactory, driverContext, input, expected, revokeMemoryWhenAddingPages);
+    }
+
+    @Test
+    public void testStreamingSpilledPartitionMemory()
+    {
+        RowPagesBuilder inputBuilder = rowPagesBuilder(BIGINT, BIGINT, BIGINT);
+        for (int i = 0; i < 4; i++) {
+            inputBuilder.addSequencePage(250_000, i * 250_000, i, i);
+        }
+        List<Page> input = inputBuilder.build();
+
+        long streamingPeakMemory = getSpilledPartitionPeakUserMemory(input, STREAMABLE_FUNCTIONS, Ints.asList(0), true);
+        long materializedPeakMemory = getSpilledPartitionPeakUserMemory(input, STREAMABLE_FUNCTIONS, Ints.asList(0), false);
+        assertTrue(streamingPeakMemory * 4 < materializedPeakMemory, format("Expected streaming to use less memory, streaming: %s, materialized: %s", streamingPeakMemory, materializedPeakMemory));
+    }
+
+    @Test
+    public void testStreamingSpilledPartitionWithoutOrderByMemory()
+    {
+        RowPagesBuilder inputBuilder = rowPagesBuilder(BIGINT, BIGINT, BIGINT);
+        for (int i = 0; i < 4; i++) {
+            inputBuilder.addSequencePage(250_000, i * 250_000, i, i);
+        }
+        List<Page> input = inputBuilder.build();
+
+        // all rows of the partition are peers
+        long streamingPeakMemory = getSpilledPartitionPeakUserMemory(input, STREAMABLE_ROWS_FUNCTIONS, Ints.asList(), true);
+        long materializedPeakMemory = getSpilledPartitionPeakUserMemory(input, STREAMABLE_ROWS_FUNCTIONS, Ints.asList(), false);
+        assertTrue(streamingPeakMemory * 4 < materializedPeakMemory, format("Expected streaming to use less memory, streaming: %s, materialized: %s", streamingPeakMemory, materializedPeakMemory));
+    }
+
+    private long getSpilledPartitionPeakUserMemory(List<Page> input, List<WindowFunctionDefinition> functions, List<Integer> sortChannels, boolean spillStreamingEnabled)
+    {
+        WindowOperatorFactory operatorFactory = createFactoryUnbounded(
+                ImmutableList.of(BIGINT, BIGINT, BIGINT),
+                Ints.asList(0, 1, 2),
+                functions,
+                Ints.asList(),
+                sortChannels,
+                nCopies(sortChannels.size(), SortOrder.ASC_NULLS_LAST),
+                true,
+                spillStreamingEnabled);
+
+        Operator operator = operatorFactory.createOperator(createDriverContext());
+        List<Page> output = toPages(operator, input.iterator(), true);
+        assertEquals(output.stream().mapToInt(Page::getPositionCount).sum(), 1_000_000);
+        assertTrue(spillerFactory.getSpillsCount() > 0, "Expected spill");
+        return operator.getOperatorContext().getOperatorStats().getPeakUserMemoryReservationInBytes();
+    }
+
     @Test
     public void testFindEndPosition()
     {
@@ -753,6 +868,35 @@ public class TestWindowOperator
                 spillEnabled);
     }
 
+    private WindowOperatorFactory createFactoryUnbounded(
+            List<? extends Type> sourceTypes,
+            List<Integer> outputChannels,
+            List<WindowFunctionDefinition> functions,
+            List<Integer> partitionChannels,
+            List<Integer> sortChannels,
+            List<SortOrder> sortOrder,
+            boolean spillEnabled,
+            boolean spillStreamingEnabled)
+    {
+        return new WindowOperatorFactory(
+                0,
+                new PlanNodeId("test"),
+                sourceTypes,
+                outputChannels,
+                functions,
+                partitionChannels,
+                ImmutableList.of(),
+                sortChannels,
+                sortOrder,
+                0,
+                10,
+                new PagesIndex.TestingFactory(false),
+                spillEnabled,
+                spillStreamingEnabled,
+                spillerFactory,
+                new OrderingCompiler());
+    }
+
     public WindowOperatorFactory createFactoryUnbounded(
             List<? extends Type> sourceTypes,
             List<Integer> outputChannels,
@@ -778,6 +922,7 @@ public class TestWindowOperator
                 10,
                 new PagesIndex.TestingFactory(false),
                 spillEnabled,
+                true,
                 spillerFactory,
                 new OrderingCompiler());
     }
@@ -808,6 +953,7 @@ public class TestWindowOperator
                 10,
                 new PagesIndex.TestingFactory(false),
                 spillEnabled,
+                true,
                 spillerFactory,
                 new OrderingCompiler());
     }
@@ -34,8 +34,10 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static com.facebook.presto.common.type.BigintType.BIGINT;
@@ -150,6 +152,58 @@ public class TestFileSingleStreamSpiller
         assertEquals(memoryContext.getBytes(), 0);
     }
 
+    @Test(dataProvider = "testCompressionCodec")
+    public void testStripedSpill(CompressionCodec compressionCodec)
+            throws Exception
+    {
+        File spillPath1 = new File(tempDirectory, UUID.randomUUID().toString());
+        File spillPath2 = new File(tempDirectory, UUID.randomUUID().toString());
+        SpillerStats spillerStats = new SpillerStats();
+        int bufferSize = 4096;
+        FileSingleStreamSpillerFactory spillerFactory = new FileSingleStreamSpillerFactory(
+                executor, // executor won't be closed, because we don't call destroy() on the spiller factory
+                new BlockEncodingManager(),
+                spillerStats,
+                ImmutableList.of(spillPath1.toPath(), spillPath2.toPath()),
+                1.0,
+                compressionCodec,
+                false,
+                executor,
+                true,
+                bufferSize);
+        LocalMemoryContext memoryContext = newSimpleAggregatedMemoryContext().newLocalMemoryContext("test");
+        SingleStreamSpiller singleStreamSpiller = spillerFactory.create(TYPES, new TestingSpillContext(), memoryContext);
+        assertTrue(singleStreamSpiller instanceof StripedFileSingleStreamSpiller);
+        StripedFileSingleStreamSpiller spiller = (StripedFileSingleStreamSpiller) singleStreamSpiller;
+        assertEquals(memoryContext.getBytes(), StripedFileSingleStreamSpiller.getBufferMemorySize(2, bufferSize));
+
+        // enough pages for several buffers on each stripe
+        Page page = buildPage();
+        int pageCount = 1001;
+        spiller.spill(page).get();
+        spiller.spill(Iterators.limit(Iterators.cycle(page), pageCount - 1)).get();
+        assertEquals(listFiles(spillPath1.toPath()).size(), 1);
+        assertEquals(listFiles(spillPath2.toPath()).size(), 1);
+
+        List<Page> spilledPages = ImmutableList.copyOf(spiller.getSpilledPages());
+        assertEquals(spilledPages.size(), pageCount);
+        for (Page spilledPage : spilledPages) {
+            PageAssertions.assertPageEquals(TYPES, page, spilledPage);
+        }
+
+        Map<Path, SpillPathStats> spillPathStats = spillerStats.getAllSpillPathStats();
+        for (File spillPath : ImmutableList.of(spillPath1, spillPath2)) {
+            SpillPathStats stats = spillPathStats.get(spillPath.toPath());
+            assertTrue(stats.getBytesWritten() > bufferSize);
+            assertEquals(stats.getBytesRead(), stats.getBytesWritten());
+        }
+
+        spiller.close();
+        assertEquals(listFiles(spillPath1.toPath()).size(), 0);
+        assertEquals(listFiles(spillPath2.toPath()).size(), 0);
+        assertEquals(memoryContext.getBytes(), 0);
+    }
+
     private Page buildPage()
     {
         BlockBuilder col1 = BIGINT.createBlockBuilder(null, 1);
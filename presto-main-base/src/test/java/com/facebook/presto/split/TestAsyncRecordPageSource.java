@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.split;
+
+import com.facebook.presto.common.Page;
+import com.facebook.presto.spi.InMemoryRecordSet;
+import com.facebook.presto.spi.RecordPageSource;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.airlift.concurrent.MoreFutures.getFutureValue;
+import static com.facebook.airlift.concurrent.Threads.daemonThreadsNamed;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestAsyncRecordPageSource
+{
+    @Test
+    public void testBlockedUntilPageIsRead()
+    {
+        Queue<Runnable> reads = new ArrayDeque<>();
+        AsyncRecordPageSource pageSource = new AsyncRecordPageSource(createRecordPageSource(10), reads::add);
+
+        CompletableFuture<?> blocked = pageSource.isBlocked();
+        assertFalse(blocked.isDone());
+        assertNull(pageSource.getNextPage());
+        assertFalse(pageSource.isFinished());
+        assertEquals(reads.size(), 1);
+
+        reads.poll().run();
+        assertTrue(blocked.isDone());
+        Page page = pageSource.getNextPage();
+        assertNotNull(page);
+        assertEquals(page.getPositionCount(), 10);
+        assertEquals(pageSource.getCompletedPositions(), 10);
+
+        // the next read was started as soon as the page was returned
+        assertEquals(reads.size(), 1);
+        reads.poll().run();
+        assertNull(pageSource.getNextPage());
+        assertTrue(pageSource.isFinished());
+        assertTrue(reads.isEmpty());
+
+        pageSource.close();
+    }
+
+    @Test
+    public void testReadAllPages()
+    {
+        ExecutorService executor = newCachedThreadPool(daemonThreadsNamed("test-record-cursor-reader-%s"));
+        try {
+            AsyncRecordPageSource pageSource = new AsyncRecordPageSource(createRecordPageSource(100_000), executor);
+            long positions = 0;
+            while (!pageSource.isFinished()) {
+                getFutureValue(pageSource.isBlocked());
+                Page page = pageSource.getNextPage();
+                if (page != null) {
+                    positions += page.getPositionCount();
+                }
+            }
+            pageSource.close();
+
+            assertEquals(positions, 100_000);
+            assertEquals(pageSource.getCompletedPositions(), 100_000);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testClose()
+    {
+        Queue<Runnable> reads = new ArrayDeque<>();
+        AsyncRecordPageSource pageSource = new AsyncRecordPageSource(createRecordPageSource(10), reads::add);
+        assertFalse(pageSource.isBlocked().isDone());
+
+        pageSource.close();
+        assertTrue(pageSource.isFinished());
+        assertTrue(pageSource.isBlocked().isDone());
+        assertNull(pageSource.getNextPage());
+
+        // the pending read stops without producing a page
+        reads.poll().run();
+        assertEquals(pageSource.getCompletedPositions(), 0);
+    }
+
+    private static RecordPageSource createRecordPageSource(int rows)
+    {
+        ImmutableList.Builder<List<?>> records = ImmutableList.builder();
+        for (long i = 0; i < rows; i++) {
+            records.add(ImmutableList.of(i));
+        }
+        return new RecordPageSource(new InMemoryRecordSet(ImmutableList.of(BIGINT), records.build()));
+    }
+}
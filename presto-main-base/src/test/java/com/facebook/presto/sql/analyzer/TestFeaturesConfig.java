@@ -37,6 +37,7 @@ import java.util.Map;
 
 import static com.facebook.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
 import static com.facebook.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
+import static com.facebook.airlift.units.DataSize.Unit.BYTE;
 import static com.facebook.airlift.units.DataSize.Unit.GIGABYTE;
 import static com.facebook.airlift.units.DataSize.Unit.KILOBYTE;
 import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
@@ -102,6 +103,8 @@ public class TestFeaturesConfig
                 .setOptimizeHashGeneration(true)
                 .setPushTableWriteThroughUnion(true)
                 .setDictionaryAggregation(false)
+                .setFlatGroupByHashEnabled(false)
+                .setBatchedJoinProbeEnabled(false)
                 .setConfidenceBasedBroadcastEnabled(false)
                 .setRetryQueryWithHistoryBasedOptimizationEnabled(false)
                 .setTreatLowConfidenceZeroEstimationAsUnknownEnabled(false)
@@ -110,6 +113,8 @@ public class TestFeaturesConfig
                 .setJoinSpillingEnabled(true)
                 .setSpillerSpillPaths("")
                 .setSpillerThreads(4)
+                .setSpillerStripingEnabled(false)
+                .setSpillerStripingBufferSize(new DataSize(1, MEGABYTE))
                 .setSpillMaxUsedSpaceThreshold(0.9)
                 .setMemoryRevokingThreshold(0.9)
                 .setMemoryRevokingTarget(0.5)
@@ -122,10 +127,12 @@ public class TestFeaturesConfig
                 .setIterativeOptimizerEnabled(true)
                 .setIterativeOptimizerTimeout(new Duration(3, MINUTES))
                 .setRuntimeOptimizerEnabled(false)
+                .setRuntimeOptimizerTargetTaskInputSize(new DataSize(0, BYTE))
                 .setEnableDynamicFiltering(false)
                 .setDynamicFilteringMaxPerDriverRowCount(100)
                 .setDynamicFilteringMaxPerDriverSize(new DataSize(10, KILOBYTE))
                 .setDynamicFilteringRangeRowLimitPerDriver(0)
+                .setDynamicFilteringBloomFilterSize(new DataSize(0, BYTE))
                 .setFragmentResultCachingEnabled(false)
                 .setEnableStatsCalculator(true)
                 .setEnableStatsCollectionForTemporaryTable(false)
@@ -134,7 +141,10 @@ public class TestFeaturesConfig
                 .setDefaultFilterFactorEnabled(false)
                 .setExchangeCompressionCodec(CompressionCodec.NONE)
                 .setExchangeChecksumEnabled(false)
+                .setExchangeAdaptiveCompressionEnabled(false)
                 .setEnableIntermediateAggregations(false)
+                .setEnableLocalIntermediateAggregations(false)
+                .setLocalIntermediateAggregationsMaxGroups(10_000)
                 .setPushAggregationThroughJoin(true)
                 .setPushPartialAggregationThroughJoin(false)
                 .setPushSemiJoinThroughUnion(false)
@@ -145,6 +155,7 @@ public class TestFeaturesConfig
                 .setPushProjectionThroughCrossJoin(false)
                 .setForceSingleNodeOutput(true)
                 .setPagesIndexEagerCompactionEnabled(false)
+                .setPagesIndexNormalizedKeySortEnabled(false)
                 .setFilterAndProjectMinOutputPageSize(new DataSize(500, KILOBYTE))
                 .setFilterAndProjectMinOutputPageRowCount(256)
                 .setUseMarkDistinct(true)
@@ -192,6 +203,10 @@ public class TestFeaturesConfig
                 .setSpoolingOutputBufferEnabled(false)
                 .setSpoolingOutputBufferThreshold(new DataSize(8, MEGABYTE))
                 .setSpoolingOutputBufferTempStorage("local")
+                .setSpooledResultsEnabled(false)
+                .setSpooledResultsSegmentSize(new DataSize(8, MEGABYTE))
+                .setSpooledResultsMaxAge(new Duration(60, MINUTES))
+                .setSpooledResultsProxyEnabled(false)
                 .setPrestoSparkAssignBucketToPartitionForPartitionedTableWriteEnabled(false)
                 .setPartialResultsEnabled(false)
                 .setPartialResultsCompletionRatioThreshold(0.5)
@@ -287,6 +302,7 @@ public class TestFeaturesConfig
                 .setAddDistinctBelowSemiJoinBuild(false)
                 .setMergeMaxByMinByAggregationsEnabled(false)
                 .setTryFunctionCatchableErrors("")
+                .setAsyncRecordCursorReadsEnabled(false)
                 .setPushdownSubfieldForMapFunctions(true)
                 .setPushdownSubfieldForCardinality(false)
                 .setUtilizeUniquePropertyInQueryPlanning(true)
@@ -316,10 +332,12 @@ public class TestFeaturesConfig
                 .put("experimental.iterative-optimizer-enabled", "false")
                 .put("experimental.iterative-optimizer-timeout", "10s")
                 .put("experimental.runtime-optimizer-enabled", "true")
+                .put("experimental.runtime-optimizer-target-task-input-size", "256MB")
                 .put("enable-dynamic-filtering", "true")
                 .put("dynamic-filtering-max-per-driver-row-count", "256")
                 .put("dynamic-filtering-max-per-driver-size", "64kB")
                 .put("dynamic-filtering-range-row-limit-per-driver", "1000")
+                .put("experimental.dynamic-filtering-bloom-filter-size", "2MB")
                 .put("fragment-result-cache.enabled", "true")
                 .put("experimental.enable-stats-calculator", "false")
                 .put("experimental.enable-stats-collection-for-temporary-table", "true")
@@ -364,6 +382,8 @@ public class TestFeaturesConfig
                 .put("optimizer.optimize-mixed-distinct-aggregations", "true")
                 .put("optimizer.push-table-write-through-union", "false")
                 .put("optimizer.dictionary-aggregation", "true")
+                .put("experimental.flat-group-by-hash-enabled", "true")
+                .put("experimental.batched-join-probe-enabled", "true")
                 .put("optimizer.confidence-based-broadcast", "true")
                 .put("optimizer.retry-query-with-history-based-optimization", "true")
                 .put("optimizer.treat-low-confidence-zero-estimation-as-unknown", "true")
@@ -381,6 +401,8 @@ public class TestFeaturesConfig
                 .put("experimental.join-spill-enabled", "false")
                 .put("experimental.spiller-spill-path", "/tmp/custom/spill/path1,/tmp/custom/spill/path2")
                 .put("experimental.spiller-threads", "42")
+                .put("experimental.spiller-striping-enabled", "true")
+                .put("experimental.spiller-striping-buffer-size", "4MB")
                 .put("experimental.spiller-max-used-space-threshold", "0.8")
                 .put("experimental.memory-revoking-threshold", "0.2")
                 .put("experimental.memory-revoking-target", "0.8")
@@ -391,9 +413,13 @@ public class TestFeaturesConfig
                 .put("experimental.spiller.max-revocable-task-memory", "1GB")
                 .put("exchange.compression-codec", "LZ4")
                 .put("exchange.checksum-enabled", "true")
+                .put("exchange.adaptive-compression-enabled", "true")
                 .put("optimizer.enable-intermediate-aggregations", "true")
+                .put("optimizer.enable-local-intermediate-aggregations", "true")
+                .put("optimizer.local-intermediate-aggregations-max-groups", "1000")
                 .put("optimizer.force-single-node-output", "false")
                 .put("pages-index.eager-compaction-enabled", "true")
+                .put("pages-index.normalized-key-sort-enabled", "true")
                 .put("experimental.filter-and-project-min-output-page-size", "1MB")
                 .put("experimental.filter-and-project-min-output-page-row-count", "2048")
                 .put("optimizer.use-mark-distinct", "false")
@@ -440,6 +466,10 @@ public class TestFeaturesConfig
                 .put("spooling-output-buffer-enabled", "true")
                 .put("spooling-output-buffer-threshold", "16MB")
                 .put("spooling-output-buffer-temp-storage", "tempfs")
+                .put("spooled-results-enabled", "true")
+                .put("spooled-results-segment-size", "32MB")
+                .put("spooled-results-max-age", "10m")
+                .put("spooled-results-proxy-enabled", "true")
                 .put("spark.assign-bucket-to-partition-for-partitioned-table-write-enabled", "true")
                 .put("partial-results-enabled", "true")
                 .put("partial-results-completion-ratio-threshold", "0.9")
@@ -538,6 +568,7 @@ public class TestFeaturesConfig
                 .put("optimizer.add-distinct-below-semi-join-build", "true")
                 .put("optimizer.merge-max-by-and-min-by-aggregations", "true")
                 .put("try-function-catchable-errors", "GENERIC_INTERNAL_ERROR,INVALID_ARGUMENTS")
+                .put("async-record-cursor-reads-enabled", "true")
                 .put("optimizer.pushdown-subfield-for-map-functions", "false")
                 .put("optimizer.pushdown-subfield-for-cardinality", "true")
                 .put("optimizer.utilize-unique-property-in-query-planning", "false")
@@ -560,10 +591,12 @@ public class TestFeaturesConfig
                 .setIterativeOptimizerEnabled(false)
                 .setIterativeOptimizerTimeout(new Duration(10, SECONDS))
                 .setRuntimeOptimizerEnabled(true)
+                .setRuntimeOptimizerTargetTaskInputSize(new DataSize(256, MEGABYTE))
                 .setEnableDynamicFiltering(true)
                 .setDynamicFilteringMaxPerDriverRowCount(256)
                 .setDynamicFilteringMaxPerDriverSize(new DataSize(64, KILOBYTE))
                 .setDynamicFilteringRangeRowLimitPerDriver(1000)
+                .setDynamicFilteringBloomFilterSize(new DataSize(2, MEGABYTE))
                 .setFragmentResultCachingEnabled(true)
                 .setEnableStatsCalculator(false)
                 .setEnableStatsCollectionForTemporaryTable(true)
@@ -607,6 +640,8 @@ public class TestFeaturesConfig
                 .setOptimizeMixedDistinctAggregations(true)
                 .setPushTableWriteThroughUnion(false)
                 .setDictionaryAggregation(true)
+                .setFlatGroupByHashEnabled(true)
+                .setBatchedJoinProbeEnabled(true)
                 .setConfidenceBasedBroadcastEnabled(true)
                 .setRetryQueryWithHistoryBasedOptimizationEnabled(true)
                 .setTreatLowConfidenceZeroEstimationAsUnknownEnabled(true)
@@ -622,6 +657,8 @@ public class TestFeaturesConfig
                 .setJoinSpillingEnabled(false)
                 .setSpillerSpillPaths("/tmp/custom/spill/path1,/tmp/custom/spill/path2")
                 .setSpillerThreads(42)
+                .setSpillerStripingEnabled(true)
+                .setSpillerStripingBufferSize(new DataSize(4, MEGABYTE))
                 .setSpillMaxUsedSpaceThreshold(0.8)
                 .setMemoryRevokingThreshold(0.2)
                 .setMemoryRevokingTarget(0.8)
@@ -632,9 +669,13 @@ public class TestFeaturesConfig
                 .setMaxRevocableMemoryPerTask(new DataSize(1, GIGABYTE))
                 .setExchangeCompressionCodec(CompressionCodec.LZ4)
                 .setExchangeChecksumEnabled(true)
+                .setExchangeAdaptiveCompressionEnabled(true)
                 .setEnableIntermediateAggregations(true)
+                .setEnableLocalIntermediateAggregations(true)
+                .setLocalIntermediateAggregationsMaxGroups(1000)
                 .setForceSingleNodeOutput(false)
                 .setPagesIndexEagerCompactionEnabled(true)
+                .setPagesIndexNormalizedKeySortEnabled(true)
                 .setFilterAndProjectMinOutputPageSize(new DataSize(1, MEGABYTE))
                 .setFilterAndProjectMinOutputPageRowCount(2048)
                 .setUseMarkDistinct(false)
@@ -684,6 +725,10 @@ public class TestFeaturesConfig
                 .setSpoolingOutputBufferEnabled(true)
                 .setSpoolingOutputBufferThreshold(new DataSize(16, MEGABYTE))
                 .setSpoolingOutputBufferTempStorage("tempfs")
+                .setSpooledResultsEnabled(true)
+                .setSpooledResultsSegmentSize(new DataSize(32, MEGABYTE))
+                .setSpooledResultsMaxAge(new Duration(10, MINUTES))
+                .setSpooledResultsProxyEnabled(true)
                 .setPrestoSparkAssignBucketToPartitionForPartitionedTableWriteEnabled(true)
                 .setPartialResultsEnabled(true)
                 .setPartialResultsCompletionRatioThreshold(0.9)
@@ -779,6 +824,7 @@ public class TestFeaturesConfig
                 .setAddDistinctBelowSemiJoinBuild(true)
                 .setMergeMaxByMinByAggregationsEnabled(true)
                 .setTryFunctionCatchableErrors("GENERIC_INTERNAL_ERROR,INVALID_ARGUMENTS")
+                .setAsyncRecordCursorReadsEnabled(true)
                 .setPushdownSubfieldForMapFunctions(false)
                 .setPushdownSubfieldForCardinality(true)
                 .setUtilizeUniquePropertyInQueryPlanning(false)
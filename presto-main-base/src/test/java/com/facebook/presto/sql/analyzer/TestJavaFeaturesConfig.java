@@ -36,6 +36,11 @@ public class TestJavaFeaturesConfig
                 .setDistinctAggregationLargeBlockSizeThreshold(DataSize.valueOf("50MB"))
                 .setOrderByAggregationSpillEnabled(true)
                 .setWindowSpillEnabled(true)
+                .setWindowSpillStreamingEnabled(true)
+                .setHashBuildParallelism(1)
+                .setHashBuildThreads(4)
+                .setMarkDistinctSpillEnabled(true)
+                .setRowNumberSpillEnabled(true)
                 .setOrderBySpillEnabled(true)
                 .setTopNSpillEnabled(true)
                 .setAggregationOperatorUnspillMemoryLimit(DataSize.valueOf("4MB"))
@@ -53,6 +58,11 @@ public class TestJavaFeaturesConfig
                 .put("experimental.distinct-aggregation-large-block-size-threshold", "10MB")
                 .put("experimental.order-by-aggregation-spill-enabled", "false")
                 .put("experimental.window-spill-enabled", "false")
+                .put("experimental.window-spill-streaming-enabled", "false")
+                .put("experimental.hash-build-parallelism", "8")
+                .put("experimental.hash-build-threads", "16")
+                .put("experimental.mark-distinct-spill-enabled", "false")
+                .put("experimental.row-number-spill-enabled", "false")
                 .put("experimental.order-by-spill-enabled", "false")
                 .put("experimental.topn-spill-enabled", "false")
                 .put("experimental.aggregation-operator-unspill-memory-limit", "100MB")
@@ -67,6 +77,11 @@ public class TestJavaFeaturesConfig
                 .setDistinctAggregationLargeBlockSizeThreshold(DataSize.valueOf("10MB"))
                 .setOrderByAggregationSpillEnabled(false)
                 .setWindowSpillEnabled(false)
+                .setWindowSpillStreamingEnabled(false)
+                .setHashBuildParallelism(8)
+                .setHashBuildThreads(16)
+                .setMarkDistinctSpillEnabled(false)
+                .setRowNumberSpillEnabled(false)
                 .setOrderBySpillEnabled(false)
                 .setTopNSpillEnabled(false)
                 .setAggregationOperatorUnspillMemoryLimit(DataSize.valueOf("100MB"))
@@ -0,0 +1,172 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.airlift.units.DataSize;
+import com.facebook.presto.operator.PagesIndexOrdering;
+import com.facebook.presto.operator.SimplePagesIndexComparator;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.facebook.airlift.units.DataSize.Unit.BYTE;
+import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
+import static com.facebook.presto.common.block.SortOrder.ASC_NULLS_FIRST;
+import static com.facebook.presto.common.block.SortOrder.DESC_NULLS_LAST;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.file.Files.createTempDirectory;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.list;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.write;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestGeneratedClassCache
+{
+    private static final String VERSION = "testversion";
+    private static final DataSize MAX_SIZE = new DataSize(1, MEGABYTE);
+
+    @Test
+    public void testClassesAreLoadedFromCacheAfterRestart()
+            throws Exception
+    {
+        Path directory = createTempDirectory("generated-classes");
+        try {
+            GeneratedClassCache cache = new GeneratedClassCache(Optional.of(directory), VERSION, MAX_SIZE);
+            assertCompiled(new OrderingCompiler(cache).internalCompilePagesIndexOrdering(ImmutableList.of(BIGINT), ImmutableList.of(0), ImmutableList.of(ASC_NULLS_FIRST)));
+            assertEquals(cache.getMisses().getTotalCount(), 1);
+            assertEquals(cache.getHits().getTotalCount(), 0);
+            assertEquals(countFiles(directory.resolve(VERSION)), 1);
+
+            // a new cache over the same directory, as after a restart
+            GeneratedClassCache restartedCache = new GeneratedClassCache(Optional.of(directory), VERSION, MAX_SIZE);
+            OrderingCompiler compiler = new OrderingCompiler(restartedCache);
+            assertCompiled(compiler.internalCompilePagesIndexOrdering(ImmutableList.of(BIGINT), ImmutableList.of(0), ImmutableList.of(ASC_NULLS_FIRST)));
+            assertEquals(restartedCache.getHits().getTotalCount(), 1);
+            assertEquals(restartedCache.getMisses().getTotalCount(), 0);
+
+            assertCompiled(compiler.internalCompilePagesIndexOrdering(ImmutableList.of(BIGINT), ImmutableList.of(0), ImmutableList.of(DESC_NULLS_LAST)));
+            assertEquals(restartedCache.getMisses().getTotalCount(), 1);
+            assertEquals(countFiles(directory.resolve(VERSION)), 2);
+            assertEquals(restartedCache.getFailures().getTotalCount(), 0);
+        }
+        finally {
+            deleteRecursively(directory, ALLOW_INSECURE);
+        }
+    }
+
+    @Test
+    public void testChecksumMismatch()
+            throws Exception
+    {
+        Path directory = createTempDirectory("generated-classes");
+        try {
+            GeneratedClassCache cache = new GeneratedClassCache(Optional.of(directory), VERSION, MAX_SIZE);
+            cache.put("key", new byte[] {1, 2, 3});
+            assertEquals(cache.get("key").get(), new byte[] {1, 2, 3});
+
+            // corrupt the bytecode of the entry
+            Path entry = directory.resolve(VERSION).resolve("key.class");
+            byte[] bytes = readAllBytes(entry);
+            bytes[bytes.length - 1] = 4;
+            write(entry, bytes);
+
+            assertFalse(cache.get("key").isPresent());
+            assertEquals(cache.getChecksumMismatches().getTotalCount(), 1);
+            assertFalse(exists(entry));
+
+            // the regenerated class replaces the entry
+            cache.put("key", new byte[] {1, 2, 3});
+            assertEquals(cache.get("key").get(), new byte[] {1, 2, 3});
+        }
+        finally {
+            deleteRecursively(directory, ALLOW_INSECURE);
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted()
+            throws Exception
+    {
+        Path directory = createTempDirectory("generated-classes");
+        try {
+            // each entry takes 32 bytes of checksum and 40 bytes of bytecode, so only two of them fit
+            GeneratedClassCache cache = new GeneratedClassCache(Optional.of(directory), VERSION, new DataSize(150, BYTE));
+            cache.put("first", new byte[40]);
+            cache.put("second", new byte[40]);
+            assertTrue(cache.get("first").isPresent());
+
+            cache.put("third", new byte[40]);
+            assertEquals(cache.getEvictions().getTotalCount(), 1);
+            assertEquals(cache.getSizeInBytes(), 144);
+            assertTrue(cache.get("first").isPresent());
+            assertFalse(cache.get("second").isPresent());
+            assertTrue(cache.get("third").isPresent());
+            assertEquals(countFiles(directory.resolve(VERSION)), 2);
+
+            // the bound also applies to the entries found after a restart
+            GeneratedClassCache restartedCache = new GeneratedClassCache(Optional.of(directory), VERSION, new DataSize(100, BYTE));
+            assertEquals(restartedCache.getEntryCount(), 1);
+            assertEquals(countFiles(directory.resolve(VERSION)), 1);
+        }
+        finally {
+            deleteRecursively(directory, ALLOW_INSECURE);
+        }
+    }
+
+    @Test
+    public void testOtherVersionsAreRemoved()
+            throws Exception
+    {
+        Path directory = createTempDirectory("generated-classes");
+        try {
+            new GeneratedClassCache(Optional.of(directory), "0.1", MAX_SIZE).put("key", new byte[] {1});
+            GeneratedClassCache cache = new GeneratedClassCache(Optional.of(directory), "0.2", MAX_SIZE);
+            assertFalse(exists(directory.resolve("0.1")));
+            assertTrue(exists(directory.resolve("0.2")));
+            assertFalse(cache.get("key").isPresent());
+        }
+        finally {
+            deleteRecursively(directory, ALLOW_INSECURE);
+        }
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        assertFalse(GeneratedClassCache.disabled().getBytecodeCache().isPresent());
+        assertFalse(GeneratedClassCache.disabled().get("key").isPresent());
+    }
+
+    // the ordering compiler falls back to an interpreted comparator when compilation fails
+    private static void assertCompiled(PagesIndexOrdering ordering)
+    {
+        assertFalse(ordering.getComparator() instanceof SimplePagesIndexComparator);
+    }
+
+    private static long countFiles(Path directory)
+            throws Exception
+    {
+        try (Stream<Path> files = list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -239,6 +239,41 @@ public class TestPageFunctionCompiler
         assertEquals(positions.getPositions(), new int[] {2, 3, 4});
     }
 
+    @Test(timeOut = 60_000)
+    public void testTieredCompilation()
+            throws InterruptedException
+    {
+        PageFunctionCompiler functionCompiler = new PageFunctionCompiler(createTestMetadataManager(), 100, true, 1);
+        try {
+            PageProjection projection = functionCompiler.compileProjection(SESSION.getSqlFunctionProperties(), ADD_X_Y_Z, Optional.empty()).get();
+            PageFilter pageFilter = functionCompiler.compileFilter(SESSION.getSqlFunctionProperties(), new SpecialFormExpression(AND, BOOLEAN, ADD_X_Y_GREATER_THAN_2, ADD_X_Y_LESS_THAN_10), false, Optional.empty()).get();
+
+            // the results are the same while interpreted and once compiled
+            Page input = createLongBlockPage(3, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+            while (functionCompiler.getInterpretedToCompiledSwaps().getTotalCount() < 2) {
+                Block result = project(projection, input, SelectedPositions.positionsList(new int[] {1, 3, 5}, 0, 3)).get(0);
+                assertEquals(result.getPositionCount(), 3);
+                assertEquals(BIGINT.getLong(result, 0), 3);
+                assertEquals(BIGINT.getLong(result, 1), 9);
+                assertEquals(BIGINT.getLong(result, 2), 15);
+
+                SelectedPositions positions = filter(pageFilter, input);
+                assertEquals(positions.size(), 3);
+                assertEquals(positions.getPositions(), new int[] {2, 3, 4});
+                Thread.sleep(10);
+            }
+            assertEquals(functionCompiler.getBackgroundCompilationFailures().getTotalCount(), 0);
+
+            // once compiled, the generated projection is returned directly
+            Work<List<Block>> work = functionCompiler.compileProjection(SESSION.getSqlFunctionProperties(), ADD_X_Y_Z, Optional.empty()).get()
+                    .project(SESSION.getSqlFunctionProperties(), new DriverYieldSignal(), input, SelectedPositions.positionsRange(0, 1));
+            assertTrue(work.getClass().getSimpleName().startsWith("PageProjectionWork"));
+        }
+        finally {
+            functionCompiler.destroy();
+        }
+    }
+
     private void checkBlockEqual(Block a, Block b)
     {
         assertEquals(a.getPositionCount(), b.getPositionCount());
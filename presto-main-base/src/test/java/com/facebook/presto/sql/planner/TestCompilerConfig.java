@@ -13,14 +13,18 @@
  */
 package com.facebook.presto.sql.planner;
 
+import com.facebook.airlift.units.DataSize;
 import com.google.common.collect.ImmutableMap;
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.util.Map;
 
 import static com.facebook.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
 import static com.facebook.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
 import static com.facebook.airlift.configuration.testing.ConfigAssertions.recordDefaults;
+import static com.facebook.airlift.units.DataSize.Unit.GIGABYTE;
+import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
 
 public class TestCompilerConfig
 {
@@ -30,7 +34,11 @@ public class TestCompilerConfig
         assertRecordedDefaults(recordDefaults(CompilerConfig.class)
                 .setExpressionCacheSize(10_000)
                 .setLeafNodeLimitEnabled(false)
-                .setLeafNodeLimit(10_000));
+                .setLeafNodeLimit(10_000)
+                .setTieredCompilationEnabled(false)
+                .setBackgroundCompilationThreads(2)
+                .setGeneratedClassCacheDirectory(null)
+                .setGeneratedClassCacheMaxSize(new DataSize(1, GIGABYTE)));
     }
 
     @Test
@@ -40,12 +48,20 @@ public class TestCompilerConfig
                 .put("compiler.expression-cache-size", "52")
                 .put("planner.max-leaf-nodes-in-plan", "100")
                 .put("planner.leaf-node-limit-enabled", "true")
+                .put("compiler.tiered-compilation-enabled", "true")
+                .put("compiler.background-compilation-threads", "4")
+                .put("compiler.generated-class-cache-dir", "/tmp/presto-generated-classes")
+                .put("compiler.generated-class-cache-max-size", "256MB")
                 .build();
 
         CompilerConfig expected = new CompilerConfig()
                 .setExpressionCacheSize(52)
                 .setLeafNodeLimit(100)
-                .setLeafNodeLimitEnabled(true);
+                .setLeafNodeLimitEnabled(true)
+                .setTieredCompilationEnabled(true)
+                .setBackgroundCompilationThreads(4)
+                .setGeneratedClassCacheDirectory(new File("/tmp/presto-generated-classes"))
+                .setGeneratedClassCacheMaxSize(new DataSize(256, MEGABYTE));
 
         assertFullMapping(properties, expected);
     }
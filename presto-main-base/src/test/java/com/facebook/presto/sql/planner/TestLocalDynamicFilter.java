@@ -16,7 +16,10 @@ package com.facebook.presto.sql.planner;
 
 import com.facebook.presto.Session;
 import com.facebook.presto.common.predicate.Domain;
+import com.facebook.presto.common.predicate.Range;
 import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.predicate.ValueBloomFilter;
+import com.facebook.presto.common.predicate.ValueSet;
 import com.facebook.presto.expressions.DynamicFilters.DynamicFilterPlaceholder;
 import com.facebook.presto.spi.plan.JoinNode;
 import com.facebook.presto.spi.relation.VariableReferenceExpression;
@@ -46,6 +49,7 @@ import static com.facebook.presto.common.type.IntegerType.INTEGER;
 import static com.facebook.presto.testing.assertions.Assert.assertEquals;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class TestLocalDynamicFilter
         extends BasePlanTest
@@ -123,6 +127,64 @@ public class TestLocalDynamicFilter
                 new VariableReferenceExpression(Optional.empty(), "a", INTEGER), Domain.multipleValues(INTEGER, ImmutableList.of(10L, 20L)))));
     }
 
+    @Test
+    public void testBloomFilters()
+            throws ExecutionException, InterruptedException
+    {
+        VariableReferenceExpression probeVariable = new VariableReferenceExpression(Optional.empty(), "a", BIGINT);
+        LocalDynamicFilter filter = new LocalDynamicFilter(
+                ImmutableMultimap.of("123", new DynamicFilterPlaceholder("123", probeVariable, EQUAL)),
+                ImmutableMap.of("123", 0),
+                2,
+                true);
+        ListenableFuture<Map<VariableReferenceExpression, ValueBloomFilter>> bloomFilters = filter.getBloomFiltersFuture();
+
+        // the first partition collected the exact values
+        filter.getTupleDomainConsumer().accept(TupleDomain.withColumnDomains(ImmutableMap.of(
+                "123", Domain.singleValue(BIGINT, 10L))));
+        filter.getBloomFilterConsumer().accept(ImmutableMap.of());
+        assertFalse(bloomFilters.isDone());
+
+        // the second partition exceeded the limits and only collected the range and a Bloom filter
+        ValueBloomFilter bloomFilter = new ValueBloomFilter(BIGINT, 1024);
+        bloomFilter.addValue(20L);
+        bloomFilter.addValue(30L);
+        filter.getTupleDomainConsumer().accept(TupleDomain.withColumnDomains(ImmutableMap.of(
+                "123", Domain.create(ValueSet.ofRanges(Range.range(BIGINT, 20L, true, 30L, true)), false))));
+        filter.getBloomFilterConsumer().accept(ImmutableMap.of("123", bloomFilter));
+
+        assertEquals(filter.getResultFuture().get(), TupleDomain.withColumnDomains(ImmutableMap.of(
+                probeVariable, Domain.create(ValueSet.ofRanges(Range.equal(BIGINT, 10L), Range.range(BIGINT, 20L, true, 30L, true)), false))));
+        ValueBloomFilter result = bloomFilters.get().get(probeVariable);
+        assertTrue(result.mightContain(10L));
+        assertTrue(result.mightContain(20L));
+        assertTrue(result.mightContain(30L));
+        assertFalse(result.mightContain(25L));
+    }
+
+    @Test
+    public void testBloomFiltersIncomplete()
+            throws ExecutionException, InterruptedException
+    {
+        VariableReferenceExpression probeVariable = new VariableReferenceExpression(Optional.empty(), "a", BIGINT);
+        LocalDynamicFilter filter = new LocalDynamicFilter(
+                ImmutableMultimap.of("123", new DynamicFilterPlaceholder("123", probeVariable, EQUAL)),
+                ImmutableMap.of("123", 0),
+                2,
+                true);
+
+        ValueBloomFilter bloomFilter = new ValueBloomFilter(BIGINT, 1024);
+        bloomFilter.addValue(20L);
+        filter.getTupleDomainConsumer().accept(TupleDomain.all());
+        filter.getBloomFilterConsumer().accept(ImmutableMap.of());
+        filter.getTupleDomainConsumer().accept(TupleDomain.withColumnDomains(ImmutableMap.of(
+                "123", Domain.create(ValueSet.ofRanges(Range.range(BIGINT, 20L, true, 30L, true)), false))));
+        filter.getBloomFilterConsumer().accept(ImmutableMap.of("123", bloomFilter));
+
+        // the first partition provided neither exact values nor a Bloom filter
+        assertEquals(filter.getBloomFiltersFuture().get(), ImmutableMap.of());
+    }
+
     @Test
     public void testNone()
             throws ExecutionException, InterruptedException
@@ -0,0 +1,200 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.client.NodeVersion;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.dispatcher.NoOpQueryManager;
+import com.facebook.presto.execution.NodeTaskMap;
+import com.facebook.presto.execution.scheduler.BucketNodeMap;
+import com.facebook.presto.execution.scheduler.LegacyNetworkTopology;
+import com.facebook.presto.execution.scheduler.NodeScheduler;
+import com.facebook.presto.execution.scheduler.NodeSchedulerConfig;
+import com.facebook.presto.execution.scheduler.nodeSelection.NodeSelectionStats;
+import com.facebook.presto.execution.scheduler.nodeSelection.SimpleTtlNodeSelectorConfig;
+import com.facebook.presto.metadata.InMemoryNodeManager;
+import com.facebook.presto.metadata.InternalNode;
+import com.facebook.presto.spi.BucketFunction;
+import com.facebook.presto.spi.ConnectorId;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.ConnectorSplit;
+import com.facebook.presto.spi.Node;
+import com.facebook.presto.spi.connector.ConnectorBucketNodeMap;
+import com.facebook.presto.spi.connector.ConnectorNodePartitioningProvider;
+import com.facebook.presto.spi.connector.ConnectorPartitioningHandle;
+import com.facebook.presto.spi.connector.ConnectorTransactionHandle;
+import com.facebook.presto.spi.plan.PartitioningHandle;
+import com.facebook.presto.spi.schedule.NodeSelectionStrategy;
+import com.facebook.presto.testing.TestingTransactionHandle;
+import com.facebook.presto.ttl.nodettlfetchermanagers.ThrowingNodeTtlFetcherManager;
+import com.facebook.presto.util.FinalizerService;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.ToIntFunction;
+
+import static com.facebook.presto.spi.connector.ConnectorBucketNodeMap.createBucketNodeMap;
+import static com.facebook.presto.spi.schedule.NodeSelectionStrategy.HARD_AFFINITY;
+import static com.facebook.presto.spi.schedule.NodeSelectionStrategy.NO_PREFERENCE;
+import static com.facebook.presto.spi.schedule.NodeSelectionStrategy.SOFT_AFFINITY;
+import static com.facebook.presto.sql.planner.SystemPartitioningHandle.FIXED_HASH_DISTRIBUTION;
+import static com.facebook.presto.testing.TestingSession.testSessionBuilder;
+import static java.util.Locale.ENGLISH;
+import static java.util.Objects.requireNonNull;
+import static org.testng.Assert.assertEquals;
+
+public class TestNodePartitioningManager
+{
+    private static final int BUCKET_COUNT = 6;
+    private static final List<NodeSelectionStrategy> STRATEGIES = ImmutableList.of(HARD_AFFINITY, SOFT_AFFINITY, NO_PREFERENCE);
+
+    private final Session session = testSessionBuilder().build();
+    private final List<InternalNode> nodes = ImmutableList.of(
+            new InternalNode("node1", URI.create("http://127.0.0.1:11"), NodeVersion.UNKNOWN, false),
+            new InternalNode("node2", URI.create("http://127.0.0.1:12"), NodeVersion.UNKNOWN, false),
+            new InternalNode("node3", URI.create("http://127.0.0.1:13"), NodeVersion.UNKNOWN, false));
+
+    private FinalizerService finalizerService;
+    private NodePartitioningManager nodePartitioningManager;
+
+    @BeforeClass
+    public void setUp()
+    {
+        finalizerService = new FinalizerService();
+        finalizerService.start();
+        InMemoryNodeManager nodeManager = new InMemoryNodeManager();
+        PartitioningProviderManager partitioningProviderManager = new PartitioningProviderManager();
+        for (NodeSelectionStrategy strategy : STRATEGIES) {
+            nodeManager.addNode(getConnectorId(strategy), nodes);
+            partitioningProviderManager.addPartitioningProvider(getConnectorId(strategy), new TestingNodePartitioningProvider(strategy));
+        }
+        NodeScheduler nodeScheduler = new NodeScheduler(
+                new LegacyNetworkTopology(),
+                nodeManager,
+                new NodeSelectionStats(),
+                new NodeSchedulerConfig().setIncludeCoordinator(false),
+                new NodeTaskMap(finalizerService),
+                new ThrowingNodeTtlFetcherManager(),
+                new NoOpQueryManager(),
+                new SimpleTtlNodeSelectorConfig());
+        nodePartitioningManager = new NodePartitioningManager(nodeScheduler, partitioningProviderManager, new NodeSelectionStats());
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        finalizerService.destroy();
+    }
+
+    @Test
+    public void testFixedNodeAffinityIgnoresMaxTasksPerStage()
+    {
+        // the connector places the buckets, so coalescing can not move them onto fewer nodes
+        for (NodeSelectionStrategy strategy : ImmutableList.of(HARD_AFFINITY, SOFT_AFFINITY)) {
+            PartitioningHandle partitioningHandle = createPartitioningHandle(strategy);
+
+            NodePartitionMap nodePartitionMap = nodePartitioningManager.getNodePartitioningMap(session, partitioningHandle, Optional.empty(), 1);
+            assertEquals(nodePartitionMap.getPartitionToNode(), nodes, strategy.toString());
+
+            BucketNodeMap bucketNodeMap = nodePartitioningManager.getBucketNodeMap(session, partitioningHandle, false, 1);
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                assertEquals(bucketNodeMap.getAssignedNode(bucket), Optional.of(nodes.get(bucket % nodes.size())), strategy.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testNoPreferenceLimitedByMaxTasksPerStage()
+    {
+        PartitioningHandle partitioningHandle = createPartitioningHandle(NO_PREFERENCE);
+
+        assertEquals(nodePartitioningManager.getNodePartitioningMap(session, partitioningHandle, Optional.empty(), 1).getPartitionToNode().size(), 1);
+        assertEquals(nodePartitioningManager.getNodePartitioningMap(session, partitioningHandle, Optional.empty(), 2).getPartitionToNode().size(), 2);
+        assertEquals(nodePartitioningManager.getNodePartitioningMap(session, partitioningHandle, Optional.empty(), 100).getPartitionToNode().size(), nodes.size());
+
+        BucketNodeMap bucketNodeMap = nodePartitioningManager.getBucketNodeMap(session, partitioningHandle, false, 1);
+        for (int bucket = 1; bucket < BUCKET_COUNT; bucket++) {
+            assertEquals(bucketNodeMap.getAssignedNode(bucket), bucketNodeMap.getAssignedNode(0));
+        }
+    }
+
+    @Test
+    public void testFixedHashDistributionLimitedByMaxTasksPerStage()
+    {
+        assertEquals(nodePartitioningManager.getNodePartitioningMap(session, FIXED_HASH_DISTRIBUTION, Optional.empty(), 1).getPartitionToNode().size(), 1);
+        assertEquals(nodePartitioningManager.getNodePartitioningMap(session, FIXED_HASH_DISTRIBUTION, Optional.empty(), 2).getPartitionToNode().size(), 2);
+    }
+
+    private static ConnectorId getConnectorId(NodeSelectionStrategy strategy)
+    {
+        return new ConnectorId("test_" + strategy.name().toLowerCase(ENGLISH));
+    }
+
+    private static PartitioningHandle createPartitioningHandle(NodeSelectionStrategy strategy)
+    {
+        return new PartitioningHandle(
+                Optional.of(getConnectorId(strategy)),
+                Optional.of(TestingTransactionHandle.create()),
+                new ConnectorPartitioningHandle() {
+                });
+    }
+
+    private static class TestingNodePartitioningProvider
+            implements ConnectorNodePartitioningProvider
+    {
+        private final NodeSelectionStrategy strategy;
+
+        public TestingNodePartitioningProvider(NodeSelectionStrategy strategy)
+        {
+            this.strategy = requireNonNull(strategy, "strategy is null");
+        }
+
+        @Override
+        public ConnectorBucketNodeMap getBucketNodeMap(ConnectorTransactionHandle transactionHandle, ConnectorSession session, ConnectorPartitioningHandle partitioningHandle, List<Node> sortedNodes)
+        {
+            if (strategy == NO_PREFERENCE) {
+                return createBucketNodeMap(BUCKET_COUNT);
+            }
+            ImmutableList.Builder<Node> bucketToNode = ImmutableList.builder();
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                bucketToNode.add(sortedNodes.get(bucket % sortedNodes.size()));
+            }
+            return createBucketNodeMap(bucketToNode.build(), strategy);
+        }
+
+        @Override
+        public ToIntFunction<ConnectorSplit> getSplitBucketFunction(ConnectorTransactionHandle transactionHandle, ConnectorSession session, ConnectorPartitioningHandle partitioningHandle)
+        {
+            return split -> 0;
+        }
+
+        @Override
+        public BucketFunction getBucketFunction(ConnectorTransactionHandle transactionHandle, ConnectorSession session, ConnectorPartitioningHandle partitioningHandle, List<Type> partitionChannelTypes, int bucketCount)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getBucketCount(ConnectorTransactionHandle transactionHandle, ConnectorSession session, ConnectorPartitioningHandle partitioningHandle)
+        {
+            return BUCKET_COUNT;
+        }
+    }
+}
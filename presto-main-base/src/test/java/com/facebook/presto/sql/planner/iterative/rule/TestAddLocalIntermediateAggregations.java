@@ -0,0 +1,143 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner.iterative.rule;
+
+import com.facebook.presto.cost.PlanNodeStatsEstimate;
+import com.facebook.presto.spi.plan.PlanNode;
+import com.facebook.presto.spi.plan.PlanNodeId;
+import com.facebook.presto.spi.relation.VariableReferenceExpression;
+import com.facebook.presto.sql.planner.assertions.ExpectedValueProvider;
+import com.facebook.presto.sql.planner.assertions.PlanMatchPattern;
+import com.facebook.presto.sql.planner.iterative.rule.test.BaseRuleTest;
+import com.facebook.presto.sql.planner.iterative.rule.test.PlanBuilder;
+import com.facebook.presto.sql.tree.FunctionCall;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import static com.facebook.presto.SystemSessionProperties.ENABLE_LOCAL_INTERMEDIATE_AGGREGATIONS;
+import static com.facebook.presto.SystemSessionProperties.LOCAL_INTERMEDIATE_AGGREGATIONS_MAX_GROUPS;
+import static com.facebook.presto.SystemSessionProperties.TASK_CONCURRENCY;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.plan.AggregationNode.Step.FINAL;
+import static com.facebook.presto.spi.plan.AggregationNode.Step.INTERMEDIATE;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.aggregation;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.anySymbol;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.exchange;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.singleGroupingSet;
+import static com.facebook.presto.sql.planner.assertions.PlanMatchPattern.values;
+import static com.facebook.presto.sql.planner.plan.ExchangeNode.Scope.LOCAL;
+import static com.facebook.presto.sql.planner.plan.ExchangeNode.Type.REPARTITION;
+
+public class TestAddLocalIntermediateAggregations
+        extends BaseRuleTest
+{
+    private static final Function<PlanBuilder, PlanNode> FINAL_OVER_LOCAL_EXCHANGE = p -> {
+        VariableReferenceExpression key = p.variable("key", BIGINT);
+        VariableReferenceExpression partial = p.variable("partial", BIGINT);
+        return p.aggregation(af -> af.singleGroupingSet(key)
+                .step(FINAL)
+                .setPlanNodeId(new PlanNodeId("final"))
+                .addAggregation(p.variable("total", BIGINT), p.rowExpression("sum(partial)"))
+                .source(p.exchange(e -> e
+                        .scope(LOCAL)
+                        .type(REPARTITION)
+                        .fixedHashDistributionPartitioningScheme(ImmutableList.of(key, partial), ImmutableList.of(key))
+                        .addInputsSet(key, partial)
+                        .addSource(p.values(key, partial)))));
+    };
+
+    @Test
+    public void testFewGroups()
+    {
+        ExpectedValueProvider<FunctionCall> aggregationPattern = PlanMatchPattern.functionCall("sum", false, ImmutableList.of(anySymbol()));
+
+        tester().assertThat(new AddLocalIntermediateAggregations())
+                .setSystemProperty(ENABLE_LOCAL_INTERMEDIATE_AGGREGATIONS, "true")
+                .setSystemProperty(TASK_CONCURRENCY, "4")
+                .on(FINAL_OVER_LOCAL_EXCHANGE)
+                .overrideStats("final", groups(100))
+                .matches(
+                        aggregation(
+                                singleGroupingSet("key"),
+                                ImmutableMap.of(Optional.empty(), aggregationPattern),
+                                ImmutableMap.of(),
+                                Optional.empty(),
+                                FINAL,
+                                exchange(LOCAL, REPARTITION,
+                                        aggregation(
+                                                singleGroupingSet("key"),
+                                                ImmutableMap.of(Optional.empty(), aggregationPattern),
+                                                ImmutableMap.of(),
+                                                Optional.empty(),
+                                                INTERMEDIATE,
+                                                exchange(LOCAL, REPARTITION,
+                                                        values("key", "partial"))))));
+    }
+
+    @Test
+    public void testTooManyGroups()
+    {
+        tester().assertThat(new AddLocalIntermediateAggregations())
+                .setSystemProperty(ENABLE_LOCAL_INTERMEDIATE_AGGREGATIONS, "true")
+                .setSystemProperty(LOCAL_INTERMEDIATE_AGGREGATIONS_MAX_GROUPS, "100")
+                .setSystemProperty(TASK_CONCURRENCY, "4")
+                .on(FINAL_OVER_LOCAL_EXCHANGE)
+                .overrideStats("final", groups(1000))
+                .doesNotFire();
+    }
+
+    @Test
+    public void testUnknownGroups()
+    {
+        tester().assertThat(new AddLocalIntermediateAggregations())
+                .setSystemProperty(ENABLE_LOCAL_INTERMEDIATE_AGGREGATIONS, "true")
+                .setSystemProperty(TASK_CONCURRENCY, "4")
+                .on(FINAL_OVER_LOCAL_EXCHANGE)
+                .overrideStats("final", PlanNodeStatsEstimate.unknown())
+                .doesNotFire();
+    }
+
+    @Test
+    public void testSingleDriver()
+    {
+        tester().assertThat(new AddLocalIntermediateAggregations())
+                .setSystemProperty(ENABLE_LOCAL_INTERMEDIATE_AGGREGATIONS, "true")
+                .setSystemProperty(TASK_CONCURRENCY, "1")
+                .on(FINAL_OVER_LOCAL_EXCHANGE)
+                .overrideStats("final", groups(100))
+                .doesNotFire();
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        tester().assertThat(new AddLocalIntermediateAggregations())
+                .setSystemProperty(ENABLE_LOCAL_INTERMEDIATE_AGGREGATIONS, "false")
+                .setSystemProperty(TASK_CONCURRENCY, "4")
+                .on(FINAL_OVER_LOCAL_EXCHANGE)
+                .overrideStats("final", groups(100))
+                .doesNotFire();
+    }
+
+    private static PlanNodeStatsEstimate groups(double count)
+    {
+        return PlanNodeStatsEstimate.builder()
+                .setOutputRowCount(count)
+                .build();
+    }
+}
@@ -75,6 +75,7 @@ import com.facebook.presto.execution.TaskManagerConfig;
 import com.facebook.presto.execution.TaskSource;
 import com.facebook.presto.execution.TaskStatus;
 import com.facebook.presto.execution.TaskThresholdMemoryRevokingScheduler;
+import com.facebook.presto.execution.buffer.SpooledResultsManager;
 import com.facebook.presto.execution.buffer.SpoolingOutputBufferFactory;
 import com.facebook.presto.execution.executor.MultilevelSplitQueue;
 import com.facebook.presto.execution.executor.TaskExecutor;
@@ -160,6 +161,7 @@ import com.facebook.presto.resourcemanager.ResourceManagerInconsistentException;
 import com.facebook.presto.resourcemanager.ResourceManagerResourceGroupService;
 import com.facebook.presto.server.remotetask.DecompressionFilter;
 import com.facebook.presto.server.remotetask.HttpLocationFactory;
+import com.facebook.presto.server.remotetask.ReactorNettyExchangeHttpClientProvider;
 import com.facebook.presto.server.remotetask.ReactorNettyHttpClientConfig;
 import com.facebook.presto.server.thrift.FixedAddressSelector;
 import com.facebook.presto.server.thrift.HandleThriftModule;
@@ -226,6 +228,7 @@ import com.facebook.presto.sql.analyzer.QueryPreparerProviderManager;
 import com.facebook.presto.sql.expressions.ExpressionOptimizerManager;
 import com.facebook.presto.sql.expressions.JsonCodecRowExpressionSerde;
 import com.facebook.presto.sql.gen.ExpressionCompiler;
+import com.facebook.presto.sql.gen.GeneratedClassCache;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.facebook.presto.sql.gen.JoinFilterFunctionCompiler;
 import com.facebook.presto.sql.gen.OrderingCompiler;
@@ -478,6 +481,10 @@ public class ServerMainModule
         binder.bind(SqlTaskManager.class).in(Scopes.SINGLETON);
         binder.bind(TaskManager.class).to(Key.get(SqlTaskManager.class));
         binder.bind(SpoolingOutputBufferFactory.class).in(Scopes.SINGLETON);
+        binder.bind(SpooledResultsManager.class).in(Scopes.SINGLETON);
+        jaxrsBinder(binder).bind(SpooledResultsResource.class);
+        httpClientBinder(binder).bindHttpClient("spooled-results", ForSpooledResults.class)
+                .withConfigDefaults(config -> config.setMaxContentLength(new DataSize(32, MEGABYTE)));
 
         binder.bind(RandomResourceManagerAddressSelector.class).in(Scopes.SINGLETON);
         driftClientBinder(binder)
@@ -582,6 +589,8 @@ public class ServerMainModule
         binder.bind(FragmentCacheStats.class).in(Scopes.SINGLETON);
         newExporter(binder).export(FragmentCacheStats.class).withGeneratedName();
         configBinder(binder).bindConfig(CompilerConfig.class);
+        binder.bind(GeneratedClassCache.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(GeneratedClassCache.class).withGeneratedName();
         binder.bind(ExpressionCompiler.class).in(Scopes.SINGLETON);
         newExporter(binder).export(ExpressionCompiler.class).withGeneratedName();
         binder.bind(PageFunctionCompiler.class).in(Scopes.SINGLETON);
@@ -598,7 +607,7 @@ public class ServerMainModule
         newExporter(binder).export(JoinCompiler.class).withGeneratedName();
         binder.bind(OrderingCompiler.class).in(Scopes.SINGLETON);
         newExporter(binder).export(OrderingCompiler.class).withGeneratedName();
-        binder.bind(PagesIndex.Factory.class).to(PagesIndex.DefaultFactory.class);
+        binder.bind(PagesIndex.Factory.class).to(PagesIndex.DefaultFactory.class).in(Scopes.SINGLETON);
         binder.bind(LookupJoinOperators.class).in(Scopes.SINGLETON);
 
         jsonCodecBinder(binder).bindJsonCodec(TaskStatus.class);
@@ -628,14 +637,19 @@ public class ServerMainModule
                 .to(ThriftShuffleClientProvider.class);
         binder.bind(ExchangeClientSupplier.class).to(ExchangeClientFactory.class).in(Scopes.SINGLETON);
 
-        httpClientBinder(binder).bindHttpClient("exchange", ForExchange.class)
-                .withTracing()
-                .withFilter(GenerateTraceTokenRequestFilter.class)
-                .withConfigDefaults(config -> {
-                    config.setRequestTimeout(new Duration(10, SECONDS));
-                    config.setMaxConnectionsPerServer(250);
-                    config.setMaxContentLength(new DataSize(32, MEGABYTE));
-                });
+        if (buildConfigObject(ReactorNettyHttpClientConfig.class).isReactorNettyExchangeClientEnabled()) {
+            binder.bind(HttpClient.class).annotatedWith(ForExchange.class).toProvider(ReactorNettyExchangeHttpClientProvider.class).in(Scopes.SINGLETON);
+        }
+        else {
+            httpClientBinder(binder).bindHttpClient("exchange", ForExchange.class)
+                    .withTracing()
+                    .withFilter(GenerateTraceTokenRequestFilter.class)
+                    .withConfigDefaults(config -> {
+                        config.setRequestTimeout(new Duration(10, SECONDS));
+                        config.setMaxConnectionsPerServer(250);
+                        config.setMaxContentLength(new DataSize(32, MEGABYTE));
+                    });
+        }
 
         binder.install(new DriftNettyClientModule(PooledByteBufAllocator.DEFAULT));
         driftClientBinder(binder).bindDriftClient(ThriftTaskClient.class, ForExchange.class)
@@ -0,0 +1,183 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.server;
+
+import com.facebook.airlift.concurrent.BoundedExecutor;
+import com.facebook.airlift.http.client.HttpClient;
+import com.facebook.airlift.http.client.Request;
+import com.facebook.airlift.http.client.ResponseHandler;
+import com.facebook.presto.execution.buffer.SpooledResultsManager;
+import com.facebook.presto.metadata.InternalNode;
+import com.facebook.presto.metadata.InternalNodeManager;
+import com.facebook.presto.spi.NodeState;
+import com.facebook.presto.spi.QueryId;
+import com.facebook.presto.sql.analyzer.FeaturesConfig;
+import com.google.common.io.ByteStreams;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+import static com.facebook.airlift.http.client.HttpUriBuilder.uriBuilderFrom;
+import static com.facebook.airlift.http.client.Request.Builder.prepareDelete;
+import static com.facebook.airlift.http.client.Request.Builder.prepareGet;
+import static com.facebook.airlift.http.server.AsyncResponseHandler.bindAsyncResponse;
+import static com.facebook.presto.PrestoMediaTypes.PRESTO_PAGES;
+import static com.facebook.presto.server.security.RoleType.INTERNAL;
+import static com.facebook.presto.server.security.RoleType.USER;
+import static jakarta.ws.rs.core.Response.Status.NOT_FOUND;
+import static jakarta.ws.rs.core.Response.Status.OK;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Serves the segments of query results spooled by this node, see {@link SpooledResultsManager}.
+ * Clients fetch the segments from the external URI of the node that spooled them. When
+ * {@link FeaturesConfig#isSpooledResultsProxyEnabled()} is set, clients fetch them from the
+ * coordinator instead, which proxies the requests for segments spooled by other nodes to the
+ * internal URI of the node.
+ */
+@Path("/v1/spooled/{queryId}/{nodeId}/{segmentId}")
+@RolesAllowed({USER, INTERNAL})
+public class SpooledResultsResource
+{
+    private final SpooledResultsManager spooledResultsManager;
+    private final InternalNodeManager nodeManager;
+    private final HttpClient httpClient;
+    private final BoundedExecutor responseExecutor;
+    private final boolean proxyEnabled;
+
+    @Inject
+    public SpooledResultsResource(
+            SpooledResultsManager spooledResultsManager,
+            InternalNodeManager nodeManager,
+            @ForSpooledResults HttpClient httpClient,
+            @ForAsyncRpc BoundedExecutor responseExecutor,
+            FeaturesConfig featuresConfig)
+    {
+        this.spooledResultsManager = requireNonNull(spooledResultsManager, "spooledResultsManager is null");
+        this.nodeManager = requireNonNull(nodeManager, "nodeManager is null");
+        this.httpClient = requireNonNull(httpClient, "httpClient is null");
+        this.responseExecutor = requireNonNull(responseExecutor, "responseExecutor is null");
+        this.proxyEnabled = requireNonNull(featuresConfig, "featuresConfig is null").isSpooledResultsProxyEnabled();
+    }
+
+    @GET
+    @Produces(PRESTO_PAGES)
+    public void getSegment(
+            @PathParam("queryId") QueryId queryId,
+            @PathParam("nodeId") String nodeId,
+            @PathParam("segmentId") String segmentId,
+            @Suspended AsyncResponse asyncResponse)
+            throws IOException
+    {
+        if (!isCurrentNode(nodeId)) {
+            proxy(prepareGet(), queryId, nodeId, segmentId, asyncResponse);
+            return;
+        }
+
+        Optional<InputStream> segment = spooledResultsManager.open(queryId, segmentId);
+        if (!segment.isPresent()) {
+            asyncResponse.resume(Response.status(NOT_FOUND).build());
+            return;
+        }
+        StreamingOutput output = outputStream -> {
+            try (InputStream input = segment.get()) {
+                input.transferTo(outputStream);
+            }
+        };
+        asyncResponse.resume(Response.ok(output, PRESTO_PAGES).build());
+    }
+
+    @DELETE
+    public void acknowledgeSegment(
+            @PathParam("queryId") QueryId queryId,
+            @PathParam("nodeId") String nodeId,
+            @PathParam("segmentId") String segmentId,
+            @Suspended AsyncResponse asyncResponse)
+    {
+        if (!isCurrentNode(nodeId)) {
+            proxy(prepareDelete(), queryId, nodeId, segmentId, asyncResponse);
+            return;
+        }
+
+        if (!spooledResultsManager.remove(queryId, segmentId)) {
+            asyncResponse.resume(Response.status(NOT_FOUND).build());
+            return;
+        }
+        asyncResponse.resume(Response.noContent().build());
+    }
+
+    private boolean isCurrentNode(String nodeId)
+    {
+        return nodeManager.getCurrentNode().getNodeIdentifier().equals(nodeId);
+    }
+
+    private void proxy(Request.Builder requestBuilder, QueryId queryId, String nodeId, String segmentId, AsyncResponse asyncResponse)
+    {
+        // only nodes of the cluster are contacted, whatever the node id sent by the client
+        Optional<InternalNode> node = nodeManager.getNodes(NodeState.ACTIVE).stream()
+                .filter(activeNode -> activeNode.getNodeIdentifier().equals(nodeId))
+                .findFirst();
+        if (!proxyEnabled || !node.isPresent()) {
+            asyncResponse.resume(Response.status(NOT_FOUND).build());
+            return;
+        }
+
+        Request request = requestBuilder
+                .setUri(uriBuilderFrom(node.get().getInternalUri())
+                        .replacePath("/v1/spooled")
+                        .appendPath(queryId.toString())
+                        .appendPath(nodeId)
+                        .appendPath(segmentId)
+                        .build())
+                .build();
+        bindAsyncResponse(asyncResponse, httpClient.executeAsync(request, new SegmentResponseHandler()), responseExecutor);
+    }
+
+    private static class SegmentResponseHandler
+            implements ResponseHandler<Response, RuntimeException>
+    {
+        @Override
+        public Response handleException(Request request, Exception exception)
+        {
+            throw new RuntimeException("Request for spooled results to " + request.getUri() + " failed", exception);
+        }
+
+        @Override
+        public Response handle(Request request, com.facebook.airlift.http.client.Response response)
+        {
+            if (response.getStatusCode() != OK.getStatusCode()) {
+                return Response.status(response.getStatusCode()).build();
+            }
+            // the stream of the response is closed once the handler returns
+            try (InputStream input = response.getInputStream()) {
+                return Response.ok(ByteStreams.toByteArray(input), PRESTO_PAGES).build();
+            }
+            catch (IOException e) {
+                throw new RuntimeException("Unable to read spooled results from " + request.getUri(), e);
+            }
+        }
+    }
+}
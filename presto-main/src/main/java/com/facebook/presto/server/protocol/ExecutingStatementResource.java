@@ -14,6 +14,7 @@
 package com.facebook.presto.server.protocol;
 
 import com.facebook.airlift.concurrent.BoundedExecutor;
+import com.facebook.airlift.json.JsonCodec;
 import com.facebook.airlift.stats.TimeStat;
 import com.facebook.airlift.units.DataSize;
 import com.facebook.airlift.units.Duration;
@@ -21,9 +22,13 @@ import com.facebook.presto.client.QueryResults;
 import com.facebook.presto.execution.QueryManager;
 import com.facebook.presto.server.ForStatementResource;
 import com.facebook.presto.server.ServerConfig;
+import com.facebook.presto.server.protocol.Query.QueryResultPages;
 import com.facebook.presto.spi.QueryId;
+import com.facebook.presto.spi.page.SerializedPage;
 import com.google.common.collect.Ordering;
 import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.slice.OutputStreamSliceOutput;
+import io.airlift.slice.SliceOutput;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.DELETE;
@@ -38,33 +43,49 @@ import jakarta.ws.rs.container.AsyncResponse;
 import jakarta.ws.rs.container.Suspended;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import jakarta.ws.rs.core.UriInfo;
 import org.weakref.jmx.Managed;
 import org.weakref.jmx.Nested;
 
+import java.io.IOException;
+import java.util.Optional;
+
 import static com.facebook.airlift.http.server.AsyncResponseHandler.bindAsyncResponse;
+import static com.facebook.airlift.json.JsonCodec.jsonCodec;
 import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_PREFIX_URL;
+import static com.facebook.presto.client.ResultPages.PAGE_FRAME;
+import static com.facebook.presto.client.ResultPages.RESULTS_FRAME;
+import static com.facebook.presto.client.ResultPages.RESULT_PAGES_MEDIA_TYPE;
 import static com.facebook.presto.server.protocol.QueryResourceUtil.abortIfPrefixUrlInvalid;
+import static com.facebook.presto.server.protocol.QueryResourceUtil.prepareQueryResults;
 import static com.facebook.presto.server.protocol.QueryResourceUtil.toResponse;
 import static com.facebook.presto.server.security.RoleType.USER;
+import static com.facebook.presto.spi.page.PagesSerdeUtil.writeSerializedPage;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.net.HttpHeaders.X_FORWARDED_PROTO;
 import static com.google.common.util.concurrent.Futures.transform;
 import static com.google.common.util.concurrent.Futures.transformAsync;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 @Path("/")
 @RolesAllowed(USER)
 public class ExecutingStatementResource
 {
+    private static final JsonCodec<QueryResults> QUERY_RESULTS_CODEC = jsonCodec(QueryResults.class);
+
     private static final Duration MAX_WAIT_TIME = new Duration(1, SECONDS);
     private static final Ordering<Comparable<Duration>> WAIT_ORDERING = Ordering.natural().nullsLast();
     private static final DataSize DEFAULT_TARGET_RESULT_SIZE = new DataSize(1, MEGABYTE);
     private static final DataSize MAX_TARGET_RESULT_SIZE = new DataSize(128, MEGABYTE);
+    // bounds the time a streamed response holds a connection, the client continues with a new request
+    private static final Duration MAX_STREAM_TIME = new Duration(1, MINUTES);
 
     private final BoundedExecutor responseExecutor;
     private final LocalQueryProvider queryProvider;
@@ -112,27 +133,18 @@ public class ExecutingStatementResource
             @Suspended AsyncResponse asyncResponse)
     {
         Duration wait = WAIT_ORDERING.min(MAX_WAIT_TIME, maxWait);
-        if (targetResultSize == null) {
-            targetResultSize = DEFAULT_TARGET_RESULT_SIZE;
-        }
-        else {
-            targetResultSize = Ordering.natural().min(targetResultSize, MAX_TARGET_RESULT_SIZE);
-        }
-        if (isNullOrEmpty(proto)) {
-            proto = uriInfo.getRequestUri().getScheme();
-        }
+        DataSize effectiveTargetResultSize = getTargetResultSize(targetResultSize);
+        String scheme = isNullOrEmpty(proto) ? uriInfo.getRequestUri().getScheme() : proto;
 
         abortIfPrefixUrlInvalid(xPrestoPrefixUrl);
 
         Query query = queryProvider.getQuery(queryId, slug);
         ListenableFuture<Double> acquirePermitAsync = queryRateLimiter.acquire(queryId);
-        String effectiveFinalProto = proto;
-        DataSize effectiveFinalTargetResultSize = targetResultSize;
         ListenableFuture<QueryResults> waitForResultsAsync = transformAsync(
                 acquirePermitAsync,
                 acquirePermitTimeSeconds -> {
                     queryRateLimiter.addRateLimiterBlockTime(new Duration(acquirePermitTimeSeconds, SECONDS));
-                    return query.waitForResults(token, uriInfo, effectiveFinalProto, wait, effectiveFinalTargetResultSize, binaryResults);
+                    return query.waitForResults(token, uriInfo, scheme, wait, effectiveTargetResultSize, binaryResults);
                 },
                 responseExecutor);
         long durationUntilExpirationMs = queryManager.getDurationUntilExpirationInMillis(queryId);
@@ -143,6 +155,60 @@ public class ExecutingStatementResource
         bindAsyncResponse(asyncResponse, queryResultsFuture, responseExecutor);
     }
 
+    /**
+     * Returns the results in the {@link com.facebook.presto.client.ResultPages} format to clients that accept it.
+     * The response is streamed: the results of the following tokens that the query has already buffered are
+     * written to the same response, see {@link #streamResults}.
+     */
+    @GET
+    @Path("/v1/statement/executing/{queryId}/{token}")
+    @Produces(RESULT_PAGES_MEDIA_TYPE + ";qs=0.5")
+    public void getQueryResultPages(
+            @PathParam("queryId") QueryId queryId,
+            @PathParam("token") long token,
+            @QueryParam("slug") String slug,
+            @QueryParam("maxWait") Duration maxWait,
+            @QueryParam("targetResultSize") DataSize targetResultSize,
+            @HeaderParam(X_FORWARDED_PROTO) String proto,
+            @HeaderParam(PRESTO_PREFIX_URL) String xPrestoPrefixUrl,
+            @Context UriInfo uriInfo,
+            @Suspended AsyncResponse asyncResponse)
+    {
+        Duration wait = WAIT_ORDERING.min(MAX_WAIT_TIME, maxWait);
+        DataSize effectiveTargetResultSize = getTargetResultSize(targetResultSize);
+        String scheme = isNullOrEmpty(proto) ? uriInfo.getRequestUri().getScheme() : proto;
+
+        abortIfPrefixUrlInvalid(xPrestoPrefixUrl);
+
+        Query query = queryProvider.getQuery(queryId, slug);
+        ListenableFuture<Double> acquirePermitAsync = queryRateLimiter.acquire(queryId);
+        ListenableFuture<QueryResultPages> waitForResultsAsync = transformAsync(
+                acquirePermitAsync,
+                acquirePermitTimeSeconds -> {
+                    queryRateLimiter.addRateLimiterBlockTime(new Duration(acquirePermitTimeSeconds, SECONDS));
+                    return query.waitForResultPages(token, uriInfo, scheme, wait, effectiveTargetResultSize);
+                },
+                responseExecutor);
+        long durationUntilExpirationMs = queryManager.getDurationUntilExpirationInMillis(queryId);
+        ListenableFuture<Response> queryResultsFuture = transform(
+                waitForResultsAsync,
+                results -> {
+                    Response response = toResponse(query, results.getResults(), xPrestoPrefixUrl, compressionEnabled, nestedDataSerializationEnabled, durationUntilExpirationMs);
+                    MultivaluedMap<String, String> headers = response.getStringHeaders();
+                    StreamingOutput output = outputStream -> {
+                        SliceOutput sliceOutput = new OutputStreamSliceOutput(outputStream);
+                        streamResults(sliceOutput, query, token, results, headers, uriInfo, scheme, effectiveTargetResultSize, xPrestoPrefixUrl, durationUntilExpirationMs);
+                        sliceOutput.flush();
+                    };
+                    return Response.fromResponse(response)
+                            .entity(output)
+                            .type(RESULT_PAGES_MEDIA_TYPE)
+                            .build();
+                },
+                directExecutor());
+        bindAsyncResponse(asyncResponse, queryResultsFuture, responseExecutor);
+    }
+
     @DELETE
     @Path("/v1/statement/executing/{queryId}/{token}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -154,4 +220,65 @@ public class ExecutingStatementResource
         queryProvider.cancel(queryId, slug);
         return Response.noContent().build();
     }
+
+    /**
+     * Writes the results, then the results of the following tokens, as long as each of them could be
+     * fetched right away with a separate request: the query has buffered them, the rate limiter has a
+     * permit, and the results do not change the headers of the response. The response thread never waits
+     * for the query, the client gets the results that are not streamed from the cache with its next request.
+     */
+    private void streamResults(
+            SliceOutput output,
+            Query query,
+            long token,
+            QueryResultPages results,
+            MultivaluedMap<String, String> headers,
+            UriInfo uriInfo,
+            String scheme,
+            DataSize targetResultSize,
+            String xPrestoPrefixUrl,
+            long durationUntilExpirationMs)
+            throws IOException
+    {
+        long start = System.nanoTime();
+        while (true) {
+            QueryResults queryResults = prepareQueryResults(results.getResults(), xPrestoPrefixUrl, nestedDataSerializationEnabled);
+            byte[] json = QUERY_RESULTS_CODEC.toJsonBytes(queryResults);
+            output.writeByte(RESULTS_FRAME);
+            output.writeInt(json.length);
+            output.writeBytes(json);
+            for (SerializedPage page : results.getPages()) {
+                output.writeByte(PAGE_FRAME);
+                writeSerializedPage(output, page);
+            }
+            output.flush();
+
+            // results without pages are the last ones of a response, waiting for the query and changes
+            // of the query state are left to the next request of the client
+            if (queryResults.getNextUri() == null || results.getPages().isEmpty() || Duration.nanosSince(start).compareTo(MAX_STREAM_TIME) > 0) {
+                return;
+            }
+            if (!queryRateLimiter.tryAcquire(query.getQueryId())) {
+                return;
+            }
+            Optional<QueryResultPages> nextResults = query.getBufferedResultPages(token + 1, uriInfo, scheme, targetResultSize);
+            if (!nextResults.isPresent() || nextResults.get().getPages().isEmpty()) {
+                return;
+            }
+            // the headers of a response describe all its results, such as the session properties set by the query
+            if (!toResponse(query, nextResults.get().getResults(), compressionEnabled, durationUntilExpirationMs).getStringHeaders().equals(headers)) {
+                return;
+            }
+            token++;
+            results = nextResults.get();
+        }
+    }
+
+    private static DataSize getTargetResultSize(DataSize targetResultSize)
+    {
+        if (targetResultSize == null) {
+            return DEFAULT_TARGET_RESULT_SIZE;
+        }
+        return Ordering.natural().min(targetResultSize, MAX_TARGET_RESULT_SIZE);
+    }
 }
@@ -21,9 +21,12 @@ import com.facebook.presto.client.Column;
 import com.facebook.presto.client.FailureInfo;
 import com.facebook.presto.client.QueryError;
 import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.client.ResultPages;
+import com.facebook.presto.client.ResultSegment;
 import com.facebook.presto.client.StatementStats;
 import com.facebook.presto.common.ErrorCode;
 import com.facebook.presto.common.Page;
+import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.block.BlockEncodingSerde;
 import com.facebook.presto.common.transaction.TransactionId;
 import com.facebook.presto.common.type.BooleanType;
@@ -35,6 +38,7 @@ import com.facebook.presto.execution.QueryManager;
 import com.facebook.presto.execution.QueryState;
 import com.facebook.presto.execution.StageInfo;
 import com.facebook.presto.execution.buffer.PagesSerdeFactory;
+import com.facebook.presto.execution.buffer.SpooledSegment;
 import com.facebook.presto.operator.ExchangeClient;
 import com.facebook.presto.server.RetryConfig;
 import com.facebook.presto.spi.PrestoException;
@@ -76,6 +80,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 
 import static com.facebook.airlift.concurrent.MoreFutures.addTimeout;
+import static com.facebook.presto.CompressionCodec.NONE;
 import static com.facebook.presto.SystemSessionProperties.getExchangeCompressionCodec;
 import static com.facebook.presto.SystemSessionProperties.getQueryRetryLimit;
 import static com.facebook.presto.SystemSessionProperties.getQueryRetryMaxExecutionTime;
@@ -84,9 +89,12 @@ import static com.facebook.presto.SystemSessionProperties.isExchangeChecksumEnab
 import static com.facebook.presto.SystemSessionProperties.retryQueryWithHistoryBasedOptimizationEnabled;
 import static com.facebook.presto.SystemSessionProperties.trackHistoryBasedPlanStatisticsEnabled;
 import static com.facebook.presto.SystemSessionProperties.useHistoryBasedPlanStatisticsEnabled;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
 import static com.facebook.presto.execution.QueryState.FAILED;
 import static com.facebook.presto.execution.QueryState.WAITING_FOR_PREREQUISITES;
+import static com.facebook.presto.execution.buffer.SpooledResultsOutputBuffer.toSpooledSegments;
 import static com.facebook.presto.spi.StandardErrorCode.GENERIC_INTERNAL_ERROR;
+import static com.facebook.presto.spi.page.PageCodecMarker.COMPRESSED;
 import static com.facebook.presto.spi.page.PagesSerdeUtil.writeSerializedPage;
 import static com.facebook.presto.util.Failures.toFailure;
 import static com.facebook.presto.util.QueryInfoUtils.toStatementStats;
@@ -124,8 +132,11 @@ class Query
     private final ScheduledExecutorService timeoutExecutor;
 
     private final PagesSerde serde;
+    // serde of the pages sent to clients that accept result pages, these are never compressed
+    private final PagesSerde resultPagesSerde;
     private final RetryCircuitBreaker retryCircuitBreaker;
     private final RetryConfig retryConfig;
+    private final boolean spooledResultsProxyEnabled;
 
     @GuardedBy("this")
     private OptionalLong nextToken = OptionalLong.of(0);
@@ -142,6 +153,17 @@ class Query
     @GuardedBy("this")
     private List<Type> types;
 
+    // all the output types can be decoded by clients from result pages
+    @GuardedBy("this")
+    private boolean resultPagesSupported;
+
+    // the pages of the exchange describe the segments of results spooled by the workers
+    @GuardedBy("this")
+    private boolean spooledResults;
+
+    @GuardedBy("this")
+    private List<SerializedPage> lastPages = ImmutableList.of();
+
     @GuardedBy("this")
     private Optional<String> setCatalog = Optional.empty();
 
@@ -194,7 +216,8 @@ class Query
             RetryConfig retryConfig,
             Optional<URI> retryUrl,
             OptionalLong retryExpirationEpochTime,
-            boolean isRetryQuery)
+            boolean isRetryQuery,
+            boolean spooledResultsProxyEnabled)
     {
         Query result = new Query(
                 session,
@@ -209,7 +232,8 @@ class Query
                 timeoutExecutor,
                 blockEncodingSerde,
                 retryCircuitBreaker,
-                retryConfig);
+                retryConfig,
+                spooledResultsProxyEnabled);
 
         result.queryManager.addOutputInfoListener(result.getQueryId(), result::setQueryOutputInfo);
 
@@ -236,7 +260,8 @@ class Query
             ScheduledExecutorService timeoutExecutor,
             BlockEncodingSerde blockEncodingSerde,
             RetryCircuitBreaker retryCircuitBreaker,
-            RetryConfig retryConfig)
+            RetryConfig retryConfig,
+            boolean spooledResultsProxyEnabled)
     {
         requireNonNull(session, "session is null");
         requireNonNull(slug, "slug is null");
@@ -265,8 +290,10 @@ class Query
         this.timeoutExecutor = timeoutExecutor;
 
         this.serde = new PagesSerdeFactory(blockEncodingSerde, getExchangeCompressionCodec(session), isExchangeChecksumEnabled(session)).createPagesSerde();
+        this.resultPagesSerde = new PagesSerdeFactory(blockEncodingSerde, NONE).createPagesSerde();
         this.retryCircuitBreaker = retryCircuitBreaker;
         this.retryConfig = retryConfig;
+        this.spooledResultsProxyEnabled = spooledResultsProxyEnabled;
     }
 
     public void cancel()
@@ -353,11 +380,42 @@ class Query
     }
 
     public synchronized ListenableFuture<QueryResults> waitForResults(long token, UriInfo uriInfo, String scheme, Duration wait, DataSize targetResultSize, boolean binaryResults)
+    {
+        ResultsFormat format = binaryResults ? ResultsFormat.BINARY : ResultsFormat.JSON;
+        return Futures.transform(waitForResults(token, uriInfo, scheme, wait, targetResultSize, format), QueryResultPages::getResults, directExecutor());
+    }
+
+    /**
+     * Waits for the results like {@link #waitForResults}, but returns the data as serialized pages if
+     * the client can decode all the output types, see {@link ResultPages}.
+     */
+    public synchronized ListenableFuture<QueryResultPages> waitForResultPages(long token, UriInfo uriInfo, String scheme, Duration wait, DataSize targetResultSize)
+    {
+        return waitForResults(token, uriInfo, scheme, wait, targetResultSize, ResultsFormat.PAGES);
+    }
+
+    /**
+     * Returns the results like {@link #waitForResultPages}, but only if they can be produced without waiting,
+     * because they are cached, the query has buffered data, or the query is done.
+     */
+    public synchronized Optional<QueryResultPages> getBufferedResultPages(long token, UriInfo uriInfo, String scheme, DataSize targetResultSize)
+    {
+        Optional<QueryResults> cachedResult = getCachedResult(token);
+        if (cachedResult.isPresent()) {
+            return Optional.of(new QueryResultPages(cachedResult.get(), lastPages));
+        }
+        if (!getFutureStateChange().isDone()) {
+            return Optional.empty();
+        }
+        return Optional.of(getNextResultPages(token, uriInfo, scheme, targetResultSize, ResultsFormat.PAGES));
+    }
+
+    private synchronized ListenableFuture<QueryResultPages> waitForResults(long token, UriInfo uriInfo, String scheme, Duration wait, DataSize targetResultSize, ResultsFormat format)
     {
         // before waiting, check if this request has already been processed and cached
         Optional<QueryResults> cachedResult = getCachedResult(token);
         if (cachedResult.isPresent()) {
-            return immediateFuture(cachedResult.get());
+            return immediateFuture(new QueryResultPages(cachedResult.get(), lastPages));
         }
 
         // wait for a results data or query to finish, up to the wait timeout
@@ -368,7 +426,14 @@ class Query
                 timeoutExecutor);
 
         // when state changes, fetch the next result
-        return Futures.transform(futureStateChange, ignored -> getNextResultWithRetry(token, uriInfo, scheme, targetResultSize, binaryResults), resultsProcessorExecutor);
+        return Futures.transform(futureStateChange, ignored -> getNextResultPages(token, uriInfo, scheme, targetResultSize, format), resultsProcessorExecutor);
+    }
+
+    private synchronized QueryResultPages getNextResultPages(long token, UriInfo uriInfo, String scheme, DataSize targetResultSize, ResultsFormat format)
+    {
+        QueryResults queryResults = getNextResultWithRetry(token, uriInfo, scheme, targetResultSize, format);
+        // the results of a retried query replace the results of the failed query, and its pages
+        return new QueryResultPages(queryResults, queryResults == lastResult ? lastPages : ImmutableList.of());
     }
 
     private synchronized ListenableFuture<?> getFutureStateChange()
@@ -421,9 +486,9 @@ class Query
         return Optional.empty();
     }
 
-    private synchronized QueryResults getNextResultWithRetry(long token, UriInfo uriInfo, String scheme, DataSize targetResultSize, boolean binaryResults)
+    private synchronized QueryResults getNextResultWithRetry(long token, UriInfo uriInfo, String scheme, DataSize targetResultSize, ResultsFormat format)
     {
-        QueryResults queryResults = getNextResult(token, uriInfo, scheme, targetResultSize, binaryResults);
+        QueryResults queryResults = getNextResult(token, uriInfo, scheme, targetResultSize, format);
 
         if (queryResults.getError() == null) {
             return queryResults;
@@ -481,7 +546,7 @@ class Query
                 queryResults.getUpdateCount());
     }
 
-    private synchronized QueryResults getNextResult(long token, UriInfo uriInfo, String scheme, DataSize targetResultSize, boolean binaryResults)
+    private synchronized QueryResults getNextResult(long token, UriInfo uriInfo, String scheme, DataSize targetResultSize, ResultsFormat format)
     {
         // check if the result for the token have already been created
         Optional<QueryResults> cachedResult = getCachedResult(token);
@@ -504,11 +569,47 @@ class Query
         // the pages will be lost.
         Iterable<List<Object>> data = null;
         List<String> binaryData = null;
+        List<SerializedPage> resultPages = ImmutableList.of();
+        List<ResultSegment> segments = null;
         try {
             long rows = 0;
             long bytes = 0;
             long targetResultBytes = targetResultSize.toBytes();
-            if (binaryResults) {
+            if (spooledResults) {
+                // the client fetches the segments from the nodes that spooled them, in any format
+                ImmutableList.Builder<ResultSegment> segmentsBuilder = ImmutableList.builder();
+                while (bytes < targetResultBytes) {
+                    SerializedPage serializedPage = exchangeClient.pollPage();
+                    if (serializedPage == null) {
+                        break;
+                    }
+
+                    for (SpooledSegment segment : toSpooledSegments(serde.deserialize(serializedPage))) {
+                        rows += segment.getRowCount();
+                        bytes += segment.getSize();
+                        segmentsBuilder.add(new ResultSegment(createSegmentUri(scheme, uriInfo, segment), segment.getRowCount(), segment.getSize()));
+                    }
+                }
+                List<ResultSegment> polledSegments = segmentsBuilder.build();
+                if (!polledSegments.isEmpty()) {
+                    segments = polledSegments;
+                }
+            }
+            else if (format == ResultsFormat.PAGES && resultPagesSupported) {
+                ImmutableList.Builder<SerializedPage> pages = ImmutableList.builder();
+                while (bytes < targetResultBytes) {
+                    SerializedPage serializedPage = exchangeClient.pollPage();
+                    if (serializedPage == null) {
+                        break;
+                    }
+
+                    rows += serializedPage.getPositionCount();
+                    bytes += serializedPage.getSizeInBytes();
+                    pages.add(toResultPage(serializedPage));
+                }
+                resultPages = pages.build();
+            }
+            else if (format == ResultsFormat.BINARY) {
                 ImmutableList.Builder<String> pages = ImmutableList.builder();
                 while (bytes < targetResultBytes) {
                     SerializedPage serializedPage = exchangeClient.pollPage();
@@ -573,6 +674,13 @@ class Query
                 }
             }
         }
+        if (!resultPages.isEmpty() && (queryInfo.getUpdateInfo() != null) && (updateCount == null) &&
+                (columns.size() == 1) && (columns.get(0).getType().equals(StandardTypes.BIGINT))) {
+            Block block = resultPagesSerde.deserialize(resultPages.get(0)).getBlock(0);
+            if (block.getPositionCount() > 0 && !block.isNull(0)) {
+                updateCount = BIGINT.getLong(block, 0);
+            }
+        }
 
         closeExchangeClientIfNecessary(queryInfo);
 
@@ -596,7 +704,7 @@ class Query
 
         URI nextResultsUri = null;
         if (nextToken.isPresent()) {
-            nextResultsUri = createNextResultsUri(scheme, uriInfo, nextToken.getAsLong(), binaryResults);
+            nextResultsUri = createNextResultsUri(scheme, uriInfo, nextToken.getAsLong(), format == ResultsFormat.BINARY);
         }
 
         // update catalog, schema, and path
@@ -635,11 +743,13 @@ class Query
                 toQueryError(queryInfo),
                 queryInfo.getWarnings(),
                 queryInfo.getUpdateInfo() != null ? queryInfo.getUpdateInfo().getUpdateType() : null,
-                updateCount);
+                updateCount,
+                segments);
 
         // cache the new result
         lastToken = token;
         lastResult = queryResults;
+        lastPages = resultPages;
 
         return queryResults;
     }
@@ -669,6 +779,8 @@ class Query
             }
             columns = list.build();
             types = outputInfo.getColumnTypes();
+            resultPagesSupported = types.stream().allMatch(type -> ResultPages.isSupportedType(type.getTypeSignature()));
+            spooledResults = outputInfo.isSpooledResults();
         }
 
         outputInfo.getBufferLocations().forEach(exchangeClient::addLocation);
@@ -677,6 +789,15 @@ class Query
         }
     }
 
+    private SerializedPage toResultPage(SerializedPage serializedPage)
+    {
+        if (!COMPRESSED.isSet(serializedPage.getPageCodecMarkers())) {
+            return serializedPage;
+        }
+        // clients do not have the exchange decompressors, the response may be compressed by HTTP instead
+        return resultPagesSerde.serialize(serde.deserialize(serializedPage));
+    }
+
     private ListenableFuture<?> queryDoneFuture(QueryState currentState)
     {
         if (currentState.isDone()) {
@@ -704,6 +825,19 @@ class Query
         return uri.build();
     }
 
+    private synchronized URI createSegmentUri(String scheme, UriInfo uriInfo, SpooledSegment segment)
+    {
+        // the coordinator proxies the segments when clients can not reach the other nodes
+        UriBuilder uri = spooledResultsProxyEnabled ? uriInfo.getBaseUriBuilder().scheme(scheme) : UriBuilder.fromUri(segment.getNodeUri());
+        return uri
+                .replacePath("/v1/spooled")
+                .path(queryId.toString())
+                .path(segment.getNodeId())
+                .path(segment.getSegmentId())
+                .replaceQuery("")
+                .build();
+    }
+
     private synchronized URI createRetryUri(String scheme, UriInfo uriInfo)
     {
         // Check if we have external retry URL information
@@ -860,4 +994,36 @@ class Query
                 failure.getErrorLocation(),
                 failure);
     }
+
+    private enum ResultsFormat
+    {
+        JSON,
+        BINARY,
+        PAGES,
+    }
+
+    public static class QueryResultPages
+    {
+        private final QueryResults results;
+        private final List<SerializedPage> pages;
+
+        public QueryResultPages(QueryResults results, List<SerializedPage> pages)
+        {
+            this.results = requireNonNull(results, "results is null");
+            this.pages = ImmutableList.copyOf(requireNonNull(pages, "pages is null"));
+        }
+
+        public QueryResults getResults()
+        {
+            return results;
+        }
+
+        /**
+         * Pages of the results, uncompressed, sent after the results when the data is not part of the results
+         */
+        public List<SerializedPage> getPages()
+        {
+            return pages;
+        }
+    }
 }
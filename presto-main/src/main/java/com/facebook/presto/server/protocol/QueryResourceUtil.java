@@ -19,6 +19,7 @@ import com.facebook.airlift.units.Duration;
 import com.facebook.presto.client.Column;
 import com.facebook.presto.client.QueryError;
 import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.client.ResultSegment;
 import com.facebook.presto.client.StatementStats;
 import com.facebook.presto.common.type.NamedTypeSignature;
 import com.facebook.presto.common.type.ParameterKind;
@@ -73,6 +74,7 @@ import static com.facebook.presto.execution.QueryState.QUEUED;
 import static com.facebook.presto.execution.QueryState.WAITING_FOR_PREREQUISITES;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.isNullOrEmpty;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static jakarta.ws.rs.core.MediaType.TEXT_PLAIN_TYPE;
 import static java.lang.String.format;
 import static java.util.Collections.unmodifiableList;
@@ -161,12 +163,18 @@ public final class QueryResourceUtil
             boolean compressionEnabled,
             boolean nestedDataSerializationEnabled,
             long durationUntilExpirationMs)
+    {
+        QueryResults resultsClone = prepareQueryResults(queryResults, xPrestoPrefixUri, nestedDataSerializationEnabled);
+        return toResponse(query, resultsClone, compressionEnabled, durationUntilExpirationMs);
+    }
+
+    public static QueryResults prepareQueryResults(QueryResults queryResults, String xPrestoPrefixUri, boolean nestedDataSerializationEnabled)
     {
         Iterable<List<Object>> queryResultsData = queryResults.getData();
         if (nestedDataSerializationEnabled) {
             queryResultsData = prepareJsonData(queryResults.getColumns(), queryResultsData);
         }
-        QueryResults resultsClone = new QueryResults(
+        return new QueryResults(
                 queryResults.getId(),
                 prependUri(queryResults.getInfoUri(), xPrestoPrefixUri),
                 prependUri(queryResults.getPartialCancelUri(), xPrestoPrefixUri),
@@ -178,9 +186,24 @@ public final class QueryResourceUtil
                 queryResults.getError(),
                 queryResults.getWarnings(),
                 queryResults.getUpdateType(),
-                queryResults.getUpdateCount());
+                queryResults.getUpdateCount(),
+                prependUris(queryResults.getSegments(), queryResults.getInfoUri(), xPrestoPrefixUri));
+    }
 
-        return toResponse(query, resultsClone, compressionEnabled, durationUntilExpirationMs);
+    private static List<ResultSegment> prependUris(List<ResultSegment> segments, URI coordinatorUri, String xPrestoPrefixUri)
+    {
+        if (segments == null || isNullOrEmpty(xPrestoPrefixUri)) {
+            return segments;
+        }
+        // only the segments proxied by the coordinator are fetched through the prefix, the others from the nodes that spooled them
+        return segments.stream()
+                .map(segment -> isSameServer(segment.getUri(), coordinatorUri) ? new ResultSegment(prependUri(segment.getUri(), xPrestoPrefixUri), segment.getRowCount(), segment.getSize()) : segment)
+                .collect(toImmutableList());
+    }
+
+    private static boolean isSameServer(URI uri, URI coordinatorUri)
+    {
+        return uri.getHost().equals(coordinatorUri.getHost()) && uri.getPort() == coordinatorUri.getPort();
     }
 
     public static CacheControl getCacheControlMaxAge(long durationUntilExpirationMs)
@@ -0,0 +1,47 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.server.remotetask;
+
+import com.facebook.airlift.http.client.HttpClient;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates the exchange client on top of reactor netty. Requests for all the output buffers
+ * of an upstream worker are multiplexed as HTTP/2 streams over a few shared connections,
+ * instead of each buffer long-polling on its own connection, and HTTP/2 stream windows
+ * bound the bytes in flight per buffer in addition to the requested max response size.
+ * <p>
+ * The client has its own connection pool and stats, separate from the scheduler client.
+ */
+public class ReactorNettyExchangeHttpClientProvider
+        implements Provider<HttpClient>
+{
+    private final ReactorNettyHttpClientConfig config;
+
+    @Inject
+    public ReactorNettyExchangeHttpClientProvider(ReactorNettyHttpClientConfig config)
+    {
+        this.config = requireNonNull(config, "config is null");
+    }
+
+    @Override
+    public HttpClient get()
+    {
+        // page responses carry their status and headers to PageResponseHandler, which maps them to transport errors
+        return new ReactorNettyHttpClient(config, new HttpClientConnectionPoolStats(), new HttpClientStats(), true);
+    }
+}
@@ -40,13 +40,16 @@ import io.netty.handler.ssl.SslProvider;
 import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
 import reactor.netty.ByteBufFlux;
+import reactor.netty.ByteBufMono;
 import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.Http2AllocationStrategy;
 import reactor.netty.http.client.HttpClient;
 import reactor.netty.http.client.HttpClientResponse;
 import reactor.netty.resources.ConnectionProvider;
 import reactor.netty.resources.LoopResources;
+import reactor.util.function.Tuple2;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
@@ -99,10 +102,21 @@ public class ReactorNettyHttpClient
     private final boolean isHttp2CompressionEnabled;
     private final int payloadSizeThreshold;
     private final double compressionSavingThreshold;
+    private final boolean passResponsesToHandler;
 
     @Inject
     public ReactorNettyHttpClient(ReactorNettyHttpClientConfig config, HttpClientConnectionPoolStats connectionPoolStats, HttpClientStats httpClientStats)
     {
+        this(config, connectionPoolStats, httpClientStats, false);
+    }
+
+    /**
+     * @param passResponsesToHandler hand every response and request failure to the response handler, as the
+     * airlift client does, instead of failing responses without a 200 or 204 status or a content type here
+     */
+    public ReactorNettyHttpClient(ReactorNettyHttpClientConfig config, HttpClientConnectionPoolStats connectionPoolStats, HttpClientStats httpClientStats, boolean passResponsesToHandler)
+    {
+        this.passResponsesToHandler = passResponsesToHandler;
         this.connectionPoolStats = connectionPoolStats;
         this.httpClientStats = httpClientStats;
         this.isHttp2CompressionEnabled = config.isHttp2CompressionEnabled();
@@ -254,10 +268,10 @@ public class ReactorNettyHttpClient
             case "GET":
                 disposable = client.get()
                         .uri(uri)
-                        .responseSingle((response, bytes) -> bytes.asInputStream().zipWith(Mono.just(response)))
+                        .responseSingle(ReactorNettyHttpClient::withBody)
                         // Request timeout
                         .timeout(java.time.Duration.of(requestTimeout.toMillis(), MILLIS))
-                        .subscribe(t -> onSuccess(responseHandler, t.getT1(), t.getT2(), listenableFuture), e -> onError(listenableFuture, e), () -> onComplete(listenableFuture));
+                        .subscribe(t -> onSuccess(airliftRequest, responseHandler, t.getT1(), t.getT2(), listenableFuture), e -> onError(airliftRequest, responseHandler, listenableFuture, e), () -> onComplete(listenableFuture));
                 break;
             case "POST":
                 byte[] postBytes = ((StaticBodyGenerator) airliftRequest.getBodyGenerator()).getBody();
@@ -279,7 +293,7 @@ public class ReactorNettyHttpClient
                         }
                     }
                     catch (IOException e) {
-                        onError(listenableFuture, e);
+                        onError(airliftRequest, responseHandler, listenableFuture, e);
                         disposable = () -> {};
                         break;
                     }
@@ -288,18 +302,18 @@ public class ReactorNettyHttpClient
                 disposable = postClient.post()
                         .uri(uri)
                         .send(ByteBufFlux.fromInbound(Mono.just(bodyToSend)))
-                        .responseSingle((response, bytes) -> bytes.asInputStream().zipWith(Mono.just(response)))
+                        .responseSingle(ReactorNettyHttpClient::withBody)
                         // Request timeout
                         .timeout(java.time.Duration.of(requestTimeout.toMillis(), MILLIS))
-                        .subscribe(t -> onSuccess(responseHandler, t.getT1(), t.getT2(), listenableFuture), e -> onError(listenableFuture, e), () -> onComplete(listenableFuture));
+                        .subscribe(t -> onSuccess(airliftRequest, responseHandler, t.getT1(), t.getT2(), listenableFuture), e -> onError(airliftRequest, responseHandler, listenableFuture, e), () -> onComplete(listenableFuture));
                 break;
             case "DELETE":
                 disposable = client.delete()
                         .uri(uri)
-                        .responseSingle((response, bytes) -> bytes.asInputStream().zipWith(Mono.just(response)))
+                        .responseSingle(ReactorNettyHttpClient::withBody)
                         // Request timeout
                         .timeout(java.time.Duration.of(requestTimeout.toMillis(), MILLIS))
-                        .subscribe(t -> onSuccess(responseHandler, t.getT1(), t.getT2(), listenableFuture), e -> onError(listenableFuture, e), () -> onComplete(listenableFuture));
+                        .subscribe(t -> onSuccess(airliftRequest, responseHandler, t.getT1(), t.getT2(), listenableFuture), e -> onError(airliftRequest, responseHandler, listenableFuture, e), () -> onComplete(listenableFuture));
                 break;
             default:
                 throw new UnsupportedOperationException("Unexpected request: " + airliftRequest);
@@ -354,12 +368,20 @@ public class ReactorNettyHttpClient
         };
     }
 
-    public void onSuccess(ResponseHandler responseHandler, InputStream inputStream, HttpClientResponse response, SettableFuture<Object> listenableFuture)
+    // a response without a body, such as a 204, completes the body empty, and still has to reach the response handler
+    private static Mono<Tuple2<InputStream, HttpClientResponse>> withBody(HttpClientResponse response, ByteBufMono body)
+    {
+        return body.asInputStream()
+                .defaultIfEmpty(new ByteArrayInputStream(new byte[0]))
+                .zipWith(Mono.just(response));
+    }
+
+    public void onSuccess(Request request, ResponseHandler responseHandler, InputStream inputStream, HttpClientResponse response, SettableFuture<Object> listenableFuture)
     {
         ListMultimap<HeaderName, String> responseHeaders = ArrayListMultimap.create();
         HttpHeaders headers = response.responseHeaders();
         int status = response.status().code();
-        if (status != 200 && status != 204) {
+        if (!passResponsesToHandler && status != 200 && status != 204) {
             listenableFuture.setException(new RuntimeException("Invalid response status: " + status));
             return;
         }
@@ -384,7 +406,7 @@ public class ReactorNettyHttpClient
             }
         }
 
-        if (!responseHeaders.containsKey(CONTENT_TYPE_HEADER_NAME) || responseHeaders.get(CONTENT_TYPE_HEADER_NAME).size() != 1) {
+        if (!passResponsesToHandler && (!responseHeaders.containsKey(CONTENT_TYPE_HEADER_NAME) || responseHeaders.get(CONTENT_TYPE_HEADER_NAME).size() != 1)) {
             listenableFuture.setException(new RuntimeException("Expected ContentType header: " + responseHeaders));
             return;
         }
@@ -405,7 +427,7 @@ public class ReactorNettyHttpClient
             }
 
             long finalContentLength = contentLength;
-            Object a = responseHandler.handle(null, new Response()
+            Object a = responseHandler.handle(request, new Response()
             {
                 @Override
                 public int getStatusCode()
@@ -451,8 +473,17 @@ public class ReactorNettyHttpClient
         }
     }
 
-    public void onError(SettableFuture<Object> listenableFuture, Throwable t)
+    public void onError(Request request, ResponseHandler responseHandler, SettableFuture<Object> listenableFuture, Throwable t)
     {
+        if (passResponsesToHandler && t instanceof Exception) {
+            try {
+                listenableFuture.set(responseHandler.handleException(request, (Exception) t));
+            }
+            catch (Exception e) {
+                listenableFuture.setException(e);
+            }
+            return;
+        }
         listenableFuture.setException(t);
     }
 
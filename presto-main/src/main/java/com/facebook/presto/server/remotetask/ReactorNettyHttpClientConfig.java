@@ -29,6 +29,7 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 public class ReactorNettyHttpClientConfig
 {
     private boolean reactorNettyHttpClientEnabled;
+    private boolean reactorNettyExchangeClientEnabled;
     private boolean httpsEnabled;
     private int minConnections = 50;
     private int maxConnections = 100;
@@ -201,6 +202,19 @@ public class ReactorNettyHttpClientConfig
         return this;
     }
 
+    public boolean isReactorNettyExchangeClientEnabled()
+    {
+        return reactorNettyExchangeClientEnabled;
+    }
+
+    @Config("reactor.netty-exchange-client-enabled")
+    @ConfigDescription("Enable reactor netty client for exchanges between workers, so requests for all buffers of a worker share HTTP/2 connections")
+    public ReactorNettyHttpClientConfig setReactorNettyExchangeClientEnabled(boolean reactorNettyExchangeClientEnabled)
+    {
+        this.reactorNettyExchangeClientEnabled = reactorNettyExchangeClientEnabled;
+        return this;
+    }
+
     public boolean isHttpsEnabled()
     {
         return httpsEnabled;
@@ -86,6 +86,7 @@ import com.facebook.presto.sql.planner.ConnectorPlanOptimizerManager;
 import com.facebook.presto.sql.planner.NodePartitioningManager;
 import com.facebook.presto.sql.planner.Plan;
 import com.facebook.presto.sql.planner.sanity.PlanCheckerProviderManager;
+import com.facebook.presto.storage.TempStorageManager;
 import com.facebook.presto.testing.ProcedureTester;
 import com.facebook.presto.testing.TestingAccessControlManager;
 import com.facebook.presto.testing.TestingEventListenerManager;
@@ -399,6 +400,7 @@ public class TestingPrestoServer
                 .initialize();
 
         injector.getInstance(Announcer.class).start();
+        injector.getInstance(TempStorageManager.class).loadTempStorages();
 
         lifeCycleManager = injector.getInstance(LifeCycleManager.class);
 
@@ -0,0 +1,250 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.remotetask;
+
+import com.facebook.airlift.http.client.HttpClient;
+import com.facebook.airlift.units.DataSize;
+import com.facebook.airlift.units.Duration;
+import com.facebook.presto.common.Page;
+import com.facebook.presto.operator.HttpRpcShuffleClient;
+import com.facebook.presto.operator.PageBufferClient.PagesResponse;
+import com.facebook.presto.operator.PageTransportErrorException;
+import com.facebook.presto.server.remotetask.ReactorNettyExchangeHttpClientProvider;
+import com.facebook.presto.server.remotetask.ReactorNettyHttpClientConfig;
+import com.facebook.presto.spi.page.PagesSerde;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.slice.DynamicSliceOutput;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.facebook.airlift.units.DataSize.Unit.MEGABYTE;
+import static com.facebook.presto.PrestoMediaTypes.PRESTO_PAGES;
+import static com.facebook.presto.block.BlockAssertions.createLongSequenceBlock;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_BUFFER_COMPLETE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_NEXT_TOKEN;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_TOKEN;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_TASK_INSTANCE_ID;
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.execution.buffer.TestingPagesSerdeFactory.testingPagesSerde;
+import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
+import static com.facebook.presto.spi.page.PagesSerdeUtil.writeSerializedPages;
+import static com.google.common.io.Resources.getResource;
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+public class TestReactorNettyExchangeHttpClient
+{
+    private static final PagesSerde PAGES_SERDE = testingPagesSerde();
+    private static final Page PAGE = new Page(createLongSequenceBlock(0, 100));
+    private static final String TASK_INSTANCE_ID = "task-instance-id";
+    private static final DataSize MAX_RESPONSE_SIZE = new DataSize(1, MEGABYTE);
+    private static final int CONCURRENT_REQUESTS = 10;
+
+    private final Set<SocketAddress> concurrentRequestAddresses = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+    private final CompletableFuture<Void> allConcurrentRequestsArrived = new CompletableFuture<>();
+
+    private DisposableServer server;
+    private HttpClient httpClient;
+    private URI baseUri;
+
+    @BeforeClass
+    public void setUp()
+    {
+        // the exchange client only negotiates HTTP/2 over TLS, so the server only speaks HTTP/2 over TLS
+        File certificate = new File(getResource("cert/localhost.pem").getPath());
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .protocol(HttpProtocol.H2)
+                .secure(spec -> spec.sslContext(Http2SslContextSpec.forServer(certificate, certificate)))
+                .route(routes -> routes
+                        .get("/v1/task/pages/results/0/{token}", (request, response) -> {
+                            long token = Long.parseLong(request.param("token"));
+                            DynamicSliceOutput output = new DynamicSliceOutput(64);
+                            writeSerializedPages(output, ImmutableList.of(PAGES_SERDE.serialize(PAGE)));
+                            return withPageHeaders(response, token, token + 1, false)
+                                    .status(HttpResponseStatus.OK)
+                                    .header(CONTENT_TYPE, PRESTO_PAGES)
+                                    .sendByteArray(Mono.just(output.slice().getBytes()));
+                        })
+                        .get("/v1/task/empty/results/0/{token}", (request, response) -> {
+                            long token = Long.parseLong(request.param("token"));
+                            return withPageHeaders(response, token, token, true)
+                                    .status(HttpResponseStatus.NO_CONTENT)
+                                    .send();
+                        })
+                        .get("/v1/task/failed/results/0/{token}", (request, response) -> response
+                                .status(HttpResponseStatus.INTERNAL_SERVER_ERROR)
+                                .header(CONTENT_TYPE, "text/plain")
+                                .sendString(Mono.just("Server failure")))
+                        .get("/v1/task/concurrent/results/{bufferId}/{token}", (request, response) -> {
+                            // hold every request until all of them are in flight at the same time
+                            concurrentRequestAddresses.add(request.remoteAddress());
+                            if (concurrentRequests.incrementAndGet() == CONCURRENT_REQUESTS) {
+                                allConcurrentRequestsArrived.complete(null);
+                            }
+                            return Mono.fromFuture(allConcurrentRequestsArrived)
+                                    .thenEmpty(withPageHeaders(response, 0, 0, false)
+                                            .status(HttpResponseStatus.NO_CONTENT)
+                                            .send());
+                        }))
+                .bindNow();
+        baseUri = URI.create("https://localhost:" + server.port());
+
+        // a single connection, so that concurrent requests can only succeed as HTTP/2 streams of that connection
+        ReactorNettyHttpClientConfig config = new ReactorNettyHttpClientConfig()
+                .setReactorNettyExchangeClientEnabled(true)
+                .setHttpsEnabled(true)
+                .setKeyStorePath(certificate.getPath())
+                .setKeyStorePassword("")
+                .setTrustStorePath(certificate.getPath())
+                .setMinConnections(1)
+                .setMaxConnections(1)
+                .setRequestTimeout(new Duration(10, SECONDS))
+                .setConnectTimeout(new Duration(10, SECONDS));
+        httpClient = new ReactorNettyExchangeHttpClientProvider(config).get();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        if (httpClient instanceof Closeable) {
+            ((Closeable) httpClient).close();
+        }
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    @Test
+    public void testPages()
+            throws Exception
+    {
+        PagesResponse response = getResults("pages", 7);
+
+        assertEquals(response.getTaskInstanceId(), TASK_INSTANCE_ID);
+        assertEquals(response.getToken(), 7);
+        assertEquals(response.getNextToken(), 8);
+        assertFalse(response.isClientComplete());
+        assertEquals(response.getPages().size(), 1);
+        assertPageEquals(ImmutableList.of(BIGINT), PAGES_SERDE.deserialize(response.getPages().get(0)), PAGE);
+    }
+
+    @Test
+    public void testNoContent()
+            throws Exception
+    {
+        PagesResponse response = getResults("empty", 3);
+
+        assertEquals(response.getTaskInstanceId(), TASK_INSTANCE_ID);
+        assertEquals(response.getToken(), 3);
+        assertEquals(response.getNextToken(), 3);
+        assertTrue(response.isClientComplete());
+        assertTrue(response.getPages().isEmpty());
+    }
+
+    @Test
+    public void testErrorStatus()
+    {
+        ExecutionException exception = expectThrows(ExecutionException.class, () -> getResults("failed", 0));
+
+        PageTransportErrorException error = (PageTransportErrorException) exception.getCause();
+        assertTrue(error.getMessage().startsWith("Error fetching " + baseUri), error.getMessage());
+        assertTrue(error.getCause().getMessage().contains("Expected response code to be 200, but was 500"), error.getCause().getMessage());
+        assertTrue(error.getCause().getMessage().contains("Server failure"), error.getCause().getMessage());
+    }
+
+    @Test
+    public void testConnectionRefused()
+            throws Exception
+    {
+        int unusedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            unusedPort = socket.getLocalPort();
+        }
+        URI location = URI.create("https://localhost:" + unusedPort + "/v1/task/pages/results/0");
+
+        ExecutionException exception = expectThrows(
+                ExecutionException.class,
+                () -> new HttpRpcShuffleClient(httpClient, location).getResults(0, MAX_RESPONSE_SIZE).get(10, SECONDS));
+
+        // the failure goes through the response handler, as with the airlift client
+        assertTrue(exception.getCause() instanceof UncheckedIOException, exception.getCause().toString());
+        assertTrue(exception.getCause().getMessage().contains("Server refused connection: " + location), exception.getCause().getMessage());
+    }
+
+    @Test
+    public void testConcurrentRequestsShareConnection()
+            throws Exception
+    {
+        ImmutableList.Builder<ListenableFuture<PagesResponse>> futures = ImmutableList.builder();
+        for (int bufferId = 0; bufferId < CONCURRENT_REQUESTS; bufferId++) {
+            URI location = URI.create(baseUri + "/v1/task/concurrent/results/" + bufferId);
+            futures.add(new HttpRpcShuffleClient(httpClient, location).getResults(0, MAX_RESPONSE_SIZE));
+        }
+
+        List<ListenableFuture<PagesResponse>> responses = futures.build();
+        for (ListenableFuture<PagesResponse> response : responses) {
+            assertTrue(response.get(10, SECONDS).getPages().isEmpty());
+        }
+        // all the requests were in flight together over one connection
+        assertEquals(concurrentRequests.get(), CONCURRENT_REQUESTS);
+        assertEquals(concurrentRequestAddresses.size(), 1, concurrentRequestAddresses.toString());
+    }
+
+    private PagesResponse getResults(String taskId, long token)
+            throws Exception
+    {
+        URI location = URI.create(baseUri + "/v1/task/" + taskId + "/results/0");
+        return new HttpRpcShuffleClient(httpClient, location).getResults(token, MAX_RESPONSE_SIZE).get(10, SECONDS);
+    }
+
+    private static HttpServerResponse withPageHeaders(HttpServerResponse response, long token, long nextToken, boolean complete)
+    {
+        return response
+                .header(PRESTO_TASK_INSTANCE_ID, TASK_INSTANCE_ID)
+                .header(PRESTO_PAGE_TOKEN, String.valueOf(token))
+                .header(PRESTO_PAGE_NEXT_TOKEN, String.valueOf(nextToken))
+                .header(PRESTO_BUFFER_COMPLETE, String.valueOf(complete));
+    }
+}
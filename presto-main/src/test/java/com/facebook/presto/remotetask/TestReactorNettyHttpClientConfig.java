@@ -35,6 +35,7 @@ public class TestReactorNettyHttpClientConfig
     {
         assertRecordedDefaults(recordDefaults(ReactorNettyHttpClientConfig.class)
                 .setReactorNettyHttpClientEnabled(false)
+                .setReactorNettyExchangeClientEnabled(false)
                 .setHttpsEnabled(false)
                 .setMinConnections(50)
                 .setMaxConnections(100)
@@ -69,6 +70,7 @@ public class TestReactorNettyHttpClientConfig
     {
         Map<String, String> properties = new ImmutableMap.Builder<String, String>()
                 .put("reactor.netty-http-client-enabled", "true")
+                .put("reactor.netty-exchange-client-enabled", "true")
                 .put("reactor.https-enabled", "true")
                 .put("reactor.min-connections", "100")
                 .put("reactor.max-connections", "500")
@@ -100,6 +102,7 @@ public class TestReactorNettyHttpClientConfig
 
         ReactorNettyHttpClientConfig expected = new ReactorNettyHttpClientConfig()
                 .setReactorNettyHttpClientEnabled(true)
+                .setReactorNettyExchangeClientEnabled(true)
                 .setHttpsEnabled(true)
                 .setMinConnections(100)
                 .setMaxConnections(500)
@@ -22,9 +22,13 @@ import com.facebook.airlift.http.client.UnexpectedResponseException;
 import com.facebook.airlift.http.client.jetty.JettyHttpClient;
 import com.facebook.airlift.json.JsonCodec;
 import com.facebook.airlift.testing.Closeables;
+import com.facebook.airlift.units.Duration;
 import com.facebook.presto.CompressionCodec;
+import com.facebook.presto.client.ClientSession;
 import com.facebook.presto.client.QueryError;
 import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.client.ResultSegment;
+import com.facebook.presto.client.StatementClient;
 import com.facebook.presto.common.Page;
 import com.facebook.presto.common.block.BlockEncodingManager;
 import com.facebook.presto.common.type.TimeZoneNotSupportedException;
@@ -38,9 +42,11 @@ import com.facebook.presto.spi.page.PagesSerde;
 import com.facebook.presto.spi.page.SerializedPage;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import io.airlift.slice.BasicSliceInput;
 import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
+import okhttp3.OkHttpClient;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -48,10 +54,13 @@ import org.testng.annotations.Test;
 import java.net.URI;
 import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 
 import static com.facebook.airlift.http.client.FullJsonResponseHandler.createFullJsonResponseHandler;
 import static com.facebook.airlift.http.client.JsonResponseHandler.createJsonResponseHandler;
 import static com.facebook.airlift.http.client.Request.Builder.fromRequest;
+import static com.facebook.airlift.http.client.Request.Builder.prepareDelete;
 import static com.facebook.airlift.http.client.Request.Builder.prepareGet;
 import static com.facebook.airlift.http.client.Request.Builder.prepareHead;
 import static com.facebook.airlift.http.client.Request.Builder.preparePost;
@@ -74,6 +83,7 @@ import static com.facebook.presto.client.PrestoHeaders.PRESTO_STARTED_TRANSACTIO
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_TIME_ZONE;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_TRANSACTION_ID;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_USER;
+import static com.facebook.presto.client.StatementClientFactory.newStatementClient;
 import static com.facebook.presto.common.type.VarcharType.VARCHAR;
 import static com.facebook.presto.server.TestHttpRequestSessionContext.createFunctionAdd;
 import static com.facebook.presto.server.TestHttpRequestSessionContext.createSqlFunctionIdAdd;
@@ -84,10 +94,13 @@ import static com.facebook.presto.spi.page.PagesSerdeUtil.readSerializedPage;
 import static jakarta.ws.rs.core.HttpHeaders.CACHE_CONTROL;
 import static jakarta.ws.rs.core.HttpHeaders.CONTENT_TYPE;
 import static jakarta.ws.rs.core.MediaType.APPLICATION_JSON;
+import static jakarta.ws.rs.core.Response.Status.NOT_FOUND;
+import static jakarta.ws.rs.core.Response.Status.NO_CONTENT;
 import static jakarta.ws.rs.core.Response.Status.OK;
 import static java.lang.Integer.parseInt;
 import static java.lang.String.format;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertNotNull;
@@ -211,6 +224,154 @@ public class TestServer
         assertEquals(slice.toStringUtf8(), "system");
     }
 
+    @Test
+    public void testResultPages()
+    {
+        ClientSession session = ClientSession.builder(createClientSession(server.getBaseUrl()))
+                .withBinaryResults(true)
+                .build();
+        OkHttpClient httpClient = new OkHttpClient();
+        try {
+            // pages are streamed for supported types
+            List<List<Object>> rows = executeWithClient(httpClient, session, "SELECT x, CAST(x AS varchar), ARRAY[x] FROM UNNEST(sequence(1, 10000)) t(x)");
+            assertEquals(rows.size(), 10000);
+            for (int i = 0; i < rows.size(); i++) {
+                long x = i + 1;
+                assertEquals(rows.get(i), ImmutableList.of(x, String.valueOf(x), ImmutableList.of(x)));
+            }
+
+            // timestamps are returned as JSON
+            rows = executeWithClient(httpClient, session, "SELECT TIMESTAMP '2001-08-22 03:04:05.321', 1");
+            assertEquals(rows, ImmutableList.of(ImmutableList.of("2001-08-22 03:04:05.321", 1)));
+
+            // the session changes of a query reach the client as with JSON results
+            try (StatementClient statementClient = newStatementClient(httpClient, session, "SET SESSION " + QUERY_MAX_MEMORY + " = '1GB'")) {
+                while (statementClient.isRunning()) {
+                    statementClient.advance();
+                }
+                assertNull(statementClient.finalStatusInfo().getError());
+                assertEquals(statementClient.getSetSessionProperties(), ImmutableMap.of(QUERY_MAX_MEMORY, "1GB"));
+            }
+        }
+        finally {
+            httpClient.dispatcher().executorService().shutdown();
+            httpClient.connectionPool().evictAll();
+        }
+    }
+
+    @Test
+    public void testSpooledResults()
+            throws Exception
+    {
+        try (TestingPrestoServer spoolingServer = new TestingPrestoServer(ImmutableMap.of(
+                "spooled-results-enabled", "true",
+                "spooled-results-segment-size", "16kB"))) {
+            String sql = "SELECT x, CAST(x AS varchar) FROM UNNEST(sequence(1, 10000)) t(x)";
+
+            // the client fetches and acknowledges the segments
+            OkHttpClient httpClient = new OkHttpClient();
+            try {
+                List<List<Object>> rows = executeWithClient(httpClient, createClientSession(spoolingServer.getBaseUrl()), sql);
+                assertEquals(rows.size(), 10000);
+                for (int i = 0; i < rows.size(); i++) {
+                    long x = i + 1;
+                    assertEquals(rows.get(i), ImmutableList.of(x, String.valueOf(x)));
+                }
+            }
+            finally {
+                httpClient.dispatcher().executorService().shutdown();
+                httpClient.connectionPool().evictAll();
+            }
+
+            // the results carry segments instead of data
+            Request request = preparePost()
+                    .setUri(HttpUriBuilder.uriBuilderFrom(spoolingServer.getBaseUrl()).replacePath("/v1/statement").build())
+                    .setBodyGenerator(createStaticBodyGenerator(sql, UTF_8))
+                    .setHeader(PRESTO_USER, "user")
+                    .build();
+            QueryResults queryResults = client.execute(request, createJsonResponseHandler(QUERY_RESULTS_CODEC));
+            ImmutableList.Builder<ResultSegment> segments = ImmutableList.builder();
+            while (queryResults.getNextUri() != null) {
+                queryResults = client.execute(prepareGet().setUri(queryResults.getNextUri()).build(), createJsonResponseHandler(QUERY_RESULTS_CODEC));
+                assertNull(queryResults.getData());
+                if (queryResults.getSegments() != null) {
+                    segments.addAll(queryResults.getSegments());
+                }
+            }
+            assertNull(queryResults.getError());
+
+            List<ResultSegment> spooledSegments = segments.build();
+            assertTrue(spooledSegments.size() > 1);
+            assertEquals(spooledSegments.stream().mapToLong(ResultSegment::getRowCount).sum(), 10000);
+            for (ResultSegment segment : spooledSegments) {
+                // the segments are fetched from the node that spooled them, the only node here
+                assertEquals(segment.getUri().getHost(), spoolingServer.getBaseUrl().getHost());
+                assertEquals(segment.getUri().getPort(), spoolingServer.getBaseUrl().getPort());
+                assertTrue(segment.getUri().getPath().startsWith("/v1/spooled/" + queryResults.getId() + "/"));
+
+                StatusResponseHandler.StatusResponse response = client.execute(prepareGet().setUri(segment.getUri()).setHeader(PRESTO_USER, "user").build(), createStatusResponseHandler());
+                assertEquals(response.getStatusCode(), OK.getStatusCode());
+                response = client.execute(prepareDelete().setUri(segment.getUri()).setHeader(PRESTO_USER, "user").build(), createStatusResponseHandler());
+                assertEquals(response.getStatusCode(), NO_CONTENT.getStatusCode());
+                // acknowledged segments are removed
+                response = client.execute(prepareGet().setUri(segment.getUri()).setHeader(PRESTO_USER, "user").build(), createStatusResponseHandler());
+                assertEquals(response.getStatusCode(), NOT_FOUND.getStatusCode());
+            }
+
+            // segments of other nodes are not proxied
+            URI unknownNodeUri = HttpUriBuilder.uriBuilderFrom(spoolingServer.getBaseUrl())
+                    .replacePath("/v1/spooled")
+                    .appendPath(queryResults.getId())
+                    .appendPath("unknown-node")
+                    .appendPath("unknown-segment")
+                    .build();
+            StatusResponseHandler.StatusResponse response = client.execute(prepareGet().setUri(unknownNodeUri).setHeader(PRESTO_USER, "user").build(), createStatusResponseHandler());
+            assertEquals(response.getStatusCode(), NOT_FOUND.getStatusCode());
+        }
+    }
+
+    private static ClientSession createClientSession(URI server)
+    {
+        return new ClientSession(
+                server,
+                "user",
+                "source",
+                Optional.empty(),
+                ImmutableSet.of(),
+                null,
+                null,
+                null,
+                "UTC",
+                Locale.ENGLISH,
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                null,
+                new Duration(2, MINUTES),
+                false,
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                false);
+    }
+
+    private static List<List<Object>> executeWithClient(OkHttpClient httpClient, ClientSession session, String sql)
+    {
+        ImmutableList.Builder<List<Object>> rows = ImmutableList.builder();
+        try (StatementClient statementClient = newStatementClient(httpClient, session, sql)) {
+            while (statementClient.isRunning()) {
+                Iterable<List<Object>> data = statementClient.currentData().getData();
+                if (data != null) {
+                    rows.addAll(data);
+                }
+                statementClient.advance();
+            }
+            assertNull(statementClient.finalStatusInfo().getError());
+        }
+        return rows.build();
+    }
+
     @Test
     public void testQuery()
     {
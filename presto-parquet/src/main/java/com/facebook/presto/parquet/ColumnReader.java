@@ -27,5 +27,16 @@ public interface ColumnReader
 
     ColumnChunk readNext();
 
+    /**
+     * Reads the values of the given positions of the next batch only. The positions are
+     * increasing and the returned chunk has no repetition or definition levels, so this is
+     * meant for flat columns.
+     */
+    default ColumnChunk readNext(int[] positions, int positionCount)
+    {
+        ColumnChunk columnChunk = readNext();
+        return new ColumnChunk(columnChunk.getBlock().getPositions(positions, 0, positionCount), new int[0], new int[0]);
+    }
+
     long getRetainedSizeInBytes();
 }
@@ -113,6 +113,23 @@ public class Int64FlatBatchReader
         return columnChunk;
     }
 
+    @Override
+    public ColumnChunk readNext(int[] positions, int positionCount)
+    {
+        ColumnChunk columnChunk;
+        try {
+            seek();
+            columnChunk = readSelected(positions, positionCount);
+        }
+        catch (IOException exception) {
+            throw new PrestoException(PARQUET_IO_READ_ERROR, "Error reading Parquet column " + columnDescriptor, exception);
+        }
+
+        readOffset = 0;
+        nextBatchSize = 0;
+        return columnChunk;
+    }
+
     @Override
     public long getRetainedSizeInBytes()
     {
@@ -196,6 +213,93 @@ public class Int64FlatBatchReader
         return new ColumnChunk(block, new int[0], new int[0]);
     }
 
+    private ColumnChunk readSelected(int[] positions, int positionCount)
+            throws IOException
+    {
+        long[] values = new long[positionCount];
+        boolean[] isNull = new boolean[positionCount];
+        boolean[] batchIsNull = field.isRequired() ? null : new boolean[nextBatchSize];
+
+        int totalNonNullCount = 0;
+        int selected = 0;
+        int startOffset = 0;
+        while (startOffset < nextBatchSize) {
+            if (remainingCountInPage == 0) {
+                if (!readNextPage()) {
+                    break;
+                }
+            }
+
+            int chunkSize = Math.min(remainingCountInPage, nextBatchSize - startOffset);
+            int endOffset = startOffset + chunkSize;
+            if (batchIsNull != null) {
+                definitionLevelDecoder.readNext(batchIsNull, startOffset, chunkSize);
+            }
+
+            // the values of the page are decoded for the runs of consecutive selected positions only
+            int offset = startOffset;
+            while (selected < positionCount && positions[selected] < endOffset) {
+                int runStart = selected;
+                int runEnd = positions[selected] + 1;
+                selected++;
+                while (selected < positionCount && positions[selected] == runEnd && runEnd < endOffset) {
+                    runEnd++;
+                    selected++;
+                }
+
+                valuesDecoder.skip(countNonNull(batchIsNull, offset, positions[runStart]));
+                int nonNullCount = countNonNull(batchIsNull, positions[runStart], runEnd);
+                valuesDecoder.readNext(values, runStart, nonNullCount);
+                totalNonNullCount += nonNullCount;
+
+                if (nonNullCount < selected - runStart) {
+                    int valueSourceIndex = runStart + nonNullCount - 1;
+                    for (int valueDestinationIndex = selected - 1; valueDestinationIndex >= runStart; valueDestinationIndex--) {
+                        if (batchIsNull[positions[valueDestinationIndex]]) {
+                            isNull[valueDestinationIndex] = true;
+                        }
+                        else {
+                            values[valueDestinationIndex] = values[valueSourceIndex];
+                            valueSourceIndex--;
+                        }
+                    }
+                }
+                offset = runEnd;
+            }
+            valuesDecoder.skip(countNonNull(batchIsNull, offset, endOffset));
+
+            startOffset = endOffset;
+            remainingCountInPage -= chunkSize;
+        }
+
+        if (startOffset != nextBatchSize) {
+            throw new ParquetDecodingException(format("Corrupted Parquet file: extra %d values to be consumed when scanning current batch", nextBatchSize - startOffset));
+        }
+
+        if (batchIsNull != null && totalNonNullCount == 0) {
+            Block block = RunLengthEncodedBlock.create(field.getType(), null, positionCount);
+            return new ColumnChunk(block, new int[0], new int[0]);
+        }
+
+        boolean hasNoNull = totalNonNullCount == positionCount;
+        Block block = new LongArrayBlock(positionCount, hasNoNull ? Optional.empty() : Optional.of(isNull), values);
+        return new ColumnChunk(block, new int[0], new int[0]);
+    }
+
+    private static int countNonNull(boolean[] isNull, int start, int end)
+    {
+        if (isNull == null) {
+            return end - start;
+        }
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (!isNull[i]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     private ColumnChunk readWithoutNull()
             throws IOException
     {
@@ -16,11 +16,14 @@ package com.facebook.presto.parquet.cache;
 
 import com.facebook.presto.parquet.ParquetDataSource;
 import com.facebook.presto.parquet.ParquetDataSourceId;
+import com.facebook.presto.parquet.predicate.SplitBlockBloomFilter;
 import com.google.common.cache.Cache;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.apache.parquet.crypto.InternalFileDecryptor;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
 
 import java.io.IOException;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 
@@ -31,11 +34,21 @@ public class CachingParquetMetadataSource
         implements ParquetMetadataSource
 {
     private final Cache<ParquetDataSourceId, ParquetFileMetadata> cache;
+    private final Optional<Cache<BloomFilterCacheKey, Optional<SplitBlockBloomFilter>>> bloomFilterCache;
     private final ParquetMetadataSource delegate;
 
     public CachingParquetMetadataSource(Cache<ParquetDataSourceId, ParquetFileMetadata> cache, ParquetMetadataSource delegate)
+    {
+        this(cache, Optional.empty(), delegate);
+    }
+
+    public CachingParquetMetadataSource(
+            Cache<ParquetDataSourceId, ParquetFileMetadata> cache,
+            Optional<Cache<BloomFilterCacheKey, Optional<SplitBlockBloomFilter>>> bloomFilterCache,
+            ParquetMetadataSource delegate)
     {
         this.cache = requireNonNull(cache, "cache is null");
+        this.bloomFilterCache = requireNonNull(bloomFilterCache, "bloomFilterCache is null");
         this.delegate = requireNonNull(delegate, "delegate is null");
     }
 
@@ -68,4 +81,62 @@ public class CachingParquetMetadataSource
             throw new IOException("Unexpected error in parquet metadata reading after cache miss", e.getCause());
         }
     }
+
+    @Override
+    public Optional<SplitBlockBloomFilter> getBloomFilter(
+            ParquetDataSource parquetDataSource,
+            ColumnChunkMetaData column,
+            boolean cacheable,
+            long modificationTime)
+            throws IOException
+    {
+        if (!cacheable || !bloomFilterCache.isPresent()) {
+            return delegate.getBloomFilter(parquetDataSource, column, cacheable, modificationTime);
+        }
+        try {
+            // the modification time is part of the key, so filters of a rewritten file are never returned
+            return bloomFilterCache.get().get(
+                    new BloomFilterCacheKey(parquetDataSource.getId(), modificationTime, column.getBloomFilterOffset()),
+                    () -> delegate.getBloomFilter(parquetDataSource, column, cacheable, modificationTime));
+        }
+        catch (ExecutionException | UncheckedExecutionException e) {
+            throwIfInstanceOf(e.getCause(), IOException.class);
+            throw new IOException("Unexpected error in parquet Bloom filter reading after cache miss", e.getCause());
+        }
+    }
+
+    public static final class BloomFilterCacheKey
+    {
+        private final ParquetDataSourceId dataSourceId;
+        private final long modificationTime;
+        private final long offset;
+
+        public BloomFilterCacheKey(ParquetDataSourceId dataSourceId, long modificationTime, long offset)
+        {
+            this.dataSourceId = requireNonNull(dataSourceId, "dataSourceId is null");
+            this.modificationTime = modificationTime;
+            this.offset = offset;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            BloomFilterCacheKey that = (BloomFilterCacheKey) o;
+            return modificationTime == that.modificationTime &&
+                    offset == that.offset &&
+                    dataSourceId.equals(that.dataSourceId);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(dataSourceId, modificationTime, offset);
+        }
+    }
 }
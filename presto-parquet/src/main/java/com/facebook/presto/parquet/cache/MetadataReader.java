@@ -16,6 +16,7 @@ package com.facebook.presto.parquet.cache;
 import com.facebook.presto.parquet.ParquetCorruptionException;
 import com.facebook.presto.parquet.ParquetDataSource;
 import com.facebook.presto.parquet.ParquetDataSourceId;
+import com.facebook.presto.parquet.predicate.SplitBlockBloomFilter;
 import io.airlift.slice.BasicSliceInput;
 import io.airlift.slice.Slice;
 import org.apache.parquet.crypto.AesCipher;
@@ -28,6 +29,7 @@ import org.apache.parquet.crypto.ModuleCipherFactory.ModuleType;
 import org.apache.parquet.crypto.ParquetCryptoRuntimeException;
 import org.apache.parquet.crypto.TagVerificationException;
 import org.apache.parquet.format.BlockCipher.Decryptor;
+import org.apache.parquet.format.BloomFilterHeader;
 import org.apache.parquet.format.ColumnChunk;
 import org.apache.parquet.format.ColumnCryptoMetaData;
 import org.apache.parquet.format.ColumnMetaData;
@@ -101,6 +103,9 @@ public final class MetadataReader
     private static final int EXPECTED_FOOTER_SIZE = 16 * 1024;
     private static final ParquetMetadataConverter PARQUET_METADATA_CONVERTER = new ParquetMetadataConverter();
     private static final long MODIFICATION_TIME_NOT_SET = 0L;
+    // the Thrift header is a handful of bytes, it is followed by at least the bitset and the footer
+    private static final int BLOOM_FILTER_HEADER_READ_SIZE = 64;
+    private static final int MAX_BLOOM_FILTER_SIZE = 128 * 1024 * 1024;
 
     public static ParquetFileMetadata readFooter(ParquetDataSource parquetDataSource, long fileSize, Optional<InternalFileDecryptor> fileDecryptor, boolean readMaskedValue)
             throws IOException
@@ -257,6 +262,9 @@ public final class MetadataReader
                     ColumnChunkMetaData column = buildColumnChunkMetaData(metaData, columnPath, messageType.getType(columnPath.toArray()).asPrimitiveType());
                     column.setColumnIndexReference(toColumnIndexReference(columnChunk));
                     column.setOffsetIndexReference(toOffsetIndexReference(columnChunk));
+                    if (metaData.isSetBloom_filter_offset()) {
+                        column.setBloomFilterOffset(metaData.getBloom_filter_offset());
+                    }
                     blockMetaData.addColumn(column);
                 }
                 blockMetaData.setPath(filePath);
@@ -558,6 +566,37 @@ public final class MetadataReader
         return readFooter(parquetDataSource, fileSize, modificationTime, fileDecryptor, readMaskedValue);
     }
 
+    /**
+     * Reads the split block Bloom filter of the column chunk. Filters using an algorithm, hash
+     * or compression this reader does not support are ignored.
+     */
+    public static Optional<SplitBlockBloomFilter> readBloomFilter(ParquetDataSource parquetDataSource, ColumnChunkMetaData column)
+            throws IOException
+    {
+        long offset = column.getBloomFilterOffset();
+        if (offset < 0) {
+            return Optional.empty();
+        }
+
+        byte[] headerBuffer = new byte[BLOOM_FILTER_HEADER_READ_SIZE];
+        parquetDataSource.readFully(offset, headerBuffer);
+        ByteArrayInputStream headerStream = new ByteArrayInputStream(headerBuffer);
+        BloomFilterHeader header = Util.readBloomFilterHeader(headerStream);
+        int headerSize = headerBuffer.length - headerStream.available();
+
+        if (!header.getAlgorithm().isSetBLOCK() || !header.getHash().isSetXXHASH() || !header.getCompression().isSetUNCOMPRESSED()) {
+            return Optional.empty();
+        }
+        int numBytes = header.getNumBytes();
+        if (numBytes <= 0 || numBytes > MAX_BLOOM_FILTER_SIZE || numBytes % SplitBlockBloomFilter.BYTES_PER_BLOCK != 0) {
+            throw new ParquetCorruptionException("Invalid Bloom filter size %s for column %s in %s", numBytes, column.getPath(), parquetDataSource.getId());
+        }
+
+        byte[] bitset = new byte[numBytes];
+        parquetDataSource.readFully(offset + headerSize, bitset);
+        return Optional.of(new SplitBlockBloomFilter(wrappedBuffer(bitset)));
+    }
+
     private static IndexReference toColumnIndexReference(ColumnChunk columnChunk)
     {
         if (columnChunk.isSetColumn_index_offset() && columnChunk.isSetColumn_index_length()) {
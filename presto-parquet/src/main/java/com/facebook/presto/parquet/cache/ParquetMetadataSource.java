@@ -14,7 +14,9 @@
 package com.facebook.presto.parquet.cache;
 
 import com.facebook.presto.parquet.ParquetDataSource;
+import com.facebook.presto.parquet.predicate.SplitBlockBloomFilter;
 import org.apache.parquet.crypto.InternalFileDecryptor;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
 
 import java.io.IOException;
 import java.util.Optional;
@@ -29,4 +31,14 @@ public interface ParquetMetadataSource
             Optional<InternalFileDecryptor> fileDecryptor,
             boolean readMaskedValue)
             throws IOException;
+
+    default Optional<SplitBlockBloomFilter> getBloomFilter(
+            ParquetDataSource parquetDataSource,
+            ColumnChunkMetaData column,
+            boolean cacheable,
+            long modificationTime)
+            throws IOException
+    {
+        return MetadataReader.readBloomFilter(parquetDataSource, column);
+    }
 }
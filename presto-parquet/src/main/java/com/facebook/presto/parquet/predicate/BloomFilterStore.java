@@ -0,0 +1,29 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.predicate;
+
+import org.apache.parquet.column.ColumnDescriptor;
+
+import java.util.Optional;
+
+/**
+ * Provides the Bloom filters of the column chunks of a single row group.
+ */
+public interface BloomFilterStore
+{
+    /**
+     * @return the Bloom filter of the column, or empty if the column chunk has none or it cannot be read
+     */
+    Optional<SplitBlockBloomFilter> getBloomFilter(ColumnDescriptor column);
+}
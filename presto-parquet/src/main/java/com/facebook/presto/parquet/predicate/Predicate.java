@@ -73,4 +73,24 @@ public interface Predicate
      * @param columnIndexStore column index (statistics) store
      */
     boolean matches(long numberOfRows, Optional<ColumnIndexStore> columnIndexStore);
+
+    /**
+     * Should the Parquet Reader process a file section with the specified column chunk Bloom filters.
+     * Only equality and IN predicates can be evaluated on Bloom filters.
+     *
+     * @param bloomFilterStore Bloom filters of the file section
+     */
+    default boolean matches(BloomFilterStore bloomFilterStore)
+    {
+        return true;
+    }
+
+    /**
+     * Should the Parquet Reader read the dictionary of the column and evaluate {@link #matches(DictionaryDescriptor)}
+     * even when the effective predicate has no domain for it.
+     */
+    default boolean hasDictionaryFilter(ColumnDescriptor column)
+    {
+        return false;
+    }
 }
@@ -13,7 +13,10 @@
  */
 package com.facebook.presto.parquet.predicate;
 
+import com.facebook.presto.common.RuntimeStats;
+import com.facebook.presto.common.block.Block;
 import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.predicate.ValueBloomFilter;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.parquet.DictionaryPage;
 import com.facebook.presto.parquet.ParquetCorruptionException;
@@ -50,6 +53,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+import static com.facebook.presto.common.RuntimeMetricName.PARQUET_BLOOM_FILTER_SKIPPED_ROW_GROUPS;
+import static com.facebook.presto.common.RuntimeUnit.NONE;
 import static com.facebook.presto.common.type.IntegerType.INTEGER;
 import static com.facebook.presto.common.type.SmallintType.SMALLINT;
 import static com.facebook.presto.common.type.TinyintType.TINYINT;
@@ -76,6 +81,15 @@ public final class PredicateUtils
     }
 
     public static Predicate buildPredicate(MessageType requestedSchema, TupleDomain<ColumnDescriptor> parquetTupleDomain, Map<List<String>, RichColumnDescriptor> descriptorsByPath)
+    {
+        return buildPredicate(requestedSchema, parquetTupleDomain, ImmutableMap.of(), descriptorsByPath);
+    }
+
+    public static Predicate buildPredicate(
+            MessageType requestedSchema,
+            TupleDomain<ColumnDescriptor> parquetTupleDomain,
+            Map<ColumnDescriptor, ValueBloomFilter> bloomFilters,
+            Map<List<String>, RichColumnDescriptor> descriptorsByPath)
     {
         ImmutableList.Builder<RichColumnDescriptor> columnReferences = ImmutableList.builder();
         for (String[] paths : requestedSchema.getPaths()) {
@@ -84,7 +98,7 @@ public final class PredicateUtils
                 columnReferences.add(descriptor);
             }
         }
-        return new TupleDomainParquetPredicate(parquetTupleDomain, columnReferences.build());
+        return new TupleDomainParquetPredicate(parquetTupleDomain, bloomFilters, columnReferences.build());
     }
 
     public static boolean predicateMatches(
@@ -117,6 +131,31 @@ public final class PredicateUtils
             Optional<ColumnIndexStore> columnIndexStore,
             boolean readColumnIndex,
             Optional<WarningCollector> warningCollector)
+    {
+        return predicateMatches(
+                parquetPredicate,
+                block,
+                dataSource,
+                descriptorsByPath,
+                parquetTupleDomain,
+                columnIndexStore,
+                readColumnIndex,
+                Optional.empty(),
+                warningCollector,
+                new RuntimeStats());
+    }
+
+    public static boolean predicateMatches(
+            Predicate parquetPredicate,
+            BlockMetaData block,
+            ParquetDataSource dataSource,
+            Map<List<String>, RichColumnDescriptor> descriptorsByPath,
+            TupleDomain<ColumnDescriptor> parquetTupleDomain,
+            Optional<ColumnIndexStore> columnIndexStore,
+            boolean readColumnIndex,
+            Optional<BloomFilterStore> bloomFilterStore,
+            Optional<WarningCollector> warningCollector,
+            RuntimeStats runtimeStats)
     {
         Map<ColumnDescriptor, Statistics<?>> columnStatistics = getStatistics(block, descriptorsByPath);
         if (!parquetPredicate.matches(block.getRowCount(), columnStatistics, dataSource.getId(), warningCollector)) {
@@ -128,9 +167,33 @@ public final class PredicateUtils
             return false;
         }
 
+        // Bloom filters are checked before the dictionaries, as they are smaller and do not need to be decompressed.
+        if (bloomFilterStore.isPresent() && !parquetPredicate.matches(bloomFilterStore.get())) {
+            runtimeStats.addMetricValue(PARQUET_BLOOM_FILTER_SKIPPED_ROW_GROUPS, NONE, 1);
+            return false;
+        }
+
         return dictionaryPredicatesMatch(parquetPredicate, block, dataSource, descriptorsByPath, parquetTupleDomain);
     }
 
+    /**
+     * Keeps the positions whose value in the block might be in the Bloom filter, in their order,
+     * at the start of the positions array. Null values never match.
+     *
+     * @return the number of positions kept
+     */
+    public static int filterPositions(ValueBloomFilter bloomFilter, Block block, int[] positions, int positionCount)
+    {
+        int matchingPositionCount = 0;
+        for (int i = 0; i < positionCount; i++) {
+            int position = positions[i];
+            if (bloomFilter.mightContain(block, position)) {
+                positions[matchingPositionCount++] = position;
+            }
+        }
+        return matchingPositionCount;
+    }
+
     private static Map<ColumnDescriptor, Statistics<?>> getStatistics(BlockMetaData blockMetadata, Map<List<String>, RichColumnDescriptor> descriptorsByPath)
     {
         ImmutableMap.Builder<ColumnDescriptor, Statistics<?>> statistics = ImmutableMap.builder();
@@ -151,7 +214,7 @@ public final class PredicateUtils
         for (ColumnChunkMetaData columnMetaData : blockMetadata.getColumns()) {
             if (!HiddenColumnChunkMetaData.isHiddenColumn(columnMetaData)) {
                 RichColumnDescriptor descriptor = descriptorsByPath.get(Arrays.asList(columnMetaData.getPath().toArray()));
-                if (descriptor != null && isOnlyDictionaryEncodingPages(columnMetaData) && isColumnPredicate(descriptor, parquetTupleDomain)) {
+                if (descriptor != null && isOnlyDictionaryEncodingPages(columnMetaData) && (isColumnPredicate(descriptor, parquetTupleDomain) || parquetPredicate.hasDictionaryFilter(descriptor))) {
                     byte[] buffer = new byte[toIntExact(columnMetaData.getTotalSize())];
                     dataSource.readFully(columnMetaData.getStartingPos(), buffer);
                     //  Early abort, predicate already filters block so no more dictionaries need be read
@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.predicate;
+
+import com.facebook.presto.common.type.Type;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import io.airlift.slice.XxHash64;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.openjdk.jol.info.ClassLayout;
+
+import java.util.OptionalLong;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.DateType.DATE;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.common.type.RealType.REAL;
+import static com.facebook.presto.common.type.SmallintType.SMALLINT;
+import static com.facebook.presto.common.type.TinyintType.TINYINT;
+import static com.facebook.presto.common.type.Varchars.isVarcharType;
+import static io.airlift.slice.SizeOf.sizeOfIntArray;
+import static java.lang.Double.doubleToLongBits;
+import static java.lang.Float.floatToIntBits;
+import static java.lang.Float.intBitsToFloat;
+import static java.lang.String.format;
+
+/**
+ * Read-only view of a Parquet split block Bloom filter, as described in the Parquet format
+ * specification. Values are hashed with xxHash64 over their plain encoding, see {@link #hash}.
+ */
+public final class SplitBlockBloomFilter
+{
+    public static final int BYTES_PER_BLOCK = 32;
+
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(SplitBlockBloomFilter.class).instanceSize();
+    private static final int WORDS_PER_BLOCK = BYTES_PER_BLOCK / Integer.BYTES;
+    private static final int[] SALT = {
+            0x47b6137b, 0x44974d91, 0x8824ad5b, 0xa2b7289d,
+            0x705495c7, 0x2df1424b, 0x9efc4947, 0x5c6bfb31};
+
+    private final int[] words;
+    private final int blockCount;
+
+    public SplitBlockBloomFilter(Slice bitset)
+    {
+        int length = bitset.length();
+        if (length == 0 || length % BYTES_PER_BLOCK != 0) {
+            throw new IllegalArgumentException(format("Invalid Bloom filter size: %s", length));
+        }
+        this.words = new int[length / Integer.BYTES];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = bitset.getInt(i * Integer.BYTES);
+        }
+        this.blockCount = length / BYTES_PER_BLOCK;
+    }
+
+    public boolean mightContain(long hash)
+    {
+        int block = (int) (((hash >>> 32) * blockCount) >>> 32);
+        int key = (int) hash;
+        int offset = block * WORDS_PER_BLOCK;
+        for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+            int mask = 1 << ((key * SALT[i]) >>> 27);
+            if ((words[offset + i] & mask) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getRetainedSizeInBytes()
+    {
+        return INSTANCE_SIZE + sizeOfIntArray(words.length);
+    }
+
+    /**
+     * Hashes a native value of {@code type} stored in a column of {@code physicalType}.
+     *
+     * @return empty if the value cannot be looked up in the filter, for example because the Parquet
+     * writer may have used a different representation of an equal value
+     */
+    public static OptionalLong hash(Object value, Type type, PrimitiveTypeName physicalType)
+    {
+        switch (physicalType) {
+            case INT32:
+                if (isIntegerType(type) && (long) value == (int) (long) value) {
+                    return OptionalLong.of(XxHash64.hash(intSlice((int) (long) value)));
+                }
+                break;
+            case INT64:
+                if (isIntegerType(type)) {
+                    return OptionalLong.of(XxHash64.hash(longSlice((long) value)));
+                }
+                break;
+            case FLOAT:
+                if (type.equals(REAL)) {
+                    float floatValue = intBitsToFloat((int) (long) value);
+                    // -0.0 and 0.0 are equal but hashed differently, NaN is never equal
+                    if (floatValue != 0 && !Float.isNaN(floatValue)) {
+                        return OptionalLong.of(XxHash64.hash(intSlice(floatToIntBits(floatValue))));
+                    }
+                }
+                break;
+            case DOUBLE:
+                if (type.equals(DOUBLE)) {
+                    double doubleValue = (double) value;
+                    if (doubleValue != 0 && !Double.isNaN(doubleValue)) {
+                        return OptionalLong.of(XxHash64.hash(longSlice(doubleToLongBits(doubleValue))));
+                    }
+                }
+                break;
+            case BINARY:
+                if (isVarcharType(type)) {
+                    return OptionalLong.of(XxHash64.hash((Slice) value));
+                }
+                break;
+            default:
+                break;
+        }
+        return OptionalLong.empty();
+    }
+
+    private static boolean isIntegerType(Type type)
+    {
+        return type.equals(BIGINT) || type.equals(INTEGER) || type.equals(SMALLINT) || type.equals(TINYINT) || type.equals(DATE);
+    }
+
+    private static Slice intSlice(int value)
+    {
+        Slice slice = Slices.allocate(Integer.BYTES);
+        slice.setInt(0, value);
+        return slice;
+    }
+
+    private static Slice longSlice(long value)
+    {
+        Slice slice = Slices.allocate(Long.BYTES);
+        slice.setLong(0, value);
+        return slice;
+    }
+}
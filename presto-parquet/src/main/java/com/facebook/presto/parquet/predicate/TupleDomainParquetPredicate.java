@@ -15,7 +15,9 @@ package com.facebook.presto.parquet.predicate;
 
 import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.common.predicate.Range;
+import com.facebook.presto.common.predicate.Ranges;
 import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.predicate.ValueBloomFilter;
 import com.facebook.presto.common.predicate.ValueSet;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.parquet.DictionaryPage;
@@ -27,6 +29,7 @@ import com.facebook.presto.spi.WarningCollector;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.VerifyException;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
 import org.apache.parquet.column.ColumnDescriptor;
@@ -48,6 +51,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.function.Function;
 
 import static com.facebook.presto.common.type.BigintType.BIGINT;
@@ -74,13 +78,27 @@ import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT64;
 public class TupleDomainParquetPredicate
         implements Predicate
 {
+    // larger IN lists are unlikely to be selective enough to skip a row group
+    private static final int MAX_BLOOM_FILTER_LOOKUPS = 1024;
+
     private final TupleDomain<ColumnDescriptor> effectivePredicate;
+    private final Map<ColumnDescriptor, ValueBloomFilter> bloomFilters;
     private final List<RichColumnDescriptor> columns;
     private final ColumnIndexValueConverter converter;
 
     public TupleDomainParquetPredicate(TupleDomain<ColumnDescriptor> effectivePredicate, List<RichColumnDescriptor> columns)
+    {
+        this(effectivePredicate, ImmutableMap.of(), columns);
+    }
+
+    /**
+     * @param bloomFilters filters over the values a column may contain; they are checked against the
+     * column dictionaries, since they cannot be evaluated on the min/max statistics
+     */
+    public TupleDomainParquetPredicate(TupleDomain<ColumnDescriptor> effectivePredicate, Map<ColumnDescriptor, ValueBloomFilter> bloomFilters, List<RichColumnDescriptor> columns)
     {
         this.effectivePredicate = requireNonNull(effectivePredicate, "effectivePredicate is null");
+        this.bloomFilters = ImmutableMap.copyOf(requireNonNull(bloomFilters, "bloomFilters is null"));
         this.columns = ImmutableList.copyOf(requireNonNull(columns, "columns is null"));
         this.converter = new ColumnIndexValueConverter(columns);
     }
@@ -233,10 +251,21 @@ public class TupleDomainParquetPredicate
             return Domain.all(type);
         }
 
+        Optional<List<Object>> values = getDictionaryValues(dictionaryDescriptor);
+        if (!values.isPresent()) {
+            return Domain.all(type);
+        }
+
+        // TODO: when min == max (i.e., singleton ranges, the construction of Domains can be done more efficiently
+        return getDomain(dictionaryDescriptor.getColumnDescriptor(), type, values.get(), values.get(), true);
+    }
+
+    private static Optional<List<Object>> getDictionaryValues(DictionaryDescriptor dictionaryDescriptor)
+    {
         ColumnDescriptor columnDescriptor = dictionaryDescriptor.getColumnDescriptor();
         Optional<DictionaryPage> dictionaryPage = dictionaryDescriptor.getDictionaryPage();
         if (!dictionaryPage.isPresent()) {
-            return Domain.all(type);
+            return Optional.empty();
         }
 
         Dictionary dictionary;
@@ -246,7 +275,7 @@ public class TupleDomainParquetPredicate
         catch (Exception e) {
             // In case of exception, just continue reading the data, not using dictionary page at all
             // OK to ignore exception when reading dictionaries
-            return Domain.all(type);
+            return Optional.empty();
         }
 
         int dictionarySize = dictionaryPage.get().getDictionarySize();
@@ -256,9 +285,41 @@ public class TupleDomainParquetPredicate
         for (int i = 0; i < dictionarySize; i++) {
             values.add(convertFunction.apply(i));
         }
+        return Optional.of(values);
+    }
 
-        // TODO: when min == max (i.e., singleton ranges, the construction of Domains can be done more efficiently
-        return getDomain(columnDescriptor, type, values, values, true);
+    @VisibleForTesting
+    public static boolean bloomFilterMatches(ValueBloomFilter bloomFilter, DictionaryDescriptor dictionaryDescriptor)
+    {
+        Optional<List<Object>> values = getDictionaryValues(dictionaryDescriptor);
+        if (!values.isPresent()) {
+            return true;
+        }
+
+        Type type = bloomFilter.getType();
+        for (Object value : values.get()) {
+            Object nativeValue;
+            if (type.equals(REAL) && value instanceof Float) {
+                nativeValue = (long) floatToRawIntBits((Float) value);
+            }
+            else if (type.equals(DOUBLE) && (value instanceof Float || value instanceof Double)) {
+                nativeValue = ((Number) value).doubleValue();
+            }
+            else if (type.getJavaType() == long.class && !type.equals(REAL) && (value instanceof Integer || value instanceof Long)) {
+                nativeValue = asLong(value);
+            }
+            else if (isVarcharType(type) && value instanceof Binary) {
+                nativeValue = Slices.wrappedBuffer(((Binary) value).getBytes());
+            }
+            else {
+                // physical type does not match the filter type, the dictionary cannot be checked
+                return true;
+            }
+            if (bloomFilter.mightContain(nativeValue)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public static long asLong(Object value)
@@ -353,8 +414,77 @@ public class TupleDomainParquetPredicate
                 .orElseThrow(() -> new IllegalStateException("Effective predicate other than none should have domains"));
 
         Domain effectivePredicateDomain = effectivePredicateDomains.get(dictionary.getColumnDescriptor());
+        if (effectivePredicateDomain != null && !effectivePredicateMatches(effectivePredicateDomain, dictionary)) {
+            return false;
+        }
+
+        ValueBloomFilter bloomFilter = bloomFilters.get(dictionary.getColumnDescriptor());
+        return bloomFilter == null || bloomFilterMatches(bloomFilter, dictionary);
+    }
 
-        return effectivePredicateDomain == null || effectivePredicateMatches(effectivePredicateDomain, dictionary);
+    @Override
+    public boolean matches(BloomFilterStore bloomFilterStore)
+    {
+        requireNonNull(bloomFilterStore, "bloomFilterStore is null");
+        if (effectivePredicate.isNone()) {
+            return false;
+        }
+
+        Map<ColumnDescriptor, Domain> effectivePredicateDomains = effectivePredicate.getDomains()
+                .orElseThrow(() -> new IllegalStateException("Effective predicate other than none should have domains"));
+
+        for (RichColumnDescriptor column : columns) {
+            Domain effectivePredicateDomain = effectivePredicateDomains.get(column);
+            // Bloom filters do not track nulls
+            if (effectivePredicateDomain == null || effectivePredicateDomain.isNullAllowed()) {
+                continue;
+            }
+            Optional<List<Object>> values = getDiscreteValues(effectivePredicateDomain);
+            if (!values.isPresent()) {
+                continue;
+            }
+            Optional<SplitBlockBloomFilter> bloomFilter = bloomFilterStore.getBloomFilter(column);
+            if (bloomFilter.isPresent() && !bloomFilterMatches(bloomFilter.get(), column, effectivePredicateDomain.getType(), values.get())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Optional<List<Object>> getDiscreteValues(Domain domain)
+    {
+        if (!domain.getType().isOrderable() || domain.getValues().isNone()) {
+            return Optional.empty();
+        }
+        Ranges ranges = domain.getValues().getRanges();
+        if (ranges.getRangeCount() > MAX_BLOOM_FILTER_LOOKUPS) {
+            return Optional.empty();
+        }
+        List<Object> values = new ArrayList<>(ranges.getRangeCount());
+        for (Range range : ranges.getOrderedRanges()) {
+            if (!range.isSingleValue()) {
+                return Optional.empty();
+            }
+            values.add(range.getSingleValue());
+        }
+        return Optional.of(values);
+    }
+
+    private static boolean bloomFilterMatches(SplitBlockBloomFilter bloomFilter, ColumnDescriptor column, Type type, List<Object> values)
+    {
+        for (Object value : values) {
+            OptionalLong hash = SplitBlockBloomFilter.hash(value, type, column.getPrimitiveType().getPrimitiveTypeName());
+            if (!hash.isPresent() || bloomFilter.mightContain(hash.getAsLong())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasDictionaryFilter(ColumnDescriptor column)
+    {
+        return bloomFilters.containsKey(column);
     }
 
     @Override
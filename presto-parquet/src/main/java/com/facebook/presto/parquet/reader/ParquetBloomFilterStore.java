@@ -0,0 +1,93 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.reader;
+
+import com.facebook.presto.parquet.ParquetDataSource;
+import com.facebook.presto.parquet.RichColumnDescriptor;
+import com.facebook.presto.parquet.cache.ParquetMetadataSource;
+import com.facebook.presto.parquet.predicate.BloomFilterStore;
+import com.facebook.presto.parquet.predicate.SplitBlockBloomFilter;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.crypto.HiddenColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Internal implementation of {@link BloomFilterStore}. The filters are read lazily,
+ * only for the columns the predicate asks for.
+ */
+public class ParquetBloomFilterStore
+        implements BloomFilterStore
+{
+    private final ParquetDataSource dataSource;
+    private final ParquetMetadataSource metadataSource;
+    private final boolean cacheable;
+    private final long modificationTime;
+    private final Map<ColumnDescriptor, ColumnChunkMetaData> columnChunks = new HashMap<>();
+    private final Map<ColumnDescriptor, Optional<SplitBlockBloomFilter>> bloomFilters = new HashMap<>();
+
+    public ParquetBloomFilterStore(
+            ParquetDataSource dataSource,
+            BlockMetaData block,
+            Map<List<String>, RichColumnDescriptor> descriptorsByPath,
+            ParquetMetadataSource metadataSource,
+            boolean cacheable,
+            long modificationTime)
+    {
+        this.dataSource = requireNonNull(dataSource, "dataSource is null");
+        this.metadataSource = requireNonNull(metadataSource, "metadataSource is null");
+        this.cacheable = cacheable;
+        this.modificationTime = modificationTime;
+        for (ColumnChunkMetaData column : block.getColumns()) {
+            if (HiddenColumnChunkMetaData.isHiddenColumn(column)) {
+                continue;
+            }
+            RichColumnDescriptor descriptor = descriptorsByPath.get(Arrays.asList(column.getPath().toArray()));
+            if (descriptor != null) {
+                columnChunks.put(descriptor, column);
+            }
+        }
+    }
+
+    @Override
+    public Optional<SplitBlockBloomFilter> getBloomFilter(ColumnDescriptor column)
+    {
+        return bloomFilters.computeIfAbsent(column, this::readBloomFilter);
+    }
+
+    private Optional<SplitBlockBloomFilter> readBloomFilter(ColumnDescriptor column)
+    {
+        ColumnChunkMetaData columnChunk = columnChunks.get(column);
+        if (columnChunk == null || columnChunk.getBloomFilterOffset() < 0) {
+            return Optional.empty();
+        }
+        try {
+            return metadataSource.getBloomFilter(dataSource, columnChunk, cacheable, modificationTime);
+        }
+        catch (IOException | RuntimeException e) {
+            // If the I/O issue still stands it will fail the reading later;
+            // otherwise we only lose the filtering of this row group.
+            return Optional.empty();
+        }
+    }
+}
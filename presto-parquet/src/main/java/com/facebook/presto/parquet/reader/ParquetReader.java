@@ -332,61 +332,7 @@ public class ParquetReader
         int fieldId = field.getId();
         ColumnReader columnReader = columnReaders[fieldId];
         if (!columnReader.isInitialized()) {
-            validateParquet(currentBlockMetadata.getRowCount() > 0, "Row group has 0 rows");
-            ColumnChunkMetaData columnChunkMetaData = getColumnChunkMetaData(columnDescriptor);
-            long startingPosition = columnChunkMetaData.getStartingPos();
-            int columnChunkSize = toIntExact(columnChunkMetaData.getTotalSize());
-
-            if (shouldUseColumnIndex(columnChunkMetaData.getPath())) {
-                OffsetIndex offsetIndex = blockIndexStores.get(currentBlock).getOffsetIndex(columnChunkMetaData.getPath());
-                OffsetIndex filteredOffsetIndex = ColumnIndexFilterUtils.filterOffsetIndex(offsetIndex, currentGroupRowRanges, blocks.get(currentBlock).getRowCount());
-                List<OffsetRange> offsetRanges = ColumnIndexFilterUtils.calculateOffsetRanges(filteredOffsetIndex, columnChunkMetaData, offsetIndex.getOffset(0), startingPosition);
-                List<OffsetRange> consecutiveRanges = concatRanges(offsetRanges);
-                int consecutiveRangesSize = consecutiveRanges.stream().mapToInt(range -> (int) range.getLength()).sum();
-                PageReader pageReader = createPageReader(
-                        dataSourceAsInputStream(startingPosition, consecutiveRanges),
-                        consecutiveRangesSize,
-                        columnChunkMetaData,
-                        columnDescriptor,
-                        Optional.of(filteredOffsetIndex),
-                        pageReaderMemoryContext);
-
-                columnReader.init(pageReader, field, currentGroupRowRanges);
-
-                if (enableVerification) {
-                    ColumnReader verificationColumnReader = verificationColumnReaders[field.getId()];
-                    PageReader pageReaderVerification = createPageReader(
-                            dataSourceAsInputStream(startingPosition, consecutiveRanges),
-                            consecutiveRangesSize,
-                            columnChunkMetaData,
-                            columnDescriptor,
-                            Optional.of(filteredOffsetIndex),
-                            verificationPageReaderMemoryContext);
-                    verificationColumnReader.init(pageReaderVerification, field, currentGroupRowRanges);
-                }
-            }
-            else {
-                PageReader pageReader = createPageReader(
-                        dataSourceAsInputStream(startingPosition, columnChunkSize),
-                        columnChunkSize,
-                        columnChunkMetaData,
-                        columnDescriptor,
-                        Optional.empty(),
-                        pageReaderMemoryContext);
-                columnReader.init(pageReader, field, null);
-
-                if (enableVerification) {
-                    ColumnReader verificationColumnReader = verificationColumnReaders[field.getId()];
-                    PageReader pageReaderVerification = createPageReader(
-                            dataSourceAsInputStream(startingPosition, columnChunkSize),
-                            columnChunkSize,
-                            columnChunkMetaData,
-                            columnDescriptor,
-                            Optional.empty(),
-                            verificationPageReaderMemoryContext);
-                    verificationColumnReader.init(pageReaderVerification, field, null);
-                }
-            }
+            initializeColumnReader(field, columnReader);
         }
 
         ColumnChunk columnChunk = columnReader.readNext();
@@ -409,6 +355,80 @@ public class ParquetReader
         return columnChunk;
     }
 
+    private ColumnChunk readPrimitive(PrimitiveField field, int[] positions, int positionCount)
+            throws IOException
+    {
+        ColumnReader columnReader = columnReaders[field.getId()];
+        if (!columnReader.isInitialized()) {
+            initializeColumnReader(field, columnReader);
+        }
+
+        // the selected positions do not tell the size of the batch, so the batch size estimate is left as is
+        ColumnChunk columnChunk = columnReader.readNext(positions, positionCount);
+        return typeCoercion(columnChunk, field.getDescriptor().getPrimitiveType().getPrimitiveTypeName(), field.getType());
+    }
+
+    private void initializeColumnReader(PrimitiveField field, ColumnReader columnReader)
+            throws IOException
+    {
+        ColumnDescriptor columnDescriptor = field.getDescriptor();
+        validateParquet(currentBlockMetadata.getRowCount() > 0, "Row group has 0 rows");
+        ColumnChunkMetaData columnChunkMetaData = getColumnChunkMetaData(columnDescriptor);
+        long startingPosition = columnChunkMetaData.getStartingPos();
+        int columnChunkSize = toIntExact(columnChunkMetaData.getTotalSize());
+
+        if (shouldUseColumnIndex(columnChunkMetaData.getPath())) {
+            OffsetIndex offsetIndex = blockIndexStores.get(currentBlock).getOffsetIndex(columnChunkMetaData.getPath());
+            OffsetIndex filteredOffsetIndex = ColumnIndexFilterUtils.filterOffsetIndex(offsetIndex, currentGroupRowRanges, blocks.get(currentBlock).getRowCount());
+            List<OffsetRange> offsetRanges = ColumnIndexFilterUtils.calculateOffsetRanges(filteredOffsetIndex, columnChunkMetaData, offsetIndex.getOffset(0), startingPosition);
+            List<OffsetRange> consecutiveRanges = concatRanges(offsetRanges);
+            int consecutiveRangesSize = consecutiveRanges.stream().mapToInt(range -> (int) range.getLength()).sum();
+            PageReader pageReader = createPageReader(
+                    dataSourceAsInputStream(startingPosition, consecutiveRanges),
+                    consecutiveRangesSize,
+                    columnChunkMetaData,
+                    columnDescriptor,
+                    Optional.of(filteredOffsetIndex),
+                    pageReaderMemoryContext);
+
+            columnReader.init(pageReader, field, currentGroupRowRanges);
+
+            if (enableVerification) {
+                ColumnReader verificationColumnReader = verificationColumnReaders[field.getId()];
+                PageReader pageReaderVerification = createPageReader(
+                        dataSourceAsInputStream(startingPosition, consecutiveRanges),
+                        consecutiveRangesSize,
+                        columnChunkMetaData,
+                        columnDescriptor,
+                        Optional.of(filteredOffsetIndex),
+                        verificationPageReaderMemoryContext);
+                verificationColumnReader.init(pageReaderVerification, field, currentGroupRowRanges);
+            }
+        }
+        else {
+            PageReader pageReader = createPageReader(
+                    dataSourceAsInputStream(startingPosition, columnChunkSize),
+                    columnChunkSize,
+                    columnChunkMetaData,
+                    columnDescriptor,
+                    Optional.empty(),
+                    pageReaderMemoryContext);
+            columnReader.init(pageReader, field, null);
+
+            if (enableVerification) {
+                ColumnReader verificationColumnReader = verificationColumnReaders[field.getId()];
+                PageReader pageReaderVerification = createPageReader(
+                        dataSourceAsInputStream(startingPosition, columnChunkSize),
+                        columnChunkSize,
+                        columnChunkMetaData,
+                        columnDescriptor,
+                        Optional.empty(),
+                        verificationPageReaderMemoryContext);
+                verificationColumnReader.init(pageReaderVerification, field, null);
+            }
+        }
+    }
+
     private InputStream dataSourceAsInputStream(long startingPosition, List<OffsetRange> offsetRanges)
     {
         List<InputStream> inputStreams = new ArrayList<>();
@@ -536,6 +556,22 @@ public class ParquetReader
         return readColumnChunk(field).getBlock();
     }
 
+    /**
+     * Reads the given increasing positions of the next batch of a field. Only flat primitive
+     * columns skip decoding the other positions, the rest read the whole batch.
+     */
+    public Block readBlock(Field field, int[] positions, int positionCount)
+            throws IOException
+    {
+        if (!(field instanceof PrimitiveField) || ((PrimitiveField) field).getDescriptor().getPath().length > 1 || enableVerification) {
+            return readBlock(field).getPositions(positions, 0, positionCount);
+        }
+
+        Block block = readPrimitive((PrimitiveField) field, positions, positionCount).getBlock();
+        parquetReaderMemoryContext.setBytes(getRetainedSizeInBytes());
+        return block;
+    }
+
     private ColumnChunk readColumnChunk(Field field)
             throws IOException
     {
@@ -16,15 +16,19 @@ package com.facebook.presto.parquet;
 import com.facebook.presto.common.predicate.Domain;
 import com.facebook.presto.common.predicate.Range;
 import com.facebook.presto.common.predicate.TupleDomain;
+import com.facebook.presto.common.predicate.ValueBloomFilter;
 import com.facebook.presto.common.predicate.ValueSet;
 import com.facebook.presto.common.type.Type;
 import com.facebook.presto.common.type.VarcharType;
 import com.facebook.presto.execution.warnings.WarningCollectorConfig;
+import com.facebook.presto.parquet.predicate.BloomFilterStore;
 import com.facebook.presto.parquet.predicate.DictionaryDescriptor;
+import com.facebook.presto.parquet.predicate.SplitBlockBloomFilter;
 import com.facebook.presto.parquet.predicate.TupleDomainParquetPredicate;
 import com.facebook.presto.spi.PrestoWarning;
 import com.facebook.presto.testing.TestingWarningCollector;
 import com.facebook.presto.testing.TestingWarningCollectorConfig;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
@@ -36,6 +40,7 @@ import org.apache.parquet.column.statistics.FloatStatistics;
 import org.apache.parquet.column.statistics.IntStatistics;
 import org.apache.parquet.column.statistics.LongStatistics;
 import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.column.values.bloomfilter.BlockSplitBloomFilter;
 import org.apache.parquet.schema.PrimitiveType;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -383,6 +388,36 @@ public class TestTupleDomainParquetPredicate
         assertFalse(parquetPredicate.matches(2, ImmutableMap.of(column, longColumnStats(1024, 0x10000 + 42)), ID, Optional.of(collector)));
     }
 
+    @Test
+    public void testBigintMatchesWithBloomFilter()
+            throws Exception
+    {
+        RichColumnDescriptor column = new RichColumnDescriptor(
+                new ColumnDescriptor(new String[] {"path"}, INT64, 0, 0),
+                new PrimitiveType(OPTIONAL, INT64, "Test column"));
+        BlockSplitBloomFilter writer = new BlockSplitBloomFilter(1024);
+        writer.insertHash(writer.hash(42L));
+        writer.insertHash(writer.hash(404L));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.writeTo(output);
+        SplitBlockBloomFilter bloomFilter = new SplitBlockBloomFilter(Slices.wrappedBuffer(output.toByteArray()));
+        BloomFilterStore bloomFilterStore = columnDescriptor -> Optional.of(bloomFilter);
+
+        assertTrue(bloomFilterPredicate(column, Domain.create(ValueSet.of(BIGINT, 1L, 404L), false)).matches(bloomFilterStore));
+        assertFalse(bloomFilterPredicate(column, Domain.create(ValueSet.of(BIGINT, 1L, 2L), false)).matches(bloomFilterStore));
+        assertFalse(bloomFilterPredicate(column, singleValue(BIGINT, 43L)).matches(bloomFilterStore));
+        // nulls and ranges cannot be checked against the filter
+        assertTrue(bloomFilterPredicate(column, Domain.create(ValueSet.of(BIGINT, 1L, 2L), true)).matches(bloomFilterStore));
+        assertTrue(bloomFilterPredicate(column, Domain.create(ValueSet.ofRanges(range(BIGINT, 1L, true, 2L, true)), false)).matches(bloomFilterStore));
+        // a missing filter never skips
+        assertTrue(bloomFilterPredicate(column, singleValue(BIGINT, 43L)).matches(columnDescriptor -> Optional.empty()));
+    }
+
+    private static TupleDomainParquetPredicate bloomFilterPredicate(RichColumnDescriptor column, Domain domain)
+    {
+        return new TupleDomainParquetPredicate(TupleDomain.withColumnDomains(ImmutableMap.of(column, domain)), singletonList(column));
+    }
+
     @Test
     public void testVarcharMatchesWithDictionaryDescriptor()
     {
@@ -394,6 +429,29 @@ public class TestTupleDomainParquetPredicate
         assertTrue(parquetPredicate.matches(new DictionaryDescriptor(column, Optional.of(page))));
     }
 
+    @Test
+    public void testMatchesWithBloomFilter()
+            throws Exception
+    {
+        ValueBloomFilter bloomFilter = new ValueBloomFilter(DOUBLE, 1024);
+        bloomFilter.addValue(1.0);
+        bloomFilter.addValue(0.0);
+
+        DictionaryDescriptor notMatching = doubleDictionaryDescriptor(2.0, 3.0);
+        TupleDomainParquetPredicate parquetPredicate = new TupleDomainParquetPredicate(
+                TupleDomain.all(),
+                ImmutableMap.of(notMatching.getColumnDescriptor(), bloomFilter),
+                ImmutableList.of());
+        assertTrue(parquetPredicate.hasDictionaryFilter(notMatching.getColumnDescriptor()));
+        assertFalse(parquetPredicate.matches(notMatching));
+        assertTrue(parquetPredicate.matches(doubleDictionaryDescriptor(2.0, 1.0)));
+        assertTrue(parquetPredicate.matches(doubleDictionaryDescriptor(-0.0)));
+
+        // the dictionary cannot be checked if its values do not match the type of the filter
+        assertTrue(TupleDomainParquetPredicate.bloomFilterMatches(new ValueBloomFilter(REAL, 1024), doubleDictionaryDescriptor(2.0)));
+        assertFalse(new TupleDomainParquetPredicate(TupleDomain.all(), ImmutableList.of()).hasDictionaryFilter(notMatching.getColumnDescriptor()));
+    }
+
     @Test
     public void testGetRange()
     {
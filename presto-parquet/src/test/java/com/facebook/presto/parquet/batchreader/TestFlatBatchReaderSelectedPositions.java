@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.batchreader;
+
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.type.Type;
+import com.facebook.presto.parquet.ColumnReader;
+import com.facebook.presto.parquet.ColumnReaderFactory;
+import com.facebook.presto.parquet.DataPage;
+import com.facebook.presto.parquet.DataPageV1;
+import com.facebook.presto.parquet.PrimitiveField;
+import com.facebook.presto.parquet.RichColumnDescriptor;
+import com.facebook.presto.parquet.reader.PageReader;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
+import org.apache.parquet.bytes.HeapByteBufferAllocator;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.values.plain.PlainValuesWriter;
+import org.apache.parquet.column.values.rle.RunLengthBitPackingHybridEncoder;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Types;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongPredicate;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.parquet.ParquetEncoding.PLAIN;
+import static com.facebook.presto.parquet.ParquetEncoding.RLE;
+import static org.apache.parquet.hadoop.metadata.CompressionCodecName.UNCOMPRESSED;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT32;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT64;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestFlatBatchReaderSelectedPositions
+{
+    private static final int PAGE_COUNT = 3;
+    private static final int PAGE_SIZE = 1000;
+    private static final int BATCH_SIZE = 1300;
+
+    @Test
+    public void testInt32()
+            throws IOException
+    {
+        assertReadSelectedPositions(INT32, INTEGER, false);
+        assertReadSelectedPositions(INT32, INTEGER, true);
+    }
+
+    @Test
+    public void testInt64()
+            throws IOException
+    {
+        assertReadSelectedPositions(INT64, BIGINT, false);
+        assertReadSelectedPositions(INT64, BIGINT, true);
+    }
+
+    private static void assertReadSelectedPositions(PrimitiveTypeName typeName, Type type, boolean required)
+            throws IOException
+    {
+        // every third position of a batch, the runs of consecutive positions at the start of the batches and the
+        // positions crossing the pages are selected
+        assertReadSelectedPositions(typeName, type, required, position -> position % 3 == 0 || position % BATCH_SIZE < 10 || position % PAGE_SIZE > PAGE_SIZE - 5);
+        // nothing but the last position of the batches is selected
+        assertReadSelectedPositions(typeName, type, required, position -> position % BATCH_SIZE == BATCH_SIZE - 1);
+        // only nulls are selected
+        if (!required) {
+            assertReadSelectedPositions(typeName, type, false, TestFlatBatchReaderSelectedPositions::isNull);
+        }
+    }
+
+    private static void assertReadSelectedPositions(PrimitiveTypeName typeName, Type type, boolean required, LongPredicate filter)
+            throws IOException
+    {
+        PrimitiveType parquetType = (required ? Types.required(typeName) : Types.optional(typeName)).named("test");
+        RichColumnDescriptor descriptor = new RichColumnDescriptor(new ColumnDescriptor(new String[] {"test"}, parquetType, 0, required ? 0 : 1), parquetType);
+        PrimitiveField field = new PrimitiveField(type, 0, required ? 0 : 1, required, descriptor, 0);
+
+        List<DataPage> pages = new ArrayList<>();
+        for (int page = 0; page < PAGE_COUNT; page++) {
+            pages.add(createDataPage(typeName, required, page * PAGE_SIZE));
+        }
+        ColumnReader columnReader = ColumnReaderFactory.createReader(descriptor, true);
+        columnReader.init(new PageReader(UNCOMPRESSED, pages.iterator(), PAGE_COUNT * PAGE_SIZE, null, null, Optional.empty(), null, -1, -1), field, null);
+
+        int batchStart = 0;
+        while (batchStart < PAGE_COUNT * PAGE_SIZE) {
+            int batchSize = Math.min(BATCH_SIZE, PAGE_COUNT * PAGE_SIZE - batchStart);
+            int[] positions = new int[batchSize];
+            int positionCount = 0;
+            for (int position = 0; position < batchSize; position++) {
+                if (filter.test(batchStart + position)) {
+                    positions[positionCount++] = position;
+                }
+            }
+
+            columnReader.prepareNextRead(batchSize);
+            Block block = columnReader.readNext(positions, positionCount).getBlock();
+            assertEquals(block.getPositionCount(), positionCount);
+            for (int i = 0; i < positionCount; i++) {
+                long row = batchStart + positions[i];
+                if (!required && isNull(row)) {
+                    assertTrue(block.isNull(i));
+                }
+                else {
+                    assertFalse(block.isNull(i));
+                    assertEquals(type.getLong(block, i), getValue(row));
+                }
+            }
+            batchStart += batchSize;
+        }
+    }
+
+    private static DataPage createDataPage(PrimitiveTypeName typeName, boolean required, int firstRow)
+            throws IOException
+    {
+        DynamicSliceOutput output = new DynamicSliceOutput(PAGE_SIZE * Long.BYTES);
+        PlainValuesWriter valuesWriter = new PlainValuesWriter(PAGE_SIZE * Long.BYTES, PAGE_SIZE * Long.BYTES, new HeapByteBufferAllocator());
+        RunLengthBitPackingHybridEncoder definitionLevelEncoder = new RunLengthBitPackingHybridEncoder(1, PAGE_SIZE, PAGE_SIZE, new HeapByteBufferAllocator());
+        for (int row = firstRow; row < firstRow + PAGE_SIZE; row++) {
+            if (!required && isNull(row)) {
+                definitionLevelEncoder.writeInt(0);
+                continue;
+            }
+            definitionLevelEncoder.writeInt(1);
+            if (typeName == INT32) {
+                valuesWriter.writeInteger((int) getValue(row));
+            }
+            else {
+                valuesWriter.writeLong(getValue(row));
+            }
+        }
+
+        if (!required) {
+            byte[] definitionLevels = definitionLevelEncoder.toBytes().toByteArray();
+            output.writeInt(definitionLevels.length);
+            output.writeBytes(definitionLevels);
+        }
+        output.writeBytes(valuesWriter.getBytes().toByteArray());
+        Slice data = output.slice();
+        return new DataPageV1(data, PAGE_SIZE, data.length(), -1, null, RLE, RLE, PLAIN);
+    }
+
+    private static boolean isNull(long row)
+    {
+        // runs of nulls and single nulls
+        return row % 7 == 0 || (row / 50) % 5 == 1;
+    }
+
+    private static long getValue(long row)
+    {
+        return row * 3 - 1000;
+    }
+}
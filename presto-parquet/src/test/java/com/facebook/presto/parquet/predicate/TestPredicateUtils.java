@@ -13,6 +13,9 @@
  */
 package com.facebook.presto.parquet.predicate;
 
+import com.facebook.presto.common.block.Block;
+import com.facebook.presto.common.block.BlockBuilder;
+import com.facebook.presto.common.predicate.ValueBloomFilter;
 import com.google.common.collect.ImmutableSet;
 import org.apache.parquet.column.Encoding;
 import org.apache.parquet.column.EncodingStats;
@@ -20,8 +23,11 @@ import org.apache.parquet.column.statistics.BinaryStatistics;
 import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
 import java.util.Set;
 
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.parquet.predicate.PredicateUtils.filterPositions;
 import static com.facebook.presto.parquet.predicate.PredicateUtils.isOnlyDictionaryEncodingPages;
 import static com.google.common.collect.Sets.union;
 import static org.apache.parquet.column.Encoding.BIT_PACKED;
@@ -32,6 +38,7 @@ import static org.apache.parquet.column.Encoding.RLE_DICTIONARY;
 import static org.apache.parquet.hadoop.metadata.ColumnPath.fromDotString;
 import static org.apache.parquet.hadoop.metadata.CompressionCodecName.UNCOMPRESSED;
 import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BINARY;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
@@ -72,6 +79,31 @@ public class TestPredicateUtils
         assertFalse(isOnlyDictionaryEncodingPages(createColumnMetaDataV2(RLE_DICTIONARY, PLAIN)));
     }
 
+    @Test
+    public void testFilterPositions()
+    {
+        ValueBloomFilter bloomFilter = new ValueBloomFilter(BIGINT, 1024);
+        bloomFilter.addValue(10L);
+        bloomFilter.addValue(30L);
+
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(null, 5);
+        BIGINT.writeLong(blockBuilder, 10);
+        BIGINT.writeLong(blockBuilder, 20);
+        blockBuilder.appendNull();
+        BIGINT.writeLong(blockBuilder, 30);
+        BIGINT.writeLong(blockBuilder, 10);
+        Block block = blockBuilder.build();
+
+        int[] positions = {0, 1, 2, 3, 4};
+        assertEquals(filterPositions(bloomFilter, block, positions, 5), 3);
+        assertEquals(Arrays.copyOf(positions, 3), new int[] {0, 3, 4});
+
+        // only the given positions are evaluated
+        positions = new int[] {1, 3};
+        assertEquals(filterPositions(bloomFilter, block, positions, 2), 1);
+        assertEquals(positions[0], 3);
+    }
+
     private ColumnChunkMetaData createColumnMetaDataV2(Encoding... dataEncodings)
     {
         EncodingStats encodingStats = new EncodingStats.Builder()
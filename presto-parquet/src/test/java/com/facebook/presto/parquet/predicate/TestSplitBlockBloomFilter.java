@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.parquet.predicate;
+
+import io.airlift.slice.Slices;
+import org.apache.parquet.column.values.bloomfilter.BlockSplitBloomFilter;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static com.facebook.presto.common.type.BigintType.BIGINT;
+import static com.facebook.presto.common.type.DoubleType.DOUBLE;
+import static com.facebook.presto.common.type.IntegerType.INTEGER;
+import static com.facebook.presto.common.type.RealType.REAL;
+import static com.facebook.presto.common.type.VarcharType.VARCHAR;
+import static io.airlift.slice.Slices.utf8Slice;
+import static java.lang.Float.floatToRawIntBits;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BINARY;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.FLOAT;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT32;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT64;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+public class TestSplitBlockBloomFilter
+{
+    @Test
+    public void testCompatibleWithParquetWriter()
+            throws IOException
+    {
+        // filters written by parquet-mr must be readable
+        BlockSplitBloomFilter writer = new BlockSplitBloomFilter(1024);
+        for (long value = 0; value < 100; value++) {
+            writer.insertHash(writer.hash(value * 3));
+        }
+        writer.insertHash(writer.hash(42));
+        writer.insertHash(writer.hash(1.5));
+        writer.insertHash(writer.hash(2.5f));
+        writer.insertHash(writer.hash(Binary.fromString("apple")));
+
+        SplitBlockBloomFilter filter = createFilter(writer);
+        for (long value = 0; value < 100; value++) {
+            assertTrue(filter.mightContain(SplitBlockBloomFilter.hash(value * 3, BIGINT, INT64).getAsLong()));
+        }
+        assertTrue(filter.mightContain(SplitBlockBloomFilter.hash(42L, INTEGER, INT32).getAsLong()));
+        assertTrue(filter.mightContain(SplitBlockBloomFilter.hash(1.5, DOUBLE, PrimitiveTypeName.DOUBLE).getAsLong()));
+        assertTrue(filter.mightContain(SplitBlockBloomFilter.hash((long) floatToRawIntBits(2.5f), REAL, FLOAT).getAsLong()));
+        assertTrue(filter.mightContain(SplitBlockBloomFilter.hash(utf8Slice("apple"), VARCHAR, BINARY).getAsLong()));
+
+        assertFalse(filter.mightContain(SplitBlockBloomFilter.hash(utf8Slice("banana"), VARCHAR, BINARY).getAsLong()));
+        assertFalse(filter.mightContain(SplitBlockBloomFilter.hash(43L, INTEGER, INT32).getAsLong()));
+    }
+
+    @Test
+    public void testUnsupportedValues()
+    {
+        // zero has two representations, NaN is never equal
+        assertFalse(SplitBlockBloomFilter.hash(0.0, DOUBLE, PrimitiveTypeName.DOUBLE).isPresent());
+        assertFalse(SplitBlockBloomFilter.hash(Double.NaN, DOUBLE, PrimitiveTypeName.DOUBLE).isPresent());
+        assertFalse(SplitBlockBloomFilter.hash((long) floatToRawIntBits(-0.0f), REAL, FLOAT).isPresent());
+        // the physical type does not match the value
+        assertFalse(SplitBlockBloomFilter.hash(1L << 40, BIGINT, INT32).isPresent());
+        assertFalse(SplitBlockBloomFilter.hash(utf8Slice("apple"), VARCHAR, INT64).isPresent());
+    }
+
+    @Test
+    public void testInvalidSize()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new SplitBlockBloomFilter(Slices.allocate(0)));
+        assertThrows(IllegalArgumentException.class, () -> new SplitBlockBloomFilter(Slices.allocate(48)));
+    }
+
+    private static SplitBlockBloomFilter createFilter(BlockSplitBloomFilter writer)
+            throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.writeTo(output);
+        return new SplitBlockBloomFilter(Slices.wrappedBuffer(output.toByteArray()));
+    }
+}
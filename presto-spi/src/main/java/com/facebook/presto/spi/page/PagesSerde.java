@@ -32,6 +32,8 @@ import static com.facebook.presto.spi.page.PagesSerdeUtil.computeSerializedPageC
 import static com.facebook.presto.spi.page.PagesSerdeUtil.readRawPage;
 import static com.facebook.presto.spi.page.PagesSerdeUtil.writeRawPage;
 import static io.airlift.slice.SizeOf.sizeOf;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.lang.Math.toIntExact;
 import static java.util.Objects.requireNonNull;
 import static sun.misc.Unsafe.ARRAY_BYTE_BASE_OFFSET;
@@ -39,14 +41,28 @@ import static sun.misc.Unsafe.ARRAY_BYTE_BASE_OFFSET;
 public class PagesSerde
 {
     private static final double MINIMUM_COMPRESSION_RATIO = 0.9;
+    // maximum number of pages sent without compression after pages which did not compress well
+    private static final int MAX_COMPRESSION_SKIP_PAGES = 64;
 
     private final BlockEncodingSerde blockEncodingSerde;
     private final Optional<PageCompressor> compressor;
     private final Optional<PageDecompressor> decompressor;
     private final Optional<SpillCipher> spillCipher;
     private final boolean checksumEnabled;
+    private final boolean adaptiveCompression;
 
     private byte[] compressionBuffer;
+    // adaptive compression samples a page after skipping compression for this many pages
+    private int compressionSkipPages;
+    private int remainingCompressionSkipPages;
+
+    // work done by the codec since the last reset of the compression stats
+    private long compressionInputBytes;
+    private long compressionOutputBytes;
+    private long compressionTimeNanos;
+    private long decompressionInputBytes;
+    private long decompressionOutputBytes;
+    private long decompressionTimeNanos;
 
     public PagesSerde(BlockEncodingSerde blockEncodingSerde, Optional<PageCompressor> compressor, Optional<PageDecompressor> decompressor, Optional<SpillCipher> spillCipher)
     {
@@ -54,6 +70,21 @@ public class PagesSerde
     }
 
     public PagesSerde(BlockEncodingSerde blockEncodingSerde, Optional<PageCompressor> compressor, Optional<PageDecompressor> decompressor, Optional<SpillCipher> spillCipher, boolean checksumEnabled)
+    {
+        this(blockEncodingSerde, compressor, decompressor, spillCipher, checksumEnabled, false);
+    }
+
+    /**
+     * With adaptive compression, pages which do not compress well make the serde send the following pages
+     * without compression, with exponentially more pages skipped as long as the sampled pages do not compress well.
+     */
+    public PagesSerde(
+            BlockEncodingSerde blockEncodingSerde,
+            Optional<PageCompressor> compressor,
+            Optional<PageDecompressor> decompressor,
+            Optional<SpillCipher> spillCipher,
+            boolean checksumEnabled,
+            boolean adaptiveCompression)
     {
         this.blockEncodingSerde = requireNonNull(blockEncodingSerde, "blockEncodingSerde is null");
         checkArgument(compressor.isPresent() == decompressor.isPresent(), "compressor and decompressor must both be present or both be absent");
@@ -62,6 +93,7 @@ public class PagesSerde
         this.spillCipher = requireNonNull(spillCipher, "spillCipher is null");
         checkState(!spillCipher.isPresent() || !spillCipher.get().isDestroyed(), "spillCipher is already destroyed");
         this.checksumEnabled = checksumEnabled;
+        this.adaptiveCompression = adaptiveCompression;
     }
 
     public SerializedPage serialize(Page page)
@@ -95,9 +127,13 @@ public class PagesSerde
             int uncompressedSize = serializedPage.getUncompressedSizeInBytes();
             ByteBuffer decompressionBuffer = ByteBuffer.allocate(uncompressedSize);
 
+            long start = System.nanoTime();
             decompressor.get().decompress(slice.toByteBuffer(), decompressionBuffer);
+            decompressionTimeNanos += System.nanoTime() - start;
             ((Buffer) decompressionBuffer).flip();
             checkState(decompressionBuffer.remaining() == uncompressedSize, "page size changed after decompression into decompressionBuffer");
+            decompressionInputBytes += slice.length();
+            decompressionOutputBytes += uncompressedSize;
 
             slice = Slices.wrappedBuffer(decompressionBuffer);
         }
@@ -115,14 +151,61 @@ public class PagesSerde
         return sizeOf(compressionBuffer);
     }
 
+    /**
+     * Size of the pages given to the compressor, including the ones sent without compression because they did not compress well.
+     */
+    public long getCompressionInputBytes()
+    {
+        return compressionInputBytes;
+    }
+
+    public long getCompressionOutputBytes()
+    {
+        return compressionOutputBytes;
+    }
+
+    public long getCompressionTimeNanos()
+    {
+        return compressionTimeNanos;
+    }
+
+    public long getDecompressionInputBytes()
+    {
+        return decompressionInputBytes;
+    }
+
+    public long getDecompressionOutputBytes()
+    {
+        return decompressionOutputBytes;
+    }
+
+    public long getDecompressionTimeNanos()
+    {
+        return decompressionTimeNanos;
+    }
+
+    public void resetCompressionStats()
+    {
+        compressionInputBytes = 0;
+        compressionOutputBytes = 0;
+        compressionTimeNanos = 0;
+        decompressionInputBytes = 0;
+        decompressionOutputBytes = 0;
+        decompressionTimeNanos = 0;
+    }
+
     private SerializedPage wrapSlice(Slice slice, int positionCount)
     {
         int uncompressedSize = slice.length();
         byte markers = PageCodecMarker.none();
 
-        if (compressor.isPresent()) {
+        if (compressor.isPresent() && remainingCompressionSkipPages > 0) {
+            remainingCompressionSkipPages--;
+        }
+        else if (compressor.isPresent()) {
             int maxCompressedSize = compressor.get().maxCompressedLength(uncompressedSize);
             compressionBuffer = ensureCapacity(compressionBuffer, maxCompressedSize);
+            long start = System.nanoTime();
             int compressedSize = compressor.get().compress(
                     (byte[]) slice.getBase(),
                     (int) (slice.getAddress() - ARRAY_BYTE_BASE_OFFSET),
@@ -130,10 +213,18 @@ public class PagesSerde
                     compressionBuffer,
                     0,
                     maxCompressedSize);
+            compressionTimeNanos += System.nanoTime() - start;
+            compressionInputBytes += uncompressedSize;
+            compressionOutputBytes += compressedSize;
 
             if (compressedSize / (double) uncompressedSize <= MINIMUM_COMPRESSION_RATIO) {
                 slice = Slices.copyOf(Slices.wrappedBuffer(compressionBuffer, 0, compressedSize));
                 markers = COMPRESSED.set(markers);
+                compressionSkipPages = 0;
+            }
+            else if (adaptiveCompression) {
+                compressionSkipPages = min(max(2 * compressionSkipPages, 1), MAX_COMPRESSION_SKIP_PAGES);
+                remainingCompressionSkipPages = compressionSkipPages;
             }
         }
 
@@ -0,0 +1,174 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.server;
+
+import com.facebook.airlift.http.client.HttpClient;
+import com.facebook.airlift.http.client.Request;
+import com.facebook.airlift.http.client.jetty.JettyHttpClient;
+import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.client.ResultSegment;
+import com.facebook.presto.server.testing.TestingPrestoServer;
+import com.facebook.presto.tests.DistributedQueryRunner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+
+import static com.facebook.airlift.http.client.HttpUriBuilder.uriBuilderFrom;
+import static com.facebook.airlift.http.client.JsonResponseHandler.createJsonResponseHandler;
+import static com.facebook.airlift.http.client.Request.Builder.prepareDelete;
+import static com.facebook.airlift.http.client.Request.Builder.prepareGet;
+import static com.facebook.airlift.http.client.Request.Builder.preparePost;
+import static com.facebook.airlift.http.client.StaticBodyGenerator.createStaticBodyGenerator;
+import static com.facebook.airlift.http.client.StatusResponseHandler.createStatusResponseHandler;
+import static com.facebook.airlift.json.JsonCodec.jsonCodec;
+import static com.facebook.airlift.testing.Closeables.closeQuietly;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_USER;
+import static com.facebook.presto.tests.tpch.TpchQueryRunner.createQueryRunner;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static jakarta.ws.rs.core.Response.Status.NOT_FOUND;
+import static jakarta.ws.rs.core.Response.Status.NO_CONTENT;
+import static jakarta.ws.rs.core.Response.Status.OK;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestSpooledResults
+{
+    private static final String QUERY = "SELECT * FROM tpch.tiny.orders";
+
+    private HttpClient client;
+    private DistributedQueryRunner queryRunner;
+    private DistributedQueryRunner proxyQueryRunner;
+
+    @BeforeClass
+    public void setUp()
+            throws Exception
+    {
+        client = new JettyHttpClient();
+        // the root stage runs on a worker, which spools the results
+        queryRunner = createQueryRunner(ImmutableMap.of(
+                "node-scheduler.include-coordinator", "false",
+                "spooled-results-enabled", "true",
+                "spooled-results-segment-size", "16kB"));
+        proxyQueryRunner = createQueryRunner(ImmutableMap.of(
+                "node-scheduler.include-coordinator", "false",
+                "spooled-results-enabled", "true",
+                "spooled-results-segment-size", "16kB",
+                "spooled-results-proxy-enabled", "true"));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+    {
+        closeQuietly(queryRunner);
+        closeQuietly(proxyQueryRunner);
+        closeQuietly(client);
+        queryRunner = null;
+        proxyQueryRunner = null;
+        client = null;
+    }
+
+    @Test(timeOut = 60_000)
+    public void testFetchSegmentsFromWorkers()
+    {
+        List<ResultSegment> segments = executeQuery(queryRunner);
+        Set<URI> workerUris = getWorkerUris(queryRunner);
+        for (ResultSegment segment : segments) {
+            // the client fetches the segments from the worker that spooled them
+            assertTrue(workerUris.contains(getServerUri(segment.getUri())), segment.getUri().toString());
+            assertFetchAndAcknowledge(segment.getUri());
+        }
+
+        // the coordinator does not proxy the segments of other nodes by default
+        ResultSegment segment = executeQuery(queryRunner).get(0);
+        URI coordinatorSegmentUri = uriBuilderFrom(segment.getUri())
+                .scheme(queryRunner.getCoordinator().getBaseUrl().getScheme())
+                .host(queryRunner.getCoordinator().getBaseUrl().getHost())
+                .port(queryRunner.getCoordinator().getBaseUrl().getPort())
+                .build();
+        assertEquals(getStatusCode(prepareGet().setUri(coordinatorSegmentUri)), NOT_FOUND.getStatusCode());
+        assertFetchAndAcknowledge(segment.getUri());
+    }
+
+    @Test(timeOut = 60_000)
+    public void testFetchSegmentsThroughCoordinator()
+    {
+        List<ResultSegment> segments = executeQuery(proxyQueryRunner);
+        URI coordinatorUri = getServerUri(proxyQueryRunner.getCoordinator().getBaseUrl());
+        for (ResultSegment segment : segments) {
+            assertEquals(getServerUri(segment.getUri()), coordinatorUri);
+            assertFetchAndAcknowledge(segment.getUri());
+        }
+    }
+
+    private List<ResultSegment> executeQuery(DistributedQueryRunner queryRunner)
+    {
+        Request request = preparePost()
+                .setUri(uriBuilderFrom(queryRunner.getCoordinator().getBaseUrl()).replacePath("/v1/statement").build())
+                .setBodyGenerator(createStaticBodyGenerator(QUERY, UTF_8))
+                .setHeader(PRESTO_USER, "user")
+                .build();
+        QueryResults queryResults = client.execute(request, createJsonResponseHandler(jsonCodec(QueryResults.class)));
+        ImmutableList.Builder<ResultSegment> segments = ImmutableList.builder();
+        while (queryResults.getNextUri() != null) {
+            queryResults = client.execute(prepareGet().setUri(queryResults.getNextUri()).build(), createJsonResponseHandler(jsonCodec(QueryResults.class)));
+            assertNull(queryResults.getData());
+            if (queryResults.getSegments() != null) {
+                segments.addAll(queryResults.getSegments());
+            }
+        }
+        assertNull(queryResults.getError());
+
+        List<ResultSegment> spooledSegments = segments.build();
+        assertFalse(spooledSegments.isEmpty());
+        assertEquals(spooledSegments.stream().mapToLong(ResultSegment::getRowCount).sum(), 15000);
+        return spooledSegments;
+    }
+
+    private void assertFetchAndAcknowledge(URI segmentUri)
+    {
+        assertEquals(getStatusCode(prepareGet().setUri(segmentUri)), OK.getStatusCode());
+        assertEquals(getStatusCode(prepareDelete().setUri(segmentUri)), NO_CONTENT.getStatusCode());
+        // acknowledged segments are removed
+        assertEquals(getStatusCode(prepareGet().setUri(segmentUri)), NOT_FOUND.getStatusCode());
+    }
+
+    private int getStatusCode(Request.Builder request)
+    {
+        return client.execute(request.setHeader(PRESTO_USER, "user").build(), createStatusResponseHandler()).getStatusCode();
+    }
+
+    private static Set<URI> getWorkerUris(DistributedQueryRunner queryRunner)
+    {
+        return queryRunner.getServers().stream()
+                .filter(server -> !server.isCoordinator())
+                .map(TestingPrestoServer::getBaseUrl)
+                .map(TestSpooledResults::getServerUri)
+                .collect(toImmutableSet());
+    }
+
+    private static URI getServerUri(URI uri)
+    {
+        return uriBuilderFrom(uri).replacePath("/").build();
+    }
+}